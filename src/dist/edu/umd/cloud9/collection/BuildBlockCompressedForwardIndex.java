@@ -0,0 +1,256 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.collection;
+
+import java.io.IOException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapred.Counters;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MapRunnable;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.RunningJob;
+import org.apache.hadoop.mapred.lib.IdentityReducer;
+import org.apache.hadoop.util.LineReader;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+import edu.umd.cloud9.io.SequenceFileBlockScanner;
+import edu.umd.cloud9.mapred.NoSplitSequenceFileInputFormat;
+
+/**
+ * <p>
+ * Tool for building a document forward index over any collection that has been packed into
+ * block-compressed SequenceFiles with <code>IntWritable</code> docnos as keys (e.g., repacked
+ * ClueWeb09 or Wikipedia). Unlike the original builders, which call <code>next</code> on every
+ * record and watch for changes in the reader position, this tool walks the block headers directly
+ * with {@link SequenceFileBlockScanner}: only the key buffer of each block is (partially)
+ * decompressed, and values are never touched.
+ * </p>
+ *
+ * <p>
+ * The index file has exactly the same layout as before, so it can be loaded by the existing
+ * forward index classes. The class name recorded in the index is specified with the
+ * <code>-index_class</code> option.
+ * </p>
+ *
+ * @author Jimmy Lin
+ */
+@SuppressWarnings("deprecation")
+public class BuildBlockCompressedForwardIndex extends Configured implements Tool {
+  private static final Logger LOG = Logger.getLogger(BuildBlockCompressedForwardIndex.class);
+
+  public static enum Blocks { Total, Records };
+
+  /**
+   * Map runner that emits (first docno, block offset + fileno) for each block of its input file,
+   * ignoring the record reader entirely.
+   */
+  public static class BlockScannerMapRunner implements
+      MapRunnable<Writable, Writable, IntWritable, Text> {
+    private static final IntWritable keyOut = new IntWritable();
+    private static final Text valOut = new Text();
+
+    private JobConf conf;
+    private Path file;
+    private int fileno;
+
+    public void configure(JobConf job) {
+      conf = job;
+      String f = job.get("map.input.file");
+      file = new Path(f);
+      fileno = Integer.parseInt(f.substring(f.indexOf("part-") + 5));
+    }
+
+    public void run(RecordReader<Writable, Writable> input,
+        OutputCollector<IntWritable, Text> output, Reporter reporter) throws IOException {
+      FileSystem fs = file.getFileSystem(conf);
+      SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(file, fs, conf);
+
+      try {
+        IntWritable docno = new IntWritable();
+        while (scanner.next()) {
+          long offset = scanner.getBlockOffset();
+          if (offset > Integer.MAX_VALUE) {
+            throw new RuntimeException("Error: block offset " + offset + " in " + file
+                + " does not fit in the index format!");
+          }
+
+          scanner.readFirstKey(docno);
+
+          keyOut.set(docno.get());
+          valOut.set(offset + "\t" + fileno);
+          output.collect(keyOut, valOut);
+
+          reporter.incrCounter(Blocks.Total, 1);
+          reporter.incrCounter(Blocks.Records, scanner.getRecordCount());
+          reporter.progress();
+        }
+      } finally {
+        scanner.close();
+      }
+    }
+  }
+
+  private static final String INPUT_OPTION = "input";
+  private static final String OUTPUT_OPTION = "output";
+  private static final String INDEX_FILE_OPTION = "index_file";
+  private static final String INDEX_CLASS_OPTION = "index_class";
+
+  @SuppressWarnings("static-access") @Override
+  public int run(String[] args) throws Exception {
+    Options options = new Options();
+    options.addOption(OptionBuilder.withArgName("path").hasArg()
+        .withDescription("input").create(INPUT_OPTION));
+    options.addOption(OptionBuilder.withArgName("path").hasArg()
+        .withDescription("tmp output directory").create(OUTPUT_OPTION));
+    options.addOption(OptionBuilder.withArgName("path").hasArg()
+        .withDescription("index file").create(INDEX_FILE_OPTION));
+    options.addOption(OptionBuilder.withArgName("class").hasArg()
+        .withDescription("forward index class").create(INDEX_CLASS_OPTION));
+
+    CommandLine cmdline;
+    CommandLineParser parser = new GnuParser();
+    try {
+      cmdline = parser.parse(options, args);
+    } catch (ParseException exp) {
+      System.err.println("Error parsing command line: " + exp.getMessage());
+      return -1;
+    }
+
+    if (!cmdline.hasOption(INPUT_OPTION) || !cmdline.hasOption(OUTPUT_OPTION) ||
+        !cmdline.hasOption(INDEX_FILE_OPTION) || !cmdline.hasOption(INDEX_CLASS_OPTION)) {
+      HelpFormatter formatter = new HelpFormatter();
+      formatter.printHelp(this.getClass().getName(), options);
+      ToolRunner.printGenericCommandUsage(System.out);
+      return -1;
+    }
+
+    return run(cmdline.getOptionValue(INPUT_OPTION), cmdline.getOptionValue(OUTPUT_OPTION),
+        cmdline.getOptionValue(INDEX_FILE_OPTION), cmdline.getOptionValue(INDEX_CLASS_OPTION));
+  }
+
+  /**
+   * Builds the forward index.
+   *
+   * @param inputPath path to the block-compressed collection
+   * @param outputPath tmp output directory
+   * @param indexFile path of the index file to write
+   * @param indexClass name of the forward index class recorded in the index
+   */
+  public int run(String inputPath, String outputPath, String indexFile, String indexClass)
+      throws IOException {
+    JobConf conf = new JobConf(getConf(), BuildBlockCompressedForwardIndex.class);
+    FileSystem fs = FileSystem.get(conf);
+
+    LOG.info("Tool name: " + this.getClass().getName());
+    LOG.info(" - input path: " + inputPath);
+    LOG.info(" - output path: " + outputPath);
+    LOG.info(" - index file: " + indexFile);
+    LOG.info(" - index class: " + indexClass);
+    LOG.info("Note: This tool only works on block-compressed SequenceFiles!");
+
+    conf.setJobName(String.format("BuildBlockCompressedForwardIndex[%s: %s, %s: %s]",
+        INPUT_OPTION, inputPath, INDEX_FILE_OPTION, indexFile));
+
+    conf.setNumReduceTasks(1);
+
+    FileInputFormat.setInputPaths(conf, new Path(inputPath));
+    FileOutputFormat.setOutputPath(conf, new Path(outputPath));
+    FileOutputFormat.setCompressOutput(conf, false);
+
+    conf.setInputFormat(NoSplitSequenceFileInputFormat.class);
+    conf.setOutputKeyClass(IntWritable.class);
+    conf.setOutputValueClass(Text.class);
+
+    conf.setMapRunnerClass(BlockScannerMapRunner.class);
+    conf.setReducerClass(IdentityReducer.class);
+
+    // delete the output directory if it exists already
+    fs.delete(new Path(outputPath), true);
+
+    RunningJob job = JobClient.runJob(conf);
+
+    Counters counters = job.getCounters();
+    int blocks = (int) counters.findCounter(Blocks.Total).getCounter();
+
+    LOG.info("number of blocks: " + blocks);
+    LOG.info("number of records: " + counters.findCounter(Blocks.Records).getCounter());
+
+    LOG.info("Writing index file...");
+    LineReader reader = new LineReader(fs.open(new Path(outputPath + "/part-00000")));
+    FSDataOutputStream out = fs.create(new Path(indexFile), true);
+
+    out.writeUTF(indexClass);
+    out.writeUTF(inputPath);
+    out.writeInt(blocks);
+
+    int cnt = 0;
+    Text line = new Text();
+    while (reader.readLine(line) > 0) {
+      String[] arr = line.toString().split("\\s+");
+
+      int docno = Integer.parseInt(arr[0]);
+      int offset = Integer.parseInt(arr[1]);
+      short fileno = Short.parseShort(arr[2]);
+
+      out.writeInt(docno);
+      out.writeInt(offset);
+      out.writeShort(fileno);
+
+      cnt++;
+
+      if (cnt % 100000 == 0) {
+        LOG.info(cnt + " blocks written");
+      }
+    }
+
+    reader.close();
+    out.close();
+
+    if (cnt != blocks) {
+      throw new RuntimeException("Error: mismatch in block count!");
+    }
+
+    return 0;
+  }
+
+  public BuildBlockCompressedForwardIndex() {}
+
+  public static void main(String[] args) throws Exception {
+    ToolRunner.run(new BuildBlockCompressedForwardIndex(), args);
+  }
+}
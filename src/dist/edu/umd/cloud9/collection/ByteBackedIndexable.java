@@ -0,0 +1,264 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.collection;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * <p>
+ * A document whose raw content is kept as UTF-8 bytes, in a buffer that is reused from one record
+ * to the next. Subclasses extract the docid and other header fields by scanning the bytes for
+ * (ASCII) tags, and decode only the fields that are asked for, so that a job that only needs
+ * docids or lengths never decodes the text of the documents. The raw content is decoded on demand,
+ * either to a {@code String} with {@link #getRawContent()}, or into a reusable buffer with
+ * {@link #getCharSequence()}; {@link #getByteBuffer()} gives tokenizers that work on bytes direct
+ * access to the buffer.
+ * </p>
+ *
+ * <p>
+ * The serialized form is a VInt length followed by the bytes, which is what the String-backed
+ * documents wrote (in the platform default charset, which is usually UTF-8).
+ * </p>
+ */
+public abstract class ByteBackedIndexable extends Indexable {
+  /**
+   * UTF-8 charset, in which the bytes are encoded.
+   */
+  protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private byte[] bytes = new byte[0];
+  private int length;
+
+  // Decoded content, either as a String or into a reusable buffer, if asked for.
+  private String raw;
+  private CharBuffer chars;
+  private boolean decoded;
+  private CharsetDecoder decoder;
+
+  /**
+   * Serializes this object.
+   */
+  public void write(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, length);
+    out.write(bytes, 0, length);
+  }
+
+  /**
+   * Deserializes this object.
+   */
+  public void readFields(DataInput in) throws IOException {
+    int len = WritableUtils.readVInt(in);
+    ensureCapacity(len);
+    in.readFully(bytes, 0, len);
+    length = len;
+    changed();
+  }
+
+  /**
+   * Sets the raw content of this document to a copy of a range of bytes.
+   *
+   * @param b UTF-8 bytes
+   * @param offset offset of the first byte
+   * @param len number of bytes
+   */
+  public void set(byte[] b, int offset, int len) {
+    ensureCapacity(len);
+    System.arraycopy(b, offset, bytes, 0, len);
+    length = len;
+    changed();
+  }
+
+  /**
+   * Sets the raw content of this document to a copy of the bytes of a {@code Text}.
+   */
+  public void set(Text text) {
+    set(text.getBytes(), 0, text.getLength());
+  }
+
+  /**
+   * Sets the raw content of this document to a String, encoded in UTF-8.
+   */
+  public void set(String s) {
+    byte[] b = s.getBytes(UTF8);
+    set(b, 0, b.length);
+    raw = s;
+  }
+
+  private void ensureCapacity(int len) {
+    if (bytes.length < len) {
+      bytes = new byte[Math.max(len, bytes.length + (bytes.length >> 1))];
+    }
+  }
+
+  private void changed() {
+    raw = null;
+    decoded = false;
+    reset();
+  }
+
+  /**
+   * Called whenever the raw content changes. Subclasses clear (or recompute) the fields they have
+   * extracted.
+   */
+  protected void reset() {}
+
+  /**
+   * Returns the buffer holding the raw content, which may be longer than the content. The buffer is
+   * reused for the next record.
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the length of the raw content, in bytes.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Returns a read-only view of the raw content, which is valid until the next record.
+   */
+  public ByteBuffer getByteBuffer() {
+    return ByteBuffer.wrap(bytes, 0, length).slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns the raw content, decoded into a buffer that is reused for the next record. This avoids
+   * creating a String for tokenizers that take a {@code CharSequence}.
+   */
+  public CharSequence getCharSequence() {
+    if (!decoded) {
+      if (decoder == null) {
+        decoder = UTF8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      }
+
+      // UTF-8 never decodes to more chars than bytes.
+      if (chars == null || chars.capacity() < length) {
+        chars = CharBuffer.allocate(Math.max(length, chars == null ? 0 : chars.capacity() * 2));
+      }
+      chars.clear();
+      decoder.reset();
+      decoder.decode(ByteBuffer.wrap(bytes, 0, length), chars, true);
+      decoder.flush(chars);
+      chars.flip();
+      decoded = true;
+    }
+
+    chars.rewind();
+    return chars;
+  }
+
+  /**
+   * Returns the raw content, decoded to a String the first time it is asked for.
+   */
+  public String getRawContent() {
+    if (raw == null) {
+      raw = new String(bytes, 0, length, UTF8);
+    }
+    return raw;
+  }
+
+  /**
+   * Returns the index of the first occurrence of a pattern in the raw content, at or after
+   * <code>from</code>, or -1 if there is none.
+   */
+  protected int indexOf(byte[] pattern, int from) {
+    return indexOf(pattern, from, length);
+  }
+
+  /**
+   * Returns the index of the first occurrence of a pattern that lies within [<code>from</code>,
+   * <code>to</code>) of the raw content, or -1 if there is none.
+   */
+  protected int indexOf(byte[] pattern, int from, int to) {
+    if (from < 0) {
+      from = 0;
+    }
+
+    int last = Math.min(to, length) - pattern.length;
+    outer: for (int i = from; i <= last; i++) {
+      if (bytes[i] != pattern[0]) {
+        continue;
+      }
+      for (int j = 1; j < pattern.length; j++) {
+        if (bytes[i + j] != pattern[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns whether the raw content contains a pattern at a particular index.
+   */
+  protected boolean startsWith(byte[] pattern, int at) {
+    if (at < 0 || at + pattern.length > length) {
+      return false;
+    }
+
+    for (int j = 0; j < pattern.length; j++) {
+      if (bytes[at + j] != pattern[j]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Decodes the bytes in [<code>start</code>, <code>end</code>) of the raw content.
+   */
+  protected String decode(int start, int end) {
+    return new String(bytes, start, end - start, UTF8);
+  }
+
+  /**
+   * Decodes the bytes in [<code>start</code>, <code>end</code>) of the raw content, without leading
+   * and trailing whitespace (as removed by {@link String#trim()}).
+   */
+  protected String decodeTrimmed(int start, int end) {
+    while (start < end && (bytes[start] & 0xff) <= ' ') {
+      start++;
+    }
+    while (end > start && (bytes[end - 1] & 0xff) <= ' ') {
+      end--;
+    }
+    return decode(start, end);
+  }
+
+  /**
+   * Encodes a tag (or any String) in UTF-8, for scanning.
+   */
+  protected static byte[] utf8(String s) {
+    return s.getBytes(UTF8);
+  }
+}
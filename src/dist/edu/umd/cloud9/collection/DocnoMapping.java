@@ -97,6 +97,7 @@ public interface DocnoMapping {
     public Class<? extends InputFormat> inputFormat;
     public String collection;
     public String docnoMapping;
+    public int numReducers = 1;
   }
 
   @SuppressWarnings( { "static-access", "unchecked" })
@@ -104,6 +105,7 @@ public interface DocnoMapping {
     public static final String COLLECTION_OPTION = "collection";
     public static final String MAPPING_OPTION = "docnoMapping";
     public static final String FORMAT_OPTION = "inputFormat";
+    public static final String REDUCERS_OPTION = "numReducers";
 
     public static DefaultBuilderOptions parseDefaultOptions(String[] args) {
       Options options = new Options();
@@ -113,6 +115,8 @@ public interface DocnoMapping {
           .withDescription("(required) output DocnoMapping path").create(MAPPING_OPTION));
       options.addOption(OptionBuilder.withArgName("class").hasArg()
           .withDescription("(optional) fully-qualified Hadoop InputFormat").create(FORMAT_OPTION));
+      options.addOption(OptionBuilder.withArgName("num").hasArg()
+          .withDescription("(optional) number of reducers").create(REDUCERS_OPTION));
 
       CommandLine cmdline;
       CommandLineParser parser = new GnuParser();
@@ -143,6 +147,9 @@ public interface DocnoMapping {
 
       parsedOptions.collection = cmdline.getOptionValue(COLLECTION_OPTION);
       parsedOptions.docnoMapping = cmdline.getOptionValue(MAPPING_OPTION);
+      if (cmdline.hasOption(REDUCERS_OPTION)) {
+        parsedOptions.numReducers = Integer.parseInt(cmdline.getOptionValue(REDUCERS_OPTION));
+      }
 
       return parsedOptions;
     }
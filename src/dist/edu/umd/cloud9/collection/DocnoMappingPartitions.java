@@ -0,0 +1,573 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.collection;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * Building blocks for {@link DocnoMapping.Builder}s that assign docnos with many reducers instead of
+ * one. Docids emitted by the mappers are range partitioned on split points sampled from the input,
+ * so that partition <i>i</i> holds docids in [<code>splits[i-1]</code>, <code>splits[i]</code>).
+ * Each reducer writes its (sorted, distinct) docids directly in the binary form of the mappings
+ * file, followed by a trailing int with their count. The client then takes the prefix sums of the
+ * counts as the docno offsets of the partitions, and assembles the mappings file by writing the
+ * total count and concatenating the part files, without reading or re-sorting the docids.
+ * </p>
+ *
+ * <p>
+ * The resulting file is the same as the one written with a single reducer: an int with the number
+ * of docids, followed by the docids in sorted order, written with <code>writeUTF</code> for
+ * {@link Text} docids and <code>writeInt</code> for {@link IntWritable} docids. This is the format
+ * read by the existing {@link DocnoMapping} implementations. A builder sets up its job as before
+ * (input, mapper emitting docids as keys, map output classes, and output path), then calls
+ * {@link #configure(Job, int)} (or {@link #configure(org.apache.hadoop.mapred.JobConf, int)} for
+ * the old API) to set the reducer, partitioner, and output format, and
+ * {@link #assemble(Configuration, Path)} once the job completes.
+ * </p>
+ *
+ * <p>
+ * Split points are sampled on the client from the first records of up to
+ * {@link #MAX_SAMPLED_SPLITS} input splits, spread evenly over all splits. The sample only affects
+ * how evenly docids are spread over the reducers, never the resulting mapping.
+ * </p>
+ */
+@SuppressWarnings({ "unchecked", "deprecation" })
+public class DocnoMappingPartitions {
+  private static final Logger LOG = Logger.getLogger(DocnoMappingPartitions.class);
+
+  // Docids all have the same class, so each compares to the others.
+  private static final Comparator<WritableComparable<?>> KEY_ORDER =
+      new Comparator<WritableComparable<?>>() {
+        public int compare(WritableComparable<?> a, WritableComparable<?> b) {
+          return ((WritableComparable<Object>) a).compareTo(b);
+        }
+      };
+
+  /**
+   * Property with the path to the split points file.
+   */
+  public static final String PATH_PROPERTY = "Cloud9.DocnoMappingPartitions.SplitPoints";
+
+  /**
+   * Number of docids sampled per partition.
+   */
+  public static final int SAMPLES_PER_PARTITION = 100;
+
+  /**
+   * Maximum number of input splits that docids are sampled from.
+   */
+  public static final int MAX_SAMPLED_SPLITS = 100;
+
+  private DocnoMappingPartitions() {}
+
+  /**
+   * Sets up a job to write its docids as the parts of a mappings file. The mapper must emit docids
+   * as keys, either as {@link Text} or {@link IntWritable}, and the map output key and value classes
+   * must be set. With more than one reducer, this samples docids from the job's input to compute the
+   * split points, which are written next to the output path.
+   *
+   * @param job the job
+   * @param numReducers number of reducers
+   */
+  public static void configure(Job job, int numReducers) throws IOException {
+    Configuration conf = job.getConfiguration();
+    Class<? extends WritableComparable<?>> keyClass =
+        (Class<? extends WritableComparable<?>>) job.getMapOutputKeyClass();
+
+    job.setMapOutputKeyClass(keyClass);
+    job.setMapOutputValueClass(job.getMapOutputValueClass());
+    job.setOutputKeyClass(keyClass);
+    job.setOutputValueClass(NullWritable.class);
+    job.setNumReduceTasks(numReducers);
+    job.setReducerClass(MappingReducer.class);
+    job.setOutputFormatClass(MappingOutputFormat.class);
+
+    if (numReducers > 1) {
+      List<String> docids = sample(job, SAMPLES_PER_PARTITION * numReducers);
+      writeSplitPoints(conf, FileOutputFormat.getOutputPath(job), keyClass, docids, numReducers);
+      job.setPartitionerClass(RangePartitioner.class);
+    }
+  }
+
+  /**
+   * Old API counterpart of {@link #configure(Job, int)}.
+   *
+   * @param conf the job
+   * @param numReducers number of reducers
+   */
+  public static void configure(org.apache.hadoop.mapred.JobConf conf, int numReducers)
+      throws IOException {
+    Class<? extends WritableComparable<?>> keyClass =
+        (Class<? extends WritableComparable<?>>) conf.getMapOutputKeyClass();
+
+    conf.setMapOutputKeyClass(keyClass);
+    conf.setMapOutputValueClass(conf.getMapOutputValueClass());
+    conf.setOutputKeyClass(keyClass);
+    conf.setOutputValueClass(NullWritable.class);
+    conf.setNumReduceTasks(numReducers);
+    conf.setReducerClass(MappingReducerOld.class);
+    conf.setOutputFormat(MappingOutputFormatOld.class);
+
+    if (numReducers > 1) {
+      List<String> docids = sample(conf, SAMPLES_PER_PARTITION * numReducers);
+      writeSplitPoints(conf, org.apache.hadoop.mapred.FileOutputFormat.getOutputPath(conf),
+          keyClass, docids, numReducers);
+      conf.setPartitionerClass(RangePartitionerOld.class);
+    }
+  }
+
+  /**
+   * Assembles the mappings file from the parts written by a job set up with
+   * {@link #configure(Job, int)} or {@link #configure(org.apache.hadoop.mapred.JobConf, int)}, and
+   * deletes the split points file, if any.
+   *
+   * @param conf configuration of the job
+   * @param output path to the mappings file
+   * @return number of docids in the mapping
+   */
+  public static int assemble(Configuration conf, Path output) throws IOException {
+    Path parts = new Path(conf.get("mapred.output.dir"));
+    FileSystem fs = parts.getFileSystem(conf);
+
+    int cnt = assemble(parts, output, fs);
+
+    String splits = conf.get(PATH_PROPERTY);
+    if (splits != null) {
+      fs.delete(new Path(splits), false);
+    }
+
+    return cnt;
+  }
+
+  /**
+   * Assembles a mappings file from parts, in the order of their names.
+   *
+   * @param parts directory with the parts
+   * @param output path to the mappings file
+   * @param fs reference to the {@code FileSystem}
+   * @return number of docids in the mapping
+   */
+  public static int assemble(Path parts, Path output, FileSystem fs) throws IOException {
+    FileStatus[] files = fs.listStatus(parts, new PathFilter() {
+      public boolean accept(Path path) {
+        return path.getName().startsWith("part-");
+      }
+    });
+    if (files == null || files.length == 0) {
+      throw new IOException("No parts found in " + parts);
+    }
+    Arrays.sort(files);
+
+    // The docno offset of each partition is the sum of the counts of the partitions before it.
+    long[] offsets = new long[files.length + 1];
+    for (int i = 0; i < files.length; i++) {
+      offsets[i + 1] = offsets[i] + readCount(files[i], fs);
+    }
+    if (offsets[files.length] > Integer.MAX_VALUE) {
+      throw new IOException("Too many docids: " + offsets[files.length]);
+    }
+
+    LOG.info("Writing " + offsets[files.length] + " docids from " + files.length + " parts to "
+        + output);
+    FSDataOutputStream out = fs.create(output, true);
+    byte[] buf = new byte[64 * 1024];
+    try {
+      out.writeInt((int) offsets[files.length]);
+      for (int i = 0; i < files.length; i++) {
+        LOG.info(" - " + files[i].getPath().getName() + ": docnos " + (offsets[i] + 1) + " to "
+            + offsets[i + 1]);
+
+        FSDataInputStream in = fs.open(files[i].getPath());
+        try {
+          long remaining = files[i].getLen() - 4;
+          while (remaining > 0) {
+            int n = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+            if (n < 0) {
+              throw new IOException("Unexpected end of " + files[i].getPath());
+            }
+            out.write(buf, 0, n);
+            remaining -= n;
+          }
+        } finally {
+          in.close();
+        }
+      }
+    } finally {
+      out.close();
+    }
+
+    return (int) offsets[files.length];
+  }
+
+  // Reads the count of docids at the end of a part.
+  private static int readCount(FileStatus file, FileSystem fs) throws IOException {
+    if (file.getLen() < 4) {
+      throw new IOException("Truncated part: " + file.getPath());
+    }
+
+    FSDataInputStream in = fs.open(file.getPath());
+    try {
+      in.seek(file.getLen() - 4);
+      return in.readInt();
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Computes split points from sampled docids: the distinct docids, in sorted order, that divide
+   * the sample into <code>numPartitions</code> equal parts. There may be fewer than
+   * <code>numPartitions</code>-1 split points if there are few distinct samples, in which case the
+   * last partitions are empty. Otherwise, each partition gets at least one sampled docid.
+   *
+   * @param samples sampled docids
+   * @param numPartitions number of partitions
+   * @return split points, strictly increasing
+   */
+  public static <K extends WritableComparable<?>> List<K> computeSplitPoints(List<K> samples,
+      int numPartitions) {
+    if (numPartitions < 1) {
+      throw new IllegalArgumentException("Number of partitions must be positive!");
+    }
+
+    List<K> sorted = new ArrayList<K>(samples);
+    Collections.sort(sorted, KEY_ORDER);
+
+    List<K> splits = new ArrayList<K>();
+    for (int k = 1; k < numPartitions && !sorted.isEmpty(); k++) {
+      // A split point equal to the smallest sample (or to the previous split point) would leave a
+      // partition empty.
+      K split = sorted.get((int) ((long) k * sorted.size() / numPartitions));
+      K prev = splits.isEmpty() ? sorted.get(0) : splits.get(splits.size() - 1);
+      if (KEY_ORDER.compare(split, prev) > 0) {
+        splits.add(split);
+      }
+    }
+
+    return splits;
+  }
+
+  /**
+   * Returns the partition that a docid belongs to.
+   *
+   * @param splits split points
+   * @param docid docid
+   * @return partition, between 0 and <code>splits.length</code> (inclusive)
+   */
+  public static int getPartition(WritableComparable<?>[] splits, WritableComparable<?> docid) {
+    int idx = Arrays.binarySearch(splits, docid);
+    return idx >= 0 ? idx + 1 : -(idx + 1);
+  }
+
+  private static void writeSplitPoints(Configuration conf, Path output,
+      Class<? extends WritableComparable<?>> keyClass, List<String> docids, int numPartitions)
+      throws IOException {
+    List<WritableComparable<?>> samples = new ArrayList<WritableComparable<?>>(docids.size());
+    for (String docid : docids) {
+      samples.add(toKey(keyClass, docid));
+    }
+    List<WritableComparable<?>> splits = computeSplitPoints(samples, numPartitions);
+
+    Path path = output.suffix(".splits");
+    LOG.info("Sampled " + docids.size() + " docids, writing " + splits.size()
+        + " split points to " + path);
+
+    FSDataOutputStream out = path.getFileSystem(conf).create(path, true);
+    try {
+      out.writeInt(splits.size());
+      for (WritableComparable<?> split : splits) {
+        split.write(out);
+      }
+    } finally {
+      out.close();
+    }
+
+    conf.set(PATH_PROPERTY, path.toString());
+  }
+
+  /**
+   * Reads the split points named by the {@link #PATH_PROPERTY} property.
+   *
+   * @return split points, or <code>null</code> if the property isn't set
+   */
+  public static WritableComparable<?>[] loadSplitPoints(Configuration conf) {
+    String path = conf.get(PATH_PROPERTY);
+    if (path == null) {
+      return null;
+    }
+
+    Class<? extends WritableComparable<?>> keyClass =
+        (Class<? extends WritableComparable<?>>) new org.apache.hadoop.mapred.JobConf(conf)
+            .getMapOutputKeyClass();
+    try {
+      Path p = new Path(path);
+      FSDataInputStream in = p.getFileSystem(conf).open(p);
+      try {
+        WritableComparable<?>[] splits = new WritableComparable<?>[in.readInt()];
+        for (int i = 0; i < splits.length; i++) {
+          splits[i] = ReflectionUtils.newInstance(keyClass, conf);
+          splits[i].readFields(in);
+        }
+        return splits;
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to read split points from " + path, e);
+    }
+  }
+
+  private static WritableComparable<?> toKey(Class<?> keyClass, String docid) {
+    if (keyClass == Text.class) {
+      return new Text(docid);
+    } else if (keyClass == IntWritable.class) {
+      return new IntWritable(Integer.parseInt(docid));
+    }
+    throw new IllegalArgumentException("Unsupported docid class: " + keyClass.getName());
+  }
+
+  private static void writeDocid(DataOutput out, WritableComparable<?> docid) throws IOException {
+    if (docid instanceof Text) {
+      out.writeUTF(docid.toString());
+    } else if (docid instanceof IntWritable) {
+      out.writeInt(((IntWritable) docid).get());
+    } else {
+      throw new IOException("Unsupported docid class: " + docid.getClass().getName());
+    }
+  }
+
+  // Takes the first records of splits spread evenly over all splits.
+  private static List<String> sample(Job job, int numSamples) throws IOException {
+    Configuration conf = job.getConfiguration();
+    List<String> docids = new ArrayList<String>(numSamples);
+    try {
+      InputFormat<?, ?> format = ReflectionUtils.newInstance(job.getInputFormatClass(), conf);
+      List<InputSplit> splits = format.getSplits(job);
+      int n = Math.min(splits.size(), MAX_SAMPLED_SPLITS);
+      for (int i = 0; i < n; i++) {
+        InputSplit split = splits.get((int) ((long) i * splits.size() / n));
+        TaskAttemptContext context = new TaskAttemptContext(conf, new TaskAttemptID());
+        RecordReader<?, ?> reader = format.createRecordReader(split, context);
+        reader.initialize(split, context);
+        try {
+          int limit = (int) ((long) (i + 1) * numSamples / n);
+          while (docids.size() < limit && reader.nextKeyValue()) {
+            docids.add(((Indexable) reader.getCurrentValue()).getDocid());
+          }
+        } finally {
+          reader.close();
+        }
+      }
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Unable to load input format: " + e.getMessage());
+    } catch (InterruptedException e) {
+      throw new IOException("Interrupted while sampling docids");
+    }
+
+    return docids;
+  }
+
+  private static List<String> sample(org.apache.hadoop.mapred.JobConf conf, int numSamples)
+      throws IOException {
+    List<String> docids = new ArrayList<String>(numSamples);
+    org.apache.hadoop.mapred.InputFormat<Object, Object> format = conf.getInputFormat();
+    org.apache.hadoop.mapred.InputSplit[] splits = format.getSplits(conf, conf.getNumMapTasks());
+    int n = Math.min(splits.length, MAX_SAMPLED_SPLITS);
+    for (int i = 0; i < n; i++) {
+      org.apache.hadoop.mapred.RecordReader<Object, Object> reader = format.getRecordReader(
+          splits[(int) ((long) i * splits.length / n)], conf, Reporter.NULL);
+      try {
+        Object key = reader.createKey();
+        Object value = reader.createValue();
+        int limit = (int) ((long) (i + 1) * numSamples / n);
+        while (docids.size() < limit && reader.next(key, value)) {
+          docids.add(((Indexable) value).getDocid());
+        }
+      } finally {
+        reader.close();
+      }
+    }
+
+    return docids;
+  }
+
+  /**
+   * Partitions docids on the split points named by the {@link #PATH_PROPERTY} property.
+   */
+  public static class RangePartitioner<K extends WritableComparable<?>, V> extends
+      org.apache.hadoop.mapreduce.Partitioner<K, V> implements Configurable {
+    private Configuration conf;
+    private WritableComparable<?>[] splits;
+
+    @Override
+    public int getPartition(K key, V value, int numPartitions) {
+      // The local runner has a single reducer, whatever the number of partitions asked for.
+      if (numPartitions == 1) {
+        return 0;
+      }
+      return DocnoMappingPartitions.getPartition(splits, key);
+    }
+
+    @Override
+    public Configuration getConf() {
+      return conf;
+    }
+
+    @Override
+    public void setConf(Configuration conf) {
+      this.conf = conf;
+      splits = loadSplitPoints(conf);
+    }
+  }
+
+  /**
+   * Old API counterpart of {@link RangePartitioner}.
+   */
+  public static class RangePartitionerOld<K extends WritableComparable<?>, V> implements
+      org.apache.hadoop.mapred.Partitioner<K, V> {
+    private WritableComparable<?>[] splits;
+
+    public void configure(org.apache.hadoop.mapred.JobConf conf) {
+      splits = loadSplitPoints(conf);
+    }
+
+    public int getPartition(K key, V value, int numPartitions) {
+      if (numPartitions == 1) {
+        return 0;
+      }
+      return DocnoMappingPartitions.getPartition(splits, key);
+    }
+  }
+
+  /**
+   * Emits each distinct docid once.
+   */
+  public static class MappingReducer<K extends WritableComparable<?>> extends
+      Reducer<K, Writable, K, NullWritable> {
+    @Override
+    public void reduce(K key, Iterable<Writable> values, Context context) throws IOException,
+        InterruptedException {
+      context.write(key, NullWritable.get());
+    }
+  }
+
+  /**
+   * Old API counterpart of {@link MappingReducer}.
+   */
+  public static class MappingReducerOld<K extends WritableComparable<?>> extends
+      org.apache.hadoop.mapred.MapReduceBase implements
+      org.apache.hadoop.mapred.Reducer<K, Writable, K, NullWritable> {
+    public void reduce(K key, Iterator<Writable> values, OutputCollector<K, NullWritable> output,
+        Reporter reporter) throws IOException {
+      output.collect(key, NullWritable.get());
+    }
+  }
+
+  /**
+   * Writes docids in the binary form of the mappings file, followed by their count.
+   */
+  public static class MappingOutputFormat<K extends WritableComparable<?>> extends
+      FileOutputFormat<K, NullWritable> {
+    @Override
+    public RecordWriter<K, NullWritable> getRecordWriter(TaskAttemptContext context)
+        throws IOException {
+      Path file = getDefaultWorkFile(context, "");
+      final FSDataOutputStream out =
+          file.getFileSystem(context.getConfiguration()).create(file, false);
+
+      return new RecordWriter<K, NullWritable>() {
+        private int cnt = 0;
+
+        @Override
+        public void write(K key, NullWritable value) throws IOException {
+          writeDocid(out, key);
+          cnt++;
+        }
+
+        @Override
+        public void close(TaskAttemptContext context) throws IOException {
+          out.writeInt(cnt);
+          out.close();
+        }
+      };
+    }
+  }
+
+  /**
+   * Old API counterpart of {@link MappingOutputFormat}.
+   */
+  public static class MappingOutputFormatOld<K extends WritableComparable<?>> extends
+      org.apache.hadoop.mapred.FileOutputFormat<K, NullWritable> {
+    @Override
+    public org.apache.hadoop.mapred.RecordWriter<K, NullWritable> getRecordWriter(FileSystem ignored,
+        org.apache.hadoop.mapred.JobConf job, String name, Progressable progress)
+        throws IOException {
+      Path file = org.apache.hadoop.mapred.FileOutputFormat.getTaskOutputPath(job, name);
+      final FSDataOutputStream out = file.getFileSystem(job).create(file, progress);
+
+      return new org.apache.hadoop.mapred.RecordWriter<K, NullWritable>() {
+        private int cnt = 0;
+
+        public void write(K key, NullWritable value) throws IOException {
+          writeDocid(out, key);
+          cnt++;
+        }
+
+        public void close(Reporter reporter) throws IOException {
+          out.writeInt(cnt);
+          out.close();
+        }
+      };
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package edu.umd.cloud9.collection;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.InetAddress;
@@ -15,14 +16,18 @@ import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.util.GenericOptionsParser;
 import org.apache.log4j.Logger;
+import org.json.JSONObject;
 import org.mortbay.jetty.Server;
+import org.mortbay.jetty.nio.SelectChannelConnector;
 import org.mortbay.jetty.servlet.Context;
 import org.mortbay.jetty.servlet.ServletHolder;
+import org.mortbay.thread.QueuedThreadPool;
 
 import edu.umd.cloud9.mapred.NullInputFormat;
 import edu.umd.cloud9.mapred.NullMapper;
@@ -40,6 +45,18 @@ import edu.umd.cloud9.mapred.NullOutputFormat;
  *   /shared/ClueWeb09/docno-mapping.dat
  * </pre>
  * 
+ * <p>
+ * Connections are handled by a non-blocking connector, and requests are served by a bounded pool
+ * of worker threads (<code>-D Cloud9.ForwardIndexServerThreads=N</code>, default
+ * {@value #DEFAULT_THREADS}), so the forward index must be safe to use from several threads at
+ * once. Besides the pages for single documents, the server has a batch endpoint,
+ * <code>/fetch_docnos?docnos=1,2,3</code>, that returns many documents in one response (as JSON,
+ * or, with <code>format=binary</code>, as a sequence of records that can be read with a
+ * <code>DataInputStream</code>; see {@link FetchDocnosServlet}), and an endpoint,
+ * <code>/stats</code>, that reports request counts, in-flight requests and latency histograms of
+ * every endpoint as JSON.
+ * </p>
+ * 
  * @author Jimmy Lin
  * 
  */
@@ -47,6 +64,16 @@ public class DocumentForwardIndexHttpServer {
 
 	private static final Logger sLogger = Logger.getLogger(DocumentForwardIndexHttpServer.class);
 
+	/**
+	 * Default number of worker threads serving requests.
+	 */
+	public static final int DEFAULT_THREADS = 8;
+
+	/**
+	 * Largest number of documents that can be fetched with one request to /fetch_docnos.
+	 */
+	public static final int MAX_BATCH_SIZE = 10000;
+
 	private static DocumentForwardIndex<Indexable> sForwardIndex;
 
 	@SuppressWarnings("unchecked")
@@ -80,10 +107,13 @@ public class DocumentForwardIndexHttpServer {
 				throw new RuntimeException("Error initializing forward index!");
 			}
 
-			Server server = new Server(port);
+			Server server = createServer(port, conf.getInt("Cloud9.ForwardIndexServerThreads",
+					DEFAULT_THREADS));
 			Context root = new Context(server, "/", Context.SESSIONS);
-			root.addServlet(new ServletHolder(new FetchDocidServlet()), "/fetch_docid");
-			root.addServlet(new ServletHolder(new FetchDocnoServlet()), "/fetch_docno");
+			EndpointStatistics.addServlet(root, "/fetch_docid", new FetchDocidServlet());
+			EndpointStatistics.addServlet(root, "/fetch_docno", new FetchDocnoServlet());
+			EndpointStatistics.addServlet(root, "/fetch_docnos", new FetchDocnosServlet());
+			EndpointStatistics.addStatsServlet(root, "/stats");
 			root.addServlet(new ServletHolder(new HomeServlet()), "/");
 
 			FSDataOutputStream out = FileSystem.get(conf).create(tmpPath, true);
@@ -96,14 +126,55 @@ public class DocumentForwardIndexHttpServer {
 				e.printStackTrace();
 			}
 
-			while (true)
-				;
+			awaitShutdown(server);
 		}
 	}
 
 	private DocumentForwardIndexHttpServer() {
 	}
 
+	/**
+	 * Creates a server that accepts connections on a non-blocking connector and serves requests
+	 * with a bounded pool of worker threads.
+	 * 
+	 * @param port
+	 *            port to listen on
+	 * @param threads
+	 *            number of worker threads
+	 */
+	public static Server createServer(int port, int threads) {
+		Server server = new Server();
+
+		SelectChannelConnector connector = new SelectChannelConnector();
+		connector.setPort(port);
+		server.addConnector(connector);
+
+		// the acceptors run on the same pool as the workers
+		QueuedThreadPool pool = new QueuedThreadPool();
+		pool.setMaxThreads(threads + connector.getAcceptors());
+		pool.setMinThreads(Math.min(2, threads) + connector.getAcceptors());
+		server.setThreadPool(pool);
+
+		return server;
+	}
+
+	/**
+	 * Blocks the calling thread until a server is stopped. (NullMapper keeps the task alive in the
+	 * meantime.)
+	 */
+	public static void awaitShutdown(Server server) {
+		try {
+			server.join();
+		} catch (InterruptedException e) {
+			sLogger.info("interrupted, shutting down server");
+			try {
+				server.stop();
+			} catch (Exception e2) {
+				e2.printStackTrace();
+			}
+		}
+	}
+
 	// this has to be public
 	public static class HomeServlet extends HttpServlet {
 
@@ -277,6 +348,119 @@ public class DocumentForwardIndexHttpServer {
 		}
 	}
 
+	/**
+	 * Fetches a batch of documents, given as a comma-separated list of docnos in the
+	 * <code>docnos</code> parameter (which may also be repeated). Documents are written out as they
+	 * are fetched, in the order requested. By default, the response is a JSON array with one object
+	 * per docno, of the form <code>{"docno":1,"docid":"...","content":"..."}</code>, or
+	 * <code>{"docno":1,"found":false}</code> if there is no such document. With
+	 * <code>format=binary</code>, the response is the number of docnos as an int, followed by, for
+	 * each docno, the docno as an int and a boolean indicating if the document was found, and if so
+	 * the docid and the content in the format of {@link Text#writeString}.
+	 */
+	// this has to be public
+	public static class FetchDocnosServlet extends HttpServlet {
+		static final long serialVersionUID = 4423079618L;
+
+		public void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException,
+				IOException {
+			doPost(req, res);
+		}
+
+		public void doPost(HttpServletRequest req, HttpServletResponse res)
+				throws ServletException, IOException {
+			int[] docnos;
+			try {
+				docnos = parseDocnos(req.getParameterValues("docnos"));
+			} catch (NumberFormatException e) {
+				res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid docno: " + e.getMessage());
+				return;
+			}
+
+			if (docnos.length > MAX_BATCH_SIZE) {
+				res.sendError(HttpServletResponse.SC_BAD_REQUEST, "At most " + MAX_BATCH_SIZE
+						+ " docnos can be fetched at once");
+				return;
+			}
+
+			sLogger.info("fetching " + docnos.length + " documents");
+
+			if ("binary".equals(req.getParameter("format"))) {
+				res.setContentType("application/octet-stream");
+				DataOutputStream out = new DataOutputStream(res.getOutputStream());
+
+				out.writeInt(docnos.length);
+				for (int docno : docnos) {
+					Indexable doc = fetch(docno);
+
+					out.writeInt(docno);
+					out.writeBoolean(doc != null);
+					if (doc != null) {
+						Text.writeString(out, doc.getDocid());
+						Text.writeString(out, doc.getContent());
+					}
+				}
+				out.close();
+			} else {
+				res.setContentType("application/json");
+				res.setCharacterEncoding("UTF-8");
+				PrintWriter out = res.getWriter();
+
+				out.print("[");
+				for (int i = 0; i < docnos.length; i++) {
+					Indexable doc = fetch(docnos[i]);
+
+					if (i > 0)
+						out.print(",");
+					out.print("{\"docno\":" + docnos[i]);
+					if (doc != null) {
+						out.print(",\"docid\":" + JSONObject.quote(doc.getDocid()));
+						out.print(",\"content\":" + JSONObject.quote(doc.getContent()));
+					} else {
+						out.print(",\"found\":false");
+					}
+					out.print("}");
+				}
+				out.print("]\n");
+				out.close();
+			}
+		}
+
+		private static Indexable fetch(int docno) {
+			try {
+				return sForwardIndex.getDocument(docno);
+			} catch (Exception e) {
+				// invalid docnos make some forward indexes throw rather than return null
+				sLogger.info("trapped error fetching " + docno);
+				return null;
+			}
+		}
+	}
+
+	static int[] parseDocnos(String[] values) {
+		if (values == null)
+			return new int[0];
+
+		int n = 0;
+		for (String value : values) {
+			for (String docno : value.split(",")) {
+				if (docno.trim().length() > 0)
+					n++;
+			}
+		}
+
+		int[] docnos = new int[n];
+		n = 0;
+		for (String value : values) {
+			for (String docno : value.split(",")) {
+				if (docno.trim().length() > 0)
+					docnos[n++] = Integer.parseInt(docno.trim());
+			}
+		}
+
+		return docnos;
+	}
+
 	// TODO: this should probably be made into a "Tool"
 	public static void main(String[] args) throws Exception {
 		Configuration conf = new Configuration();
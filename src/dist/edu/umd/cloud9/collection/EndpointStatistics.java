@@ -0,0 +1,329 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.collection;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.json.JSONObject;
+import org.mortbay.jetty.servlet.Context;
+import org.mortbay.jetty.servlet.ServletHolder;
+
+/**
+ * <p>
+ * Request counters and a latency histogram for one endpoint of an HTTP server. Latencies are
+ * counted in power-of-two buckets: bucket 0 holds requests that took less than a millisecond, and
+ * bucket <i>i</i> requests that took between 2<sup><i>i</i>-1</sup> and 2<sup><i>i</i></sup>
+ * milliseconds. All methods are thread-safe and lock-free, so they can be called from every request.
+ * </p>
+ *
+ * <p>
+ * Servlets registered with {@link #addServlet(Context, String, HttpServlet)} are timed
+ * automatically; {@link #addStatsServlet(Context, String)} exposes the statistics of all endpoints
+ * of a server as JSON.
+ * </p>
+ */
+public class EndpointStatistics {
+
+	public static final int NUM_BUCKETS = 24;
+
+	private final String name;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong totalMicros = new AtomicLong();
+	private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+	public EndpointStatistics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the name of the endpoint.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Marks the start of a request.
+	 *
+	 * @return the start time, to be passed to {@link #end(long, boolean)}
+	 */
+	public long begin() {
+		inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Marks the end of a request.
+	 *
+	 * @param start
+	 *            value returned by {@link #begin()}
+	 * @param ok
+	 *            whether the request succeeded
+	 */
+	public void end(long start, boolean ok) {
+		record((System.nanoTime() - start) / 1000, ok);
+		inFlight.decrementAndGet();
+	}
+
+	// adds a completed request, without touching the in-flight count
+	void record(long micros, boolean ok) {
+		requests.incrementAndGet();
+		if (!ok)
+			errors.incrementAndGet();
+
+		totalMicros.addAndGet(micros);
+		buckets.incrementAndGet(getBucket(micros / 1000));
+	}
+
+	static int getBucket(long millis) {
+		int bucket = 64 - Long.numberOfLeadingZeros(millis);
+		return bucket < NUM_BUCKETS ? bucket : NUM_BUCKETS - 1;
+	}
+
+	/**
+	 * Returns the number of requests currently being served.
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * Returns the number of completed requests.
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * Returns the number of completed requests that failed.
+	 */
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/**
+	 * Returns the number of completed requests in a latency bucket.
+	 */
+	public long getBucketCount(int bucket) {
+		return buckets.get(bucket);
+	}
+
+	/**
+	 * Returns the mean latency of completed requests, in milliseconds.
+	 */
+	public double getMeanMillis() {
+		long n = requests.get();
+		return n == 0 ? 0.0 : totalMicros.get() / 1000.0 / n;
+	}
+
+	/**
+	 * Returns an upper bound on a percentile of the latency, in milliseconds: the upper end of the
+	 * bucket the percentile falls into.
+	 *
+	 * @param p
+	 *            percentile, between 0 and 100
+	 */
+	public long getPercentileMillis(double p) {
+		long[] counts = new long[NUM_BUCKETS];
+		long n = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			n += counts[i];
+		}
+		if (n == 0)
+			return 0;
+
+		long rank = (long) Math.ceil(p / 100.0 * n);
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0)
+				return 1L << i;
+		}
+		return 1L << (NUM_BUCKETS - 1);
+	}
+
+	/**
+	 * Writes the statistics as a JSON object.
+	 */
+	public void writeJSON(PrintWriter out) {
+		out.print("{\"requests\":" + getRequests());
+		out.print(",\"errors\":" + getErrors());
+		out.print(",\"in_flight\":" + getInFlight());
+		out.print(",\"mean_ms\":" + String.format(Locale.ROOT, "%.3f", getMeanMillis()));
+		out.print(",\"p50_ms\":" + getPercentileMillis(50));
+		out.print(",\"p90_ms\":" + getPercentileMillis(90));
+		out.print(",\"p99_ms\":" + getPercentileMillis(99));
+		out.print(",\"histogram_ms\":{");
+
+		boolean first = true;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			long count = buckets.get(i);
+			if (count == 0)
+				continue;
+
+			if (!first)
+				out.print(",");
+			// keyed by the upper end of the bucket
+			out.print("\"" + (1L << i) + "\":" + count);
+			first = false;
+		}
+		out.print("}}");
+	}
+
+	/**
+	 * Registers a servlet with a context, timing every request it serves. A request counts as an
+	 * error if the servlet throws an exception or answers it through <code>sendError</code>. The
+	 * statistics are attached to the context, and are listed by the servlet added with
+	 * {@link #addStatsServlet(Context, String)}.
+	 *
+	 * @return the statistics of the endpoint
+	 */
+	public static EndpointStatistics addServlet(Context context, String path, HttpServlet servlet) {
+		EndpointStatistics stats = new EndpointStatistics(path);
+		getRegistry(context).put(path, stats);
+		context.addServlet(new ServletHolder(new TimedServlet(servlet, stats)), path);
+
+		return stats;
+	}
+
+	/**
+	 * Adds a servlet that reports the statistics of every endpoint registered with
+	 * {@link #addServlet(Context, String, HttpServlet)} as JSON.
+	 */
+	public static void addStatsServlet(Context context, String path) {
+		context.addServlet(new ServletHolder(new StatsServlet(getRegistry(context))), path);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static synchronized Map<String, EndpointStatistics> getRegistry(Context context) {
+		Map<String, EndpointStatistics> registry =
+			(Map<String, EndpointStatistics>) context.getAttribute(EndpointStatistics.class.getName());
+		if (registry == null) {
+			registry = new TreeMap<String, EndpointStatistics>();
+			context.setAttribute(EndpointStatistics.class.getName(), registry);
+		}
+		return registry;
+	}
+
+	// this has to be public
+	public static class TimedServlet extends HttpServlet {
+		static final long serialVersionUID = 2108634275L;
+
+		private final HttpServlet servlet;
+		private final EndpointStatistics stats;
+
+		public TimedServlet(HttpServlet servlet, EndpointStatistics stats) {
+			this.servlet = servlet;
+			this.stats = stats;
+		}
+
+		public void init(ServletConfig config) throws ServletException {
+			super.init(config);
+			servlet.init(config);
+		}
+
+		public void destroy() {
+			servlet.destroy();
+		}
+
+		protected void service(HttpServletRequest req, HttpServletResponse res)
+				throws ServletException, IOException {
+			long start = stats.begin();
+			ErrorTrackingResponse tracked = new ErrorTrackingResponse(res);
+			boolean ok = false;
+			try {
+				servlet.service(req, tracked);
+				ok = !tracked.failed;
+			} finally {
+				stats.end(start, ok);
+			}
+		}
+	}
+
+	// remembers whether the wrapped servlet answered with an error status
+	private static class ErrorTrackingResponse extends HttpServletResponseWrapper {
+		boolean failed = false;
+
+		public ErrorTrackingResponse(HttpServletResponse res) {
+			super(res);
+		}
+
+		public void sendError(int sc) throws IOException {
+			failed = true;
+			super.sendError(sc);
+		}
+
+		public void sendError(int sc, String msg) throws IOException {
+			failed = true;
+			super.sendError(sc, msg);
+		}
+
+		public void setStatus(int sc) {
+			if (sc >= 400)
+				failed = true;
+			super.setStatus(sc);
+		}
+	}
+
+	// this has to be public
+	public static class StatsServlet extends HttpServlet {
+		static final long serialVersionUID = 6510927434L;
+
+		private final Map<String, EndpointStatistics> registry;
+
+		public StatsServlet(Map<String, EndpointStatistics> registry) {
+			this.registry = registry;
+		}
+
+		public void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException,
+				IOException {
+			res.setContentType("application/json");
+			PrintWriter out = res.getWriter();
+
+			out.print("{");
+			boolean first = true;
+			synchronized (EndpointStatistics.class) {
+				for (Map.Entry<String, EndpointStatistics> e : registry.entrySet()) {
+					if (!first)
+						out.print(",");
+					out.print(JSONObject.quote(e.getKey()) + ":");
+					e.getValue().writeJSON(out);
+					first = false;
+				}
+			}
+			out.print("}\n");
+			out.close();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 package edu.umd.cloud9.collection;
 
-public abstract class WebDocument extends Indexable {
+public abstract class WebDocument extends ByteBackedIndexable {
 	public abstract String getURL();
 }
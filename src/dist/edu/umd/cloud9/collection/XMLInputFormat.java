@@ -16,19 +16,18 @@
 
 package edu.umd.cloud9.collection;
 
-import java.io.DataInputStream;
 import java.io.IOException;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.fs.Seekable;
-import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CodecPool;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.Decompressor;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
@@ -47,6 +46,7 @@ import org.apache.log4j.Logger;
 public class XMLInputFormat extends TextInputFormat {
   public static final String START_TAG_KEY = "xmlinput.start";
   public static final String END_TAG_KEY = "xmlinput.end";
+  public static final String BUFFER_SIZE_KEY = "xmlinput.buffer.size";
 
   /**
    * Create a record reader for a given split. The framework will call
@@ -75,15 +75,15 @@ public class XMLInputFormat extends TextInputFormat {
   public static class XMLRecordReader extends RecordReader<LongWritable, Text> {
     private static final Logger LOG = Logger.getLogger(XMLRecordReader.class);
 
-    private byte[] startTag;
-    private byte[] endTag;
     private long start;
     private long end;
-    private long pos;
-    private DataInputStream fsin = null;
-    private DataOutputBuffer buffer = new DataOutputBuffer();
+    private XMLTagScanner scanner = null;
 
-    private long recordStartPos;
+    // For compressed input, progress is measured against the underlying (compressed) file.
+    private FSDataInputStream fileIn = null;
+    private long fileLength;
+    private boolean compressed = false;
+    private Decompressor decompressor = null;
 
     private final LongWritable key = new LongWritable();
     private final Text value = new Text();
@@ -103,8 +103,9 @@ public class XMLInputFormat extends TextInputFormat {
       if (conf.get(START_TAG_KEY) == null || conf.get(END_TAG_KEY) == null)
         throw new RuntimeException("Error! XML start and end tags unspecified!");
 
-      startTag = conf.get(START_TAG_KEY).getBytes("utf-8");
-      endTag = conf.get(END_TAG_KEY).getBytes("utf-8");
+      byte[] startTag = conf.get(START_TAG_KEY).getBytes("utf-8");
+      byte[] endTag = conf.get(END_TAG_KEY).getBytes("utf-8");
+      int bufferSize = conf.getInt(BUFFER_SIZE_KEY, XMLTagScanner.DEFAULT_BUFFER_SIZE);
 
       FileSplit split = (FileSplit) input;
       start = split.getStart();
@@ -114,27 +115,27 @@ public class XMLInputFormat extends TextInputFormat {
       CompressionCodec codec = compressionCodecs.getCodec(file);
 
       FileSystem fs = file.getFileSystem(conf);
+      fileIn = fs.open(file);
+      fileLength = fs.getFileStatus(file).getLen();
 
       if (codec != null) {
         LOG.info("Reading compressed file...");
-        fsin = new DataInputStream(codec.createInputStream(fs.open(file)));
-
+        // Compressed files aren't split (see TextInputFormat.isSplitable), so we read the whole
+        // thing; offsets are with respect to the uncompressed stream.
+        compressed = true;
+        decompressor = CodecPool.getDecompressor(codec);
+        scanner = new XMLTagScanner(codec.createInputStream(fileIn, decompressor), 0,
+            startTag, endTag, bufferSize);
+
+        start = 0;
         end = Long.MAX_VALUE;
       } else {
         LOG.info("Reading uncompressed file...");
-        FSDataInputStream fileIn = fs.open(file);
-
         fileIn.seek(start);
-        fsin = fileIn;
+        scanner = new XMLTagScanner(fileIn, start, startTag, endTag, bufferSize);
 
         end = start + split.getLength();
       }
-
-      recordStartPos = start;
-
-      // Because input streams of gzipped files are not seekable, we need to keep track of bytes
-      // consumed ourselves.
-      pos = start;
     }
 
     /**
@@ -146,36 +147,13 @@ public class XMLInputFormat extends TextInputFormat {
      */
     @Override
     public boolean nextKeyValue() throws IOException, InterruptedException {
-      if (pos < end) {
-        if (readUntilMatch(startTag, false)) {
-          recordStartPos = pos - startTag.length;
-
-          try {
-            buffer.write(startTag);
-            if (readUntilMatch(endTag, true)) {
-              key.set(recordStartPos);
-              value.set(buffer.getData(), 0, buffer.getLength());
-              return true;
-            }
-          } finally {
-            // Because input streams of gzipped files are not seekable, we need to keep track of
-            // bytes consumed ourselves.
-
-            // This is a sanity check to make sure our internal computation of bytes consumed is
-            // accurate. This should be removed later for efficiency once we confirm that this code
-            // works correctly.
-
-            if (fsin instanceof Seekable) {
-              if (pos != ((Seekable) fsin).getPos()) {
-                throw new RuntimeException("bytes consumed error!");
-              }
-            }
-
-            buffer.reset();
-          }
-        }
+      long recordStartPos = scanner.next(value, end);
+      if (recordStartPos < 0) {
+        return false;
       }
-      return false;
+
+      key.set(recordStartPos);
+      return true;
     }
 
     /**
@@ -191,7 +169,7 @@ public class XMLInputFormat extends TextInputFormat {
     }
 
     /**
-     * Returns the current value.
+     * Returns the current value. The same object is reused for every record.
      *
      * @return current value
      * @throws IOException
@@ -207,7 +185,16 @@ public class XMLInputFormat extends TextInputFormat {
      */
     @Override
     public void close() throws IOException {
-      fsin.close();
+      try {
+        if (scanner != null) {
+          scanner.close();
+        }
+      } finally {
+        if (decompressor != null) {
+          CodecPool.returnDecompressor(decompressor);
+          decompressor = null;
+        }
+      }
     }
 
     /**
@@ -219,35 +206,13 @@ public class XMLInputFormat extends TextInputFormat {
      */
     @Override
     public float getProgress() throws IOException {
-      return ((float) (pos - start)) / ((float) (end - start));
-    }
-
-    private boolean readUntilMatch(byte[] match, boolean withinBlock)
-        throws IOException {
-      int i = 0;
-      while (true) {
-        int b = fsin.read();
-        // increment position (bytes consumed)
-        pos++;
-
-        // end of file:
-        if (b == -1)
-          return false;
-        // save to buffer:
-        if (withinBlock)
-          buffer.write(b);
-
-        // check if we're matching:
-        if (b == match[i]) {
-          i++;
-          if (i >= match.length)
-            return true;
-        } else
-          i = 0;
-        // see if we've passed the stop point:
-        if (!withinBlock && i == 0 && pos >= end)
-          return false;
+      if (compressed) {
+        return fileLength == 0 ? 1.0f : Math.min(1.0f, fileIn.getPos() / (float) fileLength);
+      }
+      if (end == start) {
+        return 1.0f;
       }
+      return Math.min(1.0f, (scanner.getPos() - start) / (float) (end - start));
     }
   }
 }
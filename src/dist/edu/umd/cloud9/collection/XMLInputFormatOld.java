@@ -16,18 +16,17 @@
 
 package edu.umd.cloud9.collection;
 
-import java.io.DataInputStream;
 import java.io.IOException;
 
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.fs.Seekable;
-import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CodecPool;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.Decompressor;
 import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
@@ -50,6 +49,7 @@ import org.apache.log4j.Logger;
 public class XMLInputFormatOld extends TextInputFormat {
   public static final String START_TAG_KEY = "xmlinput.start";
   public static final String END_TAG_KEY = "xmlinput.end";
+  public static final String BUFFER_SIZE_KEY = XMLInputFormat.BUFFER_SIZE_KEY;
 
   @Override
   public void configure(JobConf jobConf) {
@@ -72,22 +72,23 @@ public class XMLInputFormatOld extends TextInputFormat {
   public static class XMLRecordReader implements RecordReader<LongWritable, Text> {
     private static final Logger LOG = Logger.getLogger(XMLRecordReader.class);
 
-    private byte[] startTag;
-    private byte[] endTag;
     private long start;
     private long end;
-    private long pos;
-    private DataInputStream fsin = null;
-    private DataOutputBuffer buffer = new DataOutputBuffer();
+    private final XMLTagScanner scanner;
 
-    private long recordStartPos;
+    // For compressed input, progress is measured against the underlying (compressed) file.
+    private final FSDataInputStream fileIn;
+    private final long fileLength;
+    private boolean compressed = false;
+    private Decompressor decompressor = null;
 
     public XMLRecordReader(FileSplit split, JobConf jobConf) throws IOException {
       if (jobConf.get(START_TAG_KEY) == null || jobConf.get(END_TAG_KEY) == null)
         throw new RuntimeException("Error! XML start and end tags unspecified!");
 
-      startTag = jobConf.get(START_TAG_KEY).getBytes("utf-8");
-      endTag = jobConf.get(END_TAG_KEY).getBytes("utf-8");
+      byte[] startTag = jobConf.get(START_TAG_KEY).getBytes("utf-8");
+      byte[] endTag = jobConf.get(END_TAG_KEY).getBytes("utf-8");
+      int bufferSize = jobConf.getInt(BUFFER_SIZE_KEY, XMLTagScanner.DEFAULT_BUFFER_SIZE);
 
       start = split.getStart();
       Path file = split.getPath();
@@ -96,62 +97,40 @@ public class XMLInputFormatOld extends TextInputFormat {
       CompressionCodec codec = compressionCodecs.getCodec(file);
 
       FileSystem fs = file.getFileSystem(jobConf);
+      fileIn = fs.open(file);
+      fileLength = fs.getFileStatus(file).getLen();
 
       if (codec != null) {
         LOG.info("Reading compressed file...");
 
-        fsin = new DataInputStream(codec.createInputStream(fs.open(file)));
+        // Compressed files aren't split (see TextInputFormat.isSplitable), so we read the whole
+        // thing; offsets are with respect to the uncompressed stream.
+        compressed = true;
+        decompressor = CodecPool.getDecompressor(codec);
+        scanner = new XMLTagScanner(codec.createInputStream(fileIn, decompressor), 0,
+            startTag, endTag, bufferSize);
 
+        start = 0;
         end = Long.MAX_VALUE;
       } else {
         LOG.info("Reading uncompressed file...");
 
-        FSDataInputStream fileIn = fs.open(file);
-
         fileIn.seek(start);
-        fsin = fileIn;
+        scanner = new XMLTagScanner(fileIn, start, startTag, endTag, bufferSize);
 
         end = start + split.getLength();
       }
-
-      recordStartPos = start;
-
-      // Because input streams of gzipped files are not seekable (specifically, do not support
-      // getPos), we need to keep track of bytes consumed ourselves.
-      pos = start;
     }
 
     @Override
     public boolean next(LongWritable key, Text value) throws IOException {
-      if (pos < end) {
-        if (readUntilMatch(startTag, false)) {
-          recordStartPos = pos - startTag.length;
-
-          try {
-            buffer.write(startTag);
-            if (readUntilMatch(endTag, true)) {
-              key.set(recordStartPos);
-              value.set(buffer.getData(), 0, buffer.getLength());
-              return true;
-            }
-          } finally {
-            // Because input streams of gzipped files are not seekable (specifically, do not support
-            // getPos), we need to keep track of bytes consumed ourselves.
-
-            // This is a sanity check to make sure our internal computation of bytes consumed is
-            // accurate. This should be removed later for efficiency once we confirm that this code
-            // works correctly.
-            if (fsin instanceof Seekable) {
-              if (pos != ((Seekable) fsin).getPos()) {
-                throw new RuntimeException("bytes consumed error!");
-              }
-            }
-
-            buffer.reset();
-          }
-        }
+      long recordStartPos = scanner.next(value, end);
+      if (recordStartPos < 0) {
+        return false;
       }
-      return false;
+
+      key.set(recordStartPos);
+      return true;
     }
 
     @Override
@@ -166,17 +145,30 @@ public class XMLInputFormatOld extends TextInputFormat {
 
     @Override
     public long getPos() throws IOException {
-      return pos;
+      return scanner.getPos();
     }
 
     @Override
     public void close() throws IOException {
-      fsin.close();
+      try {
+        scanner.close();
+      } finally {
+        if (decompressor != null) {
+          CodecPool.returnDecompressor(decompressor);
+          decompressor = null;
+        }
+      }
     }
 
     @Override
     public float getProgress() throws IOException {
-      return ((float) (pos - start)) / ((float) (end - start));
+      if (compressed) {
+        return fileLength == 0 ? 1.0f : Math.min(1.0f, fileIn.getPos() / (float) fileLength);
+      }
+      if (end == start) {
+        return 1.0f;
+      }
+      return Math.min(1.0f, (scanner.getPos() - start) / (float) (end - start));
     }
 
     public long getStart() {
@@ -186,36 +178,5 @@ public class XMLInputFormatOld extends TextInputFormat {
     public long getEnd() {
       return end;
     }
-
-    private boolean readUntilMatch(byte[] match, boolean withinBlock) throws IOException {
-      int i = 0;
-      while (true) {
-        int b = fsin.read();
-        // Increment position (bytes consumed).
-        pos++;
-
-        // End of file:
-        if (b == -1) {
-          return false;
-        }
-        // Save to buffer:
-        if (withinBlock) {
-          buffer.write(b);
-        }
-        // Check if we're matching:
-        if (b == match[i]) {
-          i++;
-          if (i >= match.length) {
-            return true;
-          }
-        } else {
-          i = 0;
-        }
-        // See if we've passed the stop point:
-        if (!withinBlock && i == 0 && pos >= end) {
-          return false;
-        }
-      }
-    }
   }
 }
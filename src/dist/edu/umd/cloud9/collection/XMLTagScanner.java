@@ -0,0 +1,295 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.collection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Buffered scanner that pulls records delimited by a start tag and an end tag out of a byte stream.
+ * Used by the record readers of {@link XMLInputFormat} and {@link XMLInputFormatOld}.
+ *
+ * <p>
+ * Input is read in large chunks. Within a chunk, the scanner skips ahead to the next occurrence of
+ * the first byte of the tag it is looking for, and then matches the rest of the tag with the
+ * Knuth-Morris-Pratt algorithm. Partial matches carry over chunk boundaries, and a mismatch never
+ * causes a later occurrence of the tag to be missed (e.g., <code>&lt;pa&lt;page&gt;</code> contains
+ * <code>&lt;page&gt;</code>).
+ * </p>
+ *
+ * <p>
+ * A record belongs to the split that contains the first byte of its start tag; the record itself
+ * may extend past the end of the split.
+ * </p>
+ */
+public class XMLTagScanner implements Closeable {
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private final InputStream in;
+  private final byte[] buf;
+  private int bufPos = 0;
+  private int bufLen = 0;
+  // Offset in the stream of buf[0].
+  private long bufStart;
+
+  private final byte[] startTag;
+  private final int[] startTagFailure;
+  private final byte[] endTag;
+  private final int[] endTagFailure;
+
+  /**
+   * Creates a scanner with the default buffer size.
+   *
+   * @param in stream to read from
+   * @param pos offset of the stream's current position, used to compute record offsets
+   * @param startTag begin-of-record tag
+   * @param endTag end-of-record tag
+   */
+  public XMLTagScanner(InputStream in, long pos, byte[] startTag, byte[] endTag) {
+    this(in, pos, startTag, endTag, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a scanner.
+   *
+   * @param in stream to read from
+   * @param pos offset of the stream's current position, used to compute record offsets
+   * @param startTag begin-of-record tag
+   * @param endTag end-of-record tag
+   * @param bufferSize number of bytes read from the stream at a time
+   */
+  public XMLTagScanner(InputStream in, long pos, byte[] startTag, byte[] endTag, int bufferSize) {
+    if (startTag.length == 0 || endTag.length == 0) {
+      throw new IllegalArgumentException("Start and end tags must not be empty!");
+    }
+
+    this.in = in;
+    this.buf = new byte[bufferSize];
+    this.bufStart = pos;
+    this.startTag = startTag;
+    this.startTagFailure = computeFailure(startTag);
+    this.endTag = endTag;
+    this.endTagFailure = computeFailure(endTag);
+  }
+
+  /**
+   * Returns the offset of the next byte to be consumed.
+   */
+  public long getPos() {
+    return bufStart + bufPos;
+  }
+
+  /**
+   * Reads the next record whose start tag begins before <code>end</code>. The record, including
+   * both tags, replaces the contents of <code>record</code>.
+   *
+   * @param record holder for the record
+   * @param end offset at which to stop looking for start tags
+   * @return offset of the record's start tag, or -1 if there are no more records
+   */
+  public long next(Text record, long end) throws IOException {
+    long recordStart = findStartTag(end);
+    if (recordStart < 0) {
+      return -1;
+    }
+
+    record.clear();
+    append(record, startTag, 0, startTag.length);
+    if (!readThroughEndTag(record)) {
+      return -1;
+    }
+
+    return recordStart;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  // Consumes everything up to and including the next start tag that begins before end, returning
+  // the offset of that tag (or -1 if there isn't one).
+  private long findStartTag(long end) throws IOException {
+    final byte[] tag = startTag;
+    final byte first = tag[0];
+
+    int k = 0; // number of tag bytes matched so far
+    while (true) {
+      if (bufPos == bufLen && !fill()) {
+        return -1;
+      }
+
+      final byte[] b = buf;
+      final int n = bufLen;
+      int i = bufPos;
+
+      if (k == 0) {
+        while (i < n && b[i] != first) {
+          i++;
+        }
+
+        if (i == n || bufStart + i >= end) {
+          bufPos = i;
+          if (bufStart + i >= end) {
+            return -1;
+          }
+          continue;
+        }
+
+        k = 1;
+        i++;
+        if (k == tag.length) {
+          bufPos = i;
+          return bufStart + i - tag.length;
+        }
+      }
+
+      while (i < n) {
+        final byte c = b[i];
+        while (k > 0 && c != tag[k]) {
+          k = startTagFailure[k - 1];
+        }
+        if (c == tag[k]) {
+          k++;
+        }
+        i++;
+
+        if (k == tag.length) {
+          bufPos = i;
+          return bufStart + i - tag.length;
+        }
+
+        if (k == 0) {
+          break;
+        }
+
+        // A partial match that starts at or after the end of the split belongs to the next split.
+        if (bufStart + i - k >= end) {
+          bufPos = i;
+          return -1;
+        }
+      }
+
+      bufPos = i;
+    }
+  }
+
+  // Appends everything up to and including the next end tag to record.
+  private boolean readThroughEndTag(Text record) throws IOException {
+    final byte[] tag = endTag;
+    final byte first = tag[0];
+
+    int k = 0;
+    while (true) {
+      if (bufPos == bufLen && !fill()) {
+        return false;
+      }
+
+      final byte[] b = buf;
+      final int n = bufLen;
+      final int segmentStart = bufPos;
+      int i = bufPos;
+
+      while (i < n) {
+        if (k == 0) {
+          while (i < n && b[i] != first) {
+            i++;
+          }
+          if (i == n) {
+            break;
+          }
+          k = 1;
+          i++;
+          if (k == tag.length) {
+            append(record, b, segmentStart, i - segmentStart);
+            bufPos = i;
+            return true;
+          }
+          continue;
+        }
+
+        final byte c = b[i];
+        while (k > 0 && c != tag[k]) {
+          k = endTagFailure[k - 1];
+        }
+        if (c == tag[k]) {
+          k++;
+        }
+        i++;
+
+        if (k == tag.length) {
+          append(record, b, segmentStart, i - segmentStart);
+          bufPos = i;
+          return true;
+        }
+      }
+
+      append(record, b, segmentStart, n - segmentStart);
+      bufPos = n;
+    }
+  }
+
+  private boolean fill() throws IOException {
+    bufStart += bufLen;
+    bufPos = 0;
+    bufLen = 0;
+
+    int n;
+    do {
+      n = in.read(buf, 0, buf.length);
+    } while (n == 0);
+
+    if (n < 0) {
+      return false;
+    }
+
+    bufLen = n;
+    return true;
+  }
+
+  // Text.append grows its backing array to exactly the size needed, which makes appending a long
+  // record chunk by chunk quadratic. Grow geometrically instead.
+  private static void append(Text text, byte[] bytes, int off, int len) {
+    int length = text.getLength();
+    byte[] data = text.getBytes();
+    if (length + len > data.length) {
+      text.set(new byte[Math.max(length + len, 2 * data.length)]);
+      text.set(data, 0, length);
+    }
+    text.append(bytes, off, len);
+  }
+
+  // Knuth-Morris-Pratt failure function: f[j] is the length of the longest proper prefix of
+  // pattern[0..j] that is also a suffix of it.
+  private static int[] computeFailure(byte[] pattern) {
+    int[] f = new int[pattern.length];
+    int k = 0;
+    for (int j = 1; j < pattern.length; j++) {
+      while (k > 0 && pattern[j] != pattern[k]) {
+        k = f[k - 1];
+      }
+      if (pattern[j] == pattern[k]) {
+        k++;
+      }
+      f[j] = k;
+    }
+    return f;
+  }
+}
@@ -27,14 +27,14 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
-import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
+import edu.umd.cloud9.collection.DocnoMappingPartitions;
+
 public class Aquaint2DocnoMappingBuilder extends Configured implements Tool {
   private static final Logger LOG = Logger.getLogger(Aquaint2DocnoMappingBuilder.class);
   private static enum Count { DOCS };
@@ -52,24 +52,13 @@ public class Aquaint2DocnoMappingBuilder extends Configured implements Tool {
     }
   }
 
-  private static class MyReducer extends Reducer<Text, IntWritable, Text, IntWritable> {
-    private final static IntWritable cnt = new IntWritable(1);
-
-    @Override
-    public void reduce(Text key, Iterable<IntWritable> values, Context context)
-        throws IOException, InterruptedException {
-      context.write(key, cnt);
-      cnt.set(cnt.get() + 1);
-    }
-  }
-
   /**
    * Creates an instance of this tool.
    */
   public Aquaint2DocnoMappingBuilder() {}
 
   private static int printUsage() {
-    System.out.println("usage: [input-path] [output-path] [output-file]");
+    System.out.println("usage: [input-path] [output-path] [output-file] ([num-reducers])");
     ToolRunner.printGenericCommandUsage(System.out);
     return -1;
   }
@@ -78,7 +67,7 @@ public class Aquaint2DocnoMappingBuilder extends Configured implements Tool {
    * Runs this tool.
    */
   public int run(String[] args) throws Exception {
-    if (args.length != 3) {
+    if (args.length != 3 && args.length != 4) {
       printUsage();
       return -1;
     }
@@ -86,37 +75,34 @@ public class Aquaint2DocnoMappingBuilder extends Configured implements Tool {
     String inputPath = args[0];
     String outputPath = args[1];
     String outputFile = args[2];
+    int numReducers = args.length == 4 ? Integer.parseInt(args[3]) : 1;
 
     LOG.info("Tool: " + Aquaint2DocnoMappingBuilder.class.getCanonicalName());
     LOG.info(" - Input path: " + inputPath);
     LOG.info(" - Output path: " + outputPath);
     LOG.info(" - Output file: " + outputFile);
+    LOG.info(" - Number of reducers: " + numReducers);
 
     Job job = new Job(getConf(), Aquaint2DocnoMappingBuilder.class.getSimpleName());
     job.setJarByClass(Aquaint2DocnoMappingBuilder.class);
 
-    job.setNumReduceTasks(1);
-
     FileInputFormat.setInputPaths(job, new Path(inputPath));
     FileOutputFormat.setOutputPath(job, new Path(outputPath));
     FileOutputFormat.setCompressOutput(job, false);
 
     job.setInputFormatClass(Aquaint2DocumentInputFormat.class);
-    job.setOutputKeyClass(Text.class);
-    job.setOutputValueClass(IntWritable.class);
-    job.setOutputFormatClass(TextOutputFormat.class);
+    job.setMapOutputKeyClass(Text.class);
+    job.setMapOutputValueClass(IntWritable.class);
 
     job.setMapperClass(MyMapper.class);
-    job.setReducerClass(MyReducer.class);
+    DocnoMappingPartitions.configure(job, numReducers);
 
     // Delete the output directory if it exists already.
     FileSystem.get(job.getConfiguration()).delete(new Path(outputPath), true);
 
     job.waitForCompletion(true);
 
-    String input = outputPath + (outputPath.endsWith("/") ? "" : "/") + "/part-r-00000";
-    Aquaint2DocnoMapping.writeDocnoData(new Path(input), new Path(outputFile),
-        FileSystem.get(getConf()));
+    DocnoMappingPartitions.assemble(job.getConfiguration(), new Path(outputFile));
 
     return 0;
   }
@@ -16,23 +16,22 @@
 
 package edu.umd.cloud9.collection.aquaint2;
 
-import java.io.DataInput;
-import java.io.DataOutput;
-import java.io.IOException;
 import java.util.regex.Pattern;
 
-import org.apache.hadoop.io.WritableUtils;
+import edu.umd.cloud9.collection.ByteBackedIndexable;
 
-import edu.umd.cloud9.collection.Indexable;
-
-public class Aquaint2Document extends Indexable {
+public class Aquaint2Document extends ByteBackedIndexable {
   private static Pattern TAGS_PATTERN = Pattern.compile("<[^>]+>");
   private static Pattern WHITESPACE_PATTERN = Pattern.compile("\t|\n");
 
   public static final String XML_START_TAG = "<DOC ";
   public static final String XML_END_TAG = "</DOC>";
 
-  private String raw;
+  private static final byte[] QUOTE = utf8("\"");
+  private static final byte[] HEADLINE_START = utf8("<HEADLINE>");
+  private static final byte[] HEADLINE_END = utf8("</HEADLINE>");
+  private static final byte[] GT = utf8(">");
+
   private String docid;
   private String headline;
   private String text;
@@ -40,26 +39,18 @@ public class Aquaint2Document extends Indexable {
   public Aquaint2Document() {}
 
   @Override
-  public void write(DataOutput out) throws IOException {
-    byte[] bytes = raw.getBytes();
-    WritableUtils.writeVInt(out, bytes.length);
-    out.write(bytes, 0, bytes.length);
-  }
-
-  @Override
-  public void readFields(DataInput in) throws IOException {
-    int length = WritableUtils.readVInt(in);
-    byte[] bytes = new byte[length];
-    in.readFully(bytes, 0, length);
-    Aquaint2Document.readDocument(this, new String(bytes));
+  protected void reset() {
+    docid = null;
+    headline = null;
+    text = null;
   }
 
   @Override
   public String getDocid() {
     if (docid == null) {
       int start = 9;
-      int end = raw.indexOf("\"", start);
-      docid = raw.substring(start, end).trim();
+      int end = indexOf(QUOTE, start);
+      docid = decodeTrimmed(start, end);
     }
 
     return docid;
@@ -67,13 +58,13 @@ public class Aquaint2Document extends Indexable {
 
   public String getHeadline() {
     if (headline == null) {
-      int start = raw.indexOf("<HEADLINE>");
+      int start = indexOf(HEADLINE_START, 0);
 
       if (start == -1) {
         headline = "";
       } else {
-        int end = raw.indexOf("</HEADLINE>");
-        headline = raw.substring(start + 10, end).trim();
+        int end = indexOf(HEADLINE_END, 0);
+        headline = decodeTrimmed(start + 10, end);
 
         headline = TAGS_PATTERN.matcher(headline).replaceAll("");
         headline = WHITESPACE_PATTERN.matcher(headline).replaceAll(" ");
@@ -85,13 +76,13 @@ public class Aquaint2Document extends Indexable {
   @Override
   public String getContent() {
     if (text == null) {
-      int start = raw.indexOf(">");
+      int start = indexOf(GT, 0);
 
       if (start == -1) {
         text = "";
       } else {
-        int end = raw.length() - 6;
-        text = raw.substring(start + 1, end).trim();
+        int end = getLength() - 6;
+        text = decodeTrimmed(start + 1, end);
 
         text = TAGS_PATTERN.matcher(text).replaceAll("");
       }
@@ -105,9 +96,14 @@ public class Aquaint2Document extends Indexable {
       throw new RuntimeException("Error, can't read null string!");
     }
 
-    doc.raw = s;
-    doc.docid = null;
-    doc.headline = null;
-    doc.text = null;
+    doc.set(s);
+  }
+
+  public static void readDocument(Aquaint2Document doc, byte[] bytes, int offset, int length) {
+    if (bytes == null) {
+      throw new RuntimeException("Error, can't read null bytes!");
+    }
+
+    doc.set(bytes, offset, length);
   }
 }
@@ -20,6 +20,7 @@ import java.io.IOException;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
@@ -59,7 +60,8 @@ public class Aquaint2DocumentInputFormat extends
 
     @Override
     public Aquaint2Document getCurrentValue() throws IOException, InterruptedException {
-      Aquaint2Document.readDocument(doc, reader.getCurrentValue().toString());
+      Text text = reader.getCurrentValue();
+      Aquaint2Document.readDocument(doc, text.getBytes(), 0, text.getLength());
       return doc;
     }
 
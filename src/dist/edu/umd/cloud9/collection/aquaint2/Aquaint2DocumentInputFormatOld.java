@@ -58,7 +58,7 @@ public class Aquaint2DocumentInputFormatOld extends
       if (reader.next(offset, text) == false)
         return false;
       key.set(offset.get());
-      Aquaint2Document.readDocument(value, text.toString());
+      Aquaint2Document.readDocument(value, text.getBytes(), 0, text.getLength());
       return true;
     }
 
@@ -84,8 +84,7 @@ public class Aquaint2DocumentInputFormatOld extends
 
     @Override
     public float getProgress() throws IOException {
-      return ((float) (reader.getPos() - reader.getStart()))
-          / ((float) (reader.getEnd() - reader.getStart()));
+      return reader.getProgress();
     }
   }
 }
@@ -61,13 +61,12 @@ public class Aquaint2ForwardIndex implements DocumentForwardIndex<Aquaint2Docume
 			LOG.debug("docno " + docno + ": byte offset " + offsets[docno] + ", length "
 					+ lengths[docno]);
 
-			input.seek(offsets[docno]);
-
 			byte[] arr = new byte[lengths[docno]];
 
-			input.read(arr);
+			// positioned read, so that concurrent requests don't move each other's file pointer
+			input.readFully(offsets[docno], arr);
 
-			Aquaint2Document.readDocument(doc, new String(arr));
+			Aquaint2Document.readDocument(doc, arr, 0, arr.length);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -87,7 +87,7 @@ public class Aquaint2ForwardIndexBuilder extends Configured implements Tool {
 				OutputCollector<IntWritable, Text> output, Reporter reporter) throws IOException {
 			reporter.incrCounter(Count.DOCS, 1);
 
-			int len = doc.getContent().getBytes().length;
+			int len = doc.getLength();
 			sInt.set(mDocMapping.getDocno(doc.getDocid()));
 			sText.set(key + "\t" + len);
 			output.collect(sInt, sText);
@@ -9,10 +9,12 @@ import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
-import org.apache.hadoop.io.SequenceFile;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.collection.DocumentForwardIndex;
+import edu.umd.cloud9.io.SequenceFileBlock;
+import edu.umd.cloud9.io.SequenceFileBlockCache;
+import edu.umd.cloud9.io.SequenceFileBlockScanner;
 
 public class ClueWarcForwardIndex implements DocumentForwardIndex<ClueWarcRecord> {
   private static final Logger LOG = Logger.getLogger(ClueWarcForwardIndex.class);
@@ -27,11 +29,35 @@ public class ClueWarcForwardIndex implements DocumentForwardIndex<ClueWarcRecord
   private int lastDocno = -1;
 
   private ClueWarcDocnoMapping docnoMapping = new ClueWarcDocnoMapping();
+  private SequenceFileBlockCache cache = SequenceFileBlockCache.getSharedInstance();
 
-  public ClueWarcForwardIndex() {}
+  public ClueWarcForwardIndex() {
+    conf = new Configuration();
+  }
+
+  public ClueWarcForwardIndex(Configuration conf) {
+    this.conf = conf;
+  }
+
+  /**
+   * Sets the cache of decompressed blocks used by this forward index. By default, the cache shared
+   * by all forward indexes in the JVM is used.
+   */
+  public void setBlockCache(SequenceFileBlockCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Returns the cache of decompressed blocks used by this forward index.
+   */
+  public SequenceFileBlockCache getBlockCache() {
+    return cache;
+  }
 
   @Override
   public void loadIndex(Path index, Path mapping, FileSystem fs) throws IOException {
+    this.fs = fs;
+
     LOG.info("Loading forward index: " + index);
 
     docnoMapping.loadMapping(mapping, fs);
@@ -86,26 +112,22 @@ public class ClueWarcForwardIndex implements DocumentForwardIndex<ClueWarcRecord
     LOG.info("fetching docno " + docno + ": seeking to " + offsets[idx] + " at " + file);
 
     try {
-      SequenceFile.Reader reader = new SequenceFile.Reader(fs, new Path(file), conf);
+      SequenceFileBlock block = cache.getBlock(new Path(file), offsets[idx], fs, conf);
 
       IntWritable key = new IntWritable();
-      ClueWarcRecord value = new ClueWarcRecord();
-
-      reader.seek(offsets[idx]);
-
-      while (reader.next(key)) {
+      for (int i = 0; i < block.getRecordCount(); i++) {
+        block.readKey(i, key);
         if (key.get() == docno) {
-          break;
+          ClueWarcRecord value = new ClueWarcRecord();
+          block.readValue(i, value);
+
+          long duration = System.currentTimeMillis() - start;
+          LOG.info(" docno " + docno + " fetched in " + duration + "ms");
+          return value;
         }
       }
 
-      reader.getCurrentValue(value);
-      reader.close();
-
-      long duration = System.currentTimeMillis() - start;
-
-      LOG.info(" docno " + docno + " fetched in " + duration + "ms");
-      return value;
+      LOG.warn(" docno " + docno + " not found in block at " + offsets[idx] + " in " + file);
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -145,13 +167,15 @@ public class ClueWarcForwardIndex implements DocumentForwardIndex<ClueWarcRecord
     String file = collectionPath + "/part-" + df.format(fileno[idx]);
 
     try {
-      SequenceFile.Reader reader = new SequenceFile.Reader(fs, new Path(file), conf);
+      // Walk the remaining block headers; only the keys of the last block are decompressed.
+      SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(new Path(file), fs, conf);
       IntWritable key = new IntWritable();
 
-      reader.seek(offsets[idx]);
-
-      while (reader.next(key))
-        ;
+      scanner.seek(offsets[idx]);
+      while (scanner.next()) {
+        scanner.readLastKey(key);
+      }
+      scanner.close();
       lastDocno = key.get();
     } catch (IOException e) {
       e.printStackTrace();
@@ -10,6 +10,8 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.SequenceFile;
 
+import edu.umd.cloud9.io.SequenceFileBlockScanner;
+
 public class ScanBlockCompressedSequenceFile {
 
 	public static void main(String[] args) throws IOException {
@@ -19,41 +21,33 @@ public class ScanBlockCompressedSequenceFile {
 		}
 
 		List<Long> seekPoints = new ArrayList<Long>();
-		long pos = -1;
-		long prevPos = -1;
-
-		int prevDocno = 0;
 
 		Path path = new Path(args[0]);
 		Configuration config = new Configuration();
-		SequenceFile.Reader reader = new SequenceFile.Reader(FileSystem.get(config), path, config);
+		FileSystem fs = FileSystem.get(config);
+
+		// Walk the block headers; only the key buffers are decompressed.
+		SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(path, fs, config);
 
 		IntWritable key = new IntWritable();
-		ClueWarcRecord value = new ClueWarcRecord();
+		IntWritable lastKey = new IntWritable();
 
-		pos = reader.getPosition();
 		int cnt = 0;
-		while (reader.next(key, value)) {
-			if (prevPos != -1 && prevPos != pos) {
-				System.out.println("## beginning of block at " + prevPos + ", docno:" + prevDocno);
-				seekPoints.add(prevPos);
-			}
-
-			System.out.println("offset:" + pos + "\tdocno:" + key + "\tdocid:" + value.getDocid());
-
-			prevPos = pos;
-			pos = reader.getPosition();
-			prevDocno = key.get();
-
-			cnt++;
-
-			if (cnt > Integer.MAX_VALUE)
-				break;
+		while (scanner.next()) {
+			scanner.readFirstKey(key);
+			scanner.readLastKey(lastKey);
+			System.out.println("## beginning of block at " + scanner.getBlockOffset() + ", docnos:"
+					+ key + "-" + lastKey + ", records:" + scanner.getRecordCount());
+			seekPoints.add(scanner.getBlockOffset());
+			cnt += scanner.getRecordCount();
 		}
 
-		reader.close();
+		scanner.close();
 
-		reader = new SequenceFile.Reader(FileSystem.get(config), path, config);
+		System.out.println(seekPoints.size() + " blocks, " + cnt + " records");
+
+		SequenceFile.Reader reader = new SequenceFile.Reader(fs, path, config);
+		ClueWarcRecord value = new ClueWarcRecord();
 
 		for (long p : seekPoints) {
 			reader.seek(p);
@@ -16,22 +16,16 @@
 
 package edu.umd.cloud9.collection.medline;
 
-import java.io.DataInput;
-import java.io.DataOutput;
-import java.io.IOException;
-
-import org.apache.hadoop.io.WritableUtils;
-
 import com.google.common.base.Preconditions;
 
-import edu.umd.cloud9.collection.Indexable;
+import edu.umd.cloud9.collection.ByteBackedIndexable;
 
 /**
  * Object representing a MEDLINE citation.
  *
  * @author Jimmy Lin
  */
-public class MedlineCitation extends Indexable {
+public class MedlineCitation extends ByteBackedIndexable {
 
   /**
    * Start delimiter of the document, which is &lt;<code>MedlineCitation</code> (without closing
@@ -44,8 +38,14 @@ public class MedlineCitation extends Indexable {
    */
   public static final String XML_END_TAG = "</MedlineCitation>";
 
+  private static final byte[] PMID_START = utf8("<PMID>");
+  private static final byte[] PMID_END = utf8("</PMID>");
+  private static final byte[] TITLE_START = utf8("<ArticleTitle>");
+  private static final byte[] TITLE_END = utf8("</ArticleTitle>");
+  private static final byte[] ABSTRACT_START = utf8("<AbstractText>");
+  private static final byte[] ABSTRACT_END = utf8("</AbstractText>");
+
   private String pmid;
-  private String citation;
   private String title;
   private String abstractText;
 
@@ -55,23 +55,11 @@ public class MedlineCitation extends Indexable {
   public MedlineCitation() {
   }
 
-  /**
-   * Deserializes this object.
-   */
-  public void write(DataOutput out) throws IOException {
-    byte[] bytes = citation.getBytes();
-    WritableUtils.writeVInt(out, bytes.length);
-    out.write(bytes, 0, bytes.length);
-  }
-
-  /**
-   * Serializes this object.
-   */
-  public void readFields(DataInput in) throws IOException {
-    int length = WritableUtils.readVInt(in);
-    byte[] bytes = new byte[length];
-    in.readFully(bytes, 0, length);
-    MedlineCitation.readCitation(this, new String(bytes));
+  @Override
+  protected void reset() {
+    pmid = null;
+    title = null;
+    abstractText = null;
   }
 
   /**
@@ -93,13 +81,13 @@ public class MedlineCitation extends Indexable {
    */
   public String getPmid() {
     if (pmid == null) {
-      int start = citation.indexOf("<PMID>");
+      int start = indexOf(PMID_START, 0);
 
       if (start == -1) {
         throw new RuntimeException(getRawXML());
       } else {
-        int end = citation.indexOf("</PMID>", start);
-        pmid = citation.substring(start + 6, end);
+        int end = indexOf(PMID_END, start);
+        pmid = decode(start + 6, end);
       }
     }
 
@@ -111,13 +99,13 @@ public class MedlineCitation extends Indexable {
    */
   public String getTitle() {
     if (title == null) {
-      int start = citation.indexOf("<ArticleTitle>");
+      int start = indexOf(TITLE_START, 0);
 
       if (start == -1) {
         title = "";
       } else {
-        int end = citation.indexOf("</ArticleTitle>", start);
-        title = citation.substring(start + 14, end);
+        int end = indexOf(TITLE_END, start);
+        title = decode(start + 14, end);
       }
     }
 
@@ -129,13 +117,13 @@ public class MedlineCitation extends Indexable {
    */
   public String getAbstract() {
     if (abstractText == null) {
-      int start = citation.indexOf("<AbstractText>");
+      int start = indexOf(ABSTRACT_START, 0);
 
       if (start == -1) {
         abstractText = "";
       } else {
-        int end = citation.indexOf("</AbstractText>", start);
-        abstractText = citation.substring(start + 14, end);
+        int end = indexOf(ABSTRACT_END, start);
+        abstractText = decode(start + 14, end);
       }
     }
 
@@ -146,7 +134,7 @@ public class MedlineCitation extends Indexable {
    * Returns the raw XML of this citation.
    */
   public String getRawXML() {
-    return citation;
+    return getRawContent();
   }
 
   /**
@@ -159,9 +147,22 @@ public class MedlineCitation extends Indexable {
     Preconditions.checkNotNull(citation);
     Preconditions.checkNotNull(s);
 
-    citation.citation = s;
-    citation.pmid = null;
-    citation.title = null;
-    citation.abstractText = null;
+    citation.set(s);
+  }
+
+  /**
+   * Reads raw XML, as UTF-8 bytes, into a {@code MedlineCitation} object.
+   *
+   * @param citation the {@code MedlineCitation} object
+   * @param bytes raw XML
+   * @param offset offset of the first byte
+   * @param length number of bytes
+   */
+  public static void readCitation(MedlineCitation citation, byte[] bytes, int offset,
+      int length) {
+    Preconditions.checkNotNull(citation);
+    Preconditions.checkNotNull(bytes);
+
+    citation.set(bytes, offset, length);
   }
 }
@@ -20,6 +20,7 @@ import java.io.IOException;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
@@ -65,7 +66,8 @@ public class MedlineCitationInputFormat extends
 
     @Override
     public MedlineCitation getCurrentValue() throws IOException, InterruptedException {
-      MedlineCitation.readCitation(doc, reader.getCurrentValue().toString());
+      Text text = reader.getCurrentValue();
+      MedlineCitation.readCitation(doc, text.getBytes(), 0, text.getLength());
       return doc;
     }
 
@@ -93,7 +93,7 @@ public class MedlineCitationInputFormatOld extends
       if (reader.next(pos, text) == false)
         return false;
       key.set(pos.get());
-      MedlineCitation.readCitation(value, text.toString());
+      MedlineCitation.readCitation(value, text.getBytes(), 0, text.getLength());
       return true;
     }
 
@@ -129,8 +129,7 @@ public class MedlineCitationInputFormatOld extends
      * Returns progress on how much input has been consumed.
      */
     public float getProgress() throws IOException {
-      return ((float) (reader.getPos() - reader.getStart()))
-          / ((float) (reader.getEnd() - reader.getStart()));
+      return reader.getProgress();
     }
   }
 }
@@ -27,15 +27,14 @@ import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
-import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.collection.DocnoMapping;
+import edu.umd.cloud9.collection.DocnoMappingPartitions;
 
 /**
  * <p>
@@ -83,17 +82,6 @@ public class MedlineDocnoMappingBuilder extends Configured implements Tool, Docn
     }
   }
 
-  private static class MyReducer extends Reducer<IntWritable, IntWritable, IntWritable, IntWritable> {
-    private final static IntWritable cnt = new IntWritable(1);
-
-    @Override
-    public void reduce(IntWritable key, Iterable<IntWritable> values, Context context)
-        throws IOException, InterruptedException {
-      context.write(key, cnt);
-      cnt.set(cnt.get() + 1);
-    }
-  }
-
   /**
    * Creates an instance of this tool.
    */
@@ -123,25 +111,23 @@ public class MedlineDocnoMappingBuilder extends Configured implements Tool, Docn
     LOG.info("Tool: " + MedlineDocnoMappingBuilder.class.getCanonicalName());
     LOG.info(" - input path: " + options.collection);
     LOG.info(" - output file: " + options.docnoMapping);
+    LOG.info(" - number of reducers: " + options.numReducers);
 
     Job job = new Job(getConf(), MedlineDocnoMappingBuilder.class.getSimpleName());
     FileSystem fs = FileSystem.get(job.getConfiguration());
 
     job.setJarByClass(MedlineDocnoMappingBuilder.class);
 
-    job.setNumReduceTasks(1);
-
     FileInputFormat.setInputPaths(job, new Path(options.collection));
     FileOutputFormat.setOutputPath(job, new Path(tmpDir));
     FileOutputFormat.setCompressOutput(job, false);
 
     job.setInputFormatClass(MedlineCitationInputFormat.class);
-    job.setOutputKeyClass(IntWritable.class);
-    job.setOutputValueClass(IntWritable.class);
-    job.setOutputFormatClass(TextOutputFormat.class);
+    job.setMapOutputKeyClass(IntWritable.class);
+    job.setMapOutputValueClass(IntWritable.class);
 
     job.setMapperClass(MyMapper.class);
-    job.setReducerClass(MyReducer.class);
+    DocnoMappingPartitions.configure(job, options.numReducers);
 
     // Delete the output directory if it exists already.
     fs.delete(new Path(tmpDir), true);
@@ -152,9 +138,7 @@ public class MedlineDocnoMappingBuilder extends Configured implements Tool, Docn
       throw new RuntimeException(e);
     }
 
-    String input = tmpDir + (tmpDir.endsWith("/") ? "" : "/") + "/part-r-00000";
-    MedlineDocnoMapping.writeMappingData(new Path(input), new Path(options.docnoMapping),
-        FileSystem.get(getConf()));
+    DocnoMappingPartitions.assemble(job.getConfiguration(), new Path(options.docnoMapping));
 
     fs.delete(new Path(tmpDir), true);
 
@@ -29,15 +29,14 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
-import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.collection.DocnoMapping;
+import edu.umd.cloud9.collection.DocnoMappingPartitions;
 
 /**
  * Tool that builds the mapping from TREC docids (String identifiers) to docnos
@@ -64,17 +63,6 @@ public class TrecDocnoMappingBuilder extends Configured implements Tool, DocnoMa
     }
   }
 
-  private static class MyReducer extends Reducer<Text, IntWritable, Text, IntWritable> {
-    private final static IntWritable cnt = new IntWritable(1);
-
-    @Override
-    public void reduce(Text key, Iterable<IntWritable> values, Context context)
-        throws IOException, InterruptedException {
-      context.write(key, cnt);
-      cnt.set(cnt.get() + 1);
-    }
-  }
-
   /**
    * Creates an instance of this tool.
    */
@@ -104,25 +92,23 @@ public class TrecDocnoMappingBuilder extends Configured implements Tool, DocnoMa
     LOG.info("Tool name: " + TrecDocnoMappingBuilder.class.getCanonicalName());
     LOG.info(" - input path: " + options.collection);
     LOG.info(" - output file: " + options.docnoMapping);
+    LOG.info(" - number of reducers: " + options.numReducers);
 
     Job job = new Job(getConf(), TrecDocnoMappingBuilder.class.getSimpleName());
     FileSystem fs = FileSystem.get(job.getConfiguration());
 
     job.setJarByClass(TrecDocnoMappingBuilder.class);
 
-    job.setNumReduceTasks(1);
-
     FileInputFormat.setInputPaths(job, new Path(options.collection));
     FileOutputFormat.setOutputPath(job, new Path(tmpDir));
     FileOutputFormat.setCompressOutput(job, false);
 
     job.setInputFormatClass(TrecDocumentInputFormat.class);
-    job.setOutputKeyClass(Text.class);
-    job.setOutputValueClass(IntWritable.class);
-    job.setOutputFormatClass(TextOutputFormat.class);
+    job.setMapOutputKeyClass(Text.class);
+    job.setMapOutputValueClass(IntWritable.class);
 
     job.setMapperClass(MyMapper.class);
-    job.setReducerClass(MyReducer.class);
+    DocnoMappingPartitions.configure(job, options.numReducers);
 
     // Delete the output directory if it exists already.
     fs.delete(new Path(tmpDir), true);
@@ -133,9 +119,7 @@ public class TrecDocnoMappingBuilder extends Configured implements Tool, DocnoMa
       throw new RuntimeException(e);
     }
 
-    String input = tmpDir + (tmpDir.endsWith("/") ? "" : "/") + "/part-r-00000";
-    TrecDocnoMapping.writeMappingData(new Path(input), new Path(options.docnoMapping),
-        FileSystem.get(getConf()));
+    DocnoMappingPartitions.assemble(job.getConfiguration(), new Path(options.docnoMapping));
 
     fs.delete(new Path(tmpDir), true);
 
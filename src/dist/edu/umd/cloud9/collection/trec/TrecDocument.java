@@ -16,15 +16,8 @@
 
 package edu.umd.cloud9.collection.trec;
 
-import java.io.DataInput;
-import java.io.DataOutput;
-import java.io.IOException;
-
-import org.apache.hadoop.io.WritableUtils;
-
 import com.google.common.base.Preconditions;
 
-import edu.umd.cloud9.collection.Indexable;
 import edu.umd.cloud9.collection.WebDocument;
 
 /**
@@ -44,7 +37,9 @@ public class TrecDocument extends WebDocument {
    */
   public static final String XML_END_TAG = "</DOC>";
 
-  private String doc;
+  private static final byte[] DOCNO_START = utf8("<DOCNO>");
+  private static final byte[] DOCNO_END = utf8("</DOCNO>");
+
   private String docid;
 
   /**
@@ -52,25 +47,9 @@ public class TrecDocument extends WebDocument {
    */
   public TrecDocument() {}
 
-  /**
-   * Deserializes this object.
-   */
-  @Override
-  public void write(DataOutput out) throws IOException {
-    byte[] bytes = doc.getBytes();
-    WritableUtils.writeVInt(out, bytes.length);
-    out.write(bytes, 0, bytes.length);
-  }
-
-  /**
-   * Serializes this object.
-   */
   @Override
-  public void readFields(DataInput in) throws IOException {
-    int length = WritableUtils.readVInt(in);
-    byte[] bytes = new byte[length];
-    in.readFully(bytes, 0, length);
-    TrecDocument.readDocument(this, new String(bytes));
+  protected void reset() {
+    docid = null;
   }
 
   /**
@@ -80,13 +59,13 @@ public class TrecDocument extends WebDocument {
   @Override
   public String getDocid() {
     if (docid == null) {
-      int start = doc.indexOf("<DOCNO>");
+      int start = indexOf(DOCNO_START, 0);
 
       if (start == -1) {
         docid = "";
       } else {
-        int end = doc.indexOf("</DOCNO>", start);
-        docid = doc.substring(start + 7, end).trim();
+        int end = indexOf(DOCNO_END, start);
+        docid = end == -1 ? "" : decodeTrimmed(start + DOCNO_START.length, end);
       }
     }
 
@@ -98,7 +77,7 @@ public class TrecDocument extends WebDocument {
    */
   @Override
   public String getContent() {
-    return doc;
+    return getRawContent();
   }
 
   /**
@@ -111,8 +90,22 @@ public class TrecDocument extends WebDocument {
     Preconditions.checkNotNull(s);
     Preconditions.checkNotNull(doc);
 
-    doc.doc = s;
-    doc.docid = null;
+    doc.set(s);
+  }
+
+  /**
+   * Reads raw XML, as UTF-8 bytes, into a {@code TrecDocument} object.
+   *
+   * @param doc the {@code TrecDocument} object
+   * @param bytes raw XML
+   * @param offset offset of the first byte
+   * @param length number of bytes
+   */
+  public static void readDocument(TrecDocument doc, byte[] bytes, int offset, int length) {
+    Preconditions.checkNotNull(bytes);
+    Preconditions.checkNotNull(doc);
+
+    doc.set(bytes, offset, length);
   }
 
 @Override
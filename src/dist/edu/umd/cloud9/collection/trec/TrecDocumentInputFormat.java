@@ -20,6 +20,7 @@ import java.io.IOException;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
@@ -62,7 +63,8 @@ public class TrecDocumentInputFormat extends
 
     @Override
     public WebDocument getCurrentValue() throws IOException, InterruptedException {
-      TrecDocument.readDocument(doc, reader.getCurrentValue().toString());
+      Text text = reader.getCurrentValue();
+      TrecDocument.readDocument(doc, text.getBytes(), 0, text.getLength());
       return doc;
     }
 
@@ -73,7 +73,7 @@ public class TrecDocumentInputFormatOld extends IndexableFileInputFormatOld<Long
         return false;
       }
       key.set(pos.get());
-      TrecDocument.readDocument(value, text.toString());
+      TrecDocument.readDocument(value, text.getBytes(), 0, text.getLength());
       return true;
     }
 
@@ -109,8 +109,7 @@ public class TrecDocumentInputFormatOld extends IndexableFileInputFormatOld<Long
      * Returns progress on how much input has been consumed.
      */
     public float getProgress() throws IOException {
-      return ((float) (reader.getPos() - reader.getStart()))
-          / ((float) (reader.getEnd() - reader.getStart()));
+      return reader.getProgress();
     }
   }
 }
@@ -81,13 +81,12 @@ public class TrecForwardIndex implements DocumentForwardIndex<TrecDocument> {
       LOG.info(String.format("docno %d: byte offset %d, length %d",
           docno, offsets[docno], lengths[docno]));
 
-      input.seek(offsets[docno]);
-
       byte[] arr = new byte[lengths[docno]];
 
-      input.read(arr);
+      // positioned read, so that concurrent requests don't move each other's file pointer
+      input.readFully(offsets[docno], arr);
 
-      TrecDocument.readDocument(doc, new String(arr));
+      TrecDocument.readDocument(doc, arr, 0, arr.length);
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -96,7 +96,7 @@ public class TrecForwardIndexBuilder extends Configured implements Tool {
         throws IOException, InterruptedException {
       context.getCounter(Count.DOCS).increment(1);
 
-      int len = doc.getContent().getBytes().length;
+      int len = doc.getLength();
       docno.set(docMapping.getDocno(doc.getDocid()));
       text.set(key + "\t" + len);
       context.write(docno, text);
@@ -22,7 +22,6 @@ import java.util.Random;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
-import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -32,16 +31,14 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
-import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
-import org.apache.hadoop.util.LineReader;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.collection.DocnoMapping;
+import edu.umd.cloud9.collection.DocnoMappingPartitions;
 
 /**
  * Tool that builds the mapping from docids (String identifiers) to docnos (sequentially-numbered
@@ -69,17 +66,6 @@ public class TrecWebDocnoMappingBuilder extends Configured implements Tool, Docn
     }
   }
 
-  private static class MyReducer extends Reducer<Text, IntWritable, Text, IntWritable> {
-    private final static IntWritable cnt = new IntWritable(1);
-
-    @Override
-    public void reduce(Text key, Iterable<IntWritable> values, Context context)
-        throws IOException, InterruptedException {
-      context.write(key, cnt);
-      cnt.set(cnt.get() + 1);
-    }
-  }
-
   public TrecWebDocnoMappingBuilder() {}
 
   @Override
@@ -104,14 +90,13 @@ public class TrecWebDocnoMappingBuilder extends Configured implements Tool, Docn
     LOG.info("Tool name: " + TrecWebDocnoMappingBuilder.class.getCanonicalName());
     LOG.info(" - input path: " + options.collection);
     LOG.info(" - output file: " + options.docnoMapping);
+    LOG.info(" - number of reducers: " + options.numReducers);
 
     Job job = new Job(getConf(), TrecWebDocnoMappingBuilder.class.getSimpleName());
     FileSystem fs = FileSystem.get(job.getConfiguration());
 
     job.setJarByClass(TrecWebDocnoMappingBuilder.class);
 
-    job.setNumReduceTasks(1);
-
     PathFilter filter = new PathFilter() {
       @Override public boolean accept(Path path) {
         return !path.getName().startsWith("_");
@@ -133,12 +118,11 @@ public class TrecWebDocnoMappingBuilder extends Configured implements Tool, Docn
     FileOutputFormat.setCompressOutput(job, false);
 
     job.setInputFormatClass(options.inputFormat);
-    job.setOutputKeyClass(Text.class);
-    job.setOutputValueClass(IntWritable.class);
-    job.setOutputFormatClass(TextOutputFormat.class);
+    job.setMapOutputKeyClass(Text.class);
+    job.setMapOutputValueClass(IntWritable.class);
 
     job.setMapperClass(MyMapper.class);
-    job.setReducerClass(MyReducer.class);
+    DocnoMappingPartitions.configure(job, options.numReducers);
 
     // Delete the output directory if it exists already.
     fs.delete(new Path(tmpDir), true);
@@ -149,43 +133,12 @@ public class TrecWebDocnoMappingBuilder extends Configured implements Tool, Docn
       throw new RuntimeException(e);
     }
 
-    writeMappingData(new Path(tmpDir + "/part-r-00000"), new Path(options.docnoMapping), fs);
+    DocnoMappingPartitions.assemble(job.getConfiguration(), new Path(options.docnoMapping));
     fs.delete(new Path(tmpDir), true);
 
     return 0;
   }
 
-  private static void writeMappingData(Path input, Path output, FileSystem fs) throws IOException {
-    LOG.info("Writing docids to " + output);
-    LineReader reader = new LineReader(fs.open(input));
-
-    LOG.info("Reading " + input);
-    int cnt = 0;
-    Text line = new Text();
-    while (reader.readLine(line) > 0) {
-      cnt++;
-    }
-    reader.close();
-    LOG.info("Done!");
-
-    LOG.info("Writing " + output);
-    FSDataOutputStream out = fs.create(output, true);
-    reader = new LineReader(fs.open(input));
-    out.writeInt(cnt);
-    cnt = 0;
-    while (reader.readLine(line) > 0) {
-      String[] arr = line.toString().split("\\t");
-      out.writeUTF(arr[0]);
-      cnt++;
-      if (cnt % 100000 == 0) {
-        LOG.info(cnt + " documents");
-      }
-    }
-    reader.close();
-    out.close();
-    LOG.info("Done! " + cnt + " documents total.");
-  }
-
   /**
    * Dispatches command-line arguments to the tool via the {@code ToolRunner}.
    */
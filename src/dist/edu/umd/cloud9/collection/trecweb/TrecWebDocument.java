@@ -38,10 +38,20 @@ public class TrecWebDocument extends WebDocument {
    */
   public static final String XML_END_TAG = "</DOC>";
 
+  private static final byte[] DOCNO_START = utf8("<DOCNO>");
+  private static final byte[] DOCNO_END = utf8("</DOCNO>");
+  private static final byte[] DOCHDR_START = utf8("<DOCHDR>");
+  private static final byte[] DOCHDR_END = utf8("</DOCHDR>");
+  private static final byte[] SPACE = utf8(" ");
+
   private String docid;
-  private String content;
   private String url;
 
+  // Content, which is in [contentStart, contentEnd) of the bytes, decoded if asked for.
+  private int contentStart;
+  private int contentEnd;
+  private String content;
+
   /**
    * Creates an empty <code>Doc2Document</code> object.
    */
@@ -55,24 +65,33 @@ public class TrecWebDocument extends WebDocument {
   }
 
   /**
-   * Deserializes this object.
+   * Serializes this object. Only the docid and the content are kept: the header, including the URL,
+   * is not.
    */
+  @Override
   public void write(DataOutput out) throws IOException {
     out.writeUTF(docid);
-    byte[] bytes = content.getBytes();
-    WritableUtils.writeVInt(out, bytes.length);
-    out.write(bytes, 0, bytes.length);
+    WritableUtils.writeVInt(out, contentEnd - contentStart);
+    out.write(getBytes(), contentStart, contentEnd - contentStart);
   }
 
   /**
-   * Serializes this object.
+   * Deserializes this object.
    */
+  @Override
   public void readFields(DataInput in) throws IOException {
-    docid = in.readUTF();
-    int length = WritableUtils.readVInt(in);
-    byte[] bytes = new byte[length];
-    in.readFully(bytes, 0, length);
-    content = new String(bytes);
+    String id = in.readUTF();
+    super.readFields(in);
+    docid = id;
+  }
+
+  @Override
+  protected void reset() {
+    docid = null;
+    url = null;
+    contentStart = 0;
+    contentEnd = getLength();
+    content = null;
   }
 
   /**
@@ -88,6 +107,9 @@ public class TrecWebDocument extends WebDocument {
    */
   @Override
   public String getContent() {
+    if (content == null) {
+      content = decode(contentStart, contentEnd);
+    }
     return content;
   }
 
@@ -107,37 +129,57 @@ public class TrecWebDocument extends WebDocument {
       throw new RuntimeException("Error, can't read null string!");
     }
 
-    int start = s.indexOf("<DOCNO>");
+    doc.set(s);
+    doc.parse();
+  }
+
+  /**
+   * Reads raw XML, as UTF-8 bytes, into a {@code TrecWebDocument} object.
+   *
+   * @param doc the {@code TrecWebDocument} object
+   * @param bytes raw XML
+   * @param offset offset of the first byte
+   * @param length number of bytes
+   */
+  public static void readDocument(TrecWebDocument doc, byte[] bytes, int offset, int length) {
+    if (bytes == null) {
+      throw new RuntimeException("Error, can't read null bytes!");
+    }
+
+    doc.set(bytes, offset, length);
+    doc.parse();
+  }
+
+  // Extracts the docid, the URL, and the bounds of the content, without decoding the content.
+  private void parse() {
+    int start = indexOf(DOCNO_START, 0);
 
     if (start == -1) {
       throw new RuntimeException("Unable to find DOCNO tag!");
     } else {
-      int end = s.indexOf("</DOCNO>", start);
+      int end = indexOf(DOCNO_END, start);
 
-      doc.docid = s.substring(start + 7, end);
+      docid = decode(start + 7, end);
     }
-    
-    start = s.indexOf("<DOCHDR>");
-    
+
+    start = indexOf(DOCHDR_START, 0);
+
     if (start == -1) {
       throw new RuntimeException("Unable to find DOCHDR tag!");
-    }
-    else {
-      int end = s.indexOf(" ", start);
+    } else {
+      int end = indexOf(SPACE, start);
 
-      doc.url = s.substring(start + 9, end);
+      url = decode(start + 9, end);
     }
-    
-    start = s.indexOf("</DOCHDR>");
+
+    start = indexOf(DOCHDR_END, 0);
 
     if (start == -1) {
       throw new RuntimeException("Unable to find DOCHDR tag!");
     } else {
-      int end = s.length() - 6;
-
-      doc.content = s.substring(start + 9, end);
+      contentStart = start + 9;
+      contentEnd = getLength() - 6;
     }
-
   }
 
   private static DataInputStream fsin;
@@ -153,9 +195,7 @@ public class TrecWebDocument extends WebDocument {
       try {
         buffer.write(startTag);
         if (readUntilMatch(endTag, true)) {
-          String s = new String(buffer.getData());
-
-          readDocument(doc, s);
+          readDocument(doc, buffer.getData(), 0, buffer.getLength());
 
           return true;
         }
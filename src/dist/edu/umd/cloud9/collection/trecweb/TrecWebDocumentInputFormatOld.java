@@ -80,7 +80,7 @@ public class TrecWebDocumentInputFormatOld extends
         return false;
       }
       key.set(inputKey.get());
-      TrecWebDocument.readDocument(value, text.toString());
+      TrecWebDocument.readDocument(value, text.getBytes(), 0, text.getLength());
       return true;
     }
 
@@ -116,8 +116,7 @@ public class TrecWebDocumentInputFormatOld extends
      * Returns progress on how much input has been consumed.
      */
     public float getProgress() throws IOException {
-      return ((float) (reader.getPos() - reader.getStart()))
-          / ((float) (reader.getEnd() - reader.getStart()));
+      return reader.getProgress();
     }
   }
 }
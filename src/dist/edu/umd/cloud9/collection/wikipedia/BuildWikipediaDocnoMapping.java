@@ -17,7 +17,6 @@
 package edu.umd.cloud9.collection.wikipedia;
 
 import java.io.IOException;
-import java.util.Iterator;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -31,7 +30,6 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.mapred.Counters;
 import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.FileOutputFormat;
 import org.apache.hadoop.mapred.JobClient;
@@ -39,14 +37,13 @@ import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.MapReduceBase;
 import org.apache.hadoop.mapred.Mapper;
 import org.apache.hadoop.mapred.OutputCollector;
-import org.apache.hadoop.mapred.Reducer;
 import org.apache.hadoop.mapred.Reporter;
-import org.apache.hadoop.mapred.RunningJob;
-import org.apache.hadoop.mapred.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
+import edu.umd.cloud9.collection.DocnoMappingPartitions;
+
 /**
  * Tool for building the mapping between Wikipedia internal ids (docids) and sequentially-numbered
  * ints (docnos).
@@ -105,23 +102,11 @@ public class BuildWikipediaDocnoMapping extends Configured implements Tool {
     }
   }
 
-  private static class MyReducer extends MapReduceBase implements
-      Reducer<IntWritable, IntWritable, IntWritable, IntWritable> {
-
-    private final static IntWritable cnt = new IntWritable(1);
-
-    public void reduce(IntWritable key, Iterator<IntWritable> values,
-        OutputCollector<IntWritable, IntWritable> output, Reporter reporter) throws IOException {
-      output.collect(key, cnt);
-
-      cnt.set(cnt.get() + 1);
-    }
-  }
-
   private static final String INPUT_OPTION = "input";
   private static final String OUTPUT_PATH_OPTION = "output_path";
   private static final String OUTPUT_FILE_OPTION = "output_file";
   private static final String KEEP_ALL_OPTION = "keep_all";
+  private static final String NUM_REDUCERS_OPTION = "num_reducers";
 
   @SuppressWarnings("static-access")
   @Override
@@ -134,6 +119,8 @@ public class BuildWikipediaDocnoMapping extends Configured implements Tool {
     options.addOption(OptionBuilder.withArgName("path")
         .hasArg().withDescription("output file").create(OUTPUT_FILE_OPTION));
     options.addOption(KEEP_ALL_OPTION, false, "keep all pages");
+    options.addOption(OptionBuilder.withArgName("num")
+        .hasArg().withDescription("number of reducers").create(NUM_REDUCERS_OPTION));
 
     CommandLine cmdline;
     CommandLineParser parser = new GnuParser();
@@ -156,41 +143,39 @@ public class BuildWikipediaDocnoMapping extends Configured implements Tool {
     String outputPath = cmdline.getOptionValue(OUTPUT_PATH_OPTION);
     String outputFile = cmdline.getOptionValue(OUTPUT_FILE_OPTION);
     boolean keepAll = Boolean.parseBoolean(cmdline.getOptionValue(KEEP_ALL_OPTION));
+    int numReducers = cmdline.hasOption(NUM_REDUCERS_OPTION) ?
+        Integer.parseInt(cmdline.getOptionValue(NUM_REDUCERS_OPTION)) : 1;
 
     LOG.info("Tool name: " + this.getClass().getName());
     LOG.info(" - input: " + inputPath);
     LOG.info(" - output path: " + outputPath);
     LOG.info(" - output file: " + outputFile);
     LOG.info(" - keep all pages: " + keepAll);
+    LOG.info(" - number of reducers: " + numReducers);
 
     JobConf conf = new JobConf(getConf(), BuildWikipediaDocnoMapping.class);
     conf.setJobName(String.format("BuildWikipediaDocnoMapping[%s: %s, %s: %s]", INPUT_OPTION,
         inputPath, OUTPUT_FILE_OPTION, outputFile));
 
     conf.setBoolean(KEEP_ALL_OPTION, keepAll);
-    conf.setNumReduceTasks(1);
 
     FileInputFormat.setInputPaths(conf, new Path(inputPath));
     FileOutputFormat.setOutputPath(conf, new Path(outputPath));
     FileOutputFormat.setCompressOutput(conf, false);
 
     conf.setInputFormat(WikipediaPageInputFormat.class);
-    conf.setOutputKeyClass(IntWritable.class);
-    conf.setOutputValueClass(IntWritable.class);
-    conf.setOutputFormat(TextOutputFormat.class);
+    conf.setMapOutputKeyClass(IntWritable.class);
+    conf.setMapOutputValueClass(IntWritable.class);
 
     conf.setMapperClass(MyMapper.class);
-    conf.setReducerClass(MyReducer.class);
+    DocnoMappingPartitions.configure(conf, numReducers);
 
     // Delete the output directory if it exists already.
     FileSystem.get(conf).delete(new Path(outputPath), true);
 
-    RunningJob job = JobClient.runJob(conf);
-    Counters c = job.getCounters();
-    long cnt = keepAll ? c.getCounter(PageTypes.TOTAL) : c.getCounter(PageTypes.ARTICLE);
+    JobClient.runJob(conf);
 
-    WikipediaDocnoMapping.writeDocnoMappingData(FileSystem.get(conf),
-        outputPath + "/part-00000", (int) cnt, outputFile);
+    DocnoMappingPartitions.assemble(conf, new Path(outputFile));
 
     return 0;
   }
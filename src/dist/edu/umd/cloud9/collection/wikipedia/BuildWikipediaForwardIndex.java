@@ -16,8 +16,6 @@
 
 package edu.umd.cloud9.collection.wikipedia;
 
-import java.io.IOException;
-
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.GnuParser;
@@ -26,31 +24,16 @@ import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.hadoop.conf.Configured;
-import org.apache.hadoop.fs.FSDataOutputStream;
-import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.IntWritable;
-import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapred.Counters;
-import org.apache.hadoop.mapred.FileInputFormat;
-import org.apache.hadoop.mapred.FileOutputFormat;
-import org.apache.hadoop.mapred.JobClient;
-import org.apache.hadoop.mapred.JobConf;
-import org.apache.hadoop.mapred.MapRunnable;
-import org.apache.hadoop.mapred.OutputCollector;
-import org.apache.hadoop.mapred.RecordReader;
-import org.apache.hadoop.mapred.Reporter;
-import org.apache.hadoop.mapred.RunningJob;
-import org.apache.hadoop.mapred.lib.IdentityReducer;
-import org.apache.hadoop.util.LineReader;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
-import edu.umd.cloud9.mapred.NoSplitSequenceFileInputFormat;
+import edu.umd.cloud9.collection.BuildBlockCompressedForwardIndex;
 
 /**
- * Tool for building a document forward index for Wikipedia.
+ * Tool for building a document forward index for Wikipedia. This is a thin wrapper around
+ * {@link BuildBlockCompressedForwardIndex}.
  * 
  * @author Jimmy Lin
  */
@@ -58,46 +41,6 @@ import edu.umd.cloud9.mapred.NoSplitSequenceFileInputFormat;
 public class BuildWikipediaForwardIndex extends Configured implements Tool {
 	private static final Logger LOG = Logger.getLogger(BuildWikipediaForwardIndex.class);
 
-	private static enum Blocks { Total };
-
-	private static class MyMapRunner implements MapRunnable<IntWritable, WikipediaPage, IntWritable, Text> {
-		private static final IntWritable keyOut = new IntWritable();
-		private static final Text valOut = new Text();
-
-		private int fileno;
-
-		public void configure(JobConf job) {
-			String file = job.get("map.input.file");
-			fileno = Integer.parseInt(file.substring(file.indexOf("part-") + 5));
-		}
-
-		public void run(RecordReader<IntWritable, WikipediaPage> input,
-				OutputCollector<IntWritable, Text> output, Reporter reporter) throws IOException {
-			IntWritable key = new IntWritable();
-			WikipediaPage value = new WikipediaPage();
-
-			long pos = -1;
-			long prevPos = -1;
-
-			int prevDocno = 0;
-
-			pos = input.getPos();
-			while (input.next(key, value)) {
-				if (prevPos != -1 && prevPos != pos) {
-					LOG.info("- beginning of block at " + prevPos + ", docno:" + prevDocno + ", file:" + fileno);
-					keyOut.set(prevDocno);
-					valOut.set(prevPos + "\t" + fileno);
-					output.collect(keyOut, valOut);
-					reporter.incrCounter(Blocks.Total, 1);
-				}
-
-				prevPos = pos;
-				pos = input.getPos();
-				prevDocno = key.get();
-			}
-		}
-	}
-
   private static final String INPUT_OPTION = "input";
   private static final String OUTPUT_OPTION = "output";
   private static final String INDEX_FILE_OPTION = "index_file";
@@ -138,77 +81,17 @@ public class BuildWikipediaForwardIndex extends Configured implements Tool {
       return -1;
     }
 
-		JobConf conf = new JobConf(getConf(), BuildWikipediaForwardIndex.class);
-		FileSystem fs = FileSystem.get(conf);
-
 		LOG.info("Tool name: " + this.getClass().getName());
 		LOG.info(" - input path: " + inputPath);
 		LOG.info(" - output path: " + outputPath);
 		LOG.info(" - index file: " + indexFile);
-		LOG.info("Note: This tool only works on block-compressed SequenceFiles!");
-
-    conf.setJobName(String.format("BuildWikipediaForwardIndex[%s: %s, %s: %s]",
-        INPUT_OPTION, inputPath, INDEX_FILE_OPTION, indexFile));
-
-		conf.setNumReduceTasks(1);
-
-		FileInputFormat.setInputPaths(conf, inputPath);
-		FileOutputFormat.setOutputPath(conf, new Path(outputPath));
-		FileOutputFormat.setCompressOutput(conf, false);
-
-		conf.setInputFormat(NoSplitSequenceFileInputFormat.class);
-		conf.setOutputKeyClass(IntWritable.class);
-		conf.setOutputValueClass(Text.class);
-
-		conf.setMapRunnerClass(MyMapRunner.class);
-		conf.setReducerClass(IdentityReducer.class);
-
-		// delete the output directory if it exists already
-		fs.delete(new Path(outputPath), true);
-
-		RunningJob job = JobClient.runJob(conf);
-
-		Counters counters = job.getCounters();
-		int blocks = (int) counters.findCounter(Blocks.Total).getCounter();
-
-		LOG.info("number of blocks: " + blocks);
-
-		LOG.info("Writing index file...");
-		LineReader reader = new LineReader(fs.open(new Path(outputPath + "/part-00000")));
-		FSDataOutputStream out = fs.create(new Path(indexFile), true);
-
-		out.writeUTF("edu.umd.cloud9.collection.wikipedia.WikipediaForwardIndex");
-		out.writeUTF(inputPath.toString());
-		out.writeInt(blocks);
-
-		int cnt = 0;
-		Text line = new Text();
-		while (reader.readLine(line) > 0) {
-			String[] arr = line.toString().split("\\s+");
-
-			int docno = Integer.parseInt(arr[0]);
-			int offset = Integer.parseInt(arr[1]);
-			short fileno = Short.parseShort(arr[2]);
-
-			out.writeInt(docno);
-			out.writeInt(offset);
-			out.writeShort(fileno);
-
-			cnt++;
-
-			if (cnt % 100000 == 0) {
-				LOG.info(cnt + " blocks written");
-			}
-		}
-
-		reader.close();
-		out.close();
 
-		if (cnt != blocks) {
-			throw new RuntimeException("Error: mismatch in block count!");
-		}
+		// Blocks are discovered by walking block headers; no pages are decompressed.
+		BuildBlockCompressedForwardIndex builder = new BuildBlockCompressedForwardIndex();
+		builder.setConf(getConf());
 
-		return 0;
+		return builder.run(inputPath.toString(), outputPath, indexFile,
+				WikipediaForwardIndex.class.getCanonicalName());
 	}
 
 	public BuildWikipediaForwardIndex() {}
@@ -31,8 +31,10 @@ import org.apache.commons.cli.ParseException;
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
@@ -49,10 +51,19 @@ import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
+import edu.umd.cloud9.io.BloomFilterWritable;
+import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
 import edu.umd.cloud9.io.pair.PairOfStringInt;
+import edu.umd.cloud9.mapred.BloomFilterJoin;
+import edu.umd.cloud9.mapred.CSRGraphOutputFormat;
 
 /**
- * Tool for extracting the link graph out of Wikipedia. Sample invocation:
+ * Tool for extracting the link graph out of Wikipedia. With <code>-bloom_filter_keys</code>, a
+ * pre-pass first builds a Bloom filter of the page titles, so that links to pages that don't exist
+ * are dropped by the mappers of the join instead of being shuffled (see {@link BloomFilterJoin}).
+ * With <code>-csr</code>, the adjacency lists are written as a binary {@link CSRGraph}, which the
+ * PageRank, BFS, and HITS examples read directly. Sample invocation:
  *
  * @author Jimmy Lin
  */
@@ -62,11 +73,46 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
 
 	private static enum PageTypes { TOTAL, REDIRECT, DISAMBIGUATION, EMPTY, ARTICLE, STUB, NON_ARTICLE };
 
+	// Returns the title with its initial character in lower case, or null if it isn't an upper case
+	// letter.
+	private static String lowerCaseInitial(String title) {
+		String fc = title.substring(0, 1);
+		if (fc.matches("[A-Z]")) {
+			return title.replaceFirst(fc, fc.toLowerCase());
+		}
+		return null;
+	}
+
+	private static class MyTitleMapper extends BloomFilterJoin.KeyMapper<IntWritable, WikipediaPage> {
+		@Override
+		protected void addKeys(IntWritable key, WikipediaPage p, BloomFilterWritable filter) {
+			// The titles the pages are joined on, as emitted by MyMapper1.
+			String title = p.getTitle();
+			filter.add(title);
+
+			title = lowerCaseInitial(title);
+			if (title != null) {
+				filter.add(title);
+			}
+		}
+	}
+
 	private static class MyMapper1 extends MapReduceBase implements
 			Mapper<IntWritable, WikipediaPage, PairOfStringInt, Text> {
 		private static Text text = new Text();
 		private static PairOfStringInt pair = new PairOfStringInt();
 
+		private static final DataOutputBuffer buffer = new DataOutputBuffer();
+		private static BloomFilterWritable titles;
+
+		public void configure(JobConf job) {
+			try {
+				titles = BloomFilterJoin.loadFilter(job);
+			} catch (IOException e) {
+				throw new RuntimeException("Error loading the Bloom filter of titles!");
+			}
+		}
+
 		public void map(IntWritable key, WikipediaPage p,
 				OutputCollector<PairOfStringInt, Text> output, Reporter reporter) throws IOException {
 			reporter.incrCounter(PageTypes.TOTAL, 1);
@@ -81,10 +127,8 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
 			pair.set(title, 0);
 			output.collect(pair, text);
 
-			String fc = title.substring(0, 1);
-			if (fc.matches("[A-Z]")) {
-				title = title.replaceFirst(fc, fc.toLowerCase());
-
+			title = lowerCaseInitial(title);
+			if (title != null) {
 				pair.set(title, 0);
 				output.collect(pair, text);
 			}
@@ -109,6 +153,14 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
 				pair.set(t, 1);
 				text.set(p.getDocid());
 
+				// Links to titles that aren't in the filter can't be joined.
+				if (titles != null && !titles.mightContain(t)) {
+					reporter.incrCounter(BloomFilterJoin.Counter.DROPPED, 1);
+					reporter.incrCounter(BloomFilterJoin.Counter.BYTES_SAVED,
+							BloomFilterJoin.getSerializedSize(buffer, pair, text));
+					continue;
+				}
+
 				output.collect(pair, text);
 			}
 		}
@@ -122,6 +174,11 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
 
 		private static String curArticle;
 		private static int curDocid;
+		private static boolean filtered;
+
+		public void configure(JobConf job) {
+			filtered = job.get(BloomFilterJoin.PATH_PROPERTY) != null;
+		}
 
 		public void reduce(PairOfStringInt key, Iterator<Text> values,
 				OutputCollector<IntWritable, IntWritable> output, Reporter reporter)
@@ -137,6 +194,12 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
 				output.collect(finalSrc, finalDest);
 			} else {
 				if (!key.getLeftElement().equals(curArticle)) {
+					if (filtered) {
+						while (values.hasNext()) {
+							values.next();
+							reporter.incrCounter(BloomFilterJoin.Counter.FALSE_POSITIVES, 1);
+						}
+					}
 					return;
 				}
 
@@ -175,27 +238,40 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
 		}
 	}
 
+	// Collects the targets of the links of a page in the order they come, leaving out links to the
+	// page itself and keeping one link per target.
+	private static void collectTargets(int source, Iterator<IntWritable> values,
+			ArrayListOfIntsWritable targets, Set<Integer> set) {
+		targets.clear();
+		set.clear();
+
+		IntWritable cur;
+		while (values.hasNext()) {
+			cur = values.next();
+
+			if (cur.get() == source) { continue;	}
+			if (set.contains(cur.get())) { continue; }  // Keep only one link to target.
+
+			set.add(cur.get());
+			targets.add(cur.get());
+		}
+	}
+
 	private static class MyReducer2 extends MapReduceBase implements
 			Reducer<IntWritable, IntWritable, IntWritable, Text> {
 
 		private final static Text text = new Text();
+		private final static ArrayListOfIntsWritable targets = new ArrayListOfIntsWritable();
+		private final static Set<Integer> set = new HashSet<Integer>();
 
 		public void reduce(IntWritable key, Iterator<IntWritable> values,
 				OutputCollector<IntWritable, Text> output, Reporter reporter) throws IOException {
 
-			StringBuilder sb = new StringBuilder();
-			Set<Integer> set = new HashSet<Integer>();
-
-			IntWritable cur;
-			while (values.hasNext()) {
-				cur = values.next();
-
-				if (cur.get() == key.get()) { continue;	}
-				if (set.contains(cur.get())) { continue; }  // Keep only one link to target.
-
-				set.add(cur.get());
+			collectTargets(key.get(), values, targets, set);
 
-				sb.append(cur.get());
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < targets.size(); i++) {
+				sb.append(targets.get(i));
 				sb.append("\t");
 			}
 
@@ -204,10 +280,27 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
 		}
 	}
 
+	// Same as MyReducer2, but emits the targets as a list, for CSRGraphOutputFormat.
+	private static class MyReducer2CSR extends MapReduceBase implements
+			Reducer<IntWritable, IntWritable, IntWritable, ArrayListOfIntsWritable> {
+
+		private final static ArrayListOfIntsWritable targets = new ArrayListOfIntsWritable();
+		private final static Set<Integer> set = new HashSet<Integer>();
+
+		public void reduce(IntWritable key, Iterator<IntWritable> values,
+				OutputCollector<IntWritable, ArrayListOfIntsWritable> output, Reporter reporter)
+				throws IOException {
+			collectTargets(key.get(), values, targets, set);
+			output.collect(key, targets);
+		}
+	}
+
   private static final String INPUT_OPTION = "input";
   private static final String EDGES_OUTPUT_OPTION = "edges_output";
   private static final String ADJ_OUTPUT_OPTION = "adjacency_list_output";
   private static final String NUM_PARTITIONS_OPTION = "num_partitions";
+  private static final String BLOOM_FILTER_OPTION = "bloom_filter_keys";
+  private static final String CSR_OPTION = "csr";
 
   @SuppressWarnings("static-access") @Override
 	public int run(String[] args) throws Exception {
@@ -220,6 +313,12 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
         .withDescription("output for adjacency list").create(ADJ_OUTPUT_OPTION));
     options.addOption(OptionBuilder.withArgName("num").hasArg()
         .withDescription("number of partitions").create(NUM_PARTITIONS_OPTION));
+    options.addOption(OptionBuilder.withArgName("num").hasArg()
+        .withDescription("drop links to pages that don't exist with a Bloom filter of titles, "
+            + "sized for num titles (e.g., 20000000 for the English Wikipedia, with lower case "
+            + "variants)").create(BLOOM_FILTER_OPTION));
+    options.addOption(OptionBuilder.withDescription("write the adjacency lists as a binary CSR "
+        + "graph instead of text").create(CSR_OPTION));
 
     CommandLine cmdline;
     CommandLineParser parser = new GnuParser();
@@ -239,19 +338,55 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
     }
 
 		int numPartitions = Integer.parseInt(cmdline.getOptionValue(NUM_PARTITIONS_OPTION));
+		long filterKeys = cmdline.hasOption(BLOOM_FILTER_OPTION) ?
+		    Long.parseLong(cmdline.getOptionValue(BLOOM_FILTER_OPTION)) : 0;
 
-		task1(cmdline.getOptionValue(INPUT_OPTION), cmdline.getOptionValue(EDGES_OUTPUT_OPTION), numPartitions);
-		task2(cmdline.getOptionValue(EDGES_OUTPUT_OPTION), cmdline.getOptionValue(ADJ_OUTPUT_OPTION), numPartitions);
+		task1(cmdline.getOptionValue(INPUT_OPTION), cmdline.getOptionValue(EDGES_OUTPUT_OPTION), numPartitions,
+		    filterKeys);
+		task2(cmdline.getOptionValue(EDGES_OUTPUT_OPTION), cmdline.getOptionValue(ADJ_OUTPUT_OPTION), numPartitions,
+		    cmdline.hasOption(CSR_OPTION));
 
 		return 0;
 	}
 
-	private void task1(String inputPath, String outputPath, int partitions) throws IOException {
+	private void task0(String inputPath, Path filterPath, long filterKeys) throws IOException {
+		LOG.info("Building Bloom filter of titles...");
+		LOG.info(" - input: " + inputPath);
+		LOG.info(" - output: " + filterPath);
+
+		JobConf conf = new JobConf(getConf(), BuildWikipediaLinkGraph.class);
+		conf.setJobName(String.format("BuildWikipediaLinkGraph:Titles[input: %s, output: %s]",
+		    inputPath, filterPath));
+
+		conf.setLong(BloomFilterJoin.EXPECTED_KEYS_PROPERTY, filterKeys);
+
+		SequenceFileInputFormat.addInputPath(conf, new Path(inputPath));
+		conf.setInputFormat(SequenceFileInputFormat.class);
+
+		conf.setMapOutputKeyClass(NullWritable.class);
+		conf.setMapOutputValueClass(BloomFilterWritable.class);
+		conf.setMapperClass(MyTitleMapper.class);
+
+		BloomFilterJoin.runJob(conf, filterPath);
+	}
+
+	private void task1(String inputPath, String outputPath, int partitions, long filterKeys)
+	    throws IOException {
+		Path filterPath = new Path(outputPath + ".titles");
+		if (filterKeys > 0) {
+			task0(inputPath, filterPath, filterKeys);
+		}
+
 		LOG.info("Exracting edges...");
 		LOG.info(" - input: " + inputPath);
 		LOG.info(" - output: " + outputPath);
 
 		JobConf conf = new JobConf(getConf(), BuildWikipediaLinkGraph.class);
+		if (filterKeys > 0) {
+			conf.set(BloomFilterJoin.PATH_PROPERTY, filterPath.toString());
+			BloomFilterJoin.addCacheFile(conf);
+		}
+
 		conf.setJobName(String.format("BuildWikipediaLinkGraph:Edges[input: %s, output: %s, num_partitions: %d]",
 		    inputPath, outputPath, partitions));
 
@@ -277,12 +412,18 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
 		FileSystem.get(conf).delete(new Path(outputPath), true);
 
 		JobClient.runJob(conf);
+
+		if (filterKeys > 0) {
+			FileSystem.get(conf).delete(filterPath, true);
+		}
 	}
 
-	private void task2(String inputPath, String outputPath, int partitions) throws IOException {
+	private void task2(String inputPath, String outputPath, int partitions, boolean csr)
+			throws IOException {
 		LOG.info("Building adjacency lists...");
 		LOG.info(" - input: " + inputPath);
 		LOG.info(" - output: " + outputPath);
+		LOG.info(" - format: " + (csr ? "CSR" : "text"));
 
 		JobConf conf = new JobConf(getConf(), BuildWikipediaLinkGraph.class);
 		conf.setJobName(String.format("BuildWikipediaLinkGraph:AdjacencyList[input: %s, output: %s, num_partitions: %d]",
@@ -294,16 +435,16 @@ public class BuildWikipediaLinkGraph extends Configured implements Tool {
 		TextOutputFormat.setOutputPath(conf, new Path(outputPath));
 
 		conf.setInputFormat(TextInputFormat.class);
-		conf.setOutputFormat(TextOutputFormat.class);
+		conf.setOutputFormat(csr ? CSRGraphOutputFormat.class : TextOutputFormat.class);
 
 		conf.setMapOutputKeyClass(IntWritable.class);
 		conf.setMapOutputValueClass(IntWritable.class);
 
 		conf.setOutputKeyClass(IntWritable.class);
-		conf.setOutputValueClass(Text.class);
+		conf.setOutputValueClass(csr ? ArrayListOfIntsWritable.class : Text.class);
 
 		conf.setMapperClass(MyMapper2.class);
-		conf.setReducerClass(MyReducer2.class);
+		conf.setReducerClass(csr ? MyReducer2CSR.class : MyReducer2.class);
 
 		// Delete the output directory if it exists already.
 		FileSystem.get(conf).delete(new Path(outputPath), true);
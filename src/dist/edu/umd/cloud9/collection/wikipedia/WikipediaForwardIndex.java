@@ -9,12 +9,14 @@ import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
-import org.apache.hadoop.io.SequenceFile;
 import org.apache.log4j.Logger;
 
 import com.google.common.base.Preconditions;
 
 import edu.umd.cloud9.collection.DocumentForwardIndex;
+import edu.umd.cloud9.io.SequenceFileBlock;
+import edu.umd.cloud9.io.SequenceFileBlockCache;
+import edu.umd.cloud9.io.SequenceFileBlockScanner;
 
 /**
  * Forward index for Wikipedia collections.
@@ -33,6 +35,7 @@ public class WikipediaForwardIndex implements DocumentForwardIndex<WikipediaPage
   private String collectionPath;
 
   private WikipediaDocnoMapping mDocnoMapping = new WikipediaDocnoMapping();
+  private SequenceFileBlockCache cache = SequenceFileBlockCache.getSharedInstance();
 
   public WikipediaForwardIndex() {
     conf = new Configuration();
@@ -42,6 +45,21 @@ public class WikipediaForwardIndex implements DocumentForwardIndex<WikipediaPage
     this.conf = Preconditions.checkNotNull(conf);
   }
 
+  /**
+   * Sets the cache of decompressed blocks used by this forward index. By default, the cache shared
+   * by all forward indexes in the JVM is used.
+   */
+  public void setBlockCache(SequenceFileBlockCache cache) {
+    this.cache = Preconditions.checkNotNull(cache);
+  }
+
+  /**
+   * Returns the cache of decompressed blocks used by this forward index.
+   */
+  public SequenceFileBlockCache getBlockCache() {
+    return cache;
+  }
+
   @Override
   public void loadIndex(Path index, Path mapping, FileSystem fs) throws IOException {
     this.fs = fs;
@@ -98,24 +116,22 @@ public class WikipediaForwardIndex implements DocumentForwardIndex<WikipediaPage
     LOG.info("fetching docno " + docno + ": seeking to " + offsets[idx] + " at " + file);
 
     try {
-
-      SequenceFile.Reader reader = new SequenceFile.Reader(fs, new Path(file), conf);
+      SequenceFileBlock block = cache.getBlock(new Path(file), offsets[idx], fs, conf);
 
       IntWritable key = new IntWritable();
-      WikipediaPage value = new WikipediaPage();
-
-      reader.seek(offsets[idx]);
-
-      while (reader.next(key)) {
-        if (key.get() == docno)
-          break;
+      for (int i = 0; i < block.getRecordCount(); i++) {
+        block.readKey(i, key);
+        if (key.get() == docno) {
+          WikipediaPage value = new WikipediaPage();
+          block.readValue(i, value);
+
+          long duration = System.currentTimeMillis() - start;
+          LOG.info(" docno " + docno + " fetched in " + duration + "ms");
+          return value;
+        }
       }
-      reader.getCurrentValue(value);
-      reader.close();
-      long duration = System.currentTimeMillis() - start;
 
-      LOG.info(" docno " + docno + " fetched in " + duration + "ms");
-      return value;
+      LOG.warn(" docno " + docno + " not found in block at " + offsets[idx] + " in " + file);
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -160,13 +176,15 @@ public class WikipediaForwardIndex implements DocumentForwardIndex<WikipediaPage
 
 
     try {
-      SequenceFile.Reader reader = new SequenceFile.Reader(fs, new Path(file), conf);
+      // Walk the remaining block headers; only the keys of the last block are decompressed.
+      SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(new Path(file), fs, conf);
       IntWritable key = new IntWritable();
 
-      reader.seek(offsets[idx]);
-
-      while (reader.next(key))
-        ;
+      scanner.seek(offsets[idx]);
+      while (scanner.next()) {
+        scanner.readLastKey(key);
+      }
+      scanner.close();
       mLastDocno = key.get();
     } catch (IOException e) {
       e.printStackTrace();
@@ -29,14 +29,14 @@ import java.util.regex.Pattern;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.hadoop.io.WritableUtils;
 
-import edu.umd.cloud9.collection.Indexable;
+import edu.umd.cloud9.collection.ByteBackedIndexable;
 
 /**
  * A page from Wikipedia.
  * 
  * @author Jimmy Lin
  */
-public class WikipediaPage extends Indexable {
+public class WikipediaPage extends ByteBackedIndexable {
 
   /**
    * Start delimiter of the page, which is &lt;<code>page</code>&gt;.
@@ -48,7 +48,18 @@ public class WikipediaPage extends Indexable {
    */
   public static final String XML_END_TAG = "</page>";
 
-  private String page;
+  private static final byte[] TITLE_START = utf8("<title>");
+  private static final byte[] TITLE_END = utf8("</title>");
+  private static final byte[] ID_START = utf8("<id>");
+  private static final byte[] ID_END = utf8("</id>");
+  private static final byte[] TEXT_START = utf8("<text xml:space=\"preserve\">");
+  private static final byte[] TEXT_END = utf8("</text>");
+  private static final byte[] DISAMBIG_LOWER = utf8("{{disambig");
+  private static final byte[] DISAMBIG_UPPER = utf8("{{Disambig");
+  private static final byte[] REDIRECT_UPPER = utf8("#REDIRECT");
+  private static final byte[] REDIRECT_LOWER = utf8("#redirect");
+  private static final byte[] STUB = utf8("stub}}");
+
   private String title;
   private String mId;
   private int textStart;
@@ -72,21 +83,18 @@ public class WikipediaPage extends Indexable {
   /**
    * Deserializes this object.
    */
+  @Override
   public void write(DataOutput out) throws IOException {
-    byte[] bytes = page.getBytes();
-    WritableUtils.writeVInt(out, bytes.length);
-    out.write(bytes, 0, bytes.length);
+    super.write(out);
     out.writeUTF(language);
   }
 
   /**
    * Serializes this object.
    */
+  @Override
   public void readFields(DataInput in) throws IOException {
-    int length = WritableUtils.readVInt(in);
-    byte[] bytes = new byte[length];
-    in.readFully(bytes, 0, length);
-    WikipediaPage.readPage(this, new String(bytes));
+    super.readFields(in);
     language = in.readUTF();
   }
 
@@ -168,7 +176,7 @@ public class WikipediaPage extends Indexable {
    * Returns the raw XML of this page.
    */
   public String getRawXML() {
-    return page;
+    return getRawContent();
   }
 
   /**
@@ -178,7 +186,7 @@ public class WikipediaPage extends Indexable {
     if (textStart == -1)
       return null;
 
-    return page.substring(textStart + 27, textEnd);
+    return decode(textStart + TEXT_START.length, textEnd);
   }
 
   /**
@@ -255,6 +263,7 @@ public class WikipediaPage extends Indexable {
    *         <code>null</code> otherwise
    */
   public String findInterlanguageLink(String lang) {
+    String page = getRawXML();
     int start = page.indexOf("[[" + lang + ":");
 
     if (start < 0)
@@ -286,6 +295,7 @@ public class WikipediaPage extends Indexable {
   public List<String> extractLinkDestinations() {
     int start = 0;
     List<String> links = new ArrayList<String>();
+    String page = getRawXML();
 
     while (true) {
       start = page.indexOf("[[", start);
@@ -345,25 +355,46 @@ public class WikipediaPage extends Indexable {
    *            raw XML string
    */
   public static void readPage(WikipediaPage page, String s) {
-    page.page = s;
+    page.set(s);
+  }
 
-    // parse out title
-    int start = s.indexOf("<title>");
-    int end = s.indexOf("</title>", start);
-    page.title = StringEscapeUtils.unescapeHtml(s.substring(start + 7, end));
+  /**
+   * Reads raw XML, as UTF-8 bytes, into a <code>WikipediaPage</code> object.
+   * 
+   * @param page
+   *            the <code>WikipediaPage</code> object
+   * @param bytes
+   *            raw XML
+   * @param offset
+   *            offset of the first byte
+   * @param length
+   *            number of bytes
+   */
+  public static void readPage(WikipediaPage page, byte[] bytes, int offset, int length) {
+    page.set(bytes, offset, length);
+  }
 
-    start = s.indexOf("<id>");
-    end = s.indexOf("</id>");
-    page.mId = s.substring(start + 4, end);
+  // Parses out the title, id, and bounds of the text, and classifies the page, by scanning the
+  // bytes: only the title and id are decoded.
+  @Override
+  protected void reset() {
+    int start = indexOf(TITLE_START, 0);
+    int end = indexOf(TITLE_END, start);
+    title = StringEscapeUtils.unescapeHtml(decode(start + TITLE_START.length, end));
 
-    // parse out actual text of article
-    page.textStart = s.indexOf("<text xml:space=\"preserve\">");
-    page.textEnd = s.indexOf("</text>", page.textStart);
+    start = indexOf(ID_START, 0);
+    end = indexOf(ID_END, 0);
+    mId = decode(start + ID_START.length, end);
 
-    page.isDisambig = s.indexOf("{{disambig", page.textStart) != -1 || s.indexOf("{{Disambig", page.textStart) != -1;
-    page.isRedirect = s.substring(page.textStart + 27, page.textStart + 36).compareTo("#REDIRECT") == 0 ||
-    s.substring(page.textStart + 27, page.textStart + 36).compareTo("#redirect") == 0;
-    page.isStub = s.indexOf("stub}}", page.textStart) != -1;
+    // parse out actual text of article
+    textStart = indexOf(TEXT_START, 0);
+    textEnd = indexOf(TEXT_END, textStart);
+
+    isDisambig = indexOf(DISAMBIG_LOWER, textStart) != -1
+        || indexOf(DISAMBIG_UPPER, textStart) != -1;
+    isRedirect = startsWith(REDIRECT_UPPER, textStart + TEXT_START.length)
+        || startsWith(REDIRECT_LOWER, textStart + TEXT_START.length);
+    isStub = indexOf(STUB, textStart) != -1;
   }
 
 }
@@ -70,7 +70,7 @@ public class WikipediaPageInputFormat extends IndexableFileInputFormatOld<LongWr
 			if (reader.next(offset, text) == false)
 				return false;
 			key.set(offset.get());
-			WikipediaPage.readPage(value, text.toString());
+			WikipediaPage.readPage(value, text.getBytes(), 0, text.getLength());
 			return true;
 		}
 
@@ -106,8 +106,7 @@ public class WikipediaPageInputFormat extends IndexableFileInputFormatOld<LongWr
 		 * Returns progress on how much input has been consumed.
 		 */
 		public float getProgress() throws IOException {
-			return ((float) (reader.getPos() - reader.getStart()))
-					/ ((float) (reader.getEnd() - reader.getStart()));
+			return reader.getProgress();
 		}
 	}
 }
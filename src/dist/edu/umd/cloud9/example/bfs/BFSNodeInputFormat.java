@@ -0,0 +1,54 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.example.bfs;
+
+import org.apache.hadoop.conf.Configuration;
+
+import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
+import edu.umd.cloud9.mapreduce.lib.input.CSRGraphInputFormat;
+
+/**
+ * Input format reading a {@link CSRGraph} as {@link BFSNode}s, the same records as
+ * {@link EncodeBFSGraph} writes, so that the first iteration of breadth-first search runs directly
+ * on the graph. The source node is taken from the property {@link #SOURCE_PROPERTY}.
+ */
+public class BFSNodeInputFormat extends CSRGraphInputFormat<BFSNode> {
+	/**
+	 * Property holding the id of the source node.
+	 */
+	public static final String SOURCE_PROPERTY = "Cloud9.BFS.Source";
+
+	private int src;
+
+	@Override
+	protected BFSNode createValue(Configuration conf) {
+		src = conf.getInt(SOURCE_PROPERTY, 0);
+
+		BFSNode node = new BFSNode();
+		node.setType(BFSNode.Type.Complete);
+		return node;
+	}
+
+	@Override
+	protected void setValue(BFSNode value, int node, ArrayListOfIntsWritable neighbors) {
+		value.setNodeId(node);
+		value.setDistance(node == src ? 0 : Integer.MAX_VALUE);
+		value.setAdjacencyList(neighbors);
+	}
+}
@@ -42,10 +42,13 @@ import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.util.TextTokenizer;
 
 /**
  * Tool for taking a plain-text encoding of a directed graph and building
  * corresponding Hadoop structures for running parallel breadth-first search.
+ * A graph in binary CSR format needs no conversion: {@link IterateBFS} reads
+ * it directly with {@link BFSNodeInputFormat}.
  *
  * @author Jimmy Lin
  */
@@ -59,6 +62,8 @@ public class EncodeBFSGraph extends Configured implements Tool {
 	private static class MyMapper extends Mapper<LongWritable, Text, IntWritable, BFSNode> {
 		private static final IntWritable nid = new IntWritable();
 		private static final BFSNode node = new BFSNode();
+		private static final ArrayListOfIntsWritable neighbors = new ArrayListOfIntsWritable();
+		private static final TextTokenizer tokenizer = new TextTokenizer();
 		private static int src;
 
 		@Override
@@ -70,25 +75,23 @@ public class EncodeBFSGraph extends Configured implements Tool {
 		@Override
 		public void map(LongWritable key, Text t, Context context)
 		    throws IOException,	InterruptedException {
-			String[] arr = t.toString().trim().split("\\s+");
+			// Parse the node id and its neighbors straight from the bytes of the line.
+			tokenizer.reset(t);
+			tokenizer.next();
+			int cur = tokenizer.getInt();
+
+			neighbors.clear();
+			while (tokenizer.next()) {
+				neighbors.add(tokenizer.getInt());
+			}
 
-			int cur = Integer.parseInt(arr[0]);
 			nid.set(cur);
 			node.setNodeId(cur);
 			node.setDistance(cur == src ? 0 : Integer.MAX_VALUE);
-
-			if (arr.length == 1) {
-				node.setAdjacencyList(new ArrayListOfIntsWritable());
-			} else {
-				int[] neighbors = new int[arr.length - 1];
-				for (int i = 1; i < arr.length; i++) {
-					neighbors[i - 1] = Integer.parseInt(arr[i]);
-				}
-				node.setAdjacencyList(new ArrayListOfIntsWritable(neighbors));
-			}
+			node.setAdjacencyList(neighbors);
 
 			context.getCounter(Graph.Nodes).increment(1);
-			context.getCounter(Graph.Edges).increment(arr.length - 1);
+			context.getCounter(Graph.Edges).increment(neighbors.size());
 
 			context.write(nid, node);
 		}
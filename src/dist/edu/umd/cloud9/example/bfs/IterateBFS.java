@@ -42,12 +42,15 @@ import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
 import edu.umd.cloud9.util.array.ArrayListOfInts;
 import edu.umd.cloud9.util.map.HMapII;
 import edu.umd.cloud9.util.map.MapII;
 
 /**
- * Tool for running one iteration of parallel breadth-first search.
+ * Tool for running one iteration of parallel breadth-first search. The input of the first iteration
+ * is either the output of {@link EncodeBFSGraph} or a {@link CSRGraph}, read with
+ * {@link BFSNodeInputFormat} from the source node given with <code>-src</code>.
  *
  * @author Jimmy Lin
  */
@@ -184,6 +187,7 @@ public class IterateBFS extends Configured implements Tool {
   private static final String INPUT_OPTION = "input";
   private static final String OUTPUT_OPTION = "output";
   private static final String NUM_PARTITIONS_OPTION = "num_partitions";
+  private static final String SRC_OPTION = "src";
 
   @SuppressWarnings("static-access") @Override
   public int run(String[] args) throws Exception {
@@ -194,6 +198,8 @@ public class IterateBFS extends Configured implements Tool {
         .withDescription("output path").create(OUTPUT_OPTION));
     options.addOption(OptionBuilder.withArgName("num").hasArg()
         .withDescription("number of partitions").create(NUM_PARTITIONS_OPTION));
+    options.addOption(OptionBuilder.withArgName("node").hasArg()
+        .withDescription("source node, if the input is a CSR graph").create(SRC_OPTION));
 
     CommandLine cmdline;
     CommandLineParser parser = new GnuParser();
@@ -216,10 +222,22 @@ public class IterateBFS extends Configured implements Tool {
     String outputPath = cmdline.getOptionValue(OUTPUT_OPTION);
     int n = Integer.parseInt(cmdline.getOptionValue(NUM_PARTITIONS_OPTION));
 
+    // The first iteration may start directly from a graph in CSR format, given the source node.
+    boolean csr = CSRGraph.isGraph(new Path(inputPath), FileSystem.get(getConf()));
+    if (csr && !cmdline.hasOption(SRC_OPTION)) {
+      System.err.println("Input is a CSR graph: -" + SRC_OPTION + " is required");
+      return -1;
+    }
+
     LOG.info("Tool name: " + this.getClass().getName());
 		LOG.info(" - inputDir: " + inputPath);
 		LOG.info(" - outputDir: " + outputPath);
 		LOG.info(" - numPartitions: " + n);
+		if (csr) {
+			LOG.info(" - src: " + cmdline.getOptionValue(SRC_OPTION));
+			getConf().setInt(BFSNodeInputFormat.SOURCE_PROPERTY,
+			    Integer.parseInt(cmdline.getOptionValue(SRC_OPTION)));
+		}
 
 		getConf().set("mapred.child.java.opts", "-Xmx2048m");
 
@@ -232,7 +250,7 @@ public class IterateBFS extends Configured implements Tool {
 		FileInputFormat.addInputPath(job, new Path(inputPath));
 		FileOutputFormat.setOutputPath(job, new Path(outputPath));
 
-		job.setInputFormatClass(SequenceFileInputFormat.class);
+		job.setInputFormatClass(csr ? BFSNodeInputFormat.class : SequenceFileInputFormat.class);
 		job.setOutputFormatClass(SequenceFileOutputFormat.class);
 
 		job.setMapOutputKeyClass(IntWritable.class);
@@ -26,6 +26,10 @@ import org.apache.hadoop.io.Text;
 
 import edu.umd.cloud9.io.SequenceFileUtils;
 import edu.umd.cloud9.io.pair.PairOfWritables;
+import edu.umd.cloud9.util.SortableEntries.Order;
+import edu.umd.cloud9.util.cfd.Object2IntConditionalFrequencyDistributionPacked;
+import edu.umd.cloud9.util.fd.Object2IntFrequencyDistribution;
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
 
 public class AnalyzeBigramCount {
 	public static void main(String[] args) {
@@ -73,5 +77,25 @@ public class AnalyzeBigramCount {
 				break;
 			}
 		}
+
+		// counts of the second word of each bigram given the first, in a single packed table
+		Object2IntConditionalFrequencyDistributionPacked<String> following =
+				new Object2IntConditionalFrequencyDistributionPacked<String>(bigrams.size());
+		for (PairOfWritables<Text, IntWritable> bigram : bigrams) {
+			String[] words = bigram.getLeftElement().toString().split(" ", 2);
+			if (words.length == 2) {
+				following.increment(words[1], words[0], bigram.getRightElement().get());
+			}
+		}
+		following.freeze();
+
+		for (String word : new String[] { "light", "contain" }) {
+			System.out.println("\nten most frequent words following \"" + word + "\": ");
+
+			Object2IntFrequencyDistribution<String> fd = following.getConditionalDistribution(word);
+			for (PairOfObjectInt<String> e : fd.getEntries(Order.ByRightElementDescending, 10)) {
+				System.out.println(word + " " + e.getLeftElement() + "\t" + e.getRightElement());
+			}
+		}
 	}
 }
@@ -18,7 +18,6 @@ package edu.umd.cloud9.example.bigram;
 
 import java.io.IOException;
 import java.util.Iterator;
-import java.util.StringTokenizer;
 
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.FileSystem;
@@ -36,6 +35,8 @@ import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
+import edu.umd.cloud9.util.TextTokenizer;
+
 public class BigramCount extends Configured implements Tool {
 	private static final Logger LOG = Logger.getLogger(BigramCount.class);
 
@@ -45,22 +46,26 @@ public class BigramCount extends Configured implements Tool {
 		// Reuse objects to save overhead of object creation.
 		private static final IntWritable one = new IntWritable(1);
 		private static final Text bigram = new Text();
+		private static final byte[] SPACE = { ' ' };
+		private static final TextTokenizer tokenizer = new TextTokenizer();
 
 		@Override
 		public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
-			String line = value.toString();
-
-			String prev = null;
-			StringTokenizer itr = new StringTokenizer(line);
-			while (itr.hasMoreTokens()) {
-				String cur = itr.nextToken();
-
+			// Tokens are offsets into the bytes of the line, so bigrams are built without decoding it.
+			byte[] bytes = value.getBytes();
+			int prevOffset = -1;
+			int prevLength = 0;
+			tokenizer.reset(value);
+			while (tokenizer.next()) {
 				// Emit only if we have an actual bigram.
-				if (prev != null) {
-					bigram.set(prev + " " + cur);
+				if (prevOffset != -1) {
+					bigram.set(bytes, prevOffset, prevLength);
+					bigram.append(SPACE, 0, 1);
+					bigram.append(bytes, tokenizer.getOffset(), tokenizer.getLength());
 					context.write(bigram, one);
 				}
-				prev = cur;
+				prevOffset = tokenizer.getOffset();
+				prevLength = tokenizer.getLength();
 			}
 		}
 	}
@@ -18,7 +18,6 @@ package edu.umd.cloud9.example.bigram;
 
 import java.io.IOException;
 import java.util.Iterator;
-import java.util.StringTokenizer;
 
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.FileSystem;
@@ -38,6 +37,7 @@ import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.pair.PairOfStrings;
+import edu.umd.cloud9.util.TextTokenizer;
 
 public class BigramRelativeFrequency extends Configured implements Tool {
 	private static final Logger LOG = Logger.getLogger(BigramRelativeFrequency.class);
@@ -47,15 +47,14 @@ public class BigramRelativeFrequency extends Configured implements Tool {
 		// Reuse objects to save overhead of object creation.
 		private static final FloatWritable one = new FloatWritable(1);
 		private static final PairOfStrings bigram = new PairOfStrings();
+		private static final TextTokenizer tokenizer = new TextTokenizer();
 
 		@Override
 		public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
-			String line = value.toString();
-
 			String prev = null;
-			StringTokenizer itr = new StringTokenizer(line);
-			while (itr.hasMoreTokens()) {
-				String cur = itr.nextToken();
+			tokenizer.reset(value);
+			while (tokenizer.next()) {
+				String cur = tokenizer.getString();
 
 				// Emit only if we have an actual bigram.
 				if (prev != null) {
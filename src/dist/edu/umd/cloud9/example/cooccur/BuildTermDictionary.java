@@ -0,0 +1,241 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.example.cooccur;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+import edu.umd.cloud9.util.TextTokenizer;
+import edu.umd.cloud9.util.combine.InMapperCombinerKI;
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
+
+/**
+ * <p>
+ * Builds a {@link TermDictionary} from a large text collection: counts the terms with a MapReduce
+ * job, then assigns ids to the terms that occur at least a minimum number of times, in decreasing
+ * order of count (ties broken by term). The counts are written to
+ * <code>[dictionary-path].counts</code>, which is deleted once the dictionary is written.
+ * </p>
+ *
+ * <p>
+ * This program takes the following command-line arguments:
+ * </p>
+ *
+ * <ul>
+ * <li>[input-path]</li>
+ * <li>[dictionary-path]</li>
+ * <li>[min-count]: terms that occur fewer times are left out of the dictionary</li>
+ * <li>[num-reducers]</li>
+ * </ul>
+ *
+ * @see ComputeCooccurrenceMatrixStripes
+ */
+public class BuildTermDictionary extends Configured implements Tool {
+	private static final Logger sLogger = Logger.getLogger(BuildTermDictionary.class);
+
+	private static class MyMapper extends Mapper<LongWritable, Text, Text, IntWritable> {
+
+		// estimate of the bytes taken by a term
+		private static final int BYTES_PER_TERM = 64;
+
+		private final TextTokenizer tokenizer = new TextTokenizer();
+		private InMapperCombinerKI<String> combiner;
+
+		@Override
+		public void setup(final Context context) {
+			final Text term = new Text();
+			final IntWritable count = new IntWritable();
+
+			combiner = new InMapperCombinerKI<String>(context.getConfiguration(), BYTES_PER_TERM) {
+				@Override
+				protected void emit(String key, int value) throws IOException,
+						InterruptedException {
+					term.set(key);
+					count.set(value);
+					context.write(term, count);
+				}
+			};
+		}
+
+		@Override
+		public void map(LongWritable key, Text line, Context context) throws IOException,
+				InterruptedException {
+			tokenizer.reset(line);
+			while (tokenizer.next()) {
+				combiner.add(tokenizer.getString(), 1);
+			}
+		}
+
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			combiner.flush();
+			combiner.incrementCounters(context);
+		}
+	}
+
+	private static class MyReducer extends Reducer<Text, IntWritable, Text, IntWritable> {
+
+		private final IntWritable count = new IntWritable();
+
+		@Override
+		public void reduce(Text key, Iterable<IntWritable> values, Context context)
+				throws IOException, InterruptedException {
+			int sum = 0;
+			for (IntWritable value : values) {
+				sum += value.get();
+			}
+			count.set(sum);
+			context.write(key, count);
+		}
+	}
+
+	/**
+	 * Creates an instance of this tool.
+	 */
+	public BuildTermDictionary() {
+	}
+
+	private static int printUsage() {
+		System.out.println("usage: [input-path] [dictionary-path] [min-count] [num-reducers]");
+		ToolRunner.printGenericCommandUsage(System.out);
+		return -1;
+	}
+
+	/**
+	 * Runs this tool.
+	 */
+	public int run(String[] args) throws Exception {
+		if (args.length != 4) {
+			printUsage();
+			return -1;
+		}
+
+		String inputPath = args[0];
+		Path dictionaryPath = new Path(args[1]);
+		int minCount = Integer.parseInt(args[2]);
+		int reduceTasks = Integer.parseInt(args[3]);
+		Path countsPath = dictionaryPath.suffix(".counts");
+
+		sLogger.info("Tool: BuildTermDictionary");
+		sLogger.info(" - input path: " + inputPath);
+		sLogger.info(" - dictionary path: " + dictionaryPath);
+		sLogger.info(" - min count: " + minCount);
+		sLogger.info(" - number of reducers: " + reduceTasks);
+
+		Job job = new Job(getConf(), "BuildTermDictionary");
+
+		FileSystem fs = FileSystem.get(getConf());
+		fs.delete(countsPath, true);
+
+		job.setJarByClass(BuildTermDictionary.class);
+		job.setNumReduceTasks(reduceTasks);
+
+		FileInputFormat.setInputPaths(job, new Path(inputPath));
+		FileOutputFormat.setOutputPath(job, countsPath);
+
+		job.setOutputFormatClass(SequenceFileOutputFormat.class);
+		job.setOutputKeyClass(Text.class);
+		job.setOutputValueClass(IntWritable.class);
+
+		job.setMapperClass(MyMapper.class);
+		job.setCombinerClass(MyReducer.class);
+		job.setReducerClass(MyReducer.class);
+
+		long startTime = System.currentTimeMillis();
+		if (!job.waitForCompletion(true)) {
+			return -1;
+		}
+
+		List<String> terms = readTerms(countsPath, minCount, fs);
+		TermDictionary.write(terms, dictionaryPath, fs);
+		fs.delete(countsPath, true);
+
+		sLogger.info(terms.size() + " terms in dictionary");
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0
+				+ " seconds");
+
+		return 0;
+	}
+
+	// Reads the term counts, and returns the terms occurring at least minCount times, in order of
+	// id.
+	private static List<String> readTerms(Path countsPath, int minCount, FileSystem fs)
+			throws IOException {
+		List<PairOfObjectInt<String>> counts = new ArrayList<PairOfObjectInt<String>>();
+
+		Text term = new Text();
+		IntWritable count = new IntWritable();
+		for (FileStatus status : fs.listStatus(countsPath)) {
+			if (!status.getPath().getName().startsWith("part-"))
+				continue;
+
+			SequenceFile.Reader reader = new SequenceFile.Reader(fs, status.getPath(),
+					fs.getConf());
+			while (reader.next(term, count)) {
+				if (count.get() >= minCount) {
+					counts.add(new PairOfObjectInt<String>(term.toString(), count.get()));
+				}
+			}
+			reader.close();
+		}
+
+		Collections.sort(counts, new Comparator<PairOfObjectInt<String>>() {
+			public int compare(PairOfObjectInt<String> p1, PairOfObjectInt<String> p2) {
+				if (p1.getRightElement() != p2.getRightElement()) {
+					return p1.getRightElement() > p2.getRightElement() ? -1 : 1;
+				}
+				return p1.getLeftElement().compareTo(p2.getLeftElement());
+			}
+		});
+
+		List<String> terms = new ArrayList<String>(counts.size());
+		for (PairOfObjectInt<String> p : counts) {
+			terms.add(p.getLeftElement());
+		}
+		return terms;
+	}
+
+	/**
+	 * Dispatches command-line arguments to the tool via the
+	 * <code>ToolRunner</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		int res = ToolRunner.run(new BuildTermDictionary(), args);
+		System.exit(res);
+	}
+}
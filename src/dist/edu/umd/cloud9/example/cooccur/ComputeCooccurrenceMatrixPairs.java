@@ -17,7 +17,9 @@
 package edu.umd.cloud9.example.cooccur;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.FileSystem;
@@ -35,6 +37,7 @@ import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.pair.PairOfStrings;
+import edu.umd.cloud9.util.TextTokenizer;
 
 /**
  * <p>
@@ -71,6 +74,8 @@ public class ComputeCooccurrenceMatrixPairs extends Configured implements Tool {
 		private final PairOfStrings pair = new PairOfStrings();
 		private final IntWritable one = new IntWritable(1);
 		private int window = 2;
+		private final TextTokenizer tokenizer = new TextTokenizer();
+		private final List<String> terms = new ArrayList<String>();
 
 		@Override
 		public void setup(Context context) {
@@ -80,29 +85,23 @@ public class ComputeCooccurrenceMatrixPairs extends Configured implements Tool {
 		@Override
 		public void map(LongWritable key, Text line, Context context) throws IOException,
 				InterruptedException {
-			String text = line.toString();
-
-			String[] terms = text.split("\\s+");
-
-			for (int i = 0; i < terms.length; i++) {
-				String term = terms[i];
+			terms.clear();
+			tokenizer.reset(line);
+			while (tokenizer.next()) {
+				terms.add(tokenizer.getString());
+			}
 
-				// skip empty tokens
-				if (term.length() == 0)
-					continue;
+			for (int i = 0; i < terms.size(); i++) {
+				String term = terms.get(i);
 
 				for (int j = i - window; j < i + window + 1; j++) {
 					if (j == i || j < 0)
 						continue;
 
-					if (j >= terms.length)
+					if (j >= terms.size())
 						break;
 
-					// skip empty tokens
-					if (terms[j].length() == 0)
-						continue;
-
-					pair.set(term, terms[j]);
+					pair.set(term, terms.get(j));
 					context.write(pair, one);
 				}
 			}
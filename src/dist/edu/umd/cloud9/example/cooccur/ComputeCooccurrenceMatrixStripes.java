@@ -17,23 +17,42 @@
 package edu.umd.cloud9.example.cooccur;
 
 import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.filecache.DistributedCache;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
+import edu.umd.cloud9.io.map.HMapIIVIntW;
 import edu.umd.cloud9.io.map.String2IntOpenHashMapWritable;
+import edu.umd.cloud9.io.pair.PairOfStrings;
+import edu.umd.cloud9.util.TextTokenizer;
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+import edu.umd.cloud9.util.combine.InMapperCombiner;
+import edu.umd.cloud9.util.combine.InMapperCombinerKI;
+import edu.umd.cloud9.util.map.HMapIV;
+import edu.umd.cloud9.util.map.MapII;
+import edu.umd.cloud9.util.map.MapIV;
 
 /**
  * <p>
@@ -50,6 +69,23 @@ import edu.umd.cloud9.io.map.String2IntOpenHashMapWritable;
  * Language Processing (EMNLP 2008)</i>, pages 419-428.</blockquote>
  * 
  * <p>
+ * The mapper combines the co-occurrence counts of all the lines of a split before emitting the
+ * stripes, within a memory budget: see {@link InMapperCombiner} for how to set it.
+ * </p>
+ * 
+ * <p>
+ * Given a dictionary path, the stripes are computed over term ids rather than strings: a
+ * {@link TermDictionary} is built with {@link BuildTermDictionary} (unless it already exists),
+ * and shipped to the tasks through the distributed cache; the stripes of ids, which are much
+ * smaller on the wire than the stripes of strings, are written to
+ * <code>[output-path]-ids</code> as <code>IntWritable</code> keys and {@link HMapIIVIntW} values,
+ * and then converted back to the stripes of strings that are written to
+ * <code>[output-path]</code> otherwise. Terms that occur fewer than [min-count] times are left
+ * out of the dictionary, and therefore out of the stripes (they still count towards the
+ * window).
+ * </p>
+ * 
+ * <p>
  * This program takes the following command-line arguments:
  * </p>
  * 
@@ -58,6 +94,8 @@ import edu.umd.cloud9.io.map.String2IntOpenHashMapWritable;
  * <li>[output-path]</li>
  * <li>[window]</li>
  * <li>[num-reducers]</li>
+ * <li>[dictionary-path] (optional)</li>
+ * <li>[min-count] (optional, with [dictionary-path])</li>
  * </ul>
  * 
  * @author Jimmy Lin
@@ -68,53 +106,76 @@ public class ComputeCooccurrenceMatrixStripes extends Configured implements Tool
 	private static class MyMapper extends
 			Mapper<LongWritable, Text, Text, String2IntOpenHashMapWritable> {
 
+		// estimate of the bytes taken by a pair of terms, with the two strings
+		private static final int BYTES_PER_PAIR = 128;
+
 		private int window = 2;
-		private String2IntOpenHashMapWritable map = new String2IntOpenHashMapWritable();
+		private final TextTokenizer tokenizer = new TextTokenizer();
+		private final List<String> terms = new ArrayList<String>();
+
+		// co-occurrence counts buffered across lines, within a memory budget, and the stripes
+		// assembled from the counts emitted by a flush
+		private InMapperCombinerKI<PairOfStrings> combiner;
+		private final Map<String, String2IntOpenHashMapWritable> stripes =
+				new HashMap<String, String2IntOpenHashMapWritable>();
 		private Text textKey = new Text();
 
 		@Override
-		public void setup(Context context) {
+		public void setup(final Context context) {
 			window = context.getConfiguration().getInt("window", 2);
+
+			combiner = new InMapperCombinerKI<PairOfStrings>(context.getConfiguration(),
+					BYTES_PER_PAIR) {
+				@Override
+				protected void emit(PairOfStrings pair, int count) {
+					String2IntOpenHashMapWritable map = stripes.get(pair.getLeftElement());
+					if (map == null) {
+						map = new String2IntOpenHashMapWritable();
+						stripes.put(pair.getLeftElement(), map);
+					}
+					map.put(pair.getRightElement(), count);
+				}
+
+				@Override
+				protected void flushed() throws IOException, InterruptedException {
+					for (Map.Entry<String, String2IntOpenHashMapWritable> e : stripes.entrySet()) {
+						textKey.set(e.getKey());
+						context.write(textKey, e.getValue());
+					}
+					stripes.clear();
+				}
+			};
 		}
 
 		@Override
 		public void map(LongWritable key, Text line, Context context) throws IOException,
 				InterruptedException {
-			String text = line.toString();
-
-			String[] terms = text.split("\\s+");
-
-			for (int i = 0; i < terms.length; i++) {
-				String term = terms[i];
-
-				// skip empty tokens
-				if (term.length() == 0)
-					continue;
+			terms.clear();
+			tokenizer.reset(line);
+			while (tokenizer.next()) {
+				terms.add(tokenizer.getString());
+			}
 
-				map.clear();
+			for (int i = 0; i < terms.size(); i++) {
+				String term = terms.get(i);
 
 				for (int j = i - window; j < i + window + 1; j++) {
 					if (j == i || j < 0)
 						continue;
 
-					if (j >= terms.length)
+					if (j >= terms.size())
 						break;
 
-					// skip empty tokens
-					if (terms[j].length() == 0)
-						continue;
-
-					if (map.containsKey(terms[j])) {
-						map.increment(terms[j]);
-					} else {
-						map.put(terms[j], 1);
-					}
+					combiner.add(new PairOfStrings(term, terms.get(j)), 1);
 				}
-
-				textKey.set(term);
-				context.write(textKey, map);
 			}
 		}
+
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			combiner.flush();
+			combiner.incrementCounters(context);
+		}
 	}
 
 	private static class MyReducer extends
@@ -136,6 +197,171 @@ public class ComputeCooccurrenceMatrixStripes extends Configured implements Tool
 		}
 	}
 
+	// key of the in-mapper combiner of MyIdMapper: a pair of term ids, packed into a long
+	private static final class IdPair implements Comparable<IdPair> {
+		private final long pair;
+
+		public IdPair(int row, int col) {
+			pair = ((long) row << 32) | (col & 0xffffffffL);
+		}
+
+		public int getRow() {
+			return (int) (pair >>> 32);
+		}
+
+		public int getCol() {
+			return (int) pair;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IdPair && ((IdPair) obj).pair == pair;
+		}
+
+		@Override
+		public int hashCode() {
+			// the high bits of the product mix both ids
+			return (int) ((pair * 0x9E3779B97F4A7C15L) >>> 32);
+		}
+
+		public int compareTo(IdPair that) {
+			return pair < that.pair ? -1 : (pair == that.pair ? 0 : 1);
+		}
+	}
+
+	private static class MyIdMapper extends Mapper<LongWritable, Text, IntWritable, HMapIIVIntW> {
+
+		// estimate of the bytes taken by a pair of ids
+		private static final int BYTES_PER_PAIR = 24;
+
+		private int window = 2;
+		private TermDictionary dictionary;
+		private final TextTokenizer tokenizer = new TextTokenizer();
+		private final ArrayListOfInts ids = new ArrayListOfInts();
+
+		// co-occurrence counts buffered across lines, within a memory budget, and the stripes
+		// assembled from the counts emitted by a flush
+		private InMapperCombinerKI<IdPair> combiner;
+		private final HMapIV<HMapIIVIntW> stripes = new HMapIV<HMapIIVIntW>();
+		private final IntWritable row = new IntWritable();
+
+		@Override
+		public void setup(final Context context) throws IOException {
+			window = context.getConfiguration().getInt("window", 2);
+			dictionary = loadDictionary(context.getConfiguration());
+
+			combiner = new InMapperCombinerKI<IdPair>(context.getConfiguration(), BYTES_PER_PAIR) {
+				@Override
+				protected void emit(IdPair pair, int count) {
+					HMapIIVIntW map = stripes.get(pair.getRow());
+					if (map == null) {
+						map = new HMapIIVIntW();
+						stripes.put(pair.getRow(), map);
+					}
+					map.put(pair.getCol(), count);
+				}
+
+				@Override
+				protected void flushed() throws IOException, InterruptedException {
+					for (MapIV.Entry<HMapIIVIntW> e : stripes.entrySet()) {
+						row.set(e.getKey());
+						context.write(row, e.getValue());
+					}
+					stripes.clear();
+				}
+			};
+		}
+
+		@Override
+		public void map(LongWritable key, Text line, Context context) throws IOException,
+				InterruptedException {
+			// terms left out of the dictionary get -1, so that they still count towards the window
+			ids.clear();
+			tokenizer.reset(line);
+			while (tokenizer.next()) {
+				ids.add(dictionary.getId(tokenizer.getString()));
+			}
+
+			for (int i = 0; i < ids.size(); i++) {
+				if (ids.get(i) < 0)
+					continue;
+
+				for (int j = i - window; j < i + window + 1; j++) {
+					if (j == i || j < 0)
+						continue;
+
+					if (j >= ids.size())
+						break;
+
+					if (ids.get(j) >= 0) {
+						combiner.add(new IdPair(ids.get(i), ids.get(j)), 1);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			combiner.flush();
+			combiner.incrementCounters(context);
+		}
+	}
+
+	private static class MyIdReducer extends
+			Reducer<IntWritable, HMapIIVIntW, IntWritable, HMapIIVIntW> {
+
+		private final HMapIIVIntW map = new HMapIIVIntW();
+
+		@Override
+		public void reduce(IntWritable key, Iterable<HMapIIVIntW> values, Context context)
+				throws IOException, InterruptedException {
+			map.clear();
+			for (HMapIIVIntW value : values) {
+				map.lazyplus(value);
+			}
+
+			context.write(key, map);
+		}
+	}
+
+	// converts the stripes of ids back to stripes of strings
+	private static class ConvertMapper extends
+			Mapper<IntWritable, HMapIIVIntW, Text, String2IntOpenHashMapWritable> {
+
+		private TermDictionary dictionary;
+		private final String2IntOpenHashMapWritable map = new String2IntOpenHashMapWritable();
+		private final Text textKey = new Text();
+
+		@Override
+		public void setup(Context context) throws IOException {
+			dictionary = loadDictionary(context.getConfiguration());
+		}
+
+		@Override
+		public void map(IntWritable key, HMapIIVIntW value, Context context) throws IOException,
+				InterruptedException {
+			map.clear();
+			for (MapII.Entry e : value.entrySet()) {
+				map.put(dictionary.getTerm(e.getKey()), e.getValue());
+			}
+
+			textKey.set(dictionary.getTerm(key.get()));
+			context.write(textKey, map);
+		}
+	}
+
+	// Loads the dictionary from the distributed cache, or from its path if the cache is not
+	// available (e.g., when running locally).
+	private static TermDictionary loadDictionary(Configuration conf) throws IOException {
+		Path[] localFiles = DistributedCache.getLocalCacheFiles(conf);
+		if (localFiles != null && localFiles.length > 0) {
+			return TermDictionary.load(localFiles[0], FileSystem.getLocal(conf));
+		}
+
+		Path path = new Path(conf.get("TermDictionaryPath"));
+		return TermDictionary.load(path, path.getFileSystem(conf));
+	}
+
 	/**
 	 * Creates an instance of this tool.
 	 */
@@ -143,8 +369,8 @@ public class ComputeCooccurrenceMatrixStripes extends Configured implements Tool
 	}
 
 	private static int printUsage() {
-		System.out
-				.println("usage: [input-path] [output-path] [window] [num-reducers]");
+		System.out.println("usage: [input-path] [output-path] [window] [num-reducers] "
+				+ "[[dictionary-path] [min-count]]");
 		ToolRunner.printGenericCommandUsage(System.out);
 		return -1;
 	}
@@ -153,7 +379,7 @@ public class ComputeCooccurrenceMatrixStripes extends Configured implements Tool
 	 * Runs this tool.
 	 */
 	public int run(String[] args) throws Exception {
-		if (args.length != 4) {
+		if (args.length != 4 && args.length != 6) {
 			printUsage();
 			return -1;
 		}
@@ -170,6 +396,11 @@ public class ComputeCooccurrenceMatrixStripes extends Configured implements Tool
 		sLogger.info(" - window: " + window);
 		sLogger.info(" - number of reducers: " + reduceTasks);
 
+		if (args.length == 6) {
+			return runWithDictionary(inputPath, outputPath, window, reduceTasks, args[4],
+					Integer.parseInt(args[5]));
+		}
+
 		Job job = new Job(getConf(), "CooccurrenceMatrixStripes");
 
 		// Delete the output directory if it exists already
@@ -198,6 +429,81 @@ public class ComputeCooccurrenceMatrixStripes extends Configured implements Tool
 		return 0;
 	}
 
+	// Computes the stripes over term ids, and converts them back to strings.
+	private int runWithDictionary(String inputPath, String outputPath, int window,
+			int reduceTasks, String dictionaryPath, int minCount) throws Exception {
+		sLogger.info(" - dictionary path: " + dictionaryPath);
+		sLogger.info(" - min count: " + minCount);
+
+		FileSystem fs = FileSystem.get(getConf());
+		Path dictionary = fs.makeQualified(new Path(dictionaryPath));
+		if (!fs.exists(dictionary)) {
+			int res = ToolRunner.run(getConf(), new BuildTermDictionary(), new String[] {
+					inputPath, dictionaryPath, Integer.toString(minCount),
+					Integer.toString(reduceTasks) });
+			if (res != 0) {
+				return res;
+			}
+		} else {
+			sLogger.info("using existing dictionary " + dictionary);
+		}
+
+		String idsPath = outputPath + "-ids";
+		fs.delete(new Path(idsPath), true);
+		fs.delete(new Path(outputPath), true);
+
+		long startTime = System.currentTimeMillis();
+
+		Job job = new Job(getConf(), "CooccurrenceMatrixStripes:ids");
+		job.getConfiguration().setInt("window", window);
+		job.getConfiguration().set("TermDictionaryPath", dictionary.toString());
+		DistributedCache.addCacheFile(dictionary.toUri(), job.getConfiguration());
+		// the combiner and reducer add the values from their arrays of keys and values, without
+		// filling their maps
+		job.getConfiguration().setBoolean(HMapIIVIntW.LAZY_DECODE_PROPERTY, true);
+
+		job.setJarByClass(ComputeCooccurrenceMatrixStripes.class);
+		job.setNumReduceTasks(reduceTasks);
+
+		FileInputFormat.setInputPaths(job, new Path(inputPath));
+		FileOutputFormat.setOutputPath(job, new Path(idsPath));
+
+		job.setOutputFormatClass(SequenceFileOutputFormat.class);
+		job.setOutputKeyClass(IntWritable.class);
+		job.setOutputValueClass(HMapIIVIntW.class);
+
+		job.setMapperClass(MyIdMapper.class);
+		job.setCombinerClass(MyIdReducer.class);
+		job.setReducerClass(MyIdReducer.class);
+
+		if (!job.waitForCompletion(true)) {
+			return -1;
+		}
+
+		job = new Job(getConf(), "CooccurrenceMatrixStripes:convert");
+		job.getConfiguration().set("TermDictionaryPath", dictionary.toString());
+		DistributedCache.addCacheFile(dictionary.toUri(), job.getConfiguration());
+
+		job.setJarByClass(ComputeCooccurrenceMatrixStripes.class);
+		job.setNumReduceTasks(0);
+
+		FileInputFormat.setInputPaths(job, new Path(idsPath));
+		FileOutputFormat.setOutputPath(job, new Path(outputPath));
+
+		job.setInputFormatClass(SequenceFileInputFormat.class);
+		job.setOutputKeyClass(Text.class);
+		job.setOutputValueClass(String2IntOpenHashMapWritable.class);
+
+		job.setMapperClass(ConvertMapper.class);
+
+		if (!job.waitForCompletion(true)) {
+			return -1;
+		}
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+		return 0;
+	}
+
 	/**
 	 * Dispatches command-line arguments to the tool via the
 	 * <code>ToolRunner</code>.
@@ -0,0 +1,109 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.example.cooccur;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import edu.umd.cloud9.util.map.HMapKI;
+
+/**
+ * <p>
+ * Mapping between terms and integer ids, built by {@link BuildTermDictionary}. Ids are assigned in
+ * decreasing order of term frequency, starting from zero, so that frequent terms get small ids,
+ * which take a single byte when written as variable-length ints.
+ * </p>
+ *
+ * <p>
+ * The dictionary is stored as the number of terms (an int), followed by the terms in order of id
+ * (each written with <code>writeUTF</code>).
+ * </p>
+ */
+public class TermDictionary {
+	private String[] terms;
+	private HMapKI<String> ids;
+
+	private TermDictionary(String[] terms) {
+		this.terms = terms;
+		this.ids = new HMapKI<String>(Math.max(16, (int) (terms.length / 0.75f) + 1));
+
+		for (int i = 0; i < terms.length; i++) {
+			ids.put(terms[i], i);
+		}
+	}
+
+	/**
+	 * Returns the id of a term, or -1 if the term is not in the dictionary.
+	 */
+	public int getId(String term) {
+		return ids.containsKey(term) ? ids.get(term) : -1;
+	}
+
+	/**
+	 * Returns the term with an id.
+	 */
+	public String getTerm(int id) {
+		return terms[id];
+	}
+
+	/**
+	 * Returns the number of terms in the dictionary.
+	 */
+	public int size() {
+		return terms.length;
+	}
+
+	/**
+	 * Loads a dictionary.
+	 *
+	 * @param path path to the dictionary
+	 * @param fs the file system the dictionary is on
+	 */
+	public static TermDictionary load(Path path, FileSystem fs) throws IOException {
+		FSDataInputStream in = fs.open(path);
+
+		String[] terms = new String[in.readInt()];
+		for (int i = 0; i < terms.length; i++) {
+			terms[i] = in.readUTF();
+		}
+		in.close();
+
+		return new TermDictionary(terms);
+	}
+
+	/**
+	 * Writes a dictionary.
+	 *
+	 * @param terms terms in order of id
+	 * @param path path to the dictionary
+	 * @param fs the file system to write the dictionary to
+	 */
+	public static void write(List<String> terms, Path path, FileSystem fs) throws IOException {
+		FSDataOutputStream out = fs.create(path, true);
+
+		out.writeInt(terms.size());
+		for (String term : terms) {
+			out.writeUTF(term);
+		}
+		out.close();
+	}
+}
@@ -284,9 +284,9 @@ public class AFormatterWG extends Configured implements Tool {
 		try {
 			//System.out.println(">> " + DistributedCache.getLocalCacheFiles(jc).toString());
 			Path[] cacheFiles = DistributedCache.getLocalCacheFiles(jc);
-			//String[] cacheFiles;
-			//cacheFiles = jc.getStrings("stoplist");
-			FileReader fr = new FileReader(cacheFiles[0].toString());
+			// the local job runner doesn't localize cache files; read the original
+			Path stopList = cacheFiles != null ? cacheFiles[0] : new Path(jc.get("stoplist"));
+			FileReader fr = new FileReader(stopList.toUri().getPath());
 			BufferedReader stopReader = new BufferedReader(fr);
 			String line;
 			while ((line = stopReader.readLine()) != null) {
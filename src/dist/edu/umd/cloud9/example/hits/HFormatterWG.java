@@ -100,7 +100,6 @@ public class HFormatterWG extends Configured implements Tool {
 			}
 			dataOut.setOutlinks(links);
 			dataOut.setHRank((float) 0.0);
-			System.out.println(">>>" + keyOut.get() + " | " + dataOut.toString());
 			output.collect(keyOut, dataOut);
 			// emit mentioned mentioner -> mentioned (mentioners) in links
 			// emit mentioner mentioned -> mentioner (mentions) outlinks
@@ -204,9 +203,9 @@ public class HFormatterWG extends Configured implements Tool {
 		try {
 			//System.out.println(">> " + DistributedCache.getLocalCacheFiles(jc).toString());
 			Path[] cacheFiles = DistributedCache.getLocalCacheFiles(jc);
-			//String[] cacheFiles;
-			//cacheFiles = jc.getStrings("stoplist");
-			FileReader fr = new FileReader(cacheFiles[0].toString());
+			// the local job runner doesn't localize cache files; read the original
+			Path stopList = cacheFiles != null ? cacheFiles[0] : new Path(jc.get("stoplist"));
+			FileReader fr = new FileReader(stopList.toUri().getPath());
 			BufferedReader stopReader = new BufferedReader(fr);
 			String line;
 			while ((line = stopReader.readLine()) != null) {
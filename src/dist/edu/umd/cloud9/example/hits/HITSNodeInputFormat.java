@@ -0,0 +1,56 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.example.hits;
+
+import org.apache.hadoop.mapred.JobConf;
+
+import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
+import edu.umd.cloud9.mapred.CSRGraphInputFormat;
+
+/**
+ * Input format reading a {@link CSRGraph} as hub {@link HITSNode}s, the same records as
+ * {@link HFormatterWG} writes without a stop list, so that {@link MergeFormattedRecords} can take
+ * the graph directly as its hub input. As in {@link HFormatterWG}, duplicate outlinks are dropped.
+ */
+public class HITSNodeInputFormat extends CSRGraphInputFormat<HITSNode> {
+
+	@Override
+	protected HITSNode createValue(JobConf job) {
+		HITSNode node = new HITSNode();
+		node.setType(HITSNode.TYPE_HUB_COMPLETE);
+		node.setHRank(0.0f);
+		return node;
+	}
+
+	@Override
+	protected void setValue(HITSNode value, int node, ArrayListOfIntsWritable neighbors) {
+		// neighbors are sorted, so duplicates are adjacent
+		int[] array = neighbors.getArray();
+		int n = 0;
+		for (int i = 0; i < neighbors.size(); i++) {
+			if (n == 0 || array[i] != array[n - 1]) {
+				array[n++] = array[i];
+			}
+		}
+		neighbors.setSize(n);
+
+		value.setNodeId(node);
+		value.setOutlinks(neighbors);
+	}
+}
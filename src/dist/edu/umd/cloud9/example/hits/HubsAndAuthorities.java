@@ -36,8 +36,9 @@ import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
-import edu.umd.cloud9.util.map.HMapIF;
-import edu.umd.cloud9.util.map.MapIF;
+import edu.umd.cloud9.math.LogMath;
+import edu.umd.cloud9.util.combine.InMapperCombiner;
+import edu.umd.cloud9.util.combine.InMapperCombinerIF;
 
 /**
  * <p>
@@ -67,6 +68,12 @@ import edu.umd.cloud9.util.map.MapIF;
  * <code>/base/path/iter0010</code>.
  * </p> 
  * 
+ * <p>
+ * Ranks are added up exactly. Setting <code>cloud9.logmath.exact</code> to <code>false</code>
+ * (e.g., <code>-D cloud9.logmath.exact=false</code>) uses {@link LogMath#addFast(float, float)}
+ * instead, which is faster but off by up to {@link LogMath#ERROR_BOUND} per addition.
+ * </p>
+ * 
  * @see HubsAndAuthoritiesSchimmy
  * @author Mike McGrath
  * 
@@ -125,18 +132,20 @@ public class HubsAndAuthorities extends Configured implements Tool {
 	private static class HAMapperIMC extends MapReduceBase implements
 			Mapper<IntWritable, HITSNode, IntWritable, HITSNode> {
 
-		// for buffering rank values
-		private static HMapIF rankmapA = new HMapIF();
-		private static HMapIF rankmapH = new HMapIF();
+		// for buffering rank values, within a memory budget
+		private InMapperCombinerIF combinerA;
+		private InMapperCombinerIF combinerH;
 
-		// save a reference to the output collector
-		private static OutputCollector<IntWritable, HITSNode> mOutput;
+		// save a reference to the output collector and reporter
+		private OutputCollector<IntWritable, HITSNode> mOutput;
+		private Reporter mReporter;
 
-		private static HITSNode valOut = new HITSNode();
+		private boolean exact = true;
 
 		public void configure(JobConf job) {
-			rankmapA.clear();
-			rankmapH.clear();
+			exact = isExact(job);
+			combinerA = createCombiner(job, HITSNode.TYPE_AUTH_MASS);
+			combinerH = createCombiner(job, HITSNode.TYPE_HUB_MASS);
 		}
 
 		public void map(IntWritable key, HITSNode value,
@@ -144,56 +153,72 @@ public class HubsAndAuthorities extends Configured implements Tool {
 				throws IOException {
 
 			mOutput = output;
-			int typeOut = 0;
-			ArrayListOfIntsWritable adjList;
+			mReporter = reporter;
 			output.collect(key, value);
 
-			int curr;
-			typeOut = 0;
 			//emit avals to inlinks as hvals
-			adjList = value.getOutlinks();
-			for (int i = 0; i < adjList.size(); i++) {
-				curr = adjList.get(i);
-				if (rankmapA.containsKey(curr)) {
-					rankmapA.put(curr, sumLogProbs(rankmapA.get(curr),
-							value.getHRank()));
-				} else {
-					rankmapA.put(curr, value.getHRank());
-				}
-			}
 			//emit hvals to outlinks as avals
-			adjList = value.getInlinks();
-			for (int i = 0; i < adjList.size(); i++) {
-				curr = adjList.get(i);
-				if (rankmapH.containsKey(curr)) {
-					rankmapH.put(curr, sumLogProbs(rankmapH.get(curr),
-							value.getARank()));
-				} else {
-					rankmapH.put(curr, value.getARank());
+			addAll(combinerA, value.getOutlinks(), value.getHRank());
+			addAll(combinerH, value.getInlinks(), value.getARank());
+		}
+
+		private void addAll(InMapperCombinerIF combiner, ArrayListOfIntsWritable adjList, float rank)
+				throws IOException {
+			try {
+				for (int i = 0; i < adjList.size(); i++) {
+					combiner.add(adjList.get(i), rank);
 				}
+			} catch (InterruptedException e) {
+				throw new IOException(e.toString());
 			}
 		}
 
 		public void close() throws IOException {
-			IntWritable n = new IntWritable();
-			HITSNode mass = new HITSNode();
-			for (MapIF.Entry e : rankmapH.entrySet()) {
-				n.set(e.getKey());
-				mass.setType(HITSNode.TYPE_HUB_MASS);
-				mass.setHRank(e.getValue());
-				mass.setNodeId(e.getKey());
-				mOutput.collect(n, mass);
+			try {
+				combinerH.flush();
+				combinerA.flush();
+			} catch (InterruptedException e) {
+				throw new IOException(e.toString());
 			}
-			mass = new HITSNode();
-			for (MapIF.Entry e : rankmapA.entrySet()) {
-				n.set(e.getKey());
-				mass.setType(HITSNode.TYPE_AUTH_MASS);
-				mass.setARank(e.getValue());
-				mass.setNodeId(e.getKey());
-				mOutput.collect(n, mass);
+
+			if (mReporter != null) {
+				combinerH.incrementCounters(mReporter);
+				combinerA.incrementCounters(mReporter);
 			}
 		}
 
+		// Creates a combiner of the hub (or authority) rank values to emit as messages of a type.
+		private InMapperCombinerIF createCombiner(JobConf job, final int type) {
+			final IntWritable n = new IntWritable();
+			final HITSNode mass = new HITSNode();
+			mass.setType(type);
+
+			// the two combiners share the memory budget
+			int maxEntries = InMapperCombiner.getMaxEntries(job,
+					2 * InMapperCombinerIF.BYTES_PER_ENTRY);
+			float flushFraction = job.getFloat(InMapperCombiner.FLUSH_FRACTION_PROPERTY,
+					InMapperCombiner.DEFAULT_FLUSH_FRACTION);
+
+			return new InMapperCombinerIF(maxEntries, flushFraction) {
+				@Override
+				protected float combine(float a, float b) {
+					return sumLogProbs(a, b, exact);
+				}
+
+				@Override
+				protected void emit(int key, float value) throws IOException {
+					n.set(key);
+					mass.setNodeId(key);
+					if (type == HITSNode.TYPE_HUB_MASS) {
+						mass.setHRank(value);
+					} else {
+						mass.setARank(value);
+					}
+					mOutput.collect(n, mass);
+				}
+			};
+		}
+
 	}
 
 	private static class HAReducer extends MapReduceBase implements
@@ -202,9 +227,11 @@ public class HubsAndAuthorities extends Configured implements Tool {
 		private HITSNode valOut = new HITSNode();
 
 		private int jobIter = 0;
+		private boolean exact = true;
 
 		public void configure(JobConf jconf) {
 			jobIter = jconf.getInt("jobIter", 0);
+			exact = isExact(jconf);
 		}
 
 		public void reduce(IntWritable key, Iterator<HITSNode> values,
@@ -238,10 +265,10 @@ public class HubsAndAuthorities extends Configured implements Tool {
 					} 
 				// else add rank to current rank
 				else if (type == HITSNode.TYPE_HUB_MASS) {
-					hrank = sumLogProbs(hrank, valIn.getHRank());
+					hrank = sumLogProbs(hrank, valIn.getHRank(), exact);
 				} else if (type == HITSNode.TYPE_AUTH_MASS) {
 					// arank += rankIn;
-					arank = sumLogProbs(arank, valIn.getARank());
+					arank = sumLogProbs(arank, valIn.getARank(), exact);
 				}
 				else {
 					System.err.println("Unexpected Node Type: " + type);
@@ -298,9 +325,12 @@ public class HubsAndAuthorities extends Configured implements Tool {
 		private static float asum = Float.NEGATIVE_INFINITY;
 		private static OutputCollector<Text, FloatWritable> mOutput;
 
+		private boolean exact = true;
+
 		public void configure(JobConf conf) {
 			hsum = Float.NEGATIVE_INFINITY;
 			asum = Float.NEGATIVE_INFINITY;
+			exact = isExact(conf);
 		}
 
 		public void map(IntWritable key, HITSNode value,
@@ -314,12 +344,12 @@ public class HubsAndAuthorities extends Configured implements Tool {
 			float hrank = value.getHRank() * 2;// <===FIXME
 
 			if (type == HITSNode.TYPE_AUTH_COMPLETE) {
-				asum = sumLogProbs(asum, arank);
+				asum = sumLogProbs(asum, arank, exact);
 			} else if (type == HITSNode.TYPE_HUB_COMPLETE) {
-				hsum = sumLogProbs(hsum, hrank);
+				hsum = sumLogProbs(hsum, hrank, exact);
 			} else if (type == HITSNode.TYPE_NODE_COMPLETE || type == HITSNode.TYPE_NODE_MASS){
-				asum = sumLogProbs(asum, arank);
-				hsum = sumLogProbs(hsum, hrank);
+				asum = sumLogProbs(asum, arank, exact);
+				hsum = sumLogProbs(hsum, hrank, exact);
 			}
 			else {
 				System.err.println("Bad Type: " + type);
@@ -338,6 +368,12 @@ public class HubsAndAuthorities extends Configured implements Tool {
 	private static class Norm1Combiner extends MapReduceBase implements
 			Reducer<Text, FloatWritable, Text, FloatWritable> {
 
+		private boolean exact = true;
+
+		public void configure(JobConf job) {
+			exact = isExact(job);
+		}
+
 		public void reduce(Text key, Iterator<FloatWritable> values,
 				OutputCollector<Text, FloatWritable> output, Reporter reporter)
 				throws IOException {
@@ -346,7 +382,7 @@ public class HubsAndAuthorities extends Configured implements Tool {
 
 			while (values.hasNext()) {
 				valIn = values.next();
-				sum = sumLogProbs(sum, valIn.get());
+				sum = sumLogProbs(sum, valIn.get(), exact);
 			}
 
 			if (sum != Float.NEGATIVE_INFINITY)
@@ -357,6 +393,12 @@ public class HubsAndAuthorities extends Configured implements Tool {
 	private static class Norm1Reducer extends MapReduceBase implements
 			Reducer<Text, FloatWritable, Text, FloatWritable> {
 
+		private boolean exact = true;
+
+		public void configure(JobConf job) {
+			exact = isExact(job);
+		}
+
 		public void reduce(Text key, Iterator<FloatWritable> values,
 				OutputCollector<Text, FloatWritable> output, Reporter reporter)
 				throws IOException {
@@ -365,7 +407,7 @@ public class HubsAndAuthorities extends Configured implements Tool {
 
 			while (values.hasNext()) {
 				valIn = values.next();
-				sum = sumLogProbs(sum, valIn.get());
+				sum = sumLogProbs(sum, valIn.get(), exact);
 			}
 
 			sum = sum / 2; // sqrt
@@ -453,8 +495,16 @@ public class HubsAndAuthorities extends Configured implements Tool {
 		return output;
 	}
 
-	// adds two log probs
-	private static float sumLogProbs(float a, float b) {
+	// whether to add log probs exactly, which is the default
+	private static boolean isExact(Configuration conf) {
+		return conf.getBoolean(LogMath.EXACT_PROPERTY, true);
+	}
+
+	// adds two log probs, with LogMath.addFast unless exact
+	private static float sumLogProbs(float a, float b, boolean exact) {
+		if (!exact)
+			return LogMath.addFast(a, b);
+
 		if (a == Float.NEGATIVE_INFINITY)
 			return b;
 
@@ -537,7 +587,7 @@ public class HubsAndAuthorities extends Configured implements Tool {
 		sLogger.info(" - number of mappers: " + mapTasks);
 		sLogger.info(" - number of reducers: " + reduceTasks);
 
-		JobConf conf = new JobConf(HubsAndAuthorities.class);
+		JobConf conf = new JobConf(getConf(), HubsAndAuthorities.class);
 		conf.setJobName("Iter" + iter + "HubsAndAuthorities");
 
 		conf.setNumMapTasks(mapTasks);
@@ -594,7 +644,7 @@ public class HubsAndAuthorities extends Configured implements Tool {
 		sLogger.info(" - number of mappers: " + mapTasks);
 		sLogger.info(" - number of reducers: " + reduceTasks);
 
-		JobConf conf = new JobConf(HubsAndAuthorities.class);
+		JobConf conf = new JobConf(getConf(), HubsAndAuthorities.class);
 		conf.setJobName("Iter" + iter + "NormalizerStep1");
 
 		conf.setNumMapTasks(mapTasks);
@@ -619,7 +669,7 @@ public class HubsAndAuthorities extends Configured implements Tool {
 		}
 		conf.setReducerClass(Norm1Reducer.class);
 
-		JobConf conf2 = new JobConf(HubsAndAuthorities.class);
+		JobConf conf2 = new JobConf(getConf(), HubsAndAuthorities.class);
 		conf2.setJobName("Iter" + iter + "NormalizerStep2");
 		conf2.setInt("NodeCount", nodeCount);
 
@@ -43,8 +43,9 @@ import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
-import edu.umd.cloud9.util.map.HMapIF;
-import edu.umd.cloud9.util.map.MapIF;
+import edu.umd.cloud9.math.LogMath;
+import edu.umd.cloud9.util.combine.InMapperCombiner;
+import edu.umd.cloud9.util.combine.InMapperCombinerIF;
 
 /**
  * <p>
@@ -74,6 +75,12 @@ import edu.umd.cloud9.util.map.MapIF;
  * <code>/base/path/iter0010</code>.
  * </p> 
  * 
+ * <p>
+ * Ranks are added up exactly. Setting <code>cloud9.logmath.exact</code> to <code>false</code>
+ * (e.g., <code>-D cloud9.logmath.exact=false</code>) uses {@link LogMath#addFast(float, float)}
+ * instead, which is faster but off by up to {@link LogMath#ERROR_BOUND} per addition.
+ * </p>
+ * 
  * @see HubsAndAuthorities
  * @author Mike McGrath
  * 
@@ -141,21 +148,22 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 	private static class HAMapperIMC extends MapReduceBase implements
 			Mapper<IntWritable, HITSNode, IntWritable, HITSNode> {
 
-		// for buffering rank values
-		private static HMapIF rankmapA = new HMapIF();
-		private static HMapIF rankmapH = new HMapIF();
+		// for buffering rank values, within a memory budget
+		private InMapperCombinerIF combinerA;
+		private InMapperCombinerIF combinerH;
 
-		// save a reference to the output collector
-		private static OutputCollector<IntWritable, HITSNode> mOutput;
+		// save a reference to the output collector and reporter
+		private OutputCollector<IntWritable, HITSNode> mOutput;
+		private Reporter mReporter;
 
 		private static HITSNode valOut = new HITSNode();
 
-		// private static ArrayListOfIntsWritable empty = new
-		// ArrayListOfIntsWritable();
+		private boolean exact = true;
 
 		public void configure(JobConf job) {
-			rankmapA.clear();
-			rankmapH.clear();
+			exact = isExact(job);
+			combinerA = createCombiner(job, HITSNode.TYPE_AUTH_MASS);
+			combinerH = createCombiner(job, HITSNode.TYPE_HUB_MASS);
 		}
 
 		public void map(IntWritable key, HITSNode value,
@@ -163,70 +171,77 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 				throws IOException {
 
 			mOutput = output;
+			mReporter = reporter;
 
-			ArrayListOfIntsWritable adjList;
 			valOut.setNodeId(value.getNodeId());
 			valOut.setType(HITSNode.TYPE_NODE_MASS);
 			valOut.setARank(value.getARank());
 			valOut.setHRank(value.getHRank());
 			output.collect(key, valOut);
 
-			// check type using new types
 			//emit hvals to outlinks as avals
-
-
-
 			//emit avals to inlinks as hvals
+			addAll(combinerA, value.getOutlinks(), value.getHRank());
+			addAll(combinerH, value.getInlinks(), value.getARank());
+		}
 
-
-			int curr;
-			
-			adjList = value.getOutlinks();
-			for (int i = 0; i < adjList.size(); i++) {
-				curr = adjList.get(i);
-				// System.out.println("[key: " + key.toString() + "] [curr: " +
-				// curr + "]");
-				if (rankmapA.containsKey(curr)) {
-					rankmapA.put(curr, sumLogProbs(rankmapA.get(curr),
-							value.getHRank()));
-				} else {
-					rankmapA.put(curr, value.getHRank());
-				}
-			}
-			
-			adjList = value.getInlinks();
-			for (int i = 0; i < adjList.size(); i++) {
-				curr = adjList.get(i);
-				if (rankmapH.containsKey(curr)) {
-					rankmapH.put(curr, sumLogProbs(rankmapH.get(curr),
-							value.getARank()));
-				} else {
-					rankmapH.put(curr, value.getARank());
+		private void addAll(InMapperCombinerIF combiner, ArrayListOfIntsWritable adjList, float rank)
+				throws IOException {
+			try {
+				for (int i = 0; i < adjList.size(); i++) {
+					combiner.add(adjList.get(i), rank);
 				}
+			} catch (InterruptedException e) {
+				throw new IOException(e.toString());
 			}
 		}
 
 		public void close() throws IOException {
-			IntWritable n = new IntWritable();
-			HITSNode mass = new HITSNode();
-			for (MapIF.Entry e : rankmapH.entrySet()) {
-				n.set(e.getKey());
-				mass.setType(HITSNode.TYPE_HUB_MASS);
-				mass.setHRank(e.getValue());
-				mass.setNodeId(e.getKey());
-				// System.out.println(e.getKey() + " " + e.getValue());
-				mOutput.collect(n, mass);
+			try {
+				combinerH.flush();
+				combinerA.flush();
+			} catch (InterruptedException e) {
+				throw new IOException(e.toString());
 			}
-			for (MapIF.Entry e : rankmapA.entrySet()) {
-				n.set(e.getKey());
-				mass.setType(HITSNode.TYPE_AUTH_MASS);
-				mass.setARank(e.getValue());
-				mass.setNodeId(e.getKey());
-				// System.out.println(e.getKey() + " " + e.getValue());
-				mOutput.collect(n, mass);
+
+			if (mReporter != null) {
+				combinerH.incrementCounters(mReporter);
+				combinerA.incrementCounters(mReporter);
 			}
 		}
 
+		// Creates a combiner of the hub (or authority) rank values to emit as messages of a type.
+		private InMapperCombinerIF createCombiner(JobConf job, final int type) {
+			final IntWritable n = new IntWritable();
+			final HITSNode mass = new HITSNode();
+			mass.setType(type);
+
+			// the two combiners share the memory budget
+			int maxEntries = InMapperCombiner.getMaxEntries(job,
+					2 * InMapperCombinerIF.BYTES_PER_ENTRY);
+			float flushFraction = job.getFloat(InMapperCombiner.FLUSH_FRACTION_PROPERTY,
+					InMapperCombiner.DEFAULT_FLUSH_FRACTION);
+
+			return new InMapperCombinerIF(maxEntries, flushFraction) {
+				@Override
+				protected float combine(float a, float b) {
+					return sumLogProbs(a, b, exact);
+				}
+
+				@Override
+				protected void emit(int key, float value) throws IOException {
+					n.set(key);
+					mass.setNodeId(key);
+					if (type == HITSNode.TYPE_HUB_MASS) {
+						mass.setHRank(value);
+					} else {
+						mass.setARank(value);
+					}
+					mOutput.collect(n, mass);
+				}
+			};
+		}
+
 	}
 
 	private static class HAReducer extends MapReduceBase implements
@@ -246,11 +261,13 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 		private HITSNode mStateNode = new HITSNode();
 
 		private int jobIter = 0;
+		private boolean exact = true;
 
 		public void configure(JobConf jconf) {
 			mJobConf = jconf;
 			mTaskId = jconf.get("mapred.task.id");
 			jobIter = jconf.getInt("jobIter", 0);
+			exact = isExact(jconf);
 
 			// we want to reconstruct the mapping from partition file stored on
 			// disk and the actual partition...
@@ -345,10 +362,10 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 				float hrankIn = valIn.getHRank();
 				if (type == HITSNode.TYPE_HUB_MASS ) {
 					// hrank += rankIn;
-					hrank = sumLogProbs(hrank, hrankIn);
+					hrank = sumLogProbs(hrank, hrankIn, exact);
 				} else if (type == HITSNode.TYPE_AUTH_MASS) {
 					// arank += rankIn;
-					arank = sumLogProbs(arank, arankIn);
+					arank = sumLogProbs(arank, arankIn, exact);
 				}
 			}
 			// System.out.println(key.toString() + " " + "H" + " " +
@@ -437,9 +454,12 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 		private static float asum = Float.NEGATIVE_INFINITY;
 		private static OutputCollector<Text, FloatWritable> mOutput;
 
+		private boolean exact = true;
+
 		public void configure(JobConf conf) {
 			hsum = Float.NEGATIVE_INFINITY;
 			asum = Float.NEGATIVE_INFINITY;
+			exact = isExact(conf);
 		}
 
 		public void map(IntWritable key, HITSNode value,
@@ -453,8 +473,8 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 			float hrank = value.getHRank() * 2;// <===FIXME
 
 			if (type == HITSNode.TYPE_NODE_COMPLETE) {
-				asum = sumLogProbs(asum, arank);
-				hsum = sumLogProbs(hsum, hrank);
+				asum = sumLogProbs(asum, arank, exact);
+				hsum = sumLogProbs(hsum, hrank, exact);
 			} else {
 				System.err.println("Bad Type: " + type);
 			}
@@ -472,6 +492,12 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 	private static class Norm1Combiner extends MapReduceBase implements
 			Reducer<Text, FloatWritable, Text, FloatWritable> {
 
+		private boolean exact = true;
+
+		public void configure(JobConf job) {
+			exact = isExact(job);
+		}
+
 		public void reduce(Text key, Iterator<FloatWritable> values,
 				OutputCollector<Text, FloatWritable> output, Reporter reporter)
 				throws IOException {
@@ -480,7 +506,7 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 
 			while (values.hasNext()) {
 				valIn = values.next();
-				sum = sumLogProbs(sum, valIn.get());
+				sum = sumLogProbs(sum, valIn.get(), exact);
 			}
 
 			if (sum != Float.NEGATIVE_INFINITY)
@@ -491,6 +517,12 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 	private static class Norm1Reducer extends MapReduceBase implements
 			Reducer<Text, FloatWritable, Text, FloatWritable> {
 
+		private boolean exact = true;
+
+		public void configure(JobConf job) {
+			exact = isExact(job);
+		}
+
 		public void reduce(Text key, Iterator<FloatWritable> values,
 				OutputCollector<Text, FloatWritable> output, Reporter reporter)
 				throws IOException {
@@ -499,7 +531,7 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 
 			while (values.hasNext()) {
 				valIn = values.next();
-				sum = sumLogProbs(sum, valIn.get());
+				sum = sumLogProbs(sum, valIn.get(), exact);
 			}
 
 			sum = sum / 2; // sqrt
@@ -592,8 +624,16 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 		return output;
 	}
 
-	// adds two log probs
-	private static float sumLogProbs(float a, float b) {
+	// whether to add log probs exactly, which is the default
+	private static boolean isExact(Configuration conf) {
+		return conf.getBoolean(LogMath.EXACT_PROPERTY, true);
+	}
+
+	// adds two log probs, with LogMath.addFast unless exact
+	private static float sumLogProbs(float a, float b, boolean exact) {
+		if (!exact)
+			return LogMath.addFast(a, b);
+
 		if (a == Float.NEGATIVE_INFINITY)
 			return b;
 
@@ -668,7 +708,7 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 			boolean useCombiner, boolean useInmapCombiner, boolean useRange,
 			int mapTasks, int reduceTasks) throws IOException {
 
-		JobConf conf = new JobConf(HubsAndAuthoritiesSchimmy.class);
+		JobConf conf = new JobConf(getConf(), HubsAndAuthoritiesSchimmy.class);
 
 		String inputPath = path + "/iter" + sFormat.format(iter);
 		String outputPath = path + "/iter" + sFormat.format(jter) + "t";
@@ -786,7 +826,7 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 		sLogger.info(" - number of mappers: " + mapTasks);
 		sLogger.info(" - number of reducers: " + reduceTasks);
 
-		JobConf conf = new JobConf(HubsAndAuthoritiesSchimmy.class);
+		JobConf conf = new JobConf(getConf(), HubsAndAuthoritiesSchimmy.class);
 		conf.setJobName("Iter" + iter + "NormalizerStep1");
 
 		conf.setNumMapTasks(mapTasks);
@@ -811,7 +851,7 @@ public class HubsAndAuthoritiesSchimmy extends Configured implements Tool {
 		}
 		conf.setReducerClass(Norm1Reducer.class);
 
-		JobConf conf2 = new JobConf(HubsAndAuthoritiesSchimmy.class);
+		JobConf conf2 = new JobConf(getConf(), HubsAndAuthoritiesSchimmy.class);
 		conf2.setJobName("Iter" + iter + "NormalizerStep2");
 		conf2.setInt("NodeCount", nodeCount);
 
@@ -19,11 +19,13 @@ import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapred.SequenceFileInputFormat;
 import org.apache.hadoop.mapred.SequenceFileOutputFormat;
 import org.apache.hadoop.mapred.lib.IdentityMapper;
+import org.apache.hadoop.mapred.lib.MultipleInputs;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
 
 /**
  * 
@@ -33,7 +35,8 @@ import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
  * </p>
  * 
  * <ul>
- * <li>[hub-input-path]: input directory containing output of HFormatterWG</li>
+ * <li>[hub-input-path]: input directory containing output of HFormatterWG, or a
+ * {@link CSRGraph}, read with {@link HITSNodeInputFormat}</li>
  * <li>[auth-input-path]: input directory containing output of AFormatterWG</li>
  * <li>[output-path]: output directory</li>
  * <li>[num-mappers]: number of mappers to use (may be overridden by Hadoop)</li>
@@ -118,17 +121,26 @@ public class MergeFormattedRecords extends Configured implements Tool {
 		conf.setNumMapTasks(mapTasks);
 		conf.setNumReduceTasks(reduceTasks);
 
-		FileInputFormat.setInputPaths(conf, new Path(hInputPath));
-		FileInputFormat.addInputPath(conf, new Path(aInputPath));
+		// A graph in CSR format is read as hub records directly, saving the HFormatterWG job.
+		if (CSRGraph.isGraph(new Path(hInputPath), FileSystem.get(conf))) {
+			sLogger.info("reading hub input as a CSR graph");
+			MultipleInputs.addInputPath(conf, new Path(hInputPath), HITSNodeInputFormat.class,
+					IdentityMapper.class);
+			MultipleInputs.addInputPath(conf, new Path(aInputPath), SequenceFileInputFormat.class,
+					IdentityMapper.class);
+		} else {
+			FileInputFormat.setInputPaths(conf, new Path(hInputPath));
+			FileInputFormat.addInputPath(conf, new Path(aInputPath));
+			conf.setInputFormat(SequenceFileInputFormat.class);
+			conf.setMapperClass(IdentityMapper.class);
+		}
 		FileOutputFormat.setOutputPath(conf, new Path(outputPath));
 		FileOutputFormat.setCompressOutput(conf, false);
 
-		conf.setInputFormat(SequenceFileInputFormat.class);
 		conf.setOutputKeyClass(IntWritable.class);
 		conf.setOutputValueClass(HITSNode.class);
 		conf.setOutputFormat(SequenceFileOutputFormat.class);
 
-		conf.setMapperClass(IdentityMapper.class);
 		conf.setReducerClass(MergeReducer.class);
 
 		// Delete the output directory if it exists already
@@ -113,7 +113,7 @@ public class PartitionGraph extends Configured implements Tool {
 		sLogger.info(" - useRange: " + useRange);
 		sLogger.info(" - nodeCnt: " + nodeCount);
 
-		JobConf conf = new JobConf(PartitionGraph.class);
+		JobConf conf = new JobConf(getConf(), PartitionGraph.class);
 
 		conf.setJobName("Partition Graph " + numParts);
 		conf.setNumReduceTasks(numParts);
@@ -5,9 +5,14 @@ import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapred.Partitioner;
 import org.apache.hadoop.mapred.JobConf;
 
+import edu.umd.cloud9.example.pagerank.RangeSplitPoints;
+
 /**
  * Range partitioner. In the context of graph algorithms, ensures that
- * consecutive node ids are blocked together.
+ * consecutive node ids are blocked together. By default, divides [0, NodeCount)
+ * evenly; if {@link RangeSplitPoints#PATH_PROPERTY} is set, uses the split
+ * points in that file instead (see
+ * {@link edu.umd.cloud9.example.pagerank.SampleRangeSplitPoints}).
  * 
  * @author Jimmy Lin
  * 
@@ -16,15 +21,25 @@ import org.apache.hadoop.mapred.JobConf;
 public class RangePartitioner<K, V> implements
 		Partitioner<IntWritable, Writable> {
 	private int mNodeCnt = 0;
+	private int[] mSplits = null;
 
 	public RangePartitioner() {
 	}
 
 	public int getPartition(IntWritable key, Writable value, int numReduceTasks) {
+		if (mSplits != null) {
+			if (numReduceTasks != mSplits.length + 1) {
+				throw new RuntimeException("Split points are for " + (mSplits.length + 1)
+						+ " partitions, but there are " + numReduceTasks + " reduce tasks!");
+			}
+			return RangeSplitPoints.getPartition(mSplits, key.get());
+		}
+
 		return (int) (((float) key.get() / (float) mNodeCnt) * numReduceTasks) % numReduceTasks;
 	}
 
 	public void configure(JobConf job) {
 		mNodeCnt = job.getInt("NodeCount", 0);
+		mSplits = RangeSplitPoints.load(job);
 	}
 }
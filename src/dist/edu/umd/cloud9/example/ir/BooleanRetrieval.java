@@ -19,9 +19,7 @@ package edu.umd.cloud9.example.ir;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Set;
 import java.util.Stack;
-import java.util.TreeSet;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -34,18 +32,19 @@ import org.apache.hadoop.io.Text;
 import edu.umd.cloud9.io.array.ArrayListWritable;
 import edu.umd.cloud9.io.pair.PairOfInts;
 import edu.umd.cloud9.io.pair.PairOfWritables;
+import edu.umd.cloud9.util.CompressedBitmap;
 
 public class BooleanRetrieval {
 
 	MapFile.Reader index;
 	FSDataInputStream collection;
-	Stack<Set<Integer>> stack;
+	Stack<CompressedBitmap> stack;
 
 	public BooleanRetrieval(String indexPath, String collectionPath, FileSystem fs)	throws IOException {
 		index = new MapFile.Reader(fs, indexPath + "/part-00000", fs.getConf());
 
 		collection = fs.open(new Path(collectionPath));
-		stack = new Stack<Set<Integer>>();
+		stack = new Stack<CompressedBitmap>();
 	}
 
 	public void runQuery(String q) throws IOException {
@@ -62,9 +61,9 @@ public class BooleanRetrieval {
 			}
 		}
 
-		Set<Integer> set = stack.pop();
+		CompressedBitmap set = stack.pop();
 
-		for (Integer i : set) {
+		for (int i : set.toArray()) {
 			String line = fetchLine(i);
 			System.out.println(i + "\t" + line);
 		}
@@ -75,39 +74,21 @@ public class BooleanRetrieval {
 	}
 
 	public void performAND() {
-		Set<Integer> s1 = stack.pop();
-		Set<Integer> s2 = stack.pop();
+		CompressedBitmap s1 = stack.pop();
+		CompressedBitmap s2 = stack.pop();
 
-		Set<Integer> sn = new TreeSet<Integer>();
-
-		for (int n : s1) {
-			if (s2.contains(n)) {
-				sn.add(n);
-			}
-		}
-
-		stack.push(sn);
+		stack.push(CompressedBitmap.and(s1, s2));
 	}
 
 	public void performOR() {
-		Set<Integer> s1 = stack.pop();
-		Set<Integer> s2 = stack.pop();
-
-		Set<Integer> sn = new TreeSet<Integer>();
-
-		for (int n : s1) {
-			sn.add(n);
-		}
-
-		for (int n : s2) {
-			sn.add(n);
-		}
+		CompressedBitmap s1 = stack.pop();
+		CompressedBitmap s2 = stack.pop();
 
-		stack.push(sn);
+		stack.push(CompressedBitmap.or(s1, s2));
 	}
 
-	public Set<Integer> fetchDocumentSet(String term) throws IOException {
-		Set<Integer> set = new TreeSet<Integer>();
+	public CompressedBitmap fetchDocumentSet(String term) throws IOException {
+		CompressedBitmap set = new CompressedBitmap();
 
 		for (PairOfInts pair : fetchPostings(term)) {
 			set.add(pair.getLeftElement());
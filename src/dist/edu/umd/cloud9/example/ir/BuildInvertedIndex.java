@@ -45,6 +45,7 @@ import edu.umd.cloud9.io.pair.PairOfInts;
 import edu.umd.cloud9.io.pair.PairOfWritables;
 import edu.umd.cloud9.util.fd.Object2IntFrequencyDistributionEntry;
 import edu.umd.cloud9.util.fd.Object2IntFrequencyDistribution;
+import edu.umd.cloud9.util.TextTokenizer;
 import edu.umd.cloud9.util.pair.PairOfObjectInt;
 
 @SuppressWarnings("deprecation")
@@ -55,21 +56,16 @@ public class BuildInvertedIndex extends Configured implements Tool {
 	private static class MyMapper extends MapReduceBase implements Mapper<LongWritable, Text, Text, PairOfInts> {
 		private static final Text word = new Text();
 		private static final Object2IntFrequencyDistribution<String> termCounts = new Object2IntFrequencyDistributionEntry<String>();
+		private static final TextTokenizer tokenizer = new TextTokenizer();
 
 		public void map(LongWritable docno, Text doc, 
 				OutputCollector<Text, PairOfInts> output, Reporter reporter) throws IOException {
-			String text = doc.toString();
 			termCounts.clear();
 
-			String[] terms = text.split("\\s+");
-
 			// First build a histogram of the terms.
-			for (String term : terms) {
-				if (term == null || term.length() == 0) {
-					continue;
-				}
-
-				termCounts.increment(term);
+			tokenizer.reset(doc);
+			while (tokenizer.next()) {
+				termCounts.increment(tokenizer.getString());
 			}
 
 			// emit postings
@@ -99,7 +95,7 @@ public class BuildInvertedIndex extends Configured implements Tool {
 		}
 	}
 
-	private BuildInvertedIndex() {}
+	public BuildInvertedIndex() {}
 
 	private static int printUsage() {
 		System.out.println("usage: [input-path] [output-path] [num-mappers]");
@@ -4,11 +4,14 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 
-import net.spy.memcached.AddrUtil;
-import net.spy.memcached.MemcachedClient;
-
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.FloatWritable;
@@ -25,6 +28,8 @@ import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapred.TextInputFormat;
 import org.apache.hadoop.mapred.lib.IdentityReducer;
 
+import edu.umd.cloud9.memcached.MemcachedSideData;
+
 public class DemoMemcachedAccess {
 	/*
 	 * This is used to add up total time for access to HDFS in map cycle
@@ -36,58 +41,75 @@ public class DemoMemcachedAccess {
 	private static class MyMapper extends MapReduceBase implements
 			Mapper<LongWritable, Text, LongWritable, FloatWritable> {
 
-		// Long keyTemp = new Long(0);
-		// Object obj ;
-		MemcachedClient memcachedClient;
+		MemcachedSideData sideData;
+		Reporter reporter;
 
-		// Method to set up memcache connection from client to all servers. The
-		// list of servers is obtained
-		// from the JobConf variable set up in the main.
+		// Reuse objects to avoid allocating per record.
+		final List<String> tokens = new ArrayList<String>();
+		final Set<String> keys = new HashSet<String>();
+		final Map<String, Object> values = new HashMap<String, Object>();
+		final FloatWritable totalProb = new FloatWritable();
+
+		// Set up memcache connection from client to all servers. The list of
+		// servers is obtained from the JobConf variable set up in the main.
+		// All tokens of a record are fetched with a single multi-get, and
+		// frequent tokens are served out of a per-task near-cache.
 		public void configure(JobConf conf) {
 			try {
-				memcachedClient = new MemcachedClient(AddrUtil.getAddresses(conf.get("ADDRESSES")));
-				Thread.sleep(500);
-			} catch (Exception e) {
-				e.printStackTrace();
+				sideData = MemcachedSideData.create(conf);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
 			}
 		}
 
 		public void map(LongWritable key, Text value,
 				OutputCollector<LongWritable, FloatWritable> output, Reporter reporter)
 				throws IOException {
-			FloatWritable totalProb = new FloatWritable();
-			String line = value.toString();
-			StringTokenizer itr = new StringTokenizer(line);
-			float sum = 0;
+			this.reporter = reporter;
+
+			tokens.clear();
+			keys.clear();
+			values.clear();
+
+			StringTokenizer itr = new StringTokenizer(value.toString());
 			while (itr.hasMoreTokens()) {
 				String temp = itr.nextToken();
 
 				// Ignore words that are too long...
-				if (temp.toString().length() > 100)
+				if (temp.length() > 100)
 					continue;
 
-				// timer starts
-				long startTime = System.currentTimeMillis();
-				// access the memcached servers to get log prob of the word
-				Object obj = memcachedClient.get(temp);
-				// end timer
-				long endTime = System.currentTimeMillis();
-				long diff = (endTime - startTime);
+				tokens.add(temp);
+				keys.add(temp);
+			}
 
-				// incrementing the counter
-				reporter.incrCounter(MyCounters.TIME, diff);
+			// timer starts
+			long startTime = System.currentTimeMillis();
+			// access the memcached servers to get log probs of all the words
+			sideData.getAll(keys, values);
+			// end timer
+			long endTime = System.currentTimeMillis();
+
+			// incrementing the counter
+			reporter.incrCounter(MyCounters.TIME, endTime - startTime);
+
+			float sum = 0;
+			for (String token : tokens) {
+				Object obj = values.get(token);
 				if (obj == null)
-					throw new RuntimeException("Error getting from memcache: key = " + temp);
+					throw new RuntimeException("Error getting from memcache: key = " + token);
 				// adding the log prob
 				sum = sum + Float.parseFloat(obj.toString());
 			}
 			totalProb.set(sum);
 			output.collect(key, totalProb);
-
 		}
 
-		public void close() {
-			memcachedClient.shutdown();
+		public void close() throws IOException {
+			if (reporter != null) {
+				sideData.reportCounters(reporter);
+			}
+			sideData.close();
 		}
 	}
 
@@ -132,14 +154,16 @@ public class DemoMemcachedAccess {
 	 * sequence file on HDFS. This is the file which will be read by mappers and
 	 * base on the words in the line read, there will be a probe to MemCache to
 	 * find the log probability 3. Number of Map tast you want to generate in
-	 * the map reduce cycle.
+	 * the map reduce cycle. Optionally, a fourth argument gives the path of a
+	 * MapFile on HDFS (see {@link GetLogProbFromHDFS}) to fall back on for
+	 * words missing from memcached.
 	 * 
 	 */
 	public static void main(String[] args) throws IOException {
 
-		if (args.length != 3) {
+		if (args.length != 3 && args.length != 4) {
 			System.out
-					.println(" usage : [path of ip address file] [path of sequence file on hdfs] [no of Map Tasks]");
+					.println(" usage : [path of ip address file] [path of sequence file on hdfs] [no of Map Tasks] [(optional) path of Map File on hdfs]");
 			System.exit(1);
 		}
 
@@ -163,7 +187,10 @@ public class DemoMemcachedAccess {
 		conf.setJobName("DemoMemcachedAccess");
 		// setting the variable to hold ip addresses so that it can be available
 		// in the mapper
-		conf.set("ADDRESSES", ipAddress);
+		conf.set(MemcachedSideData.ADDRESSES_PROPERTY, ipAddress);
+		if (args.length == 4) {
+			conf.set(MemcachedSideData.FALLBACK_MAPFILE_PROPERTY, args[3]);
+		}
 		conf.setNumMapTasks(mapTasks);
 		conf.setNumReduceTasks(reduceTasks);
 
@@ -23,50 +23,51 @@ import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapred.SequenceFileInputFormat;
 import org.apache.hadoop.mapred.lib.IdentityReducer;
 
+import edu.umd.cloud9.memcached.MemcachedSideData;
+
 public class SetLogProbInMemcached {
 
 	private static class MyMapper extends MapReduceBase implements
 			Mapper<Text, FloatWritable, Text, FloatWritable> {
 
-		// Float keyTemp = new Float(0);
-		// Object obj ;
-		MemcachedClient memcachedClient;
+		MemcachedSideData sideData;
+		Reporter reporter;
 
 		// Method to set up memcache connection from client to all servers. The
 		// list of servers is obtained
 		// from the JobConf variable set up in the main.
 		public void configure(JobConf conf) {
 			try {
-				memcachedClient = new MemcachedClient(AddrUtil.getAddresses(conf.get("ADDRESSES")));
-				Thread.sleep(500);
-			} catch (Exception e) {
-				e.printStackTrace();
+				sideData = MemcachedSideData.create(conf);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
 			}
 		}
 
 		public void map(Text text, FloatWritable value,
 				OutputCollector<Text, FloatWritable> output, Reporter reporter) throws IOException {
+			this.reporter = reporter;
 
 			// Ignore words that are too long...
 			if (text.toString().length() > 100)
 				return;
 
-			// writing key value pair to cache
+			// writing key value pair to cache; sets are pipelined, with a bound on
+			// the number in flight so we don't overflow the client's queue
 			Object obj = ((Float) (value.get())).toString();
-			memcachedClient.set(text.toString(), 60 * 60 * 20, obj);
-
-			try {
-				Thread.sleep(1);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+			sideData.set(text.toString(), 60 * 60 * 20, obj);
 
 			// to fulfill the mapper configuration
 			// output.collect(text, value);
 		}
 
-		public void close() {
-			memcachedClient.shutdown();
+		public void close() throws IOException {
+			// waits for outstanding sets
+			sideData.flush();
+			if (reporter != null) {
+				sideData.reportCounters(reporter);
+			}
+			sideData.close();
 		}
 	}
 
@@ -155,7 +156,7 @@ public class SetLogProbInMemcached {
 		conf.setJobName("SetLogProbInMemcached");
 		// setting the variable to hold ip addresses so that it can be available
 		// in the mapper
-		conf.set("ADDRESSES", ipAddress);
+		conf.set(MemcachedSideData.ADDRESSES_PROPERTY, ipAddress);
 		conf.setNumMapTasks(mapTasks);
 		conf.setNumReduceTasks(reduceTasks);
 
@@ -167,7 +168,7 @@ public class SetLogProbInMemcached {
 		Path outputDir = new Path(extraPath);
 		FileSystem.get(conf).delete(outputDir, true);
 
-		System.out.println("getting: " + conf.get("ADDRESSES"));
+		System.out.println("getting: " + conf.get(MemcachedSideData.ADDRESSES_PROPERTY));
 		JobClient.runJob(conf);
 	}
 }
@@ -4,6 +4,9 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import net.spy.memcached.AddrUtil;
 import net.spy.memcached.MemcachedClient;
@@ -15,6 +18,8 @@ import org.apache.hadoop.io.FloatWritable;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
 
+import edu.umd.cloud9.memcached.MemcachedSideData;
+
 public class VerifyLogProbInMemcached {
 
 	private static String getListOfIpAddresses(String inputFile) {
@@ -41,6 +46,17 @@ public class VerifyLogProbInMemcached {
 		return ipAddresses;
 	}
 
+	private static final int BATCH_SIZE = 1000;
+
+	private static int verify(MemcachedSideData sideData, List<String> keys) throws IOException {
+		Map<String, Object> values = sideData.getAll(keys);
+		for (String key : keys) {
+			if (values.get(key) == null)
+				throw new RuntimeException("Error getting from memcache: key=" + key);
+		}
+		return keys.size();
+	}
+
 	public static void main(String[] args) throws IOException {
 
 		/*
@@ -57,7 +73,10 @@ public class VerifyLogProbInMemcached {
 		String inputPathSeqFile = args[1];
 
 		String ipAddress = getListOfIpAddresses(pathOfIpAddressFile);
-		MemcachedClient myMCC = new MemcachedClient(AddrUtil.getAddresses(ipAddress));
+
+		// No point in a near-cache: every key is looked up exactly once.
+		MemcachedSideData sideData = new MemcachedSideData(new MemcachedClient(
+				AddrUtil.getAddresses(ipAddress)), 0);
 
 		Configuration conf = new Configuration();
 		FileSystem fs = FileSystem.get(conf);
@@ -69,17 +88,31 @@ public class VerifyLogProbInMemcached {
 
 		long startTime = System.currentTimeMillis();
 		int cnt = 0;
-		while (reader.next(text, f)) {
-			if ( cnt % 1000 == 0 )
+
+		// Keys are verified in batches. Each batch is prefetched asynchronously
+		// while the previous one is being checked, so the round trips overlap.
+		List<String> prev = new ArrayList<String>();
+		List<String> cur = new ArrayList<String>();
+		boolean more = true;
+		while (more) {
+			more = reader.next(text, f);
+			if (more)
+				cur.add(text.toString());
+
+			if (cur.size() == BATCH_SIZE || (!more && !cur.isEmpty())) {
+				sideData.prefetch(cur);
+				cnt += verify(sideData, prev);
 				System.out.print(".");
-			
-			// System.out.println(text + " " + f);
-			Object obj = myMCC.get(text.toString());
-			if (obj == null)
-				throw new RuntimeException("Error getting from memcache: key=" + text);
-			cnt++;
+
+				List<String> tmp = prev;
+				prev = cur;
+				cur = tmp;
+				cur.clear();
+			}
 		}
+		cnt += verify(sideData, prev);
 		reader.close();
+		sideData.close();
 		long endTime = System.currentTimeMillis();
 		long diff = (endTime-startTime);
 		
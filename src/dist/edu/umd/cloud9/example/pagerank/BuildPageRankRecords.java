@@ -36,6 +36,7 @@ import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.util.TextTokenizer;
 
 /**
  * <p>
@@ -50,6 +51,12 @@ import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
  * <li>[numNodes]: number of nodes in the graph</li>
  * </ul>
  *
+ * <p>
+ * A graph in binary CSR format needs no conversion: {@link RunPageRankBasic}
+ * and {@link PartitionGraph} read it directly with
+ * {@link PageRankNodeInputFormat}.
+ * </p>
+ *
  * @author Jimmy Lin
  * @author Michael Schatz
 s */
@@ -62,6 +69,8 @@ public class BuildPageRankRecords extends Configured implements Tool {
 
 		private static IntWritable nid = new IntWritable();
 		private static PageRankNode node = new PageRankNode();
+		private static ArrayListOfIntsWritable neighbors = new ArrayListOfIntsWritable();
+		private static TextTokenizer tokenizer = new TextTokenizer();
 
 		@Override
 		public void setup(Mapper<LongWritable, Text, IntWritable, PageRankNode>.Context context) {
@@ -76,28 +85,24 @@ public class BuildPageRankRecords extends Configured implements Tool {
     @Override
     public void map(LongWritable key, Text t, Context context)
         throws IOException, InterruptedException {
-			String[] arr = t.toString().trim().split("\\s+");
-
-			nid.set(Integer.parseInt(arr[0]));
-			if (arr.length == 1) {
-				node.setNodeId(Integer.parseInt(arr[0]));
-				node.setAdjacencyList(new ArrayListOfIntsWritable());
-
-			} else {
-				node.setNodeId(Integer.parseInt(arr[0]));
-
-				int[] neighbors = new int[arr.length - 1];
-				for (int i = 1; i < arr.length; i++) {
-					neighbors[i - 1] = Integer.parseInt(arr[i]);
-				}
-
-				node.setAdjacencyList(new ArrayListOfIntsWritable(neighbors));
+			// Parse the node id and its neighbors straight from the bytes of the line.
+			tokenizer.reset(t);
+			tokenizer.next();
+			int id = tokenizer.getInt();
+
+			neighbors.clear();
+			while (tokenizer.next()) {
+				neighbors.add(tokenizer.getInt());
 			}
 
+			nid.set(id);
+			node.setNodeId(id);
+			node.setAdjacencyList(neighbors);
+
 			context.getCounter("graph", "numNodes").increment(1);
-			context.getCounter("graph", "numEdges").increment(arr.length - 1);
+			context.getCounter("graph", "numEdges").increment(neighbors.size());
 
-			if (arr.length > 1) {
+			if (neighbors.size() > 0) {
 			  context.getCounter("graph", "numActiveNodes").increment(1);
 			}
 
@@ -0,0 +1,56 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.example.pagerank;
+
+import org.apache.hadoop.conf.Configuration;
+
+import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
+import edu.umd.cloud9.mapreduce.lib.input.CSRGraphInputFormat;
+
+/**
+ * Input format reading a {@link CSRGraph} as {@link PageRankNode}s with uniform initial PageRank,
+ * the same records as {@link BuildPageRankRecords} writes, so that the first iteration of PageRank
+ * runs directly on the graph. The number of nodes in the graph is taken from the property
+ * {@link #NODE_COUNT_PROPERTY}.
+ */
+public class PageRankNodeInputFormat extends CSRGraphInputFormat<PageRankNode> {
+	/**
+	 * Property holding the number of nodes in the graph.
+	 */
+	public static final String NODE_COUNT_PROPERTY = "NodeCount";
+
+	@Override
+	protected PageRankNode createValue(Configuration conf) {
+		int n = conf.getInt(NODE_COUNT_PROPERTY, 0);
+		if (n == 0) {
+			throw new RuntimeException(NODE_COUNT_PROPERTY + " cannot be 0!");
+		}
+
+		PageRankNode node = new PageRankNode();
+		node.setType(PageRankNode.Type.Complete);
+		node.setPageRank((float) -StrictMath.log(n));
+		return node;
+	}
+
+	@Override
+	protected void setValue(PageRankNode value, int node, ArrayListOfIntsWritable neighbors) {
+		value.setNodeId(node);
+		value.setAdjacencyList(neighbors);
+	}
+}
@@ -29,6 +29,7 @@ import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
+import edu.umd.cloud9.io.graph.CSRGraph;
 import edu.umd.cloud9.mapreduce.lib.input.NonSplitableSequenceFileInputFormat;
 
 /**
@@ -47,6 +48,19 @@ import edu.umd.cloud9.mapreduce.lib.input.NonSplitableSequenceFileInputFormat;
  * 
  * </ul>
  * 
+ * <p>
+ * With range partitioning, node ids are divided evenly over [0, nodeCount)
+ * unless split points computed by {@link SampleRangeSplitPoints} are supplied
+ * with <code>-D RangeSplitPoints=[file]</code>; the same option must then be
+ * passed to {@link RunPageRankBasic} or {@link RunPageRankSchimmy}.
+ * </p>
+ * 
+ * <p>
+ * The input may also be a {@link CSRGraph}, which is read with
+ * {@link PageRankNodeInputFormat} instead of being converted by
+ * {@link BuildPageRankRecords} first.
+ * </p>
+ * 
  * @author Jimmy Lin
  * @author Michael Schatz
  * 
@@ -87,7 +101,7 @@ public class PartitionGraph extends Configured implements Tool {
 		sLogger.info(" - nodeCnt: " + nodeCount);
 
 		Configuration conf = getConf();
-		conf.setInt("NodeCount", nodeCount);
+		conf.setInt(PageRankNodeInputFormat.NODE_COUNT_PROPERTY, nodeCount);
 
 		Job job = new Job(conf, "Partition Graph " + numParts);
 		job.setJarByClass(PartitionGraph.class);
@@ -97,7 +111,12 @@ public class PartitionGraph extends Configured implements Tool {
 		FileInputFormat.setInputPaths(job, new Path(inPath));
 		FileOutputFormat.setOutputPath(job, new Path(outPath));
 
-		job.setInputFormatClass(NonSplitableSequenceFileInputFormat.class);
+		if (CSRGraph.isGraph(new Path(inPath), FileSystem.get(conf))) {
+			sLogger.info("reading input as a CSR graph");
+			job.setInputFormatClass(PageRankNodeInputFormat.class);
+		} else {
+			job.setInputFormatClass(NonSplitableSequenceFileInputFormat.class);
+		}
 		job.setOutputFormatClass(SequenceFileOutputFormat.class);
 
 		job.setMapOutputKeyClass(IntWritable.class);
@@ -24,7 +24,9 @@ import org.apache.hadoop.mapreduce.Partitioner;
 
 /**
  * Ranger partitioner. In the context of graph algorithms, ensures that
- * consecutive node ids are blocked together.
+ * consecutive node ids are blocked together. By default, divides [0, NodeCount)
+ * evenly; if {@link RangeSplitPoints#PATH_PROPERTY} is set, uses the split
+ * points in that file instead (see {@link SampleRangeSplitPoints}).
  * 
  * @author Jimmy Lin
  * @author Michael Schatz
@@ -32,12 +34,21 @@ import org.apache.hadoop.mapreduce.Partitioner;
  */
 public class RangePartitioner extends Partitioner<IntWritable, Writable> implements Configurable {
 	private int nodeCnt = 0;
+	private int[] splits = null;
 	private Configuration conf;
 
 	public RangePartitioner() {}
 
 	@Override
 	public int getPartition(IntWritable key, Writable value, int numReduceTasks) {
+		if (splits != null) {
+			if (numReduceTasks != splits.length + 1) {
+				throw new RuntimeException("Split points are for " + (splits.length + 1)
+				    + " partitions, but there are " + numReduceTasks + " reduce tasks!");
+			}
+			return RangeSplitPoints.getPartition(splits, key.get());
+		}
+
 		return (int) (((float) key.get() / (float) nodeCnt) * numReduceTasks) % numReduceTasks;
 	}
 
@@ -54,5 +65,6 @@ public class RangePartitioner extends Partitioner<IntWritable, Writable> impleme
 
 	private void configure() {
 		nodeCnt = conf.getInt("NodeCount", 0);
+		splits = RangeSplitPoints.load(conf);
 	}
 }
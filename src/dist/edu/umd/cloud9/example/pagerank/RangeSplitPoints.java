@@ -0,0 +1,162 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.example.pagerank;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Split points for range partitioning of node ids, as computed by {@link SampleRangeSplitPoints}.
+ * With <i>n</i> partitions there are <i>n</i>-1 strictly increasing split points: partition
+ * <i>i</i> holds node ids in [<code>splits[i-1]</code>, <code>splits[i]</code>).
+ *
+ * <p>
+ * When the {@link #PATH_PROPERTY} property is set, both {@link RangePartitioner}s use these split
+ * points instead of dividing [0, NodeCount) evenly. The same file must be used for partitioning the
+ * graph and for every subsequent iteration, so that partitions continue to line up with part files
+ * on disk (which Schimmy depends on).
+ * </p>
+ */
+public class RangeSplitPoints {
+  public static final String PATH_PROPERTY = "RangeSplitPoints";
+
+  private RangeSplitPoints() {}
+
+  /**
+   * Returns the partition that a node id belongs to.
+   *
+   * @param splits split points
+   * @param nid node id
+   * @return partition, between 0 and <code>splits.length</code> (inclusive)
+   */
+  public static int getPartition(int[] splits, int nid) {
+    int idx = Arrays.binarySearch(splits, nid);
+    return idx >= 0 ? idx + 1 : -(idx + 1);
+  }
+
+  /**
+   * Computes split points from a weighted sample of node ids. Each split point is a sampled node
+   * id, so every partition is guaranteed to contain at least one node.
+   *
+   * @param nids sampled node ids, sorted in increasing order without duplicates
+   * @param weights weight of each sampled node id
+   * @param size number of samples
+   * @param numPartitions number of partitions
+   * @return split points
+   */
+  public static int[] compute(int[] nids, float[] weights, int size, int numPartitions) {
+    if (numPartitions < 1) {
+      throw new IllegalArgumentException("Number of partitions must be positive!");
+    }
+    if (size < numPartitions) {
+      throw new IllegalArgumentException("Need at least as many samples as partitions: " + size
+          + " samples, " + numPartitions + " partitions");
+    }
+
+    double total = 0.0;
+    for (int i = 0; i < size; i++) {
+      total += weights[i];
+    }
+
+    int[] splits = new int[numPartitions - 1];
+
+    // Index of the sample that starts the current partition, and the total weight before it.
+    int idx = 0;
+    double before = 0.0;
+    for (int k = 1; k < numPartitions; k++) {
+      double target = total * k / numPartitions;
+
+      int prev = idx;
+      while (idx < size && before + weights[idx] / 2 < target) {
+        before += weights[idx];
+        idx++;
+      }
+
+      // Every partition must get at least one sample, including the ones still to come.
+      int lo = prev + 1;
+      int hi = size - (numPartitions - k);
+      while (idx < lo) {
+        before += weights[idx];
+        idx++;
+      }
+      while (idx > hi) {
+        idx--;
+        before -= weights[idx];
+      }
+
+      splits[k - 1] = nids[idx];
+    }
+
+    return splits;
+  }
+
+  /**
+   * Writes split points to a file.
+   */
+  public static void write(int[] splits, Path path, FileSystem fs) throws IOException {
+    FSDataOutputStream out = fs.create(path, true);
+    out.writeInt(splits.length);
+    for (int s : splits) {
+      out.writeInt(s);
+    }
+    out.close();
+  }
+
+  /**
+   * Reads split points from a file.
+   */
+  public static int[] read(Path path, FileSystem fs) throws IOException {
+    FSDataInputStream in = fs.open(path);
+    try {
+      int[] splits = new int[in.readInt()];
+      for (int i = 0; i < splits.length; i++) {
+        splits[i] = in.readInt();
+        if (i > 0 && splits[i] <= splits[i - 1]) {
+          throw new IOException("Split points not strictly increasing in " + path);
+        }
+      }
+      return splits;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Reads the split points named by the {@link #PATH_PROPERTY} property.
+   *
+   * @return split points, or <code>null</code> if the property isn't set
+   */
+  public static int[] load(Configuration conf) {
+    String path = conf.get(PATH_PROPERTY);
+    if (path == null) {
+      return null;
+    }
+
+    try {
+      Path p = new Path(path);
+      return read(p, p.getFileSystem(conf));
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to read split points from " + path, e);
+    }
+  }
+}
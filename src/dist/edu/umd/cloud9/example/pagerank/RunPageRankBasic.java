@@ -42,9 +42,11 @@ import org.apache.log4j.Logger;
 import com.google.common.base.Preconditions;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
 import edu.umd.cloud9.mapreduce.lib.input.NonSplitableSequenceFileInputFormat;
-import edu.umd.cloud9.util.map.HMapIF;
-import edu.umd.cloud9.util.map.MapIF;
+import edu.umd.cloud9.math.LogMath;
+import edu.umd.cloud9.util.combine.InMapperCombiner;
+import edu.umd.cloud9.util.combine.InMapperCombinerIF;
 
 /**
  * <p>
@@ -68,7 +70,17 @@ import edu.umd.cloud9.util.map.MapIF;
  * example, if you specify 0 and 10 as the starting and ending iterations, the
  * driver program will start with the graph structure stored at
  * <code>/base/path/iter0000</code>; final results will be stored at
- * <code>/base/path/iter0010</code>.
+ * <code>/base/path/iter0010</code>. The starting graph structure may also be a
+ * {@link CSRGraph}, e.g., written by
+ * <code>GenerateTabDelimitedWebGraph -csr</code>, which is read with
+ * {@link PageRankNodeInputFormat} instead of being converted by {@link BuildPageRankRecords}.
+ * </p>
+ * 
+ * <p>
+ * PageRank mass is added up exactly. Setting <code>cloud9.logmath.exact</code> to
+ * <code>false</code> (e.g., <code>-D cloud9.logmath.exact=false</code>) uses
+ * {@link LogMath#addFast(float, float)} instead, which is faster but off by up to
+ * {@link LogMath#ERROR_BOUND} per addition.
  * </p>
  * 
  * @see RunPageRankSchimmy
@@ -140,12 +152,36 @@ public class RunPageRankBasic extends Configured implements Tool {
   private static class MapWithInMapperCombiningClass extends
       Mapper<IntWritable, PageRankNode, IntWritable, PageRankNode> {
 
-    // For buffering PageRank mass contributes keyed by destination node.
-    private static final HMapIF map = new HMapIF();
+    // For buffering PageRank mass contributes keyed by destination node, within a memory budget.
+    private InMapperCombinerIF combiner;
 
     // For passing along node structure.
     private static final PageRankNode intermediateStructure = new PageRankNode();
 
+    @Override
+    public void setup(final Context context) {
+      final IntWritable k = new IntWritable();
+      final PageRankNode mass = new PageRankNode();
+      mass.setType(PageRankNode.Type.Mass);
+
+      final boolean exact = isExact(context.getConfiguration());
+      combiner = new InMapperCombinerIF(context.getConfiguration()) {
+        @Override
+        protected float combine(float a, float b) {
+          return sumLogProbs(a, b, exact);
+        }
+
+        @Override
+        protected void emit(int key, float value) throws IOException, InterruptedException {
+          k.set(key);
+          mass.setNodeId(key);
+          mass.setPageRank(value);
+
+          context.write(k, mass);
+        }
+      };
+    }
+
     @Override
     public void map(IntWritable nid, PageRankNode node, Context context) throws IOException,
         InterruptedException {
@@ -168,18 +204,13 @@ public class RunPageRankBasic extends Configured implements Tool {
 
         context.getCounter(PageRank.edges).increment(list.size());
 
-        // Iterate over neighbors.
+        // Iterate over neighbors; a message already destined for a neighbor gets the PageRank mass
+        // added to it.
         for (int i = 0; i < list.size(); i++) {
-          int neighbor = list.get(i);
-
-          if (map.containsKey(neighbor)) {
-            // Already message destined for that node; add PageRank mass contribution.
-            massMessagesSaved++;
-            map.put(neighbor, sumLogProbs(map.get(neighbor), mass));
-          } else {
-            // New destination node; add new entry in map.
+          if (combiner.add(list.get(i), mass)) {
             massMessages++;
-            map.put(neighbor, mass);
+          } else {
+            massMessagesSaved++;
           }
         }
       }
@@ -193,19 +224,9 @@ public class RunPageRankBasic extends Configured implements Tool {
     @Override
     public void cleanup(Mapper<IntWritable, PageRankNode, IntWritable, PageRankNode>.Context context)
         throws IOException, InterruptedException {
-      // Now emit the messages all at once.
-      IntWritable k = new IntWritable();
-      PageRankNode mass = new PageRankNode();
-
-      for (MapIF.Entry e : map.entrySet()) {
-        k.set(e.getKey());
-
-        mass.setNodeId(e.getKey());
-        mass.setType(PageRankNode.Type.Mass);
-        mass.setPageRank(e.getValue());
-
-        context.write(k, mass);
-      }
+      // Now emit the remaining messages all at once.
+      combiner.flush();
+      combiner.incrementCounters(context);
     }
   }
 
@@ -215,6 +236,13 @@ public class RunPageRankBasic extends Configured implements Tool {
 
     private static final PageRankNode intermediateMass = new PageRankNode();
 
+    private boolean exact = true;
+
+    @Override
+    public void setup(Context context) {
+      exact = isExact(context.getConfiguration());
+    }
+
     @Override
     public void reduce(IntWritable nid, Iterable<PageRankNode> values, Context context)
         throws IOException, InterruptedException {
@@ -229,7 +257,7 @@ public class RunPageRankBasic extends Configured implements Tool {
           context.write(nid, n);
         } else {
           // Accumulate PageRank mass contributions.
-          mass = sumLogProbs(mass, n.getPageRank());
+          mass = sumLogProbs(mass, n.getPageRank(), exact);
           massMessages++;
         }
       }
@@ -253,6 +281,13 @@ public class RunPageRankBasic extends Configured implements Tool {
     // through dangling nodes.
     private float totalMass = Float.NEGATIVE_INFINITY;
 
+    private boolean exact = true;
+
+    @Override
+    public void setup(Context context) {
+      exact = isExact(context.getConfiguration());
+    }
+
     @Override
     public void reduce(IntWritable nid, Iterable<PageRankNode> iterable, Context context)
         throws IOException, InterruptedException {
@@ -280,7 +315,7 @@ public class RunPageRankBasic extends Configured implements Tool {
           node.setAdjacencyList(list);
         } else {
           // This is a message that contains PageRank mass; accumulate.
-          mass = sumLogProbs(mass, n.getPageRank());
+          mass = sumLogProbs(mass, n.getPageRank(), exact);
           massMessagesReceived++;
         }
       }
@@ -295,7 +330,7 @@ public class RunPageRankBasic extends Configured implements Tool {
         context.write(nid, node);
 
         // Keep track of total PageRank mass.
-        totalMass = sumLogProbs(totalMass, mass);
+        totalMass = sumLogProbs(totalMass, mass, exact);
       } else if (structureReceived == 0) {
         // We get into this situation if there exists an edge pointing to a node which has no
         // corresponding node structure (i.e., PageRank mass was passed to a non-existent node)...
@@ -339,6 +374,7 @@ public class RunPageRankBasic extends Configured implements Tool {
 
     private float missingMass = 0.0f;
     private int nodeCnt = 0;
+    private boolean exact = true;
 
     @Override
     public void setup(Mapper<IntWritable, PageRankNode, IntWritable, PageRankNode>.Context context)
@@ -347,6 +383,7 @@ public class RunPageRankBasic extends Configured implements Tool {
 
       missingMass = conf.getFloat("MissingMass", 0.0f);
       nodeCnt = conf.getInt("NodeCount", 0);
+      exact = isExact(conf);
     }
 
     @Override
@@ -357,9 +394,9 @@ public class RunPageRankBasic extends Configured implements Tool {
 
       float jump = (float) (Math.log(ALPHA) - Math.log(nodeCnt));
       float link = (float) Math.log(1.0f - ALPHA)
-          + sumLogProbs(p, (float) (Math.log(missingMass) - Math.log(nodeCnt)));
+          + sumLogProbs(p, (float) (Math.log(missingMass) - Math.log(nodeCnt)), exact);
 
-      p = sumLogProbs(jump, link);
+      p = sumLogProbs(jump, link, exact);
       node.setPageRank(p);
 
       context.write(nid, node);
@@ -463,7 +500,7 @@ public class RunPageRankBasic extends Configured implements Tool {
 
     int numReduceTasks = numPartitions;
 
-    job.getConfiguration().setInt("NodeCount", numNodes);
+    job.getConfiguration().setInt(PageRankNodeInputFormat.NODE_COUNT_PROPERTY, numNodes);
     job.getConfiguration().setBoolean("mapred.map.tasks.speculative.execution", false);
     job.getConfiguration().setBoolean("mapred.reduce.tasks.speculative.execution", false);
     job.getConfiguration().set("mapred.child.java.opts", "-Xmx2048m");
@@ -474,7 +511,13 @@ public class RunPageRankBasic extends Configured implements Tool {
     FileInputFormat.setInputPaths(job, new Path(in));
     FileOutputFormat.setOutputPath(job, new Path(out));
 
-    job.setInputFormatClass(NonSplitableSequenceFileInputFormat.class);
+    // The first iteration may start directly from a graph in CSR format.
+    if (CSRGraph.isGraph(new Path(in), FileSystem.get(getConf()))) {
+      LOG.info("reading input as a CSR graph");
+      job.setInputFormatClass(PageRankNodeInputFormat.class);
+    } else {
+      job.setInputFormatClass(NonSplitableSequenceFileInputFormat.class);
+    }
     job.setOutputFormatClass(SequenceFileOutputFormat.class);
 
     job.setMapOutputKeyClass(IntWritable.class);
@@ -496,11 +539,20 @@ public class RunPageRankBasic extends Configured implements Tool {
 
     job.waitForCompletion(true);
 
+    if (useInMapperCombiner) {
+      long updates = job.getCounters().findCounter(InMapperCombiner.Counter.UPDATES).getValue();
+      long emitted = job.getCounters().findCounter(InMapperCombiner.Counter.EMITTED).getValue();
+      LOG.info("in-mapper combining: " + updates + " messages combined into " + emitted + ", "
+          + job.getCounters().findCounter(InMapperCombiner.Counter.FLUSHES).getValue()
+          + " partial flushes");
+    }
+
+    boolean exact = isExact(getConf());
     float mass = Float.NEGATIVE_INFINITY;
     FileSystem fs = FileSystem.get(getConf());
     for (FileStatus f : fs.listStatus(new Path(outm))) {
       FSDataInputStream fin = fs.open(f.getPath());
-      mass = sumLogProbs(mass, fin.readFloat());
+      mass = sumLogProbs(mass, fin.readFloat(), exact);
       fin.close();
     }
 
@@ -547,8 +599,16 @@ public class RunPageRankBasic extends Configured implements Tool {
     job.waitForCompletion(true);
   }
 
-  // Adds two log probs.
-  private static float sumLogProbs(float a, float b) {
+  // Whether to add log probs exactly, which is the default.
+  private static boolean isExact(Configuration conf) {
+    return conf.getBoolean(LogMath.EXACT_PROPERTY, true);
+  }
+
+  // Adds two log probs, with LogMath.addFast unless exact.
+  private static float sumLogProbs(float a, float b, boolean exact) {
+    if (!exact)
+      return LogMath.addFast(a, b);
+
     if (a == Float.NEGATIVE_INFINITY)
       return b;
 
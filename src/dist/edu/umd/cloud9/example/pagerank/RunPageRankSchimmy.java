@@ -51,6 +51,7 @@ import com.google.common.base.Preconditions;
 
 import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
 import edu.umd.cloud9.mapreduce.lib.input.NonSplitableSequenceFileInputFormat;
+import edu.umd.cloud9.math.LogMath;
 import edu.umd.cloud9.util.map.HMapIF;
 import edu.umd.cloud9.util.map.MapIF;
 
@@ -79,6 +80,13 @@ import edu.umd.cloud9.util.map.MapIF;
  * <code>/base/path/iter0010</code>.
  * </p>
  *
+ * <p>
+ * PageRank mass is added up exactly. Setting <code>cloud9.logmath.exact</code> to
+ * <code>false</code> (e.g., <code>-D cloud9.logmath.exact=false</code>) uses
+ * {@link LogMath#addFast(float, float)} instead, which is faster but off by up to
+ * {@link LogMath#ERROR_BOUND} per addition.
+ * </p>
+ *
  * @see RunPageRankBasic
  * @author Jimmy Lin
  * @author Michael Schatz
@@ -136,6 +144,13 @@ public class RunPageRankSchimmy extends Configured implements Tool {
     // For buffering PageRank mass contributes keyed by destination node.
     private static HMapIF map = new HMapIF();
 
+    private boolean exact = true;
+
+    @Override
+    public void setup(Context context) {
+      exact = isExact(context.getConfiguration());
+    }
+
     public void map(IntWritable nid, PageRankNode node, Context context) throws IOException,
         InterruptedException {
 
@@ -155,7 +170,7 @@ public class RunPageRankSchimmy extends Configured implements Tool {
           if (map.containsKey(neighbor)) {
             // Already message destined for that node; add PageRank mass contribution.
             massMessagesSaved++;
-            map.put(neighbor, sumLogProbs(map.get(neighbor), mass));
+            map.put(neighbor, sumLogProbs(map.get(neighbor), mass, exact));
           } else {
             // New destination node; add new entry in map.
             massMessages++;
@@ -193,6 +208,13 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 
     private static final FloatWritable intermediateMass = new FloatWritable();
 
+    private boolean exact = true;
+
+    @Override
+    public void setup(Context context) {
+      exact = isExact(context.getConfiguration());
+    }
+
     @Override
     public void reduce(IntWritable nid, Iterable<FloatWritable> values, Context context)
         throws IOException, InterruptedException {
@@ -203,7 +225,7 @@ public class RunPageRankSchimmy extends Configured implements Tool {
       float mass = Float.NEGATIVE_INFINITY;
       for (FloatWritable n : values) {
         // Accumulate PageRank mass contributions
-        mass = sumLogProbs(mass, n.get());
+        mass = sumLogProbs(mass, n.get(), exact);
 
         massMessages++;
       }
@@ -229,12 +251,15 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 
     private boolean hdfsAhead = false;
 
+    private boolean exact = true;
+
     @Override
     public void setup(Reducer<IntWritable, FloatWritable, IntWritable, PageRankNode>.Context context)
         throws IOException {
       // We're going to open up the file on HDFS that has corresponding node structures. To do this,
       // we get the task id and map it to the corresponding part.
       Configuration conf = context.getConfiguration();
+      exact = isExact(conf);
 
       String taskId = conf.get("mapred.task.id");
       Preconditions.checkNotNull(taskId);
@@ -336,10 +361,10 @@ public class RunPageRankSchimmy extends Configured implements Tool {
         float n = f.get();
         massMessagesReceived++;
 
-        mass = sumLogProbs(mass, n);
+        mass = sumLogProbs(mass, n, exact);
       }
 
-      totalMass = sumLogProbs(totalMass, mass);
+      totalMass = sumLogProbs(totalMass, mass, exact);
 
       // Populate the node structure with the updated PageRank value.
       hdfsNode.setPageRank(mass);
@@ -393,6 +418,7 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 
     private float missingMass = 0.0f;
     private int nodeCnt = 0;
+    private boolean exact = true;
 
     @Override
     public void setup(Mapper<IntWritable, PageRankNode, IntWritable, PageRankNode>.Context context)
@@ -401,6 +427,7 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 
       missingMass = conf.getFloat("MissingMass", 0.0f);
       nodeCnt = conf.getInt("NodeCount", 0);
+      exact = isExact(conf);
     }
 
     @Override
@@ -411,9 +438,9 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 
       float jump = (float) (Math.log(ALPHA) - Math.log(nodeCnt));
       float link = (float) Math.log(1.0f - ALPHA)
-          + sumLogProbs(p, (float) (Math.log(missingMass) - Math.log(nodeCnt)));
+          + sumLogProbs(p, (float) (Math.log(missingMass) - Math.log(nodeCnt)), exact);
 
-      p = sumLogProbs(jump, link);
+      p = sumLogProbs(jump, link, exact);
       node.setPageRank(p);
 
       context.write(nid, node);
@@ -609,10 +636,11 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 
 		job.waitForCompletion(true);
 
+		boolean exact = isExact(conf);
 		float mass = Float.NEGATIVE_INFINITY;
 		for (FileStatus f : fs.listStatus(new Path(outm))) {
 			FSDataInputStream fin = fs.open(f.getPath());
-			mass = sumLogProbs(mass, fin.readFloat());
+			mass = sumLogProbs(mass, fin.readFloat(), exact);
 			fin.close();
 		}
 
@@ -658,8 +686,16 @@ public class RunPageRankSchimmy extends Configured implements Tool {
 		job.waitForCompletion(true);
 	}
 
-	// adds two log probs
-	private static float sumLogProbs(float a, float b) {
+	// whether to add log probs exactly, which is the default
+	private static boolean isExact(Configuration conf) {
+		return conf.getBoolean(LogMath.EXACT_PROPERTY, true);
+	}
+
+	// adds two log probs, with LogMath.addFast unless exact
+	private static float sumLogProbs(float a, float b, boolean exact) {
+		if (!exact)
+			return LogMath.addFast(a, b);
+
 		if (a == Float.NEGATIVE_INFINITY)
 			return b;
 
@@ -0,0 +1,229 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.example.pagerank;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+import edu.umd.cloud9.example.hits.HITSNode;
+import edu.umd.cloud9.util.array.ArrayListOfFloats;
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+
+/**
+ * <p>
+ * Samples node ids from a graph and computes {@link RangeSplitPoints} that divide the graph into
+ * partitions of roughly equal work, rather than equal ranges of node ids. Input is a directory of
+ * <code>SequenceFile</code>s of {@link PageRankNode}s or {@link HITSNode}s keyed by node id; the
+ * work associated with a node is taken to be one plus the size of its adjacency list(s).
+ * </p>
+ *
+ * <p>
+ * Each node is sampled with probability proportional to its weight (capped at one), and carries
+ * its weight divided by that probability, so that heavy nodes are always accounted for and the
+ * total weight of each range is estimated without bias. A single reducer receives the samples in
+ * node id order and writes out the split points. Command-line arguments are as follows:
+ * </p>
+ *
+ * <ul>
+ * <li>[inputDir]: input directory</li>
+ * <li>[outputFile]: file to write split points to</li>
+ * <li>[numPartitions]: number of partitions</li>
+ * <li>[nodeCount]: number of nodes in the graph</li>
+ * <li>[sampleSize]: (optional) number of nodes to sample, before weighting; defaults to 100000</li>
+ * </ul>
+ *
+ * <p>
+ * Pass the output file to {@link PartitionGraph} and to the PageRank or HITS drivers with
+ * <code>-D RangeSplitPoints=[outputFile]</code>, and turn on range partitioning.
+ * </p>
+ */
+public class SampleRangeSplitPoints extends Configured implements Tool {
+  private static final Logger LOG = Logger.getLogger(SampleRangeSplitPoints.class);
+
+  private static final String SAMPLE_RATE_FIELD = "RangeSplitPoints.SampleRate";
+  private static final String NUM_PARTITIONS_FIELD = "RangeSplitPoints.NumPartitions";
+  private static final int DEFAULT_SAMPLE_SIZE = 100000;
+
+  private static enum Samples {
+    Nodes, Sampled
+  };
+
+  private static class MyMapper extends Mapper<IntWritable, Writable, IntWritable, FloatWritable> {
+    private static final FloatWritable weight = new FloatWritable();
+
+    private float rate;
+    private Random random;
+
+    @Override
+    public void setup(Context context) {
+      rate = context.getConfiguration().getFloat(SAMPLE_RATE_FIELD, 1.0f);
+      random = new Random(context.getTaskAttemptID().getTaskID().getId());
+    }
+
+    @Override
+    public void map(IntWritable nid, Writable node, Context context) throws IOException,
+        InterruptedException {
+      context.getCounter(Samples.Nodes).increment(1);
+
+      float w = 1 + getDegree(node);
+      float p = Math.min(1.0f, w * rate);
+      if (p < 1.0f && random.nextFloat() >= p) {
+        return;
+      }
+
+      context.getCounter(Samples.Sampled).increment(1);
+      weight.set(w / p);
+      context.write(nid, weight);
+    }
+  }
+
+  private static class MyReducer extends
+      Reducer<IntWritable, FloatWritable, NullWritable, NullWritable> {
+    private final ArrayListOfInts nids = new ArrayListOfInts();
+    private final ArrayListOfFloats weights = new ArrayListOfFloats();
+
+    @Override
+    public void reduce(IntWritable nid, Iterable<FloatWritable> values, Context context) {
+      float w = 0.0f;
+      for (FloatWritable v : values) {
+        w += v.get();
+      }
+
+      nids.add(nid.get());
+      weights.add(w);
+    }
+
+    @Override
+    public void cleanup(Context context) throws IOException {
+      Configuration conf = context.getConfiguration();
+
+      int[] splits = RangeSplitPoints.compute(nids.getArray(), weights.getArray(), nids.size(),
+          conf.getInt(NUM_PARTITIONS_FIELD, 1));
+
+      Path path = new Path(conf.get(RangeSplitPoints.PATH_PROPERTY));
+      RangeSplitPoints.write(splits, path, path.getFileSystem(conf));
+    }
+  }
+
+  // Work associated with a node, beyond the node itself.
+  static int getDegree(Writable node) {
+    if (node instanceof PageRankNode) {
+      PageRankNode n = (PageRankNode) node;
+      return n.getAdjacenyList() == null ? 0 : n.getAdjacenyList().size();
+    }
+
+    if (node instanceof HITSNode) {
+      HITSNode n = (HITSNode) node;
+      return (n.getInlinks() == null ? 0 : n.getInlinks().size())
+          + (n.getOutlinks() == null ? 0 : n.getOutlinks().size());
+    }
+
+    return 0;
+  }
+
+  public SampleRangeSplitPoints() {}
+
+  private static int printUsage() {
+    System.out.println("usage: [inputDir] [outputFile] [numPartitions] [nodeCount] [sampleSize]");
+    ToolRunner.printGenericCommandUsage(System.out);
+    return -1;
+  }
+
+  /**
+   * Runs this tool.
+   */
+  public int run(String[] args) throws Exception {
+    if (args.length != 4 && args.length != 5) {
+      printUsage();
+      return -1;
+    }
+
+    String inPath = args[0];
+    String outPath = args[1];
+    int numParts = Integer.parseInt(args[2]);
+    int nodeCount = Integer.parseInt(args[3]);
+    int sampleSize = args.length == 5 ? Integer.parseInt(args[4]) : DEFAULT_SAMPLE_SIZE;
+
+    LOG.info("Tool name: SampleRangeSplitPoints");
+    LOG.info(" - inputDir: " + inPath);
+    LOG.info(" - outputFile: " + outPath);
+    LOG.info(" - numPartitions: " + numParts);
+    LOG.info(" - nodeCnt: " + nodeCount);
+    LOG.info(" - sampleSize: " + sampleSize);
+
+    Configuration conf = getConf();
+    conf.setFloat(SAMPLE_RATE_FIELD, Math.min(1.0f, (float) sampleSize / nodeCount));
+    conf.setInt(NUM_PARTITIONS_FIELD, numParts);
+    conf.set(RangeSplitPoints.PATH_PROPERTY, outPath);
+
+    Job job = new Job(conf, "SampleRangeSplitPoints " + numParts);
+    job.setJarByClass(SampleRangeSplitPoints.class);
+
+    job.setNumReduceTasks(1);
+
+    FileInputFormat.setInputPaths(job, new Path(inPath));
+
+    job.setInputFormatClass(SequenceFileInputFormat.class);
+    job.setOutputFormatClass(NullOutputFormat.class);
+
+    job.setMapOutputKeyClass(IntWritable.class);
+    job.setMapOutputValueClass(FloatWritable.class);
+
+    job.setOutputKeyClass(NullWritable.class);
+    job.setOutputValueClass(NullWritable.class);
+
+    job.setMapperClass(MyMapper.class);
+    job.setReducerClass(MyReducer.class);
+
+    if (!job.waitForCompletion(true)) {
+      return -1;
+    }
+
+    Path path = new Path(outPath);
+    int[] splits = RangeSplitPoints.read(path, path.getFileSystem(conf));
+    LOG.info("Split points: " + Arrays.toString(splits));
+
+    return 0;
+  }
+
+  /**
+   * Dispatches command-line arguments to the tool via the <code>ToolRunner</code>.
+   */
+  public static void main(String[] args) throws Exception {
+    int res = ToolRunner.run(new SampleRangeSplitPoints(), args);
+    System.exit(res);
+  }
+}
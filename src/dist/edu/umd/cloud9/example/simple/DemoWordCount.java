@@ -18,7 +18,6 @@ package edu.umd.cloud9.example.simple;
 
 import java.io.IOException;
 import java.util.Iterator;
-import java.util.StringTokenizer;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
@@ -36,6 +35,8 @@ import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 
+import edu.umd.cloud9.util.TextTokenizer;
+
 /**
  * <p>
  * Simple word count demo. This Hadoop Tool counts words in flat text file, and
@@ -59,14 +60,15 @@ public class DemoWordCount extends Configured implements Tool {
 		// reuse objects to save overhead of object creation
 		private final static IntWritable one = new IntWritable(1);
 		private Text word = new Text();
+		private TextTokenizer tokenizer = new TextTokenizer();
 
 		@Override
 		public void map(LongWritable key, Text value, Context context) throws IOException,
 				InterruptedException {
-			String line = ((Text) value).toString();
-			StringTokenizer itr = new StringTokenizer(line);
-			while (itr.hasMoreTokens()) {
-				word.set(itr.nextToken());
+			// tokenize the bytes of the line, without decoding it
+			tokenizer.reset(value);
+			while (tokenizer.next()) {
+				tokenizer.get(word);
 				context.write(word, one);
 			}
 		}
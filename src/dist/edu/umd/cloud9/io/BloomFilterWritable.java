@@ -0,0 +1,276 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Writable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Writable Bloom filter over strings: a set that can answer membership queries with false
+ * positives, but never with false negatives, in a fixed number of bits. A typical use is to drop,
+ * map-side, records that cannot take part in a reduce-side join: the filter is built over the join
+ * keys of one side, and records of the other side whose key is not in the filter are not shuffled.
+ * </p>
+ *
+ * <p>
+ * Keys are hashed over their characters, so a key is found whatever the <code>CharSequence</code>
+ * it is given as. Filters with the same number of bits and hash functions, e.g., built by different
+ * map tasks with {@link #create(long, double)}, can be merged with {@link #or(BloomFilterWritable)}.
+ * A filter is written as the number of bits (a long), the number of hash functions (an int), and
+ * the words of the bit array.
+ * </p>
+ */
+public class BloomFilterWritable implements Writable {
+	private long numBits;
+	private int numHashes;
+	private long[] words;
+
+	/**
+	 * Creates an empty <code>BloomFilterWritable</code>, to be deserialized.
+	 */
+	public BloomFilterWritable() {
+		this.words = new long[0];
+	}
+
+	/**
+	 * Creates an empty filter.
+	 *
+	 * @param numBits number of bits
+	 * @param numHashes number of hash functions
+	 */
+	public BloomFilterWritable(long numBits, int numHashes) {
+		Preconditions.checkArgument(numBits > 0 && numBits <= 64L * Integer.MAX_VALUE);
+		Preconditions.checkArgument(numHashes > 0);
+
+		this.numBits = numBits;
+		this.numHashes = numHashes;
+		this.words = new long[(int) ((numBits + 63) >>> 6)];
+	}
+
+	/**
+	 * Creates an empty filter sized for a number of keys and a false positive rate.
+	 *
+	 * @param expectedKeys number of keys that will be added
+	 * @param falsePositiveRate false positive rate once the keys are added
+	 */
+	public static BloomFilterWritable create(long expectedKeys, double falsePositiveRate) {
+		Preconditions.checkArgument(expectedKeys > 0);
+		Preconditions.checkArgument(falsePositiveRate > 0.0 && falsePositiveRate < 1.0);
+
+		double ln2 = Math.log(2);
+		long m = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (ln2 * ln2));
+		int k = (int) Math.max(1, Math.round((double) m / expectedKeys * ln2));
+
+		return new BloomFilterWritable(m, k);
+	}
+
+	/**
+	 * Adds a key.
+	 */
+	public void add(CharSequence key) {
+		long h1 = hash(key);
+		long h2 = fmix(h1 + 0x9e3779b97f4a7c15L);
+
+		for (int i = 0; i < numHashes; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+			words[(int) (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if a key may have been added, or <code>false</code> if it definitely
+	 * was not.
+	 */
+	public boolean mightContain(CharSequence key) {
+		long h1 = hash(key);
+		long h2 = fmix(h1 + 0x9e3779b97f4a7c15L);
+
+		for (int i = 0; i < numHashes; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+			if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the keys of another filter to this one. Both filters must have the same number of bits
+	 * and hash functions.
+	 */
+	public void or(BloomFilterWritable other) {
+		if (numBits != other.numBits || numHashes != other.numHashes) {
+			throw new IllegalArgumentException("Filters of different sizes can't be merged!");
+		}
+
+		for (int i = 0; i < words.length; i++) {
+			words[i] |= other.words[i];
+		}
+	}
+
+	/**
+	 * Removes all keys.
+	 */
+	public void clear() {
+		Arrays.fill(words, 0L);
+	}
+
+	/**
+	 * Returns the number of bits.
+	 */
+	public long getNumBits() {
+		return numBits;
+	}
+
+	/**
+	 * Returns the number of hash functions.
+	 */
+	public int getNumHashes() {
+		return numHashes;
+	}
+
+	/**
+	 * Returns the number of bits set.
+	 */
+	public long getCardinality() {
+		long n = 0;
+		for (long w : words) {
+			n += Long.bitCount(w);
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the probability that a key that was not added is found, given the bits set.
+	 */
+	public double getFalsePositiveRate() {
+		return numBits == 0 ? 0.0 : Math.pow((double) getCardinality() / numBits, numHashes);
+	}
+
+	/**
+	 * Deserializes the filter.
+	 *
+	 * @param in source for raw byte representation
+	 */
+	public void readFields(DataInput in) throws IOException {
+		numBits = in.readLong();
+		numHashes = in.readInt();
+
+		int n = (int) ((numBits + 63) >>> 6);
+		if (words.length != n) {
+			words = new long[n];
+		}
+		for (int i = 0; i < n; i++) {
+			words[i] = in.readLong();
+		}
+	}
+
+	/**
+	 * Serializes the filter.
+	 *
+	 * @param out where to write the raw byte representation
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeLong(numBits);
+		out.writeInt(numHashes);
+
+		for (long w : words) {
+			out.writeLong(w);
+		}
+	}
+
+	/**
+	 * Loads a filter.
+	 *
+	 * @param path path to the filter
+	 * @param fs the file system the filter is on
+	 */
+	public static BloomFilterWritable load(Path path, FileSystem fs) throws IOException {
+		FSDataInputStream in = fs.open(path);
+
+		BloomFilterWritable filter = new BloomFilterWritable();
+		filter.readFields(in);
+		in.close();
+
+		return filter;
+	}
+
+	/**
+	 * Writes this filter to a file.
+	 *
+	 * @param path path to the filter
+	 * @param fs the file system to write the filter to
+	 */
+	public void save(Path path, FileSystem fs) throws IOException {
+		FSDataOutputStream out = fs.create(path, true);
+		write(out);
+		out.close();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof BloomFilterWritable)) {
+			return false;
+		}
+
+		BloomFilterWritable other = (BloomFilterWritable) obj;
+		return numBits == other.numBits && numHashes == other.numHashes
+				&& Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words) * 31 + numHashes;
+	}
+
+	@Override
+	public String toString() {
+		return "BloomFilter[bits: " + numBits + ", hashes: " + numHashes + ", set: "
+				+ getCardinality() + "]";
+	}
+
+	// 64-bit FNV-1a over the characters of the key, with the finalizer of MurmurHash3, so that the
+	// hash doesn't depend on the default charset or on String.hashCode()
+	private static long hash(CharSequence key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return fmix(h);
+	}
+
+	private static long fmix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+import edu.umd.cloud9.util.CompressedBitmap;
+
+/**
+ * <p>
+ * Writable representing a {@link CompressedBitmap}. A bitmap is written as the number of its
+ * containers (a variable-length int), followed by each container: the high 16 bits of its values
+ * (two bytes), the number of values minus one (a variable-length int), and either the low 16 bits
+ * of each value in ascending order (two bytes each), if there are at most 4096 values, or the 1024
+ * words of a bitmap of 2<sup>16</sup> bits.
+ * </p>
+ *
+ * <p>
+ * Bitmaps are compared lexicographically by their values in ascending (unsigned) order. The
+ * {@link Comparator} registered for this class compares serialized bitmaps by streaming through
+ * their values, without deserializing them.
+ * </p>
+ */
+public class CompressedBitmapWritable extends CompressedBitmap implements
+		WritableComparable<CompressedBitmap> {
+
+	/**
+	 * Creates an empty <code>CompressedBitmapWritable</code>.
+	 */
+	public CompressedBitmapWritable() {
+		super();
+	}
+
+	/**
+	 * Deserializes the bitmap.
+	 *
+	 * @param in source for raw byte representation
+	 */
+	public void readFields(DataInput in) throws IOException {
+		readContainers(in);
+	}
+
+	/**
+	 * Serializes the bitmap.
+	 *
+	 * @param out where to write the raw byte representation
+	 */
+	public void write(DataOutput out) throws IOException {
+		writeContainers(out);
+	}
+
+	/**
+	 * Returns the serialized representation of this object as a byte array.
+	 *
+	 * @return byte array representing the serialized representation of this object
+	 * @throws IOException
+	 */
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+		write(dataOut);
+
+		return bytesOut.toByteArray();
+	}
+
+	/**
+	 * Creates a <code>CompressedBitmapWritable</code> object from a <code>DataInput</code>.
+	 *
+	 * @param in source for reading the serialized representation
+	 * @return a newly-created <code>CompressedBitmapWritable</code> object
+	 * @throws IOException
+	 */
+	public static CompressedBitmapWritable create(DataInput in) throws IOException {
+		CompressedBitmapWritable bitmap = new CompressedBitmapWritable();
+		bitmap.readFields(in);
+
+		return bitmap;
+	}
+
+	/**
+	 * Creates a <code>CompressedBitmapWritable</code> object from a byte array.
+	 *
+	 * @param bytes source for reading the serialized representation
+	 * @return a newly-created <code>CompressedBitmapWritable</code> object
+	 * @throws IOException
+	 */
+	public static CompressedBitmapWritable create(byte[] bytes) throws IOException {
+		return create(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	/** Comparator optimized for <code>CompressedBitmapWritable</code>. */
+	public static class Comparator extends WritableComparator {
+
+		/**
+		 * Creates a new Comparator optimized for <code>CompressedBitmapWritable</code>.
+		 */
+		public Comparator() {
+			super(CompressedBitmapWritable.class);
+		}
+
+		/**
+		 * Optimization hook.
+		 */
+		public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+			try {
+				RawValues values1 = new RawValues(b1, s1);
+				RawValues values2 = new RawValues(b2, s2);
+
+				while (true) {
+					long v1 = values1.next();
+					long v2 = values2.next();
+					if (v1 != v2) {
+						return v1 < v2 ? -1 : 1;
+					}
+					if (v1 < 0) {
+						return 0;
+					}
+				}
+			} catch (IOException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+	}
+
+	// Reads the values of a serialized bitmap, in ascending order.
+	private static class RawValues {
+		private final byte[] bytes;
+		private int containersLeft;
+		private int pos;
+		private int end;
+		private long high;
+		private int valuesLeft = 0;
+		private boolean isBitmap;
+		private int wordBase;
+		private long word;
+
+		RawValues(byte[] bytes, int start) throws IOException {
+			this.bytes = bytes;
+			this.containersLeft = WritableComparator.readVInt(bytes, start);
+			this.end = start + WritableUtils.decodeVIntSize(bytes[start]);
+		}
+
+		// Returns the next value as an unsigned int, or -1 if there are no more values.
+		long next() throws IOException {
+			if (valuesLeft == 0) {
+				if (containersLeft == 0) {
+					return -1;
+				}
+				containersLeft--;
+
+				pos = end;
+				high = (long) WritableComparator.readUnsignedShort(bytes, pos) << 16;
+				pos += 2;
+				valuesLeft = WritableComparator.readVInt(bytes, pos) + 1;
+				pos += WritableUtils.decodeVIntSize(bytes[pos]);
+
+				isBitmap = valuesLeft > MAX_ARRAY_SIZE;
+				end = pos + (isBitmap ? 8 * BITMAP_WORDS : 2 * valuesLeft);
+				wordBase = -64;
+				word = 0;
+			}
+			valuesLeft--;
+
+			if (!isBitmap) {
+				int low = WritableComparator.readUnsignedShort(bytes, pos);
+				pos += 2;
+				return high | low;
+			}
+
+			while (word == 0) {
+				word = WritableComparator.readLong(bytes, pos);
+				pos += 8;
+				wordBase += 64;
+			}
+			int low = wordBase + Long.numberOfTrailingZeros(word);
+			word &= word - 1;
+			return high | low;
+		}
+	}
+
+	static { // register this comparator
+		WritableComparator.define(CompressedBitmapWritable.class, new Comparator());
+	}
+}
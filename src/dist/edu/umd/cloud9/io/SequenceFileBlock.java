@@ -0,0 +1,108 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * A fully-decompressed block of a block-compressed <code>SequenceFile</code>, holding the
+ * serialized keys and values of every record in the block along with per-record offsets. Records
+ * can be deserialized in any order without touching the file again. Instances are immutable and
+ * safe to share across threads.
+ *
+ * @see SequenceFileBlockScanner#readBlock()
+ * @see SequenceFileBlockCache
+ */
+public class SequenceFileBlock {
+  // Rough per-object overhead: object headers, array headers, and fields.
+  private static final int OVERHEAD = 96;
+
+  private final long offset;
+  private final int recordCount;
+  private final byte[] keys;
+  private final int[] keyOffsets;
+  private final byte[] values;
+  private final int[] valueOffsets;
+
+  /**
+   * Creates a block. Offset arrays have one more entry than the number of records; record
+   * <code>i</code> spans <code>[offsets[i], offsets[i+1])</code>.
+   */
+  public SequenceFileBlock(long offset, int recordCount, byte[] keys, int[] keyOffsets,
+      byte[] values, int[] valueOffsets) {
+    this.offset = offset;
+    this.recordCount = recordCount;
+    this.keys = keys;
+    this.keyOffsets = keyOffsets;
+    this.values = values;
+    this.valueOffsets = valueOffsets;
+  }
+
+  /**
+   * Returns the offset of the sync marker that starts this block.
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Returns the number of records in this block.
+   */
+  public int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Deserializes the <i>i</i>-th key of this block.
+   *
+   * @param i record index
+   * @param key object to read the key into
+   */
+  public void readKey(int i, Writable key) throws IOException {
+    read(keys, keyOffsets, i, key);
+  }
+
+  /**
+   * Deserializes the <i>i</i>-th value of this block.
+   *
+   * @param i record index
+   * @param value object to read the value into
+   */
+  public void readValue(int i, Writable value) throws IOException {
+    read(values, valueOffsets, i, value);
+  }
+
+  private void read(byte[] data, int[] offsets, int i, Writable w) throws IOException {
+    if (i < 0 || i >= recordCount) {
+      throw new ArrayIndexOutOfBoundsException(i);
+    }
+
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(data, offsets[i], offsets[i + 1] - offsets[i]);
+    w.readFields(in);
+  }
+
+  /**
+   * Returns the approximate number of bytes of heap this block occupies.
+   */
+  public long getSizeInBytes() {
+    return OVERHEAD + keys.length + values.length + 4L * (keyOffsets.length + valueOffsets.length);
+  }
+}
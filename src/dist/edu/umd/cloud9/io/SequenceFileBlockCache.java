@@ -0,0 +1,266 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * <p>
+ * LRU cache of decompressed {@link SequenceFileBlock}s, keyed by (file, block offset). The cache is
+ * bounded by the total (approximate) size of the blocks it holds in bytes, not by the number of
+ * entries, since block sizes vary a lot across collections. Lookups of records that fall in a block
+ * that has been fetched recently become memory reads.
+ * </p>
+ *
+ * <p>
+ * A single instance can be shared by any number of forward indexes and threads; see
+ * {@link #getSharedInstance()}. Blocks are loaded outside the lock, so two threads that miss on the
+ * same block at the same time may both decompress it.
+ * </p>
+ */
+public class SequenceFileBlockCache {
+  /** Default capacity of the shared cache, in bytes. */
+  public static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+
+  private static SequenceFileBlockCache sharedInstance;
+
+  private final long capacity;
+  private final LinkedHashMap<BlockKey, SequenceFileBlock> blocks =
+      new LinkedHashMap<BlockKey, SequenceFileBlock>(16, 0.75f, true);
+
+  private long size = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * Creates a cache that holds at most <code>capacity</code> bytes of decompressed blocks.
+   *
+   * @param capacity capacity in bytes
+   */
+  public SequenceFileBlockCache(long capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Illegal capacity: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Returns the cache shared by all forward indexes in this JVM, creating it with
+   * {@link #DEFAULT_CAPACITY} if necessary.
+   */
+  public static synchronized SequenceFileBlockCache getSharedInstance() {
+    if (sharedInstance == null) {
+      sharedInstance = new SequenceFileBlockCache(DEFAULT_CAPACITY);
+    }
+    return sharedInstance;
+  }
+
+  /**
+   * Replaces the shared cache, e.g., to change its capacity.
+   */
+  public static synchronized void setSharedInstance(SequenceFileBlockCache cache) {
+    sharedInstance = cache;
+  }
+
+  /**
+   * Returns the block starting at <code>offset</code> in <code>file</code>, reading and
+   * decompressing it if it isn't in the cache.
+   *
+   * @param file path to the block-compressed SequenceFile
+   * @param offset offset of the block (position of its sync marker)
+   * @param fs reference to the {@code FileSystem}
+   * @param conf configuration
+   * @return the decompressed block
+   */
+  public SequenceFileBlock getBlock(Path file, long offset, FileSystem fs, Configuration conf)
+      throws IOException {
+    BlockKey key = new BlockKey(file.toString(), offset);
+    SequenceFileBlock block = lookup(key);
+    if (block != null) {
+      return block;
+    }
+
+    SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(file, fs, conf);
+    try {
+      block = load(scanner, file, offset);
+    } finally {
+      scanner.close();
+    }
+
+    put(key, block);
+    return block;
+  }
+
+  /**
+   * Returns the block starting at <code>offset</code> in <code>file</code>, reading and
+   * decompressing it with the given scanner if it isn't in the cache. This lets callers that fetch
+   * many blocks keep scanners open, instead of opening the file on every miss. The scanner must not
+   * be used by another thread during the call.
+   *
+   * @param file path to the block-compressed SequenceFile
+   * @param offset offset of the block (position of its sync marker)
+   * @param scanner an open scanner over <code>file</code>
+   * @return the decompressed block
+   */
+  public SequenceFileBlock getBlock(Path file, long offset, SequenceFileBlockScanner scanner)
+      throws IOException {
+    BlockKey key = new BlockKey(file.toString(), offset);
+    SequenceFileBlock block = lookup(key);
+    if (block != null) {
+      return block;
+    }
+
+    block = load(scanner, file, offset);
+    put(key, block);
+    return block;
+  }
+
+  /**
+   * Returns the block starting at <code>offset</code> in <code>file</code> if it is in the cache,
+   * without reading anything. This lets callers that need a resource to read a block, such as an
+   * open scanner, acquire it only on a miss. Only hits are counted; a miss is counted by the call to
+   * {@link #getBlock(Path, long, SequenceFileBlockScanner)} that is expected to follow.
+   *
+   * @param file path to the block-compressed SequenceFile
+   * @param offset offset of the block (position of its sync marker)
+   * @return the block, or <code>null</code> if it isn't in the cache
+   */
+  public synchronized SequenceFileBlock getCachedBlock(Path file, long offset) {
+    SequenceFileBlock block = blocks.get(new BlockKey(file.toString(), offset));
+    if (block != null) {
+      hits++;
+    }
+    return block;
+  }
+
+  private synchronized SequenceFileBlock lookup(BlockKey key) {
+    SequenceFileBlock block = blocks.get(key);
+    if (block != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return block;
+  }
+
+  private static SequenceFileBlock load(SequenceFileBlockScanner scanner, Path file, long offset)
+      throws IOException {
+    scanner.seek(offset);
+    if (!scanner.next()) {
+      throw new IOException("No block at offset " + offset + " in " + file);
+    }
+    return scanner.readBlock();
+  }
+
+  private synchronized void put(BlockKey key, SequenceFileBlock block) {
+    long blockSize = block.getSizeInBytes();
+    if (blockSize > capacity) {
+      // Never going to fit; don't flush everything else out trying.
+      return;
+    }
+
+    SequenceFileBlock prev = blocks.put(key, block);
+    if (prev != null) {
+      size -= prev.getSizeInBytes();
+    }
+    size += blockSize;
+
+    Iterator<Map.Entry<BlockKey, SequenceFileBlock>> iter = blocks.entrySet().iterator();
+    while (size > capacity && iter.hasNext()) {
+      Map.Entry<BlockKey, SequenceFileBlock> eldest = iter.next();
+      size -= eldest.getValue().getSizeInBytes();
+      iter.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Removes all blocks from the cache. Statistics are not reset.
+   */
+  public synchronized void clear() {
+    blocks.clear();
+    size = 0;
+  }
+
+  /** Returns the capacity of this cache, in bytes. */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /** Returns the approximate number of bytes currently held by this cache. */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /** Returns the number of blocks currently held by this cache. */
+  public synchronized int getBlockCount() {
+    return blocks.size();
+  }
+
+  /** Returns the number of lookups served from the cache. */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /** Returns the number of lookups that required reading a block. */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /** Returns the number of blocks evicted to stay within capacity. */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("[blocks: %d, size: %d/%d bytes, hits: %d, misses: %d, evictions: %d]",
+        blocks.size(), size, capacity, hits, misses, evictions);
+  }
+
+  private static final class BlockKey {
+    private final String file;
+    private final long offset;
+
+    BlockKey(String file, long offset) {
+      this.file = file;
+      this.offset = offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof BlockKey)) {
+        return false;
+      }
+      BlockKey other = (BlockKey) o;
+      return offset == other.offset && file.equals(other.file);
+    }
+
+    @Override
+    public int hashCode() {
+      return file.hashCode() * 31 + (int) (offset ^ (offset >>> 32));
+    }
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableName;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * <p>
+ * Walks the blocks of a block-compressed <code>SequenceFile</code> by following sync markers and
+ * block headers, without decompressing or deserializing any values. Each block on disk consists of
+ * a sync escape, the sync hash, the number of records, and four compressed buffers: key lengths,
+ * keys, value lengths, and values. Only the key buffer is ever decompressed, and only when the
+ * caller asks for a key, unless the whole block is requested with {@link #readBlock()}.
+ * </p>
+ *
+ * <p>
+ * Block offsets reported by this class are positions of sync markers, which means that they can be
+ * passed directly to {@link SequenceFile.Reader#seek(long)}.
+ * </p>
+ *
+ * @author Jimmy Lin
+ */
+public class SequenceFileBlockScanner implements Closeable {
+  private static final byte[] MAGIC = { 'S', 'E', 'Q' };
+  private static final byte BLOCK_COMPRESS_VERSION = 4;
+  private static final byte CUSTOM_COMPRESS_VERSION = 5;
+  private static final byte VERSION_WITH_METADATA = 6;
+  private static final int SYNC_ESCAPE = -1;
+  private static final int SYNC_HASH_SIZE = 16;
+
+  private final Path path;
+  private final FSDataInputStream in;
+  private final long end;
+  private final Class<?> keyClass;
+  private final Class<?> valueClass;
+  private final CompressionCodec codec;
+  private final Decompressor decompressor;
+  private final byte[] sync = new byte[SYNC_HASH_SIZE];
+  private final byte[] syncCheck = new byte[SYNC_HASH_SIZE];
+
+  private final DataInputBuffer rawKeys = new DataInputBuffer();
+  private byte[] rawKeysBuffer = new byte[1024];
+  private int rawKeysLength = 0;
+
+  private long blockOffset = -1;
+  private long keyLengthsOffset = -1;
+  private boolean valuesPending = false;
+  private int recordCount = 0;
+
+  /**
+   * Creates a scanner over a block-compressed <code>SequenceFile</code>.
+   *
+   * @param path path to the file
+   * @param fs reference to the {@code FileSystem}
+   * @param conf configuration
+   * @throws IOException if the file cannot be read or is not block compressed
+   */
+  public SequenceFileBlockScanner(Path path, FileSystem fs, Configuration conf)
+      throws IOException {
+    this.path = path;
+    end = fs.getFileStatus(path).getLen();
+    in = fs.open(path);
+
+    // Parse the header the way SequenceFile.Reader does, but from the stream we read blocks from,
+    // so that the file is only opened once. The header ends with the sync hash.
+    try {
+      byte[] magic = new byte[MAGIC.length + 1];
+      in.readFully(magic);
+      byte version = magic[MAGIC.length];
+      if (!Arrays.equals(MAGIC, Arrays.copyOf(magic, MAGIC.length))
+          || version < BLOCK_COMPRESS_VERSION) {
+        throw new IOException(path + " is not a block-compressed SequenceFile!");
+      }
+
+      keyClass = WritableName.getClass(Text.readString(in), conf);
+      valueClass = WritableName.getClass(Text.readString(in), conf);
+      in.readBoolean(); // compressed
+      if (!in.readBoolean()) {
+        throw new IOException(path + " is not a block-compressed SequenceFile!");
+      }
+
+      if (version >= CUSTOM_COMPRESS_VERSION) {
+        String codecName = Text.readString(in);
+        try {
+          codec = ReflectionUtils.newInstance(
+              conf.getClassByName(codecName).asSubclass(CompressionCodec.class), conf);
+        } catch (ClassNotFoundException e) {
+          throw new IOException("Unknown codec " + codecName + " in " + path);
+        }
+      } else {
+        codec = ReflectionUtils.newInstance(DefaultCodec.class, conf);
+      }
+
+      if (version >= VERSION_WITH_METADATA) {
+        new SequenceFile.Metadata().readFields(in);
+      }
+      in.readFully(sync);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+
+    decompressor = CodecPool.getDecompressor(codec);
+  }
+
+  /**
+   * Advances to the next block.
+   *
+   * @return <code>true</code> if there is another block, <code>false</code> at end of file
+   */
+  public boolean next() throws IOException {
+    // Skip whatever remains of the current block.
+    if (valuesPending) {
+      skipBuffer(); // value lengths
+      skipBuffer(); // values
+      valuesPending = false;
+    }
+
+    if (in.getPos() >= end) {
+      return false;
+    }
+
+    blockOffset = in.getPos();
+    if (in.readInt() != SYNC_ESCAPE) {
+      throw new IOException("Expected sync marker at " + blockOffset + " in " + path);
+    }
+    in.readFully(syncCheck);
+    if (!Arrays.equals(sync, syncCheck)) {
+      throw new IOException("File is corrupt: sync check failed at " + blockOffset + " in " + path);
+    }
+
+    recordCount = WritableUtils.readVInt(in);
+    keyLengthsOffset = in.getPos();
+    skipBuffer(); // key lengths
+
+    // Hold on to the compressed keys; they're small, and we only inflate them on demand.
+    rawKeysLength = WritableUtils.readVInt(in);
+    if (rawKeysBuffer.length < rawKeysLength) {
+      rawKeysBuffer = new byte[Math.max(rawKeysLength, 2 * rawKeysBuffer.length)];
+    }
+    in.readFully(rawKeysBuffer, 0, rawKeysLength);
+    valuesPending = true;
+
+    return true;
+  }
+
+  /**
+   * Positions the scanner at a block boundary, such as one previously returned by
+   * {@link #getBlockOffset()}. The next call to {@link #next()} reads the block at that offset.
+   *
+   * @param offset position of a sync marker
+   */
+  public void seek(long offset) throws IOException {
+    in.seek(offset);
+    blockOffset = -1;
+    valuesPending = false;
+  }
+
+  /**
+   * Decompresses the entire current block (keys and values) into memory. Afterwards, the scanner
+   * is positioned at the end of the block.
+   *
+   * @return the decompressed block
+   */
+  public SequenceFileBlock readBlock() throws IOException {
+    if (blockOffset == -1) {
+      throw new IllegalStateException("No current block!");
+    }
+
+    in.seek(keyLengthsOffset);
+    int[] keyOffsets = readLengths(recordCount);
+    byte[] keys = readData(keyOffsets[recordCount]);
+    int[] valueOffsets = readLengths(recordCount);
+    byte[] values = readData(valueOffsets[recordCount]);
+    valuesPending = false;
+
+    return new SequenceFileBlock(blockOffset, recordCount, keys, keyOffsets, values, valueOffsets);
+  }
+
+  // Reads a compressed buffer of vint lengths and turns them into offsets: the returned array has
+  // n+1 entries, the last of which is the total length.
+  private int[] readLengths(int n) throws IOException {
+    DataInputStream lengths = new DataInputStream(inflate(readCompressed()));
+    int[] offsets = new int[n + 1];
+    for (int i = 0; i < n; i++) {
+      offsets[i + 1] = offsets[i] + WritableUtils.readVInt(lengths);
+    }
+    return offsets;
+  }
+
+  private byte[] readData(int len) throws IOException {
+    DataInputStream data = new DataInputStream(inflate(readCompressed()));
+    byte[] bytes = new byte[len];
+    data.readFully(bytes);
+    return bytes;
+  }
+
+  private DataInputBuffer readCompressed() throws IOException {
+    int len = WritableUtils.readVInt(in);
+    byte[] bytes = new byte[len];
+    in.readFully(bytes);
+
+    DataInputBuffer buffer = new DataInputBuffer();
+    buffer.reset(bytes, len);
+    return buffer;
+  }
+
+  private InputStream inflate(InputStream compressed) throws IOException {
+    decompressor.reset();
+    return codec.createInputStream(compressed, decompressor);
+  }
+
+  private void skipBuffer() throws IOException {
+    int len = WritableUtils.readVInt(in);
+    in.seek(in.getPos() + len);
+  }
+
+  private DataInputStream openKeys() throws IOException {
+    rawKeys.reset(rawKeysBuffer, 0, rawKeysLength);
+    return new DataInputStream(inflate(rawKeys));
+  }
+
+  /**
+   * Reads the first key of the current block. Only as much of the key buffer as is necessary to
+   * deserialize one key is decompressed.
+   *
+   * @param key object to read the key into
+   */
+  public void readFirstKey(Writable key) throws IOException {
+    key.readFields(openKeys());
+  }
+
+  /**
+   * Reads the last key of the current block. This requires decompressing the entire key buffer,
+   * but still leaves the values untouched.
+   *
+   * @param key object to read the key into
+   */
+  public void readLastKey(Writable key) throws IOException {
+    DataInputStream keys = openKeys();
+    for (int i = 0; i < recordCount; i++) {
+      key.readFields(keys);
+    }
+  }
+
+  /**
+   * Returns the offset of the sync marker that starts the current block.
+   *
+   * @return offset of the current block
+   */
+  public long getBlockOffset() {
+    return blockOffset;
+  }
+
+  /**
+   * Returns the number of records in the current block.
+   *
+   * @return number of records in the current block
+   */
+  public int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Returns the key class of the underlying file.
+   *
+   * @return key class of the underlying file
+   */
+  public Class<?> getKeyClass() {
+    return keyClass;
+  }
+
+  /**
+   * Returns the value class of the underlying file.
+   *
+   * @return value class of the underlying file
+   */
+  public Class<?> getValueClass() {
+    return valueClass;
+  }
+
+  @Override
+  public void close() throws IOException {
+    CodecPool.returnDecompressor(decompressor);
+    in.close();
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.fd;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.google.common.collect.Lists;
+
+import edu.umd.cloud9.util.fd.Object2IntFrequencyDistributionCountMin;
+
+/**
+ * Writable representing an {@link Object2IntFrequencyDistributionCountMin} of strings, for mappers
+ * to emit approximate distributions of bounded size that reducers
+ * {@link Object2IntFrequencyDistributionCountMin#merge merge}, e.g., to find the most frequent
+ * terms of a collection. The counters of the sketch are written as variable-length ints, so that
+ * the many small or empty counters of a sparsely filled sketch take a byte each.
+ */
+public class String2IntFrequencyDistributionCountMinWritable
+		extends Object2IntFrequencyDistributionCountMin<String> implements Writable {
+
+	/**
+	 * Creates an empty distribution with a minimal sketch, for deserialization.
+	 */
+	public String2IntFrequencyDistributionCountMinWritable() {
+		super(1, 1, 1);
+	}
+
+	/**
+	 * Creates an empty distribution with a sketch of <code>depth</code> rows of <code>width</code>
+	 * counters, keeping the <code>capacity</code> events with the largest estimates.
+	 */
+	public String2IntFrequencyDistributionCountMinWritable(int width, int depth, int capacity) {
+		super(width, depth, capacity);
+	}
+
+	/**
+	 * Deserializes the distribution.
+	 *
+	 * @param in source for raw byte representation
+	 */
+	public void readFields(DataInput in) throws IOException {
+		int width = in.readInt();
+		int depth = in.readInt();
+		int capacity = in.readInt();
+		long sumOfCounts = in.readLong();
+		initialize(width, depth, capacity, sumOfCounts);
+
+		int[] table = getTable();
+		for (int i = 0; i < table.length; i++) {
+			table[i] = WritableUtils.readVInt(in);
+		}
+
+		int numEvents = WritableUtils.readVInt(in);
+		for (int i = 0; i < numEvents; i++) {
+			restore(Text.readString(in));
+		}
+	}
+
+	/**
+	 * Serializes the distribution.
+	 *
+	 * @param out where to write the raw byte representation
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(getWidth());
+		out.writeInt(getDepth());
+		out.writeInt(getCapacity());
+		out.writeLong(getSumOfCounts());
+
+		for (int c : getTable()) {
+			WritableUtils.writeVInt(out, c);
+		}
+
+		// the estimates of the events are recomputed from the sketch
+		List<String> keys = Lists.newArrayList(keySet());
+		WritableUtils.writeVInt(out, keys.size());
+		for (String key : keys) {
+			Text.writeString(out, key);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.fd;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import edu.umd.cloud9.util.fd.Object2IntFrequencyDistributionSpaceSaving;
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
+
+/**
+ * Writable representing an {@link Object2IntFrequencyDistributionSpaceSaving} of strings, for
+ * mappers to emit approximate distributions of bounded size that reducers
+ * {@link Object2IntFrequencyDistributionSpaceSaving#merge merge}, e.g., to find the most frequent
+ * terms of a collection.
+ */
+public class String2IntFrequencyDistributionSpaceSavingWritable
+		extends Object2IntFrequencyDistributionSpaceSaving<String> implements Writable {
+
+	/**
+	 * Creates an empty distribution with a single counter, for deserialization.
+	 */
+	public String2IntFrequencyDistributionSpaceSavingWritable() {
+		super(1);
+	}
+
+	/**
+	 * Creates an empty distribution with <code>capacity</code> counters.
+	 */
+	public String2IntFrequencyDistributionSpaceSavingWritable(int capacity) {
+		super(capacity);
+	}
+
+	/**
+	 * Deserializes the distribution.
+	 *
+	 * @param in source for raw byte representation
+	 */
+	public void readFields(DataInput in) throws IOException {
+		int capacity = in.readInt();
+		long sumOfCounts = in.readLong();
+		int errorBound = WritableUtils.readVInt(in);
+		initialize(capacity, sumOfCounts, errorBound);
+
+		int numEvents = WritableUtils.readVInt(in);
+		for (int i = 0; i < numEvents; i++) {
+			String key = Text.readString(in);
+			int count = WritableUtils.readVInt(in);
+			int error = WritableUtils.readVInt(in);
+			restore(key, count, error);
+		}
+	}
+
+	/**
+	 * Serializes the distribution.
+	 *
+	 * @param out where to write the raw byte representation
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(getCapacity());
+		out.writeLong(getSumOfCounts());
+		WritableUtils.writeVInt(out, getErrorBound());
+
+		WritableUtils.writeVInt(out, getNumberOfEvents());
+		for (PairOfObjectInt<String> pair : this) {
+			Text.writeString(out, pair.getLeftElement());
+			WritableUtils.writeVInt(out, pair.getRightElement());
+			WritableUtils.writeVInt(out, getError(pair.getLeftElement()));
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.io.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+
+/**
+ * <p>
+ * Binary link graph in compressed sparse row (CSR) layout, as an alternative to adjacency lists
+ * written as lines of text. A graph is a directory of shards, typically one per reducer of the job
+ * that wrote it. Every shard has a data file, <code>part-NNNNN</code>, holding the adjacency lists
+ * of its nodes in increasing order of node id, and an index, <code>_index/part-NNNNN</code> (a
+ * {@link CSRGraphIndex}), holding the number of nodes and edges of the shard and the offset of
+ * every block of {@link #BLOCK_SIZE} nodes. The index is in a directory whose name starts with an
+ * underscore so that it is skipped by input formats reading the data files.
+ * </p>
+ *
+ * <p>
+ * The adjacency list of a node is written as the gap between its id and that of the previous node
+ * in the block minus one (or its id, for the first node of a block), its degree, and its neighbors,
+ * sorted, as the first neighbor followed by the gaps between consecutive neighbors, all as
+ * variable-length ints. Graphs are written with {@link CSRGraphWriter}, e.g., through
+ * {@link edu.umd.cloud9.mapred.CSRGraphOutputFormat}, and read sequentially with
+ * {@link CSRGraphReader}, e.g., through {@link edu.umd.cloud9.mapred.CSRGraphInputFormat} or
+ * {@link edu.umd.cloud9.mapreduce.lib.input.CSRGraphInputFormat}.
+ * </p>
+ *
+ * <p>
+ * An instance of this class gives random access to the adjacency lists of a graph by node id,
+ * reading at most one block per shard that may hold the node.
+ * </p>
+ */
+public class CSRGraph {
+	/**
+	 * Number of nodes in a block of the index.
+	 */
+	public static final int BLOCK_SIZE = 128;
+
+	/**
+	 * Name of the directory holding the indexes of the shards.
+	 */
+	public static final String INDEX_DIRECTORY = "_index";
+
+	private final Path[] paths;
+	private final CSRGraphIndex[] indexes;
+	private final FSDataInputStream[] streams;
+	private final FileSystem fs;
+	private final long numNodes;
+	private final long numEdges;
+
+	private CSRGraph(Path[] paths, CSRGraphIndex[] indexes, FileSystem fs) {
+		this.paths = paths;
+		this.indexes = indexes;
+		this.streams = new FSDataInputStream[paths.length];
+		this.fs = fs;
+
+		long nodes = 0;
+		long edges = 0;
+		for (CSRGraphIndex index : indexes) {
+			nodes += index.getNumNodes();
+			edges += index.getNumEdges();
+		}
+		this.numNodes = nodes;
+		this.numEdges = edges;
+	}
+
+	/**
+	 * Opens a graph for random access. Only the indexes of the shards are read.
+	 *
+	 * @param path directory holding the graph
+	 * @param fs the file system the graph is on
+	 */
+	public static CSRGraph open(Path path, FileSystem fs) throws IOException {
+		Path[] paths = getShards(path, fs);
+		CSRGraphIndex[] indexes = new CSRGraphIndex[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			indexes[i] = CSRGraphIndex.load(getIndexPath(paths[i]), fs);
+		}
+		return new CSRGraph(paths, indexes, fs);
+	}
+
+	/**
+	 * Returns whether a directory holds a graph in this format, i.e., has an index directory.
+	 */
+	public static boolean isGraph(Path path, FileSystem fs) throws IOException {
+		return fs.exists(new Path(path, INDEX_DIRECTORY));
+	}
+
+	/**
+	 * Returns the path to the index of a shard, given the path to its data file.
+	 */
+	public static Path getIndexPath(Path path) {
+		return new Path(new Path(path.getParent(), INDEX_DIRECTORY), path.getName());
+	}
+
+	/**
+	 * Returns the data files of the shards of a graph, sorted by name.
+	 */
+	public static Path[] getShards(Path path, FileSystem fs) throws IOException {
+		List<Path> paths = new ArrayList<Path>();
+		for (FileStatus status : fs.listStatus(path)) {
+			String name = status.getPath().getName();
+			if (!status.isDir() && !name.startsWith("_") && !name.startsWith(".")) {
+				paths.add(status.getPath());
+			}
+		}
+
+		Path[] shards = paths.toArray(new Path[paths.size()]);
+		Arrays.sort(shards);
+		return shards;
+	}
+
+	/**
+	 * Returns the number of shards of the graph.
+	 */
+	public int getNumShards() {
+		return paths.length;
+	}
+
+	/**
+	 * Returns the index of a shard.
+	 */
+	public CSRGraphIndex getIndex(int shard) {
+		return indexes[shard];
+	}
+
+	/**
+	 * Returns the number of nodes in the graph, i.e., of nodes with an adjacency list, including
+	 * those without neighbors.
+	 */
+	public long getNumNodes() {
+		return numNodes;
+	}
+
+	/**
+	 * Returns the number of edges in the graph.
+	 */
+	public long getNumEdges() {
+		return numEdges;
+	}
+
+	/**
+	 * Reads the adjacency list of a node.
+	 *
+	 * @param node id of the node
+	 * @param neighbors list that the neighbors replace the contents of, emptied if the node is not found
+	 * @return <code>false</code> if the node is not in the graph
+	 */
+	public boolean getNeighbors(int node, ArrayListOfInts neighbors) throws IOException {
+		for (int i = 0; i < indexes.length; i++) {
+			int block = indexes[i].findBlock(node);
+			if (block < 0) {
+				continue;
+			}
+
+			if (streams[i] == null) {
+				streams[i] = fs.open(paths[i]);
+			}
+			streams[i].seek(indexes[i].getBlockOffset(block));
+
+			CSRGraphReader reader = new CSRGraphReader(streams[i], indexes[i].getBlockLength(block));
+			while (reader.next(neighbors)) {
+				if (reader.getNode() == node) {
+					return true;
+				}
+				if (reader.getNode() > node) {
+					break;
+				}
+			}
+		}
+		neighbors.clear();
+		return false;
+	}
+
+	/**
+	 * Closes the data files opened for random access.
+	 */
+	public void close() throws IOException {
+		for (int i = 0; i < streams.length; i++) {
+			if (streams[i] != null) {
+				streams[i].close();
+				streams[i] = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.io.graph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Writable;
+
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+import edu.umd.cloud9.util.array.ArrayListOfLongs;
+
+/**
+ * <p>
+ * Header and index of a shard of a {@link CSRGraph}: the number of nodes and edges in the shard,
+ * the smallest and largest node ids, and, for every block of {@link CSRGraph#BLOCK_SIZE} nodes,
+ * the id of its first node and its offset in the data file. Blocks start with an absolute node id,
+ * so the adjacency list of a node is found by seeking to the block that may hold it and decoding at
+ * most one block.
+ * </p>
+ *
+ * <p>
+ * An index is written as a magic number (the int <code>0x43535247</code>, "CSRG"), a version (an
+ * int), the block size (an int), the number of nodes and edges (two longs), the smallest and
+ * largest node ids (two ints), the number of blocks (an int), and, for every block, the id of its
+ * first node (an int) and its offset (a long).
+ * </p>
+ */
+public class CSRGraphIndex implements Writable {
+	/**
+	 * Magic number at the start of an index.
+	 */
+	public static final int MAGIC = 0x43535247;
+
+	/**
+	 * Version of the format.
+	 */
+	public static final int VERSION = 1;
+
+	private long numNodes = 0;
+	private long numEdges = 0;
+	private int minNode = -1;
+	private int maxNode = -1;
+	private final ArrayListOfInts blockNodes = new ArrayListOfInts();
+	private final ArrayListOfLongs blockOffsets = new ArrayListOfLongs();
+
+	/**
+	 * Creates an empty <code>CSRGraphIndex</code>.
+	 */
+	public CSRGraphIndex() {
+	}
+
+	/**
+	 * Returns the number of nodes in the shard.
+	 */
+	public long getNumNodes() {
+		return numNodes;
+	}
+
+	/**
+	 * Returns the number of edges in the shard.
+	 */
+	public long getNumEdges() {
+		return numEdges;
+	}
+
+	/**
+	 * Returns the smallest node id in the shard, or -1 if the shard is empty.
+	 */
+	public int getMinNode() {
+		return minNode;
+	}
+
+	/**
+	 * Returns the largest node id in the shard, or -1 if the shard is empty.
+	 */
+	public int getMaxNode() {
+		return maxNode;
+	}
+
+	/**
+	 * Returns the number of blocks in the shard.
+	 */
+	public int getNumBlocks() {
+		return blockNodes.size();
+	}
+
+	/**
+	 * Returns the id of the first node of a block.
+	 */
+	public int getBlockNode(int block) {
+		return blockNodes.get(block);
+	}
+
+	/**
+	 * Returns the offset of a block in the data file.
+	 */
+	public long getBlockOffset(int block) {
+		return blockOffsets.get(block);
+	}
+
+	/**
+	 * Returns the number of nodes in a block.
+	 */
+	public int getBlockLength(int block) {
+		return (int) Math.min(CSRGraph.BLOCK_SIZE, numNodes - (long) block * CSRGraph.BLOCK_SIZE);
+	}
+
+	/**
+	 * Returns the block that holds a node if it is in the shard, i.e., the last block whose first
+	 * node is not greater than the node, or -1 if the node is outside of the shard.
+	 */
+	public int findBlock(int node) {
+		if (numNodes == 0 || node < minNode || node > maxNode) {
+			return -1;
+		}
+
+		int low = 0;
+		int high = blockNodes.size() - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (blockNodes.get(mid) <= node) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	// Called by the writer when a block starts.
+	void addBlock(int node, long offset) {
+		blockNodes.add(node);
+		blockOffsets.add(offset);
+	}
+
+	// Called by the writer for every node.
+	void addNode(int node, int degree) {
+		if (numNodes == 0) {
+			minNode = node;
+		}
+		maxNode = node;
+		numNodes++;
+		numEdges += degree;
+	}
+
+	/**
+	 * Deserializes the index.
+	 */
+	public void readFields(DataInput in) throws IOException {
+		int magic = in.readInt();
+		if (magic != MAGIC) {
+			throw new IOException("Not a CSR graph index: bad magic number "
+					+ Integer.toHexString(magic));
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported CSR graph version: " + version);
+		}
+		int blockSize = in.readInt();
+		if (blockSize != CSRGraph.BLOCK_SIZE) {
+			throw new IOException("Unsupported CSR graph block size: " + blockSize);
+		}
+
+		numNodes = in.readLong();
+		numEdges = in.readLong();
+		minNode = in.readInt();
+		maxNode = in.readInt();
+
+		int numBlocks = in.readInt();
+		blockNodes.clear();
+		blockOffsets.clear();
+		for (int i = 0; i < numBlocks; i++) {
+			blockNodes.add(in.readInt());
+			blockOffsets.add(in.readLong());
+		}
+	}
+
+	/**
+	 * Serializes the index.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(CSRGraph.BLOCK_SIZE);
+		out.writeLong(numNodes);
+		out.writeLong(numEdges);
+		out.writeInt(minNode);
+		out.writeInt(maxNode);
+
+		out.writeInt(blockNodes.size());
+		for (int i = 0; i < blockNodes.size(); i++) {
+			out.writeInt(blockNodes.get(i));
+			out.writeLong(blockOffsets.get(i));
+		}
+	}
+
+	/**
+	 * Loads an index.
+	 *
+	 * @param path path to the index
+	 * @param fs the file system the index is on
+	 */
+	public static CSRGraphIndex load(Path path, FileSystem fs) throws IOException {
+		FSDataInputStream in = fs.open(path);
+		CSRGraphIndex index = new CSRGraphIndex();
+		try {
+			index.readFields(in);
+		} finally {
+			in.close();
+		}
+		return index;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + numNodes + " nodes, " + numEdges + " edges, " + blockNodes.size() + " blocks]";
+	}
+}
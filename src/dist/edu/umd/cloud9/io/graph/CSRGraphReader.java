@@ -0,0 +1,96 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.io.graph;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.WritableUtils;
+
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+
+/**
+ * Decodes adjacency lists from the data file of a shard of a {@link CSRGraph}, in order of node id,
+ * starting at the beginning of a block.
+ *
+ * @see CSRGraphWriter
+ */
+public class CSRGraphReader {
+	private final DataInput in;
+	private final long numNodes;
+
+	private long nodesRead = 0;
+	private int node = -1;
+
+	/**
+	 * Creates a reader of a number of nodes from a stream positioned at the start of a block, e.g.,
+	 * at the start of the data file, with the number of nodes of the shard from its index.
+	 */
+	public CSRGraphReader(DataInput in, long numNodes) {
+		this.in = in;
+		this.numNodes = numNodes;
+	}
+
+	/**
+	 * Reads the adjacency list of the next node, in increasing order of neighbor id.
+	 *
+	 * @param neighbors list that the neighbors replace the contents of
+	 * @return <code>false</code> if all nodes have been read
+	 */
+	public boolean next(ArrayListOfInts neighbors) throws IOException {
+		if (nodesRead == numNodes) {
+			return false;
+		}
+
+		int prev = nodesRead % CSRGraph.BLOCK_SIZE == 0 ? -1 : node;
+		node = prev + 1 + WritableUtils.readVInt(in);
+
+		int degree = WritableUtils.readVInt(in);
+		neighbors.setSize(degree);
+		int[] array = neighbors.getArray();
+		int last = 0;
+		for (int i = 0; i < degree; i++) {
+			last += WritableUtils.readVInt(in);
+			array[i] = last;
+		}
+
+		nodesRead++;
+		return true;
+	}
+
+	/**
+	 * Returns the id of the last node read.
+	 */
+	public int getNode() {
+		return node;
+	}
+
+	/**
+	 * Returns the number of nodes read.
+	 */
+	public long getNodesRead() {
+		return nodesRead;
+	}
+
+	/**
+	 * Returns the number of nodes to read.
+	 */
+	public long getNumNodes() {
+		return numNodes;
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.io.graph;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
+
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+
+/**
+ * <p>
+ * Writes a shard of a {@link CSRGraph}: adjacency lists are appended in increasing order of node
+ * id to the data file, and the {@link CSRGraphIndex} of the shard is written when the writer is
+ * closed. Neighbors are sorted before they are written, so the order in which they are given does
+ * not matter; duplicates are kept.
+ * </p>
+ *
+ * @see CSRGraphReader
+ */
+public class CSRGraphWriter {
+	private final FSDataOutputStream data;
+	private final FSDataOutputStream indexOut;
+	private final CSRGraphIndex index = new CSRGraphIndex();
+
+	private int[] buffer = new int[16];
+	private int lastNode = -1;
+
+	/**
+	 * Creates a writer over open streams for the data file and the index of a shard.
+	 */
+	public CSRGraphWriter(FSDataOutputStream data, FSDataOutputStream index) {
+		this.data = data;
+		this.indexOut = index;
+	}
+
+	/**
+	 * Creates a writer for a shard, whose index is written to {@link CSRGraph#getIndexPath(Path)}.
+	 *
+	 * @param path path to the data file of the shard
+	 * @param fs the file system to write the shard to
+	 */
+	public CSRGraphWriter(Path path, FileSystem fs) throws IOException {
+		this(fs.create(path, true), fs.create(CSRGraph.getIndexPath(path), true));
+	}
+
+	/**
+	 * Appends the adjacency list of a node.
+	 */
+	public void append(int node, ArrayListOfInts neighbors) throws IOException {
+		append(node, neighbors.getArray(), neighbors.size());
+	}
+
+	/**
+	 * Appends the adjacency list of a node.
+	 *
+	 * @param node id of the node, greater than that of the previous node
+	 * @param neighbors ids of the neighbors
+	 * @param length number of neighbors in the array
+	 */
+	public void append(int node, int[] neighbors, int length) throws IOException {
+		if (node < 0 || node <= lastNode) {
+			throw new IOException("Node ids must be non-negative and increasing: " + node + " after "
+					+ lastNode);
+		}
+
+		int prev = lastNode;
+		if (index.getNumNodes() % CSRGraph.BLOCK_SIZE == 0) {
+			index.addBlock(node, data.getPos());
+			prev = -1;
+		}
+
+		if (buffer.length < length) {
+			buffer = new int[Math.max(length, buffer.length * 2)];
+		}
+		System.arraycopy(neighbors, 0, buffer, 0, length);
+		Arrays.sort(buffer, 0, length);
+
+		WritableUtils.writeVInt(data, node - prev - 1);
+		WritableUtils.writeVInt(data, length);
+		int last = 0;
+		for (int i = 0; i < length; i++) {
+			WritableUtils.writeVInt(data, buffer[i] - last);
+			last = buffer[i];
+		}
+
+		index.addNode(node, length);
+		lastNode = node;
+	}
+
+	/**
+	 * Returns the number of nodes written.
+	 */
+	public long getNumNodes() {
+		return index.getNumNodes();
+	}
+
+	/**
+	 * Returns the number of edges written.
+	 */
+	public long getNumEdges() {
+		return index.getNumEdges();
+	}
+
+	/**
+	 * Writes the index, and closes the data file and the index.
+	 */
+	public void close() throws IOException {
+		data.close();
+		index.write(indexOut);
+		indexOut.close();
+	}
+}
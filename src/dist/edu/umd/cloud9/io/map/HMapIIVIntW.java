@@ -0,0 +1,263 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.map;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import edu.umd.cloud9.util.map.HMapII;
+import edu.umd.cloud9.util.map.MapII;
+
+/**
+ * <p>
+ * Writable representing a map where both keys and values are ints, like {@link HMapIIW}, but
+ * serialized with variable-length ints (see {@link WritableUtils#writeVInt}): small ints, e.g.,
+ * term ids assigned in decreasing order of frequency and counts, take a single byte. The two
+ * classes have different wire formats, and cannot read each other's data.
+ * </p>
+ *
+ * <p>
+ * Like {@link HMapIIW}, this class supports <i>lazy decoding</i>, where the keys and values of a
+ * deserialized map are held in arrays (see {@link #getKeys()} and {@link #getValues()}) until
+ * {@link #decode()} is called. Lazy decoding is set per object, with
+ * {@link #setLazyDecode(boolean)}; objects that Hadoop creates, e.g., the values passed to a
+ * reducer, are configured from the property {@link #LAZY_DECODE_PROPERTY} of the job.
+ * </p>
+ */
+public class HMapIIVIntW extends HMapII implements Writable, Configurable {
+	private static final long serialVersionUID = 2790468275L;
+
+	/**
+	 * Job configuration property that, if set to <code>true</code>, turns on lazy decoding for
+	 * the objects that Hadoop creates.
+	 */
+	public static final String LAZY_DECODE_PROPERTY = "cloud9.HMapIIVIntW.lazyDecode";
+
+	private boolean lazyDecode = false;
+	private transient Configuration conf;
+
+	private int[] keys = null;
+	private int[] values = null;
+
+	/**
+	 * Creates a <code>HMapIIVIntW</code> object.
+	 */
+	public HMapIIVIntW() {
+		super();
+	}
+
+	/**
+	 * Sets lazy decoding from {@link #LAZY_DECODE_PROPERTY}.
+	 */
+	public void setConf(Configuration conf) {
+		this.conf = conf;
+		lazyDecode = conf.getBoolean(LAZY_DECODE_PROPERTY, false);
+	}
+
+	public Configuration getConf() {
+		return conf;
+	}
+
+	/**
+	 * Sets whether this map is lazily decoded when it is deserialized.
+	 */
+	public void setLazyDecode(boolean b) {
+		lazyDecode = b;
+	}
+
+	/**
+	 * Returns whether this map is lazily decoded when it is deserialized.
+	 */
+	public boolean getLazyDecode() {
+		return lazyDecode;
+	}
+
+	/**
+	 * Deserializes the map.
+	 *
+	 * @param in source for raw byte representation
+	 */
+	public void readFields(DataInput in) throws IOException {
+		this.clear();
+		keys = null;
+		values = null;
+
+		int numEntries = WritableUtils.readVInt(in);
+
+		if (lazyDecode) {
+			// Lazy initialization: read into arrays.
+			keys = new int[numEntries];
+			values = new int[numEntries];
+
+			for (int i = 0; i < numEntries; i++) {
+				keys[i] = WritableUtils.readVInt(in);
+				values[i] = WritableUtils.readVInt(in);
+			}
+		} else {
+			// Normal initialization: populate the map.
+			for (int i = 0; i < numEntries; i++) {
+				put(WritableUtils.readVInt(in), WritableUtils.readVInt(in));
+			}
+		}
+	}
+
+	/**
+	 * In lazy decoding mode, populates the map with deserialized data. Otherwise, does nothing.
+	 */
+	public void decode() {
+		if (keys == null)
+			return;
+
+		for (int i = 0; i < keys.length; i++) {
+			put(keys[i], values[i]);
+		}
+
+		keys = null;
+		values = null;
+	}
+
+	/**
+	 * Returns whether or not this map has been decoded. If not in lazy decoding mode, this method
+	 * always returns <i>true</i>.
+	 */
+	public boolean isDecoded() {
+		return keys == null;
+	}
+
+	/**
+	 * Serializes the map.
+	 *
+	 * @param out where to write the raw byte representation
+	 */
+	public void write(DataOutput out) throws IOException {
+		if (!isDecoded()) {
+			WritableUtils.writeVInt(out, keys.length);
+			for (int i = 0; i < keys.length; i++) {
+				WritableUtils.writeVInt(out, keys[i]);
+				WritableUtils.writeVInt(out, values[i]);
+			}
+			return;
+		}
+
+		WritableUtils.writeVInt(out, size());
+		for (MapII.Entry e : entrySet()) {
+			WritableUtils.writeVInt(out, e.getKey());
+			WritableUtils.writeVInt(out, e.getValue());
+		}
+	}
+
+	/**
+	 * Returns the serialized representation of this object as a byte array.
+	 *
+	 * @return byte array representing the serialized representation of this object
+	 * @throws IOException
+	 */
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		DataOutputStream dataOut = new DataOutputStream(bytesOut);
+		write(dataOut);
+
+		return bytesOut.toByteArray();
+	}
+
+	/**
+	 * Creates a <code>HMapIIVIntW</code> object from a <code>DataInput</code>.
+	 *
+	 * @param in source for reading the serialized representation
+	 * @return a newly-created <code>HMapIIVIntW</code> object
+	 * @throws IOException
+	 */
+	public static HMapIIVIntW create(DataInput in) throws IOException {
+		HMapIIVIntW m = new HMapIIVIntW();
+		m.readFields(in);
+
+		return m;
+	}
+
+	/**
+	 * Creates a <code>HMapIIVIntW</code> object from a byte array.
+	 *
+	 * @param bytes raw serialized representation
+	 * @return a newly-created <code>HMapIIVIntW</code> object
+	 * @throws IOException
+	 */
+	public static HMapIIVIntW create(byte[] bytes) throws IOException {
+		return create(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	/**
+	 * In lazy decoding mode, returns an array of all the keys if the map hasn't been decoded yet.
+	 * Otherwise, returns null.
+	 *
+	 * @return an array of all the keys
+	 */
+	public int[] getKeys() {
+		return keys;
+	}
+
+	/**
+	 * In lazy decoding mode, returns an array of all the values if the map hasn't been decoded
+	 * yet. Otherwise, returns null.
+	 *
+	 * @return an array of all the values
+	 */
+	public int[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Adds values from keys of another map to this map. This map must have already been decoded;
+	 * the other map is read from its arrays if it hasn't been decoded, and from its entries
+	 * otherwise.
+	 *
+	 * @param m the other map
+	 */
+	public void lazyplus(HMapIIVIntW m) {
+		if (m.isDecoded()) {
+			for (MapII.Entry e : m.entrySet()) {
+				increment(e.getKey(), e.getValue());
+			}
+			return;
+		}
+
+		int[] k = m.getKeys();
+		int[] v = m.getValues();
+
+		for (int i = 0; i < k.length; i++) {
+			increment(k[i], v[i]);
+		}
+	}
+
+	@Override
+	public int size() {
+		if (!isDecoded()) {
+			return keys.length;
+		}
+
+		return super.size();
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.mapred;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.filecache.DistributedCache;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MapReduceBase;
+import org.apache.hadoop.mapred.Mapper;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.Reducer;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.SequenceFileOutputFormat;
+import org.apache.log4j.Logger;
+
+import edu.umd.cloud9.io.BloomFilterWritable;
+
+/**
+ * <p>
+ * Support for reduce-side joins in which most records of one side have no match on the other, so
+ * that they are shuffled only to be discarded by the reducers. A pre-pass builds a
+ * {@link BloomFilterWritable} over the join keys of the other side: each map task, a subclass of
+ * {@link KeyMapper}, adds the keys of its split to a filter and emits it when it is closed, and a
+ * single reducer merges the filters. The filter is then shipped with the join job through the
+ * <code>DistributedCache</code>, and its mappers drop the records whose key is not in the filter.
+ * </p>
+ *
+ * <p>
+ * The filter is sized with the properties {@link #EXPECTED_KEYS_PROPERTY} and
+ * {@link #FALSE_POSITIVE_RATE_PROPERTY}, and it is found by the join job through
+ * {@link #PATH_PROPERTY}. Filtering never drops a record that would have been joined; records that
+ * go through the filter but are not joined (false positives) are counted by the reducers of the
+ * join, in {@link Counter#FALSE_POSITIVES}.
+ * </p>
+ */
+@SuppressWarnings("deprecation")
+public class BloomFilterJoin {
+	private static final Logger LOG = Logger.getLogger(BloomFilterJoin.class);
+
+	/**
+	 * Counters of a join with a Bloom filter.
+	 */
+	public static enum Counter {
+		/** Records dropped by the mappers, because their key is not in the filter. */
+		DROPPED,
+		/** Serialized bytes of the keys and values of the records dropped. */
+		BYTES_SAVED,
+		/** Records that went through the filter, but were not joined. */
+		FALSE_POSITIVES
+	};
+
+	/**
+	 * Property holding the number of keys the filter is sized for.
+	 */
+	public static final String EXPECTED_KEYS_PROPERTY = "Cloud9.BloomFilter.ExpectedKeys";
+
+	/**
+	 * Property holding the false positive rate the filter is sized for.
+	 */
+	public static final String FALSE_POSITIVE_RATE_PROPERTY = "Cloud9.BloomFilter.FalsePositiveRate";
+
+	/**
+	 * Property holding the path of the filter used by a join.
+	 */
+	public static final String PATH_PROPERTY = "Cloud9.BloomFilter.Path";
+
+	/**
+	 * False positive rate the filter is sized for if none is set.
+	 */
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+	private BloomFilterJoin() {
+	}
+
+	/**
+	 * Mapper of the pre-pass, which adds the join keys of its split to a filter, and emits the
+	 * filter when it is closed. Subclasses overriding <code>configure</code> must call this one.
+	 */
+	public static abstract class KeyMapper<K, V> extends MapReduceBase implements
+			Mapper<K, V, NullWritable, BloomFilterWritable> {
+		private BloomFilterWritable filter;
+		private OutputCollector<NullWritable, BloomFilterWritable> output;
+
+		@Override
+		public void configure(JobConf job) {
+			filter = createFilter(job);
+		}
+
+		/**
+		 * Adds the join keys of a record to the filter.
+		 */
+		protected abstract void addKeys(K key, V value, BloomFilterWritable filter)
+				throws IOException;
+
+		public void map(K key, V value, OutputCollector<NullWritable, BloomFilterWritable> output,
+				Reporter reporter) throws IOException {
+			this.output = output;
+			addKeys(key, value, filter);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (output != null) {
+				output.collect(NullWritable.get(), filter);
+			}
+		}
+	}
+
+	/**
+	 * Reducer (and combiner) of the pre-pass, which merges the filters of the map tasks.
+	 */
+	public static class UnionReducer extends MapReduceBase implements
+			Reducer<NullWritable, BloomFilterWritable, NullWritable, BloomFilterWritable> {
+
+		public void reduce(NullWritable key, Iterator<BloomFilterWritable> values,
+				OutputCollector<NullWritable, BloomFilterWritable> output, Reporter reporter)
+				throws IOException {
+			output.collect(key, union(values));
+		}
+	}
+
+	/**
+	 * Merges filters, which may be the same object deserialized over and over.
+	 */
+	public static BloomFilterWritable union(Iterator<BloomFilterWritable> filters) {
+		BloomFilterWritable union = null;
+		while (filters.hasNext()) {
+			BloomFilterWritable filter = filters.next();
+			if (union == null) {
+				union = new BloomFilterWritable(filter.getNumBits(), filter.getNumHashes());
+			}
+			union.or(filter);
+		}
+		return union;
+	}
+
+	/**
+	 * Creates an empty filter, sized with the properties of a configuration.
+	 */
+	public static BloomFilterWritable createFilter(Configuration conf) {
+		long keys = conf.getLong(EXPECTED_KEYS_PROPERTY, 0);
+		if (keys <= 0) {
+			throw new RuntimeException("Error: " + EXPECTED_KEYS_PROPERTY + " isn't set!");
+		}
+
+		String rate = conf.get(FALSE_POSITIVE_RATE_PROPERTY);
+		return BloomFilterWritable.create(keys, rate == null ? DEFAULT_FALSE_POSITIVE_RATE : Double
+				.parseDouble(rate));
+	}
+
+	/**
+	 * Runs the pre-pass, whose input and mapper are already set, and writes the filter.
+	 *
+	 * @param conf configuration of the pre-pass
+	 * @param path path of the filter
+	 */
+	public static void runJob(JobConf conf, Path path) throws IOException {
+		conf.setNumReduceTasks(1);
+		conf.setCombinerClass(UnionReducer.class);
+		conf.setReducerClass(UnionReducer.class);
+
+		conf.setOutputKeyClass(NullWritable.class);
+		conf.setOutputValueClass(BloomFilterWritable.class);
+		conf.setOutputFormat(SequenceFileOutputFormat.class);
+		FileOutputFormat.setOutputPath(conf, getOutputPath(path));
+
+		FileSystem.get(conf).delete(getOutputPath(path), true);
+		JobClient.runJob(conf);
+
+		collectFilter(conf, path);
+	}
+
+	/**
+	 * Returns the output path of the pre-pass writing a filter.
+	 */
+	public static Path getOutputPath(Path path) {
+		return path.suffix(".parts");
+	}
+
+	/**
+	 * Reads the filters written by the pre-pass, whatever the API it was run with, merges them, and
+	 * writes the filter.
+	 */
+	public static void collectFilter(Configuration conf, Path path) throws IOException {
+		FileSystem fs = path.getFileSystem(conf);
+		Path outputPath = getOutputPath(path);
+
+		BloomFilterWritable filter = null;
+		NullWritable key = NullWritable.get();
+		BloomFilterWritable value = new BloomFilterWritable();
+		for (FileStatus status : fs.listStatus(outputPath)) {
+			if (!status.getPath().getName().startsWith("part-"))
+				continue;
+
+			SequenceFile.Reader reader = new SequenceFile.Reader(fs, status.getPath(), conf);
+			while (reader.next(key, value)) {
+				if (filter == null) {
+					filter = new BloomFilterWritable(value.getNumBits(), value.getNumHashes());
+				}
+				filter.or(value);
+			}
+			reader.close();
+		}
+
+		if (filter == null) {
+			// no input, so no keys
+			filter = createFilter(conf);
+		}
+
+		filter.save(path, fs);
+		fs.delete(outputPath, true);
+
+		LOG.info("Wrote Bloom filter " + path + ": " + filter + ", estimated false positive rate: "
+				+ filter.getFalsePositiveRate());
+	}
+
+	/**
+	 * Ships the filter named by {@link #PATH_PROPERTY}, if any, with a join job.
+	 *
+	 * @return <code>true</code> if there is a filter
+	 */
+	public static boolean addCacheFile(Configuration conf) throws IOException {
+		String path = conf.get(PATH_PROPERTY);
+		if (path == null) {
+			return false;
+		}
+
+		Path p = new Path(path);
+		DistributedCache.addCacheFile(p.getFileSystem(conf).makeQualified(p).toUri(), conf);
+		return true;
+	}
+
+	/**
+	 * Loads the filter named by {@link #PATH_PROPERTY} in a task of a join job, or returns
+	 * <code>null</code> if there is none.
+	 */
+	public static BloomFilterWritable loadFilter(Configuration conf) throws IOException {
+		String path = conf.get(PATH_PROPERTY);
+		if (path == null) {
+			return null;
+		}
+
+		Path p = new Path(path);
+		Path[] localFiles = DistributedCache.getLocalCacheFiles(conf);
+		if (localFiles != null) {
+			for (Path local : localFiles) {
+				if (local.getName().equals(p.getName())) {
+					return BloomFilterWritable.load(local, FileSystem.getLocal(conf));
+				}
+			}
+		}
+
+		// the local job runner doesn't localize cache files; read the original
+		return BloomFilterWritable.load(p, p.getFileSystem(conf));
+	}
+
+	/**
+	 * Returns the number of bytes a record takes when serialized.
+	 *
+	 * @param buffer buffer to serialize the record to, reused across calls
+	 * @param key key of the record
+	 * @param value value of the record
+	 */
+	public static int getSerializedSize(DataOutputBuffer buffer, Writable key, Writable value)
+			throws IOException {
+		buffer.reset();
+		key.write(buffer);
+		value.write(buffer);
+		return buffer.getLength();
+	}
+}
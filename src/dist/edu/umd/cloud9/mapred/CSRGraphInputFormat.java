@@ -0,0 +1,127 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.mapred;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+
+import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
+import edu.umd.cloud9.io.graph.CSRGraphIndex;
+import edu.umd.cloud9.io.graph.CSRGraphReader;
+
+/**
+ * <p>
+ * Input format reading a {@link CSRGraph}, through the old API, with the node id as key. A
+ * subclass turns every adjacency list into the node value a job works on, e.g., a HITS node, so
+ * that the graph is read directly rather than converted into node records by another job. The
+ * neighbors are read into the same list for every node, which the value may hold on to until the
+ * next record is read. Shards are not split.
+ * </p>
+ *
+ * @see edu.umd.cloud9.mapreduce.lib.input.CSRGraphInputFormat
+ */
+@SuppressWarnings("deprecation")
+public abstract class CSRGraphInputFormat<V extends Writable> extends
+		FileInputFormat<IntWritable, V> {
+
+	/**
+	 * Creates the value that is set for every node.
+	 */
+	protected abstract V createValue(JobConf job);
+
+	/**
+	 * Sets the value of a node.
+	 *
+	 * @param value value created by {@link #createValue(JobConf)}
+	 * @param node id of the node
+	 * @param neighbors neighbors of the node, in increasing order of id
+	 */
+	protected abstract void setValue(V value, int node, ArrayListOfIntsWritable neighbors);
+
+	@Override
+	protected boolean isSplitable(FileSystem fs, Path filename) {
+		return false;
+	}
+
+	@Override
+	public RecordReader<IntWritable, V> getRecordReader(InputSplit split, JobConf job,
+			Reporter reporter) throws IOException {
+		reporter.setStatus(split.toString());
+		return new CSRGraphRecordReader((FileSplit) split, job);
+	}
+
+	private class CSRGraphRecordReader implements RecordReader<IntWritable, V> {
+		private final ArrayListOfIntsWritable neighbors = new ArrayListOfIntsWritable();
+		private final JobConf job;
+		private final FSDataInputStream in;
+		private final CSRGraphReader reader;
+
+		public CSRGraphRecordReader(FileSplit split, JobConf job) throws IOException {
+			Path path = split.getPath();
+			FileSystem fs = path.getFileSystem(job);
+
+			CSRGraphIndex index = CSRGraphIndex.load(CSRGraph.getIndexPath(path), fs);
+			this.job = job;
+			this.in = fs.open(path);
+			this.reader = new CSRGraphReader(in, index.getNumNodes());
+		}
+
+		public boolean next(IntWritable key, V value) throws IOException {
+			if (!reader.next(neighbors)) {
+				return false;
+			}
+
+			key.set(reader.getNode());
+			setValue(value, reader.getNode(), neighbors);
+			return true;
+		}
+
+		public IntWritable createKey() {
+			return new IntWritable();
+		}
+
+		public V createValue() {
+			return CSRGraphInputFormat.this.createValue(job);
+		}
+
+		public long getPos() throws IOException {
+			return in.getPos();
+		}
+
+		public float getProgress() {
+			return reader.getNumNodes() == 0 ? 1.0f : (float) reader.getNodesRead()
+					/ reader.getNumNodes();
+		}
+
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
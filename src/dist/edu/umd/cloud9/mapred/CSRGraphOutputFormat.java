@@ -0,0 +1,60 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.mapred;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.Progressable;
+
+import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
+import edu.umd.cloud9.io.graph.CSRGraphWriter;
+
+/**
+ * Output format writing a {@link CSRGraph}, through the old API: every task writes a shard, and
+ * the index of the shard to the <code>_index</code> directory of the output. Keys are node ids, and
+ * values their neighbors; node ids must be written in increasing order, as they come out of a
+ * reducer keyed by node id.
+ */
+@SuppressWarnings("deprecation")
+public class CSRGraphOutputFormat extends FileOutputFormat<IntWritable, ArrayListOfIntsWritable> {
+
+	@Override
+	public RecordWriter<IntWritable, ArrayListOfIntsWritable> getRecordWriter(FileSystem ignored,
+			JobConf job, String name, Progressable progress) throws IOException {
+		Path path = FileOutputFormat.getTaskOutputPath(job, name);
+		final CSRGraphWriter writer = new CSRGraphWriter(path, path.getFileSystem(job));
+
+		return new RecordWriter<IntWritable, ArrayListOfIntsWritable>() {
+			public void write(IntWritable key, ArrayListOfIntsWritable value) throws IOException {
+				writer.append(key.get(), value);
+			}
+
+			public void close(Reporter reporter) throws IOException {
+				writer.close();
+			}
+		};
+	}
+}
@@ -33,6 +33,7 @@ public abstract class NullMapper extends MapReduceBase implements
 					mReporter.incrCounter(Heartbeat.COUNT, 1);
 					Thread.sleep(60000);
 				} catch (InterruptedException e) {
+					break;
 				}
 			}
 		}
@@ -49,7 +50,12 @@ public abstract class NullMapper extends MapReduceBase implements
 		Thread pulse = new Thread(new HeartbeatRunnable(reporter));
 		pulse.start();
 
-		run(mConf, reporter);
+		try {
+			run(mConf, reporter);
+		} finally {
+			// otherwise the thread outlives the task, e.g., with the local job runner
+			pulse.interrupt();
+		}
 	}
 
 	public abstract void run(JobConf conf, Reporter reporter) throws IOException;
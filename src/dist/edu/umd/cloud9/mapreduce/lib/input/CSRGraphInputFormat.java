@@ -0,0 +1,132 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.mapreduce.lib.input;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
+import edu.umd.cloud9.io.graph.CSRGraphIndex;
+import edu.umd.cloud9.io.graph.CSRGraphReader;
+
+/**
+ * <p>
+ * Input format reading a {@link CSRGraph}, through the new API, with the node id as key. A
+ * subclass turns every adjacency list into the node value a job works on, e.g., a PageRank node,
+ * so that the graph is read directly rather than converted into node records by another job. The
+ * neighbors are read into the same list for every node, which the value may hold on to until the
+ * next record is read. Shards are not split.
+ * </p>
+ *
+ * @see edu.umd.cloud9.mapred.CSRGraphInputFormat
+ */
+public abstract class CSRGraphInputFormat<V extends Writable> extends
+		FileInputFormat<IntWritable, V> {
+
+	/**
+	 * Creates the value that is set for every node.
+	 */
+	protected abstract V createValue(Configuration conf);
+
+	/**
+	 * Sets the value of a node.
+	 *
+	 * @param value value created by {@link #createValue(Configuration)}
+	 * @param node id of the node
+	 * @param neighbors neighbors of the node, in increasing order of id
+	 */
+	protected abstract void setValue(V value, int node, ArrayListOfIntsWritable neighbors);
+
+	@Override
+	protected boolean isSplitable(JobContext context, Path filename) {
+		return false;
+	}
+
+	@Override
+	public RecordReader<IntWritable, V> createRecordReader(InputSplit split,
+			TaskAttemptContext context) {
+		return new CSRGraphRecordReader();
+	}
+
+	private class CSRGraphRecordReader extends RecordReader<IntWritable, V> {
+		private final IntWritable key = new IntWritable();
+		private final ArrayListOfIntsWritable neighbors = new ArrayListOfIntsWritable();
+		private V value;
+		private FSDataInputStream in;
+		private CSRGraphReader reader;
+
+		@Override
+		public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+			Configuration conf = context.getConfiguration();
+			Path path = ((FileSplit) split).getPath();
+			FileSystem fs = path.getFileSystem(conf);
+
+			CSRGraphIndex index = CSRGraphIndex.load(CSRGraph.getIndexPath(path), fs);
+			in = fs.open(path);
+			reader = new CSRGraphReader(in, index.getNumNodes());
+			value = createValue(conf);
+		}
+
+		@Override
+		public boolean nextKeyValue() throws IOException {
+			if (!reader.next(neighbors)) {
+				return false;
+			}
+
+			key.set(reader.getNode());
+			setValue(value, reader.getNode(), neighbors);
+			return true;
+		}
+
+		@Override
+		public IntWritable getCurrentKey() {
+			return key;
+		}
+
+		@Override
+		public V getCurrentValue() {
+			return value;
+		}
+
+		@Override
+		public float getProgress() {
+			return reader.getNumNodes() == 0 ? 1.0f : (float) reader.getNodesRead()
+					/ reader.getNumNodes();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (in != null) {
+				in.close();
+			}
+		}
+	}
+}
@@ -1,8 +1,82 @@
 package edu.umd.cloud9.math;
 
+/**
+ * <p>
+ * Arithmetic on numbers represented by their (natural) logarithms. {@link #add(double, double)}
+ * and {@link #add(float, float)} are exact, up to floating-point rounding.
+ * {@link #addFast(double, double)}, {@link #addFast(float, float)} and
+ * {@link #logSumExp(float[], int, int)} are meant for inner loops: they replace the calls to
+ * <code>exp</code> and <code>log</code> by lookups in small tables, and are within
+ * {@link #ERROR_BOUND} of the exact result (plus the rounding of the result to a float, where it is
+ * one).
+ * </p>
+ *
+ * <p>
+ * The fast methods can be made exact, e.g., to check whether the approximation matters for a
+ * particular job, by calling {@link #setExact(boolean)}, or by setting the system property
+ * <code>cloud9.logmath.exact</code> to <code>true</code> (for a MapReduce job, through
+ * <code>mapred.child.java.opts</code>).
+ * </p>
+ *
+ * <p>
+ * The PageRank and HITS jobs in Cloud9 read the same property from their job configuration
+ * instead, and add exactly unless it is set to <code>false</code> there.
+ * </p>
+ */
 public class LogMath {
   /**
-   * 
+   * Bound on the absolute error of {@link #log1pExpNeg(double)}, and therefore of
+   * {@link #addFast(double, double)}, before rounding the result.
+   */
+  public static final double ERROR_BOUND = 1e-7;
+
+  /**
+   * System property that, if set to <code>true</code>, makes the fast methods exact.
+   */
+  public static final String EXACT_PROPERTY = "cloud9.logmath.exact";
+
+  // beyond this difference, log1p(exp(-x)) < 4e-11 and is taken to be zero
+  private static final int CUTOFF = 24;
+  private static final int STEPS_PER_UNIT = 64;
+  private static final double STEP = 1.0 / STEPS_PER_UNIT;
+
+  // log1p(exp(-x)) and its negated derivative, 1 / (1 + exp(x)), at every step
+  private static final double[] LOG1P_EXP_NEG = new double[CUTOFF * STEPS_PER_UNIT + 1];
+  private static final double[] SIGMOID_NEG = new double[CUTOFF * STEPS_PER_UNIT + 1];
+  // exp(-x) at every step; between steps, a third-order expansion is within a relative 3e-9
+  private static final double[] EXP_NEG = new double[CUTOFF * STEPS_PER_UNIT + 1];
+
+  static {
+    for (int i = 0; i < LOG1P_EXP_NEG.length; i++) {
+      double x = i * STEP;
+      LOG1P_EXP_NEG[i] = Math.log1p(Math.exp(-x));
+      SIGMOID_NEG[i] = 1.0 / (1.0 + Math.exp(x));
+      EXP_NEG[i] = Math.exp(-x);
+    }
+  }
+
+  private static boolean exact = Boolean.getBoolean(EXACT_PROPERTY);
+
+  private LogMath() {
+  }
+
+  /**
+   * Makes the fast methods exact (or approximate again). This is a global setting, which should
+   * be changed before any computation starts.
+   */
+  public static void setExact(boolean b) {
+    exact = b;
+  }
+
+  /**
+   * Returns whether the fast methods are exact.
+   */
+  public static boolean isExact() {
+    return exact;
+  }
+
+  /**
+   *
    * @param a log a, in natural base e
    * @param b log b, in natural base e
    * @return log(a + b), in natural base e
@@ -16,7 +90,7 @@ public class LogMath {
   }
 
   /**
-   * 
+   *
    * @param a log a, in natural base e
    * @param b log b, in natural base e
    * @return log(a + b), in natural base e
@@ -28,4 +102,96 @@ public class LogMath {
       return (float) (a + Math.log(1 + Math.exp(b - a)));
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Returns log(1 + exp(-x)) for x &ge; 0, to within {@link #ERROR_BOUND}, from a table and a
+   * second-order expansion around the nearest table entry below x.
+   */
+  public static double log1pExpNeg(double x) {
+    if (!(x < CUTOFF)) {
+      // also catches NaN
+      return x >= CUTOFF ? 0.0 : Double.NaN;
+    }
+
+    int i = (int) (x * STEPS_PER_UNIT);
+    double r = x - i * STEP;
+    double s = SIGMOID_NEG[i];
+
+    // f(x0 + r) = f(x0) + f'(x0) r + f''(x0) r^2 / 2, with f' = -s and f'' = s (1 - s)
+    return LOG1P_EXP_NEG[i] - s * r * (1.0 - 0.5 * (1.0 - s) * r);
+  }
+
+  /**
+   * Fast counterpart of {@link #add(double, double)}. Either argument may be negative infinity
+   * (i.e., log 0).
+   *
+   * @param a log a, in natural base e
+   * @param b log b, in natural base e
+   * @return log(a + b), in natural base e
+   */
+  public static double addFast(double a, double b) {
+    if (a == Double.NEGATIVE_INFINITY)
+      return b;
+
+    if (b == Double.NEGATIVE_INFINITY)
+      return a;
+
+    if (exact) {
+      return a < b ? b + Math.log1p(Math.exp(a - b)) : a + Math.log1p(Math.exp(b - a));
+    }
+
+    return a < b ? b + log1pExpNeg(b - a) : a + log1pExpNeg(a - b);
+  }
+
+  /**
+   * Fast counterpart of {@link #add(float, float)}. Either argument may be negative infinity
+   * (i.e., log 0).
+   *
+   * @param a log a, in natural base e
+   * @param b log b, in natural base e
+   * @return log(a + b), in natural base e
+   */
+  public static float addFast(float a, float b) {
+    return (float) addFast((double) a, (double) b);
+  }
+
+  /**
+   * Returns the log of the sum of the numbers whose logs are in a range of an array. This takes
+   * two passes over the range: one to find the largest value, and one to add up the exponentials of
+   * the others relative to it, so that only a single log is taken, rather than one per value as
+   * when calling {@link #addFast(float, float)} repeatedly.
+   *
+   * @param values logs, in natural base e
+   * @param start first index of the range
+   * @param end index after the last index of the range
+   * @return log of the sum, in natural base e; negative infinity if the range is empty
+   */
+  public static float logSumExp(float[] values, int start, int end) {
+    float max = Float.NEGATIVE_INFINITY;
+    for (int i = start; i < end; i++) {
+      if (values[i] > max)
+        max = values[i];
+    }
+
+    if (max == Float.NEGATIVE_INFINITY || max == Float.POSITIVE_INFINITY)
+      return max;
+
+    double sum = 0.0;
+    if (exact) {
+      for (int i = start; i < end; i++) {
+        sum += Math.exp(values[i] - max);
+      }
+    } else {
+      // differences past the end of the table are clamped to it, where exp(-x) is negligible
+      for (int i = start; i < end; i++) {
+        double x = Math.min(max - values[i], CUTOFF);
+        int k = (int) (x * STEPS_PER_UNIT);
+        double r = x - k * STEP;
+        sum += EXP_NEG[k] * (1.0 - r * (1.0 - r * (0.5 - r * (1.0 / 6.0))));
+      }
+    }
+
+    // the largest value contributes exactly 1, so the sum is at least 1
+    return (float) (max + Math.log(sum));
+  }
+}
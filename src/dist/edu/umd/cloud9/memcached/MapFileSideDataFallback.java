@@ -0,0 +1,62 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.memcached;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * {@link SideDataFallback} backed by a <code>MapFile</code> on HDFS with <code>Text</code> keys,
+ * such as the log probabilities read by
+ * {@link edu.umd.cloud9.example.memcached.demo.GetLogProbFromHDFS}. Values are returned as
+ * freshly-allocated <code>Writable</code>s, since callers may hang on to them.
+ */
+public class MapFileSideDataFallback implements SideDataFallback {
+  private final MapFile.Reader reader;
+  private final Configuration conf;
+  private final Text key = new Text();
+
+  /**
+   * Opens a <code>MapFile</code>.
+   *
+   * @param dir path of the <code>MapFile</code>
+   * @param fs reference to the {@code FileSystem}
+   * @param conf configuration
+   */
+  public MapFileSideDataFallback(String dir, FileSystem fs, Configuration conf) throws IOException {
+    this.reader = new MapFile.Reader(fs, dir, conf);
+    this.conf = conf;
+  }
+
+  @Override
+  public synchronized Object get(String k) throws IOException {
+    key.set(k);
+    Writable value = (Writable) ReflectionUtils.newInstance(reader.getValueClass(), conf);
+    return reader.get(key, value) == null ? null : value;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
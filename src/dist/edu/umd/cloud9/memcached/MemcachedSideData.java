@@ -0,0 +1,521 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.memcached;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.spy.memcached.AddrUtil;
+import net.spy.memcached.MemcachedClient;
+import net.spy.memcached.MemcachedClientIF;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * Side-data access layer over memcached for use inside mappers and reducers. Compared to calling
+ * <code>MemcachedClient.get</code> once per key, this class:
+ * </p>
+ *
+ * <ul>
+ * <li>fetches all keys needed by a record (or by several records) with a single multi-get;</li>
+ * <li>keeps a bounded, per-task LRU "near-cache" of recently seen keys (including keys that
+ * turned out not to exist), so that frequent keys never leave the JVM;</li>
+ * <li>supports pipelining: {@link #prefetch(Collection)} issues an asynchronous multi-get and
+ * returns immediately, so the network round trip overlaps with other work; completed prefetches
+ * are moved into the near-cache, and the number in flight is bounded, so keys that are prefetched
+ * but never asked for don't accumulate;</li>
+ * <li>falls back to a {@link SideDataFallback} (e.g., the <code>MapFile</code> on HDFS) for keys
+ * memcached doesn't have, or when memcached times out;</li>
+ * <li>bounds the number of outstanding asynchronous <code>set</code> operations, so that bulk
+ * loading doesn't overflow the client's operation queue.</li>
+ * </ul>
+ *
+ * <p>
+ * Hit, miss, and fallback counts are tracked and can be pushed to Hadoop counters with
+ * {@link #reportCounters(Reporter)}. Instances are not thread safe; create one per task.
+ * </p>
+ */
+public class MemcachedSideData {
+  private static final Logger LOG = Logger.getLogger(MemcachedSideData.class);
+
+  /** Property holding the space-separated list of memcached servers (host:port). */
+  public static final String ADDRESSES_PROPERTY = "ADDRESSES";
+  /** Property holding the maximum number of entries in the near-cache. */
+  public static final String NEAR_CACHE_SIZE_PROPERTY = "cloud9.memcached.nearcache.size";
+  /** Property holding the path of a <code>MapFile</code> to fall back on. */
+  public static final String FALLBACK_MAPFILE_PROPERTY = "cloud9.memcached.fallback.mapfile";
+  /** Property holding the timeout for memcached operations, in milliseconds. */
+  public static final String TIMEOUT_PROPERTY = "cloud9.memcached.timeout.ms";
+  /** Property holding the maximum number of outstanding <code>set</code> operations. */
+  public static final String MAX_PENDING_SETS_PROPERTY = "cloud9.memcached.maxpendingsets";
+  /** Property holding the maximum number of outstanding prefetches (multi-gets). */
+  public static final String MAX_PENDING_GETS_PROPERTY = "cloud9.memcached.maxpendinggets";
+
+  public static final int DEFAULT_NEAR_CACHE_SIZE = 100000;
+  public static final long DEFAULT_TIMEOUT = 5000;
+  public static final int DEFAULT_MAX_PENDING_SETS = 10000;
+  public static final int DEFAULT_MAX_PENDING_GETS = 100;
+
+  public static enum Counters {
+    KEYS, NEAR_CACHE_HITS, NEAR_CACHE_MISSES, REMOTE_HITS, REMOTE_MISSES, REMOTE_FAILURES,
+    FALLBACK_HITS, FALLBACK_MISSES, BULK_GETS, SETS, FAILED_SETS
+  };
+
+  // Placeholder in the near-cache for keys known not to exist.
+  private static final Object MISSING = new Object();
+
+  private final MemcachedClientIF client;
+  private final LinkedHashMap<String, Object> nearCache;
+  private final Map<String, PendingGet> pendingGets = new HashMap<String, PendingGet>();
+  private final LinkedList<PendingGet> inFlight = new LinkedList<PendingGet>();
+  private final LinkedList<Future<Boolean>> pendingSets = new LinkedList<Future<Boolean>>();
+  private final long[] counts = new long[Counters.values().length];
+  private final long[] reported = new long[Counters.values().length];
+
+  private SideDataFallback fallback = null;
+  private long timeout = DEFAULT_TIMEOUT;
+  private int maxPendingSets = DEFAULT_MAX_PENDING_SETS;
+  private int maxPendingGets = DEFAULT_MAX_PENDING_GETS;
+
+  // An in-flight asynchronous multi-get, and the keys it covers.
+  private static class PendingGet {
+    final Future<Map<String, Object>> future;
+    final Collection<String> keys;
+    boolean resolved = false;
+
+    PendingGet(Future<Map<String, Object>> future, Collection<String> keys) {
+      this.future = future;
+      this.keys = keys;
+    }
+  }
+
+  /**
+   * Creates an instance over an existing client.
+   *
+   * @param client memcached client
+   * @param nearCacheSize maximum number of entries in the near-cache; zero disables it
+   */
+  public MemcachedSideData(MemcachedClientIF client, final int nearCacheSize) {
+    if (nearCacheSize < 0) {
+      throw new IllegalArgumentException("Illegal near-cache size: " + nearCacheSize);
+    }
+
+    this.client = client;
+    this.nearCache = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+        return size() > nearCacheSize;
+      }
+    };
+  }
+
+  /**
+   * Creates an instance from a job configuration: servers are taken from
+   * {@link #ADDRESSES_PROPERTY}, and if {@link #FALLBACK_MAPFILE_PROPERTY} is set, the
+   * <code>MapFile</code> it points to is used as fallback.
+   *
+   * @param conf job configuration
+   */
+  public static MemcachedSideData create(JobConf conf) throws IOException {
+    String addresses = conf.get(ADDRESSES_PROPERTY);
+    if (addresses == null) {
+      throw new IllegalArgumentException("No memcached servers specified in " + ADDRESSES_PROPERTY);
+    }
+
+    MemcachedSideData sideData = new MemcachedSideData(
+        new MemcachedClient(AddrUtil.getAddresses(addresses)),
+        conf.getInt(NEAR_CACHE_SIZE_PROPERTY, DEFAULT_NEAR_CACHE_SIZE));
+    sideData.setTimeout(conf.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT));
+    sideData.setMaxPendingSets(conf.getInt(MAX_PENDING_SETS_PROPERTY, DEFAULT_MAX_PENDING_SETS));
+    sideData.setMaxPendingGets(conf.getInt(MAX_PENDING_GETS_PROPERTY, DEFAULT_MAX_PENDING_GETS));
+
+    String fallback = conf.get(FALLBACK_MAPFILE_PROPERTY);
+    if (fallback != null) {
+      sideData.setFallback(new MapFileSideDataFallback(fallback, FileSystem.get(conf), conf));
+    }
+
+    return sideData;
+  }
+
+  /**
+   * Sets the source consulted for keys memcached doesn't have.
+   */
+  public void setFallback(SideDataFallback fallback) {
+    this.fallback = fallback;
+  }
+
+  /**
+   * Sets the timeout for memcached operations, in milliseconds.
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Sets the maximum number of outstanding asynchronous <code>set</code> operations.
+   */
+  public void setMaxPendingSets(int maxPendingSets) {
+    this.maxPendingSets = maxPendingSets;
+  }
+
+  /**
+   * Sets the maximum number of outstanding prefetches. Beyond that, {@link #prefetch(Collection)}
+   * waits for the oldest ones to complete first.
+   */
+  public void setMaxPendingGets(int maxPendingGets) {
+    this.maxPendingGets = maxPendingGets;
+  }
+
+  /**
+   * Returns the value associated with a key, or <code>null</code> if neither memcached nor the
+   * fallback has it.
+   */
+  public Object get(String key) throws IOException {
+    return getAll(Collections.singletonList(key)).get(key);
+  }
+
+  /**
+   * Returns the values associated with a collection of keys. Keys that cannot be found anywhere are
+   * absent from the returned map. All near-cache misses are fetched with a single multi-get.
+   */
+  public Map<String, Object> getAll(Collection<String> keys) throws IOException {
+    Map<String, Object> results = new HashMap<String, Object>();
+    getAll(keys, results);
+    return results;
+  }
+
+  /**
+   * Looks up a collection of keys, putting the values that are found into <code>results</code>.
+   * Keys that memcached fails to return (because of a timeout or an error) are looked up in the
+   * fallback, but are neither counted as misses nor remembered as missing.
+   */
+  public void getAll(Collection<String> keys, Map<String, Object> results) throws IOException {
+    if (keys.size() > 1 && !(keys instanceof Set)) {
+      keys = new LinkedHashSet<String>(keys);
+    }
+    drainPrefetches();
+
+    List<String> misses = null;
+    List<PendingGet> waitFor = null;
+    List<String> toFetch = null;
+
+    for (String key : keys) {
+      counts[Counters.KEYS.ordinal()]++;
+
+      Object value = nearCache.get(key);
+      if (value != null) {
+        counts[Counters.NEAR_CACHE_HITS.ordinal()]++;
+        if (value != MISSING) {
+          results.put(key, value);
+        }
+        continue;
+      }
+
+      counts[Counters.NEAR_CACHE_MISSES.ordinal()]++;
+      if (misses == null) {
+        misses = new ArrayList<String>();
+        waitFor = new ArrayList<PendingGet>();
+        toFetch = new ArrayList<String>();
+      }
+      misses.add(key);
+
+      PendingGet pending = pendingGets.get(key);
+      if (pending != null) {
+        if (!waitFor.contains(pending)) {
+          waitFor.add(pending);
+        }
+      } else if (isValidKey(key)) {
+        toFetch.add(key);
+      }
+    }
+
+    if (misses == null) {
+      return;
+    }
+
+    if (!toFetch.isEmpty()) {
+      waitFor.add(issue(toFetch));
+    }
+
+    Map<String, Object> fetched = new HashMap<String, Object>();
+    Set<String> failed = new HashSet<String>();
+    for (PendingGet pending : waitFor) {
+      resolve(pending, fetched, failed);
+    }
+
+    for (String key : misses) {
+      Object value = fetched.get(key);
+      if (value != null) {
+        counts[Counters.REMOTE_HITS.ordinal()]++;
+      } else if (failed.contains(key)) {
+        // Memcached may well have the key; don't remember it as missing.
+        value = getFromFallback(key);
+        if (value != null) {
+          nearCache.put(key, value);
+        }
+      } else {
+        counts[Counters.REMOTE_MISSES.ordinal()]++;
+        value = getFromFallback(key);
+        nearCache.put(key, value == null ? MISSING : value);
+      }
+
+      if (value != null) {
+        results.put(key, value);
+      }
+    }
+  }
+
+  /**
+   * Issues an asynchronous multi-get for those keys that are neither in the near-cache nor already
+   * in flight, and returns immediately. A later {@link #get(String)} or {@link #getAll(Collection)}
+   * for these keys waits for the result instead of issuing another request.
+   */
+  public void prefetch(Collection<String> keys) {
+    drainPrefetches();
+
+    List<String> toFetch = new ArrayList<String>();
+    for (String key : keys) {
+      if (!nearCache.containsKey(key) && !pendingGets.containsKey(key) && isValidKey(key)) {
+        toFetch.add(key);
+      }
+    }
+
+    if (!toFetch.isEmpty()) {
+      issue(toFetch);
+    }
+  }
+
+  private PendingGet issue(List<String> keys) {
+    counts[Counters.BULK_GETS.ordinal()]++;
+
+    PendingGet pending = new PendingGet(client.asyncGetBulk(keys), keys);
+    for (String key : keys) {
+      pendingGets.put(key, pending);
+    }
+    inFlight.add(pending);
+    return pending;
+  }
+
+  // Moves completed multi-gets into the near-cache, oldest first, and waits for the oldest ones if
+  // too many are in flight. Without this, a prefetched key that is never asked for would hold on
+  // to its multi-get until the end of the task.
+  private void drainPrefetches() {
+    while (!inFlight.isEmpty()) {
+      PendingGet pending = inFlight.getFirst();
+      if (!pending.resolved && !pending.future.isDone() && inFlight.size() <= maxPendingGets) {
+        break;
+      }
+
+      inFlight.removeFirst();
+      if (!pending.resolved) {
+        resolve(pending, null, null);
+      }
+    }
+  }
+
+  // Waits for a multi-get, putting the values it returns into the near-cache and fetched, or all of
+  // its keys into failed if it times out or fails. Either collection may be null.
+  private void resolve(PendingGet pending, Map<String, Object> fetched, Set<String> failed) {
+    pending.resolved = true;
+    for (String key : pending.keys) {
+      pendingGets.remove(key);
+    }
+
+    Map<String, Object> values = null;
+    try {
+      values = pending.future.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      pending.future.cancel(true);
+      LOG.warn("Timed out fetching " + pending.keys.size() + " keys from memcached.");
+    } catch (ExecutionException e) {
+      LOG.warn("Error fetching " + pending.keys.size() + " keys from memcached: " + e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    if (values == null) {
+      counts[Counters.REMOTE_FAILURES.ordinal()]++;
+      if (failed != null) {
+        failed.addAll(pending.keys);
+      }
+      return;
+    }
+
+    for (Map.Entry<String, Object> e : values.entrySet()) {
+      if (e.getValue() != null) {
+        if (fetched != null) {
+          fetched.put(e.getKey(), e.getValue());
+        }
+        nearCache.put(e.getKey(), e.getValue());
+      }
+    }
+  }
+
+  private Object getFromFallback(String key) throws IOException {
+    if (fallback == null) {
+      return null;
+    }
+
+    Object value = fallback.get(key);
+    if (value != null) {
+      counts[Counters.FALLBACK_HITS.ordinal()]++;
+    } else {
+      counts[Counters.FALLBACK_MISSES.ordinal()]++;
+    }
+    return value;
+  }
+
+  /**
+   * Stores a value asynchronously. If too many <code>set</code> operations are outstanding, waits
+   * for the oldest ones to complete first.
+   *
+   * @param key the key
+   * @param exp expiration time, in seconds
+   * @param value the value
+   */
+  public void set(String key, int exp, Object value) {
+    if (!isValidKey(key)) {
+      throw new IllegalArgumentException("Invalid memcached key: " + key);
+    }
+
+    while (pendingSets.size() >= maxPendingSets) {
+      await(pendingSets.removeFirst());
+    }
+
+    pendingSets.add(client.set(key, exp, value));
+    counts[Counters.SETS.ordinal()]++;
+
+    if (nearCache.containsKey(key)) {
+      nearCache.put(key, value);
+    }
+  }
+
+  /**
+   * Waits for all outstanding <code>set</code> operations to complete.
+   */
+  public void flush() {
+    while (!pendingSets.isEmpty()) {
+      await(pendingSets.removeFirst());
+    }
+  }
+
+  private void await(Future<Boolean> future) {
+    boolean success = false;
+    try {
+      success = Boolean.TRUE.equals(future.get(timeout, TimeUnit.MILLISECONDS));
+    } catch (TimeoutException e) {
+      future.cancel(true);
+    } catch (ExecutionException e) {
+      LOG.warn("Error setting value in memcached: " + e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    if (!success) {
+      counts[Counters.FAILED_SETS.ordinal()]++;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the string can be used as a memcached key: keys may not be longer
+   * than 250 bytes, and may not contain whitespace or control characters. Invalid keys are never
+   * sent to memcached, but may still be found in the fallback.
+   */
+  public static boolean isValidKey(String key) {
+    int len = key.length();
+    if (len == 0 || len > MemcachedClientIF.MAX_KEY_LENGTH) {
+      return false;
+    }
+
+    int bytes = 0;
+    for (int i = 0; i < len; i++) {
+      char c = key.charAt(i);
+      if (c <= ' ' || c == 0x7f) {
+        return false;
+      }
+      bytes += c < 0x80 ? 1 : (c < 0x800 ? 2 : 3);
+    }
+    return bytes <= MemcachedClientIF.MAX_KEY_LENGTH;
+  }
+
+  /**
+   * Returns the current value of a counter.
+   */
+  public long getCount(Counters counter) {
+    return counts[counter.ordinal()];
+  }
+
+  /**
+   * Returns the fraction of key lookups served from the near-cache.
+   */
+  public float getNearCacheHitRate() {
+    long keys = counts[Counters.KEYS.ordinal()];
+    return keys == 0 ? 0.0f : (float) counts[Counters.NEAR_CACHE_HITS.ordinal()] / keys;
+  }
+
+  /**
+   * Returns the number of entries currently in the near-cache.
+   */
+  public int getNearCacheSize() {
+    return nearCache.size();
+  }
+
+  /**
+   * Increments Hadoop counters by however much each counter has changed since the last call.
+   */
+  public void reportCounters(Reporter reporter) {
+    for (Counters c : Counters.values()) {
+      int i = c.ordinal();
+      if (counts[i] != reported[i]) {
+        reporter.incrCounter(c, counts[i] - reported[i]);
+        reported[i] = counts[i];
+      }
+    }
+  }
+
+  /**
+   * Waits for outstanding operations, then shuts down the client and closes the fallback.
+   */
+  public void close() throws IOException {
+    flush();
+    client.shutdown();
+
+    if (fallback != null) {
+      fallback.close();
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.memcached;
+
+import java.io.IOException;
+
+/**
+ * Source of side data consulted by {@link MemcachedSideData} for keys that memcached doesn't have
+ * (e.g., because they were evicted, or the servers were flushed).
+ *
+ * @see MapFileSideDataFallback
+ */
+public interface SideDataFallback {
+  /**
+   * Returns the value associated with a key.
+   *
+   * @param key the key
+   * @return value associated with the key, or <code>null</code> if there is none
+   */
+  Object get(String key) throws IOException;
+
+  /**
+   * Releases any resources held by this fallback.
+   */
+  void close() throws IOException;
+}
@@ -0,0 +1,836 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * <p>
+ * Compressed set of ints, organized as in Roaring bitmaps (Chambi et al.): the values are split
+ * into chunks by their high 16 bits, and the low 16 bits of the values of a chunk are held in a
+ * container suited to its density, either a sorted array of up to 4096 values, or a bitmap of
+ * 2<sup>16</sup> bits. Sparse sets take two bytes per value, and dense sets, such as the documents
+ * of a frequent term in a range of consecutive docnos, a bit per possible value. Boolean
+ * operations between bitmap containers work a word of 64 values at a time, and operations between
+ * array containers merge sorted arrays, without boxing.
+ * </p>
+ *
+ * <p>
+ * Values are ordered as unsigned ints, so negative values come after all others. Bitmaps are
+ * compared lexicographically by their values in ascending order. See
+ * {@link edu.umd.cloud9.io.CompressedBitmapWritable} for the serialized form.
+ * </p>
+ */
+public class CompressedBitmap implements Comparable<CompressedBitmap>, Iterable<Integer> {
+  /**
+   * Number of values above which the values of a chunk are held in a bitmap rather than an array.
+   */
+  public static final int MAX_ARRAY_SIZE = 4096;
+
+  /**
+   * Number of 64-bit words in the bitmap of a chunk.
+   */
+  public static final int BITMAP_WORDS = 1024;
+
+  private char[] keys = new char[4];
+  private Container[] containers = new Container[4];
+  private int size = 0;
+
+  /**
+   * Creates an empty bitmap.
+   */
+  public CompressedBitmap() {
+  }
+
+  /**
+   * Creates a bitmap holding some values.
+   */
+  public static CompressedBitmap of(int... values) {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    for (int v : values) {
+      bitmap.add(v);
+    }
+    return bitmap;
+  }
+
+  /**
+   * Adds a value. Adding values in ascending order is fastest.
+   */
+  public void add(int x) {
+    char high = (char) (x >>> 16);
+    int i = indexOf(high);
+    if (i >= 0) {
+      containers[i] = containers[i].add((char) x);
+    } else {
+      insertAt(-i - 1, high, new ArrayContainer().add((char) x));
+    }
+  }
+
+  /**
+   * Removes a value, if present.
+   */
+  public void remove(int x) {
+    int i = indexOf((char) (x >>> 16));
+    if (i < 0) {
+      return;
+    }
+
+    Container c = containers[i].remove((char) x);
+    if (c.getCardinality() == 0) {
+      removeAt(i);
+    } else {
+      containers[i] = c;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the bitmap holds a value.
+   */
+  public boolean contains(int x) {
+    int i = indexOf((char) (x >>> 16));
+    return i >= 0 && containers[i].contains((char) x);
+  }
+
+  /**
+   * Returns the number of values.
+   */
+  public long getCardinality() {
+    long n = 0;
+    for (int i = 0; i < size; i++) {
+      n += containers[i].getCardinality();
+    }
+    return n;
+  }
+
+  /**
+   * Returns <code>true</code> if the bitmap is empty.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes all values.
+   */
+  public void clear() {
+    Arrays.fill(containers, 0, size, null);
+    size = 0;
+  }
+
+  /**
+   * Returns the values in ascending (unsigned) order.
+   */
+  public int[] toArray() {
+    long n = getCardinality();
+    if (n > Integer.MAX_VALUE) {
+      throw new RuntimeException("Too many values for an array!");
+    }
+
+    int[] values = new int[(int) n];
+    int pos = 0;
+    for (int i = 0; i < size; i++) {
+      pos = containers[i].fill(values, pos, keys[i] << 16);
+    }
+    return values;
+  }
+
+  /**
+   * Returns the intersection of two bitmaps.
+   */
+  public static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b) {
+    CompressedBitmap result = new CompressedBitmap();
+    int i = 0, j = 0;
+    while (i < a.size && j < b.size) {
+      if (a.keys[i] < b.keys[j]) {
+        i++;
+      } else if (a.keys[i] > b.keys[j]) {
+        j++;
+      } else {
+        result.append(a.keys[i], a.containers[i].and(b.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the union of two bitmaps.
+   */
+  public static CompressedBitmap or(CompressedBitmap a, CompressedBitmap b) {
+    CompressedBitmap result = new CompressedBitmap();
+    int i = 0, j = 0;
+    while (i < a.size || j < b.size) {
+      if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+        result.append(a.keys[i], a.containers[i].copy());
+        i++;
+      } else if (i == a.size || a.keys[i] > b.keys[j]) {
+        result.append(b.keys[j], b.containers[j].copy());
+        j++;
+      } else {
+        result.append(a.keys[i], a.containers[i].or(b.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the values of a bitmap that are not in another.
+   */
+  public static CompressedBitmap andNot(CompressedBitmap a, CompressedBitmap b) {
+    CompressedBitmap result = new CompressedBitmap();
+    int i = 0, j = 0;
+    while (i < a.size) {
+      if (j == b.size || a.keys[i] < b.keys[j]) {
+        result.append(a.keys[i], a.containers[i].copy());
+        i++;
+      } else if (a.keys[i] > b.keys[j]) {
+        j++;
+      } else {
+        result.append(a.keys[i], a.containers[i].andNot(b.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of values in the intersection of two bitmaps, without building it.
+   */
+  public static long andCardinality(CompressedBitmap a, CompressedBitmap b) {
+    long n = 0;
+    int i = 0, j = 0;
+    while (i < a.size && j < b.size) {
+      if (a.keys[i] < b.keys[j]) {
+        i++;
+      } else if (a.keys[i] > b.keys[j]) {
+        j++;
+      } else {
+        n += a.containers[i].andCardinality(b.containers[j]);
+        i++;
+        j++;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Iterator over the values in ascending (unsigned) order.
+   */
+  @Override
+  public Iterator<Integer> iterator() {
+    return new Iterator<Integer>() {
+      private int i = 0;
+      private int low = size == 0 ? -1 : containers[0].nextValue(0);
+
+      @Override
+      public boolean hasNext() {
+        return low >= 0;
+      }
+
+      @Override
+      public Integer next() {
+        if (low < 0) {
+          throw new NoSuchElementException();
+        }
+
+        int value = (keys[i] << 16) | low;
+        low = low == 0xFFFF ? -1 : containers[i].nextValue(low + 1);
+        if (low < 0 && ++i < size) {
+          low = containers[i].nextValue(0);
+        }
+        return value;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public int compareTo(CompressedBitmap that) {
+    Iterator<Integer> iter1 = iterator();
+    Iterator<Integer> iter2 = that.iterator();
+    while (iter1.hasNext() && iter2.hasNext()) {
+      long v1 = iter1.next() & 0xFFFFFFFFL;
+      long v2 = iter2.next() & 0xFFFFFFFFL;
+      if (v1 != v2) {
+        return v1 < v2 ? -1 : 1;
+      }
+    }
+    return iter1.hasNext() ? 1 : (iter2.hasNext() ? -1 : 0);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof CompressedBitmap)) {
+      return false;
+    }
+
+    CompressedBitmap that = (CompressedBitmap) obj;
+    if (size != that.size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (keys[i] != that.keys[i] || !containers[i].equals(that.containers[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = 0;
+    for (int v : toArray()) {
+      h = 31 * h + v;
+    }
+    return h;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int v : this) {
+      if (sb.length() > 1) {
+        sb.append(", ");
+      }
+      sb.append(v);
+    }
+    return sb.append("]").toString();
+  }
+
+  /**
+   * Serializes the bitmap: the number of containers, and for each container, the high 16 bits of
+   * its values, the number of values minus one (as a variable-length int), and either the low 16
+   * bits of each value (two bytes each), if there are at most 4096 values, or the 1024 words of the
+   * bitmap.
+   */
+  protected void writeContainers(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, size);
+    for (int i = 0; i < size; i++) {
+      out.writeShort(keys[i]);
+      WritableUtils.writeVInt(out, containers[i].getCardinality() - 1);
+      containers[i].write(out);
+    }
+  }
+
+  /**
+   * Deserializes a bitmap written by {@link #writeContainers(DataOutput)}.
+   */
+  protected void readContainers(DataInput in) throws IOException {
+    clear();
+
+    int n = WritableUtils.readVInt(in);
+    for (int i = 0; i < n; i++) {
+      char high = in.readChar();
+      int cardinality = WritableUtils.readVInt(in) + 1;
+
+      Container c;
+      if (cardinality <= MAX_ARRAY_SIZE) {
+        char[] content = new char[cardinality];
+        for (int j = 0; j < cardinality; j++) {
+          content[j] = in.readChar();
+        }
+        c = new ArrayContainer(content, cardinality);
+      } else {
+        long[] words = new long[BITMAP_WORDS];
+        for (int j = 0; j < BITMAP_WORDS; j++) {
+          words[j] = in.readLong();
+        }
+        c = new BitmapContainer(words, cardinality);
+      }
+      append(high, c);
+    }
+  }
+
+  private int indexOf(char high) {
+    // values are mostly added in ascending order
+    if (size > 0 && keys[size - 1] == high) {
+      return size - 1;
+    }
+    return Arrays.binarySearch(keys, 0, size, high);
+  }
+
+  private void insertAt(int i, char high, Container c) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, 2 * size);
+      containers = Arrays.copyOf(containers, 2 * size);
+    }
+    System.arraycopy(keys, i, keys, i + 1, size - i);
+    System.arraycopy(containers, i, containers, i + 1, size - i);
+    keys[i] = high;
+    containers[i] = c;
+    size++;
+  }
+
+  private void removeAt(int i) {
+    System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+    System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+    containers[--size] = null;
+  }
+
+  // Appends a container with a key larger than all others, unless it is empty.
+  private void append(char high, Container c) {
+    if (c.getCardinality() > 0) {
+      insertAt(size, high, c);
+    }
+  }
+
+  /**
+   * Set of the low 16 bits of the values of a chunk. Operations that change a container return the
+   * container to use from then on, which is of the type suited to its new cardinality.
+   */
+  private static abstract class Container {
+    abstract int getCardinality();
+
+    abstract boolean contains(char x);
+
+    abstract Container add(char x);
+
+    abstract Container remove(char x);
+
+    abstract Container and(Container c);
+
+    abstract Container or(Container c);
+
+    abstract Container andNot(Container c);
+
+    abstract int andCardinality(Container c);
+
+    abstract Container copy();
+
+    // Returns the smallest value not less than from, or -1 if there is none.
+    abstract int nextValue(int from);
+
+    // Writes the values, each combined with the high bits, into an array, and returns the
+    // position following the last value written.
+    abstract int fill(int[] values, int pos, int high);
+
+    abstract void write(DataOutput out) throws IOException;
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Container)) {
+        return false;
+      }
+
+      Container that = (Container) obj;
+      if (getCardinality() != that.getCardinality()) {
+        return false;
+      }
+      for (int v = nextValue(0); v >= 0; v = v == 0xFFFF ? -1 : nextValue(v + 1)) {
+        if (!that.contains((char) v)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return getCardinality();
+    }
+  }
+
+  private static final class ArrayContainer extends Container {
+    private char[] content;
+    private int cardinality;
+
+    ArrayContainer() {
+      this(new char[4], 0);
+    }
+
+    ArrayContainer(char[] content, int cardinality) {
+      this.content = content;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int getCardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char x) {
+      return Arrays.binarySearch(content, 0, cardinality, x) >= 0;
+    }
+
+    @Override
+    Container add(char x) {
+      int i;
+      if (cardinality == 0 || content[cardinality - 1] < x) {
+        i = cardinality;
+      } else {
+        i = Arrays.binarySearch(content, 0, cardinality, x);
+        if (i >= 0) {
+          return this;
+        }
+        i = -i - 1;
+      }
+
+      if (cardinality == MAX_ARRAY_SIZE) {
+        return toBitmap().add(x);
+      }
+
+      if (cardinality == content.length) {
+        content = Arrays.copyOf(content, Math.min(2 * cardinality, MAX_ARRAY_SIZE));
+      }
+      System.arraycopy(content, i, content, i + 1, cardinality - i);
+      content[i] = x;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char x) {
+      int i = Arrays.binarySearch(content, 0, cardinality, x);
+      if (i >= 0) {
+        System.arraycopy(content, i + 1, content, i, cardinality - i - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    Container and(Container c) {
+      if (c instanceof BitmapContainer) {
+        return c.and(this);
+      }
+
+      ArrayContainer that = (ArrayContainer) c;
+      char[] result = new char[Math.min(cardinality, that.cardinality)];
+      int n = 0;
+      int i = 0, j = 0;
+      while (i < cardinality && j < that.cardinality) {
+        if (content[i] < that.content[j]) {
+          i++;
+        } else if (content[i] > that.content[j]) {
+          j++;
+        } else {
+          result[n++] = content[i];
+          i++;
+          j++;
+        }
+      }
+      return new ArrayContainer(result, n);
+    }
+
+    @Override
+    Container or(Container c) {
+      if (c instanceof BitmapContainer) {
+        return c.or(this);
+      }
+
+      ArrayContainer that = (ArrayContainer) c;
+      char[] result = new char[cardinality + that.cardinality];
+      int n = 0;
+      int i = 0, j = 0;
+      while (i < cardinality || j < that.cardinality) {
+        if (j == that.cardinality || (i < cardinality && content[i] < that.content[j])) {
+          result[n++] = content[i++];
+        } else if (i == cardinality || content[i] > that.content[j]) {
+          result[n++] = that.content[j++];
+        } else {
+          result[n++] = content[i];
+          i++;
+          j++;
+        }
+      }
+
+      ArrayContainer union = new ArrayContainer(result, n);
+      return n > MAX_ARRAY_SIZE ? union.toBitmap() : union;
+    }
+
+    @Override
+    Container andNot(Container c) {
+      char[] result = new char[cardinality];
+      int n = 0;
+      if (c instanceof BitmapContainer) {
+        for (int i = 0; i < cardinality; i++) {
+          if (!c.contains(content[i])) {
+            result[n++] = content[i];
+          }
+        }
+      } else {
+        ArrayContainer that = (ArrayContainer) c;
+        int j = 0;
+        for (int i = 0; i < cardinality; i++) {
+          while (j < that.cardinality && that.content[j] < content[i]) {
+            j++;
+          }
+          if (j == that.cardinality || that.content[j] != content[i]) {
+            result[n++] = content[i];
+          }
+        }
+      }
+      return new ArrayContainer(result, n);
+    }
+
+    @Override
+    int andCardinality(Container c) {
+      int n = 0;
+      if (c instanceof BitmapContainer) {
+        for (int i = 0; i < cardinality; i++) {
+          if (c.contains(content[i])) {
+            n++;
+          }
+        }
+      } else {
+        ArrayContainer that = (ArrayContainer) c;
+        int i = 0, j = 0;
+        while (i < cardinality && j < that.cardinality) {
+          if (content[i] < that.content[j]) {
+            i++;
+          } else if (content[i] > that.content[j]) {
+            j++;
+          } else {
+            n++;
+            i++;
+            j++;
+          }
+        }
+      }
+      return n;
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(content, cardinality), cardinality);
+    }
+
+    @Override
+    int nextValue(int from) {
+      int i = Arrays.binarySearch(content, 0, cardinality, (char) from);
+      if (i < 0) {
+        i = -i - 1;
+      }
+      return i < cardinality ? content[i] : -1;
+    }
+
+    @Override
+    int fill(int[] values, int pos, int high) {
+      for (int i = 0; i < cardinality; i++) {
+        values[pos++] = high | content[i];
+      }
+      return pos;
+    }
+
+    @Override
+    void write(DataOutput out) throws IOException {
+      for (int i = 0; i < cardinality; i++) {
+        out.writeShort(content[i]);
+      }
+    }
+
+    BitmapContainer toBitmap() {
+      long[] words = new long[BITMAP_WORDS];
+      for (int i = 0; i < cardinality; i++) {
+        words[content[i] >>> 6] |= 1L << content[i];
+      }
+      return new BitmapContainer(words, cardinality);
+    }
+  }
+
+  private static final class BitmapContainer extends Container {
+    private final long[] words;
+    private int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    // Returns a container for the values of some words, as an array if they are few.
+    static Container of(long[] words) {
+      int n = 0;
+      for (long w : words) {
+        n += Long.bitCount(w);
+      }
+      BitmapContainer c = new BitmapContainer(words, n);
+      return n > MAX_ARRAY_SIZE ? c : c.toArray();
+    }
+
+    @Override
+    int getCardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char x) {
+      return (words[x >>> 6] & (1L << x)) != 0;
+    }
+
+    @Override
+    Container add(char x) {
+      long w = words[x >>> 6];
+      long w2 = w | (1L << x);
+      if (w != w2) {
+        words[x >>> 6] = w2;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(char x) {
+      long w = words[x >>> 6];
+      long w2 = w & ~(1L << x);
+      if (w != w2) {
+        words[x >>> 6] = w2;
+        cardinality--;
+      }
+      return cardinality > MAX_ARRAY_SIZE ? this : toArray();
+    }
+
+    @Override
+    Container and(Container c) {
+      if (c instanceof ArrayContainer) {
+        ArrayContainer that = (ArrayContainer) c;
+        char[] result = new char[that.getCardinality()];
+        int n = 0;
+        for (int v = that.nextValue(0); v >= 0; v = v == 0xFFFF ? -1 : that.nextValue(v + 1)) {
+          if (contains((char) v)) {
+            result[n++] = (char) v;
+          }
+        }
+        return new ArrayContainer(result, n);
+      }
+
+      long[] that = ((BitmapContainer) c).words;
+      long[] result = new long[BITMAP_WORDS];
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        result[i] = words[i] & that[i];
+      }
+      return of(result);
+    }
+
+    @Override
+    Container or(Container c) {
+      long[] result = Arrays.copyOf(words, BITMAP_WORDS);
+      if (c instanceof ArrayContainer) {
+        ArrayContainer that = (ArrayContainer) c;
+        for (int v = that.nextValue(0); v >= 0; v = v == 0xFFFF ? -1 : that.nextValue(v + 1)) {
+          result[v >>> 6] |= 1L << v;
+        }
+      } else {
+        long[] that = ((BitmapContainer) c).words;
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          result[i] |= that[i];
+        }
+      }
+      return of(result);
+    }
+
+    @Override
+    Container andNot(Container c) {
+      long[] result = Arrays.copyOf(words, BITMAP_WORDS);
+      if (c instanceof ArrayContainer) {
+        ArrayContainer that = (ArrayContainer) c;
+        for (int v = that.nextValue(0); v >= 0; v = v == 0xFFFF ? -1 : that.nextValue(v + 1)) {
+          result[v >>> 6] &= ~(1L << v);
+        }
+      } else {
+        long[] that = ((BitmapContainer) c).words;
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          result[i] &= ~that[i];
+        }
+      }
+      return of(result);
+    }
+
+    @Override
+    int andCardinality(Container c) {
+      if (c instanceof ArrayContainer) {
+        return c.andCardinality(this);
+      }
+
+      long[] that = ((BitmapContainer) c).words;
+      int n = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        n += Long.bitCount(words[i] & that[i]);
+      }
+      return n;
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS), cardinality);
+    }
+
+    @Override
+    int nextValue(int from) {
+      int i = from >>> 6;
+      long w = words[i] & (-1L << from);
+      while (w == 0) {
+        if (++i == BITMAP_WORDS) {
+          return -1;
+        }
+        w = words[i];
+      }
+      return (i << 6) + Long.numberOfTrailingZeros(w);
+    }
+
+    @Override
+    int fill(int[] values, int pos, int high) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        long w = words[i];
+        while (w != 0) {
+          values[pos++] = high | ((i << 6) + Long.numberOfTrailingZeros(w));
+          w &= w - 1;
+        }
+      }
+      return pos;
+    }
+
+    @Override
+    void write(DataOutput out) throws IOException {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        out.writeLong(words[i]);
+      }
+    }
+
+    ArrayContainer toArray() {
+      char[] content = new char[cardinality];
+      fill(content);
+      return new ArrayContainer(content, cardinality);
+    }
+
+    private void fill(char[] content) {
+      int n = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        long w = words[i];
+        while (w != 0) {
+          content[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(w));
+          w &= w - 1;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import java.nio.charset.Charset;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * <p>
+ * Whitespace tokenizer that works directly on the UTF-8 bytes of a {@link Text}, without decoding
+ * it or creating any objects. Tokens are maximal runs of bytes other than ASCII whitespace (space,
+ * tab, newline, vertical tab, form feed, and carriage return), which are the tokens of
+ * {@link java.util.StringTokenizer} and of <code>split("\\s+")</code> (minus the empty ones), since
+ * bytes of multi-byte UTF-8 characters are never ASCII. Typical use in a mapper:
+ * </p>
+ *
+ * <pre>
+ * tokenizer.reset(value);
+ * while (tokenizer.next()) {
+ *   tokenizer.get(word);
+ *   context.write(word, one);
+ * }
+ * </pre>
+ *
+ * <p>
+ * The current token is available as an offset and length into {@link #getBytes()}, copied into a
+ * {@code Text}, or as a view in a {@code Text} that is reused from one token to the next. Tokens can
+ * optionally be lowercased (ASCII letters only) and folded to ASCII (Latin-1 letters with
+ * diacritics, such as <code>&eacute;</code>, to their base letters), which is done in place,
+ * overwriting the bytes of the text being tokenized.
+ * </p>
+ */
+public class TextTokenizer {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  // Whether each byte value is whitespace.
+  private static final boolean[] WHITESPACE = new boolean[256];
+
+  // Base letters for U+00C0 to U+00FF, or 0 for characters that don't fold to a single letter.
+  private static final byte[] FOLD = new byte[64];
+
+  static {
+    for (char c : new char[] { ' ', '\t', '\n', '\u000B', '\f', '\r' }) {
+      WHITESPACE[c] = true;
+    }
+
+    String upper = "AAAAAA\0CEEEEIIII\0NOOOOO\0OUUUUY\0\0";
+    String lower = "aaaaaa\0ceeeeiiii\0nooooo\0ouuuuy\0y";
+    for (int i = 0; i < 32; i++) {
+      FOLD[i] = (byte) upper.charAt(i);
+      FOLD[32 + i] = (byte) lower.charAt(i);
+    }
+  }
+
+  private final boolean lowercase;
+  private final boolean fold;
+  private final Text view = new Text();
+
+  private byte[] bytes;
+  private int end;
+  private int pos;
+  private int start;
+  private int length;
+
+  /**
+   * Creates a tokenizer that leaves tokens as they are.
+   */
+  public TextTokenizer() {
+    this(false, false);
+  }
+
+  /**
+   * Creates a tokenizer.
+   *
+   * @param lowercase whether to lowercase ASCII letters
+   * @param fold whether to fold Latin-1 letters with diacritics to ASCII
+   */
+  public TextTokenizer(boolean lowercase, boolean fold) {
+    this.lowercase = lowercase;
+    this.fold = fold;
+  }
+
+  /**
+   * Starts tokenizing a {@code Text}.
+   *
+   * @return this tokenizer
+   */
+  public TextTokenizer reset(Text text) {
+    return reset(text.getBytes(), 0, text.getLength());
+  }
+
+  /**
+   * Starts tokenizing a range of UTF-8 bytes.
+   *
+   * @param b bytes
+   * @param offset offset of the first byte
+   * @param len number of bytes
+   * @return this tokenizer
+   */
+  public TextTokenizer reset(byte[] b, int offset, int len) {
+    bytes = b;
+    pos = offset;
+    end = offset + len;
+    start = offset;
+    length = 0;
+    return this;
+  }
+
+  /**
+   * Advances to the next token.
+   *
+   * @return <code>true</code> if there is a next token, <code>false</code> at the end
+   */
+  public boolean next() {
+    while (pos < end && WHITESPACE[bytes[pos] & 0xff]) {
+      pos++;
+    }
+    if (pos == end) {
+      length = 0;
+      return false;
+    }
+
+    start = pos;
+    while (pos < end && !WHITESPACE[bytes[pos] & 0xff]) {
+      pos++;
+    }
+    length = pos - start;
+
+    if (lowercase || fold) {
+      normalize();
+    }
+    return true;
+  }
+
+  // Lowercases and folds the current token in place; folding can only make it shorter.
+  private void normalize() {
+    int out = start;
+    for (int i = start; i < start + length; i++) {
+      int b = bytes[i] & 0xff;
+      if (lowercase && b >= 'A' && b <= 'Z') {
+        b += 'a' - 'A';
+      } else if (fold && b == 0xc3 && i + 1 < start + length) {
+        // U+00C0 to U+00FF are encoded as 0xc3 followed by 0x80 to 0xbf.
+        int c = bytes[i + 1] & 0xff;
+        if (c >= 0x80 && c < 0xc0 && FOLD[c - 0x80] != 0) {
+          b = FOLD[c - 0x80];
+          if (lowercase && b >= 'A' && b <= 'Z') {
+            b += 'a' - 'A';
+          }
+          i++;
+        }
+      }
+      bytes[out++] = (byte) b;
+    }
+
+    // Pad the bytes freed up by folding with spaces, so that the text remains valid UTF-8 (and
+    // tokenizes the same way).
+    for (int i = out; i < start + length; i++) {
+      bytes[i] = ' ';
+    }
+    length = out - start;
+  }
+
+  /**
+   * Returns the bytes that tokens are offsets into.
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Returns the offset of the current token.
+   */
+  public int getOffset() {
+    return start;
+  }
+
+  /**
+   * Returns the length of the current token, in bytes.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Copies the current token into a {@code Text}.
+   */
+  public void get(Text text) {
+    text.set(bytes, start, length);
+  }
+
+  /**
+   * Returns the current token in a {@code Text} that is reused for the next token.
+   */
+  public Text getText() {
+    view.set(bytes, start, length);
+    return view;
+  }
+
+  /**
+   * Returns the current token, decoded to a String.
+   */
+  public String getString() {
+    return new String(bytes, start, length, UTF8);
+  }
+
+  /**
+   * Parses the current token as a decimal int, with an optional sign.
+   *
+   * @throws NumberFormatException if the token isn't an int
+   */
+  public int getInt() {
+    if (length == 0) {
+      throw new NumberFormatException("Empty token");
+    }
+
+    int i = start;
+    boolean negative = bytes[i] == '-';
+    if (negative || bytes[i] == '+') {
+      i++;
+    }
+    if (i == start + length) {
+      throw new NumberFormatException("For input string: \"" + getString() + "\"");
+    }
+
+    long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+    long value = 0;
+    for (; i < start + length; i++) {
+      int d = bytes[i] - '0';
+      if (d < 0 || d > 9) {
+        throw new NumberFormatException("For input string: \"" + getString() + "\"");
+      }
+      value = value * 10 + d;
+      if (value > limit) {
+        throw new NumberFormatException("For input string: \"" + getString() + "\"");
+      }
+    }
+
+    return (int) (negative ? -value : value);
+  }
+
+  /**
+   * Returns whether the current token is the same as a range of bytes.
+   */
+  public boolean equals(byte[] b, int offset, int len) {
+    if (len != length) {
+      return false;
+    }
+    for (int i = 0; i < len; i++) {
+      if (bytes[start + i] != b[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
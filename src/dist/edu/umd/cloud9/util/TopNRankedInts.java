@@ -0,0 +1,187 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+/**
+ * <p>
+ * Selects the <i>n</i> best ints out of a stream of candidates, where each candidate comes with a
+ * <code>long</code> rank: higher ranks are better, and among equal ranks, smaller ints are better.
+ * This is a total order, so the result doesn't depend on the order in which candidates are added.
+ * Candidates are held in a binary min-heap laid out over primitive arrays, so adding one allocates
+ * nothing, and once the heap is full a candidate that ranks below the current <i>n</i>-th best is
+ * rejected with a single comparison.
+ * </p>
+ *
+ * <p>
+ * Any int, long or short value can be used as a rank directly (negated, to select the smallest),
+ * and float and double values can be mapped to ranks that sort the same way with
+ * {@link #rankOf(float)} and {@link #rankOf(double)}. Once all candidates have been added,
+ * {@link #sort()} puts the selected ints in order, best first.
+ * </p>
+ */
+public class TopNRankedInts {
+  private final int[] keys;
+  private final long[] ranks;
+  private int size = 0;
+  private boolean sorted = false;
+
+  /**
+   * Creates an object that keeps the <i>n</i> best candidates.
+   */
+  public TopNRankedInts(int n) {
+    keys = new int[n];
+    ranks = new long[n];
+  }
+
+  /**
+   * Offers a candidate.
+   *
+   * @return whether the candidate is (for now) among the <i>n</i> best
+   */
+  public boolean add(int key, long rank) {
+    if (sorted) {
+      throw new IllegalStateException("Can't add candidates after sorting!");
+    }
+
+    if (size < keys.length) {
+      keys[size] = key;
+      ranks[size] = rank;
+      siftUp(size++);
+      return true;
+    }
+
+    // fast reject
+    if (size == 0 || rank < ranks[0] || (rank == ranks[0] && key >= keys[0])) {
+      return false;
+    }
+
+    keys[0] = key;
+    ranks[0] = rank;
+    siftDown(0, size);
+    return true;
+  }
+
+  /**
+   * Returns the number of ints held.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Sorts the ints held, best first. No candidates can be added afterwards until {@link #clear()}
+   * is called.
+   */
+  public void sort() {
+    if (sorted) {
+      return;
+    }
+
+    // heapsort: the worst entry sits at the root of the heap, so it ends up last
+    for (int end = size - 1; end > 0; end--) {
+      swap(0, end);
+      siftDown(0, end);
+    }
+    sorted = true;
+  }
+
+  /**
+   * Returns the <i>i</i>-th int held; after {@link #sort()}, this is the <i>i</i>-th best.
+   */
+  public int getKey(int i) {
+    return keys[i];
+  }
+
+  /**
+   * Returns the rank of the <i>i</i>-th int held.
+   */
+  public long getRank(int i) {
+    return ranks[i];
+  }
+
+  /**
+   * Removes all ints held.
+   */
+  public void clear() {
+    size = 0;
+    sorted = false;
+  }
+
+  /**
+   * Maps a float to a rank, such that ranks compare the same way as the floats they come from.
+   * Negative and positive zero get the same rank.
+   */
+  public static long rankOf(float f) {
+    int bits = Float.floatToIntBits(f == 0.0f ? 0.0f : f);
+    return bits >= 0 ? bits : bits ^ Integer.MAX_VALUE;
+  }
+
+  /**
+   * Maps a double to a rank, such that ranks compare the same way as the doubles they come from.
+   * Negative and positive zero get the same rank.
+   */
+  public static long rankOf(double d) {
+    long bits = Double.doubleToLongBits(d == 0.0 ? 0.0 : d);
+    return bits >= 0 ? bits : bits ^ Long.MAX_VALUE;
+  }
+
+  // whether entry i ranks below entry j
+  private boolean worse(int i, int j) {
+    if (ranks[i] != ranks[j]) {
+      return ranks[i] < ranks[j];
+    }
+    return keys[i] > keys[j];
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!worse(i, parent)) {
+        break;
+      }
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i, int end) {
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= end) {
+        break;
+      }
+      if (child + 1 < end && worse(child + 1, child)) {
+        child++;
+      }
+      if (!worse(child, i)) {
+        break;
+      }
+      swap(i, child);
+      i = child;
+    }
+  }
+
+  private void swap(int i, int j) {
+    int k = keys[i];
+    keys[i] = keys[j];
+    keys[j] = k;
+
+    long r = ranks[i];
+    ranks[i] = ranks[j];
+    ranks[j] = r;
+  }
+}
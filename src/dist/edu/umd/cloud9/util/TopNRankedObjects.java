@@ -0,0 +1,185 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import java.util.Comparator;
+
+/**
+ * Selects the <i>n</i> best objects out of a stream of candidates, where each candidate comes with
+ * a <code>long</code> rank: higher ranks are better, and among equal ranks, objects that come first
+ * in the order of a comparator (or in their natural order) are better. This is the object
+ * counterpart of {@link TopNRankedInts}; see there for how to turn other kinds of values into ranks.
+ *
+ * @param <K>
+ *            type of object
+ */
+public class TopNRankedObjects<K> {
+  private final Object[] keys;
+  private final long[] ranks;
+  private final Comparator<? super K> comparator;
+  private int size = 0;
+  private boolean sorted = false;
+
+  /**
+   * Creates an object that keeps the <i>n</i> best candidates, breaking ties by the natural order
+   * of the objects.
+   */
+  public TopNRankedObjects(int n) {
+    this(n, null);
+  }
+
+  /**
+   * Creates an object that keeps the <i>n</i> best candidates, breaking ties by a comparator.
+   */
+  public TopNRankedObjects(int n, Comparator<? super K> comparator) {
+    keys = new Object[n];
+    ranks = new long[n];
+    this.comparator = comparator;
+  }
+
+  /**
+   * Offers a candidate.
+   *
+   * @return whether the candidate is (for now) among the <i>n</i> best
+   */
+  public boolean add(K key, long rank) {
+    if (sorted) {
+      throw new IllegalStateException("Can't add candidates after sorting!");
+    }
+
+    if (size < keys.length) {
+      keys[size] = key;
+      ranks[size] = rank;
+      siftUp(size++);
+      return true;
+    }
+
+    // fast reject
+    if (size == 0 || rank < ranks[0] || (rank == ranks[0] && compare(keys[0], key) <= 0)) {
+      return false;
+    }
+
+    keys[0] = key;
+    ranks[0] = rank;
+    siftDown(0, size);
+    return true;
+  }
+
+  /**
+   * Returns the number of objects held.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Sorts the objects held, best first. No candidates can be added afterwards until
+   * {@link #clear()} is called.
+   */
+  public void sort() {
+    if (sorted) {
+      return;
+    }
+
+    // heapsort: the worst entry sits at the root of the heap, so it ends up last
+    for (int end = size - 1; end > 0; end--) {
+      swap(0, end);
+      siftDown(0, end);
+    }
+    sorted = true;
+  }
+
+  /**
+   * Returns the <i>i</i>-th object held; after {@link #sort()}, this is the <i>i</i>-th best.
+   */
+  @SuppressWarnings("unchecked")
+  public K getKey(int i) {
+    return (K) keys[i];
+  }
+
+  /**
+   * Returns the rank of the <i>i</i>-th object held.
+   */
+  public long getRank(int i) {
+    return ranks[i];
+  }
+
+  /**
+   * Removes all objects held.
+   */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      keys[i] = null;
+    }
+    size = 0;
+    sorted = false;
+  }
+
+  @SuppressWarnings("unchecked")
+  private int compare(Object k1, Object k2) {
+    if (comparator != null) {
+      return comparator.compare((K) k1, (K) k2);
+    }
+    return ((Comparable<Object>) k1).compareTo(k2);
+  }
+
+  // whether entry i ranks below entry j
+  private boolean worse(int i, int j) {
+    if (ranks[i] != ranks[j]) {
+      return ranks[i] < ranks[j];
+    }
+    return compare(keys[i], keys[j]) > 0;
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!worse(i, parent)) {
+        break;
+      }
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i, int end) {
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= end) {
+        break;
+      }
+      if (child + 1 < end && worse(child + 1, child)) {
+        child++;
+      }
+      if (!worse(child, i)) {
+        break;
+      }
+      swap(i, child);
+      i = child;
+    }
+  }
+
+  private void swap(int i, int j) {
+    Object k = keys[i];
+    keys[i] = keys[j];
+    keys[j] = k;
+
+    long r = ranks[i];
+    ranks[i] = ranks[j];
+    ranks[j] = r;
+  }
+}
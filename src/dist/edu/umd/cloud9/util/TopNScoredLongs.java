@@ -0,0 +1,153 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import edu.umd.cloud9.io.pair.PairOfLongFloat;
+
+/**
+ * Keeps the <i>n</i> highest-scoring longs out of a stream of candidates. Candidates are held in a
+ * binary min-heap laid out over primitive arrays, so adding one allocates nothing, and once the heap
+ * is full a candidate that scores below the current <i>n</i>-th best is rejected with a single
+ * comparison. Among candidates with equal scores, a later one displaces an earlier one at the cutoff,
+ * and ties are returned in the order they were added.
+ */
+public class TopNScoredLongs {
+  private final long[] keys;
+  private final float[] scores;
+  private final long[] order;
+  private int size = 0;
+  private long added = 0;
+
+  public TopNScoredLongs(int n) {
+    keys = new long[n];
+    scores = new float[n];
+    order = new long[n];
+  }
+
+  public void add(long n, float f) {
+    if (size < keys.length) {
+      set(size, n, f, added++);
+      siftUp(size++);
+      return;
+    }
+
+    // fast reject
+    if (size == 0 || f < scores[0]) {
+      return;
+    }
+
+    set(0, n, f, added++);
+    siftDown(0, size, false);
+  }
+
+  /**
+   * Returns the number of longs held.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the score a candidate has to reach to be kept, or negative infinity if fewer than
+   * <i>n</i> longs are held.
+   */
+  public float getThreshold() {
+    return size < keys.length || size == 0 ? Float.NEGATIVE_INFINITY : scores[0];
+  }
+
+  /**
+   * Returns the longs held, highest score first, and empties this object.
+   */
+  public PairOfLongFloat[] extractAll() {
+    sort();
+
+    PairOfLongFloat[] arr = new PairOfLongFloat[size];
+    for (int i = 0; i < size; i++) {
+      arr[i] = new PairOfLongFloat(keys[i], scores[i]);
+    }
+    size = 0;
+
+    return arr;
+  }
+
+  // heapsort, leaving the best entry first; ties go back to insertion order
+  private void sort() {
+    for (int i = size / 2 - 1; i >= 0; i--) {
+      siftDown(i, size, true);
+    }
+    for (int end = size - 1; end > 0; end--) {
+      swap(0, end);
+      siftDown(0, end, true);
+    }
+  }
+
+  // whether entry i ranks below entry j; for output, ties are broken the other way around
+  private boolean worse(int i, int j, boolean output) {
+    if (scores[i] != scores[j]) {
+      return scores[i] < scores[j];
+    }
+    return output ? order[i] > order[j] : order[i] < order[j];
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!worse(i, parent, false)) {
+        break;
+      }
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i, int end, boolean output) {
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= end) {
+        break;
+      }
+      if (child + 1 < end && worse(child + 1, child, output)) {
+        child++;
+      }
+      if (!worse(child, i, output)) {
+        break;
+      }
+      swap(i, child);
+      i = child;
+    }
+  }
+
+  private void set(int i, long key, float score, long seq) {
+    keys[i] = key;
+    scores[i] = score;
+    order[i] = seq;
+  }
+
+  private void swap(int i, int j) {
+    long k = keys[i];
+    keys[i] = keys[j];
+    keys[j] = k;
+
+    float s = scores[i];
+    scores[i] = scores[j];
+    scores[j] = s;
+
+    long o = order[i];
+    order[i] = order[j];
+    order[j] = o;
+  }
+}
@@ -16,43 +16,146 @@
 
 package edu.umd.cloud9.util;
 
-import org.apache.hadoop.util.PriorityQueue;
-
 import edu.umd.cloud9.util.pair.PairOfObjectFloat;
 
+/**
+ * Keeps the <i>n</i> highest-scoring objects out of a stream of candidates. Candidates are held in a
+ * binary min-heap laid out over primitive arrays, so adding one allocates nothing, and once the heap
+ * is full a candidate that scores below the current <i>n</i>-th best is rejected with a single
+ * comparison. Among candidates with equal scores, a later one displaces an earlier one at the cutoff,
+ * and ties are returned in the order they were added.
+ */
 public class TopNScoredObjects<K extends Comparable<K>> {
-  private class ScoredObjectPriorityQueue extends
-      PriorityQueue<PairOfObjectFloat<K>> {
+  private final Object[] keys;
+  private final float[] scores;
+  private final long[] order;
+  private int size = 0;
+  private long added = 0;
+
+  public TopNScoredObjects(int n) {
+    keys = new Object[n];
+    scores = new float[n];
+    order = new long[n];
+  }
 
-    private ScoredObjectPriorityQueue(int maxSize) {
-      super.initialize(maxSize);
+  public void add(K obj, float f) {
+    if (size < keys.length) {
+      set(size, obj, f, added++);
+      siftUp(size++);
+      return;
     }
 
-    @Override
-    @SuppressWarnings("unchecked")
-    protected boolean lessThan(Object obj0, Object obj1) {
-      return ((PairOfObjectFloat<K>) obj0).getRightElement() < ((PairOfObjectFloat<K>) obj1)
-          .getRightElement() ? true : false;
+    // fast reject
+    if (size == 0 || f < scores[0]) {
+      return;
     }
-  }
 
-  private final ScoredObjectPriorityQueue queue;
+    set(0, obj, f, added++);
+    siftDown(0, size, false);
+  }
 
-  public TopNScoredObjects(int n) {
-    queue = new ScoredObjectPriorityQueue(n);
+  /**
+   * Returns the number of objects held.
+   */
+  public int size() {
+    return size;
   }
 
-  public void add(K obj, float f) {
-    queue.insert(new PairOfObjectFloat<K>(obj, f));
+  /**
+   * Returns the score a candidate has to reach to be kept, or negative infinity if fewer than
+   * <i>n</i> objects are held.
+   */
+  public float getThreshold() {
+    return size < keys.length || size == 0 ? Float.NEGATIVE_INFINITY : scores[0];
   }
 
+  /**
+   * Returns the objects held, highest score first, and empties this object.
+   */
   @SuppressWarnings("unchecked")
   public PairOfObjectFloat<K>[] extractAll() {
-    int len = queue.size();
-    PairOfObjectFloat<K>[] arr = (PairOfObjectFloat<K>[]) new PairOfObjectFloat[len];
-    for (int i = 0; i < len; i++) {
-      arr[len - 1 - i] = queue.pop();
+    sort();
+
+    PairOfObjectFloat<K>[] arr = newPairArray(size);
+    for (int i = 0; i < size; i++) {
+      arr[i] = new PairOfObjectFloat<K>((K) keys[i], scores[i]);
+      keys[i] = null;
     }
+    size = 0;
+
     return arr;
   }
-}
\ No newline at end of file
+
+  // generic arrays can only be created raw
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static <K extends Comparable<K>> PairOfObjectFloat<K>[] newPairArray(int size) {
+    return new PairOfObjectFloat[size];
+  }
+
+  // heapsort, leaving the best entry first; ties go back to insertion order
+  private void sort() {
+    for (int i = size / 2 - 1; i >= 0; i--) {
+      siftDown(i, size, true);
+    }
+    for (int end = size - 1; end > 0; end--) {
+      swap(0, end);
+      siftDown(0, end, true);
+    }
+  }
+
+  // whether entry i ranks below entry j; for output, ties are broken the other way around
+  private boolean worse(int i, int j, boolean output) {
+    if (scores[i] != scores[j]) {
+      return scores[i] < scores[j];
+    }
+    return output ? order[i] > order[j] : order[i] < order[j];
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!worse(i, parent, false)) {
+        break;
+      }
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i, int end, boolean output) {
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= end) {
+        break;
+      }
+      if (child + 1 < end && worse(child + 1, child, output)) {
+        child++;
+      }
+      if (!worse(child, i, output)) {
+        break;
+      }
+      swap(i, child);
+      i = child;
+    }
+  }
+
+  private void set(int i, Object key, float score, long seq) {
+    keys[i] = key;
+    scores[i] = score;
+    order[i] = seq;
+  }
+
+  private void swap(int i, int j) {
+    Object k = keys[i];
+    keys[i] = keys[j];
+    keys[j] = k;
+
+    float s = scores[i];
+    scores[i] = scores[j];
+    scores[j] = s;
+
+    long o = order[i];
+    order[i] = order[j];
+    order[j] = o;
+  }
+}
@@ -0,0 +1,337 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.cfd;
+
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+import edu.umd.cloud9.util.fd.Int2IntFrequencyDistribution;
+import edu.umd.cloud9.util.fd.Int2IntFrequencyDistributionEntry;
+
+/**
+ * <p>
+ * Implementation of {@link Int2IntConditionalFrequencyDistribution} that keeps all counts in a
+ * single flat table instead of a map of distributions, one per condition. Each (condition, event)
+ * pair is packed into a long, with the condition in the high half, and the counts are held in an
+ * open-addressing hash table of long keys and int values, with linear probing. This saves an object
+ * and a hash table per condition, which dominate the memory taken by the other implementations when
+ * there are many conditions with few events each. The marginal counts of the events are likewise
+ * held in an open-addressing table of int keys and long values ({@link Int2LongOpenHashMap}).
+ * </p>
+ *
+ * <p>
+ * Since the pairs of a condition are scattered over the table, building a conditional distribution
+ * requires a pass over the whole table. Once the counts are complete, {@link #freeze()} compacts
+ * the table into arrays sorted by packed key, i.e., by condition, after which the pairs of a
+ * condition are contiguous and are found by binary search. A frozen distribution cannot be
+ * modified.
+ * </p>
+ */
+public class Int2IntConditionalFrequencyDistributionPacked implements
+    Int2IntConditionalFrequencyDistribution {
+  private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+  private static final float LOAD_FACTOR = 0.75f;
+
+  // multiplier for Fibonacci hashing of the packed keys
+  private static final long PHI = 0x9E3779B97F4A7C15L;
+
+  private final Int2LongOpenHashMap marginals = new Int2LongOpenHashMap();
+
+  private long[] keys;
+  private int[] values;
+  private boolean[] used;
+  private int size = 0;
+  private int shift;
+  private int threshold;
+  private boolean frozen = false;
+
+  private long sumOfAllFrequencies = 0;
+
+  /**
+   * Creates an empty conditional distribution.
+   */
+  public Int2IntConditionalFrequencyDistributionPacked() {
+    this(DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates an empty conditional distribution with room for <code>expectedPairs</code>
+   * (condition, event) pairs before its table is resized.
+   */
+  public Int2IntConditionalFrequencyDistributionPacked(int expectedPairs) {
+    Preconditions.checkArgument(expectedPairs >= 0);
+
+    int capacity = 16;
+    while (capacity * LOAD_FACTOR < expectedPairs) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  @Override
+  public void set(int k, int cond, int v) {
+    checkNotFrozen();
+
+    int i = insert(pack(k, cond));
+    int rv = values[i];
+    values[i] = v;
+
+    addToMarginal(k, -rv + v);
+    sumOfAllFrequencies = sumOfAllFrequencies - rv + v;
+  }
+
+  @Override
+  public void increment(int k, int cond) {
+    increment(k, cond, 1);
+  }
+
+  @Override
+  public void increment(int k, int cond, int v) {
+    checkNotFrozen();
+
+    int i = insert(pack(k, cond));
+    values[i] += v;
+
+    addToMarginal(k, v);
+    sumOfAllFrequencies += v;
+  }
+
+  @Override
+  public int get(int k, int cond) {
+    long key = pack(k, cond);
+
+    if (frozen) {
+      int i = Arrays.binarySearch(keys, key);
+      return i < 0 ? 0 : values[i];
+    }
+
+    int i = find(key);
+    return used[i] ? values[i] : 0;
+  }
+
+  @Override
+  public long getMarginalCount(int k) {
+    return marginals.get(k);
+  }
+
+  /**
+   * Returns the distribution of events under a condition, as a copy: changes to it are not
+   * reflected in this conditional distribution. Takes a pass over the whole table unless this
+   * conditional distribution is {@link #freeze() frozen}.
+   */
+  @Override
+  public Int2IntFrequencyDistribution getConditionalDistribution(int cond) {
+    Int2IntFrequencyDistribution fd = new Int2IntFrequencyDistributionEntry();
+
+    if (frozen) {
+      for (int i = firstIndexOf(cond); i < size && condition(keys[i]) == cond; i++) {
+        fd.set(event(keys[i]), values[i]);
+      }
+    } else {
+      for (int i = 0; i < keys.length; i++) {
+        if (used[i] && condition(keys[i]) == cond) {
+          fd.set(event(keys[i]), values[i]);
+        }
+      }
+    }
+
+    return fd;
+  }
+
+  @Override
+  public long getSumOfAllCounts() {
+    return sumOfAllFrequencies;
+  }
+
+  /**
+   * Returns the number of distinct (condition, event) pairs.
+   */
+  public int getNumberOfPairs() {
+    return size;
+  }
+
+  /**
+   * Compacts the table into arrays sorted by condition, for fast access to conditional
+   * distributions. The distribution cannot be modified afterwards. Does nothing if the distribution
+   * is already frozen.
+   */
+  public void freeze() {
+    if (frozen) {
+      return;
+    }
+
+    long[] sortedKeys = new long[size];
+    int n = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (used[i]) {
+        sortedKeys[n++] = keys[i];
+      }
+    }
+    Arrays.sort(sortedKeys);
+
+    int[] sortedValues = new int[size];
+    for (int i = 0; i < size; i++) {
+      sortedValues[i] = values[find(sortedKeys[i])];
+    }
+
+    keys = sortedKeys;
+    values = sortedValues;
+    used = null;
+    marginals.trim();
+    frozen = true;
+  }
+
+  /**
+   * Returns whether this distribution has been {@link #freeze() frozen}.
+   */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  @Override
+  public void check() {
+    Int2LongOpenHashMap m = new Int2LongOpenHashMap();
+
+    long totalSum = 0;
+    int n = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (isOccupied(i)) {
+        if (frozen && i > 0 && keys[i - 1] >= keys[i]) {
+          throw new RuntimeException("Internal Error!");
+        }
+
+        totalSum += values[i];
+        m.put(event(keys[i]), m.get(event(keys[i])) + values[i]);
+        n++;
+      }
+    }
+
+    if (n != size) {
+      throw new RuntimeException("Internal Error! Got " + n + " pairs, Expected " + size);
+    }
+
+    if (totalSum != getSumOfAllCounts()) {
+      throw new RuntimeException("Internal Error! Got " + totalSum + ", Expected "
+          + getSumOfAllCounts());
+    }
+
+    for (int i = 0; i < keys.length; i++) {
+      if (isOccupied(i) && m.get(event(keys[i])) != marginals.get(event(keys[i]))) {
+        throw new RuntimeException("Internal Error!");
+      }
+    }
+  }
+
+  private void addToMarginal(int k, long v) {
+    marginals.put(k, marginals.get(k) + v);
+  }
+
+  private static long pack(int k, int cond) {
+    return ((long) cond << 32) | (k & 0xFFFFFFFFL);
+  }
+
+  private static int condition(long key) {
+    return (int) (key >> 32);
+  }
+
+  private static int event(long key) {
+    return (int) key;
+  }
+
+  // Returns the index of the first pair of a condition in the sorted keys, or the index where it
+  // would be if there is none.
+  private int firstIndexOf(int cond) {
+    long key = (long) cond << 32;
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (keys[mid] < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new RuntimeException("Can't modify a frozen distribution!");
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    used = new boolean[capacity];
+    shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    threshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  private boolean isOccupied(int i) {
+    return frozen ? i < size : used[i];
+  }
+
+  // Returns the slot holding a key, or the empty slot where it would be inserted.
+  private int find(long key) {
+    int mask = keys.length - 1;
+    int i = (int) ((key * PHI) >>> shift);
+    while (used[i] && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  // Returns the slot holding a key, adding the key with a count of zero if it isn't there.
+  private int insert(long key) {
+    int i = find(key);
+    if (used[i]) {
+      return i;
+    }
+
+    if (size >= threshold) {
+      rehash(keys.length << 1);
+      i = find(key);
+    }
+
+    keys[i] = key;
+    values[i] = 0;
+    used[i] = true;
+    size++;
+    return i;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    boolean[] oldUsed = used;
+
+    allocate(capacity);
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldUsed[j]) {
+        int i = find(oldKeys[j]);
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+        used[i] = true;
+      }
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.cfd;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import edu.umd.cloud9.io.pair.PairOfInts;
+import edu.umd.cloud9.util.fd.Object2IntFrequencyDistribution;
+import edu.umd.cloud9.util.fd.Object2IntFrequencyDistributionEntry;
+import edu.umd.cloud9.util.map.HMapKI;
+
+/**
+ * Implementation of {@link Object2IntConditionalFrequencyDistribution} that maps events and
+ * conditions to ints, in order of first appearance, and keeps the counts in an
+ * {@link Int2IntConditionalFrequencyDistributionPacked}. Each distinct object is stored once,
+ * however many conditions it appears in or under.
+ *
+ * @see Int2IntConditionalFrequencyDistributionPacked
+ */
+public class Object2IntConditionalFrequencyDistributionPacked<K extends Comparable<K>>
+    implements Object2IntConditionalFrequencyDistribution<K> {
+
+  private final HMapKI<K> ids = new HMapKI<K>();
+  private final List<K> objects = Lists.newArrayList();
+  private final Int2IntConditionalFrequencyDistributionPacked counts;
+
+  /**
+   * Creates an empty conditional distribution.
+   */
+  public Object2IntConditionalFrequencyDistributionPacked() {
+    counts = new Int2IntConditionalFrequencyDistributionPacked();
+  }
+
+  /**
+   * Creates an empty conditional distribution with room for <code>expectedPairs</code>
+   * (condition, event) pairs before its table is resized.
+   */
+  public Object2IntConditionalFrequencyDistributionPacked(int expectedPairs) {
+    counts = new Int2IntConditionalFrequencyDistributionPacked(expectedPairs);
+  }
+
+  @Override
+  public void set(K k, K cond, int v) {
+    counts.set(getOrAddId(k), getOrAddId(cond), v);
+  }
+
+  @Override
+  public void increment(K k, K cond) {
+    increment(k, cond, 1);
+  }
+
+  @Override
+  public void increment(K k, K cond, int v) {
+    counts.increment(getOrAddId(k), getOrAddId(cond), v);
+  }
+
+  @Override
+  public int get(K k, K cond) {
+    if (!ids.containsKey(k) || !ids.containsKey(cond)) {
+      return 0;
+    }
+
+    return counts.get(ids.get(k), ids.get(cond));
+  }
+
+  @Override
+  public long getMarginalCount(K k) {
+    if (!ids.containsKey(k)) {
+      return 0;
+    }
+
+    return counts.getMarginalCount(ids.get(k));
+  }
+
+  /**
+   * Returns the distribution of events under a condition, as a copy: changes to it are not
+   * reflected in this conditional distribution.
+   *
+   * @see Int2IntConditionalFrequencyDistributionPacked#getConditionalDistribution(int)
+   */
+  @Override
+  public Object2IntFrequencyDistribution<K> getConditionalDistribution(K cond) {
+    Object2IntFrequencyDistribution<K> fd = new Object2IntFrequencyDistributionEntry<K>();
+    if (!ids.containsKey(cond)) {
+      return fd;
+    }
+
+    for (PairOfInts pair : counts.getConditionalDistribution(ids.get(cond))) {
+      fd.set(objects.get(pair.getLeftElement()), pair.getRightElement());
+    }
+
+    return fd;
+  }
+
+  @Override
+  public long getSumOfAllCounts() {
+    return counts.getSumOfAllCounts();
+  }
+
+  /**
+   * Returns the number of distinct (condition, event) pairs.
+   */
+  public int getNumberOfPairs() {
+    return counts.getNumberOfPairs();
+  }
+
+  /**
+   * Compacts the counts for fast access to conditional distributions. The distribution cannot be
+   * modified afterwards.
+   *
+   * @see Int2IntConditionalFrequencyDistributionPacked#freeze()
+   */
+  public void freeze() {
+    counts.freeze();
+  }
+
+  /**
+   * Returns whether this distribution has been {@link #freeze() frozen}.
+   */
+  public boolean isFrozen() {
+    return counts.isFrozen();
+  }
+
+  @Override
+  public void check() {
+    counts.check();
+
+    if (ids.size() != objects.size()) {
+      throw new RuntimeException("Internal Error!");
+    }
+
+    for (int i = 0; i < objects.size(); i++) {
+      if (ids.get(objects.get(i)) != i) {
+        throw new RuntimeException("Internal Error!");
+      }
+    }
+  }
+
+  private int getOrAddId(K obj) {
+    if (ids.containsKey(obj)) {
+      return ids.get(obj);
+    }
+
+    if (counts.isFrozen()) {
+      throw new RuntimeException("Can't modify a frozen distribution!");
+    }
+
+    int id = objects.size();
+    ids.put(obj, id);
+    objects.add(obj);
+    return id;
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.combine;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Base class of the in-mapper combiners, which buffer values in a hash map keyed by the output
+ * key, combining the values of the same key, and emit the combined values later instead of one
+ * record per value. Unlike a map that is only emptied in <code>cleanup</code>, the buffer holds at
+ * most {@link #getMaxEntries()} entries: when a new key arrives at a full buffer, the coldest
+ * entries (those updated least often since they were added, with counts halved at every flush so
+ * that entries that stop being updated eventually become cold) are emitted and removed, making room
+ * for roughly a {@link #FLUSH_FRACTION_PROPERTY fraction} of the buffer.
+ * </p>
+ *
+ * <p>
+ * The number of entries is derived from a memory budget, in bytes, and an estimate of the bytes
+ * taken by an entry. The budget is set with the property {@link #MEMORY_BUDGET_PROPERTY}; by
+ * default, it is a {@link #DEFAULT_HEAP_FRACTION fraction} of the maximum heap of the task, so that
+ * it follows <code>mapred.child.java.opts</code> rather than having to be tuned with it.
+ * </p>
+ *
+ * <p>
+ * A mapper calls <code>add</code> for every value, {@link #flush()} in <code>cleanup</code> (or
+ * <code>close</code>), and then {@link #incrementCounters(TaskInputOutputContext)} (or
+ * {@link #incrementCounters(Reporter)}), which adds the statistics of the combiner to the
+ * {@link Counter} counters of the job. The combine ratio of the job is the ratio of the
+ * <code>UPDATES</code> counter to the <code>EMITTED</code> counter.
+ * </p>
+ */
+public abstract class InMapperCombiner {
+  /**
+   * Counters maintained by the in-mapper combiners.
+   */
+  public static enum Counter {
+    /** Values added. */
+    UPDATES,
+    /** Combined values emitted. */
+    EMITTED,
+    /** Partial flushes, when the buffer was full. */
+    FLUSHES
+  };
+
+  /**
+   * Property holding the memory budget of an in-mapper combiner, in bytes.
+   */
+  public static final String MEMORY_BUDGET_PROPERTY = "Cloud9.InMapperCombiner.MemoryBudget";
+
+  /**
+   * Property holding the fraction of the buffer emitted by a partial flush.
+   */
+  public static final String FLUSH_FRACTION_PROPERTY = "Cloud9.InMapperCombiner.FlushFraction";
+
+  /**
+   * Fraction of the maximum heap used as memory budget if none is set.
+   */
+  public static final float DEFAULT_HEAP_FRACTION = 0.25f;
+
+  /**
+   * Fraction of the buffer emitted by a partial flush if none is set.
+   */
+  public static final float DEFAULT_FLUSH_FRACTION = 0.5f;
+
+  // update counts are capped, so that the coldest entries can be found with a histogram
+  protected static final int MAX_HITS = 255;
+
+  private final int maxEntries;
+  private final float flushFraction;
+  private final int[] histogram = new int[MAX_HITS + 1];
+
+  long updates = 0;
+  long emitted = 0;
+  long flushes = 0;
+
+  /**
+   * Creates an in-mapper combiner holding at most <code>maxEntries</code> entries, a fraction
+   * <code>flushFraction</code> of which are emitted by a partial flush.
+   */
+  protected InMapperCombiner(int maxEntries, float flushFraction) {
+    Preconditions.checkArgument(maxEntries > 0);
+    Preconditions.checkArgument(flushFraction > 0.0f && flushFraction <= 1.0f);
+
+    this.maxEntries = maxEntries;
+    this.flushFraction = flushFraction;
+  }
+
+  /**
+   * Creates an in-mapper combiner whose number of entries is derived from the memory budget in a
+   * configuration, and an estimate of the bytes taken by an entry.
+   */
+  protected InMapperCombiner(Configuration conf, int bytesPerEntry) {
+    this(getMaxEntries(conf, bytesPerEntry), conf.getFloat(FLUSH_FRACTION_PROPERTY,
+        DEFAULT_FLUSH_FRACTION));
+  }
+
+  /**
+   * Returns the memory budget of an in-mapper combiner, in bytes.
+   */
+  public static long getMemoryBudget(Configuration conf) {
+    return conf.getLong(MEMORY_BUDGET_PROPERTY,
+        (long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_FRACTION));
+  }
+
+  /**
+   * Returns the number of entries that fit in the memory budget, given an estimate of the bytes
+   * taken by an entry.
+   */
+  public static int getMaxEntries(Configuration conf, int bytesPerEntry) {
+    Preconditions.checkArgument(bytesPerEntry > 0);
+
+    long n = getMemoryBudget(conf) / bytesPerEntry;
+    return (int) Math.max(1, Math.min(n, Integer.MAX_VALUE));
+  }
+
+  /**
+   * Returns the maximum number of entries in the buffer.
+   */
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Returns the number of entries in the buffer.
+   */
+  public abstract int size();
+
+  /**
+   * Emits and removes all entries.
+   */
+  public abstract void flush() throws IOException, InterruptedException;
+
+  /**
+   * Called after a flush, partial or not, has emitted its entries, e.g., to write out records
+   * assembled from them. Does nothing by default.
+   */
+  protected void flushed() throws IOException, InterruptedException {
+  }
+
+  /**
+   * Returns the number of values added.
+   */
+  public long getUpdates() {
+    return updates;
+  }
+
+  /**
+   * Returns the number of combined values emitted.
+   */
+  public long getEmitted() {
+    return emitted;
+  }
+
+  /**
+   * Returns the number of partial flushes, when the buffer was full.
+   */
+  public long getFlushes() {
+    return flushes;
+  }
+
+  /**
+   * Returns the number of values added per combined value emitted, or zero if nothing was emitted.
+   */
+  public float getCombineRatio() {
+    return emitted == 0 ? 0.0f : (float) updates / emitted;
+  }
+
+  /**
+   * Adds the statistics of this combiner to the {@link Counter} counters of a job, through the new
+   * API. Should be called once, after the last {@link #flush()}.
+   */
+  public void incrementCounters(TaskInputOutputContext<?, ?, ?, ?> context) {
+    context.getCounter(Counter.UPDATES).increment(updates);
+    context.getCounter(Counter.EMITTED).increment(emitted);
+    context.getCounter(Counter.FLUSHES).increment(flushes);
+  }
+
+  /**
+   * Adds the statistics of this combiner to the {@link Counter} counters of a job, through the old
+   * API. Should be called once, after the last {@link #flush()}.
+   */
+  public void incrementCounters(Reporter reporter) {
+    reporter.incrCounter(Counter.UPDATES, updates);
+    reporter.incrCounter(Counter.EMITTED, emitted);
+    reporter.incrCounter(Counter.FLUSHES, flushes);
+  }
+
+  // Returns whether adding a new key requires a partial flush first.
+  protected final boolean isFull() {
+    return size() >= maxEntries;
+  }
+
+  // Records the update count of an entry, in a pass over the buffer before a partial flush.
+  protected final void count(int hits) {
+    histogram[hits]++;
+  }
+
+  // Returns the largest update count of the entries to emit, so that at least the flush fraction
+  // of the buffer is emitted, and resets the counts recorded with count(int).
+  protected final int coldThreshold() {
+    int target = Math.max(1, (int) Math.ceil(size() * flushFraction));
+
+    int threshold = MAX_HITS;
+    int n = 0;
+    for (int h = 0; h <= MAX_HITS; h++) {
+      n += histogram[h];
+      if (n >= target) {
+        threshold = h;
+        break;
+      }
+    }
+
+    for (int h = 0; h <= MAX_HITS; h++) {
+      histogram[h] = 0;
+    }
+    return threshold;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.combine;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.hadoop.conf.Configuration;
+
+import edu.umd.cloud9.util.map.HMapII;
+import edu.umd.cloud9.util.map.MapII;
+
+/**
+ * In-mapper combiner over an {@link HMapII}, for int keys and int values. Values are summed,
+ * unless {@link #combine(int, int)} is overridden.
+ *
+ * @see InMapperCombiner
+ */
+public abstract class InMapperCombinerII extends InMapperCombiner {
+  /**
+   * Estimate of the bytes taken by an entry: an entry of the map of values and one of the map of
+   * update counts, each with its share of the hash table.
+   */
+  public static final int BYTES_PER_ENTRY = 96;
+
+  private final HMapII values = new HMapII();
+  private final HMapII hits = new HMapII();
+
+  /**
+   * Creates an in-mapper combiner holding at most <code>maxEntries</code> entries.
+   */
+  public InMapperCombinerII(int maxEntries) {
+    super(maxEntries, DEFAULT_FLUSH_FRACTION);
+  }
+
+  /**
+   * Creates an in-mapper combiner holding at most <code>maxEntries</code> entries, a fraction
+   * <code>flushFraction</code> of which are emitted by a partial flush.
+   */
+  public InMapperCombinerII(int maxEntries, float flushFraction) {
+    super(maxEntries, flushFraction);
+  }
+
+  /**
+   * Creates an in-mapper combiner whose number of entries is derived from the memory budget in a
+   * configuration.
+   */
+  public InMapperCombinerII(Configuration conf) {
+    super(conf, BYTES_PER_ENTRY);
+  }
+
+  /**
+   * Combines two values of the same key. Returns their sum by default.
+   */
+  protected int combine(int a, int b) {
+    return a + b;
+  }
+
+  /**
+   * Emits the combined value of a key.
+   */
+  protected abstract void emit(int key, int value) throws IOException, InterruptedException;
+
+  /**
+   * Adds a value, possibly emitting other entries to make room for its key.
+   *
+   * @return <code>true</code> if the key was not in the buffer
+   */
+  public boolean add(int key, int value) throws IOException, InterruptedException {
+    updates++;
+
+    if (values.containsKey(key)) {
+      values.put(key, combine(values.get(key), value));
+      int h = hits.get(key);
+      if (h < MAX_HITS) {
+        hits.put(key, h + 1);
+      }
+      return false;
+    }
+
+    if (isFull()) {
+      flushColdest();
+    }
+    values.put(key, value);
+    hits.put(key, 1);
+    return true;
+  }
+
+  /**
+   * Returns whether a key is in the buffer.
+   */
+  public boolean containsKey(int key) {
+    return values.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return values.size();
+  }
+
+  @Override
+  public void flush() throws IOException, InterruptedException {
+    for (MapII.Entry e : values.entrySet()) {
+      emit(e.getKey(), e.getValue());
+    }
+    emitted += values.size();
+
+    values.clear();
+    hits.clear();
+    flushed();
+  }
+
+  private void flushColdest() throws IOException, InterruptedException {
+    flushes++;
+
+    for (MapII.Entry e : hits.entrySet()) {
+      count(e.getValue());
+    }
+    int threshold = coldThreshold();
+
+    Iterator<MapII.Entry> iter = hits.entrySet().iterator();
+    while (iter.hasNext()) {
+      MapII.Entry e = iter.next();
+      if (e.getValue() <= threshold) {
+        emit(e.getKey(), values.remove(e.getKey()));
+        emitted++;
+        iter.remove();
+      } else {
+        e.setValue(e.getValue() >>> 1);
+      }
+    }
+    flushed();
+  }
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import com.google.common.collect.Lists;
 
 import edu.umd.cloud9.io.pair.PairOfInts;
+import edu.umd.cloud9.util.TopNRankedInts;
 import edu.umd.cloud9.util.map.HMapII;
 import edu.umd.cloud9.util.map.MapII;
 
@@ -176,17 +177,19 @@ public class Int2IntFrequencyDistributionEntry implements Int2IntFrequencyDistri
 
   @Override
   public List<PairOfInts> getEntries(Order ordering, int n) {
-    if (ordering.equals(Order.ByRightElementDescending)) {
-      return getEntriesSorted(comparatorRightDescending, n);
-    } else if (ordering.equals(Order.ByLeftElementAscending)) {
-      return getEntriesSorted(comparatorLeftAscending, n);
-    } else if (ordering.equals(Order.ByRightElementAscending)) {
-      return getEntriesSorted(comparatorRightAscending, n);
-    } else if (ordering.equals(Order.ByLeftElementDescending)) {
-      return getEntriesSorted(comparatorLeftDescending, n);
+    // select the first n entries with a heap rather than sorting all of them
+    TopNRankedInts top = new TopNRankedInts(Math.min(n, getNumberOfEvents()));
+    for (MapII.Entry e : counts.entrySet()) {
+      top.add(e.getKey(), TopEntries.rank(ordering, e.getKey(), e.getValue()));
     }
-    // Should never get here.
-    return null;
+    top.sort();
+
+    List<PairOfInts> list = Lists.newArrayListWithCapacity(top.size());
+    for (int i = 0; i < top.size(); i++) {
+      int key = top.getKey(i);
+      list.add(new PairOfInts(key, get(key)));
+    }
+    return list;
   }
 
   private final Comparator<PairOfInts> comparatorRightDescending = new Comparator<PairOfInts>() {
@@ -263,9 +266,4 @@ public class Int2IntFrequencyDistributionEntry implements Int2IntFrequencyDistri
     Collections.sort(list, comparator);
     return list;
   }
-
-  private List<PairOfInts> getEntriesSorted(Comparator<PairOfInts> comparator, int n) {
-    List<PairOfInts> list = getEntriesSorted(comparator);
-    return list.subList(0, n);
-  }
 }
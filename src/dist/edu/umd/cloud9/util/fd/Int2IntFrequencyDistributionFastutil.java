@@ -29,6 +29,7 @@ import java.util.List;
 import com.google.common.collect.Lists;
 
 import edu.umd.cloud9.io.pair.PairOfInts;
+import edu.umd.cloud9.util.TopNRankedInts;
 
 /**
  * Implementation of {@link Int2IntFrequencyDistribution} based on
@@ -208,17 +209,21 @@ public class Int2IntFrequencyDistributionFastutil implements Int2IntFrequencyDis
 
   @Override
   public List<PairOfInts> getEntries(Order ordering, int n) {
-    if (ordering.equals(Order.ByRightElementDescending)) {
-      return getEntriesSorted(comparatorRightDescending, n);
-    } else if (ordering.equals(Order.ByLeftElementAscending)) {
-      return getEntriesSorted(comparatorLeftAscending, n);
-    } else if (ordering.equals(Order.ByRightElementAscending)) {
-      return getEntriesSorted(comparatorRightAscending, n);
-    } else if (ordering.equals(Order.ByLeftElementDescending)) {
-      return getEntriesSorted(comparatorLeftDescending, n);
+    // select the first n entries with a heap rather than sorting all of them
+    TopNRankedInts top = new TopNRankedInts(Math.min(n, getNumberOfEvents()));
+    Iterator<Int2IntMap.Entry> iter = counts.int2IntEntrySet().fastIterator();
+    while (iter.hasNext()) {
+      Int2IntMap.Entry e = iter.next();
+      top.add(e.getIntKey(), TopEntries.rank(ordering, e.getIntKey(), e.getIntValue()));
     }
-    // Should never get here.
-    return null;
+    top.sort();
+
+    List<PairOfInts> list = Lists.newArrayListWithCapacity(top.size());
+    for (int i = 0; i < top.size(); i++) {
+      int key = top.getKey(i);
+      list.add(new PairOfInts(key, get(key)));
+    }
+    return list;
   }
 
   private final Comparator<PairOfInts> comparatorRightDescending = new Comparator<PairOfInts>() {
@@ -295,9 +300,4 @@ public class Int2IntFrequencyDistributionFastutil implements Int2IntFrequencyDis
     Collections.sort(list, comparator);
     return list;
   }
-
-  private List<PairOfInts> getEntriesSorted(Comparator<PairOfInts> comparator, int n) {
-    List<PairOfInts> list = getEntriesSorted(comparator);
-    return list.subList(0, n);
-  }
 }
@@ -24,6 +24,7 @@ import java.util.List;
 import com.google.common.collect.Lists;
 
 import edu.umd.cloud9.io.pair.PairOfIntLong;
+import edu.umd.cloud9.util.TopNRankedInts;
 import edu.umd.cloud9.util.map.HMapIL;
 import edu.umd.cloud9.util.map.MapIL;
 
@@ -185,17 +186,19 @@ public class Int2LongFrequencyDistributionEntry implements Int2LongFrequencyDist
 
   @Override
   public List<PairOfIntLong> getEntries(Order ordering, int n) {
-    if (ordering.equals(Order.ByRightElementDescending)) {
-      return getEntriesSorted(comparatorRightDescending, n);
-    } else if (ordering.equals(Order.ByLeftElementAscending)) {
-      return getEntriesSorted(comparatorLeftAscending, n);
-    } else if (ordering.equals(Order.ByRightElementAscending)) {
-      return getEntriesSorted(comparatorRightAscending, n);
-    } else if (ordering.equals(Order.ByLeftElementDescending)) {
-      return getEntriesSorted(comparatorLeftDescending, n);
+    // select the first n entries with a heap rather than sorting all of them
+    TopNRankedInts top = new TopNRankedInts(Math.min(n, getNumberOfEvents()));
+    for (MapIL.Entry e : counts.entrySet()) {
+      top.add(e.getKey(), TopEntries.rank(ordering, e.getKey(), e.getValue()));
     }
-    // Should never get here.
-    return null;
+    top.sort();
+
+    List<PairOfIntLong> list = Lists.newArrayListWithCapacity(top.size());
+    for (int i = 0; i < top.size(); i++) {
+      int key = top.getKey(i);
+      list.add(new PairOfIntLong(key, get(key)));
+    }
+    return list;
   }
 
   private final Comparator<PairOfIntLong> comparatorRightDescending =
@@ -276,9 +279,4 @@ public class Int2LongFrequencyDistributionEntry implements Int2LongFrequencyDist
     Collections.sort(list, comparator);
     return list;
   }
-
-  private List<PairOfIntLong> getEntriesSorted(Comparator<PairOfIntLong> comparator, int n) {
-    List<PairOfIntLong> list = getEntriesSorted(comparator);
-    return list.subList(0, n);
-  }
 }
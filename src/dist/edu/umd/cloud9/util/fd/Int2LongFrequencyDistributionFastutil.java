@@ -29,6 +29,7 @@ import java.util.List;
 import com.google.common.collect.Lists;
 
 import edu.umd.cloud9.io.pair.PairOfIntLong;
+import edu.umd.cloud9.util.TopNRankedInts;
 
 /**
  * Implementation of {@link Int2LongFrequencyDistribution} based on {@link Int2LongOpenHashMap}.
@@ -209,17 +210,21 @@ public class Int2LongFrequencyDistributionFastutil implements Int2LongFrequencyD
 
   @Override
   public List<PairOfIntLong> getEntries(Order ordering, int n) {
-    if (ordering.equals(Order.ByRightElementDescending)) {
-      return getEntriesSorted(comparatorRightDescending, n);
-    } else if (ordering.equals(Order.ByLeftElementAscending)) {
-      return getEntriesSorted(comparatorLeftAscending, n);
-    } else if (ordering.equals(Order.ByRightElementAscending)) {
-      return getEntriesSorted(comparatorRightAscending, n);
-    } else if (ordering.equals(Order.ByLeftElementDescending)) {
-      return getEntriesSorted(comparatorLeftDescending, n);
+    // select the first n entries with a heap rather than sorting all of them
+    TopNRankedInts top = new TopNRankedInts(Math.min(n, getNumberOfEvents()));
+    Iterator<Int2LongMap.Entry> iter = counts.int2LongEntrySet().fastIterator();
+    while (iter.hasNext()) {
+      Int2LongMap.Entry e = iter.next();
+      top.add(e.getIntKey(), TopEntries.rank(ordering, e.getIntKey(), e.getLongValue()));
     }
-    // Should never get here.
-    return null;
+    top.sort();
+
+    List<PairOfIntLong> list = Lists.newArrayListWithCapacity(top.size());
+    for (int i = 0; i < top.size(); i++) {
+      int key = top.getKey(i);
+      list.add(new PairOfIntLong(key, get(key)));
+    }
+    return list;
   }
 
   private final Comparator<PairOfIntLong> comparatorRightDescending =
@@ -300,9 +305,4 @@ public class Int2LongFrequencyDistributionFastutil implements Int2LongFrequencyD
     Collections.sort(list, comparator);
     return list;
   }
-
-  private List<PairOfIntLong> getEntriesSorted(Comparator<PairOfIntLong> comparator, int n) {
-    List<PairOfIntLong> list = getEntriesSorted(comparator);
-    return list.subList(0, n);
-  }
 }
@@ -0,0 +1,198 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.fd;
+
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+import edu.umd.cloud9.util.map.HMapKI;
+
+/**
+ * Bounded set of events with counts, kept in a binary min-heap indexed by event, so that the event
+ * with the smallest count is found in constant time, and the count of any event is updated in
+ * logarithmic time. Each event also carries an error, which is moved along with its count. Used by
+ * the approximate frequency distributions to hold the events they monitor.
+ */
+final class MinCountHeap<K extends Comparable<K>> {
+  private final Object[] keys;
+  private final int[] counts;
+  private final int[] errors;
+  private final HMapKI<K> positions = new HMapKI<K>();
+  private int size = 0;
+
+  /**
+   * Creates an empty heap holding at most <code>capacity</code> events.
+   */
+  MinCountHeap(int capacity) {
+    Preconditions.checkArgument(capacity > 0);
+
+    keys = new Object[capacity];
+    counts = new int[capacity];
+    errors = new int[capacity];
+  }
+
+  int getCapacity() {
+    return keys.length;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isFull() {
+    return size == keys.length;
+  }
+
+  boolean contains(K key) {
+    return positions.containsKey(key);
+  }
+
+  /**
+   * Returns the count of an event, or zero if it is not in the heap.
+   */
+  int getCount(K key) {
+    return positions.containsKey(key) ? counts[positions.get(key)] : 0;
+  }
+
+  /**
+   * Returns the error of an event, or zero if it is not in the heap.
+   */
+  int getError(K key) {
+    return positions.containsKey(key) ? errors[positions.get(key)] : 0;
+  }
+
+  /**
+   * Returns the smallest count, or zero if the heap is empty.
+   */
+  int getMinCount() {
+    return size == 0 ? 0 : counts[0];
+  }
+
+  @SuppressWarnings("unchecked")
+  K getKey(int i) {
+    return (K) keys[i];
+  }
+
+  int getCount(int i) {
+    return counts[i];
+  }
+
+  int getError(int i) {
+    return errors[i];
+  }
+
+  Set<K> keySet() {
+    return positions.keySet();
+  }
+
+  /**
+   * Adds an event, which must not be in the heap, to a heap that is not full.
+   */
+  void add(K key, int count, int error) {
+    Preconditions.checkState(!isFull());
+
+    int i = size++;
+    keys[i] = key;
+    counts[i] = count;
+    errors[i] = error;
+    positions.put(key, i);
+    siftUp(i);
+  }
+
+  /**
+   * Replaces the event with the smallest count by another event, which must not be in the heap.
+   */
+  void replaceMin(K key, int count, int error) {
+    Preconditions.checkState(size > 0);
+
+    positions.remove(getKey(0));
+    keys[0] = key;
+    counts[0] = count;
+    errors[0] = error;
+    positions.put(key, 0);
+    siftDown(0);
+  }
+
+  /**
+   * Sets the count of an event, which must be in the heap.
+   */
+  void setCount(K key, int count) {
+    int i = positions.get(key);
+    int old = counts[i];
+    counts[i] = count;
+
+    if (count > old) {
+      siftDown(i);
+    } else {
+      siftUp(i);
+    }
+  }
+
+  void clear() {
+    for (int i = 0; i < size; i++) {
+      keys[i] = null;
+    }
+    positions.clear();
+    size = 0;
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (counts[parent] <= counts[i]) {
+        break;
+      }
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i) {
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && counts[child + 1] < counts[child]) {
+        child++;
+      }
+      if (counts[i] <= counts[child]) {
+        break;
+      }
+      swap(i, child);
+      i = child;
+    }
+  }
+
+  private void swap(int i, int j) {
+    Object k = keys[i];
+    keys[i] = keys[j];
+    keys[j] = k;
+
+    int c = counts[i];
+    counts[i] = counts[j];
+    counts[j] = c;
+
+    int e = errors[i];
+    errors[i] = errors[j];
+    errors[j] = e;
+
+    positions.put(getKey(i), i);
+    positions.put(getKey(j), j);
+  }
+}
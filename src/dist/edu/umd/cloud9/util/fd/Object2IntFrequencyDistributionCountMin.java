@@ -0,0 +1,372 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.fd;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
+
+/**
+ * <p>
+ * Approximate implementation of {@link Object2IntFrequencyDistribution} based on a Count-Min
+ * sketch (Cormode and Muthukrishnan), a table of <i>d</i> rows of <i>w</i> counters: an event
+ * increments one counter per row, chosen by a hash of the event, and its count is estimated by the
+ * smallest of its counters. Estimates never fall below the true counts, and exceed them by at most
+ * <i>&epsilon;N</i>, with <i>&epsilon;</i> = <i>e</i>/<i>w</i> and <i>N</i> the sum of counts,
+ * with probability 1 - <i>e</i><sup>-<i>d</i></sup>. Memory is therefore independent of the number
+ * of distinct events.
+ * </p>
+ *
+ * <p>
+ * Since a sketch cannot enumerate its events, the events with the largest estimates are kept,
+ * up to a fixed number, in a heap; these are the events returned by {@link #keySet()},
+ * {@link #iterator()}, and {@link #getEntries(Order, int)}. The count of any event, whether it is
+ * in the heap or not, is estimated by {@link #get}. Events can only be incremented: {@link #set},
+ * {@link #remove}, and {@link #decrement} throw <code>UnsupportedOperationException</code>. Two
+ * distributions with sketches of the same dimensions are combined with
+ * {@link #merge(Object2IntFrequencyDistributionCountMin)}, e.g., to merge the distributions
+ * emitted by mappers in a reducer. Events are hashed with <code>hashCode</code>, which must
+ * therefore be the same in every JVM for distributions to be merged.
+ * </p>
+ *
+ * @see edu.umd.cloud9.io.fd.String2IntFrequencyDistributionCountMinWritable
+ */
+public class Object2IntFrequencyDistributionCountMin<K extends Comparable<K>>
+    implements Object2IntFrequencyDistribution<K> {
+
+  private int width;
+  private int depth;
+  private int[] table;
+  private MinCountHeap<K> top;
+  private long sumOfCounts;
+
+  /**
+   * Creates an empty distribution with a sketch of <code>depth</code> rows of <code>width</code>
+   * counters, keeping the <code>capacity</code> events with the largest estimates.
+   */
+  public Object2IntFrequencyDistributionCountMin(int width, int depth, int capacity) {
+    initialize(width, depth, capacity, 0);
+  }
+
+  /**
+   * Creates an empty distribution whose estimates exceed the true counts by at most
+   * <code>epsilon</code> times the sum of counts, with probability <code>1 - delta</code>, keeping
+   * the <code>capacity</code> events with the largest estimates.
+   */
+  public static <K extends Comparable<K>> Object2IntFrequencyDistributionCountMin<K> create(
+      double epsilon, double delta, int capacity) {
+    Preconditions.checkArgument(epsilon > 0.0 && epsilon < 1.0);
+    Preconditions.checkArgument(delta > 0.0 && delta < 1.0);
+
+    int width = (int) Math.ceil(Math.E / epsilon);
+    int depth = (int) Math.ceil(Math.log(1.0 / delta));
+    return new Object2IntFrequencyDistributionCountMin<K>(width, depth, capacity);
+  }
+
+  /**
+   * Returns the number of counters per row of the sketch.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Returns the number of rows of the sketch.
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Returns the maximum number of events kept in the heap.
+   */
+  public int getCapacity() {
+    return top.getCapacity();
+  }
+
+  @Override
+  public void increment(K key) {
+    increment(key, 1);
+  }
+
+  @Override
+  public void increment(K key, int cnt) {
+    Preconditions.checkArgument(cnt >= 0, "Can't increment by a negative count!");
+
+    sumOfCounts += cnt;
+
+    int h1 = hash1(key);
+    int h2 = hash2(h1);
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      int i = index(row, h1, h2);
+      table[i] += cnt;
+      estimate = Math.min(estimate, table[i]);
+    }
+
+    offer(key, estimate);
+  }
+
+  @Override
+  public void decrement(K key) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void decrement(K key, int cnt) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Returns <code>true</code> if the event is among the events with the largest estimates kept in
+   * the heap.
+   */
+  @Override
+  public boolean contains(K key) {
+    return top.contains(key);
+  }
+
+  /**
+   * Returns the estimated count of an event, which is never less than its true count.
+   */
+  @Override
+  public int get(K key) {
+    int h1 = hash1(key);
+    int h2 = hash2(h1);
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, table[index(row, h1, h2)]);
+    }
+    return estimate;
+  }
+
+  /**
+   * Returns the relative error of the estimates, <i>e</i>/<i>w</i>.
+   */
+  public double getEpsilon() {
+    return Math.E / width;
+  }
+
+  /**
+   * Returns the probability that an estimate exceeds the true count by at most
+   * {@link #getErrorBound()}.
+   */
+  public double getConfidence() {
+    return 1.0 - Math.exp(-depth);
+  }
+
+  /**
+   * Returns the maximum overestimation of a count, with probability {@link #getConfidence()}.
+   */
+  public long getErrorBound() {
+    return (long) Math.ceil(getEpsilon() * sumOfCounts);
+  }
+
+  @Override
+  public double computeRelativeFrequency(K key) {
+    return (double) get(key) / getSumOfCounts();
+  }
+
+  @Override
+  public double computeLogRelativeFrequency(K key) {
+    return Math.log(get(key)) - Math.log(getSumOfCounts());
+  }
+
+  @Override
+  public int set(K key, int cnt) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int remove(K k) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void clear() {
+    initialize(width, depth, getCapacity(), 0);
+  }
+
+  /**
+   * Returns the number of events kept in the heap.
+   */
+  @Override
+  public int getNumberOfEvents() {
+    return top.size();
+  }
+
+  /**
+   * Returns the exact sum of counts of all observed events.
+   */
+  @Override
+  public long getSumOfCounts() {
+    return sumOfCounts;
+  }
+
+  /**
+   * Returns the set of events kept in the heap.
+   */
+  @Override
+  public Set<K> keySet() {
+    return Collections.unmodifiableSet(top.keySet());
+  }
+
+  /**
+   * Iterator over the events kept in the heap, with their current estimates. Returns the same
+   * object every time, just with a different payload.
+   */
+  public Iterator<PairOfObjectInt<K>> iterator() {
+    return new Iterator<PairOfObjectInt<K>>() {
+      private final PairOfObjectInt<K> pair = new PairOfObjectInt<K>();
+      private int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < top.size();
+      }
+
+      @Override
+      public PairOfObjectInt<K> next() {
+        if (!hasNext()) {
+          return null;
+        }
+
+        K key = top.getKey(i++);
+        pair.set(key, get(key));
+        return pair;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public List<PairOfObjectInt<K>> getEntries(Order ordering) {
+    return toExact().getEntries(ordering);
+  }
+
+  @Override
+  public List<PairOfObjectInt<K>> getEntries(Order ordering, int n) {
+    return toExact().getEntries(ordering, n);
+  }
+
+  /**
+   * Adds the counts of another distribution, whose sketch must have the same dimensions, to this
+   * one. The heap then holds the events with the largest estimates among those of both heaps.
+   */
+  public void merge(Object2IntFrequencyDistributionCountMin<K> other) {
+    Preconditions.checkArgument(width == other.width && depth == other.depth,
+        "Can't merge sketches of different dimensions!");
+
+    for (int i = 0; i < table.length; i++) {
+      table[i] += other.table[i];
+    }
+    sumOfCounts += other.sumOfCounts;
+
+    List<K> candidates = Lists.newArrayList(top.keySet());
+    for (K key : other.top.keySet()) {
+      if (!top.contains(key)) {
+        candidates.add(key);
+      }
+    }
+
+    top = new MinCountHeap<K>(top.getCapacity());
+    for (K key : candidates) {
+      offer(key, get(key));
+    }
+  }
+
+  /**
+   * Empties this distribution, and sets the dimensions of its sketch, its number of events kept,
+   * and its sum of counts. Used for deserialization.
+   */
+  protected void initialize(int width, int depth, int capacity, long sumOfCounts) {
+    Preconditions.checkArgument(width > 0 && depth > 0);
+
+    this.width = width;
+    this.depth = depth;
+    this.table = new int[width * depth];
+    this.top = new MinCountHeap<K>(capacity);
+    this.sumOfCounts = sumOfCounts;
+  }
+
+  /**
+   * Returns the counters of the sketch, row after row. Used for serialization.
+   */
+  protected int[] getTable() {
+    return table;
+  }
+
+  /**
+   * Offers an event to the heap, with its current estimate, without changing the sketch. Used for
+   * deserialization, once the sketch is filled.
+   */
+  protected void restore(K key) {
+    offer(key, get(key));
+  }
+
+  private void offer(K key, int estimate) {
+    if (top.contains(key)) {
+      top.setCount(key, estimate);
+    } else if (!top.isFull()) {
+      top.add(key, estimate, 0);
+    } else if (estimate > top.getMinCount()) {
+      top.replaceMin(key, estimate, 0);
+    }
+  }
+
+  private Object2IntFrequencyDistribution<K> toExact() {
+    Object2IntFrequencyDistribution<K> fd = new Object2IntFrequencyDistributionEntry<K>();
+    for (int i = 0; i < top.size(); i++) {
+      fd.set(top.getKey(i), get(top.getKey(i)));
+    }
+    return fd;
+  }
+
+  // Rows are indexed with combinations of two hashes of the event, h1 + row * h2, as in Kirsch and
+  // Mitzenmacher, "Less Hashing, Same Performance".
+  private int index(int row, int h1, int h2) {
+    return row * width + ((h1 + row * h2) & Integer.MAX_VALUE) % width;
+  }
+
+  private static int hash1(Object key) {
+    return mix(key.hashCode());
+  }
+
+  private static int hash2(int h1) {
+    return mix(h1 ^ 0x9E3779B9) | 1;
+  }
+
+  // finalizer of MurmurHash3
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
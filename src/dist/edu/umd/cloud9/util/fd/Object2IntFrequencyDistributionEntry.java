@@ -24,6 +24,7 @@ import java.util.Set;
 
 import com.google.common.collect.Lists;
 
+import edu.umd.cloud9.util.TopNRankedObjects;
 import edu.umd.cloud9.util.map.HMapKI;
 import edu.umd.cloud9.util.map.MapKI;
 import edu.umd.cloud9.util.pair.PairOfObjectInt;
@@ -186,17 +187,19 @@ public class Object2IntFrequencyDistributionEntry<K extends Comparable<K>>
 
   @Override
   public List<PairOfObjectInt<K>> getEntries(Order ordering, int n) {
-    if (ordering.equals(Order.ByRightElementDescending)) {
-      return getEntriesSorted(comparatorRightDescending, n);
-    } else if (ordering.equals(Order.ByLeftElementAscending)) {
-      return getEntriesSorted(comparatorLeftAscending, n);
-    } else if (ordering.equals(Order.ByRightElementAscending)) {
-      return getEntriesSorted(comparatorRightAscending, n);
-    } else if (ordering.equals(Order.ByLeftElementDescending)) {
-      return getEntriesSorted(comparatorLeftDescending, n);
+    // select the first n entries with a heap rather than sorting all of them
+    TopNRankedObjects<K> top = TopEntries.newSelector(ordering, Math.min(n, getNumberOfEvents()));
+    for (MapKI.Entry<K> e : counts.entrySet()) {
+      top.add(e.getKey(), TopEntries.rank(ordering, e.getValue()));
     }
-    // Should never get here.
-    return null;
+    top.sort();
+
+    List<PairOfObjectInt<K>> list = Lists.newArrayListWithCapacity(top.size());
+    for (int i = 0; i < top.size(); i++) {
+      K key = top.getKey(i);
+      list.add(new PairOfObjectInt<K>(key, get(key)));
+    }
+    return list;
   }
 
   private final Comparator<PairOfObjectInt<K>> comparatorRightDescending =
@@ -261,10 +264,4 @@ public class Object2IntFrequencyDistributionEntry<K extends Comparable<K>>
     Collections.sort(list, comparator);
     return list;
   }
-
-  private List<PairOfObjectInt<K>>
-      getEntriesSorted(Comparator<PairOfObjectInt<K>> comparator, int n) {
-    List<PairOfObjectInt<K>> list = getEntriesSorted(comparator);
-    return list.subList(0, n);
-  }
 }
@@ -28,6 +28,7 @@ import java.util.Set;
 
 import com.google.common.collect.Lists;
 
+import edu.umd.cloud9.util.TopNRankedObjects;
 import edu.umd.cloud9.util.pair.PairOfObjectInt;
 
 /**
@@ -210,17 +211,21 @@ public class Object2IntFrequencyDistributionFastutil<K extends Comparable<K>>
 
   @Override
   public List<PairOfObjectInt<K>> getEntries(Order ordering, int n) {
-    if (ordering.equals(Order.ByRightElementDescending)) {
-      return getEntriesSorted(comparatorRightDescending, n);
-    } else if (ordering.equals(Order.ByLeftElementAscending)) {
-      return getEntriesSorted(comparatorLeftAscending, n);
-    } else if (ordering.equals(Order.ByRightElementAscending)) {
-      return getEntriesSorted(comparatorRightAscending, n);
-    } else if (ordering.equals(Order.ByLeftElementDescending)) {
-      return getEntriesSorted(comparatorLeftDescending, n);
+    // select the first n entries with a heap rather than sorting all of them
+    TopNRankedObjects<K> top = TopEntries.newSelector(ordering, Math.min(n, getNumberOfEvents()));
+    Iterator<Object2IntMap.Entry<K>> iter = counts.object2IntEntrySet().fastIterator();
+    while (iter.hasNext()) {
+      Object2IntMap.Entry<K> e = iter.next();
+      top.add(e.getKey(), TopEntries.rank(ordering, e.getIntValue()));
     }
-    // Should never get here.
-    return null;
+    top.sort();
+
+    List<PairOfObjectInt<K>> list = Lists.newArrayListWithCapacity(top.size());
+    for (int i = 0; i < top.size(); i++) {
+      K key = top.getKey(i);
+      list.add(new PairOfObjectInt<K>(key, get(key)));
+    }
+    return list;
   }
 
   private final Comparator<PairOfObjectInt<K>> comparatorRightDescending =
@@ -286,12 +291,6 @@ public class Object2IntFrequencyDistributionFastutil<K extends Comparable<K>>
     return list;
   }
 
-  private List<PairOfObjectInt<K>>
-      getEntriesSorted(Comparator<PairOfObjectInt<K>> comparator, int n) {
-    List<PairOfObjectInt<K>> list = getEntriesSorted(comparator);
-    return list.subList(0, n);
-  }
-
   public static <T extends Comparable<T>> Object2IntFrequencyDistributionFastutil<T>
       fromObject2IntOpenHashMap(Object2IntOpenHashMap<T> map) {
     Object2IntFrequencyDistributionFastutil<T> fd =
@@ -0,0 +1,313 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.fd;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
+
+/**
+ * <p>
+ * Approximate implementation of {@link Object2IntFrequencyDistribution} that monitors at most a
+ * fixed number of events, using the SpaceSaving algorithm of Metwally et al. When an event that
+ * is not monitored arrives and all counters are taken, the event with the smallest count is
+ * replaced by the new event, which inherits its count as error. Memory is therefore independent of
+ * the number of distinct events, and every event whose count exceeds <i>N</i>/<i>m</i>, with
+ * <i>N</i> the sum of counts and <i>m</i> the number of counters, is guaranteed to be monitored.
+ * </p>
+ *
+ * <p>
+ * The count of a monitored event is an overestimate: its true count lies between
+ * <code>get(key) - getError(key)</code> and <code>get(key)</code>. The true count of an event that
+ * is not monitored is at most {@link #getErrorBound()}. Events can only be incremented:
+ * {@link #set}, {@link #remove}, and {@link #decrement} throw
+ * <code>UnsupportedOperationException</code>. Two distributions are combined with
+ * {@link #merge(Object2IntFrequencyDistributionSpaceSaving)}, e.g., to merge the distributions
+ * emitted by mappers in a reducer.
+ * </p>
+ *
+ * @see edu.umd.cloud9.io.fd.String2IntFrequencyDistributionSpaceSavingWritable
+ */
+public class Object2IntFrequencyDistributionSpaceSaving<K extends Comparable<K>>
+    implements Object2IntFrequencyDistribution<K> {
+
+  private MinCountHeap<K> counters;
+  private long sumOfCounts;
+
+  // bound on the count of events that are not monitored
+  private int errorBound;
+
+  /**
+   * Creates an empty distribution with <code>capacity</code> counters.
+   */
+  public Object2IntFrequencyDistributionSpaceSaving(int capacity) {
+    initialize(capacity, 0, 0);
+  }
+
+  /**
+   * Returns the maximum number of events monitored.
+   */
+  public int getCapacity() {
+    return counters.getCapacity();
+  }
+
+  @Override
+  public void increment(K key) {
+    increment(key, 1);
+  }
+
+  @Override
+  public void increment(K key, int cnt) {
+    Preconditions.checkArgument(cnt >= 0, "Can't increment by a negative count!");
+
+    sumOfCounts += cnt;
+    if (counters.contains(key)) {
+      counters.setCount(key, counters.getCount(key) + cnt);
+    } else if (!counters.isFull()) {
+      counters.add(key, errorBound + cnt, errorBound);
+    } else {
+      // the event replaced can't have occurred more often than its count
+      errorBound = Math.max(errorBound, counters.getMinCount());
+      counters.replaceMin(key, errorBound + cnt, errorBound);
+    }
+  }
+
+  @Override
+  public void decrement(K key) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void decrement(K key, int cnt) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Returns <code>true</code> if the event is monitored.
+   */
+  @Override
+  public boolean contains(K key) {
+    return counters.contains(key);
+  }
+
+  /**
+   * Returns the estimated count of an event, or zero if the event is not monitored.
+   */
+  @Override
+  public int get(K key) {
+    return counters.getCount(key);
+  }
+
+  /**
+   * Returns the maximum overestimation of the count of a monitored event, or
+   * {@link #getErrorBound()} if the event is not monitored.
+   */
+  public int getError(K key) {
+    return counters.contains(key) ? counters.getError(key) : getErrorBound();
+  }
+
+  /**
+   * Returns a bound on the count of any event that is not monitored, which is at most
+   * <i>N</i>/<i>m</i>, with <i>N</i> the sum of counts and <i>m</i> the number of counters.
+   */
+  public int getErrorBound() {
+    return errorBound;
+  }
+
+  @Override
+  public double computeRelativeFrequency(K key) {
+    return (double) get(key) / getSumOfCounts();
+  }
+
+  @Override
+  public double computeLogRelativeFrequency(K key) {
+    return Math.log(get(key)) - Math.log(getSumOfCounts());
+  }
+
+  @Override
+  public int set(K key, int cnt) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int remove(K k) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void clear() {
+    initialize(getCapacity(), 0, 0);
+  }
+
+  /**
+   * Returns the number of events monitored.
+   */
+  @Override
+  public int getNumberOfEvents() {
+    return counters.size();
+  }
+
+  /**
+   * Returns the exact sum of counts of all observed events.
+   */
+  @Override
+  public long getSumOfCounts() {
+    return sumOfCounts;
+  }
+
+  /**
+   * Returns the set of events monitored.
+   */
+  @Override
+  public Set<K> keySet() {
+    return Collections.unmodifiableSet(counters.keySet());
+  }
+
+  /**
+   * Iterator returns the same object every time, just with a different payload.
+   */
+  public Iterator<PairOfObjectInt<K>> iterator() {
+    return new Iterator<PairOfObjectInt<K>>() {
+      private final PairOfObjectInt<K> pair = new PairOfObjectInt<K>();
+      private int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < counters.size();
+      }
+
+      @Override
+      public PairOfObjectInt<K> next() {
+        if (!hasNext()) {
+          return null;
+        }
+
+        pair.set(counters.getKey(i), counters.getCount(i));
+        i++;
+        return pair;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public List<PairOfObjectInt<K>> getEntries(Order ordering) {
+    return toExact().getEntries(ordering);
+  }
+
+  @Override
+  public List<PairOfObjectInt<K>> getEntries(Order ordering, int n) {
+    return toExact().getEntries(ordering, n);
+  }
+
+  /**
+   * Adds the counts of another distribution to this one. The estimate of an event is the sum of
+   * its estimates in both distributions, where the estimate of an event that is not monitored is
+   * the error bound of its distribution; the events with the largest estimates are kept.
+   */
+  public void merge(Object2IntFrequencyDistributionSpaceSaving<K> other) {
+    int bound = getErrorBound();
+    int otherBound = other.getErrorBound();
+
+    List<Counter<K>> merged = Lists.newArrayListWithCapacity(counters.size()
+        + other.counters.size());
+    for (int i = 0; i < counters.size(); i++) {
+      K key = counters.getKey(i);
+      int otherCount = other.contains(key) ? other.get(key) : otherBound;
+      merged.add(new Counter<K>(key, counters.getCount(i) + otherCount, counters.getError(i)
+          + other.getError(key)));
+    }
+    for (int i = 0; i < other.counters.size(); i++) {
+      K key = other.counters.getKey(i);
+      if (!counters.contains(key)) {
+        merged.add(new Counter<K>(key, other.counters.getCount(i) + bound,
+            other.counters.getError(i) + bound));
+      }
+    }
+
+    Collections.sort(merged, new Comparator<Counter<K>>() {
+      public int compare(Counter<K> c1, Counter<K> c2) {
+        if (c1.count != c2.count) {
+          return c1.count > c2.count ? -1 : 1;
+        }
+        return c1.key.compareTo(c2.key);
+      }
+    });
+
+    // the events dropped are not monitored anymore, and their estimates bound their counts
+    int capacity = getCapacity();
+    int newBound = bound + otherBound;
+    if (merged.size() > capacity) {
+      newBound = Math.max(newBound, merged.get(capacity).count);
+    }
+
+    initialize(capacity, sumOfCounts + other.sumOfCounts, newBound);
+    for (int i = 0; i < Math.min(capacity, merged.size()); i++) {
+      Counter<K> c = merged.get(i);
+      counters.add(c.key, c.count, c.error);
+    }
+  }
+
+  /**
+   * Empties this distribution, sets its number of counters, its sum of counts, and its bound on
+   * the count of events that are not monitored. Used for deserialization.
+   */
+  protected void initialize(int capacity, long sumOfCounts, int errorBound) {
+    this.counters = new MinCountHeap<K>(capacity);
+    this.sumOfCounts = sumOfCounts;
+    this.errorBound = errorBound;
+  }
+
+  /**
+   * Adds a counter for an event that is not monitored, without changing the sum of counts. Used
+   * for deserialization.
+   */
+  protected void restore(K key, int count, int error) {
+    counters.add(key, count, error);
+  }
+
+  private Object2IntFrequencyDistribution<K> toExact() {
+    Object2IntFrequencyDistribution<K> fd = new Object2IntFrequencyDistributionEntry<K>();
+    for (int i = 0; i < counters.size(); i++) {
+      fd.set(counters.getKey(i), counters.getCount(i));
+    }
+    return fd;
+  }
+
+  private static class Counter<K> {
+    final K key;
+    final int count;
+    final int error;
+
+    Counter(K key, int count, int error) {
+      this.key = key;
+      this.count = count;
+      this.error = error;
+    }
+  }
+}
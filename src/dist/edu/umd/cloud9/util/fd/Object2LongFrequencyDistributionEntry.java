@@ -24,6 +24,7 @@ import java.util.Set;
 
 import com.google.common.collect.Lists;
 
+import edu.umd.cloud9.util.TopNRankedObjects;
 import edu.umd.cloud9.util.map.HMapKL;
 import edu.umd.cloud9.util.map.MapKL;
 import edu.umd.cloud9.util.pair.PairOfObjectLong;
@@ -194,17 +195,19 @@ public class Object2LongFrequencyDistributionEntry<K extends Comparable<K>>
 
   @Override
   public List<PairOfObjectLong<K>> getEntries(Order ordering, int n) {
-    if (ordering.equals(Order.ByRightElementDescending)) {
-      return getEntriesSorted(comparatorRightDescending, n);
-    } else if (ordering.equals(Order.ByLeftElementAscending)) {
-      return getEntriesSorted(comparatorLeftAscending, n);
-    } else if (ordering.equals(Order.ByRightElementAscending)) {
-      return getEntriesSorted(comparatorRightAscending, n);
-    } else if (ordering.equals(Order.ByLeftElementDescending)) {
-      return getEntriesSorted(comparatorLeftDescending, n);
+    // select the first n entries with a heap rather than sorting all of them
+    TopNRankedObjects<K> top = TopEntries.newSelector(ordering, Math.min(n, getNumberOfEvents()));
+    for (MapKL.Entry<K> e : counts.entrySet()) {
+      top.add(e.getKey(), TopEntries.rank(ordering, e.getValue()));
     }
-    // Should never get here.
-    return null;
+    top.sort();
+
+    List<PairOfObjectLong<K>> list = Lists.newArrayListWithCapacity(top.size());
+    for (int i = 0; i < top.size(); i++) {
+      K key = top.getKey(i);
+      list.add(new PairOfObjectLong<K>(key, get(key)));
+    }
+    return list;
   }
 
   private final Comparator<PairOfObjectLong<K>> comparatorRightDescending =
@@ -269,10 +272,4 @@ public class Object2LongFrequencyDistributionEntry<K extends Comparable<K>>
     Collections.sort(list, comparator);
     return list;
   }
-
-  private List<PairOfObjectLong<K>>
-      getEntriesSorted(Comparator<PairOfObjectLong<K>> comparator, int n) {
-    List<PairOfObjectLong<K>> list = getEntriesSorted(comparator);
-    return list.subList(0, n);
-  }
 }
@@ -0,0 +1,73 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.fd;
+
+import java.util.Collections;
+
+import edu.umd.cloud9.util.SortableEntries.Order;
+import edu.umd.cloud9.util.TopNRankedInts;
+import edu.umd.cloud9.util.TopNRankedObjects;
+
+/**
+ * Maps the orderings of {@link edu.umd.cloud9.util.SortableEntries} onto {@link TopNRankedInts} and
+ * {@link TopNRankedObjects}, so that the first <i>n</i> entries of a frequency distribution can be
+ * selected without sorting all of them. Ties are broken by ascending key, as in the comparators
+ * used for sorting.
+ */
+final class TopEntries {
+  private TopEntries() {
+  }
+
+  /**
+   * Returns the rank under which an event with an int key should be added to a
+   * {@link TopNRankedInts}.
+   */
+  static long rank(Order ordering, int key, long count) {
+    if (ordering.equals(Order.ByRightElementDescending)) {
+      return count;
+    } else if (ordering.equals(Order.ByRightElementAscending)) {
+      return -count;
+    } else if (ordering.equals(Order.ByLeftElementAscending)) {
+      return -(long) key;
+    }
+    return key;
+  }
+
+  /**
+   * Returns the rank under which an event with an object key should be added to the
+   * {@link TopNRankedObjects} returned by {@link #newSelector(Order, int)}.
+   */
+  static long rank(Order ordering, long count) {
+    if (ordering.equals(Order.ByRightElementDescending)) {
+      return count;
+    } else if (ordering.equals(Order.ByRightElementAscending)) {
+      return -count;
+    }
+    // ordering by key: all ranks are equal, and the tie-breaking comparator does the work
+    return 0;
+  }
+
+  /**
+   * Returns an object for selecting the first <i>n</i> events with object keys.
+   */
+  static <K extends Comparable<K>> TopNRankedObjects<K> newSelector(Order ordering, int n) {
+    if (ordering.equals(Order.ByLeftElementDescending)) {
+      return new TopNRankedObjects<K>(n, Collections.<K> reverseOrder());
+    }
+    return new TopNRankedObjects<K>(n);
+  }
+}
@@ -21,6 +21,8 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import edu.umd.cloud9.util.TopNRankedInts;
+
 /**
  * Hash-based implementation of {@link MapID}.
  */
@@ -930,15 +932,22 @@ public class HMapID implements MapID, Cloneable, Serializable {
    * @return top <i>n</i> entries sorted by descending value
    */
   public MapID.Entry[] getEntriesSortedByValue(int n) {
-    MapID.Entry[] entries = getEntriesSortedByValue();
-
-    if (entries == null)
+    if (this.size() == 0)
       return null;
 
-    if (entries.length < n)
-      return entries;
+    // select the top n entries with a heap rather than sorting all of them
+    TopNRankedInts top = new TopNRankedInts(Math.min(n, this.size()));
+    for (Entry e : table) {
+      for (; e != null; e = e.next)
+        top.add(e.key, TopNRankedInts.rankOf(e.value));
+    }
+    top.sort();
+
+    MapID.Entry[] entries = new Entry[top.size()];
+    for (int i = 0; i < entries.length; i++)
+      entries[i] = getEntry(top.getKey(i));
 
-    return Arrays.copyOfRange(entries, 0, n);
+    return entries;
   }
 
 }
@@ -23,6 +23,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import edu.umd.cloud9.util.TopNRankedInts;
+
 /**
  * Hash-based implementation of the <tt>MapIL</tt> interface. {@link MapIL} is
  * a specialized variant the standard Java {@link Map} interface, except that
@@ -957,14 +959,21 @@ public class HMapIL implements MapIL, Cloneable, Serializable {
 	 * @return top <i>n</i> entries sorted by descending value
 	 */
 	public MapIL.Entry[] getEntriesSortedByValue(int n) {
-		MapIL.Entry[] entries = getEntriesSortedByValue();
-
-		if (entries == null)
+		if (this.size() == 0)
 			return null;
 
-		if (entries.length < n)
-			return entries;
+		// select the top n entries with a heap rather than sorting all of them
+		TopNRankedInts top = new TopNRankedInts(Math.min(n, this.size()));
+		for (Entry e : table) {
+			for (; e != null; e = e.next)
+				top.add(e.key, e.value);
+		}
+		top.sort();
+
+		MapIL.Entry[] entries = new Entry[top.size()];
+		for (int i = 0; i < entries.length; i++)
+			entries[i] = getEntry(top.getKey(i));
 
-		return Arrays.copyOfRange(entries, 0, n);
+		return entries;
 	}
 }
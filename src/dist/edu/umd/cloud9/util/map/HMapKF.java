@@ -21,6 +21,9 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import edu.umd.cloud9.util.TopNRankedInts;
+import edu.umd.cloud9.util.TopNRankedObjects;
+
 /**
  * Hash-based implementation of the <tt>MapKF</tt> interface. {@link MapKF} is
  * a specialized variant the standard Java {@link Map} interface, except that
@@ -968,7 +971,7 @@ public class HMapKF<K extends Comparable<?>> implements MapKF<K>, Cloneable, Ser
 			return null;
 
 		// for storing the entries
-		MapKF.Entry<K>[] entries = new Entry[this.size()];
+		MapKF.Entry<K>[] entries = newEntryArray(this.size());
 		int i = 0;
 		Entry<K> next = null;
 
@@ -1020,14 +1023,27 @@ public class HMapKF<K extends Comparable<?>> implements MapKF<K>, Cloneable, Ser
 	 * @return top <i>n</i> entries sorted by descending value
 	 */
 	public MapKF.Entry<K>[] getEntriesSortedByValue(int n) {
-		MapKF.Entry<K>[] entries = getEntriesSortedByValue();
-
-		if (entries == null)
+		if (this.size() == 0)
 			return null;
 
-		if (entries.length < n)
-			return entries;
+		// select the top n entries with a heap rather than sorting all of them
+		TopNRankedObjects<K> top = new TopNRankedObjects<K>(Math.min(n, this.size()));
+		for (Entry<K> e : table) {
+			for (; e != null; e = e.next)
+				top.add(e.key, TopNRankedInts.rankOf(e.value));
+		}
+		top.sort();
+
+		MapKF.Entry<K>[] entries = newEntryArray(top.size());
+		for (int i = 0; i < entries.length; i++)
+			entries[i] = getEntry(top.getKey(i));
+
+		return entries;
+	}
 
-		return Arrays.copyOfRange(entries, 0, n);
+	// generic arrays can only be created raw
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <K> MapKF.Entry<K>[] newEntryArray(int size) {
+		return new Entry[size];
 	}
 }
@@ -21,6 +21,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import edu.umd.cloud9.util.TopNRankedObjects;
+
 /**
  * Hash-based implementation of the <tt>MapKI</tt> interface. {@link MapKI} is
  * a specialized variant the standard Java {@link Map} interface, except that
@@ -956,7 +958,7 @@ public class HMapKI<K extends Comparable<?>> implements MapKI<K>, Cloneable, Ser
 			return null;
 
 		// for storing the entries
-		MapKI.Entry<K>[] entries = new Entry[this.size()];
+		MapKI.Entry<K>[] entries = newEntryArray(this.size());
 		int i = 0;
 		Entry<K> next = null;
 
@@ -1008,15 +1010,28 @@ public class HMapKI<K extends Comparable<?>> implements MapKI<K>, Cloneable, Ser
 	 * @return top <i>n</i> entries sorted by descending value
 	 */
 	public MapKI.Entry<K>[] getEntriesSortedByValue(int n) {
-		MapKI.Entry<K>[] entries = getEntriesSortedByValue();
-
-		if (entries == null)
+		if (this.size() == 0)
 			return null;
 
-		if (entries.length < n)
-			return entries;
+		// select the top n entries with a heap rather than sorting all of them
+		TopNRankedObjects<K> top = new TopNRankedObjects<K>(Math.min(n, this.size()));
+		for (Entry<K> e : table) {
+			for (; e != null; e = e.next)
+				top.add(e.key, e.value);
+		}
+		top.sort();
 
-		return Arrays.copyOfRange(entries, 0, n);
+		MapKI.Entry<K>[] entries = newEntryArray(top.size());
+		for (int i = 0; i < entries.length; i++)
+			entries[i] = getEntry(top.getKey(i));
+
+		return entries;
+	}
+
+	// generic arrays can only be created raw
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <K> MapKI.Entry<K>[] newEntryArray(int size) {
+		return new Entry[size];
 	}
 
 	@SuppressWarnings("unchecked")
@@ -1025,7 +1040,7 @@ public class HMapKI<K extends Comparable<?>> implements MapKI<K>, Cloneable, Ser
 			return null;
 
 		// for storing the entries
-		MapKI.Entry<K>[] entries = new Entry[this.size()];
+		MapKI.Entry<K>[] entries = newEntryArray(this.size());
 		int i = 0;
 		Entry<K> next = null;
 
@@ -40,9 +40,11 @@ import org.apache.hadoop.mapred.lib.IdentityMapper;
 import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.io.array.ArrayListWritable;
+import edu.umd.cloud9.mapred.BloomFilterJoin;
 import edu.umd.cloud9.util.PowerTool;
 import edu.umd.cloud9.util.array.ArrayListOfInts;
 import edu.umd.cloud9.webgraph.data.AnchorText;
+import edu.umd.cloud9.webgraph.data.AnchorTextAggregator;
 import edu.umd.cloud9.webgraph.data.AnchorTextConstants;
 
 /**
@@ -59,17 +61,25 @@ public class BuildReverseWebGraph extends PowerTool {
 		private static final IntWritable keyWord = new IntWritable();
 		private static final ArrayListWritable<AnchorText> arrayList = new ArrayListWritable<AnchorText>();
 		
+		private static final AnchorTextAggregator aggregator = new AnchorTextAggregator();
 		private static ArrayListWritable<AnchorText> packet;
-		private static boolean pushed;
 		
 		private int indegree;
 		private static final ArrayListOfInts docnos = new ArrayListOfInts();
 		
+		// whether links were extracted with a Bloom filter of the URLs of the collection
+		private static boolean filtered;
+		
+		public void configure(JobConf job) {
+			filtered = job.get(BloomFilterJoin.PATH_PROPERTY) != null;
+		}
+		
 		public void reduce(Text key, Iterator<ArrayListWritable<AnchorText>> values,
 				OutputCollector<IntWritable, ArrayListWritable<AnchorText>> output, Reporter reporter) throws IOException {
 			
 			docnos.clear();
 			arrayList.clear();
+			aggregator.clear();
 			indegree = 0;
 			
 			while(values.hasNext()) {
@@ -85,30 +95,24 @@ public class BuildReverseWebGraph extends PowerTool {
 						continue;
 					}
 					
-					pushed = false;
-					
 					indegree += data.getSize();
 					
-					for(int i = 0; i < arrayList.size(); i++) {
-						if(arrayList.get(i).equalsIgnoreSources(data)) {
-							arrayList.get(i).addDocumentsFrom(data);
-							pushed = true;
-							break;
-						}
-					}
-					
-					if(!pushed)
-						arrayList.add(data.clone());
+					aggregator.add(data);
 				}
 						
 			}
 			
+			aggregator.emit(arrayList);
 			arrayList.add(new AnchorText(AnchorTextConstants.Type.IN_DEGREE.val, AnchorTextConstants.EMPTY_STRING, indegree));
 			arrayList.add(new AnchorText(AnchorTextConstants.Type.URL_FIELD.val, key.toString()));
 			
 			Collections.sort(arrayList);
 			
 			//if there was no document number detected, this record would not be emitted.  
+			if(filtered && docnos.size() == 0) {
+				reporter.incrCounter(BloomFilterJoin.Counter.FALSE_POSITIVES, indegree);
+			}
+			
 			for(int docno : docnos) {
 				keyWord.set(docno);
 				output.collect(keyWord, arrayList);
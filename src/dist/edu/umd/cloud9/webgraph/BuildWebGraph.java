@@ -41,6 +41,7 @@ import org.apache.log4j.Logger;
 import edu.umd.cloud9.io.array.ArrayListWritable;
 import edu.umd.cloud9.util.PowerTool;
 import edu.umd.cloud9.webgraph.data.AnchorText;
+import edu.umd.cloud9.webgraph.data.AnchorTextAggregator;
 import edu.umd.cloud9.webgraph.data.AnchorTextConstants;
 
 /**
@@ -94,14 +95,15 @@ public class BuildWebGraph extends PowerTool {
 	
 		private static final ArrayListWritable<AnchorText> arrayList = 
 			new ArrayListWritable<AnchorText>();
+		private static final AnchorTextAggregator aggregator = new AnchorTextAggregator();
 		private static ArrayListWritable<AnchorText> packet;
-		private static boolean pushed;
 		private static int outdegree;
 		
 		public void reduce(IntWritable key, Iterator<ArrayListWritable<AnchorText>> values,
 				OutputCollector<IntWritable, ArrayListWritable<AnchorText>> output, Reporter reporter) throws IOException {
 			
 			arrayList.clear();
+			aggregator.clear();
 			outdegree = 0;
 			
 			while(values.hasNext()) {
@@ -111,21 +113,11 @@ public class BuildWebGraph extends PowerTool {
 				  
 				  outdegree += data.getSize();
 					
-					pushed = false;
-					
-					for(int i = 0; i < arrayList.size(); i++) {
-						if(arrayList.get(i).equalsIgnoreSources(data)) {
-							arrayList.get(i).addDocumentsFrom(data);
-							pushed = true;
-							break;
-						}
-					}
-					
-					if(!pushed)
-						arrayList.add(data.clone());
+					aggregator.add(data);
 				}
 			}
 			
+			aggregator.emit(arrayList);
 			arrayList.add(new AnchorText(AnchorTextConstants.Type.OUT_DEGREE.val, AnchorTextConstants.EMPTY_STRING, outdegree));
 			
 			Collections.sort(arrayList);
@@ -25,7 +25,9 @@ import org.apache.hadoop.filecache.DistributedCache;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.mapred.FileOutputFormat;
@@ -42,11 +44,15 @@ import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.collection.clue.ClueWarcDocnoMapping;
 import edu.umd.cloud9.collection.clue.ClueWarcRecord;
+import edu.umd.cloud9.io.BloomFilterWritable;
 import edu.umd.cloud9.io.array.ArrayListWritable;
+import edu.umd.cloud9.mapred.BloomFilterJoin;
 import edu.umd.cloud9.util.PowerTool;
 import edu.umd.cloud9.webgraph.data.AnchorText;
+import edu.umd.cloud9.webgraph.data.AnchorTextAggregator;
 import edu.umd.cloud9.webgraph.data.AnchorTextConstants;
 import edu.umd.cloud9.webgraph.normalizer.AnchorTextNormalizer;
+import edu.umd.cloud9.webgraph.normalizer.URLCanonicalizer;
 
 import org.htmlparser.NodeFilter;
 import org.htmlparser.Parser;
@@ -57,6 +63,10 @@ import org.htmlparser.util.NodeList;
 import org.htmlparser.util.ParserException;
 
 /**
+ * Extracts the links of a ClueWeb segment, keyed by the URL of their target. If
+ * <code>Cloud9.BloomFilter.Path</code> is set to a filter built by {@link #buildURLFilter}, links
+ * to URLs outside the collection, which {@link BuildReverseWebGraph} would discard, are dropped
+ * instead of being shuffled.
  * 
  * @author Nima Asadi
  * 
@@ -64,6 +74,19 @@ import org.htmlparser.util.ParserException;
 public class ClueExtractLinks extends PowerTool {
   private static final Logger LOG = Logger.getLogger(ClueExtractLinks.class);
 
+  /**
+   * Mapper of the pre-pass building the Bloom filter of the URLs of the collection.
+   */
+  public static class URLMap extends BloomFilterJoin.KeyMapper<IntWritable, ClueWarcRecord> {
+    @Override
+    protected void addKeys(IntWritable key, ClueWarcRecord doc, BloomFilterWritable filter) {
+      String url = doc.getHeaderMetadataItem("WARC-Target-URI");
+      if (url != null) {
+        filter.add(url);
+      }
+    }
+  }
+
   public static class Map extends MapReduceBase implements
       Mapper<IntWritable, ClueWarcRecord, Text, ArrayListWritable<AnchorText>> {
 
@@ -94,10 +117,20 @@ public class ClueExtractLinks extends PowerTool {
     private static final NodeFilter filter = new NodeClassFilter(LinkTag.class);;
     private static NodeList list;
 
+    // links are extracted by HtmlLinkExtractor, unless the htmlparser is
+    // turned on with Cloud9.UseHtmlParser
+    private static final HtmlLinkExtractor extractor = new HtmlLinkExtractor();
+    private static final byte[] CONTENT_LENGTH = { 'C', 'o', 'n', 't', 'e', 'n', 't', '-', 'L',
+        'e', 'n', 'g', 't', 'h', ':' };
+    private static boolean useHtmlParser;
+
     private static boolean includeInternalLinks;
 
     private static AnchorTextNormalizer normalizer;
 
+    private static final DataOutputBuffer buffer = new DataOutputBuffer();
+    private static BloomFilterWritable urlFilter;
+
     public void configure(JobConf job) {
       Path[] localFiles;
       try {
@@ -106,14 +139,19 @@ public class ClueExtractLinks extends PowerTool {
         throw new RuntimeException("Local cache files not read properly.");
       }
 
+      // the local job runner doesn't localize cache files; read the original
+      Path mappingFile = localFiles != null ?
+          localFiles[0] : new Path(job.get("Cloud9.DocnoMappingFile"));
+
       try {
-        docnoMapping.loadMapping(localFiles[0], FileSystem.getLocal(job));
+        docnoMapping.loadMapping(mappingFile, FileSystem.getLocal(job));
       } catch (Exception e) {
         e.printStackTrace();
         throw new RuntimeException("Error initializing DocnoMapping!");
       }
 
       includeInternalLinks = job.getBoolean("Cloud9.IncludeInternalLinks", false);
+      useHtmlParser = job.getBoolean("Cloud9.UseHtmlParser", false);
 
       try {
         normalizer = (AnchorTextNormalizer) Class.forName(job.get("Cloud9.AnchorTextNormalizer"))
@@ -122,6 +160,12 @@ public class ClueExtractLinks extends PowerTool {
         e.printStackTrace();
         throw new RuntimeException("Error initializing AnchorTextNormalizer");
       }
+
+      try {
+        urlFilter = BloomFilterJoin.loadFilter(job);
+      } catch (IOException e) {
+        throw new RuntimeException("Error loading the Bloom filter of URLs!");
+      }
     }
 
     public void map(IntWritable key, ClueWarcRecord doc,
@@ -162,18 +206,27 @@ public class ClueExtractLinks extends PowerTool {
       // processed
       reporter.incrCounter(LinkCounter.OUTPUT_DOCS, 1);
 
-      try {
-        baseHost = new URI(base).getHost();
-      } catch (Exception e) {
+      baseHost = getHost(base);
+      if (baseHost == null) {
         reporter.incrCounter(LinkCounter.INVALID_URL, 1);
         return;
       }
 
-      if (baseHost == null) {
-        reporter.incrCounter(LinkCounter.INVALID_URL, 1);
+      if (useHtmlParser) {
+        extractLinksWithParser(doc, output, reporter);
         return;
       }
 
+      byte[] content = doc.getByteContent();
+      extractor.reset(content, getContentStart(content), content.length, base);
+      while (extractor.next()) {
+        emitLink(extractor.getAnchorText(), extractor.getURL(), output, reporter);
+      }
+    }
+
+    private void extractLinksWithParser(ClueWarcRecord doc,
+        OutputCollector<Text, ArrayListWritable<AnchorText>> output, Reporter reporter)
+        throws IOException {
       try {
         parser.setInputHTML(doc.getContent()); // initializing the
         // parser with new HTML
@@ -200,59 +253,94 @@ public class ClueExtractLinks extends PowerTool {
 
       for (int i = 0; i < list.size(); i++) {
         LinkTag link = (LinkTag) list.elementAt(i);
-        String anchor = link.getLinkText();
-        String url = link.extractLink();
+        emitLink(link.getLinkText(), link.extractLink(), output, reporter);
+      }
+    }
 
-        if (url == null)
-          continue;
+    private void emitLink(String anchor, String url,
+        OutputCollector<Text, ArrayListWritable<AnchorText>> output, Reporter reporter)
+        throws IOException {
+      if (url == null)
+        return;
 
-        if (url.equals(base)) // discard self links
-          continue;
+      if (url.equals(base)) // discard self links
+        return;
 
-        String host = null;
-        try {
-          host = new URI(url).getHost();
-        } catch (Exception e) {
-          continue;
-        }
+      String host = getHost(url);
+      if (host == null)
+        return;
 
-        if (host == null)
-          continue;
+      if (anchor == null)
+        anchor = "";
 
-        if (anchor == null)
-          anchor = "";
+      // normalizing the anchor text
+      anchor = normalizer.process(anchor);
 
-        // normalizing the anchor text
-        anchor = normalizer.process(anchor);
+      arrayList.clear();
+      if (baseHost.equals(host)) {
 
-        arrayList.clear();
-        if (baseHost.equals(host)) {
+        if (!includeInternalLinks)
+          return;
 
-          if (!includeInternalLinks)
-            continue;
+        arrayList.add(new AnchorText(AnchorTextConstants.Type.INTERNAL_IN_LINK.val, anchor, docno));
 
-          arrayList
-              .add(new AnchorText(AnchorTextConstants.Type.INTERNAL_IN_LINK.val, anchor, docno));
+      } else {
+        arrayList.add(new AnchorText(AnchorTextConstants.Type.EXTERNAL_IN_LINK.val, anchor, docno));
+      }
 
-        } else {
-          arrayList
-              .add(new AnchorText(AnchorTextConstants.Type.EXTERNAL_IN_LINK.val, anchor, docno));
-        }
+      // links to URLs that aren't in the filter have no docno to be joined with
+      if (urlFilter != null && !urlFilter.mightContain(url)) {
+        keyWord.set(url);
+        reporter.incrCounter(BloomFilterJoin.Counter.DROPPED, 1);
+        reporter.incrCounter(BloomFilterJoin.Counter.BYTES_SAVED,
+            BloomFilterJoin.getSerializedSize(buffer, keyWord, arrayList));
+        return;
+      }
+
+      try {
+        keyWord.set(url);
+        output.collect(keyWord, arrayList);
+      } catch (UTFDataFormatException e) {
+        reporter.incrCounter(LinkCounter.TEXT_TOO_LONG, 1);
+
+        keyWord.set(url);
+        byte flag = arrayList.get(0).getType();
+        arrayList.clear();
+        arrayList.add(new AnchorText(flag, AnchorTextConstants.EMPTY_STRING, docno));
+        output.collect(keyWord, arrayList);
+      }
+    }
+
+    private static String getHost(String url) {
+      if (!useHtmlParser)
+        return URLCanonicalizer.getHost(url);
+
+      try {
+        return new URI(url).getHost();
+      } catch (Exception e) {
+        return null;
+      }
+    }
 
-        try {
-          keyWord.set(url);
-          output.collect(keyWord, arrayList);
-        } catch (UTFDataFormatException e) {
-          reporter.incrCounter(LinkCounter.TEXT_TOO_LONG, 1);
-
-          keyWord.set(url);
-          byte flag = arrayList.get(0).getType();
-          arrayList.clear();
-          arrayList.add(new AnchorText(flag, AnchorTextConstants.EMPTY_STRING, docno));
-          output.collect(keyWord, arrayList);
+    // offset of the HTML in the content of a record, past the HTTP headers
+    // (the same place ClueWarcRecord.getContent() starts from)
+    static int getContentStart(byte[] content) {
+      int i = 0;
+      search: for (; i + CONTENT_LENGTH.length <= content.length; i++) {
+        for (int j = 0; j < CONTENT_LENGTH.length; j++) {
+          if (content[i + j] != CONTENT_LENGTH[j])
+            continue search;
         }
+        break;
+      }
+      if (i + CONTENT_LENGTH.length > content.length)
+        i = 0;
 
+      for (; i < content.length; i++) {
+        if (content[i] == '\n')
+          return i + 1;
       }
+      return 0;
     }
   }
 
@@ -260,35 +348,22 @@ public class ClueExtractLinks extends PowerTool {
       Reducer<Text, ArrayListWritable<AnchorText>, Text, ArrayListWritable<AnchorText>> {
 
     private static final ArrayListWritable<AnchorText> arrayList = new ArrayListWritable<AnchorText>();
+    private static final AnchorTextAggregator aggregator = new AnchorTextAggregator();
     private static ArrayListWritable<AnchorText> packet;
-    private static boolean pushed;
 
     public void reduce(Text key, Iterator<ArrayListWritable<AnchorText>> values,
         OutputCollector<Text, ArrayListWritable<AnchorText>> output, Reporter reporter)
         throws IOException {
 
       arrayList.clear();
+      aggregator.clear();
 
       while (values.hasNext()) {
         packet = values.next();
-
-        for (AnchorText data : packet) {
-
-          pushed = false;
-
-          for (int i = 0; i < arrayList.size(); i++) {
-            if (arrayList.get(i).equalsIgnoreSources(data)) {
-              arrayList.get(i).addDocumentsFrom(data);
-              pushed = true;
-              break;
-            }
-          }
-
-          if (!pushed)
-            arrayList.add(data.clone());
-        }
+        aggregator.addAll(packet);
       }
 
+      aggregator.emit(arrayList);
       output.collect(key, arrayList);
     }
   }
@@ -305,6 +380,34 @@ public class ClueExtractLinks extends PowerTool {
     super(conf);
   }
 
+  /**
+   * Runs the pre-pass building the Bloom filter of the URLs of a collection, which must cover all
+   * the segments whose links are extracted, so that links across segments are kept.
+   *
+   * @param conf configuration, with <code>Cloud9.BloomFilter.ExpectedKeys</code> set
+   * @param inputPath comma-separated paths of the segments
+   * @param filterPath path of the filter
+   */
+  public static void buildURLFilter(Configuration conf, String inputPath, Path filterPath)
+      throws IOException {
+    JobConf job = new JobConf(conf, ClueExtractLinks.class);
+    job.setJobName("ClueExtractLinks:URLFilter");
+    job.setNumMapTasks(conf.getInt("Cloud9.Mappers", 1));
+
+    job.setInputFormat(SequenceFileInputFormat.class);
+    SequenceFileInputFormat.setInputPaths(job, inputPath);
+
+    job.setMapOutputKeyClass(NullWritable.class);
+    job.setMapOutputValueClass(BloomFilterWritable.class);
+    job.setMapperClass(URLMap.class);
+
+    LOG.info("ClueExtractLinks:URLFilter");
+    LOG.info(" - input path: " + inputPath);
+    LOG.info(" - filter path: " + filterPath);
+
+    BloomFilterJoin.runJob(job, filterPath);
+  }
+
   public int runTool() throws Exception {
 
     JobConf conf = new JobConf(getConf(), ClueExtractLinks.class);
@@ -322,6 +425,7 @@ public class ClueExtractLinks extends PowerTool {
           + " doesn't exist!");
 
     DistributedCache.addCacheFile(new URI(mappingFile), conf);
+    boolean filtered = BloomFilterJoin.addCacheFile(conf);
 
     conf.setJobName("ClueExtractLinks");
     conf.set("mapred.child.java.opts", "-Xmx2048m");
@@ -352,6 +456,7 @@ public class ClueExtractLinks extends PowerTool {
     LOG.info(" - output path: " + outputPath);
     LOG.info(" - mapping file: " + mappingFile);
     LOG.info(" - include internal links? " + conf.getBoolean("Cloud9.IncludeInternalLinks", false));
+    LOG.info(" - URL filter: " + (filtered ? conf.get(BloomFilterJoin.PATH_PROPERTY) : "none"));
 
     if (!fs.exists(new Path(outputPath))) {
       JobClient.runJob(conf);
@@ -1,12 +1,14 @@
 package edu.umd.cloud9.webgraph;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 
 import edu.umd.cloud9.collection.DocnoMapping;
 import edu.umd.cloud9.collection.trecweb.TrecWebDocumentInputFormat;
+import edu.umd.cloud9.collection.trecweb.TrecWebDocumentInputFormatOld;
 
 public class CollectionConfigurationManager {
   public static final String[] supported = { "trecweb", "gov2", "wt10g" };
@@ -92,6 +94,25 @@ public class CollectionConfigurationManager {
     }
   }
 
+  // for jobs in the old API, e.g., the pre-pass of a Bloom filter join; a user-specified
+  // InputFormat is in the new API, so it can't be used there
+  public void applyJobConfig(JobConf job) throws Exception {
+    if (userSpecifiedInputFormat) {
+      throw new Exception("InputFormat " + userSpecifiedInputFormatClass.getName()
+          + " can't be used in the old API");
+    }
+
+    switch (tgtConf) {
+    case 0:
+    case 1:
+    case 2:
+      job.setInputFormat(TrecWebDocumentInputFormatOld.class);
+      break;
+    default:
+      throw new Exception("InputFormat class not specified");
+    }
+  }
+
   public void applyConfig(Configuration conf) throws Exception {
     if (userSpecifiedDocnoMapping) {
       conf.set("Cloud9.DocnoMappingClass", userSpecifiedDocnoMappingClass);
@@ -17,8 +17,9 @@
 package edu.umd.cloud9.webgraph;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -91,6 +92,175 @@ public class ComputeWeight extends PowerTool {
 		}
 	}
 	
+	/**
+	 * Inverted index from source docno to the lines of external in-link anchor text of a single
+	 * target document that the source appears in. Lines that are equal regardless of their sources
+	 * (i.e., packets of the same line of anchor text) are treated as one group. The index is built once
+	 * per document, and the sources of each host are then looked up in it, rather than intersecting
+	 * every host with every line of anchor text.
+	 */
+	static class InLinkIndex {
+		private List<AnchorText> lines;
+		
+		//external in-link groups: lines [groupStart[g], groupEnd[g]) of the list
+		private int groupCount;
+		private int[] groupStart = new int[16];
+		private int[] groupEnd = new int[16];
+		private boolean everyGroupIntersects;
+		
+		//sources in increasing order; the groups of sources[k] are groups[offsets[k] .. offsets[k+1])
+		private int sourceCount;
+		private int[] sources = new int[16];
+		private int[] offsets = new int[17];
+		private int[] groups = new int[16];
+		private long[] pairs = new long[16];
+		
+		//groups hit by the current host; stamp[g] == currentStamp marks a hit
+		private int hitCount;
+		private int[] hits = new int[16];
+		private int[] stamp = new int[16];
+		private int currentStamp = 1;
+		
+		/**
+		 * Indexes the lines of anchor text of a document. Lines are expected in sorted order, so that
+		 * packets of the same line are adjacent.
+		 */
+		public void index(List<AnchorText> lines) {
+			this.lines = lines;
+			groupCount = 0;
+			hitCount = 0;
+			
+			int linkCounter = 0;
+			int pairCount = 0;
+			for(int i = 0; i < lines.size(); i++) {
+				AnchorText line = lines.get(i);
+				boolean sameGroup = i > 0 && line.equalsIgnoreSources(lines.get(i - 1));
+				
+				if(!line.isExternalInLink())
+					continue;
+				
+				if(sameGroup) {
+					groupEnd[groupCount - 1] = i + 1;
+				} else {
+					//the first line isn't counted here, which is how the weights have always been computed
+					if(i > 0)
+						linkCounter++;
+					newGroup(i);
+				}
+				
+				int[] docs = line.getDocuments();
+				if(pairCount + docs.length > pairs.length)
+					pairs = Arrays.copyOf(pairs, Math.max(pairCount + docs.length, 2 * pairs.length));
+				for(int doc : docs) {
+					pairs[pairCount++] = ((long) doc << 32) | (groupCount - 1);
+				}
+			}
+			
+			//if there is only one line of anchor text, then definitely it intersects
+			//with any host map associated with this object
+			everyGroupIntersects = linkCounter == 1;
+			
+			if(stamp.length < groupCount) {
+				stamp = new int[groupStart.length];
+				hits = new int[groupStart.length];
+				currentStamp = 1;
+			}
+			
+			buildIndex(pairCount);
+		}
+		
+		private void newGroup(int start) {
+			if(groupCount == groupStart.length) {
+				groupStart = Arrays.copyOf(groupStart, 2 * groupCount);
+				groupEnd = Arrays.copyOf(groupEnd, 2 * groupCount);
+			}
+			groupStart[groupCount] = start;
+			groupEnd[groupCount] = start + 1;
+			groupCount++;
+		}
+		
+		private void buildIndex(int pairCount) {
+			//(source, group) pairs sort by source first; groups are never negative
+			Arrays.sort(pairs, 0, pairCount);
+			
+			if(sources.length < pairCount) {
+				sources = new int[pairCount];
+				groups = new int[pairCount];
+				offsets = new int[pairCount + 1];
+			}
+			
+			sourceCount = 0;
+			int groupTotal = 0;
+			for(int k = 0; k < pairCount; k++) {
+				if(k > 0 && pairs[k] == pairs[k - 1])
+					continue;
+				
+				int source = (int) (pairs[k] >> 32);
+				if(sourceCount == 0 || sources[sourceCount - 1] != source) {
+					sources[sourceCount] = source;
+					offsets[sourceCount] = groupTotal;
+					sourceCount++;
+				}
+				groups[groupTotal++] = (int) pairs[k];
+			}
+			offsets[sourceCount] = groupTotal;
+		}
+		
+		/**
+		 * Marks the groups of lines that share a source with a packet of the current host.
+		 */
+		public void addHostSources(AnchorText host) {
+			if(everyGroupIntersects) {
+				for(int g = 0; g < groupCount; g++) {
+					hit(g);
+				}
+				return;
+			}
+			
+			if(!host.hasValidDocumentList())
+				return;
+			
+			for(int source : host.getDocuments()) {
+				int k = Arrays.binarySearch(sources, 0, sourceCount, source);
+				if(k < 0)
+					continue;
+				
+				for(int j = offsets[k]; j < offsets[k + 1]; j++) {
+					hit(groups[j]);
+				}
+			}
+		}
+		
+		private void hit(int g) {
+			if(stamp[g] == currentStamp)
+				return;
+			stamp[g] = currentStamp;
+			hits[hitCount++] = g;
+		}
+		
+		/**
+		 * Splits a unit of weight evenly among the groups of lines marked for the current host, and
+		 * starts a new host.
+		 */
+		public void finishHost() {
+			if(hitCount > 0) {
+				float share = 1.0f / hitCount;
+				for(int h = 0; h < hitCount; h++) {
+					int g = hits[h];
+					for(int i = groupStart[g]; i < groupEnd[g]; i++) {
+						lines.get(i).setWeight(lines.get(i).getWeight() + share);
+					}
+				}
+			}
+			
+			hitCount = 0;
+			if(++currentStamp == 0) {
+				Arrays.fill(stamp, 0);
+				currentStamp = 1;
+			}
+		}
+	}
+	
 	public static class Reduce extends MapReduceBase implements 
 	Reducer<PairOfInts, ArrayListWritable<AnchorText>, IntWritable, ArrayListWritable<AnchorText>> {
 			
@@ -102,12 +272,10 @@ public class ComputeWeight extends PowerTool {
 		
 		private static ArrayListWritable<AnchorText> packet;
 		
-		private static int currentDocument, linkCounter;
+		private static int currentDocument;
 		private static boolean firstTime = true;
 		private static String lastHost;
-		private static HashSet<Integer> intersects = new HashSet<Integer>();
-		
-		private static int[] simMap;
+		private static final InLinkIndex index = new InLinkIndex();
 		
 		public void reduce(PairOfInts key, Iterator<ArrayListWritable<AnchorText>> values,
 				OutputCollector<IntWritable, ArrayListWritable<AnchorText>> output, Reporter reporter) throws IOException {
@@ -137,71 +305,26 @@ public class ComputeWeight extends PowerTool {
 				
 			} else {
 				
-				//in case there are multiple packets for each line of anchor text, 
-				//we build a table that maps each packet to a number. If two packets 
-				//have the same anchor text, their numbers will be equal.
-				linkCounter = 0;
-				simMap = new int[arrayList.size()];
-				for(int i = 1; i < arrayList.size(); i++) {
-					if(arrayList.get(i).equalsIgnoreSources(arrayList.get(i - 1))) {
-						simMap[i] = simMap[i-1];
-					} else {
-						simMap[i] = i;
-						
-						if(arrayList.get(i).isExternalInLink())
-							linkCounter++;
-					}
-				}
+				//index the external in-links once, then stream the host map against the index.
+				//in case there are multiple packets for each line of anchor text, the index
+				//treats packets with the same anchor text as one line.
+				index.index(arrayList);
 				lastHost = "";
-				intersects.clear();
 				
 				while(values.hasNext()) {
 					packet = values.next();
 					
 					for(AnchorText data : packet) {	//should run only once (refer to the mapper class)
 						
-						if(!data.getText().equals(lastHost)) {
-							
-							if(intersects.size() > 0) {
-								for(int i = 0; i < simMap.length; i++) {
-									if(intersects.contains(simMap[i])) {
-										arrayList.get(i).setWeight(arrayList.get(i).getWeight() + (1.0f / intersects.size()));
-									}
-								}
-							}
-							
-							intersects.clear();
-						}
+						if(!data.getText().equals(lastHost))
+							index.finishHost();
 						
 						lastHost = data.getText();
-						
-						for(int i = 0; i < arrayList.size(); i++) {
-							if(!arrayList.get(i).isExternalInLink())
-								continue;
-							
-							if(intersects.contains(simMap[i]))
-								continue;
-						
-							//if there is only one line of anchor text, then definitely it intersects 
-							//with any host map associated with this object
-							if(linkCounter == 1) {
-								intersects.add(simMap[i]);
-							} else if(data.intersects(arrayList.get(i))) {
-								intersects.add(simMap[i]);
-							}
-						}
-					}
-				}
-				
-				if(intersects.size() > 0) {
-					for(int i = 0; i < simMap.length; i++) {
-						if(intersects.contains(simMap[i])) {
-							arrayList.get(i).setWeight(arrayList.get(i).getWeight() + (1.0f / intersects.size()));
-						}
+						index.addHostSources(data);
 					}
 				}
 				
-				intersects.clear();
+				index.finishHost();
 			}
 		}
 		
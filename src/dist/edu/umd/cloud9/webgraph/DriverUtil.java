@@ -19,6 +19,10 @@ public class DriverUtil {
   // /base/path/weightedReverseWebGraph
   public static final String OUTPUT_WEGIHTED_REVERSE_WEBGRAPH = "weightedReverseWebGraph";
 
+  // Bloom filter of the URLs of the collection is stored at
+  // /base/path/urlFilter
+  public static final String OUTPUT_URL_FILTER = "urlFilter";
+
   /**
    * Default number of reducers
    */
@@ -37,6 +41,7 @@ public class DriverUtil {
   public static final String CL_DOCNO_MAPPING = "-docno";
   public static final String CL_MAX_LENGTH = "-maxLength";
   public static final String CL_NUMBER_OF_REDUCERS = "-numReducers";
+  public static final String CL_BLOOM_FILTER = "-bloomFilter";
 
   public static String argValue(String[] args, String option) throws IllegalArgumentException {
     for(int i = 0; i < args.length - 1; i++) {
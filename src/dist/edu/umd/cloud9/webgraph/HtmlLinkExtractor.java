@@ -0,0 +1,534 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.webgraph;
+
+import java.util.HashMap;
+
+import edu.umd.cloud9.webgraph.normalizer.URLCanonicalizer;
+
+/**
+ * <p>
+ * Extracts links and their anchor text from HTML in a single pass over the raw (UTF-8) bytes of a
+ * document, without building a DOM. The scanner only looks for <code>&lt;a&gt;</code> and
+ * <code>&lt;base&gt;</code> tags and their <code>href</code> attributes; comments and the contents
+ * of <code>&lt;script&gt;</code> and <code>&lt;style&gt;</code> elements are skipped. Anchor text is
+ * the text between an <code>&lt;a&gt;</code> tag and the matching <code>&lt;/a&gt;</code> (or the
+ * next <code>&lt;a&gt;</code>), with nested tags removed. Links are resolved against the first
+ * <code>&lt;base href&gt;</code> of the document if there is one, and against the document URL
+ * otherwise.
+ * </p>
+ *
+ * <p>
+ * Links and anchor text come out the way htmlparser's <code>LinkTag</code> gave them to the link
+ * extraction tools: character references are decoded in <code>href</code> values but not in anchor
+ * text, white space in anchor text is kept as is, and schemes are lower-cased. The differences are
+ * that links without a host (<code>mailto:</code>, <code>javascript:</code>, and
+ * <code>&lt;a&gt;</code> tags with an empty or no <code>href</code>) are skipped rather than returned
+ * for the caller to drop, that <code>&lt;base href&gt;</code> is honored, and that URLs containing
+ * unescaped illegal characters (e.g., spaces) keep their host.
+ * </p>
+ *
+ * <p>
+ * An extractor is meant to be reused from one document to the next:
+ * </p>
+ *
+ * <pre>
+ * extractor.reset(bytes, start, end, url);
+ * while (extractor.next()) {
+ *   String link = extractor.getURL();
+ *   String anchor = extractor.getAnchorText();
+ *   ...
+ * }
+ * </pre>
+ */
+public class HtmlLinkExtractor {
+  private static final int OTHER = 0;
+  private static final int ANCHOR_START = 1;
+  private static final int ANCHOR_END = 2;
+  private static final int BASE = 3;
+  private static final int NOT_A_TAG = 4;
+
+  private static final HashMap<String, Character> ENTITIES = new HashMap<String, Character>();
+
+  static {
+    ENTITIES.put("amp", '&');
+    ENTITIES.put("lt", '<');
+    ENTITIES.put("gt", '>');
+    ENTITIES.put("quot", '"');
+    ENTITIES.put("apos", '\'');
+    ENTITIES.put("nbsp", ' ');
+    ENTITIES.put("copy", '\u00a9');
+    ENTITIES.put("reg", '\u00ae');
+    ENTITIES.put("trade", '\u2122');
+    ENTITIES.put("ndash", '\u2013');
+    ENTITIES.put("mdash", '\u2014');
+    ENTITIES.put("lsquo", '\u2018');
+    ENTITIES.put("rsquo", '\u2019');
+    ENTITIES.put("ldquo", '\u201c');
+    ENTITIES.put("rdquo", '\u201d');
+    ENTITIES.put("laquo", '\u00ab');
+    ENTITIES.put("raquo", '\u00bb');
+    ENTITIES.put("middot", '\u00b7');
+    ENTITIES.put("bull", '\u2022');
+    ENTITIES.put("hellip", '\u2026');
+  }
+
+  private byte[] html;
+  private int pos;
+  private int end;
+
+  private String documentURL;
+  private String baseURL;
+  private boolean baseSeen;
+
+  // value of the href attribute of the last <a> or <base> tag scanned, if any
+  private int hrefStart;
+  private int hrefEnd;
+
+  private String url;
+  private final StringBuilder anchor = new StringBuilder();
+  private final StringBuilder value = new StringBuilder();
+
+  /**
+   * Starts extracting links from a new document.
+   *
+   * @param html raw bytes of the document, in UTF-8
+   * @param start offset of the first byte of HTML
+   * @param end offset one past the last byte of HTML
+   * @param url absolute URL of the document, used for resolving relative links
+   */
+  public void reset(byte[] html, int start, int end, String url) {
+    this.html = html;
+    this.pos = start;
+    this.end = end;
+    this.documentURL = url;
+    this.baseURL = url;
+    this.baseSeen = false;
+    this.url = null;
+    anchor.setLength(0);
+  }
+
+  /**
+   * Advances to the next link whose target can be resolved to a URL with a host.
+   *
+   * @return <code>false</code> if there are no more links in the document
+   */
+  public boolean next() {
+    while (pos < end) {
+      int lt = indexOf('<', pos);
+      if (lt < 0) {
+        pos = end;
+        break;
+      }
+
+      int type = scanTag(lt);
+      if (type == BASE) {
+        setBase();
+      } else if (type == ANCHOR_START && hrefEnd > hrefStart) {
+        String href = decodeValue(hrefStart, hrefEnd);
+        readAnchorText();
+
+        url = URLCanonicalizer.resolve(baseURL, href);
+        if (url != null) {
+          return true;
+        }
+      }
+    }
+
+    url = null;
+    anchor.setLength(0);
+    return false;
+  }
+
+  /**
+   * @return the absolute URL of the current link, with dot segments removed (see
+   *         {@link URLCanonicalizer#resolve(String, String)})
+   */
+  public String getURL() {
+    return url;
+  }
+
+  /**
+   * @return the anchor text of the current link
+   */
+  public String getAnchorText() {
+    return anchor.toString();
+  }
+
+  private void setBase() {
+    if (baseSeen || hrefStart < 0) {
+      return;
+    }
+
+    baseSeen = true;
+    String resolved = URLCanonicalizer.resolve(documentURL, decodeValue(hrefStart, hrefEnd));
+    if (resolved != null) {
+      baseURL = resolved;
+    }
+  }
+
+  // collects the text up to the end of the current link
+  private void readAnchorText() {
+    anchor.setLength(0);
+
+    while (pos < end) {
+      int lt = indexOf('<', pos);
+      if (lt < 0) {
+        decode(pos, end, anchor, false);
+        pos = end;
+        return;
+      }
+
+      decode(pos, lt, anchor, false);
+      int type = scanTag(lt);
+      if (type == ANCHOR_END) {
+        return;
+      } else if (type == ANCHOR_START) {
+        // an unclosed link ends where the next one starts; scan that tag again on the next call
+        pos = lt;
+        return;
+      } else if (type == BASE) {
+        setBase();
+      } else if (type == NOT_A_TAG) {
+        anchor.append('<');
+      }
+    }
+  }
+
+  // scans the markup that starts at the given '<', and moves past it
+  private int scanTag(int lt) {
+    int p = lt + 1;
+    if (p >= end) {
+      pos = end;
+      return NOT_A_TAG;
+    }
+
+    byte c = html[p];
+    if (c == '!') {
+      if (matches(p + 1, "--")) {
+        int close = indexOf("-->", p + 3);
+        pos = close < 0 ? end : close + 3;
+      } else {
+        pos = skipTo('>', p) + 1;
+      }
+      return OTHER;
+    }
+
+    if (c == '?') {
+      pos = skipTo('>', p) + 1;
+      return OTHER;
+    }
+
+    if (c == '/') {
+      int nameStart = p + 1;
+      int nameEnd = skipName(nameStart);
+      pos = skipTo('>', nameEnd) + 1;
+      return nameEnd > nameStart && equalsIgnoreCase(nameStart, nameEnd, "a") ? ANCHOR_END : OTHER;
+    }
+
+    if (!isLetter(c)) {
+      pos = p;
+      return NOT_A_TAG;
+    }
+
+    int nameEnd = skipName(p);
+    pos = scanAttributes(nameEnd);
+
+    if (equalsIgnoreCase(p, nameEnd, "a")) {
+      return ANCHOR_START;
+    }
+    if (equalsIgnoreCase(p, nameEnd, "base")) {
+      return BASE;
+    }
+    if (equalsIgnoreCase(p, nameEnd, "script")) {
+      pos = skipElement("</script");
+    } else if (equalsIgnoreCase(p, nameEnd, "style")) {
+      pos = skipElement("</style");
+    }
+    return OTHER;
+  }
+
+  // scans the attributes of a tag, noting where the value of its href attribute is, and returns
+  // the offset just past the end of the tag
+  private int scanAttributes(int p) {
+    hrefStart = -1;
+    hrefEnd = -1;
+
+    while (p < end) {
+      byte c = html[p];
+      if (c == '>') {
+        return p + 1;
+      }
+      if (isSpace(c) || c == '/' || c == '=' || c == '"' || c == '\'') {
+        p++;
+        continue;
+      }
+
+      int nameStart = p;
+      while (p < end && !isSpace(html[p]) && html[p] != '=' && html[p] != '>') {
+        p++;
+      }
+      int nameEnd = p;
+
+      p = skipSpaces(p);
+      if (p >= end || html[p] != '=') {
+        continue;
+      }
+      p = skipSpaces(p + 1);
+      if (p >= end) {
+        break;
+      }
+
+      int valueStart, valueEnd;
+      if (html[p] == '"' || html[p] == '\'') {
+        valueStart = p + 1;
+        valueEnd = indexOf(html[p], valueStart);
+        if (valueEnd < 0) {
+          valueEnd = end;
+        }
+        p = Math.min(end, valueEnd + 1);
+      } else {
+        valueStart = p;
+        while (p < end && !isSpace(html[p]) && html[p] != '>') {
+          p++;
+        }
+        valueEnd = p;
+      }
+
+      if (hrefStart < 0 && equalsIgnoreCase(nameStart, nameEnd, "href")) {
+        hrefStart = valueStart;
+        hrefEnd = valueEnd;
+      }
+    }
+
+    // a tag cut off at the end of the document is ignored
+    hrefStart = -1;
+    hrefEnd = -1;
+    return end;
+  }
+
+  // returns the offset of the end tag of a script or style element
+  private int skipElement(String endTag) {
+    int p = pos;
+    while (p < end) {
+      int lt = indexOf('<', p);
+      if (lt < 0) {
+        return end;
+      }
+      if (matchesIgnoreCase(lt, endTag)) {
+        return lt;
+      }
+      p = lt + 1;
+    }
+    return end;
+  }
+
+  // decodes an attribute value; tabs and newlines are dropped, as browsers do for URLs
+  private String decodeValue(int from, int to) {
+    value.setLength(0);
+    decode(from, to, value, true);
+
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c != '\t' && c != '\n' && c != '\r') {
+        value.setCharAt(length++, c);
+      }
+    }
+    value.setLength(length);
+
+    return value.toString().trim();
+  }
+
+  // decodes UTF-8 bytes and, optionally, character references
+  private void decode(int from, int to, StringBuilder sb, boolean references) {
+    int p = from;
+    while (p < to) {
+      int b = html[p] & 0xff;
+
+      if (b == '&' && references) {
+        p = decodeReference(p, to, sb);
+        continue;
+      }
+
+      if (b < 0x80) {
+        sb.append((char) b);
+        p++;
+        continue;
+      }
+
+      int length = b < 0xc2 ? 0 : b < 0xe0 ? 2 : b < 0xf0 ? 3 : b < 0xf5 ? 4 : 0;
+      if (length == 0 || p + length > to) {
+        sb.append('\ufffd');
+        p++;
+        continue;
+      }
+
+      int cp = b & (0x7f >> length);
+      int k = 1;
+      for (; k < length; k++) {
+        int cont = html[p + k] & 0xff;
+        if ((cont & 0xc0) != 0x80) {
+          break;
+        }
+        cp = (cp << 6) | (cont & 0x3f);
+      }
+
+      if (k < length) {
+        sb.append('\ufffd');
+        p++;
+      } else {
+        sb.appendCodePoint(cp);
+        p += length;
+      }
+    }
+  }
+
+  // decodes the character reference at the given '&', if it is one, and returns the offset past it
+  private int decodeReference(int amp, int to, StringBuilder sb) {
+    int semi = -1;
+    for (int i = amp + 1; i < to && i < amp + 10; i++) {
+      if (html[i] == ';') {
+        semi = i;
+        break;
+      }
+    }
+
+    if (semi > amp + 1) {
+      int cp = -1;
+      if (html[amp + 1] == '#') {
+        cp = parseNumber(amp + 2, semi);
+      } else {
+        Character c = ENTITIES.get(new String(html, amp + 1, semi - amp - 1));
+        if (c != null) {
+          cp = c;
+        }
+      }
+
+      if (cp > 0 && cp <= Character.MAX_CODE_POINT) {
+        sb.appendCodePoint(cp);
+        return semi + 1;
+      }
+    }
+
+    sb.append('&');
+    return amp + 1;
+  }
+
+  private int parseNumber(int from, int to) {
+    int radix = 10;
+    if (from < to && (html[from] == 'x' || html[from] == 'X')) {
+      radix = 16;
+      from++;
+    }
+    if (from >= to) {
+      return -1;
+    }
+
+    int n = 0;
+    for (int i = from; i < to; i++) {
+      int d = Character.digit((char) html[i], radix);
+      if (d < 0) {
+        return -1;
+      }
+      n = n * radix + d;
+      if (n > Character.MAX_CODE_POINT) {
+        return -1;
+      }
+    }
+    return n;
+  }
+
+  private int indexOf(int b, int from) {
+    for (int i = from; i < end; i++) {
+      if (html[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int indexOf(String s, int from) {
+    int first = s.charAt(0);
+    for (int i = indexOf(first, from); i >= 0; i = indexOf(first, i + 1)) {
+      if (matches(i, s)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int skipTo(int b, int from) {
+    int i = indexOf(b, from);
+    return i < 0 ? end - 1 : i;
+  }
+
+  private int skipName(int p) {
+    while (p < end && (isLetter(html[p]) || (html[p] >= '0' && html[p] <= '9'))) {
+      p++;
+    }
+    return p;
+  }
+
+  private int skipSpaces(int p) {
+    while (p < end && isSpace(html[p])) {
+      p++;
+    }
+    return p;
+  }
+
+  private boolean matches(int p, String s) {
+    if (p + s.length() > end) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (html[p + i] != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // s must be in lower case
+  private boolean matchesIgnoreCase(int p, String s) {
+    if (p + s.length() > end) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      int c = html[p + i];
+      if (c >= 'A' && c <= 'Z') {
+        c += 'a' - 'A';
+      }
+      if (c != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean equalsIgnoreCase(int start, int end, String s) {
+    return end - start == s.length() && matchesIgnoreCase(start, s);
+  }
+
+  private static boolean isLetter(byte c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  private static boolean isSpace(byte c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+  }
+}
@@ -26,9 +26,12 @@ import org.apache.hadoop.filecache.DistributedCache;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
@@ -46,13 +49,22 @@ import org.htmlparser.util.ParserException;
 
 import edu.umd.cloud9.collection.DocnoMapping;
 import edu.umd.cloud9.collection.WebDocument;
+import edu.umd.cloud9.io.BloomFilterWritable;
 import edu.umd.cloud9.io.array.ArrayListWritable;
+import edu.umd.cloud9.mapred.BloomFilterJoin;
 import edu.umd.cloud9.util.PowerTool;
 import edu.umd.cloud9.webgraph.data.AnchorText;
+import edu.umd.cloud9.webgraph.data.AnchorTextAggregator;
 import edu.umd.cloud9.webgraph.data.AnchorTextConstants;
 import edu.umd.cloud9.webgraph.normalizer.AnchorTextNormalizer;
+import edu.umd.cloud9.webgraph.normalizer.URLCanonicalizer;
 
 /**
+ * Extracts the links of a TREC web collection, keyed by the URL of their
+ * target. If <code>Cloud9.BloomFilter.Path</code> is set to a filter built by
+ * {@link #buildURLFilter}, links to URLs outside the collection, which
+ * {@link BuildReverseWebGraph} would discard, are dropped instead of being
+ * shuffled.
  * 
  * @author Nima Asadi
  * @author Fangyue Wang
@@ -65,6 +77,34 @@ public class TrecExtractLinks extends PowerTool
   private static final Logger LOG = Logger
       .getLogger(TrecExtractLinks.class);
 
+  /**
+   * Mapper of the pre-pass building the Bloom filter of the URLs of the
+   * collection.
+   */
+  public static class URLMap extends
+      BloomFilterJoin.KeyMapper<LongWritable, WebDocument>
+  {
+    private boolean useHtmlParser;
+
+    @Override
+    public void configure(JobConf job)
+    {
+      super.configure(job);
+      useHtmlParser = job.getBoolean("Cloud9.UseHtmlParser", false);
+    }
+
+    @Override
+    protected void addKeys(LongWritable key, WebDocument doc,
+        BloomFilterWritable filter)
+    {
+      String url = Map.getBaseURL(doc, useHtmlParser);
+      if (url != null)
+      {
+        filter.add(url);
+      }
+    }
+  }
+
   public static class Map
       extends
       Mapper<LongWritable, WebDocument, Text, ArrayListWritable<AnchorText>>
@@ -98,10 +138,19 @@ public class TrecExtractLinks extends PowerTool
         LinkTag.class);
     private static NodeList list;
 
+    // links are extracted by HtmlLinkExtractor, unless the htmlparser is
+    // turned on with Cloud9.UseHtmlParser
+    private static final HtmlLinkExtractor extractor = new HtmlLinkExtractor();
+    private static final Text content = new Text();
+    private static boolean useHtmlParser;
+
     private static boolean includeInternalLinks;
 
     private static AnchorTextNormalizer normalizer;
 
+    private static final DataOutputBuffer buffer = new DataOutputBuffer();
+    private static BloomFilterWritable urlFilter;
+
     @Override
     public void setup(
         Mapper<LongWritable, WebDocument, Text, ArrayListWritable<AnchorText>>.Context context)
@@ -160,6 +209,7 @@ public class TrecExtractLinks extends PowerTool
 
       includeInternalLinks = conf.getBoolean(
           "Cloud9.IncludeInternalLinks", false);
+      useHtmlParser = conf.getBoolean("Cloud9.UseHtmlParser", false);
 
       try
       {
@@ -172,6 +222,8 @@ public class TrecExtractLinks extends PowerTool
         throw new RuntimeException(
             "Error initializing AnchorTextNormalizer");
       }
+
+      urlFilter = BloomFilterJoin.loadFilter(conf);
     }
 
     @Override
@@ -194,19 +246,8 @@ public class TrecExtractLinks extends PowerTool
         return;
       }
 
-      try
-      {
-        String url = doc.getURL().split("\n")[0];
-        LOG.info("URI: " + url);
-        base = normalizeURL(url);
-      }
-      catch (Exception e)
-      {
-        // Discard documents with which there is no URL associated
-        context.getCounter(LinkCounter.INVALID_URL).increment(1);
-        return;
-      }
-
+      // Discard documents with which there is no URL associated
+      base = getBaseURL(doc, useHtmlParser);
       if (base == null)
       {
         context.getCounter(LinkCounter.INVALID_URL).increment(1);
@@ -224,22 +265,55 @@ public class TrecExtractLinks extends PowerTool
       // processed
       context.getCounter(LinkCounter.OUTPUT_DOCS).increment(1);
 
-      try
-      {
-        baseHost = new URI(base).getHost();
-      }
-      catch (Exception e)
+      baseHost = getHost(base);
+      if (baseHost == null)
       {
         context.getCounter(LinkCounter.INVALID_URL).increment(1);
         return;
       }
 
-      if (baseHost == null)
+      if (useHtmlParser)
       {
-        context.getCounter(LinkCounter.INVALID_URL).increment(1);
+        extractLinksWithParser(doc, context);
         return;
       }
 
+      content.set(doc.getContent());
+      extractor.reset(content.getBytes(), 0, content.getLength(), base);
+      while (extractor.next())
+      {
+        emitLink(extractor.getAnchorText(),
+            URLCanonicalizer.canonicalize(extractor.getURL()), context);
+      }
+    }
+
+    // URL of a document, as the key of the record holding its docno, or null
+    // if it has none
+    static String getBaseURL(WebDocument doc, boolean useHtmlParser)
+    {
+      try
+      {
+        String url = doc.getURL();
+        int newline = url.indexOf('\n');
+        if (newline >= 0)
+        {
+          url = url.substring(0, newline);
+        }
+        LOG.info("URI: " + url);
+        return useHtmlParser ? normalizeURL(url) : URLCanonicalizer
+            .canonicalize(url);
+      }
+      catch (Exception e)
+      {
+        return null;
+      }
+    }
+
+    private void extractLinksWithParser(
+        WebDocument doc,
+        Mapper<LongWritable, WebDocument, Text, ArrayListWritable<AnchorText>>.Context context)
+        throws IOException, InterruptedException
+    {
       try
       {
         parser.setInputHTML(doc.getContent()); // initializing the
@@ -272,78 +346,102 @@ public class TrecExtractLinks extends PowerTool
       for (int i = 0; i < list.size(); i++)
       {
         LinkTag link = (LinkTag) list.elementAt(i);
-        String anchor = link.getLinkText();
-        String url = normalizeURL(link.extractLink());
+        emitLink(link.getLinkText(), normalizeURL(link.extractLink()), context);
+      }
+    }
 
-        if (url == null)
-        {
-          continue;
-        }
+    private void emitLink(
+        String anchor,
+        String url,
+        Mapper<LongWritable, WebDocument, Text, ArrayListWritable<AnchorText>>.Context context)
+        throws IOException, InterruptedException
+    {
+      if (url == null)
+      {
+        return;
+      }
 
-        if (url.equals(base))
-        { // discard self links
-          continue;
-        }
+      if (url.equals(base))
+      { // discard self links
+        return;
+      }
 
-        String host = null;
-        try
-        {
-          host = new URI(url).getHost();
-        }
-        catch (Exception e)
-        {
-          continue;
-        }
+      String host = getHost(url);
+      if (host == null)
+      {
+        return;
+      }
 
-        if (host == null)
-        {
-          continue;
-        }
+      if (anchor == null)
+      {
+        anchor = "";
+      }
 
-        if (anchor == null)
-        {
-          anchor = "";
-        }
+      // normalizing the anchor text
+      anchor = normalizer.process(anchor);
 
-        // normalizing the anchor text
-        anchor = normalizer.process(anchor);
+      arrayList.clear();
+      if (baseHost.equals(host))
+      {
 
-        arrayList.clear();
-        if (baseHost.equals(host))
-        {
+        if (!includeInternalLinks)
+          return;
 
-          if (!includeInternalLinks)
-            continue;
+        arrayList.add(new AnchorText(
+            AnchorTextConstants.Type.INTERNAL_IN_LINK.val,
+            anchor, docno));
 
-          arrayList.add(new AnchorText(
-              AnchorTextConstants.Type.INTERNAL_IN_LINK.val,
-              anchor, docno));
+      }
+      else
+      {
+        arrayList.add(new AnchorText(
+            AnchorTextConstants.Type.EXTERNAL_IN_LINK.val,
+            anchor, docno));
+      }
 
-        }
-        else
-        {
-          arrayList.add(new AnchorText(
-              AnchorTextConstants.Type.EXTERNAL_IN_LINK.val,
-              anchor, docno));
-        }
+      // links to URLs that aren't in the filter have no docno to be joined
+      // with
+      if (urlFilter != null && !urlFilter.mightContain(url))
+      {
+        keyWord.set(url);
+        context.getCounter(BloomFilterJoin.Counter.DROPPED).increment(1);
+        context.getCounter(BloomFilterJoin.Counter.BYTES_SAVED).increment(
+            BloomFilterJoin.getSerializedSize(buffer, keyWord, arrayList));
+        return;
+      }
 
-        try
-        {
-          keyWord.set(url);
-          context.write(keyWord, arrayList);
-        }
-        catch (UTFDataFormatException e)
-        {
-          context.getCounter(LinkCounter.TEXT_TOO_LONG).increment(1);
-
-          keyWord.set(url);
-          byte flag = arrayList.get(0).getType();
-          arrayList.clear();
-          arrayList.add(new AnchorText(flag,
-              AnchorTextConstants.EMPTY_STRING, docno));
-          context.write(keyWord, arrayList);
-        }
+      try
+      {
+        keyWord.set(url);
+        context.write(keyWord, arrayList);
+      }
+      catch (UTFDataFormatException e)
+      {
+        context.getCounter(LinkCounter.TEXT_TOO_LONG).increment(1);
+
+        keyWord.set(url);
+        byte flag = arrayList.get(0).getType();
+        arrayList.clear();
+        arrayList.add(new AnchorText(flag,
+            AnchorTextConstants.EMPTY_STRING, docno));
+        context.write(keyWord, arrayList);
+      }
+    }
+
+    private static String getHost(String url)
+    {
+      if (!useHtmlParser)
+      {
+        return URLCanonicalizer.getHost(url);
+      }
 
+      try
+      {
+        return new URI(url).getHost();
+      }
+      catch (Exception e)
+      {
+        return null;
       }
     }
 
@@ -373,7 +471,7 @@ public class TrecExtractLinks extends PowerTool
   {
 
     private static final ArrayListWritable<AnchorText> arrayList = new ArrayListWritable<AnchorText>();
-    private static boolean pushed;
+    private static final AnchorTextAggregator aggregator = new AnchorTextAggregator();
 
     @Override
     public void reduce(
@@ -384,29 +482,14 @@ public class TrecExtractLinks extends PowerTool
     {
 
       arrayList.clear();
+      aggregator.clear();
 
       for (ArrayListWritable<AnchorText> packet : values)
       {
-        for (AnchorText data : packet)
-        {
-
-          pushed = false;
-
-          for (int i = 0; i < arrayList.size(); i++)
-          {
-            if (arrayList.get(i).equalsIgnoreSources(data))
-            {
-              arrayList.get(i).addDocumentsFrom(data);
-              pushed = true;
-              break;
-            }
-          }
-
-          if (!pushed)
-            arrayList.add(data.clone());
-        }
+        aggregator.addAll(packet);
       }
 
+      aggregator.emit(arrayList);
       context.write(key, arrayList);
     }
   }
@@ -435,6 +518,37 @@ public class TrecExtractLinks extends PowerTool
     this.configer = confer;
   }
 
+  /**
+   * Runs the pre-pass building the Bloom filter of the URLs of the collection
+   * at <code>Cloud9.InputPath</code>, so that links to other URLs are dropped
+   * when <code>Cloud9.BloomFilter.Path</code> is set to the filter.
+   *
+   * @param filterPath path of the filter
+   */
+  public void buildURLFilter(Path filterPath) throws Exception
+  {
+    Configuration conf = getConf();
+    JobConf job = new JobConf(conf, TrecExtractLinks.class);
+
+    String inputPath = conf.get("Cloud9.InputPath");
+
+    job.setJobName("ExtractLinks:URLFilter");
+    job.setNumMapTasks(conf.getInt("Cloud9.Mappers", 1));
+
+    configer.applyJobConfig(job);
+    recursivelyAddInputPaths(job, inputPath);
+
+    job.setMapOutputKeyClass(NullWritable.class);
+    job.setMapOutputValueClass(BloomFilterWritable.class);
+    job.setMapperClass(URLMap.class);
+
+    LOG.info("ExtractLinks:URLFilter");
+    LOG.info(" - input path: " + inputPath);
+    LOG.info(" - filter path: " + filterPath);
+
+    BloomFilterJoin.runJob(job, filterPath);
+  }
+
   @Override
   public int runTool() throws Exception
   {
@@ -459,6 +573,7 @@ public class TrecExtractLinks extends PowerTool
     }
 
     DistributedCache.addCacheFile(new Path(mappingFile).toUri(), job.getConfiguration());
+    boolean filtered = BloomFilterJoin.addCacheFile(job.getConfiguration());
 
     job.setJobName("ExtractLinks");
     job.setNumReduceTasks(numReducers);
@@ -488,6 +603,8 @@ public class TrecExtractLinks extends PowerTool
     LOG.info(" - mapping file: " + mappingFile);
     LOG.info(" - include internal links? "
         + conf.getBoolean("Cloud9.IncludeInternalLinks", false));
+    LOG.info(" - URL filter: "
+        + (filtered ? conf.get(BloomFilterJoin.PATH_PROPERTY) : "none"));
 
     job.waitForCompletion(true);
     return 0;
@@ -518,4 +635,28 @@ public class TrecExtractLinks extends PowerTool
       }
     }
 
+   // same as above, for a job in the old API
+   public static void recursivelyAddInputPaths(JobConf job, String path) throws IOException {
+      FileSystem fs;
+      try {
+        fs = FileSystem.get(new URI(path), job);
+      } catch (URISyntaxException e) {
+        throw new RuntimeException("Error recursively adding path -- " + path);
+      }
+
+      FileStatus [] ls = fs.listStatus(new Path(path));
+      for(FileStatus status : ls) {
+        if(status.getPath().getName().startsWith("_")) {
+          continue;
+        }
+
+        if(status.isDir()) {
+          recursivelyAddInputPaths(job, status.getPath().toString());
+        }
+        else {
+          org.apache.hadoop.mapred.FileInputFormat.addInputPath(job, status.getPath());
+        }
+      }
+    }
+
 }
@@ -19,13 +19,13 @@ package edu.umd.cloud9.webgraph.data;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 
 import org.apache.hadoop.io.WritableComparable;
-
-import bak.pcj.IntIterator;
-import bak.pcj.set.IntOpenHashSet;
+import org.apache.hadoop.io.WritableUtils;
 
 
 /**
@@ -38,7 +38,15 @@ import bak.pcj.set.IntOpenHashSet;
  * 
  * <p>
  * The implemented iterator makes it possible to iterate through the source or target
- * documents for each line of anchor text.
+ * documents for each line of anchor text, in increasing order.
+ * </p>
+ * 
+ * <p>
+ * Sources (targets) are kept in a sorted array of ints and serialized as variable-length 
+ * gaps. Deserialization does not decode the list: that only happens when the list is 
+ * first accessed, so consumers that only look at the text or the weight never pay for it, 
+ * and an unmodified object is written back out without re-encoding. Lists serialized in the 
+ * older format (a count followed by raw ints in arbitrary order) are still readable.
  * </p>
  * 
  * @author Nima Asadi
@@ -52,7 +60,21 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 	
 	private String text;	//holds the text for a line of anchor text
 	
-	private IntOpenHashSet documentList;	//sources (or targets in case the underlying link is an outgoing one)
+	//sources (or targets in case the underlying link is an outgoing one), sorted and without duplicates
+	//once normalized; documents added since the last normalization may be out of order
+	private int[] documents = EMPTY_DOCUMENTS;
+	private int documentCount;
+	private boolean sorted = true;
+	
+	//gap-encoded form of the list as read by readFields, valid until the list is modified
+	private byte[] encoded = EMPTY_BYTES;
+	private int encodedLength;
+	private int encodedCount;
+	private boolean decoded = true;
+	private boolean encodedValid = false;
+	
+	private static final int[] EMPTY_DOCUMENTS = new int[0];
+	private static final byte[] EMPTY_BYTES = new byte[0];
 	
 	private float weight;	//weight for a line of anchor text, if defined
 	
@@ -61,7 +83,6 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 	 * Creates an empty Internal Incoming Link AnchorText object
 	 */
 	public AnchorText() {
-		documentList = new IntOpenHashSet();
 		resetToType(Type.INTERNAL_IN_LINK.val);
 	}
 	
@@ -115,8 +136,22 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 		
 		if(hasValidDocumentList()) {
 			int size = in.readInt();
-			for(int i = 0; i < size; i++) {
-				this.documentList.add(in.readInt());
+			if(size >= 0) {
+				//older format: raw ints, in no particular order
+				ensureCapacity(size);
+				for(int i = 0; i < size; i++) {
+					documents[i] = in.readInt();
+				}
+				documentCount = size;
+				sorted = false;
+			} else {
+				encodedCount = -size;
+				encodedLength = WritableUtils.readVInt(in);
+				if(encoded.length < encodedLength)
+					encoded = new byte[encodedLength];
+				in.readFully(encoded, 0, encodedLength);
+				decoded = false;
+				encodedValid = true;
 			}
 		} 
 		
@@ -137,10 +172,15 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 			out.writeUTF(text);
 		
 		if(hasValidDocumentList()) {
-			out.writeInt(documentList.size());
-			IntIterator iterator = documentList.iterator();
-			while(iterator.hasNext()) {
-				out.writeInt(iterator.next());
+			if(getSize() == 0) {
+				out.writeInt(0);
+			} else {
+				if(!encodedValid)
+					encode();
+				
+				out.writeInt(-encodedCount);
+				WritableUtils.writeVInt(out, encodedLength);
+				out.write(encoded, 0, encodedLength);
 			}
 		}
 		
@@ -170,7 +210,10 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 			this.text = null;
 		
 		weight = 0;
-		documentList.clear();
+		documentCount = 0;
+		sorted = true;
+		decoded = true;
+		encodedValid = false;
 	}
 	
 	
@@ -217,17 +260,23 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 	 * @return the cardinality of the set of sources/targets
 	 */
 	public int getSize() {
-		return documentList.size();
+		if(!decoded)
+			return encodedCount;
+		
+		normalize();
+		return documentCount;
 	}
 	
 	/**
 	 * Returns a list of all the sources/targets
 	 * 
 	 * @return
-	 * 			An array of ints that contains all the sources/targets of the current object
+	 * 			An array of ints that contains all the sources/targets of the current object, 
+	 * 			in increasing order
 	 */
 	public int[] getDocuments() {
-		return documentList.toArray();
+		normalize();
+		return Arrays.copyOf(documents, documentCount);
 	}
 	
 	/**
@@ -239,8 +288,13 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 	public void addDocument(int docno) {
 		if(!hasValidDocumentList())
 			return;
-			
-		documentList.add(docno);
+		
+		decode();
+		ensureCapacity(documentCount + 1);
+		if(documentCount > 0 && docno <= documents[documentCount - 1])
+			sorted = false;
+		documents[documentCount++] = docno;
+		encodedValid = false;
 	}
 	
 	/**
@@ -250,13 +304,45 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 	 * 			The other AnchorText object from which the sources/targets are to be copied.
 	 */
 	public void addDocumentsFrom(AnchorText other) {
-		if(!hasValidDocumentList())
+		if(!hasValidDocumentList() || !other.hasValidDocumentList() || other.getSize() == 0)
 			return;
 		
-		IntIterator iterator = other.documentList.iterator();
-		while(iterator.hasNext()) {
-			addDocument(iterator.next());
+		normalize();
+		other.normalize();
+		
+		if(documentCount == 0) {
+			ensureCapacity(other.documentCount);
+			System.arraycopy(other.documents, 0, documents, 0, other.documentCount);
+			documentCount = other.documentCount;
+			encodedValid = false;
+			return;
+		}
+		
+		//linear merge of the two sorted lists
+		int[] a = documents, b = other.documents;
+		int n = documentCount, m = other.documentCount;
+		int[] merged = new int[n + m];
+		int i = 0, j = 0, k = 0;
+		while(i < n && j < m) {
+			if(a[i] < b[j]) {
+				merged[k++] = a[i++];
+			} else if(a[i] > b[j]) {
+				merged[k++] = b[j++];
+			} else {
+				merged[k++] = a[i++];
+				j++;
+			}
+		}
+		while(i < n) {
+			merged[k++] = a[i++];
 		}
+		while(j < m) {
+			merged[k++] = b[j++];
+		}
+		
+		documents = merged;
+		documentCount = k;
+		encodedValid = false;
 	}
 	
 	/**
@@ -271,7 +357,8 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 		if(!hasValidDocumentList())
 			return false;
 		
-		return documentList.contains(docno);
+		normalize();
+		return Arrays.binarySearch(documents, 0, documentCount, docno) >= 0;
 	}
 	
 	/**
@@ -288,20 +375,47 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 		if(!hasValidDocumentList() || !other.hasValidDocumentList())
 			return false;
 		
-		//For efficiency, iterate through the elements of the smallest set
-		if(getSize() < other.getSize()) {
-			IntIterator iterator = documentList.iterator();
-			while(iterator.hasNext()) {
-				if(other.containsDocument(iterator.next()))
-					return true;
+		normalize();
+		other.normalize();
+		
+		//For efficiency, walk through the smaller list and gallop through the larger one
+		if(documentCount <= other.documentCount)
+			return intersects(documents, documentCount, other.documents, other.documentCount);
+		
+		return intersects(other.documents, other.documentCount, documents, documentCount);
+	}
+	
+	//checks whether two sorted lists share an element; a should be the shorter of the two.
+	private static boolean intersects(int[] a, int n, int[] b, int m) {
+		if(n == 0 || m == 0 || a[n - 1] < b[0] || b[m - 1] < a[0])
+			return false;
+		
+		int lo = 0;
+		for(int i = 0; i < n && lo < m; i++) {
+			int x = a[i];
+			
+			//exponential search for the first element of b that is >= x...
+			int step = 1;
+			int hi = lo;
+			while(hi < m && b[hi] < x) {
+				lo = hi + 1;
+				hi += step;
+				step <<= 1;
 			}
-		}
-		else {
-			IntIterator iterator = other.documentList.iterator();
-			while(iterator.hasNext()) {
-				if(documentList.contains(iterator.next()))
-					return true;
+			if(hi > m - 1)
+				hi = m - 1;
+			
+			//...followed by a binary search within the last step
+			while(lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if(b[mid] < x)
+					lo = mid + 1;
+				else
+					hi = mid;
 			}
+			
+			if(lo < m && b[lo] == x)
+				return true;
 		}
 			
 		return false;
@@ -337,12 +451,13 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 		AnchorText other = (AnchorText) obj;
 		
 		if(hasValidDocumentList() && other.hasValidDocumentList()) {
-			if(documentList.size() != other.documentList.size())
+			if(getSize() != other.getSize())
 				return false;
 			
-			IntIterator iterator = documentList.iterator();
-			while(iterator.hasNext()) {
-				if(!other.containsDocument(iterator.next()))
+			normalize();
+			other.normalize();
+			for(int i = 0; i < documentCount; i++) {
+				if(documents[i] != other.documents[i])
 					return false;
 			}
 		}
@@ -401,8 +516,16 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 		if(hasValidText())
 			builder.append(", " + text);
 		
-		if(hasValidDocumentList())
-			builder.append(", " + documentList.toString());
+		if(hasValidDocumentList()) {
+			normalize();
+			builder.append(", [");
+			for(int i = 0; i < documentCount; i++) {
+				if(i > 0)
+					builder.append(",");
+				builder.append(documents[i]);
+			}
+			builder.append("]");
+		}
 		
 		if(hasValidWeight())
 			builder.append(", w:" + weight);
@@ -518,7 +641,7 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 	}
 	
 	//checks whether the current object has a valid list of sources/targets.
-	private boolean hasValidDocumentList() {
+	public boolean hasValidDocumentList() {
 		return type != Type.URL_FIELD.val;
 	}
 	
@@ -534,20 +657,104 @@ public class AnchorText implements WritableComparable<AnchorText>, AnchorTextCon
 	 * @return A new iterator object.
 	 */
 	public Iterator<Integer> iterator() {
+		normalize();
+		
 		return new Iterator<Integer>() {
-			IntIterator iterator = documentList.iterator();
+			int next = 0;
 
 			public boolean hasNext() {
-				return iterator.hasNext();
+				return next < documentCount;
 			}
 
 			public Integer next() {
-				return iterator.next();
+				if(next >= documentCount)
+					throw new NoSuchElementException();
+				
+				return documents[next++];
 			}
 
 			public void remove() {
-				iterator.remove();
+				if(next == 0)
+					throw new IllegalStateException();
+				
+				next--;
+				System.arraycopy(documents, next + 1, documents, next, documentCount - next - 1);
+				documentCount--;
+				encodedValid = false;
 			}
 		};
 	}
+	
+	private void ensureCapacity(int capacity) {
+		if(documents.length < capacity)
+			documents = Arrays.copyOf(documents, Math.max(capacity, 2 * documents.length));
+	}
+	
+	//decodes the gap-encoded list read by readFields, if that hasn't happened yet
+	private void decode() {
+		if(decoded)
+			return;
+		
+		ensureCapacity(encodedCount);
+		int pos = 0;
+		int prev = 0;
+		for(int i = 0; i < encodedCount; i++) {
+			int gap = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = encoded[pos++];
+				gap |= (b & 0x7f) << shift;
+				shift += 7;
+			} while(b < 0);
+			
+			prev += gap;
+			documents[i] = prev;
+		}
+		
+		documentCount = encodedCount;
+		sorted = true;
+		decoded = true;
+	}
+	
+	//makes sure the list is decoded, sorted, and free of duplicates
+	private void normalize() {
+		decode();
+		if(sorted)
+			return;
+		
+		Arrays.sort(documents, 0, documentCount);
+		int n = documentCount == 0 ? 0 : 1;
+		for(int i = 1; i < documentCount; i++) {
+			if(documents[i] != documents[n - 1])
+				documents[n++] = documents[i];
+		}
+		documentCount = n;
+		sorted = true;
+	}
+	
+	//gap-encodes the list, seven bits per byte; gaps are treated as unsigned ints.
+	private void encode() {
+		normalize();
+		
+		if(encoded.length < 5 * documentCount)
+			encoded = new byte[5 * documentCount];
+		
+		int pos = 0;
+		int prev = 0;
+		for(int i = 0; i < documentCount; i++) {
+			int gap = documents[i] - prev;
+			prev = documents[i];
+			
+			while((gap & ~0x7f) != 0) {
+				encoded[pos++] = (byte) ((gap & 0x7f) | 0x80);
+				gap >>>= 7;
+			}
+			encoded[pos++] = (byte) gap;
+		}
+		
+		encodedLength = pos;
+		encodedCount = documentCount;
+		encodedValid = true;
+	}
 }
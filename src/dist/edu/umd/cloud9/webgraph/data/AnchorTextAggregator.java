@@ -0,0 +1,258 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.webgraph.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Merges lines of anchor text that are equal regardless of their sources/targets (see
+ * {@link AnchorText#equalsIgnoreSources(AnchorText)}), taking the union of their source/target
+ * lists. Lines are grouped with an open-addressing hash table keyed on type, text and weight, so
+ * adding a line takes constant time rather than time linear in the number of distinct lines seen so
+ * far. Sources/targets are accumulated in primitive int buffers and only turned into
+ * {@link AnchorText} objects when the result is emitted.
+ * </p>
+ *
+ * <p>
+ * Lines are emitted in the order in which they were first added, which is the order the
+ * reducers used to build their output lists in; sorting the emitted list with
+ * <code>Collections.sort</code> therefore gives exactly the same result as before. An aggregator is
+ * meant to be reused: {@link #clear()} keeps the buffers around for the next key.
+ * </p>
+ */
+public class AnchorTextAggregator {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	//open-addressing table of entry indexes plus one (zero marks an empty slot)
+	private int[] table = new int[2 * INITIAL_CAPACITY];
+
+	//entries, in the order in which they were first added
+	private int size = 0;
+	private byte[] types = new byte[INITIAL_CAPACITY];
+	private String[] texts = new String[INITIAL_CAPACITY];
+	private float[] weights = new float[INITIAL_CAPACITY];
+	private int[] hashes = new int[INITIAL_CAPACITY];
+	private int[][] documents = new int[INITIAL_CAPACITY][];
+	private int[] documentCounts = new int[INITIAL_CAPACITY];
+	private boolean[] hasDocuments = new boolean[INITIAL_CAPACITY];
+
+	//objects handed out by emit, reused across keys
+	private AnchorText[] pool = new AnchorText[INITIAL_CAPACITY];
+
+	/**
+	 * Creates an empty aggregator.
+	 */
+	public AnchorTextAggregator() {
+	}
+
+	/**
+	 * @return the number of distinct lines of anchor text added since the last call to clear()
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all lines of anchor text.
+	 */
+	public void clear() {
+		if(size == 0)
+			return;
+
+		Arrays.fill(table, 0);
+		for(int i = 0; i < size; i++) {
+			texts[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Adds a line of anchor text, merging its sources/targets into those of an equal line if
+	 * one has been added already. The argument is not retained, so it may be reused by the caller.
+	 *
+	 * @param data
+	 * 			Line of anchor text to add
+	 */
+	public void add(AnchorText data) {
+		byte type = data.getType();
+		String text = data.hasValidText() ? data.getText() : null;
+		float weight = data.getWeight();
+		int hash = hash(type, text);
+
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		int entry;
+		while((entry = table[slot]) != 0) {
+			entry--;
+			if(hashes[entry] == hash && equalsIgnoreSources(entry, type, text, weight, data.isWeighted())) {
+				appendDocuments(entry, data);
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		entry = newEntry(type, text, weight, hash, data.hasValidDocumentList());
+		table[slot] = entry + 1;
+		appendDocuments(entry, data);
+
+		if(2 * size > table.length)
+			rehash();
+	}
+
+	/**
+	 * Adds every line of anchor text in a list.
+	 *
+	 * @param data
+	 * 			Lines of anchor text to add
+	 */
+	public void addAll(Iterable<AnchorText> data) {
+		for(AnchorText anchor : data) {
+			add(anchor);
+		}
+	}
+
+	/**
+	 * Appends the merged lines of anchor text to a list, in the order in which they were first added.
+	 * The AnchorText objects appended are owned by this aggregator and will be overwritten by the
+	 * next call to emit, so they must be consumed (e.g., written out) before then.
+	 *
+	 * @param output
+	 * 			List to append the merged lines of anchor text to
+	 */
+	public void emit(List<AnchorText> output) {
+		if(pool.length < size)
+			pool = Arrays.copyOf(pool, types.length);
+
+		for(int i = 0; i < size; i++) {
+			if(pool[i] == null)
+				pool[i] = new AnchorText();
+
+			AnchorText anchor = pool[i];
+			anchor.resetToType(types[i]);
+			anchor.setText(texts[i]);
+			if(anchor.isWeighted())
+				anchor.setWeight(weights[i]);
+
+			int[] docs = documents[i];
+			for(int j = 0; j < documentCounts[i]; j++) {
+				anchor.addDocument(docs[j]);
+			}
+
+			output.add(anchor);
+		}
+	}
+
+	private static int hash(byte type, String text) {
+		int h = text == null ? type : text.hashCode() * 31 + type;
+		//spread the bits, since the table size is a power of two
+		h ^= (h >>> 20) ^ (h >>> 12);
+		return h ^ (h >>> 7) ^ (h >>> 4);
+	}
+
+	//same as AnchorText.equalsIgnoreSources
+	private boolean equalsIgnoreSources(int entry, byte type, String text, float weight, boolean weighted) {
+		if(types[entry] != type)
+			return false;
+
+		if(weighted && weights[entry] != weight)
+			return false;
+
+		if(text != null)
+			return text.equals(texts[entry]);
+
+		return true;
+	}
+
+	private int newEntry(byte type, String text, float weight, int hash, boolean hasDocumentList) {
+		if(size == types.length) {
+			int capacity = 2 * types.length;
+			types = Arrays.copyOf(types, capacity);
+			texts = Arrays.copyOf(texts, capacity);
+			weights = Arrays.copyOf(weights, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+			documents = Arrays.copyOf(documents, capacity);
+			documentCounts = Arrays.copyOf(documentCounts, capacity);
+			hasDocuments = Arrays.copyOf(hasDocuments, capacity);
+		}
+
+		int entry = size++;
+		types[entry] = type;
+		texts[entry] = text;
+		weights[entry] = weight;
+		hashes[entry] = hash;
+		documentCounts[entry] = 0;
+		hasDocuments[entry] = hasDocumentList;
+		if(documents[entry] == null)
+			documents[entry] = new int[4];
+
+		return entry;
+	}
+
+	private void appendDocuments(int entry, AnchorText data) {
+		if(!hasDocuments[entry])
+			return;
+
+		int[] other = data.getDocuments();
+		if(other.length == 0)
+			return;
+
+		int count = documentCounts[entry];
+		int[] docs = documents[entry];
+		if(count + other.length > docs.length) {
+			//the same source/target often shows up many times, so drop duplicates before growing
+			count = sortAndRemoveDuplicates(docs, count);
+			if(count + other.length > docs.length / 2) {
+				docs = Arrays.copyOf(docs, Math.max(count + other.length, 2 * docs.length));
+				documents[entry] = docs;
+			}
+		}
+
+		System.arraycopy(other, 0, docs, count, other.length);
+		documentCounts[entry] = count + other.length;
+	}
+
+	private static int sortAndRemoveDuplicates(int[] docs, int count) {
+		if(count == 0)
+			return 0;
+
+		Arrays.sort(docs, 0, count);
+		int n = 1;
+		for(int i = 1; i < count; i++) {
+			if(docs[i] != docs[n - 1])
+				docs[n++] = docs[i];
+		}
+		return n;
+	}
+
+	private void rehash() {
+		int[] newTable = new int[2 * table.length];
+		int mask = newTable.length - 1;
+
+		for(int entry = 0; entry < size; entry++) {
+			int slot = hashes[entry] & mask;
+			while(newTable[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			newTable[slot] = entry + 1;
+		}
+
+		table = newTable;
+	}
+}
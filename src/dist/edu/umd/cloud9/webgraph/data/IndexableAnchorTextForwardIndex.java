@@ -16,42 +16,88 @@
 
 package edu.umd.cloud9.webgraph.data;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
-import org.apache.hadoop.io.SequenceFile;
+import org.apache.log4j.Logger;
 
 import edu.umd.cloud9.collection.DocnoMapping;
 import edu.umd.cloud9.collection.DocumentForwardIndex;
+import edu.umd.cloud9.io.SequenceFileBlock;
+import edu.umd.cloud9.io.SequenceFileBlockCache;
+import edu.umd.cloud9.io.SequenceFileBlockScanner;
 import edu.umd.cloud9.io.array.ArrayListWritable;
 
+/**
+ * <p>
+ * Forward index for an anchor text collection (i.e., web graph), as built by
+ * {@link edu.umd.cloud9.webgraph.driver.BuildAnchorTextForwardIndex}. Blocks of the collection are
+ * read through a {@link SequenceFileBlockCache}, with scanners kept open between misses, so
+ * repeated lookups in the same part of the collection are memory reads.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe: every call returns new objects, so a single instance can serve
+ * concurrent requests. Use {@link #getDocuments(int[])} to fetch many documents at once; it reads
+ * each block only once no matter how many of the requested documents it holds.
+ * </p>
+ */
 public class IndexableAnchorTextForwardIndex implements DocumentForwardIndex<IndexableAnchorText> {
-	
-	private static final IndexableAnchorText indexableAnchorText = new IndexableAnchorText();
-	private static final DecimalFormat df = new DecimalFormat("00000");
 
-	private Configuration conf;
+	private static final Logger LOG = Logger.getLogger(IndexableAnchorTextForwardIndex.class);
+
+	//open scanners kept around for each part file
+	private static final int MAX_IDLE_SCANNERS = 4;
+
+	private final Configuration conf;
 	private FileSystem fs;
 
 	private int[] docnos;
 	private int[] offsets;
 	private short[] filenos;
 	private String collectionPath;
+	private volatile int lastDocno = -1;
 
-	private DocnoMapping docnoMapping;
+	private final DocnoMapping docnoMapping;
+	private SequenceFileBlockCache cache = SequenceFileBlockCache.getSharedInstance();
+	private final HashMap<Short, ArrayList<SequenceFileBlockScanner>> idleScanners =
+		new HashMap<Short, ArrayList<SequenceFileBlockScanner>>();
 
 	public IndexableAnchorTextForwardIndex(DocnoMapping docnoMapping) {
-		this.docnoMapping = docnoMapping; 
+		this(docnoMapping, new Configuration());
+	}
+
+	public IndexableAnchorTextForwardIndex(DocnoMapping docnoMapping, Configuration conf) {
+		this.docnoMapping = docnoMapping;
+		this.conf = conf;
+	}
+
+	/**
+	 * Sets the cache of decompressed blocks used by this forward index. By default, the cache shared
+	 * by all forward indexes in the JVM is used.
+	 */
+	public void setBlockCache(SequenceFileBlockCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Returns the cache of decompressed blocks used by this forward index.
+	 */
+	public SequenceFileBlockCache getBlockCache() {
+		return cache;
 	}
 
 	@Override
 	public void loadIndex(Path index, Path mapping, FileSystem fs) throws IOException {
+		this.fs = fs;
 		docnoMapping.loadMapping(mapping, fs);
 
 		FSDataInputStream in = fs.open(index);
@@ -72,6 +118,13 @@ public class IndexableAnchorTextForwardIndex implements DocumentForwardIndex<Ind
 			filenos[i] = in.readShort();
 		}
 
+		try {
+			lastDocno = in.readInt();
+		} catch (EOFException e) {
+			// index files built by older versions don't store the last docno
+			lastDocno = -1;
+		}
+
 		in.close();
 	}
 
@@ -80,38 +133,160 @@ public class IndexableAnchorTextForwardIndex implements DocumentForwardIndex<Ind
 	}
 
 	public IndexableAnchorText getDocument(int docno) {
+		return getDocuments(new int[] { docno })[0];
+	}
+
+	/**
+	 * Fetches a batch of documents. The documents that fall into the same block are all read from a
+	 * single lookup of the block.
+	 *
+	 * @param requested
+	 * 			docnos of the documents to fetch, in any order
+	 * @return the documents, in the same order as the docnos; entries of docnos that aren't in the
+	 * 			collection are <code>null</code>
+	 */
+	public IndexableAnchorText[] getDocuments(int[] requested) {
+		IndexableAnchorText[] results = new IndexableAnchorText[requested.length];
+
+		//sort the requests by docno (keeping track of where they came from), so that the requests
+		//for each block are next to each other
+		long[] order = new long[requested.length];
+		for (int i = 0; i < requested.length; i++) {
+			order[i] = ((long) requested[i] << 32) | i;
+		}
+		Arrays.sort(order);
+
+		IntWritable key = new IntWritable();
+		int k = 0;
+		while (k < order.length) {
+			int idx = findBlock((int) (order[k] >> 32));
+			if (idx < 0) {
+				k++;
+				continue;
+			}
+
+			long limit = idx + 1 < docnos.length ? docnos[idx + 1] : Long.MAX_VALUE;
+			int end = k;
+			while (end < order.length && (order[end] >> 32) < limit) {
+				end++;
+			}
+
+			try {
+				SequenceFileBlock block = getBlock(idx);
+
+				int lo = 0;
+				for (; k < end; k++) {
+					int docno = (int) (order[k] >> 32);
+					int i = findRecord(block, docno, lo, key);
+					if (i < 0)
+						continue;
+
+					lo = i;
+					ArrayListWritable<AnchorText> value = new ArrayListWritable<AnchorText>();
+					block.readValue(i, value);
+
+					IndexableAnchorText doc = new IndexableAnchorText();
+					doc.setDocid(docnoMapping.getDocid(docno));
+					doc.createHTML(value);
+					results[(int) order[k]] = doc;
+				}
+			} catch (IOException e) {
+				LOG.error("Unable to read block " + idx + " of " + collectionPath, e);
+			}
+
+			k = end;
+		}
+
+		return results;
+	}
+
+	//index of the block that would hold a docno, or -1 if it precedes the collection
+	private int findBlock(int docno) {
 		int idx = Arrays.binarySearch(docnos, docno);
 
 		if (idx < 0)
 			idx = -idx - 2;
 
-		DecimalFormat df = new DecimalFormat("00000");
-		String file = collectionPath + "/part-" + df.format(filenos[idx]);
-		
-		try {
+		return idx;
+	}
 
-			SequenceFile.Reader reader = new SequenceFile.Reader(fs, new Path(file), conf);
+	//binary search over the (sorted) keys of a block, starting at record lo
+	private static int findRecord(SequenceFileBlock block, int docno, int lo, IntWritable key)
+			throws IOException {
+		int hi = block.getRecordCount() - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			block.readKey(mid, key);
+			if (key.get() < docno)
+				lo = mid + 1;
+			else if (key.get() > docno)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
 
-			IntWritable key = new IntWritable();
-			ArrayListWritable<AnchorText> value = new ArrayListWritable<AnchorText>();
+	private SequenceFileBlock getBlock(int idx) throws IOException {
+		short fileno = filenos[idx];
+		Path file = getPartPath(collectionPath, fileno);
 
-			reader.seek(offsets[idx]);
+		//only a miss needs a scanner
+		SequenceFileBlock cached = cache.getCachedBlock(file, offsets[idx]);
+		if (cached != null)
+			return cached;
 
-			while (reader.next(key)) {
-				if (key.get() == docno)
-					break;
+		SequenceFileBlockScanner scanner = null;
+		synchronized (idleScanners) {
+			ArrayList<SequenceFileBlockScanner> idle = idleScanners.get(fileno);
+			if (idle != null && !idle.isEmpty())
+				scanner = idle.remove(idle.size() - 1);
+		}
+		if (scanner == null)
+			scanner = new SequenceFileBlockScanner(file, fs, conf);
+
+		boolean ok = false;
+		try {
+			SequenceFileBlock block = cache.getBlock(file, offsets[idx], scanner);
+			ok = true;
+			return block;
+		} finally {
+			if (ok)
+				returnScanner(fileno, scanner);
+			else
+				scanner.close();
+		}
+	}
+
+	private void returnScanner(short fileno, SequenceFileBlockScanner scanner) throws IOException {
+		synchronized (idleScanners) {
+			ArrayList<SequenceFileBlockScanner> idle = idleScanners.get(fileno);
+			if (idle == null) {
+				idle = new ArrayList<SequenceFileBlockScanner>();
+				idleScanners.put(fileno, idle);
 			}
 
-			reader.getCurrentValue(value);
-			reader.close();
-			
-			indexableAnchorText.createHTML(value);
-			return indexableAnchorText;
-		} catch (IOException e) {
-			e.printStackTrace();
+			if (idle.size() < MAX_IDLE_SCANNERS) {
+				idle.add(scanner);
+				return;
+			}
 		}
+		scanner.close();
+	}
 
-		return null;
+	/**
+	 * Closes the files held open by this forward index. The index can still be used afterwards, in
+	 * which case files are opened again as needed.
+	 */
+	public void close() throws IOException {
+		synchronized (idleScanners) {
+			for (ArrayList<SequenceFileBlockScanner> idle : idleScanners.values()) {
+				for (SequenceFileBlockScanner scanner : idle) {
+					scanner.close();
+				}
+			}
+			idleScanners.clear();
+		}
 	}
 
 	public IndexableAnchorText getDocument(String docid) {
@@ -130,38 +305,60 @@ public class IndexableAnchorTextForwardIndex implements DocumentForwardIndex<Ind
 		return docnos[0];
 	}
 
-	private int mLastDocno = -1;
-
 	public int getLastDocno() {
-		if (mLastDocno != -1)
-			return mLastDocno;
+		if (lastDocno != -1)
+			return lastDocno;
 
-		// find the last entry, and then see all the way to the end of the
-		// collection
-		int idx = docnos.length - 1;
+		synchronized (this) {
+			if (lastDocno != -1)
+				return lastDocno;
 
-		String file = collectionPath + "/part-" + df.format(filenos[idx]);
+			// find the last entry, and then see all the way to the end of the
+			// collection
+			int idx = docnos.length - 1;
 
-		try {
-			SequenceFile.Reader reader = new SequenceFile.Reader(fs, new Path(file), conf);
-			IntWritable key = new IntWritable();
+			try {
+				lastDocno = readLastDocno(getPartPath(collectionPath, filenos[idx]), offsets[idx], fs, conf);
+			} catch (IOException e) {
+				LOG.error("Unable to read the last docno of " + collectionPath, e);
+			}
+		}
+
+		return lastDocno;
+	}
 
-			reader.seek(offsets[idx]);
+	/**
+	 * Returns the last key of a block-compressed part file of a collection, walking the block
+	 * headers from the given block on. Only the keys of the last block are decompressed.
+	 */
+	public static int readLastDocno(Path file, long offset, FileSystem fs, Configuration conf)
+			throws IOException {
+		SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(file, fs, conf);
+		IntWritable key = new IntWritable();
 
-			while (reader.next(key))
-				;
-			mLastDocno = key.get();
-		} catch (IOException e) {
-			e.printStackTrace();
+		try {
+			scanner.seek(offset);
+			while (scanner.next()) {
+				scanner.readLastKey(key);
+			}
+		} finally {
+			scanner.close();
 		}
 
-		return mLastDocno;
+		return key.get();
+	}
+
+	/**
+	 * Returns the path to a part file of a collection.
+	 */
+	public static Path getPartPath(String collectionPath, int fileno) {
+		return new Path(collectionPath + "/part-" + String.format("%05d", fileno));
 	}
 
 	public String getContentType() {
 		return "text/html";
 	}
-	
+
 	public String getDisplayContentType() {
 		return "text/html";
 	}
@@ -182,6 +182,8 @@ public class BuildAnchorTextForwardIndex extends Configured implements Tool {
 		out.writeInt(blocks);
 
 		int cnt = 0;
+		int lastOffset = -1;
+		short lastFileno = -1;
 		Text line = new Text();
 		while (reader.readLine(line) > 0) {
 			String[] arr = line.toString().split("\\s+");
@@ -194,6 +196,8 @@ public class BuildAnchorTextForwardIndex extends Configured implements Tool {
 			out.writeInt(offset);
 			out.writeShort(fileno);
 
+			lastOffset = offset;
+			lastFileno = fileno;
 			cnt++;
 
 			if (cnt % 1000 == 0) {
@@ -203,6 +207,12 @@ public class BuildAnchorTextForwardIndex extends Configured implements Tool {
 		}
 
 		reader.close();
+
+		// store the last docno, so that it doesn't have to be looked up when the index is loaded
+		if (cnt > 0) {
+			out.writeInt(IndexableAnchorTextForwardIndex.readLastDocno(
+					IndexableAnchorTextForwardIndex.getPartPath(collectionPath, lastFileno), lastOffset, fs, conf));
+		}
 		out.close();
 
 		if (cnt != blocks) {
@@ -42,6 +42,8 @@ import org.mortbay.jetty.servlet.Context;
 import org.mortbay.jetty.servlet.ServletHolder;
 
 import edu.umd.cloud9.collection.DocumentForwardIndex;
+import edu.umd.cloud9.collection.DocumentForwardIndexHttpServer;
+import edu.umd.cloud9.collection.EndpointStatistics;
 import edu.umd.cloud9.collection.Indexable;
 import edu.umd.cloud9.collection.clue.ClueWarcDocnoMapping;
 import edu.umd.cloud9.mapred.NullInputFormat;
@@ -105,7 +107,7 @@ public class ClueWebAnchorTextForwardIndexHttpServer {
 			LOG.info("index class: " + indexClass);
 
 			try {
-				sForwardIndex = new IndexableAnchorTextForwardIndex(new ClueWarcDocnoMapping());
+				sForwardIndex = new IndexableAnchorTextForwardIndex(new ClueWarcDocnoMapping(), conf);
 				sForwardIndex.loadIndex(new Path(indexFile), new Path(mappingFile), FileSystem.get(conf));
 			} catch (Exception e) {
 				e.printStackTrace();
@@ -133,11 +135,13 @@ public class ClueWebAnchorTextForwardIndexHttpServer {
 				}
 			}
 
-			Server server = new Server(port);
+			Server server = DocumentForwardIndexHttpServer.createServer(port, conf.getInt(
+					"Cloud9.ForwardIndexServerThreads", DocumentForwardIndexHttpServer.DEFAULT_THREADS));
 			Context root = new Context(server, "/", Context.SESSIONS);
-			root.addServlet(new ServletHolder(new FetchDocidServlet()), "/fetch_docid");
-			root.addServlet(new ServletHolder(new FetchDocnoServlet()), "/fetch_docno");
-			root.addServlet(new ServletHolder(new FetchDocContentServlet()), "/fetch_content");
+			EndpointStatistics.addServlet(root, "/fetch_docid", new FetchDocidServlet());
+			EndpointStatistics.addServlet(root, "/fetch_docno", new FetchDocnoServlet());
+			EndpointStatistics.addServlet(root, "/fetch_content", new FetchDocContentServlet());
+			EndpointStatistics.addStatsServlet(root, "/stats");
 			root.addServlet(new ServletHolder(new HomeServlet()), "/");
 
 			FSDataOutputStream out = FileSystem.get(conf).create(tmpPath, true);
@@ -150,8 +154,7 @@ public class ClueWebAnchorTextForwardIndexHttpServer {
 				e.printStackTrace();
 			}
 
-			while (true)
-				;
+			DocumentForwardIndexHttpServer.awaitShutdown(server);
 		}
 	}
 
@@ -18,9 +18,11 @@ package edu.umd.cloud9.webgraph.driver;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 
+import edu.umd.cloud9.mapred.BloomFilterJoin;
 import edu.umd.cloud9.webgraph.BuildReverseWebGraph;
 import edu.umd.cloud9.webgraph.BuildWebGraph;
 import edu.umd.cloud9.webgraph.CollectHostnames;
@@ -45,6 +47,9 @@ import edu.umd.cloud9.webgraph.DriverUtil;
  * <li>[-caw]: compute the default weights for lines of external anchor text</li>
  * <li>[-normalizer normalizer] A normalizer class used to normalize the lines of anchor
  * text, must extend edu.umd.cloud9.webgraph.normalize.AnchorTextNormalizer.</li>
+ * <li>[-bloomFilter num-urls]: build a Bloom filter of the URLs of the collection, sized for
+ * <code>num-urls</code> URLs, and drop the links to other URLs during link extraction rather
+ * than after shuffling them</li>
  * </ul>
  *
  * <p>
@@ -77,7 +82,8 @@ public class ClueWebDriver extends Configured implements Tool {
                        "-end end_segment" +
                        "[-il] " +
                        "[-caw] " +
-                       "-normalizer normalizerClass");
+                       "-normalizer normalizerClass " +
+                       "[-bloomFilter numURLs]");
 
     System.out.println("Help:");
     System.out.println("[" + DriverUtil.CL_INPUT + " collection-path]\n\tinput directory");
@@ -93,6 +99,9 @@ public class ClueWebDriver extends Configured implements Tool {
     System.out
       .println(DriverUtil.CL_NORMALIZER + " normalizerClass\n\ta normalizer class used to normalize the lines of anchor text," +
                " must extend edu.umd.cloud9.webgraph.normalize.AnchorTextNormalizer.");
+    System.out
+      .println(DriverUtil.CL_BLOOM_FILTER + " numURLs\n\tdrop links to URLs outside the collection during link extraction," +
+               " with a Bloom filter sized for numURLs URLs");
     System.out.println();
     ToolRunner.printGenericCommandUsage(System.out);
     return -1;
@@ -115,6 +124,7 @@ public class ClueWebDriver extends Configured implements Tool {
     final boolean includeInternalLinks = DriverUtil.argExists(args, DriverUtil.CL_INCLUDE_INTERNAL_LINKS);
     final boolean computeAnchorWeights = DriverUtil.argExists(args, DriverUtil.CL_COMPUTE_WEIGHTS);
     final String normalizer = DriverUtil.argValue(args, DriverUtil.CL_NORMALIZER);
+    final boolean useBloomFilter = DriverUtil.argExists(args, DriverUtil.CL_BLOOM_FILTER);
 
     conf.setInt("Cloud9.Mappers", 2000);
     conf.setInt("Cloud9.Reducers", DriverUtil.DEFAULT_REDUCERS);
@@ -122,6 +132,22 @@ public class ClueWebDriver extends Configured implements Tool {
     conf.setBoolean("Cloud9.IncludeInternalLinks", includeInternalLinks);
     conf.set("Cloud9.AnchorTextNormalizer", normalizer);
 
+    // Build the Bloom filter of the URLs of all the segments, so that links to
+    // other segments are kept
+    if (useBloomFilter) {
+      String inputPath = "";
+      for (int i = fromSegment; i <= toSegment; i++) {
+        inputPath += (i == fromSegment ? "" : ",") + inputBase + "en." +
+          (i == 10 ? "10" : ("0" + i));
+      }
+
+      Path filterPath = new Path(outputBase + DriverUtil.OUTPUT_URL_FILTER);
+      conf.setLong(BloomFilterJoin.EXPECTED_KEYS_PROPERTY,
+                   Long.parseLong(DriverUtil.argValue(args, DriverUtil.CL_BLOOM_FILTER)));
+      ClueExtractLinks.buildURLFilter(conf, inputPath, filterPath);
+      conf.set(BloomFilterJoin.PATH_PROPERTY, filterPath.toString());
+    }
+
     // Extract link information for each segment separately
     for (int i = fromSegment; i <= toSegment; i++) {
       String inputPath = inputBase + "en." + (i == 10 ? "10" : ("0" + i));
@@ -37,7 +37,10 @@ import org.apache.hadoop.mapred.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 
+import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
 import edu.umd.cloud9.io.array.ArrayListWritable;
+import edu.umd.cloud9.io.graph.CSRGraph;
+import edu.umd.cloud9.mapred.CSRGraphOutputFormat;
 import edu.umd.cloud9.webgraph.data.AnchorText;
 
 
@@ -52,6 +55,8 @@ import edu.umd.cloud9.webgraph.data.AnchorText;
  * <ul>
  * <li>[input-path]: the base path to the webgraph</li>
  * <li>[output-path]: the output path</li>
+ * <li>[-csr]: optional, to write the graph as a binary {@link CSRGraph} instead of text, which the
+ * PageRank, BFS, and HITS examples read directly</li>
  * </ul>
  * 
  * @author Nima Asadi
@@ -87,16 +92,42 @@ public class GenerateTabDelimitedWebGraph extends Configured implements Tool {
 			output.collect(key, valueOutput);
 		}
 	}
+
+	// Same as MyMapper, but emits the targets as a list, for CSRGraphOutputFormat.
+	private static class MyCSRMapper extends MapReduceBase implements
+	Mapper<IntWritable, ArrayListWritable<AnchorText>, IntWritable, ArrayListOfIntsWritable> {
+
+		private static final ArrayListOfIntsWritable targets = new ArrayListOfIntsWritable();
+
+		public void map(IntWritable key, ArrayListWritable<AnchorText> anchors,
+				OutputCollector<IntWritable, ArrayListOfIntsWritable> output, Reporter reporter)
+				throws IOException {
+
+			targets.clear();
+
+			for(AnchorText p : anchors) {
+
+				if(!p.isExternalOutLink() && !p.isInternalOutLink())
+					continue;
+
+				for(int doc : p) {
+					targets.add(doc);
+				}
+			}
+
+			output.collect(key, targets);
+		}
+	}
 	
 	private static int printUsage() {
-		System.out.println("usage: [WebGraph-base-path] [output-path]");
+		System.out.println("usage: [WebGraph-base-path] [output-path] [-csr]");
 		ToolRunner.printGenericCommandUsage(System.out);
 		return -1;
 	}
 	
 	public int run(String[] args) throws Exception {
 		
-		if(args.length != 2) {
+		if(args.length != 2 && !(args.length == 3 && args[2].equals("-csr"))) {
 			printUsage();
 			return -1;
 		}
@@ -106,6 +137,7 @@ public class GenerateTabDelimitedWebGraph extends Configured implements Tool {
 
 		String inPath = args[0];
 		String outPath = args[1];
+		boolean csr = args.length == 3;
 
 		Path inputPath = new Path(inPath);
 		Path outputPath = new Path(outPath);
@@ -124,12 +156,14 @@ public class GenerateTabDelimitedWebGraph extends Configured implements Tool {
 		FileOutputFormat.setOutputPath(conf, outputPath);
 
 		conf.setInputFormat(SequenceFileInputFormat.class);
-		conf.setOutputFormat(TextOutputFormat.class);
+		// Node ids come out of the web graph in increasing order within a file, so the map tasks can
+		// write CSR shards directly.
+		conf.setOutputFormat(csr ? CSRGraphOutputFormat.class : TextOutputFormat.class);
 		
 		conf.setOutputKeyClass(IntWritable.class);
-		conf.setOutputValueClass(Text.class);
+		conf.setOutputValueClass(csr ? ArrayListOfIntsWritable.class : Text.class);
 
-		conf.setMapperClass(MyMapper.class);
+		conf.setMapperClass(csr ? MyCSRMapper.class : MyMapper.class);
 
 		JobClient.runJob(conf);
 	
@@ -20,9 +20,11 @@ import java.io.File;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 
+import edu.umd.cloud9.mapred.BloomFilterJoin;
 import edu.umd.cloud9.webgraph.BuildReverseWebGraph;
 import edu.umd.cloud9.webgraph.BuildWebGraph;
 import edu.umd.cloud9.webgraph.CollectionConfigurationManager;
@@ -52,6 +54,9 @@ import edu.umd.cloud9.webgraph.normalizer.AnchorTextNormalizer;
  * anchor text, remove for not</li>
  * <li>[-normalizer normalizer] A normalizer class used to normalize the lines of anchor
  * text, must extend *.anchor.normalize.AnchorTextNormalizer.</li>
+ * <li>[-bloomFilter num-urls]: build a Bloom filter of the URLs of the collection, sized for
+ * <code>num-urls</code> URLs, and drop the links to other URLs during link extraction rather
+ * than after shuffling them</li>
  * <li>[<key:value> ..]: key-value pairs to put in configuration files. It shall
  * also be used as input method for user specified classes</li>
  * </ul>
@@ -75,6 +80,7 @@ public class TrecDriver extends Configured implements Tool {
   private String outputBase;
   private boolean includeInternalLinks = false;
   private boolean computeAnchorWeights = false;
+  private long bloomFilterKeys = 0;
   private String normalizer = "edu.umd.cloud9.webgraph.normalizer.AnchorTextBasicNormalizer";
   private String filtername = null;
   private Configuration conf;
@@ -101,6 +107,15 @@ public class TrecDriver extends Configured implements Tool {
 
     conf.set("Cloud9.InputPath", inputPath);
     conf.set("Cloud9.OutputPath", outputPath);
+
+    // Build the Bloom filter of the URLs of the collection first, if asked to
+    if (bloomFilterKeys > 0) {
+      Path filterPath = new Path(outputBase + "/" + DriverUtil.OUTPUT_URL_FILTER);
+      conf.setLong(BloomFilterJoin.EXPECTED_KEYS_PROPERTY, bloomFilterKeys);
+      new TrecExtractLinks(conf, configer).buildURLFilter(filterPath);
+      conf.set(BloomFilterJoin.PATH_PROPERTY, filterPath.toString());
+    }
+
     int r = new TrecExtractLinks(conf, configer).run();
     if (r != 0) {
       return -1;
@@ -177,7 +192,8 @@ public class TrecDriver extends Configured implements Tool {
                        "-docno userSpecifiedDocnoMappingFile " +
                        "[-il] " +
                        "[-caw] " +
-                       "[-normalizer normalizerClass] ");
+                       "[-normalizer normalizerClass] " +
+                       "[-bloomFilter numURLs] ");
     System.out.println("Help:");
     System.out.println("[" + DriverUtil.CL_INPUT + " collection-path]\n\tinput directory");
     System.out.println("[" + DriverUtil.CL_OUTPUT + " output-base]\n\toutput directory");
@@ -198,6 +214,9 @@ public class TrecDriver extends Configured implements Tool {
     System.out
       .println(DriverUtil.CL_NORMALIZER + " normalizerClass\n\ta normalizer class used to normalize the lines of anchor text," +
                " must extend edu.umd.cloud9.webgraph.normalize.AnchorTextNormalizer.");
+    System.out
+      .println(DriverUtil.CL_BLOOM_FILTER + " numURLs\n\tdrop links to URLs outside the collection during link extraction," +
+               " with a Bloom filter sized for numURLs URLs");
     System.out.println();
 
     ToolRunner.printGenericCommandUsage(System.out);
@@ -240,6 +259,9 @@ public class TrecDriver extends Configured implements Tool {
     conf.set("Cloud9.DocnoMappingFile", DriverUtil.argValue(args, DriverUtil.CL_DOCNO_MAPPING));
     includeInternalLinks = DriverUtil.argExists(args, DriverUtil.CL_INCLUDE_INTERNAL_LINKS);
     computeAnchorWeights = DriverUtil.argExists(args, DriverUtil.CL_COMPUTE_WEIGHTS);
+    if (DriverUtil.argExists(args, DriverUtil.CL_BLOOM_FILTER)) {
+      bloomFilterKeys = Long.parseLong(DriverUtil.argValue(args, DriverUtil.CL_BLOOM_FILTER));
+    }
 
     String nm = DriverUtil.argValue(args, DriverUtil.CL_NORMALIZER);
     try {
@@ -0,0 +1,478 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.webgraph.normalizer;
+
+/**
+ * <p>
+ * Resolves and canonicalizes URLs without going through <code>java.net.URI</code>. Malformed
+ * input results in a <code>null</code> return value rather than an exception, which matters when
+ * links are extracted from millions of pages of real-world HTML.
+ * </p>
+ *
+ * <p>
+ * {@link #canonicalize(String)} produces the same form that the link extraction tools used to
+ * produce with <code>URI.normalize()</code>: the scheme and host are lower-cased, the port, user
+ * info, query and fragment are dropped, empty segments, dot segments and trailing slashes are
+ * removed from the path the way <code>URI.normalize()</code> removes them (so a leading ".." is
+ * kept), and the path is percent-encoded the way <code>URI</code>'s multi-argument constructors
+ * encode it. The only difference is that unescaped illegal characters (e.g., spaces) are encoded
+ * rather than rejected.
+ * </p>
+ */
+public class URLCanonicalizer {
+
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	private URLCanonicalizer() {
+	}
+
+	/**
+	 * Resolves a (possibly relative) reference against an absolute base URL, following RFC 3986.
+	 * The scheme is lower-cased, and fragments are kept.
+	 *
+	 * @param base
+	 * 			absolute URL of the document the reference appears in
+	 * @param ref
+	 * 			the reference, e.g., the value of an href attribute
+	 * @return the absolute URL, or <code>null</code> if the reference can't be resolved to a URL with
+	 * 			a host (e.g., <code>mailto:</code> and <code>javascript:</code> links)
+	 */
+	public static String resolve(String base, String ref) {
+		if(ref == null)
+			return null;
+		ref = ref.trim();
+
+		int schemeEnd = schemeEnd(ref);
+		if(schemeEnd > 0) {
+			if(!ref.startsWith("//", schemeEnd + 1))
+				return null;
+			int pathStart = authorityEnd(ref, schemeEnd + 3);
+			return lowerCaseScheme(ref.substring(0, pathStart), schemeEnd) + removeDotSegments(ref, pathStart);
+		}
+
+		if(base == null)
+			return null;
+
+		int baseSchemeEnd = schemeEnd(base);
+		if(baseSchemeEnd <= 0 || !base.startsWith("//", baseSchemeEnd + 1))
+			return null;
+		base = lowerCaseScheme(base, baseSchemeEnd);
+
+		if(ref.startsWith("//")) {
+			int pathStart = authorityEnd(ref, 2);
+			return base.substring(0, baseSchemeEnd + 1) + ref.substring(0, pathStart)
+					+ removeDotSegments(ref, pathStart);
+		}
+
+		int basePathStart = authorityEnd(base, baseSchemeEnd + 3);
+		int basePathEnd = pathEnd(base, basePathStart);
+		String authority = base.substring(0, basePathStart);
+
+		if(ref.length() == 0 || ref.charAt(0) == '#') {
+			int fragment = base.indexOf('#', basePathEnd);
+			return (fragment < 0 ? base : base.substring(0, fragment)) + ref;
+		}
+
+		if(ref.charAt(0) == '?')
+			return base.substring(0, basePathEnd) + ref;
+
+		if(ref.charAt(0) == '/')
+			return authority + removeDotSegments(ref, 0);
+
+		//merge with the directory of the base path
+		int slash = base.lastIndexOf('/', basePathEnd - 1);
+		String merged = slash < basePathStart ? "/" + ref : base.substring(basePathStart, slash + 1) + ref;
+		return authority + removeDotSegments(merged, 0);
+	}
+
+	/**
+	 * Returns the host of an absolute URL, without looking it up or changing its case.
+	 *
+	 * @return the host, or <code>null</code> if the URL doesn't have a well-formed host name or
+	 * 			IP address
+	 */
+	public static String getHost(String url) {
+		if(url == null)
+			return null;
+
+		int schemeEnd = schemeEnd(url);
+		if(schemeEnd <= 0 || !url.startsWith("//", schemeEnd + 1))
+			return null;
+
+		int start = schemeEnd + 3;
+		int end = authorityEnd(url, start);
+
+		int at = url.lastIndexOf('@', end - 1);
+		if(at >= start)
+			start = at + 1;
+
+		if(start < end && url.charAt(start) == '[') {
+			int close = url.indexOf(']', start);
+			return close < 0 || close >= end ? null : url.substring(start, close + 1);
+		}
+
+		//like URI, a port that isn't a number leaves the URL without a host
+		int colon = url.indexOf(':', start);
+		if(colon >= 0 && colon < end) {
+			for(int i = colon + 1; i < end; i++) {
+				if(url.charAt(i) < '0' || url.charAt(i) > '9')
+					return null;
+			}
+			end = colon;
+		}
+
+		return isValidHost(url, start, end) ? url.substring(start, end) : null;
+	}
+
+	/**
+	 * Canonicalizes an absolute URL (see the class description).
+	 *
+	 * @return the canonical form, or <code>null</code> if the URL doesn't have a scheme and a
+	 * 			well-formed host
+	 */
+	public static String canonicalize(String url) {
+		String host = getHost(url);
+		if(host == null)
+			return null;
+
+		int schemeEnd = schemeEnd(url);
+		int pathStart = authorityEnd(url, schemeEnd + 3);
+		int pathEnd = pathEnd(url, pathStart);
+
+		StringBuilder sb = new StringBuilder(url.length());
+		for(int i = 0; i < schemeEnd; i++) {
+			sb.append(Character.toLowerCase(url.charAt(i)));
+		}
+		sb.append("://");
+		sb.append(host.toLowerCase());
+
+		String path = decode(normalizePath(url, pathStart, pathEnd));
+		int end = path.length();
+		while(end > 0 && path.charAt(end - 1) == '/') {
+			end--;
+		}
+		encodePath(sb, path, end);
+
+		return sb.toString();
+	}
+
+	//index of the colon that ends the scheme, or -1 if the string doesn't start with a scheme
+	private static int schemeEnd(String s) {
+		int n = s.length();
+		if(n == 0 || !isAlpha(s.charAt(0)))
+			return -1;
+
+		for(int i = 1; i < n; i++) {
+			char c = s.charAt(i);
+			if(c == ':')
+				return i;
+			if(!isAlpha(c) && !(c >= '0' && c <= '9') && c != '+' && c != '-' && c != '.')
+				return -1;
+		}
+		return -1;
+	}
+
+	//index of the first character after the authority that starts at the given index
+	private static int authorityEnd(String s, int start) {
+		int n = s.length();
+		for(int i = start; i < n; i++) {
+			char c = s.charAt(i);
+			if(c == '/' || c == '?' || c == '#')
+				return i;
+		}
+		return n;
+	}
+
+	//index of the first character after the path that starts at the given index
+	private static int pathEnd(String s, int start) {
+		int n = s.length();
+		for(int i = start; i < n; i++) {
+			char c = s.charAt(i);
+			if(c == '?' || c == '#')
+				return i;
+		}
+		return n;
+	}
+
+	/**
+	 * Removes "." and ".." segments from the path that starts at the given index of a string; the
+	 * path is either empty or starts with a slash. The query and fragment that follow the path, if
+	 * any, are left as they are.
+	 */
+	private static String removeDotSegments(String s, int start) {
+		int end = pathEnd(s, start);
+		if(!hasDotSegment(s, start, end))
+			return start == 0 ? s : s.substring(start);
+
+		//segments are kept on a stack of (start, end) offsets into the input
+		int[] segments = new int[2 * (end - start)];
+		int top = 0;
+		boolean trailingSlash = false;
+
+		int i = start + 1;
+		while(i <= end) {
+			int next = s.indexOf('/', i);
+			if(next < 0 || next > end)
+				next = end;
+
+			if(isDotSegment(s, i, next) == 1) {
+				trailingSlash = true;
+			} else if(isDotSegment(s, i, next) == 2) {
+				if(top > 0)
+					top -= 2;
+				trailingSlash = true;
+			} else {
+				segments[top++] = i;
+				segments[top++] = next;
+				trailingSlash = false;
+			}
+			i = next + 1;
+		}
+
+		StringBuilder sb = new StringBuilder(s.length() - start);
+		for(int k = 0; k < top; k += 2) {
+			sb.append('/');
+			sb.append(s, segments[k], segments[k + 1]);
+		}
+		if(trailingSlash || top == 0)
+			sb.append('/');
+		sb.append(s, end, s.length());
+
+		return sb.toString();
+	}
+
+	private static String lowerCaseScheme(String url, int schemeEnd) {
+		for(int i = 0; i < schemeEnd; i++) {
+			char c = url.charAt(i);
+			if(c >= 'A' && c <= 'Z')
+				return url.substring(0, schemeEnd).toLowerCase() + url.substring(schemeEnd);
+		}
+		return url;
+	}
+
+	/**
+	 * Normalizes the path between the given indexes of a string the way <code>URI.normalize()</code>
+	 * does, which differs from RFC 3986: empty segments are dropped, and a ".." segment that has no
+	 * preceding segment to remove (e.g., in "/../a") is kept rather than discarded.
+	 */
+	private static String normalizePath(String s, int start, int end) {
+		//segments are kept on a stack of (start, end) offsets into the input
+		int[] segments = new int[end - start + 2];
+		int top = 0;
+
+		int i = start;
+		while(i < end) {
+			int next = s.indexOf('/', i);
+			if(next < 0 || next > end)
+				next = end;
+
+			int dots = isDotSegment(s, i, next);
+			if(dots == 2 && top > 0 && isDotSegment(s, segments[top - 2], segments[top - 1]) != 2) {
+				top -= 2;
+			} else if(next > i && dots != 1) {
+				segments[top++] = i;
+				segments[top++] = next;
+			}
+			i = next + 1;
+		}
+
+		StringBuilder sb = new StringBuilder(end - start);
+		for(int k = 0; k < top; k += 2) {
+			sb.append('/');
+			sb.append(s, segments[k], segments[k + 1]);
+		}
+		return sb.toString();
+	}
+
+	private static boolean hasDotSegment(String s, int start, int end) {
+		for(int i = start; i < end; i++) {
+			if(s.charAt(i) == '/') {
+				int next = s.indexOf('/', i + 1);
+				if(isDotSegment(s, i + 1, next < 0 || next > end ? end : next) > 0)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	//1 for ".", 2 for "..", 0 otherwise
+	private static int isDotSegment(String s, int start, int end) {
+		if(end - start == 1 && s.charAt(start) == '.')
+			return 1;
+		if(end - start == 2 && s.charAt(start) == '.' && s.charAt(start + 1) == '.')
+			return 2;
+		return 0;
+	}
+
+	//decodes percent-escapes, taking escaped bytes to be UTF-8
+	private static String decode(String s) {
+		if(s.indexOf('%') < 0)
+			return s;
+
+		StringBuilder sb = new StringBuilder(s.length());
+		byte[] bytes = new byte[s.length()];
+		int n = s.length();
+		int i = 0;
+		while(i < n) {
+			char c = s.charAt(i);
+			if(c != '%' || i + 2 >= n || hex(s.charAt(i + 1)) < 0 || hex(s.charAt(i + 2)) < 0) {
+				sb.append(c);
+				i++;
+				continue;
+			}
+
+			int count = 0;
+			while(i + 2 < n && s.charAt(i) == '%' && hex(s.charAt(i + 1)) >= 0 && hex(s.charAt(i + 2)) >= 0) {
+				bytes[count++] = (byte) ((hex(s.charAt(i + 1)) << 4) | hex(s.charAt(i + 2)));
+				i += 3;
+			}
+			decodeUTF8(sb, bytes, count);
+		}
+
+		return sb.toString();
+	}
+
+	private static void decodeUTF8(StringBuilder sb, byte[] bytes, int count) {
+		int i = 0;
+		while(i < count) {
+			int b = bytes[i] & 0xff;
+			int length = b < 0x80 ? 1 : b < 0xc2 ? 0 : b < 0xe0 ? 2 : b < 0xf0 ? 3 : b < 0xf5 ? 4 : 0;
+			if(length == 0 || i + length > count) {
+				sb.append('\ufffd');
+				i++;
+				continue;
+			}
+
+			int cp = length == 1 ? b : b & (0x3f >> (length - 1));
+			boolean valid = true;
+			for(int k = 1; k < length; k++) {
+				int cont = bytes[i + k] & 0xff;
+				if((cont & 0xc0) != 0x80) {
+					valid = false;
+					break;
+				}
+				cp = (cp << 6) | (cont & 0x3f);
+			}
+
+			if(!valid) {
+				sb.append('\ufffd');
+				i++;
+				continue;
+			}
+
+			sb.appendCodePoint(cp);
+			i += length;
+		}
+	}
+
+	//percent-encodes what URI's multi-argument constructors wouldn't leave in a path
+	private static void encodePath(StringBuilder sb, String path, int end) {
+		for(int i = 0; i < end; i++) {
+			char c = path.charAt(i);
+			if(isPathChar(c)) {
+				sb.append(c);
+			} else if(c < 0x80) {
+				appendEscape(sb, c);
+			} else if(Character.isSpaceChar(c) || Character.isISOControl(c)) {
+				for(byte b : encodeUTF8(String.valueOf(c))) {
+					appendEscape(sb, b & 0xff);
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+	}
+
+	private static byte[] encodeUTF8(String s) {
+		try {
+			return s.getBytes("UTF-8");
+		} catch(java.io.UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void appendEscape(StringBuilder sb, int b) {
+		sb.append('%');
+		sb.append(HEX[b >> 4]);
+		sb.append(HEX[b & 0xf]);
+	}
+
+	private static boolean isPathChar(char c) {
+		if(isAlpha(c) || (c >= '0' && c <= '9'))
+			return true;
+
+		switch(c) {
+		case '-': case '_': case '.': case '!': case '~': case '*': case '\'': case '(': case ')':
+		case ':': case '@': case '&': case '=': case '+': case '$': case ',': case ';': case '/':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isValidHost(String s, int start, int end) {
+		if(start >= end)
+			return false;
+
+		if(s.charAt(end - 1) == '.')
+			end--;
+
+		//every label must start and end with a letter or digit, and the last one must start with a
+		//letter unless the whole host is an IPv4 address
+		boolean ipv4 = true;
+		int labels = 0;
+		int labelStart = start;
+		for(int i = start; i <= end; i++) {
+			char c = i < end ? s.charAt(i) : '.';
+			if(c == '.') {
+				if(i == labelStart || s.charAt(i - 1) == '-')
+					return false;
+				labels++;
+				if(i - labelStart > 3)
+					ipv4 = false;
+				labelStart = i + 1;
+			} else if(isAlpha(c)) {
+				ipv4 = false;
+			} else if(c == '-') {
+				if(i == labelStart)
+					return false;
+				ipv4 = false;
+			} else if(c < '0' || c > '9') {
+				return false;
+			}
+		}
+
+		if(ipv4 && labels == 4)
+			return true;
+
+		return isAlpha(s.charAt(Math.max(start, s.lastIndexOf('.', end - 1) + 1)));
+	}
+
+	private static boolean isAlpha(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static int hex(char c) {
+		if(c >= '0' && c <= '9')
+			return c - '0';
+		if(c >= 'a' && c <= 'f')
+			return c - 'a' + 10;
+		if(c >= 'A' && c <= 'F')
+			return c - 'A' + 10;
+		return -1;
+	}
+}
@@ -235,7 +235,7 @@ public class CorpusVocabNormalizerAndNumberizer {
 			conf.setInputFormat(XMLInput.class);
 			FileOutputFormat.setOutputPath(conf, output);
 			conf.setOutputFormat(SequenceFileOutputFormat.class);
-			conf.setJar("/chomes/fture/jars/ivory.jar");
+			conf.setJarByClass(CorpusVocabNormalizerAndNumberizer.class);
 			conf.set("mapred.child.java.opts", "-Xmx2048m");			
 			System.out.println("Running job "+conf.getJobName());
 			System.out.println("Input: " + inputPaths);
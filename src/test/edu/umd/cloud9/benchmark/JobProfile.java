@@ -0,0 +1,310 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.benchmark;
+
+import java.util.Locale;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.google.common.collect.Maps;
+
+/**
+ * <p>
+ * Profile of a single MapReduce job run by the local job runner, as recorded by a
+ * {@link LocalJobProfiler}: when each phase ended, how much was spilled and merged, and the
+ * counters of the job. All times are in milliseconds since the epoch, as logged.
+ * </p>
+ *
+ * <p>
+ * The local job runner runs the map tasks of a job one after the other, and then its (single)
+ * reduce task, which starts by merging the outputs of all maps; phases are therefore delimited as
+ * follows:
+ * </p>
+ *
+ * <ul>
+ * <li><b>map</b>: from the submission of the job until the last map task is done, including the
+ * sorting and spilling of map output;</li>
+ * <li><b>shuffle</b>: from then until the reduce task is down to its last merge pass, i.e., until
+ * it starts calling the reducer;</li>
+ * <li><b>reduce</b>: from then until the reduce task is done, including writing its output.</li>
+ * </ul>
+ */
+public class JobProfile {
+  /**
+   * Counter group of the counters maintained by the framework.
+   */
+  public static final String FRAMEWORK_GROUP = "Map-Reduce Framework";
+
+  /**
+   * Counter group of the file system counters.
+   */
+  public static final String FILE_SYSTEM_GROUP = "FileSystemCounters";
+
+  /**
+   * Header of the lines returned by {@link #toCSV()}.
+   */
+  public static final String CSV_HEADER =
+      "step,job,succeeded,total_ms,map_ms,shuffle_ms,reduce_ms,map_tasks,reduce_tasks,spills,"
+          + "spill_ms,map_input_records,map_output_records,map_output_bytes,"
+          + "combine_input_records,combine_output_records,shuffle_bytes,reduce_input_records,"
+          + "reduce_output_records,file_bytes_read,file_bytes_written";
+
+  private final String jobId;
+  private final long startTime;
+  private String step = "";
+  private long mapEndTime = -1;
+  private long shuffleEndTime = -1;
+  private long reduceEndTime = -1;
+  private long completionTime = -1;
+  private boolean succeeded = false;
+  private int mapTasks = 0;
+  private int reduceTasks = 0;
+  private int spills = 0;
+  private long spillMillis = 0;
+  private long shuffleBytes = 0;
+  private final Map<String, Map<String, Long>> counters = Maps.newLinkedHashMap();
+
+  /**
+   * Creates a profile for a job submitted at a given time.
+   */
+  public JobProfile(String jobId, long startTime) {
+    this.jobId = jobId;
+    this.startTime = startTime;
+  }
+
+  /**
+   * Returns the id of the job. Ids assigned by the local job runner are only unique within a
+   * {@link org.apache.hadoop.mapred.JobClient}, so different jobs may have the same id.
+   */
+  public String getJobId() {
+    return jobId;
+  }
+
+  /**
+   * Returns the name of the pipeline step that ran this job, or an empty string if unknown.
+   */
+  public String getStep() {
+    return step;
+  }
+
+  /**
+   * Sets the name of the pipeline step that ran this job.
+   */
+  public void setStep(String step) {
+    this.step = step;
+  }
+
+  /**
+   * Returns whether the job completed successfully.
+   */
+  public boolean isSucceeded() {
+    return succeeded;
+  }
+
+  /**
+   * Returns the number of map tasks that were done.
+   */
+  public int getMapTasks() {
+    return mapTasks;
+  }
+
+  /**
+   * Returns the number of reduce tasks that were done.
+   */
+  public int getReduceTasks() {
+    return reduceTasks;
+  }
+
+  /**
+   * Returns the number of spills of map output, over all map tasks.
+   */
+  public int getSpills() {
+    return spills;
+  }
+
+  /**
+   * Returns the time spent sorting and writing spills, over all map tasks. This overlaps with the
+   * map phase, since spills happen in the background while the mapper runs.
+   */
+  public long getSpillMillis() {
+    return spillMillis;
+  }
+
+  /**
+   * Returns the number of bytes of map output merged by the reduce task. The local job runner
+   * doesn't copy map outputs, so its "Reduce shuffle bytes" counter is always zero; this is what a
+   * cluster would have copied.
+   */
+  public long getShuffleBytes() {
+    return shuffleBytes;
+  }
+
+  /**
+   * Returns the time from the submission of the job until its last task was done.
+   */
+  public long getTotalMillis() {
+    return Math.max(Math.max(mapEndTime, reduceEndTime), startTime) - startTime;
+  }
+
+  /**
+   * Returns the duration of the map phase.
+   */
+  public long getMapMillis() {
+    return mapEndTime < 0 ? 0 : mapEndTime - startTime;
+  }
+
+  /**
+   * Returns the duration of the shuffle phase, which is zero for a job without reducers.
+   */
+  public long getShuffleMillis() {
+    if (reduceEndTime < 0) {
+      return 0;
+    }
+    return Math.max(0, getShuffleEndTime() - Math.max(mapEndTime, startTime));
+  }
+
+  /**
+   * Returns the duration of the reduce phase, which is zero for a job without reducers.
+   */
+  public long getReduceMillis() {
+    return reduceEndTime < 0 ? 0 : reduceEndTime - getShuffleEndTime();
+  }
+
+  // a reduce task with no input never merges, so its shuffle ends when the last map is done
+  private long getShuffleEndTime() {
+    return shuffleEndTime >= 0 ? shuffleEndTime : Math.max(mapEndTime, startTime);
+  }
+
+  /**
+   * Returns the time between the last task of the job being done and the client noticing it. The
+   * client polls for progress once a second, so this is overhead of the local job runner rather
+   * than of the job.
+   */
+  public long getPollingMillis() {
+    return completionTime < 0 ? 0 : completionTime - startTime - getTotalMillis();
+  }
+
+  /**
+   * Returns a counter, or -1 if the job didn't report it.
+   */
+  public long getCounter(String group, String name) {
+    Map<String, Long> g = counters.get(group);
+    if (g == null || !g.containsKey(name)) {
+      return -1;
+    }
+    return g.get(name);
+  }
+
+  /**
+   * Returns the counters of the job, by group and name.
+   */
+  public Map<String, Map<String, Long>> getCounters() {
+    return counters;
+  }
+
+  void mapTaskDone(long time) {
+    mapTasks++;
+    mapEndTime = time;
+  }
+
+  void reduceTaskDone(long time) {
+    reduceTasks++;
+    reduceEndTime = time;
+  }
+
+  void spilled(long millis) {
+    spills++;
+    spillMillis += millis;
+  }
+
+  void shuffled(long time, long bytes) {
+    shuffleEndTime = time;
+    shuffleBytes += bytes;
+  }
+
+  void completed(long time, boolean succeeded) {
+    this.completionTime = time;
+    this.succeeded = succeeded;
+  }
+
+  void setCounter(String group, String name, long value) {
+    Map<String, Long> g = counters.get(group);
+    if (g == null) {
+      g = Maps.newLinkedHashMap();
+      counters.put(group, g);
+    }
+    g.put(name, value);
+  }
+
+  /**
+   * Returns this profile as JSON.
+   */
+  public JSONObject toJSON() throws JSONException {
+    JSONObject json = new JSONObject();
+    json.put("step", step);
+    json.put("job", jobId);
+    json.put("succeeded", succeeded);
+    json.put("totalMillis", getTotalMillis());
+    json.put("mapMillis", getMapMillis());
+    json.put("shuffleMillis", getShuffleMillis());
+    json.put("reduceMillis", getReduceMillis());
+    json.put("pollingMillis", getPollingMillis());
+    json.put("mapTasks", mapTasks);
+    json.put("reduceTasks", reduceTasks);
+    json.put("spills", spills);
+    json.put("spillMillis", spillMillis);
+    json.put("shuffleBytes", shuffleBytes);
+
+    JSONObject groups = new JSONObject();
+    for (Map.Entry<String, Map<String, Long>> g : counters.entrySet()) {
+      JSONObject group = new JSONObject();
+      for (Map.Entry<String, Long> c : g.getValue().entrySet()) {
+        group.put(c.getKey(), c.getValue().longValue());
+      }
+      groups.put(g.getKey(), group);
+    }
+    json.put("counters", groups);
+    return json;
+  }
+
+  /**
+   * Returns this profile as a line of CSV, with the fields named in {@link #CSV_HEADER}.
+   */
+  public String toCSV() {
+    return String.format(Locale.US,
+        "%s,%s,%b,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d", step, jobId, succeeded,
+        getTotalMillis(), getMapMillis(), getShuffleMillis(), getReduceMillis(), mapTasks,
+        reduceTasks, spills, spillMillis, getCounter(FRAMEWORK_GROUP, "Map input records"),
+        getCounter(FRAMEWORK_GROUP, "Map output records"),
+        getCounter(FRAMEWORK_GROUP, "Map output bytes"),
+        getCounter(FRAMEWORK_GROUP, "Combine input records"),
+        getCounter(FRAMEWORK_GROUP, "Combine output records"), shuffleBytes,
+        getCounter(FRAMEWORK_GROUP, "Reduce input records"),
+        getCounter(FRAMEWORK_GROUP, "Reduce output records"),
+        getCounter(FILE_SYSTEM_GROUP, "FILE_BYTES_READ"),
+        getCounter(FILE_SYSTEM_GROUP, "FILE_BYTES_WRITTEN"));
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%-40s %-18s %8d ms (map %7d, shuffle %6d, reduce %7d) %3d spills %12d B shuffled", step, jobId, getTotalMillis(), getMapMillis(), getShuffleMillis(), getReduceMillis(),
+        spills, shuffleBytes);
+  }
+}
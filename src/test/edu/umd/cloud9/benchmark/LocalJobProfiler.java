@@ -0,0 +1,189 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.benchmark;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+import com.google.common.collect.Lists;
+
+/**
+ * <p>
+ * Profiles the MapReduce jobs run by the local job runner, by listening to what the framework logs
+ * as the jobs progress. The local job runner doesn't keep task reports or job histories, and jobs
+ * are submitted by unmodified {@link org.apache.hadoop.util.Tool}s that don't hand out their
+ * {@link org.apache.hadoop.mapred.RunningJob}s, so the log is the only record of when the tasks of a
+ * job were done, of spills and merges, and of the final counters. Each job becomes a
+ * {@link JobProfile}.
+ * </p>
+ *
+ * <p>
+ * While attached, the profiler makes the <code>org.apache.hadoop.mapred</code> loggers log at
+ * <code>INFO</code>, but keeps these messages to itself: only warnings and errors are passed on to
+ * the appenders of the root logger, except for the warning that there is no job jar, which is
+ * expected.
+ * </p>
+ */
+public class LocalJobProfiler extends AppenderSkeleton {
+  private static final String MAPRED_LOGGER = "org.apache.hadoop.mapred";
+
+  private static final Pattern RUNNING_JOB = Pattern.compile("^Running job: (\\S+)");
+  private static final Pattern TASK_DONE = Pattern.compile("^Task '\\S+_([mr])_\\d+_\\d+' done\\.");
+  private static final Pattern LAST_MERGE_PASS = Pattern
+      .compile("^Down to the last merge-pass, .* total size: (\\d+) bytes");
+  private static final Pattern COUNTER_GROUP = Pattern.compile("^  (\\S.*)$");
+  private static final Pattern COUNTER = Pattern.compile("^    (.+)=(-?\\d+)$");
+
+  private final List<JobProfile> jobs = Lists.newArrayList();
+  private JobProfile current = null;
+
+  // whether a map task is running, as opposed to the reduce task merging map outputs
+  private boolean inMap = false;
+  private long spillStartTime = -1;
+
+  // whether the counters of the current job are being logged, and which group
+  private boolean inCounters = false;
+  private String counterGroup = null;
+
+  private Level savedLevel;
+  private boolean savedAdditivity;
+
+  /**
+   * Starts listening to the MapReduce framework.
+   */
+  public synchronized void attach() {
+    Logger logger = Logger.getLogger(MAPRED_LOGGER);
+    savedLevel = logger.getLevel();
+    savedAdditivity = logger.getAdditivity();
+    logger.setLevel(Level.INFO);
+    logger.setAdditivity(false);
+    logger.addAppender(this);
+  }
+
+  /**
+   * Stops listening to the MapReduce framework, and restores its loggers as they were.
+   */
+  public synchronized void detach() {
+    Logger logger = Logger.getLogger(MAPRED_LOGGER);
+    logger.removeAppender(this);
+    logger.setLevel(savedLevel);
+    logger.setAdditivity(savedAdditivity);
+  }
+
+  /**
+   * Returns the profiles of the jobs seen so far, in the order they were submitted.
+   */
+  public synchronized List<JobProfile> getJobs() {
+    return Lists.newArrayList(jobs);
+  }
+
+  /**
+   * Forgets the jobs seen so far.
+   */
+  public synchronized void clear() {
+    jobs.clear();
+    current = null;
+  }
+
+  @Override
+  protected void append(LoggingEvent event) {
+    String message = event.getRenderedMessage();
+    if (message == null) {
+      return;
+    }
+
+    // there is never a job jar when running locally
+    if (event.getLevel().isGreaterOrEqual(Level.WARN) && !message.startsWith("No job jar file set")) {
+      Logger.getRootLogger().callAppenders(event);
+    }
+    handle(event.getLoggerName(), event.timeStamp, message);
+  }
+
+  /**
+   * Processes a message logged by the MapReduce framework; this is where jobs are recognized.
+   *
+   * @param loggerName name of the logger the message came from
+   * @param time time of the message, in milliseconds
+   * @param message the message
+   */
+  synchronized void handle(String loggerName, long time, String message) {
+    Matcher m;
+    // counters are logged by the client, while tasks of other jobs may be logging
+    if (inCounters && loggerName.endsWith(".JobClient")) {
+      if ((m = COUNTER.matcher(message)).matches() && counterGroup != null) {
+        current.setCounter(counterGroup, m.group(1), Long.parseLong(m.group(2)));
+        return;
+      }
+      if ((m = COUNTER_GROUP.matcher(message)).matches()) {
+        counterGroup = m.group(1);
+        return;
+      }
+      inCounters = false;
+    }
+
+    if ((m = RUNNING_JOB.matcher(message)).find()) {
+      current = new JobProfile(m.group(1), time);
+      jobs.add(current);
+      inMap = false;
+      spillStartTime = -1;
+      return;
+    }
+
+    if (current == null) {
+      return;
+    }
+
+    if (message.startsWith("io.sort.mb")) {
+      inMap = true;
+    } else if (message.startsWith("Spilling map output")
+        || message.startsWith("Starting flush of map output")) {
+      spillStartTime = time;
+    } else if (message.startsWith("Finished spill")) {
+      current.spilled(spillStartTime < 0 ? 0 : time - spillStartTime);
+      spillStartTime = -1;
+    } else if (!inMap && (m = LAST_MERGE_PASS.matcher(message)).find()) {
+      current.shuffled(time, Long.parseLong(m.group(1)));
+    } else if ((m = TASK_DONE.matcher(message)).find()) {
+      if (m.group(1).equals("m")) {
+        current.mapTaskDone(time);
+        inMap = false;
+      } else {
+        current.reduceTaskDone(time);
+      }
+    } else if (message.startsWith("Job complete:")) {
+      current.completed(time, true);
+    } else if (message.startsWith("Job Failed") || message.startsWith("Job failed")) {
+      current.completed(time, false);
+    } else if (message.startsWith("Counters:")) {
+      inCounters = true;
+      counterGroup = null;
+    }
+  }
+
+  public boolean requiresLayout() {
+    return false;
+  }
+
+  public void close() {
+  }
+}
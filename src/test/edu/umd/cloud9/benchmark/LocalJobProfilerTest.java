@@ -0,0 +1,142 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class LocalJobProfilerTest {
+  private static final String CLIENT = "org.apache.hadoop.mapred.JobClient";
+  private static final String MAP_TASK = "org.apache.hadoop.mapred.MapTask";
+  private static final String MERGER = "org.apache.hadoop.mapred.Merger";
+  private static final String TASK = "org.apache.hadoop.mapred.TaskRunner";
+
+  @Test
+  public void testHandle() {
+    LocalJobProfiler profiler = new LocalJobProfiler();
+    profiler.handle(CLIENT, 1000, "Running job: job_local_0001");
+    // two maps, the first of which spills twice
+    profiler.handle(MAP_TASK, 1010, "io.sort.mb = 100");
+    profiler.handle(MAP_TASK, 1100, "Spilling map output: record full = true");
+    profiler.handle(MAP_TASK, 1150, "Finished spill 0");
+    profiler.handle(MAP_TASK, 1200, "Starting flush of map output");
+    profiler.handle(MAP_TASK, 1220, "Finished spill 1");
+    profiler.handle(MERGER, 1230, "Merging 2 sorted segments");
+    profiler.handle(MERGER, 1240,
+        "Down to the last merge-pass, with 2 segments left of total size: 999 bytes");
+    profiler.handle(TASK, 1300, "Task 'attempt_local_0001_m_000000_0' done.");
+    profiler.handle(MAP_TASK, 1310, "io.sort.mb = 100");
+    profiler.handle(MAP_TASK, 1400, "Starting flush of map output");
+    profiler.handle(MAP_TASK, 1410, "Finished spill 0");
+    profiler.handle(TASK, 1500, "Task 'attempt_local_0001_m_000001_0' done.");
+    // the reduce task merges the map outputs
+    profiler.handle(MERGER, 1520, "Merging 2 sorted segments");
+    profiler.handle(MERGER, 1550,
+        "Down to the last merge-pass, with 2 segments left of total size: 12345 bytes");
+    profiler.handle(TASK, 1900, "Task 'attempt_local_0001_r_000000_0' done.");
+    profiler.handle(CLIENT, 2400, "Job complete: job_local_0001");
+    profiler.handle(CLIENT, 2401, "Counters: 3");
+    profiler.handle(CLIENT, 2401, "  Map-Reduce Framework");
+    // a message from elsewhere doesn't interrupt the counters
+    profiler.handle("org.apache.hadoop.mapred.LocalJobRunner", 2401, "reduce > reduce");
+    profiler.handle(CLIENT, 2401, "    Map input records=10");
+    profiler.handle(CLIENT, 2401, "    Map output bytes=2000");
+    profiler.handle(CLIENT, 2401, "  FileSystemCounters");
+    profiler.handle(CLIENT, 2401, "    FILE_BYTES_READ=-1");
+
+    // a job without reducers, which fails
+    profiler.handle(CLIENT, 3000, "Running job: job_local_0001");
+    profiler.handle(TASK, 3100, "Task 'attempt_local_0001_m_000000_0' done.");
+    profiler.handle(CLIENT, 3200, "Job Failed: NA");
+
+    List<JobProfile> jobs = profiler.getJobs();
+    assertEquals(2, jobs.size());
+
+    JobProfile job = jobs.get(0);
+    assertEquals("job_local_0001", job.getJobId());
+    assertTrue(job.isSucceeded());
+    assertEquals(2, job.getMapTasks());
+    assertEquals(1, job.getReduceTasks());
+    assertEquals(3, job.getSpills());
+    assertEquals(50 + 20 + 10, job.getSpillMillis());
+    assertEquals(12345, job.getShuffleBytes());
+    assertEquals(900, job.getTotalMillis());
+    assertEquals(500, job.getMapMillis());
+    assertEquals(50, job.getShuffleMillis());
+    assertEquals(350, job.getReduceMillis());
+    assertEquals(500, job.getPollingMillis());
+    assertEquals(10, job.getCounter(JobProfile.FRAMEWORK_GROUP, "Map input records"));
+    assertEquals(2000, job.getCounter(JobProfile.FRAMEWORK_GROUP, "Map output bytes"));
+    assertEquals(-1, job.getCounter(JobProfile.FRAMEWORK_GROUP, "Reduce input records"));
+    assertEquals(2, job.getCounters().size());
+
+    job = jobs.get(1);
+    assertFalse(job.isSucceeded());
+    assertEquals(1, job.getMapTasks());
+    assertEquals(0, job.getReduceTasks());
+    assertEquals(100, job.getMapMillis());
+    assertEquals(0, job.getShuffleMillis());
+    assertEquals(0, job.getReduceMillis());
+    assertEquals(0, job.getCounters().size());
+
+    profiler.clear();
+    assertEquals(0, profiler.getJobs().size());
+  }
+
+  @Test
+  public void testRunPipeline() throws Exception {
+    File dir = File.createTempFile("pipelines", "");
+    dir.delete();
+    try {
+      LocalPipelineRunner runner = new LocalPipelineRunner(dir);
+      PipelineResult result = runner.run(new LocalPipelines.InvertedIndex(100, 10, 50));
+
+      assertEquals("invertedindex", result.getName());
+      assertEquals(1, result.getJobs().size());
+
+      JobProfile job = result.getJobs().get(0);
+      assertEquals("BuildInvertedIndex", job.getStep());
+      assertTrue(job.isSucceeded());
+      assertEquals(1, job.getMapTasks());
+      assertEquals(1, job.getReduceTasks());
+      assertTrue(job.getShuffleBytes() > 0);
+      assertEquals(100, job.getCounter(JobProfile.FRAMEWORK_GROUP, "Map input records"));
+      assertEquals(50, job.getCounter(JobProfile.FRAMEWORK_GROUP, "Reduce output records"));
+
+      JSONObject json = LocalPipelineRunner.toJSON(Collections.singletonList(result), 1);
+      assertEquals(1, json.getJSONArray("results").length());
+      assertEquals(1, result.toCSV().size());
+    } finally {
+      FileUtil.fullyDelete(dir);
+    }
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(LocalJobProfilerTest.class);
+  }
+}
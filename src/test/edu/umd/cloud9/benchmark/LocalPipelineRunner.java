@@ -0,0 +1,270 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.google.common.collect.Lists;
+
+/**
+ * <p>
+ * Runs MapReduce {@link Pipeline}s end to end, in this JVM, with the local job runner and the
+ * local file system, on synthetic input, and profiles each of their jobs with a
+ * {@link LocalJobProfiler}. This makes it possible to compare formats and algorithms on one
+ * machine before running them on a cluster: per job, the report gives the time spent in the map,
+ * shuffle and reduce phases, spills, the bytes that would have been shuffled, and all counters.
+ * </p>
+ *
+ * <p>
+ * Usage, e.g., through the <code>pipeline-benchmark</code> target of the Ant build:
+ * </p>
+ *
+ * <pre>
+ * LocalPipelineRunner [-pipeline names] [-scale n] [-workdir dir] [-json file] [-csv file] [-list]
+ * </pre>
+ *
+ * <p>
+ * Bear in mind that the local job runner runs all tasks of a job one after the other, and at most
+ * one reducer, so the numbers say how much work a job does, not how well it would scale out.
+ * </p>
+ */
+public class LocalPipelineRunner {
+  private final File workDir;
+  private final Configuration conf;
+
+  /**
+   * Creates a runner.
+   *
+   * @param workDir directory under which input, output and intermediate data are kept
+   */
+  public LocalPipelineRunner(File workDir) {
+    this.workDir = workDir.getAbsoluteFile();
+
+    conf = new Configuration();
+    conf.set("mapred.job.tracker", "local");
+    conf.set("fs.default.name", "file:///");
+    conf.set("hadoop.tmp.dir", new File(this.workDir, "tmp").getPath());
+  }
+
+  /**
+   * Returns the configuration the jobs run with.
+   */
+  public Configuration getConf() {
+    return conf;
+  }
+
+  /**
+   * Generates the input of a pipeline, runs its steps, and returns how long everything took. The
+   * data of the pipeline is left under the working directory, in a directory named after it.
+   */
+  public PipelineResult run(Pipeline pipeline) throws Exception {
+    Path dir = new Path(new File(workDir, pipeline.getName()).getPath());
+    FileSystem fs = FileSystem.get(conf);
+    fs.delete(dir, true);
+    fs.mkdirs(dir);
+
+    long start = System.currentTimeMillis();
+    pipeline.generate(conf, dir);
+    PipelineResult result = new PipelineResult(pipeline.getName(),
+        System.currentTimeMillis() - start);
+
+    LocalJobProfiler profiler = new LocalJobProfiler();
+    profiler.attach();
+    try {
+      for (Pipeline.Step step : pipeline.getSteps(dir)) {
+        profiler.clear();
+        start = System.currentTimeMillis();
+        step.run(conf);
+        result.addStep(step.getName(), System.currentTimeMillis() - start, profiler.getJobs());
+      }
+    } finally {
+      profiler.detach();
+    }
+    return result;
+  }
+
+  /**
+   * Returns the pipelines with the given names, or all of them if none are given.
+   */
+  public static List<Pipeline> getPipelines(String[] names, int scale) {
+    List<Pipeline> all = LocalPipelines.getPipelines(scale);
+    if (names == null) {
+      return all;
+    }
+
+    List<Pipeline> pipelines = Lists.newArrayList();
+    for (String name : names) {
+      Pipeline found = null;
+      for (Pipeline p : all) {
+        if (p.getName().equals(name.trim())) {
+          found = p;
+        }
+      }
+      if (found == null) {
+        throw new IllegalArgumentException("Unknown pipeline: " + name);
+      }
+      pipelines.add(found);
+    }
+    return pipelines;
+  }
+
+  /**
+   * Returns the results of a run, along with a description of the environment, as JSON.
+   */
+  public static JSONObject toJSON(List<PipelineResult> results, int scale) throws JSONException {
+    JSONObject json = new JSONObject();
+    json.put("timestamp", System.currentTimeMillis());
+    json.put("java.version", System.getProperty("java.version"));
+    json.put("java.vm.name", System.getProperty("java.vm.name"));
+    json.put("os.name", System.getProperty("os.name"));
+    json.put("os.arch", System.getProperty("os.arch"));
+    json.put("processors", Runtime.getRuntime().availableProcessors());
+    json.put("maxMemory", Runtime.getRuntime().maxMemory());
+    json.put("scale", scale);
+
+    JSONArray array = new JSONArray();
+    for (PipelineResult result : results) {
+      array.put(result.toJSON());
+    }
+    json.put("results", array);
+    return json;
+  }
+
+  /**
+   * Writes results as CSV, one line per job after a header.
+   */
+  public static void writeCSV(List<PipelineResult> results, File file) throws IOException {
+    PrintWriter out = new PrintWriter(new FileWriter(file));
+    out.println(PipelineResult.CSV_HEADER);
+    for (PipelineResult result : results) {
+      for (String line : result.toCSV()) {
+        out.println(line);
+      }
+    }
+    out.close();
+  }
+
+  private static final String PIPELINE_OPTION = "pipeline";
+  private static final String SCALE_OPTION = "scale";
+  private static final String WORKDIR_OPTION = "workdir";
+  private static final String JSON_OPTION = "json";
+  private static final String CSV_OPTION = "csv";
+  private static final String LIST_OPTION = "list";
+
+  /**
+   * Runs pipelines from the command line.
+   */
+  @SuppressWarnings("static-access")
+  public static void main(String[] args) throws Exception {
+    Options options = new Options();
+    options.addOption(OptionBuilder.withArgName("names").hasArg()
+        .withDescription("comma-separated pipelines (default: all)").create(PIPELINE_OPTION));
+    options.addOption(OptionBuilder.withArgName("n").hasArg()
+        .withDescription("input size multiplier (default: 1)").create(SCALE_OPTION));
+    options.addOption(OptionBuilder.withArgName("dir").hasArg()
+        .withDescription("working directory, kept afterwards (default: a temporary directory)")
+        .create(WORKDIR_OPTION));
+    options.addOption(OptionBuilder.withArgName("file").hasArg()
+        .withDescription("write results as JSON").create(JSON_OPTION));
+    options.addOption(OptionBuilder.withArgName("file").hasArg()
+        .withDescription("write results as CSV").create(CSV_OPTION));
+    options.addOption(LIST_OPTION, false, "list pipelines instead of running them");
+
+    CommandLine cmdline;
+    CommandLineParser parser = new GnuParser();
+    try {
+      cmdline = parser.parse(options, args);
+    } catch (ParseException exp) {
+      System.err.println("Error parsing command line: " + exp.getMessage());
+      HelpFormatter formatter = new HelpFormatter();
+      formatter.printHelp(LocalPipelineRunner.class.getName(), options);
+      System.exit(-1);
+      return;
+    }
+
+    int scale = Integer.parseInt(cmdline.getOptionValue(SCALE_OPTION, "1"));
+    List<Pipeline> pipelines = getPipelines(cmdline.hasOption(PIPELINE_OPTION) ?
+        cmdline.getOptionValue(PIPELINE_OPTION).split(",") : null, scale);
+
+    if (cmdline.hasOption(LIST_OPTION)) {
+      for (Pipeline p : pipelines) {
+        System.out.println(p.getName());
+      }
+      return;
+    }
+
+    // the drivers log their arguments and progress at INFO
+    Logger.getRootLogger().setLevel(Level.WARN);
+
+    boolean temporary = !cmdline.hasOption(WORKDIR_OPTION);
+    File workDir = temporary ?
+        File.createTempFile("pipelines", "") : new File(cmdline.getOptionValue(WORKDIR_OPTION));
+    if (temporary) {
+      workDir.delete();
+    }
+    workDir.mkdirs();
+
+    LocalPipelineRunner runner = new LocalPipelineRunner(workDir);
+    List<PipelineResult> results = Lists.newArrayList();
+    try {
+      for (Pipeline p : pipelines) {
+        PipelineResult result = runner.run(p);
+        System.out.println(result);
+        results.add(result);
+      }
+    } finally {
+      if (temporary) {
+        FileUtil.fullyDelete(workDir);
+      }
+    }
+
+    if (cmdline.hasOption(JSON_OPTION)) {
+      File file = new File(cmdline.getOptionValue(JSON_OPTION));
+      FileWriter out = new FileWriter(file);
+      out.write(toJSON(results, scale).toString(2));
+      out.close();
+      System.out.println("Wrote " + file);
+    }
+
+    if (cmdline.hasOption(CSV_OPTION)) {
+      File file = new File(cmdline.getOptionValue(CSV_OPTION));
+      writeCSV(results, file);
+      System.out.println("Wrote " + file);
+    }
+  }
+}
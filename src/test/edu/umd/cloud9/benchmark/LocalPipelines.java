@@ -0,0 +1,292 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.benchmark;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.collect.Lists;
+
+import edu.umd.cloud9.example.bfs.EncodeBFSGraph;
+import edu.umd.cloud9.example.bfs.IterateBFS;
+import edu.umd.cloud9.example.hits.AFormatterWG;
+import edu.umd.cloud9.example.hits.HFormatterWG;
+import edu.umd.cloud9.example.hits.HubsAndAuthorities;
+import edu.umd.cloud9.example.hits.MergeFormattedRecords;
+import edu.umd.cloud9.example.ir.BuildInvertedIndex;
+import edu.umd.cloud9.example.pagerank.BuildPageRankRecords;
+import edu.umd.cloud9.example.pagerank.RunPageRankBasic;
+import edu.umd.cloud9.webgraph.driver.ClueWebDriver;
+import edu.umd.cloud9.webgraph.normalizer.AnchorTextBasicNormalizer;
+import edu.umd.hooka.alignment.HadoopAlign;
+
+/**
+ * The pipelines run by {@link LocalPipelineRunner}. Input sizes are multiplied by a scale factor;
+ * at scale 1, each pipeline takes tens of seconds.
+ */
+public class LocalPipelines {
+  private LocalPipelines() {
+  }
+
+  /**
+   * Returns all pipelines, with inputs of the given scale.
+   */
+  public static List<Pipeline> getPipelines(int scale) {
+    List<Pipeline> pipelines = Lists.newArrayList();
+    pipelines.add(new PageRank(20000 * scale, 8, 2));
+    pipelines.add(new Hits(20000 * scale, 8, 2));
+    pipelines.add(new Bfs(20000 * scale, 8, 4));
+    pipelines.add(new InvertedIndex(20000 * scale, 50, 20000));
+    pipelines.add(new ClueWeb(2, 2, 1000 * scale));
+    pipelines.add(new Align(5000 * scale, 15, 2000));
+    return pipelines;
+  }
+
+  private static final long SEED = 1;
+
+  /**
+   * PageRank: {@link BuildPageRankRecords}, then iterations of {@link RunPageRankBasic}, first with
+   * a regular combiner, then with in-mapper combining.
+   */
+  public static class PageRank extends Pipeline {
+    private final int numNodes;
+    private final int degree;
+    private final int iterations;
+
+    public PageRank(int numNodes, int degree, int iterations) {
+      super("pagerank");
+      this.numNodes = numNodes;
+      this.degree = degree;
+      this.iterations = iterations;
+    }
+
+    public void generate(Configuration conf, Path dir) throws Exception {
+      SyntheticData.writeGraph(FileSystem.get(conf), new Path(dir, "graph.txt"), numNodes, degree,
+          SEED);
+    }
+
+    public List<Step> getSteps(Path dir) {
+      String base = new Path(dir, "pagerank").toString();
+      String n = Integer.toString(numNodes);
+      String i = Integer.toString(iterations);
+      String j = Integer.toString(2 * iterations);
+
+      List<Step> steps = Lists.newArrayList();
+      steps.add(tool("BuildPageRankRecords", new BuildPageRankRecords(),
+          new Path(dir, "graph.txt").toString(), base + "/iter0000", n));
+      steps.add(tool("RunPageRankBasic:combiner", new RunPageRankBasic(),
+          base, n, "0", i, "1", "0", "0"));
+      steps.add(tool("RunPageRankBasic:inMapperCombiner", new RunPageRankBasic(),
+          base, n, i, j, "0", "1", "0"));
+      return steps;
+    }
+  }
+
+  /**
+   * HITS: formatting of hub and authority records with {@link HFormatterWG} and
+   * {@link AFormatterWG}, {@link MergeFormattedRecords}, then iterations of
+   * {@link HubsAndAuthorities}.
+   */
+  public static class Hits extends Pipeline {
+    private final int numNodes;
+    private final int degree;
+    private final int iterations;
+
+    public Hits(int numNodes, int degree, int iterations) {
+      super("hits");
+      this.numNodes = numNodes;
+      this.degree = degree;
+      this.iterations = iterations;
+    }
+
+    public void generate(Configuration conf, Path dir) throws Exception {
+      FileSystem fs = FileSystem.get(conf);
+      SyntheticData.writeGraph(fs, new Path(dir, "graph.txt"), numNodes, degree, SEED);
+
+      // stop the node with the most in-links, as one would a spam hub
+      Writer out = new OutputStreamWriter(fs.create(new Path(dir, "stoplist.txt"), true), "UTF-8");
+      out.write("0\n");
+      out.close();
+    }
+
+    public List<Step> getSteps(Path dir) {
+      String graph = new Path(dir, "graph.txt").toString();
+      String stoplist = new Path(dir, "stoplist.txt").toUri().getPath();
+      String base = new Path(dir, "hits").toString();
+      String n = Integer.toString(numNodes);
+
+      List<Step> steps = Lists.newArrayList();
+      steps.add(tool("HFormatterWG", new HFormatterWG(),
+          graph, base + "/hubs", "1", "1", stoplist));
+      steps.add(tool("AFormatterWG", new AFormatterWG(),
+          graph, base + "/authorities", "1", "1", stoplist));
+      steps.add(tool("MergeFormattedRecords", new MergeFormattedRecords(),
+          base + "/hubs", base + "/authorities", base + "/iter0000", "1", "1"));
+      steps.add(tool("HubsAndAuthorities", new HubsAndAuthorities(),
+          base, n, "0", Integer.toString(iterations), "1", "0", "0", "1", "1"));
+      return steps;
+    }
+  }
+
+  /**
+   * Breadth-first search: {@link EncodeBFSGraph}, then iterations of {@link IterateBFS}.
+   */
+  public static class Bfs extends Pipeline {
+    private final int numNodes;
+    private final int degree;
+    private final int iterations;
+
+    public Bfs(int numNodes, int degree, int iterations) {
+      super("bfs");
+      this.numNodes = numNodes;
+      this.degree = degree;
+      this.iterations = iterations;
+    }
+
+    public void generate(Configuration conf, Path dir) throws Exception {
+      SyntheticData.writeGraph(FileSystem.get(conf), new Path(dir, "graph.txt"), numNodes, degree,
+          SEED);
+    }
+
+    public List<Step> getSteps(Path dir) {
+      String base = new Path(dir, "bfs").toString();
+
+      List<Step> steps = Lists.newArrayList();
+      steps.add(tool("EncodeBFSGraph", new EncodeBFSGraph(),
+          "-input", new Path(dir, "graph.txt").toString(),
+          "-output", base + "/iter0000", "-src", "1"));
+      for (int i = 0; i < iterations; i++) {
+        steps.add(tool("IterateBFS:" + i, new IterateBFS(),
+            "-input", base + String.format("/iter%04d", i),
+            "-output", base + String.format("/iter%04d", i + 1), "-num_partitions", "1"));
+      }
+      return steps;
+    }
+  }
+
+  /**
+   * Inverted indexing of a text collection with {@link BuildInvertedIndex}.
+   */
+  public static class InvertedIndex extends Pipeline {
+    private final int numDocs;
+    private final int averageLength;
+    private final int vocabularySize;
+
+    public InvertedIndex(int numDocs, int averageLength, int vocabularySize) {
+      super("invertedindex");
+      this.numDocs = numDocs;
+      this.averageLength = averageLength;
+      this.vocabularySize = vocabularySize;
+    }
+
+    public void generate(Configuration conf, Path dir) throws Exception {
+      SyntheticData.writeDocuments(FileSystem.get(conf), new Path(dir, "docs.txt"), numDocs,
+          averageLength, vocabularySize, SEED);
+    }
+
+    public List<Step> getSteps(Path dir) {
+      List<Step> steps = Lists.newArrayList();
+      steps.add(tool("BuildInvertedIndex", new BuildInvertedIndex(),
+          new Path(dir, "docs.txt").toString(), new Path(dir, "index").toString(), "1"));
+      return steps;
+    }
+  }
+
+  /**
+   * Web graph construction from a ClueWeb-like collection with {@link ClueWebDriver}: link
+   * extraction for each segment, then the reverse web graph and the web graph.
+   */
+  public static class ClueWeb extends Pipeline {
+    private final int numSegments;
+    private final int filesPerSegment;
+    private final int docsPerFile;
+
+    public ClueWeb(int numSegments, int filesPerSegment, int docsPerFile) {
+      super("clueweb");
+      this.numSegments = numSegments;
+      this.filesPerSegment = filesPerSegment;
+      this.docsPerFile = docsPerFile;
+    }
+
+    public void generate(Configuration conf, Path dir) throws Exception {
+      SyntheticData.writeClueWebCollection(conf, new Path(dir, "collection"),
+          new Path(dir, "docno.mapping"), numSegments, filesPerSegment, docsPerFile, SEED);
+    }
+
+    public List<Step> getSteps(Path dir) {
+      final Step driver = tool("ClueWebDriver", new ClueWebDriver(),
+          "-input", new Path(dir, "collection").toString(),
+          "-output", new Path(dir, "webgraph").toString(),
+          "-docno", new Path(dir, "docno.mapping").toUri().getPath(),
+          "-begin", "0", "-end", Integer.toString(numSegments - 1),
+          "-normalizer", AnchorTextBasicNormalizer.class.getName());
+
+      List<Step> steps = Lists.newArrayList();
+      steps.add(new Step(driver.getName()) {
+        public void run(Configuration conf) throws Exception {
+          // the driver asks for thousands of mappers, which would be as many splits; this makes
+          // one per file, as there would be with larger files on a cluster
+          Configuration c = new Configuration(conf);
+          c.setLong("mapred.min.split.size", Long.MAX_VALUE);
+          driver.run(c);
+        }
+      });
+      return steps;
+    }
+  }
+
+  /**
+   * Word alignment of a bitext with {@link HadoopAlign}: compilation of the bitext, then
+   * iterations of Model 1 and of the HMM model.
+   */
+  public static class Align extends Pipeline {
+    private final int numSentences;
+    private final int maxLength;
+    private final int vocabularySize;
+
+    public Align(int numSentences, int maxLength, int vocabularySize) {
+      super("align");
+      this.numSentences = numSentences;
+      this.maxLength = maxLength;
+      this.vocabularySize = vocabularySize;
+    }
+
+    public void generate(Configuration conf, Path dir) throws Exception {
+      SyntheticData.writeBitext(FileSystem.get(conf), new Path(dir, "bitext.xml"), "de", "en",
+          numSentences, maxLength, vocabularySize, SEED);
+    }
+
+    public List<Step> getSteps(Path dir) {
+      final String bitext = new Path(dir, "bitext.xml").toUri().getPath();
+      final String root = new Path(dir, "align").toUri().getPath();
+
+      List<Step> steps = Lists.newArrayList();
+      steps.add(new Step("HadoopAlign") {
+        public void run(Configuration conf) throws Exception {
+          // not a Tool; the extra last argument makes it run locally
+          HadoopAlign.main(new String[] { bitext, root, "de", "en", "2", "2", "false", "local" });
+        }
+      });
+      return steps;
+    }
+  }
+}
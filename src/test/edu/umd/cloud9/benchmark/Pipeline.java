@@ -0,0 +1,99 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.benchmark;
+
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * A MapReduce pipeline to run end to end with the local job runner, for
+ * {@link LocalPipelineRunner}: a generator of synthetic input, followed by a sequence of steps,
+ * each of which runs one or more jobs.
+ */
+public abstract class Pipeline {
+  private final String name;
+
+  protected Pipeline(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the name of this pipeline.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Generates the input of this pipeline.
+   *
+   * @param conf configuration for the local file system
+   * @param dir directory under which to write the input
+   */
+  public abstract void generate(Configuration conf, Path dir) throws Exception;
+
+  /**
+   * Returns the steps of this pipeline, in order.
+   *
+   * @param dir directory under which the input was generated, and under which the steps write
+   *          their output
+   */
+  public abstract List<Step> getSteps(Path dir);
+
+  /**
+   * A step of a pipeline.
+   */
+  public static abstract class Step {
+    private final String name;
+
+    protected Step(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Returns the name of this step.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Runs this step; failure is signaled by an exception.
+     *
+     * @param conf configuration that makes jobs run with the local job runner
+     */
+    public abstract void run(Configuration conf) throws Exception;
+  }
+
+  /**
+   * Returns a step that runs a {@link Tool} with some arguments.
+   */
+  public static Step tool(String name, final Tool tool, final String... args) {
+    return new Step(name) {
+      public void run(Configuration conf) throws Exception {
+        int r = ToolRunner.run(new Configuration(conf), tool, args);
+        if (r != 0) {
+          throw new RuntimeException(getName() + " returned " + r + "!");
+        }
+      }
+    };
+  }
+}
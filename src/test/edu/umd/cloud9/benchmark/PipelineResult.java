@@ -0,0 +1,153 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.benchmark;
+
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Result of running a {@link Pipeline} with {@link LocalPipelineRunner}: how long it took to
+ * generate the input and to run each step, and the profiles of the jobs of each step.
+ */
+public class PipelineResult {
+  /**
+   * Header of the lines returned by {@link #toCSV()}.
+   */
+  public static final String CSV_HEADER = "pipeline," + JobProfile.CSV_HEADER;
+
+  private final String name;
+  private final long generateMillis;
+  private final List<String> steps = Lists.newArrayList();
+  private final List<Long> stepMillis = Lists.newArrayList();
+  private final List<JobProfile> jobs = Lists.newArrayList();
+
+  /**
+   * Creates a result, to which steps are then added.
+   *
+   * @param name name of the pipeline
+   * @param generateMillis time taken to generate the input of the pipeline
+   */
+  public PipelineResult(String name, long generateMillis) {
+    this.name = name;
+    this.generateMillis = generateMillis;
+  }
+
+  /**
+   * Records a step.
+   *
+   * @param step name of the step
+   * @param millis time the step took, as seen by the caller
+   * @param stepJobs jobs run by the step
+   */
+  public void addStep(String step, long millis, List<JobProfile> stepJobs) {
+    steps.add(step);
+    stepMillis.add(millis);
+    for (JobProfile job : stepJobs) {
+      job.setStep(step);
+      jobs.add(job);
+    }
+  }
+
+  /**
+   * Returns the name of the pipeline.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the time taken to generate the input of the pipeline.
+   */
+  public long getGenerateMillis() {
+    return generateMillis;
+  }
+
+  /**
+   * Returns the time taken by all steps.
+   */
+  public long getTotalMillis() {
+    long sum = 0;
+    for (long millis : stepMillis) {
+      sum += millis;
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the profiles of the jobs run by the pipeline, in order.
+   */
+  public List<JobProfile> getJobs() {
+    return jobs;
+  }
+
+  /**
+   * Returns this result as JSON.
+   */
+  public JSONObject toJSON() throws JSONException {
+    JSONObject json = new JSONObject();
+    json.put("pipeline", name);
+    json.put("generateMillis", generateMillis);
+    json.put("totalMillis", getTotalMillis());
+
+    JSONArray array = new JSONArray();
+    for (int i = 0; i < steps.size(); i++) {
+      JSONObject step = new JSONObject();
+      step.put("step", steps.get(i));
+      step.put("millis", stepMillis.get(i).longValue());
+      JSONArray stepJobs = new JSONArray();
+      for (JobProfile job : jobs) {
+        if (job.getStep().equals(steps.get(i))) {
+          stepJobs.put(job.toJSON());
+        }
+      }
+      step.put("jobs", stepJobs);
+      array.put(step);
+    }
+    json.put("steps", array);
+    return json;
+  }
+
+  /**
+   * Returns this result as lines of CSV, one per job, with the fields named in {@link #CSV_HEADER}.
+   */
+  public List<String> toCSV() {
+    List<String> lines = Lists.newArrayList();
+    for (JobProfile job : jobs) {
+      lines.add(name + "," + job.toCSV());
+    }
+    return lines;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%s: %d ms (input generated in %d ms), %d jobs\n", name,
+        getTotalMillis(), generateMillis, jobs.size()));
+    for (int i = 0; i < steps.size(); i++) {
+      sb.append(String.format("  %-40s %8d ms\n", steps.get(i), stepMillis.get(i)));
+    }
+    for (JobProfile job : jobs) {
+      sb.append("    ").append(job).append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,348 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+
+import edu.umd.cloud9.collection.clue.ClueWarcRecord;
+
+/**
+ * <p>
+ * Generators of synthetic inputs for the MapReduce pipelines, so that these can be run end to end
+ * without real collections: link graphs in the plain-text adjacency-list format of the graph
+ * algorithms, text collections with one document per line, ClueWeb-like collections of repacked
+ * WARC records together with their docno mapping, and XML bitexts for word alignment.
+ * </p>
+ *
+ * <p>
+ * All generators are deterministic given a seed. Words are drawn from a Zipfian distribution, and
+ * link targets from a power-law distribution, so that key distributions (and therefore the work of
+ * combiners and reducers) are as skewed as in real data.
+ * </p>
+ */
+public class SyntheticData {
+  private static final NumberFormat FORMAT_W2 = new DecimalFormat("00");
+  private static final NumberFormat FORMAT_W5 = new DecimalFormat("00000");
+
+  private SyntheticData() {
+  }
+
+  /**
+   * Draws integers in [0, n) with probability proportional to 1 / (i + 1)^s.
+   */
+  public static class Zipf {
+    private final double[] cdf;
+    private final Random random;
+
+    public Zipf(int n, double s, Random random) {
+      this.random = random;
+      cdf = new double[n];
+      double sum = 0;
+      for (int i = 0; i < n; i++) {
+        sum += 1.0 / Math.pow(i + 1, s);
+        cdf[i] = sum;
+      }
+      for (int i = 0; i < n; i++) {
+        cdf[i] /= sum;
+      }
+    }
+
+    public int next() {
+      int i = Arrays.binarySearch(cdf, random.nextDouble());
+      return Math.min(i < 0 ? -i - 1 : i, cdf.length - 1);
+    }
+  }
+
+  /**
+   * Returns a word made of lowercase letters that identifies a number, e.g., to turn ranks in a
+   * vocabulary into words of realistic lengths: frequent words are short.
+   */
+  public static String word(int i) {
+    StringBuilder sb = new StringBuilder();
+    do {
+      sb.append((char) ('a' + i % 26));
+      i /= 26;
+    } while (i > 0);
+    return sb.toString();
+  }
+
+  /**
+   * Writes a directed graph as a text file, one node per line: the id of the node followed by the
+   * ids of the nodes it links to, separated by tabs. Nodes are numbered from 0; every node has a
+   * line, even if it links nowhere. Out-degrees are geometrically distributed, and link targets
+   * follow a power law, so that a few nodes have most in-links.
+   *
+   * @param fs file system to write to
+   * @param file file to write
+   * @param numNodes number of nodes
+   * @param averageDegree average out-degree
+   * @param seed random seed
+   * @return number of links
+   */
+  public static long writeGraph(FileSystem fs, Path file, int numNodes, int averageDegree,
+      long seed) throws IOException {
+    Random random = new Random(seed);
+    Zipf targets = new Zipf(numNodes, 0.8, random);
+
+    // shuffle node ids, so that popular nodes aren't all at the start of the range
+    int[] ids = new int[numNodes];
+    for (int i = 0; i < numNodes; i++) {
+      ids[i] = i;
+    }
+    for (int i = numNodes - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int t = ids[i];
+      ids[i] = ids[j];
+      ids[j] = t;
+    }
+
+    long links = 0;
+    Writer out = new BufferedWriter(new OutputStreamWriter(fs.create(file, true), "UTF-8"));
+    for (int node = 0; node < numNodes; node++) {
+      out.write(Integer.toString(node));
+      while (random.nextDouble() < averageDegree / (averageDegree + 1.0)) {
+        int target = ids[targets.next()];
+        if (target != node) {
+          out.write('\t');
+          out.write(Integer.toString(target));
+          links++;
+        }
+      }
+      out.write('\n');
+    }
+    out.close();
+    return links;
+  }
+
+  /**
+   * Writes a text collection, one document per line, with words drawn from a Zipfian vocabulary.
+   *
+   * @param fs file system to write to
+   * @param file file to write
+   * @param numDocs number of documents
+   * @param averageLength average number of words per document
+   * @param vocabularySize number of distinct words
+   * @param seed random seed
+   */
+  public static void writeDocuments(FileSystem fs, Path file, int numDocs, int averageLength,
+      int vocabularySize, long seed) throws IOException {
+    Random random = new Random(seed);
+    Zipf words = new Zipf(vocabularySize, 1.0, random);
+
+    Writer out = new BufferedWriter(new OutputStreamWriter(fs.create(file, true), "UTF-8"));
+    for (int doc = 0; doc < numDocs; doc++) {
+      int length = 1 + random.nextInt(2 * averageLength);
+      for (int i = 0; i < length; i++) {
+        if (i > 0) {
+          out.write(' ');
+        }
+        out.write(word(words.next()));
+      }
+      out.write('\n');
+    }
+    out.close();
+  }
+
+  /**
+   * Returns the ClueWeb09 docid of a document, e.g., <code>clueweb09-en0001-02-00003</code>.
+   */
+  public static String clueDocid(int section, int file, int doc) {
+    return "clueweb09-en00" + FORMAT_W2.format(section) + "-" + FORMAT_W2.format(file) + "-"
+        + FORMAT_W5.format(doc);
+  }
+
+  /**
+   * Returns the URL of a document of a synthetic ClueWeb collection. Documents are spread over
+   * hosts, so that there are both internal and external links.
+   */
+  public static String clueUrl(int docno) {
+    return "http://www.host" + (docno % 97) + ".com/page" + docno + ".html";
+  }
+
+  /**
+   * <p>
+   * Writes a ClueWeb-like collection of web pages that link to each other, in the layout expected
+   * by {@link edu.umd.cloud9.webgraph.driver.ClueWebDriver}: segments <code>en.00</code>,
+   * <code>en.01</code>, ..., each holding one section of the collection (<code>en0000</code>,
+   * <code>en0001</code>, ...) as block-compressed sequence files of {@link ClueWarcRecord}s, as
+   * written by {@link edu.umd.cloud9.collection.clue.RepackClueWarcRecords}. Also writes the docno
+   * mapping of the collection, for {@link edu.umd.cloud9.collection.clue.ClueWarcDocnoMapping}.
+   * </p>
+   *
+   * <p>
+   * Each page links to a handful of other pages, chosen by a power law, with anchor text drawn
+   * from a Zipfian vocabulary.
+   * </p>
+   *
+   * @param conf configuration
+   * @param dir directory under which to write the segments
+   * @param mappingFile docno mapping file to write
+   * @param numSegments number of segments
+   * @param filesPerSegment number of files per segment
+   * @param docsPerFile number of documents per file
+   * @param seed random seed
+   */
+  public static void writeClueWebCollection(Configuration conf, Path dir, Path mappingFile,
+      int numSegments, int filesPerSegment, int docsPerFile, long seed) throws IOException {
+    FileSystem fs = FileSystem.get(conf);
+    Random random = new Random(seed);
+    int numDocs = numSegments * filesPerSegment * docsPerFile;
+    Zipf targets = new Zipf(numDocs, 0.8, random);
+    Zipf words = new Zipf(10000, 1.0, random);
+
+    Writer mapping = new BufferedWriter(new OutputStreamWriter(fs.create(mappingFile, true),
+        "UTF-8"));
+    IntWritable key = new IntWritable();
+    ClueWarcRecord record = new ClueWarcRecord();
+    StringBuilder html = new StringBuilder();
+    int docno = 1;
+    for (int section = 0; section < numSegments; section++) {
+      Path segment = new Path(dir, "en." + FORMAT_W2.format(section));
+      for (int file = 0; file < filesPerSegment; file++) {
+        mapping.write("en00" + FORMAT_W2.format(section) + "," + file + "," + docsPerFile + ","
+            + docno + "\n");
+
+        SequenceFile.Writer out = SequenceFile.createWriter(fs, conf,
+            new Path(segment, FORMAT_W2.format(file)), IntWritable.class, ClueWarcRecord.class,
+            SequenceFile.CompressionType.BLOCK);
+        for (int doc = 0; doc < docsPerFile; doc++, docno++) {
+          html.setLength(0);
+          html.append("<html><head><title>").append(word(words.next())).append(
+              "</title></head><body>\n");
+          int numLinks = random.nextInt(20);
+          for (int i = 0; i < numLinks; i++) {
+            html.append("<p>").append(word(words.next())).append(' ').append(word(words.next()))
+                .append(" <a href=\"").append(clueUrl(1 + targets.next())).append("\">");
+            for (int j = random.nextInt(4); j >= 0; j--) {
+              html.append(word(words.next())).append(j > 0 ? " " : "");
+            }
+            html.append("</a></p>\n");
+          }
+          html.append("</body></html>\n");
+          byte[] body = html.toString().getBytes("UTF-8");
+
+          record.clearHeaderMetadata();
+          record.setWarcRecordType("response");
+          record.setWarcContentType("application/http; msgtype=response");
+          record.setWarcDate("2009-03-01T00:00:00-0800");
+          record.setWarcUUID("<urn:uuid:" + new UUID(seed, docno) + ">");
+          record.addHeaderMetadata("WARC-TREC-ID", clueDocid(section, file, doc));
+          record.addHeaderMetadata("WARC-Target-URI", clueUrl(docno));
+          record.setContent("HTTP/1.1 200 OK\nContent-Type: text/html\nContent-Length: "
+              + body.length + "\n\n" + new String(body, "UTF-8"));
+
+          key.set(docno);
+          out.append(key, record);
+        }
+        out.close();
+      }
+    }
+    mapping.close();
+  }
+
+  /**
+   * Writes a bitext in the XML format read by {@link edu.umd.hooka.alignment.HadoopAlign}: one
+   * <code>pchunk</code> element per pair of sentences. Target sentences are noisy translations of
+   * the source sentences, word by word through a random dictionary, with some words dropped and
+   * neighbors swapped, so that there is something for the aligner to learn.
+   *
+   * @param fs file system to write to
+   * @param file file to write
+   * @param sourceLanguage ISO 639-1 code of the source language
+   * @param targetLanguage ISO 639-1 code of the target language
+   * @param numSentences number of sentence pairs
+   * @param maxLength maximum number of words per sentence
+   * @param vocabularySize number of distinct words in each language
+   * @param seed random seed
+   */
+  public static void writeBitext(FileSystem fs, Path file, String sourceLanguage,
+      String targetLanguage, int numSentences, int maxLength, int vocabularySize, long seed)
+      throws IOException {
+    Random random = new Random(seed);
+    Zipf words = new Zipf(vocabularySize, 1.0, random);
+
+    // source word i translates to target word dictionary[i]
+    int[] dictionary = new int[vocabularySize];
+    for (int i = 0; i < vocabularySize; i++) {
+      dictionary[i] = i;
+    }
+    for (int i = vocabularySize - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int t = dictionary[i];
+      dictionary[i] = dictionary[j];
+      dictionary[j] = t;
+    }
+
+    Writer out = new BufferedWriter(new OutputStreamWriter(fs.create(file, true), "UTF-8"));
+    out.write("<pdoc name=\"synthetic\">\n");
+    int[] source = new int[maxLength];
+    int[] target = new int[maxLength];
+    for (int s = 0; s < numSentences; s++) {
+      int length = 1 + random.nextInt(maxLength);
+      int n = 0;
+      for (int i = 0; i < length; i++) {
+        source[i] = words.next();
+        if (random.nextDouble() < 0.9) {
+          target[n++] = dictionary[source[i]];
+        }
+      }
+      for (int i = 1; i < n; i++) {
+        if (random.nextDouble() < 0.2) {
+          int t = target[i];
+          target[i] = target[i - 1];
+          target[i - 1] = t;
+        }
+      }
+      if (n == 0) {
+        target[n++] = dictionary[source[0]];
+      }
+
+      out.write("<pchunk name=\"synthetic." + s + "\">\n");
+      writeSentence(out, sourceLanguage, "s", source, length);
+      writeSentence(out, targetLanguage, "t", target, n);
+      out.write("</pchunk>\n");
+    }
+    out.write("</pdoc>\n");
+    out.close();
+  }
+
+  private static void writeSentence(Writer out, String language, String prefix, int[] words,
+      int length) throws IOException {
+    out.write("<s lang=\"" + language + "\">");
+    for (int i = 0; i < length; i++) {
+      if (i > 0) {
+        out.write(' ');
+      }
+      out.write(prefix + word(words[i]));
+    }
+    out.write("</s>\n");
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.junit.Test;
+
+import edu.umd.cloud9.collection.aquaint2.Aquaint2Document;
+import edu.umd.cloud9.collection.medline.MedlineCitation;
+import edu.umd.cloud9.collection.trec.TrecDocument;
+import edu.umd.cloud9.collection.trecweb.TrecWebDocument;
+import edu.umd.cloud9.collection.wikipedia.WikipediaPage;
+
+public class ByteBackedIndexableTest {
+  private static final String TREC_DOC =
+      "<DOC>\n<DOCNO> LA010189-0001 </DOCNO>\n<TEXT>\ncaf\u00e9 na\u00efve \u65e5\u672c\n</TEXT>\n</DOC>";
+
+  @Test
+  public void testTrecDocument() throws IOException {
+    Text text = new Text(TREC_DOC);
+    TrecDocument doc = new TrecDocument();
+    TrecDocument.readDocument(doc, text.getBytes(), 0, text.getLength());
+
+    assertEquals("LA010189-0001", doc.getDocid());
+    assertEquals(text.getLength(), doc.getLength());
+    assertEquals(TREC_DOC, doc.getContent());
+    assertEquals(TREC_DOC, doc.getCharSequence().toString());
+    assertEquals(TREC_DOC.length(), doc.getCharSequence().length());
+
+    ByteBuffer buf = doc.getByteBuffer();
+    assertEquals(text.getLength(), buf.remaining());
+    assertEquals('<', buf.get(0));
+
+    // The buffer is reused for a shorter document.
+    byte[] before = doc.getBytes();
+    TrecDocument.readDocument(doc, "<DOC>\n<DOCNO>X-1</DOCNO>\n</DOC>");
+    assertTrue(before == doc.getBytes());
+    assertEquals("X-1", doc.getDocid());
+    assertEquals("<DOC>\n<DOCNO>X-1</DOCNO>\n</DOC>", doc.getCharSequence().toString());
+
+    TrecDocument.readDocument(doc, "<DOC>\n<TEXT>no docno</TEXT>\n</DOC>");
+    assertEquals("", doc.getDocid());
+
+    TrecDocument.readDocument(doc, text.getBytes(), 0, text.getLength());
+    TrecDocument copy = roundTrip(doc, new TrecDocument());
+    assertEquals("LA010189-0001", copy.getDocid());
+    assertEquals(TREC_DOC, copy.getContent());
+  }
+
+  @Test
+  public void testTrecWebDocument() throws IOException {
+    String s = "<DOC>\n<DOCNO>GX000-00-0000000</DOCNO>\n<DOCHDR>\nhttp://www.example.gov/ "
+        + "HTTP/1.1\n</DOCHDR>\n<html>caf\u00e9</html>\n</DOC>";
+    TrecWebDocument doc = new TrecWebDocument();
+    Text text = new Text(s);
+    TrecWebDocument.readDocument(doc, text.getBytes(), 0, text.getLength());
+
+    assertEquals("GX000-00-0000000", doc.getDocid());
+    assertEquals("http://www.example.gov/", doc.getURL());
+    assertEquals("\n<html>caf\u00e9</html>\n", doc.getContent());
+
+    TrecWebDocument copy = roundTrip(doc, new TrecWebDocument());
+    assertEquals("GX000-00-0000000", copy.getDocid());
+    assertEquals("\n<html>caf\u00e9</html>\n", copy.getContent());
+  }
+
+  @Test
+  public void testAquaint2Document() throws IOException {
+    Aquaint2Document doc = new Aquaint2Document();
+    Aquaint2Document.readDocument(doc, "<DOC id=\"APW_ENG_20041001.0001\" type=\"story\" >\n"
+        + "<HEADLINE>\nSome\theadline\n</HEADLINE>\n<TEXT>\n<P>\nBody text.\n</P>\n</TEXT>\n</DOC>");
+
+    assertEquals("APW_ENG_20041001.0001", doc.getDocid());
+    assertEquals("Some headline", doc.getHeadline());
+    assertEquals("\nSome\theadline\n\n\n\nBody text.\n\n", doc.getContent());
+
+    Aquaint2Document copy = roundTrip(doc, new Aquaint2Document());
+    assertEquals("APW_ENG_20041001.0001", copy.getDocid());
+  }
+
+  @Test
+  public void testMedlineCitation() throws IOException {
+    MedlineCitation doc = new MedlineCitation();
+    MedlineCitation.readCitation(doc, "<MedlineCitation Owner=\"NLM\">\n<PMID>12345</PMID>\n"
+        + "<ArticleTitle>A title.</ArticleTitle>\n<AbstractText>An abstract.</AbstractText>\n"
+        + "</MedlineCitation>");
+
+    assertEquals("12345", doc.getDocid());
+    assertEquals("A title.", doc.getTitle());
+    assertEquals("An abstract.", doc.getAbstract());
+    assertEquals("A title.\n\nAn abstract.", doc.getContent());
+
+    MedlineCitation.readCitation(doc, "<MedlineCitation>\n<PMID>678</PMID>\n</MedlineCitation>");
+    assertEquals("678", doc.getPmid());
+    assertEquals("", doc.getTitle());
+  }
+
+  @Test
+  public void testWikipediaPage() throws IOException {
+    WikipediaPage page = new WikipediaPage();
+    WikipediaPage.readPage(page, "<page>\n<title>Caf&amp;\u00e9</title>\n<id>42</id>\n"
+        + "<revision><id>7</id><text xml:space=\"preserve\">Text with a [[Link|link]] and a "
+        + "{{disambig}}.</text></revision>\n</page>");
+    page.setLanguage("en");
+
+    assertEquals("42", page.getDocid());
+    assertEquals("Caf&\u00e9", page.getTitle());
+    assertTrue(page.isDisambiguation());
+    assertFalse(page.isRedirect());
+    assertFalse(page.isEmpty());
+    assertEquals("Text with a [[Link|link]] and a {{disambig}}.", page.getWikiMarkup());
+    assertEquals("Link", page.extractLinkDestinations().get(0));
+
+    WikipediaPage copy = roundTrip(page, new WikipediaPage());
+    assertEquals("42", copy.getDocid());
+    assertEquals("en", copy.getLanguage());
+
+    WikipediaPage.readPage(page, "<page>\n<title>R</title>\n<id>3</id>\n"
+        + "<revision><id>8</id><text xml:space=\"preserve\">#REDIRECT [[Other]]</text></revision>\n"
+        + "</page>");
+    assertEquals("3", page.getDocid());
+    assertTrue(page.isRedirect());
+    assertFalse(page.isDisambiguation());
+  }
+
+  private static <T extends Writable> T roundTrip(Writable w, T copy) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    w.write(out);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    copy.readFields(in);
+    return copy;
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(ByteBackedIndexableTest.class);
+  }
+}
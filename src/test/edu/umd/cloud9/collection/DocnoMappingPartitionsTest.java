@@ -0,0 +1,171 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.collection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.ToolRunner;
+import org.junit.Test;
+
+import edu.umd.cloud9.collection.medline.MedlineDocnoMapping;
+import edu.umd.cloud9.collection.trec.TrecDocnoMapping;
+import edu.umd.cloud9.collection.trec.TrecDocnoMappingBuilder;
+
+public class DocnoMappingPartitionsTest {
+
+  @Test
+  public void testSplitPoints() {
+    List<Text> samples = new ArrayList<Text>();
+    for (String s : new String[] { "d", "a", "c", "b", "b", "f", "e", "a" }) {
+      samples.add(new Text(s));
+    }
+
+    List<Text> splits = DocnoMappingPartitions.computeSplitPoints(samples, 4);
+    assertEquals(Arrays.asList(new Text("b"), new Text("c"), new Text("e")), splits);
+
+    Text[] arr = splits.toArray(new Text[splits.size()]);
+    assertEquals(0, DocnoMappingPartitions.getPartition(arr, new Text("a")));
+    assertEquals(1, DocnoMappingPartitions.getPartition(arr, new Text("b")));
+    assertEquals(1, DocnoMappingPartitions.getPartition(arr, new Text("bb")));
+    assertEquals(2, DocnoMappingPartitions.getPartition(arr, new Text("d")));
+    assertEquals(3, DocnoMappingPartitions.getPartition(arr, new Text("e")));
+    assertEquals(3, DocnoMappingPartitions.getPartition(arr, new Text("z")));
+
+    // Too few distinct samples: the last partitions are left empty.
+    List<IntWritable> ints = new ArrayList<IntWritable>();
+    for (int i = 0; i < 10; i++) {
+      ints.add(new IntWritable(i % 2));
+    }
+    assertEquals(Collections.singletonList(new IntWritable(1)),
+        DocnoMappingPartitions.computeSplitPoints(ints, 5));
+    assertEquals(0, DocnoMappingPartitions.computeSplitPoints(ints, 1).size());
+  }
+
+  @Test
+  public void testAssemble() throws IOException {
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+    File dir = File.createTempFile("docno", "");
+    dir.delete();
+    try {
+      Path parts = new Path(dir.getPath(), "parts");
+      writePart(fs, new Path(parts, "part-r-00000"), "a", "b");
+      writePart(fs, new Path(parts, "part-r-00001"));
+      writePart(fs, new Path(parts, "part-r-00002"), "c", "d", "e");
+      fs.create(new Path(parts, "_logs")).close();
+
+      Path output = new Path(dir.getPath(), "mapping");
+      assertEquals(5, DocnoMappingPartitions.assemble(parts, output, fs));
+
+      // Docids are read into a 1-based array.
+      assertEquals(Arrays.asList("", "a", "b", "c", "d", "e"),
+          Arrays.asList(TrecDocnoMapping.readMappingData(output, fs)));
+
+      TrecDocnoMapping mapping = new TrecDocnoMapping();
+      mapping.loadMapping(output, fs);
+      assertEquals(3, mapping.getDocno("c"));
+      assertEquals("e", mapping.getDocid(5));
+
+      // Int docids.
+      FSDataOutputStream out = fs.create(new Path(parts, "part-r-00000"), true);
+      out.writeInt(10);
+      out.writeInt(20);
+      out.writeInt(2);
+      out.close();
+      out = fs.create(new Path(parts, "part-r-00002"), true);
+      out.writeInt(30);
+      out.writeInt(1);
+      out.close();
+
+      assertEquals(3, DocnoMappingPartitions.assemble(parts, output, fs));
+      MedlineDocnoMapping medline = new MedlineDocnoMapping();
+      medline.loadMapping(output, fs);
+      assertEquals(2, medline.getDocno("20"));
+      assertEquals("30", medline.getDocid(3));
+    } finally {
+      FileUtil.fullyDelete(dir);
+    }
+  }
+
+  @Test
+  public void testBuildTrecMapping() throws Exception {
+    File dir = File.createTempFile("docno", "");
+    dir.delete();
+    dir.mkdirs();
+    try {
+      // Docids out of order within and across files.
+      List<String> docids = new ArrayList<String>();
+      for (int f = 0; f < 3; f++) {
+        FileWriter writer = new FileWriter(new File(dir, "collection-" + f));
+        for (int i = 0; i < 50; i++) {
+          String docid = String.format("DOC-%04d", (i * 37 + f * 11) % 150 + f * 1000);
+          docids.add(docid);
+          writer.write("<DOC>\n<DOCNO> " + docid + " </DOCNO>\n<TEXT>\ntext\n</TEXT>\n</DOC>\n");
+        }
+        writer.close();
+      }
+      Collections.sort(docids);
+      docids.add(0, "");
+
+      Configuration conf = new Configuration();
+      conf.set("mapred.job.tracker", "local");
+      conf.set("fs.default.name", "file:///");
+      conf.set("hadoop.tmp.dir", new File(dir, "tmp").getPath());
+
+      Path output = new Path(dir.getPath(), "mapping");
+      assertEquals(0, ToolRunner.run(conf, new TrecDocnoMappingBuilder(), new String[] {
+          "-" + DocnoMapping.BuilderUtils.COLLECTION_OPTION + "=" + dir.getPath() + "/collection-*",
+          "-" + DocnoMapping.BuilderUtils.MAPPING_OPTION + "=" + output,
+          "-" + DocnoMapping.BuilderUtils.REDUCERS_OPTION + "=3" }));
+
+      FileSystem fs = FileSystem.getLocal(conf);
+      assertEquals(docids, Arrays.asList(TrecDocnoMapping.readMappingData(output, fs)));
+    } finally {
+      FileUtil.fullyDelete(dir);
+    }
+  }
+
+  private static void writePart(FileSystem fs, Path path, String... docids) throws IOException {
+    FSDataOutputStream out = fs.create(path, true);
+    for (String docid : docids) {
+      out.writeUTF(docid);
+    }
+    out.writeInt(docids.length);
+    out.close();
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(DocnoMappingPartitionsTest.class);
+  }
+}
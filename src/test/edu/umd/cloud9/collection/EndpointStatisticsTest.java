@@ -0,0 +1,208 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.Locale;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.nio.SelectChannelConnector;
+import org.mortbay.jetty.servlet.Context;
+
+public class EndpointStatisticsTest {
+
+	@Test
+	public void testBuckets() {
+		assertEquals(0, EndpointStatistics.getBucket(0));
+		assertEquals(1, EndpointStatistics.getBucket(1));
+		assertEquals(2, EndpointStatistics.getBucket(2));
+		assertEquals(2, EndpointStatistics.getBucket(3));
+		assertEquals(3, EndpointStatistics.getBucket(4));
+		assertEquals(11, EndpointStatistics.getBucket(1500));
+		assertEquals(EndpointStatistics.NUM_BUCKETS - 1, EndpointStatistics.getBucket(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testPercentiles() {
+		EndpointStatistics stats = new EndpointStatistics("test");
+		assertEquals(0, stats.getPercentileMillis(50));
+		assertEquals(0.0, stats.getMeanMillis(), 0.0);
+
+		// 90 fast requests, 9 at 100ms, 1 failed at 3s
+		for (int i = 0; i < 90; i++) {
+			stats.record(200, true);
+		}
+		for (int i = 0; i < 9; i++) {
+			stats.record(100000, true);
+		}
+		stats.record(3000000, false);
+
+		assertEquals(100, stats.getRequests());
+		assertEquals(1, stats.getErrors());
+		assertEquals(0, stats.getInFlight());
+		assertEquals(90, stats.getBucketCount(0));
+		assertEquals(9, stats.getBucketCount(7));
+
+		assertEquals(1, stats.getPercentileMillis(50));
+		assertEquals(1, stats.getPercentileMillis(90));
+		assertEquals(128, stats.getPercentileMillis(99));
+		assertEquals(4096, stats.getPercentileMillis(100));
+		assertEquals((90 * 200 + 9 * 100000 + 3000000) / 100 / 1000.0, stats.getMeanMillis(), 1e-9);
+	}
+
+	@Test
+	public void testInFlight() {
+		EndpointStatistics stats = new EndpointStatistics("test");
+		long start1 = stats.begin();
+		long start2 = stats.begin();
+		assertEquals(2, stats.getInFlight());
+
+		stats.end(start1, true);
+		stats.end(start2, true);
+		assertEquals(0, stats.getInFlight());
+		assertEquals(2, stats.getRequests());
+	}
+
+	@Test
+	public void testParseDocnos() {
+		assertArrayEquals(new int[0], DocumentForwardIndexHttpServer.parseDocnos(null));
+		assertArrayEquals(new int[] { 3, 1, 2, 2 }, DocumentForwardIndexHttpServer
+				.parseDocnos(new String[] { "3, 1,2", "2," }));
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testParseInvalidDocnos() {
+		DocumentForwardIndexHttpServer.parseDocnos(new String[] { "1,x" });
+	}
+
+	// this has to be public
+	public static class EchoServlet extends HttpServlet {
+		static final long serialVersionUID = 1L;
+
+		public void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException,
+				IOException {
+			if (req.getParameter("fail") != null)
+				throw new ServletException("failed");
+			if (req.getParameter("q") == null) {
+				res.sendError(HttpServletResponse.SC_BAD_REQUEST, "No query");
+				return;
+			}
+
+			res.setContentType("text/plain");
+			res.getWriter().print(req.getParameter("q"));
+			res.getWriter().close();
+		}
+	}
+
+	private static String get(String url) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(new URL(url).openStream(),
+				"UTF-8"));
+		StringBuilder sb = new StringBuilder();
+		String line;
+		while ((line = in.readLine()) != null) {
+			sb.append(line);
+		}
+		in.close();
+		return sb.toString();
+	}
+
+	@Test
+	public void testServer() throws Exception {
+		Server server = DocumentForwardIndexHttpServer.createServer(0, 2);
+		Context root = new Context(server, "/", Context.NO_SESSIONS);
+		EndpointStatistics echo = EndpointStatistics.addServlet(root, "/echo", new EchoServlet());
+		EndpointStatistics.addStatsServlet(root, "/stats");
+		server.start();
+
+		try {
+			String base = "http://localhost:"
+					+ ((SelectChannelConnector) server.getConnectors()[0]).getLocalPort();
+			for (int i = 0; i < 5; i++) {
+				assertEquals("hello" + i, get(base + "/echo?q=hello" + i));
+			}
+			try {
+				get(base + "/echo?fail=1");
+			} catch (IOException e) {
+				// expected: server error
+			}
+			try {
+				get(base + "/echo");
+			} catch (IOException e) {
+				// expected: bad request
+			}
+
+			// a request is recorded once the servlet returns, which can be after the client has read
+			// an error response
+			long deadline = System.currentTimeMillis() + 5000;
+			while (echo.getRequests() < 7 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+
+			assertEquals(7, echo.getRequests());
+			assertEquals(2, echo.getErrors());
+			assertEquals(0, echo.getInFlight());
+
+			JSONObject json = new JSONObject(get(base + "/stats"));
+			assertEquals(7, json.getJSONObject("/echo").getInt("requests"));
+			assertEquals(2, json.getJSONObject("/echo").getInt("errors"));
+			assertTrue(json.getJSONObject("/echo").has("histogram_ms"));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testJSONIgnoresDefaultLocale() throws Exception {
+		EndpointStatistics stats = new EndpointStatistics("/test");
+		stats.record(1500, true);
+
+		Locale locale = Locale.getDefault();
+		Locale.setDefault(Locale.GERMANY);
+		try {
+			StringWriter sw = new StringWriter();
+			PrintWriter out = new PrintWriter(sw);
+			stats.writeJSON(out);
+			out.flush();
+
+			assertEquals(1.5, new JSONObject(sw.toString()).getDouble("mean_ms"), 1e-9);
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(EndpointStatisticsTest.class);
+	}
+}
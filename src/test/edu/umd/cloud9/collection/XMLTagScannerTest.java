@@ -0,0 +1,167 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.Test;
+
+public class XMLTagScannerTest {
+  private static final byte[] START = bytes("<page>");
+  private static final byte[] END = bytes("</page>");
+
+  @Test
+  public void testOverlappingPrefixes() throws IOException {
+    String s = "x<pa<page>a</pa</page>y<<page>b<</page></page><page>c";
+
+    for (int bufferSize : new int[] { 1, 2, 3, 7, 1024 }) {
+      XMLTagScanner scanner = new XMLTagScanner(new ByteArrayInputStream(bytes(s)), 0, START, END,
+          bufferSize);
+      Text record = new Text();
+
+      assertEquals(4, scanner.next(record, Long.MAX_VALUE));
+      assertEquals("<page>a</pa</page>", record.toString());
+      assertEquals(24, scanner.next(record, Long.MAX_VALUE));
+      assertEquals("<page>b<</page>", record.toString());
+
+      // Unterminated record at the end of the stream.
+      assertEquals(-1, scanner.next(record, Long.MAX_VALUE));
+      scanner.close();
+    }
+  }
+
+  @Test
+  public void testSplits() throws IOException {
+    Random r = new Random(42);
+    StringBuilder sb = new StringBuilder();
+    List<Long> offsets = new ArrayList<Long>();
+    List<String> records = new ArrayList<String>();
+    for (int i = 0; i < 200; i++) {
+      sb.append(i % 3 == 0 ? "<pa" : "\n");
+      offsets.add((long) sb.length());
+      StringBuilder rec = new StringBuilder("<page>");
+      int len = r.nextInt(100);
+      for (int j = 0; j < len; j++) {
+        rec.append((char) ('a' + r.nextInt(26)));
+      }
+      rec.append(i % 5 == 0 ? "</pag" : "").append("</page>");
+      records.add(rec.toString());
+      sb.append(rec);
+    }
+    byte[] data = bytes(sb.toString());
+
+    for (int split = 0; split <= data.length; split += 37) {
+      List<Long> foundOffsets = new ArrayList<Long>();
+      List<String> found = new ArrayList<String>();
+      scan(data, 0, split, foundOffsets, found);
+      scan(data, split, data.length, foundOffsets, found);
+
+      assertEquals(offsets, foundOffsets);
+      assertEquals(records, found);
+    }
+  }
+
+  private static void scan(byte[] data, int start, int end, List<Long> offsets,
+      List<String> records) throws IOException {
+    XMLTagScanner scanner = new XMLTagScanner(new ByteArrayInputStream(data, start, data.length
+        - start), start, START, END, 64);
+    Text record = new Text();
+    long offset;
+    while ((offset = scanner.next(record, end)) >= 0) {
+      offsets.add(offset);
+      records.add(record.toString());
+    }
+  }
+
+  @Test
+  public void testLongRecord() throws IOException {
+    StringBuilder sb = new StringBuilder("<page>");
+    for (int i = 0; i < 100000; i++) {
+      sb.append((char) ('a' + i % 26));
+    }
+    sb.append("</page>");
+
+    XMLTagScanner scanner = new XMLTagScanner(new ByteArrayInputStream(bytes(sb.toString())), 0,
+        START, END, 100);
+    Text record = new Text();
+    assertEquals(0, scanner.next(record, Long.MAX_VALUE));
+    assertEquals(sb.toString(), record.toString());
+    assertEquals(-1, scanner.next(record, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testCompressedInput() throws IOException {
+    JobConf conf = new JobConf();
+    conf.set(XMLInputFormatOld.START_TAG_KEY, "<page>");
+    conf.set(XMLInputFormatOld.END_TAG_KEY, "</page>");
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path path = new Path("tmp-xml.gz");
+
+    GzipCodec codec = ReflectionUtils.newInstance(GzipCodec.class, conf);
+    OutputStream out = codec.createOutputStream(fs.create(path, true));
+    out.write(bytes("<xml>\n<page>one</page>\n<page>two</page>\n</xml>\n"));
+    out.close();
+
+    XMLInputFormatOld.XMLRecordReader reader = new XMLInputFormatOld.XMLRecordReader(
+        new FileSplit(path, 0, fs.getFileStatus(path).getLen(), (String[]) null), conf);
+    LongWritable key = reader.createKey();
+    Text value = reader.createValue();
+
+    assertTrue(reader.next(key, value));
+    assertEquals(6, key.get());
+    assertEquals("<page>one</page>", value.toString());
+    assertTrue(reader.next(key, value));
+    assertEquals(23, key.get());
+    assertEquals("<page>two</page>", value.toString());
+    assertFalse(reader.next(key, value));
+    assertEquals(1.0f, reader.getProgress(), 1e-6);
+
+    reader.close();
+    fs.delete(path, false);
+  }
+
+  private static byte[] bytes(String s) {
+    try {
+      return s.getBytes("UTF-8");
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(XMLTagScannerTest.class);
+  }
+}
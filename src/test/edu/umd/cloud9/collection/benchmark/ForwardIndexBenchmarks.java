@@ -0,0 +1,275 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.collection.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Lists;
+
+import edu.umd.cloud9.collection.trec.TrecDocnoMapping;
+import edu.umd.cloud9.collection.trec.TrecForwardIndex;
+import edu.umd.cloud9.io.SequenceFileBlockCache;
+import edu.umd.cloud9.io.SequenceFileBlockScanner;
+import edu.umd.cloud9.io.array.ArrayListWritable;
+import edu.umd.cloud9.webgraph.data.AnchorText;
+import edu.umd.cloud9.webgraph.data.AnchorTextConstants;
+import edu.umd.cloud9.webgraph.data.IndexableAnchorText;
+import edu.umd.cloud9.webgraph.data.IndexableAnchorTextForwardIndex;
+
+/**
+ * <p>
+ * JMH benchmarks of forward index lookups, against synthetic collections of {@value #DOCS}
+ * documents written to the local file system:
+ * </p>
+ *
+ * <ul>
+ * <li><code>TrecForwardIndex</code>: fetching random documents (of about 2 KB each) by docno, and
+ * mapping docids to docnos.</li>
+ * <li><code>IndexableAnchorTextForwardIndex</code>: fetching the anchor text of random documents
+ * one at a time and in batches of {@value #LOOKUPS}, with a block cache of
+ * <code>cacheSize</code> bytes; the default sizes hold all of the collection, and a few blocks.</li>
+ * </ul>
+ *
+ * <p>
+ * An operation is a document fetched or a docid mapped. The files are read through the local file
+ * system, so these numbers include checksum verification, but (after warmup) not disk access.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ForwardIndexBenchmarks {
+  private static final int DOCS = 10000;
+  private static final int LOOKUPS = 1000;
+
+  private static final String[] WORDS = new String[] { "the", "collection", "hadoop", "of",
+      "document", "index", "forward", "and", "link", "graph", "anchor", "text", "to", "in" };
+
+  private static final Configuration conf = new Configuration();
+
+  private static final int[] lookups = new int[LOOKUPS];
+  private static final String[] docidLookups = new String[LOOKUPS];
+
+  static {
+    Random r = new Random(0);
+    for (int i = 0; i < LOOKUPS; i++) {
+      lookups[i] = 1 + r.nextInt(DOCS);
+      docidLookups[i] = getDocid(lookups[i]);
+    }
+  }
+
+  private static String getDocid(int docno) {
+    // zero-padded, so that docids sort the same way as docnos, as the mapping requires
+    return String.format("BENCH-%07d", docno);
+  }
+
+  // the synthetic collections, written to a temporary directory for each trial
+  private static class Collections {
+    private final File dir;
+
+    private Collections() throws IOException {
+      dir = File.createTempFile("cloud9-bench", "");
+      dir.delete();
+      dir.mkdirs();
+      write();
+    }
+
+    private Path getPath(String name) {
+      return new Path(new File(dir, name).getAbsolutePath());
+    }
+
+    private void write() throws IOException {
+      FileSystem fs = FileSystem.getLocal(conf);
+      Random r = new Random(0);
+
+      // TREC collection, its docno mapping and its forward index, in the formats of
+      // TrecDocnoMappingBuilder and BuildTrecForwardIndex
+      FSDataOutputStream docs = fs.create(getPath("trec.txt"));
+      FSDataOutputStream mapping = fs.create(getPath("docno.dat"));
+      FSDataOutputStream index = fs.create(getPath("trec.findex"));
+      mapping.writeInt(DOCS);
+      index.writeUTF(TrecForwardIndex.class.getName());
+      index.writeUTF(getPath("trec.txt").toString());
+      index.writeInt(DOCS);
+      for (int docno = 1; docno <= DOCS; docno++) {
+        StringBuilder doc = new StringBuilder();
+        doc.append("<DOC>\n<DOCNO> ").append(getDocid(docno)).append(" </DOCNO>\n<TEXT>\n");
+        while (doc.length() < 2000) {
+          doc.append(WORDS[r.nextInt(WORDS.length)]).append(r.nextInt(10) == 0 ? '\n' : ' ');
+        }
+        doc.append("\n</TEXT>\n</DOC>\n");
+
+        byte[] bytes = doc.toString().getBytes("UTF-8");
+        index.writeLong(docs.getPos());
+        index.writeInt(bytes.length);
+        docs.write(bytes);
+        mapping.writeUTF(getDocid(docno));
+      }
+      docs.close();
+      mapping.close();
+      index.close();
+
+      // anchor text collection and its forward index, in the formats of
+      // BuildAnchorTextForwardIndex
+      Path part = IndexableAnchorTextForwardIndex.getPartPath(getPath("anchors").toString(), 0);
+      SequenceFile.Writer w = SequenceFile.createWriter(fs, conf, part, IntWritable.class,
+          ArrayListWritable.class, SequenceFile.CompressionType.BLOCK);
+      ArrayListWritable<AnchorText> anchors = new ArrayListWritable<AnchorText>();
+      for (int docno = 1; docno <= DOCS; docno++) {
+        anchors.clear();
+        for (int i = 0; i < 5; i++) {
+          anchors.add(new AnchorText(AnchorTextConstants.Type.EXTERNAL_IN_LINK.val,
+              WORDS[r.nextInt(WORDS.length)] + " " + WORDS[r.nextInt(WORDS.length)],
+              1 + r.nextInt(DOCS)));
+        }
+        w.append(new IntWritable(docno), anchors);
+      }
+      w.close();
+
+      List<Integer> firstDocnos = Lists.newArrayList();
+      List<Long> offsets = Lists.newArrayList();
+      SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(part, fs, conf);
+      IntWritable key = new IntWritable();
+      while (scanner.next()) {
+        scanner.readFirstKey(key);
+        firstDocnos.add(key.get());
+        offsets.add(scanner.getBlockOffset());
+      }
+      scanner.close();
+
+      index = fs.create(getPath("anchors.findex"));
+      index.writeUTF(IndexableAnchorTextForwardIndex.class.getName());
+      index.writeUTF(getPath("anchors").toString());
+      index.writeInt(firstDocnos.size());
+      for (int i = 0; i < firstDocnos.size(); i++) {
+        index.writeInt(firstDocnos.get(i));
+        index.writeInt((int) (long) offsets.get(i));
+        index.writeShort(0);
+      }
+      index.writeInt(DOCS);
+      index.close();
+    }
+
+    private void delete() throws IOException {
+      FileSystem.getLocal(conf).delete(new Path(dir.getAbsolutePath()), true);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class TrecIndex {
+    Collections collections;
+    TrecForwardIndex findex;
+
+    @Setup
+    public void setUp() throws IOException {
+      // it logs every lookup
+      Logger.getLogger(TrecForwardIndex.class).setLevel(org.apache.log4j.Level.WARN);
+
+      collections = new Collections();
+      findex = new TrecForwardIndex();
+      findex.loadIndex(collections.getPath("trec.findex"), collections.getPath("docno.dat"),
+          FileSystem.getLocal(conf));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+      collections.delete();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class AnchorTextIndex {
+    @Param({ "67108864", "65536" })
+    public long cacheSize;
+
+    Collections collections;
+    IndexableAnchorTextForwardIndex findex;
+
+    @Setup
+    public void setUp() throws IOException {
+      collections = new Collections();
+      findex = new IndexableAnchorTextForwardIndex(new TrecDocnoMapping(), conf);
+      findex.setBlockCache(new SequenceFileBlockCache(cacheSize));
+      findex.loadIndex(collections.getPath("anchors.findex"), collections.getPath("docno.dat"),
+          FileSystem.getLocal(conf));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+      findex.close();
+      collections.delete();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void getDocumentTrec(TrecIndex state, Blackhole bh) {
+    for (int i = 0; i < LOOKUPS; i++) {
+      bh.consume(state.findex.getDocument(lookups[i]).getContent().length());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void getDocnoTrec(TrecIndex state, Blackhole bh) {
+    for (int i = 0; i < LOOKUPS; i++) {
+      bh.consume(state.findex.getDocno(docidLookups[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void getDocumentAnchorText(AnchorTextIndex state, Blackhole bh) {
+    for (int i = 0; i < LOOKUPS; i++) {
+      bh.consume(state.findex.getDocument(lookups[i]).getContent().length());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public IndexableAnchorText[] getDocumentsAnchorText(AnchorTextIndex state) {
+    return state.findex.getDocuments(lookups);
+  }
+}
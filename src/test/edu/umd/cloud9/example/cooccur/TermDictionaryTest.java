@@ -0,0 +1,69 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.example.cooccur;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+public class TermDictionaryTest {
+
+	@Test
+	public void testWriteAndLoad() throws IOException {
+		FileSystem fs = FileSystem.getLocal(new Configuration());
+		Path path = new Path("tmp-TermDictionaryTest");
+
+		TermDictionary.write(Arrays.asList("the", "of", "caf\u00e9", "and"), path, fs);
+		TermDictionary dictionary = TermDictionary.load(path, fs);
+		fs.delete(path, false);
+
+		assertEquals(4, dictionary.size());
+		assertEquals(0, dictionary.getId("the"));
+		assertEquals(1, dictionary.getId("of"));
+		assertEquals(2, dictionary.getId("caf\u00e9"));
+		assertEquals(3, dictionary.getId("and"));
+		assertEquals(-1, dictionary.getId("a"));
+
+		assertEquals("the", dictionary.getTerm(0));
+		assertEquals("caf\u00e9", dictionary.getTerm(2));
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		FileSystem fs = FileSystem.getLocal(new Configuration());
+		Path path = new Path("tmp-TermDictionaryTest");
+
+		TermDictionary.write(Arrays.<String> asList(), path, fs);
+		TermDictionary dictionary = TermDictionary.load(path, fs);
+		fs.delete(path, false);
+
+		assertEquals(0, dictionary.size());
+		assertEquals(-1, dictionary.getId("the"));
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TermDictionaryTest.class);
+	}
+}
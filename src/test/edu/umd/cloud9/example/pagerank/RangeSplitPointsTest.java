@@ -0,0 +1,140 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.example.pagerank;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.junit.Test;
+
+public class RangeSplitPointsTest {
+
+  @Test
+  public void testGetPartition() {
+    int[] splits = new int[] { 10, 20, 30 };
+
+    assertEquals(0, RangeSplitPoints.getPartition(splits, 0));
+    assertEquals(0, RangeSplitPoints.getPartition(splits, 9));
+    assertEquals(1, RangeSplitPoints.getPartition(splits, 10));
+    assertEquals(1, RangeSplitPoints.getPartition(splits, 19));
+    assertEquals(2, RangeSplitPoints.getPartition(splits, 20));
+    assertEquals(3, RangeSplitPoints.getPartition(splits, 30));
+    assertEquals(3, RangeSplitPoints.getPartition(splits, Integer.MAX_VALUE));
+
+    assertEquals(0, RangeSplitPoints.getPartition(new int[0], 5));
+  }
+
+  @Test
+  public void testBalance() {
+    // Node ids are sparse, and the first few nodes have most of the edges.
+    Random r = new Random(0);
+    int n = 10000;
+    int[] nids = new int[n];
+    float[] weights = new float[n];
+    for (int i = 0; i < n; i++) {
+      nids[i] = i * 7 + (i > n / 2 ? 1000000 : 0);
+      weights[i] = i < 100 ? 1000 : 1 + r.nextInt(10);
+    }
+
+    int parts = 10;
+    int[] splits = RangeSplitPoints.compute(nids, weights, n, parts);
+    assertEquals(parts - 1, splits.length);
+
+    double total = 0.0;
+    double[] load = new double[parts];
+    int[] counts = new int[parts];
+    for (int i = 0; i < n; i++) {
+      int p = RangeSplitPoints.getPartition(splits, nids[i]);
+      load[p] += weights[i];
+      counts[p]++;
+      total += weights[i];
+    }
+
+    for (int p = 0; p < parts; p++) {
+      assertTrue(counts[p] > 0);
+      assertEquals(total / parts, load[p], 0.02 * total / parts + 1000);
+    }
+
+    // The uniform partitioner puts most of the weight into the first partition.
+    RangePartitioner uniform = new RangePartitioner();
+    Configuration conf = new Configuration();
+    conf.setInt("NodeCount", nids[n - 1] + 1);
+    uniform.setConf(conf);
+
+    double first = 0.0;
+    for (int i = 0; i < n; i++) {
+      if (uniform.getPartition(new IntWritable(nids[i]), null, parts) == 0) {
+        first += weights[i];
+      }
+    }
+    assertTrue(first > 0.5 * total);
+  }
+
+  @Test
+  public void testEveryPartitionNonEmpty() {
+    // One node carries almost all the weight.
+    int[] nids = new int[] { 1, 2, 3, 4, 5, 6 };
+    float[] weights = new float[] { 1, 1000000, 1, 1, 1, 1 };
+
+    int[] splits = RangeSplitPoints.compute(nids, weights, nids.length, 6);
+    assertArrayEquals(new int[] { 2, 3, 4, 5, 6 }, splits);
+
+    splits = RangeSplitPoints.compute(nids, weights, nids.length, 3);
+    assertEquals(2, splits[0]);
+    assertEquals(3, splits[1]);
+  }
+
+  @Test
+  public void testPartitionerWithSplitPoints() throws IOException {
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path path = new Path("tmp-splits");
+
+    RangeSplitPoints.write(new int[] { 100, 5000 }, path, fs);
+    assertArrayEquals(new int[] { 100, 5000 }, RangeSplitPoints.read(path, fs));
+
+    conf.setInt("NodeCount", 10);
+    conf.set(RangeSplitPoints.PATH_PROPERTY, path.toString());
+
+    RangePartitioner p = new RangePartitioner();
+    p.setConf(conf);
+    assertEquals(0, p.getPartition(new IntWritable(99), null, 3));
+    assertEquals(1, p.getPartition(new IntWritable(100), null, 3));
+    assertEquals(2, p.getPartition(new IntWritable(6000), null, 3));
+
+    edu.umd.cloud9.example.hits.RangePartitioner<IntWritable, PageRankNode> h =
+        new edu.umd.cloud9.example.hits.RangePartitioner<IntWritable, PageRankNode>();
+    h.configure(new org.apache.hadoop.mapred.JobConf(conf));
+    assertEquals(1, h.getPartition(new IntWritable(4999), null, 3));
+
+    fs.delete(path, false);
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(RangeSplitPointsTest.class);
+  }
+}
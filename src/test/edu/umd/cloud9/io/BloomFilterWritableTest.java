@@ -0,0 +1,153 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.junit.Test;
+
+public class BloomFilterWritableTest {
+
+	private static BloomFilterWritable copy(BloomFilterWritable filter) throws IOException {
+		DataOutputBuffer out = new DataOutputBuffer();
+		filter.write(out);
+
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+		BloomFilterWritable copy = new BloomFilterWritable();
+		copy.readFields(in);
+		return copy;
+	}
+
+	@Test
+	public void testBasic() {
+		BloomFilterWritable filter = BloomFilterWritable.create(100, 0.01);
+		filter.add("Commodity");
+		filter.add("commodity");
+		filter.add("caf\u00e9");
+
+		assertTrue(filter.mightContain("Commodity"));
+		assertTrue(filter.mightContain(new StringBuilder("commodity")));
+		assertTrue(filter.mightContain("caf\u00e9"));
+		assertFalse(filter.mightContain("Commodities"));
+		assertFalse(filter.mightContain("cafe"));
+
+		filter.clear();
+		assertFalse(filter.mightContain("Commodity"));
+		assertEquals(0, filter.getCardinality());
+	}
+
+	@Test
+	public void testFalsePositiveRate() {
+		BloomFilterWritable filter = BloomFilterWritable.create(100000, 0.01);
+		assertEquals(7, filter.getNumHashes());
+		assertEquals(958506, filter.getNumBits());
+
+		for (int i = 0; i < 100000; i++) {
+			filter.add("http://www.host" + (i % 97) + ".com/page" + i + ".html");
+		}
+
+		// no false negatives
+		for (int i = 0; i < 100000; i++) {
+			assertTrue(filter.mightContain("http://www.host" + (i % 97) + ".com/page" + i + ".html"));
+		}
+
+		int falsePositives = 0;
+		for (int i = 100000; i < 200000; i++) {
+			if (filter.mightContain("http://www.host" + (i % 97) + ".com/page" + i + ".html")) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives > 500 && falsePositives < 1500);
+		assertEquals(0.01, filter.getFalsePositiveRate(), 0.002);
+	}
+
+	@Test
+	public void testOr() {
+		BloomFilterWritable filter1 = BloomFilterWritable.create(1000, 0.01);
+		BloomFilterWritable filter2 = BloomFilterWritable.create(1000, 0.01);
+		for (int i = 0; i < 500; i++) {
+			filter1.add("a" + i);
+			filter2.add("b" + i);
+		}
+		assertFalse(filter1.mightContain("b0"));
+
+		filter1.or(filter2);
+		for (int i = 0; i < 500; i++) {
+			assertTrue(filter1.mightContain("a" + i));
+			assertTrue(filter1.mightContain("b" + i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOrDifferentSizes() {
+		BloomFilterWritable.create(1000, 0.01).or(BloomFilterWritable.create(1000, 0.1));
+	}
+
+	@Test
+	public void testSerialize() throws IOException {
+		BloomFilterWritable filter = new BloomFilterWritable(1000, 3);
+		for (int i = 0; i < 100; i++) {
+			filter.add("key" + i);
+		}
+
+		BloomFilterWritable copy = copy(filter);
+		assertEquals(filter, copy);
+		assertEquals(1000, copy.getNumBits());
+		assertEquals(3, copy.getNumHashes());
+		assertEquals(filter.getCardinality(), copy.getCardinality());
+		for (int i = 0; i < 100; i++) {
+			assertTrue(copy.mightContain("key" + i));
+		}
+
+		// reading into a filter replaces its bits
+		BloomFilterWritable empty = copy(new BloomFilterWritable(64, 1));
+		assertEquals(0, empty.getCardinality());
+		assertEquals(64, empty.getNumBits());
+	}
+
+	@Test
+	public void testSaveLoad() throws IOException {
+		FileSystem fs = FileSystem.getLocal(new Configuration());
+		Path path = new Path("tmp-BloomFilterWritableTest");
+
+		BloomFilterWritable filter = BloomFilterWritable.create(1000, 0.05);
+		filter.add("key");
+		filter.save(path, fs);
+
+		BloomFilterWritable loaded = BloomFilterWritable.load(path, fs);
+		fs.delete(path, true);
+
+		assertEquals(filter, loaded);
+		assertTrue(loaded.mightContain("key"));
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(BloomFilterWritableTest.class);
+	}
+}
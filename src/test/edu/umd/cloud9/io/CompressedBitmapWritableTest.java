@@ -0,0 +1,122 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Test;
+
+public class CompressedBitmapWritableTest {
+
+	private static CompressedBitmapWritable randomBitmap(Random r, int sparse, int dense) {
+		CompressedBitmapWritable bitmap = new CompressedBitmapWritable();
+		for (int i = 0; i < sparse; i++) {
+			bitmap.add(r.nextInt(1 << 20));
+		}
+		for (int i = 0; i < dense; i++) {
+			bitmap.add((5 << 16) + r.nextInt(1 << 16));
+		}
+		return bitmap;
+	}
+
+	private static int compareRaw(CompressedBitmapWritable b1, CompressedBitmapWritable b2)
+			throws IOException {
+		byte[] bytes1 = b1.serialize();
+		byte[] bytes2 = b2.serialize();
+
+		return WritableComparator.get(CompressedBitmapWritable.class).compare(bytes1, 0,
+				bytes1.length, bytes2, 0, bytes2.length);
+	}
+
+	@Test
+	public void testSerialize() throws IOException {
+		Random r = new Random(0);
+		CompressedBitmapWritable bitmap = randomBitmap(r, 2000, 30000);
+		bitmap.add(-1);
+
+		CompressedBitmapWritable copy = CompressedBitmapWritable.create(bitmap.serialize());
+		assertEquals(bitmap, copy);
+		assertEquals(bitmap.getCardinality(), copy.getCardinality());
+		assertArrayEquals(bitmap.toArray(), copy.toArray());
+
+		// reading into a bitmap replaces its values
+		CompressedBitmapWritable empty = new CompressedBitmapWritable();
+		copy.readFields(new DataInputStream(new ByteArrayInputStream(empty.serialize())));
+		assertTrue(copy.isEmpty());
+	}
+
+	@Test
+	public void testSize() throws IOException {
+		// a dense chunk takes a bit per possible value, a sparse one two bytes per value
+		CompressedBitmapWritable dense = new CompressedBitmapWritable();
+		for (int i = 0; i < 50000; i++) {
+			dense.add(i);
+		}
+		assertEquals(1 + 2 + 3 + 8192, dense.serialize().length);
+
+		CompressedBitmapWritable sparse = new CompressedBitmapWritable();
+		for (int i = 0; i < 1000; i++) {
+			sparse.add(i * 50);
+		}
+		assertEquals(1 + 2 + 3 + 2000, sparse.serialize().length);
+	}
+
+	@Test
+	public void testComparator() throws IOException {
+		CompressedBitmapWritable b1 = new CompressedBitmapWritable();
+		b1.add(1);
+		b1.add(2);
+		CompressedBitmapWritable b2 = new CompressedBitmapWritable();
+		b2.add(1);
+		b2.add(3);
+		CompressedBitmapWritable b3 = new CompressedBitmapWritable();
+		b3.add(1);
+
+		assertTrue(compareRaw(b1, b2) < 0);
+		assertTrue(compareRaw(b2, b1) > 0);
+		assertTrue(compareRaw(b3, b1) < 0);
+		assertEquals(0, compareRaw(b1, b1));
+		assertTrue(compareRaw(new CompressedBitmapWritable(), b3) < 0);
+
+		// the raw comparator agrees with compareTo, with sparse and dense chunks
+		Random r = new Random(0);
+		for (int i = 0; i < 50; i++) {
+			CompressedBitmapWritable x = randomBitmap(r, 50, i % 2 == 0 ? 5000 : 10);
+			CompressedBitmapWritable y = randomBitmap(r, 50, i % 3 == 0 ? 5000 : 10);
+			if (i % 5 == 0) {
+				y = CompressedBitmapWritable.create(x.serialize());
+				y.add(i % 2 == 0 ? (6 << 16) : -5);
+			}
+			assertEquals(Integer.signum(x.compareTo(y)), Integer.signum(compareRaw(x, y)));
+			assertEquals(Integer.signum(y.compareTo(x)), Integer.signum(compareRaw(y, x)));
+		}
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(CompressedBitmapWritableTest.class);
+	}
+}
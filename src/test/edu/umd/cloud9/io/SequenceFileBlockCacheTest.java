@@ -0,0 +1,224 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class SequenceFileBlockCacheTest {
+  private static final int NUM_RECORDS = 5000;
+
+  private static Path writeFile(FileSystem fs, Configuration conf) throws IOException {
+    Path tmp = new Path("tmp-blocks");
+
+    // Small blocks so that we get lots of them.
+    conf.setInt("io.seqfile.compress.blocksize", 4096);
+    SequenceFile.Writer w = SequenceFile.createWriter(fs, conf, tmp, IntWritable.class,
+        Text.class, SequenceFile.CompressionType.BLOCK);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      w.append(new IntWritable(i), new Text("record number " + i));
+    }
+    w.close();
+
+    return tmp;
+  }
+
+  @Test
+  public void testScanner() throws IOException {
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path tmp = writeFile(fs, conf);
+
+    // Find the true block boundaries the slow way.
+    List<Long> expectedOffsets = new ArrayList<Long>();
+    List<Integer> expectedDocnos = new ArrayList<Integer>();
+    SequenceFile.Reader reader = new SequenceFile.Reader(fs, tmp, conf);
+    IntWritable key = new IntWritable();
+    Text value = new Text();
+    long pos = reader.getPosition();
+    while (reader.next(key, value)) {
+      // The reader only moves when it has read in a new block.
+      if (reader.getPosition() != pos) {
+        expectedOffsets.add(pos);
+        expectedDocnos.add(key.get());
+      }
+      pos = reader.getPosition();
+    }
+    reader.close();
+
+    assertTrue(expectedOffsets.size() > 10);
+
+    SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(tmp, fs, conf);
+    assertEquals(IntWritable.class, scanner.getKeyClass());
+    assertEquals(Text.class, scanner.getValueClass());
+
+    IntWritable lastKey = new IntWritable();
+    int blocks = 0;
+    int records = 0;
+    while (scanner.next()) {
+      scanner.readFirstKey(key);
+      scanner.readLastKey(lastKey);
+
+      assertEquals((long) expectedOffsets.get(blocks), scanner.getBlockOffset());
+      assertEquals((int) expectedDocnos.get(blocks), key.get());
+      assertEquals(key.get() + scanner.getRecordCount() - 1, lastKey.get());
+
+      records += scanner.getRecordCount();
+      blocks++;
+    }
+    scanner.close();
+
+    assertEquals(expectedOffsets.size(), blocks);
+    assertEquals(NUM_RECORDS, records);
+
+    fs.delete(tmp, true);
+  }
+
+  @Test
+  public void testCache() throws IOException {
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path tmp = writeFile(fs, conf);
+
+    List<Long> offsets = new ArrayList<Long>();
+    SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(tmp, fs, conf);
+    while (scanner.next()) {
+      offsets.add(scanner.getBlockOffset());
+    }
+    scanner.close();
+
+    SequenceFileBlockCache cache = new SequenceFileBlockCache(1024 * 1024);
+
+    IntWritable key = new IntWritable();
+    Text value = new Text();
+    int n = 0;
+    for (long offset : offsets) {
+      SequenceFileBlock block = cache.getBlock(tmp, offset, fs, conf);
+      assertEquals(offset, block.getOffset());
+
+      // Read records in reverse order, just to show we can.
+      for (int i = block.getRecordCount() - 1; i >= 0; i--) {
+        block.readKey(i, key);
+        block.readValue(i, value);
+        assertEquals("record number " + key.get(), value.toString());
+      }
+      n += block.getRecordCount();
+
+      assertSame(block, cache.getBlock(tmp, offset, fs, conf));
+    }
+
+    assertEquals(NUM_RECORDS, n);
+    assertEquals(offsets.size(), cache.getMisses());
+    assertEquals(offsets.size(), cache.getHits());
+    assertEquals(0, cache.getEvictions());
+    assertEquals(offsets.size(), cache.getBlockCount());
+
+    fs.delete(tmp, true);
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path tmp = writeFile(fs, conf);
+
+    List<Long> offsets = new ArrayList<Long>();
+    SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(tmp, fs, conf);
+    while (scanner.next()) {
+      offsets.add(scanner.getBlockOffset());
+    }
+    scanner.close();
+
+    // Room for only a few blocks.
+    SequenceFileBlockCache cache = new SequenceFileBlockCache(20000);
+    for (long offset : offsets) {
+      cache.getBlock(tmp, offset, fs, conf);
+      assertTrue(cache.getSize() <= cache.getCapacity());
+    }
+
+    assertTrue(cache.getEvictions() > 0);
+    assertEquals(offsets.size(), cache.getBlockCount() + cache.getEvictions());
+
+    // Most recently used block should still be around.
+    long misses = cache.getMisses();
+    cache.getBlock(tmp, offsets.get(offsets.size() - 1), fs, conf);
+    assertEquals(misses, cache.getMisses());
+
+    // First block has been evicted.
+    cache.getBlock(tmp, offsets.get(0), fs, conf);
+    assertEquals(misses + 1, cache.getMisses());
+
+    fs.delete(tmp, true);
+  }
+
+  @Test
+  public void testOneOpenPerMiss() throws IOException {
+    Configuration conf = new Configuration();
+    Path tmp = writeFile(FileSystem.getLocal(conf), conf);
+
+    final int[] opens = new int[1];
+    FileSystem fs = new FilterFileSystem(FileSystem.getLocal(conf)) {
+      @Override
+      public FSDataInputStream open(Path f, int bufferSize) throws IOException {
+        opens[0]++;
+        return super.open(f, bufferSize);
+      }
+    };
+
+    List<Long> offsets = new ArrayList<Long>();
+    SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(tmp, fs, conf);
+    while (scanner.next()) {
+      offsets.add(scanner.getBlockOffset());
+    }
+    scanner.close();
+    assertEquals(1, opens[0]);
+
+    SequenceFileBlockCache cache = new SequenceFileBlockCache(1024 * 1024);
+    IntWritable key = new IntWritable();
+    for (int i = 0; i < offsets.size(); i++) {
+      cache.getBlock(tmp, offsets.get(i), fs, conf).readKey(0, key);
+      assertEquals(i + 2, opens[0]);
+    }
+
+    // Hits don't touch the file at all.
+    cache.getBlock(tmp, offsets.get(0), fs, conf);
+    assertEquals(offsets.size() + 1, opens[0]);
+
+    FileSystem.getLocal(conf).delete(tmp, true);
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(SequenceFileBlockCacheTest.class);
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class SequenceFileBlockScannerTest {
+  private static final int NUM_RECORDS = 5000;
+
+  // Values of varying length, so that blocks hold different numbers of records.
+  private static String valueOf(int i) {
+    StringBuilder sb = new StringBuilder("record " + i);
+    for (int j = 0; j < i % 17; j++) {
+      sb.append(" padding");
+    }
+    return sb.toString();
+  }
+
+  private static Path writeFile(FileSystem fs, Configuration conf,
+      SequenceFile.CompressionType type) throws IOException {
+    Path tmp = new Path("tmp-scanner");
+
+    // Small blocks so that we get lots of them.
+    conf.setInt("io.seqfile.compress.blocksize", 4096);
+    SequenceFile.Writer w = SequenceFile.createWriter(fs, conf, tmp, IntWritable.class,
+        Text.class, type);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      w.append(new IntWritable(i), new Text(valueOf(i)));
+    }
+    w.close();
+
+    return tmp;
+  }
+
+  private static List<Long> getBlockOffsets(Path path, FileSystem fs, Configuration conf)
+      throws IOException {
+    List<Long> offsets = new ArrayList<Long>();
+    SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(path, fs, conf);
+    while (scanner.next()) {
+      offsets.add(scanner.getBlockOffset());
+    }
+    scanner.close();
+
+    return offsets;
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path tmp = writeFile(fs, conf, SequenceFile.CompressionType.BLOCK);
+
+    List<Long> offsets = getBlockOffsets(tmp, fs, conf);
+    assertTrue(offsets.size() > 10);
+
+    // Visit the blocks in random order, sometimes seeking away from a block whose values haven't
+    // been skipped yet, and check each against what SequenceFile.Reader finds at the same offset.
+    List<Integer> order = new ArrayList<Integer>();
+    for (int i = 0; i < offsets.size(); i++) {
+      order.add(i);
+    }
+    Collections.shuffle(order, new Random(42));
+
+    SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(tmp, fs, conf);
+    SequenceFile.Reader reader = new SequenceFile.Reader(fs, tmp, conf);
+    IntWritable key = new IntWritable();
+    IntWritable lastKey = new IntWritable();
+    IntWritable expected = new IntWritable();
+    Text value = new Text();
+    for (int i : order) {
+      long offset = offsets.get(i);
+      scanner.seek(offset);
+      assertTrue(scanner.next());
+      assertEquals(offset, scanner.getBlockOffset());
+
+      scanner.readFirstKey(key);
+      scanner.readLastKey(lastKey);
+      assertEquals(key.get() + scanner.getRecordCount() - 1, lastKey.get());
+
+      reader.seek(offset);
+      assertTrue(reader.next(expected, value));
+      assertEquals(expected.get(), key.get());
+
+      // The block that follows is picked up from where the seek left off.
+      if (i % 2 == 0) {
+        if (i + 1 < offsets.size()) {
+          assertTrue(scanner.next());
+          assertEquals((long) offsets.get(i + 1), scanner.getBlockOffset());
+          scanner.readFirstKey(key);
+          assertEquals(lastKey.get() + 1, key.get());
+        } else {
+          assertFalse(scanner.next());
+        }
+      }
+    }
+    reader.close();
+    scanner.close();
+
+    fs.delete(tmp, true);
+  }
+
+  @Test
+  public void testReadBlock() throws IOException {
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path tmp = writeFile(fs, conf, SequenceFile.CompressionType.BLOCK);
+
+    // Every record of every block comes back the way SequenceFile.Reader reads it.
+    SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(tmp, fs, conf);
+    SequenceFile.Reader reader = new SequenceFile.Reader(fs, tmp, conf);
+    IntWritable key = new IntWritable();
+    IntWritable expectedKey = new IntWritable();
+    Text value = new Text();
+    Text expectedValue = new Text();
+    int records = 0;
+    while (scanner.next()) {
+      SequenceFileBlock block = scanner.readBlock();
+      assertEquals(scanner.getBlockOffset(), block.getOffset());
+      assertEquals(scanner.getRecordCount(), block.getRecordCount());
+
+      for (int i = 0; i < block.getRecordCount(); i++) {
+        assertTrue(reader.next(expectedKey, expectedValue));
+        block.readKey(i, key);
+        block.readValue(i, value);
+        assertEquals(expectedKey, key);
+        assertEquals(expectedValue, value);
+        assertEquals(valueOf(key.get()), value.toString());
+      }
+      records += block.getRecordCount();
+    }
+    assertFalse(reader.next(expectedKey, expectedValue));
+    reader.close();
+    scanner.close();
+
+    assertEquals(NUM_RECORDS, records);
+
+    fs.delete(tmp, true);
+  }
+
+  @Test
+  public void testNotBlockCompressed() throws IOException {
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path tmp = writeFile(fs, conf, SequenceFile.CompressionType.RECORD);
+
+    try {
+      new SequenceFileBlockScanner(tmp, fs, conf);
+      fail("Expected IOException");
+    } catch (IOException e) {
+    }
+
+    fs.delete(tmp, true);
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(SequenceFileBlockScannerTest.class);
+  }
+}
@@ -0,0 +1,409 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.QuickSort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Lists;
+
+import edu.umd.cloud9.io.array.ArrayListOfIntsWritable;
+import edu.umd.cloud9.io.map.HMapIIVIntW;
+import edu.umd.cloud9.io.map.HMapIIW;
+import edu.umd.cloud9.io.map.HashMapWritable;
+import edu.umd.cloud9.io.pair.PairOfInts;
+import edu.umd.cloud9.io.pair.PairOfStrings;
+
+/**
+ * <p>
+ * JMH benchmarks of what Hadoop does with keys and values between the map and the reduce side:
+ * </p>
+ *
+ * <ul>
+ * <li><code>serializeMap</code> and <code>deserializeMap</code>: writing and reading
+ * {@value #MAPS} maps of 50 to 100 random {@link IntWritable} entries, as a
+ * {@link HashMapWritable} and as a {@link MapWritable}. An operation is a map.</li>
+ * <li><code>roundTripKey</code> and <code>roundTripValue</code>: writing a record and reading it
+ * back into a reused object, as a reducer does. An operation is a record.</li>
+ * <li><code>rawCompare</code> and <code>objectCompare</code>: comparing serialized keys with the
+ * registered raw comparator, and by deserializing them and calling <code>compareTo</code>. An
+ * operation is a comparison.</li>
+ * <li><code>rawSort</code> and <code>objectSort</code>: sorting {@value #RECORDS} keys, serialized
+ * in a buffer and through an index with the raw comparator as the map-side sort does, and as
+ * objects. An operation is a key sorted.</li>
+ * </ul>
+ *
+ * <p>
+ * The record class is a parameter, so each class is measured in a JVM of its own.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class SerializationBenchmarks {
+	private static final int MAPS = 10000;
+	private static final int RECORDS = 100000;
+	private static final int VALUES = RECORDS / 10;
+
+	private static final Comparator<WritableComparable<?>> KEY_ORDER =
+			new Comparator<WritableComparable<?>>() {
+				@SuppressWarnings("unchecked")
+				public int compare(WritableComparable<?> a, WritableComparable<?> b) {
+					return ((WritableComparable<Object>) a).compareTo(b);
+				}
+			};
+
+	// serialized records laid out one after the other, as in a map output buffer
+	private static class Records {
+		private final byte[] data;
+		private final int[] offsets;
+		private final int[] lengths;
+
+		private Records(List<? extends Writable> records) throws IOException {
+			DataOutputBuffer out = new DataOutputBuffer();
+			offsets = new int[records.size()];
+			lengths = new int[records.size()];
+			for (int i = 0; i < records.size(); i++) {
+				offsets[i] = out.getLength();
+				records.get(i).write(out);
+				lengths[i] = out.getLength() - offsets[i];
+			}
+			data = out.getData();
+		}
+
+		private int size() {
+			return offsets.length;
+		}
+	}
+
+	private static List<PairOfInts> randomPairsOfInts(Random r) {
+		List<PairOfInts> list = new ArrayList<PairOfInts>(RECORDS);
+		for (int i = 0; i < RECORDS; i++) {
+			list.add(new PairOfInts(r.nextInt(1000), r.nextInt(1000)));
+		}
+		return list;
+	}
+
+	private static List<PairOfStrings> randomPairsOfStrings(Random r) {
+		List<PairOfStrings> list = new ArrayList<PairOfStrings>(RECORDS);
+		for (int i = 0; i < RECORDS; i++) {
+			list.add(new PairOfStrings("term" + r.nextInt(10000), "term" + r.nextInt(10000)));
+		}
+		return list;
+	}
+
+	private static List<Text> randomTexts(Random r) {
+		List<Text> list = new ArrayList<Text>(RECORDS);
+		for (int i = 0; i < RECORDS; i++) {
+			list.add(new Text("http://www.example.com/" + r.nextInt(100000) + ".html"));
+		}
+		return list;
+	}
+
+	private static List<ArrayListOfIntsWritable> randomArrayLists(Random r) {
+		List<ArrayListOfIntsWritable> list = new ArrayList<ArrayListOfIntsWritable>(VALUES);
+		for (int i = 0; i < VALUES; i++) {
+			ArrayListOfIntsWritable a = new ArrayListOfIntsWritable(100);
+			for (int j = 0; j < 100; j++) {
+				a.add(r.nextInt(1000000));
+			}
+			list.add(a);
+		}
+		return list;
+	}
+
+	private static List<HMapIIW> randomHMapIIWs(Random r) {
+		List<HMapIIW> list = new ArrayList<HMapIIW>(VALUES);
+		for (int i = 0; i < VALUES; i++) {
+			HMapIIW map = new HMapIIW();
+			for (int j = 0; j < 50; j++) {
+				map.put(r.nextInt(10000), r.nextInt(10));
+			}
+			list.add(map);
+		}
+		return list;
+	}
+
+	private static List<HMapIIVIntW> randomHMapIIVIntWs(Random r) {
+		List<HMapIIVIntW> list = new ArrayList<HMapIIVIntW>(VALUES);
+		for (int i = 0; i < VALUES; i++) {
+			HMapIIVIntW map = new HMapIIVIntW();
+			for (int j = 0; j < 50; j++) {
+				map.put(r.nextInt(10000), r.nextInt(10));
+			}
+			list.add(map);
+		}
+		return list;
+	}
+
+	private static List<HashMapWritable<IntWritable, IntWritable>> randomHashMapWritables(Random r) {
+		List<HashMapWritable<IntWritable, IntWritable>> list = Lists.newArrayList();
+		for (int i = 0; i < MAPS; i++) {
+			HashMapWritable<IntWritable, IntWritable> map = new HashMapWritable<IntWritable, IntWritable>();
+			int size = r.nextInt(50) + 50;
+			for (int j = 0; j < size; j++) {
+				map.put(new IntWritable(r.nextInt(10000)), new IntWritable(r.nextInt(10)));
+			}
+			list.add(map);
+		}
+		return list;
+	}
+
+	private static List<MapWritable> randomMapWritables(Random r) {
+		List<MapWritable> list = Lists.newArrayList();
+		for (int i = 0; i < MAPS; i++) {
+			MapWritable map = new MapWritable();
+			int size = r.nextInt(50) + 50;
+			for (int j = 0; j < size; j++) {
+				map.put(new IntWritable(r.nextInt(10000)), new IntWritable(r.nextInt(10)));
+			}
+			list.add(map);
+		}
+		return list;
+	}
+
+	@State(Scope.Benchmark)
+	public static class Maps {
+		@Param({ "HashMapWritable", "MapWritable" })
+		public String type;
+
+		boolean hashMapWritable;
+		List<Writable> maps;
+		Records serialized;
+		final DataOutputBuffer out = new DataOutputBuffer();
+		final DataInputBuffer in = new DataInputBuffer();
+
+		@Setup
+		public void setUp() throws IOException {
+			Random r = new Random(0);
+			hashMapWritable = "HashMapWritable".equals(type);
+			maps = new ArrayList<Writable>(hashMapWritable ? randomHashMapWritables(r)
+					: randomMapWritables(r));
+			serialized = new Records(maps);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Keys {
+		@Param({ "PairOfInts", "PairOfStrings", "Text" })
+		public String type;
+
+		List<WritableComparable<?>> records;
+		Records serialized;
+		RawComparator<?> comparator;
+		WritableComparable<?> o1;
+		WritableComparable<?> o2;
+		final DataOutputBuffer out = new DataOutputBuffer();
+		final DataInputBuffer in = new DataInputBuffer();
+
+		@Setup
+		public void setUp() throws Exception {
+			Random r = new Random(0);
+			if ("PairOfInts".equals(type)) {
+				records = new ArrayList<WritableComparable<?>>(randomPairsOfInts(r));
+			} else if ("PairOfStrings".equals(type)) {
+				records = new ArrayList<WritableComparable<?>>(randomPairsOfStrings(r));
+			} else {
+				records = new ArrayList<WritableComparable<?>>(randomTexts(r));
+			}
+			serialized = new Records(records);
+
+			Class<?> c = records.get(0).getClass();
+			comparator = WritableComparator.get(c.asSubclass(WritableComparable.class));
+			o1 = (WritableComparable<?>) c.newInstance();
+			o2 = (WritableComparable<?>) c.newInstance();
+		}
+	}
+
+	// fresh input for every invocation, since sorting twice wouldn't do the same work
+	public static class UnsortedKeys extends Keys implements IndexedSortable {
+		List<WritableComparable<?>> copy;
+		int[] index;
+
+		@Setup(Level.Invocation)
+		public void reset() {
+			copy = new ArrayList<WritableComparable<?>>(records);
+			if (index == null) {
+				index = new int[records.size()];
+			}
+			for (int i = 0; i < index.length; i++) {
+				index[i] = i;
+			}
+		}
+
+		public int compare(int i, int j) {
+			int a = index[i], b = index[j];
+			return comparator.compare(serialized.data, serialized.offsets[a], serialized.lengths[a],
+					serialized.data, serialized.offsets[b], serialized.lengths[b]);
+		}
+
+		public void swap(int i, int j) {
+			int tmp = index[i];
+			index[i] = index[j];
+			index[j] = tmp;
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Values {
+		@Param({ "ArrayListOfIntsWritable", "HMapIIW", "HMapIIVIntW" })
+		public String type;
+
+		List<Writable> records;
+		Writable reused;
+		final DataOutputBuffer out = new DataOutputBuffer();
+		final DataInputBuffer in = new DataInputBuffer();
+
+		@Setup
+		public void setUp() {
+			Random r = new Random(0);
+			if ("ArrayListOfIntsWritable".equals(type)) {
+				records = new ArrayList<Writable>(randomArrayLists(r));
+				reused = new ArrayListOfIntsWritable();
+			} else if ("HMapIIW".equals(type)) {
+				records = new ArrayList<Writable>(randomHMapIIWs(r));
+				reused = new HMapIIW();
+			} else {
+				records = new ArrayList<Writable>(randomHMapIIVIntWs(r));
+				reused = new HMapIIVIntW();
+			}
+		}
+	}
+
+	private static void roundTrip(List<? extends Writable> records, Writable reused,
+			DataOutputBuffer out, DataInputBuffer in, Blackhole bh) throws IOException {
+		for (Writable w : records) {
+			out.reset();
+			w.write(out);
+			in.reset(out.getData(), out.getLength());
+			reused.readFields(in);
+			bh.consume(reused);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MAPS)
+	public int serializeMap(Maps state) throws IOException {
+		state.out.reset();
+		for (Writable w : state.maps) {
+			w.write(state.out);
+		}
+		return state.out.getLength();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MAPS)
+	public void deserializeMap(Maps state, Blackhole bh) throws IOException {
+		Records records = state.serialized;
+		for (int i = 0; i < records.size(); i++) {
+			Writable map = state.hashMapWritable ? new HashMapWritable<IntWritable, IntWritable>()
+					: new MapWritable();
+			state.in.reset(records.data, records.offsets[i], records.lengths[i]);
+			map.readFields(state.in);
+			bh.consume(map);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public void roundTripKey(Keys state, Blackhole bh) throws IOException {
+		roundTrip(state.records, state.o1, state.out, state.in, bh);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALUES)
+	public void roundTripValue(Values state, Blackhole bh) throws IOException {
+		roundTrip(state.records, state.reused, state.out, state.in, bh);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS - 1)
+	public int rawCompare(Keys state) {
+		Records records = state.serialized;
+		int n = records.size() - 1;
+		int sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += state.comparator.compare(records.data, records.offsets[i], records.lengths[i],
+					records.data, records.offsets[i + 1], records.lengths[i + 1]);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS - 1)
+	public int objectCompare(Keys state) throws IOException {
+		Records records = state.serialized;
+		int n = records.size() - 1;
+		int sum = 0;
+		for (int i = 0; i < n; i++) {
+			// deserializing into reused objects, as WritableComparator's default compare() does
+			state.in.reset(records.data, records.offsets[i], records.lengths[i]);
+			state.o1.readFields(state.in);
+			state.in.reset(records.data, records.offsets[i + 1], records.lengths[i + 1]);
+			state.o2.readFields(state.in);
+			sum += KEY_ORDER.compare(state.o1, state.o2);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public int rawSort(UnsortedKeys state) {
+		new QuickSort().sort(state, 0, state.index.length);
+		return state.index[0];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public WritableComparable<?> objectSort(UnsortedKeys state) {
+		Collections.sort(state.copy, KEY_ORDER);
+		return state.copy.get(0);
+	}
+}
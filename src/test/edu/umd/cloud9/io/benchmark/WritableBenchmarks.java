@@ -0,0 +1,312 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.WritableComparable;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.umd.cloud9.io.JSONObjectWritable;
+import edu.umd.cloud9.io.Schema;
+import edu.umd.cloud9.io.Tuple;
+import edu.umd.cloud9.io.pair.PairOfInts;
+
+/**
+ * <p>
+ * JMH benchmarks of three ways of representing a pair of ints as a key: {@link PairOfInts}, a
+ * {@link Tuple}, and a {@link JSONObjectWritable}. For each, {@value #SIZE} objects holding random
+ * ints between 0 and 1000 are created, cloned and sorted. An operation is one object created, one
+ * cloned, or (for sorting) one object in the list sorted.
+ * </p>
+ *
+ * <p>
+ * Also compares the cost of accessing the fields of a record held in a HashMap, an ArrayList and
+ * an array, which is what the three representations above come down to.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class WritableBenchmarks {
+	private static final int SIZE = 200000;
+	private static final int ACCESSES = 10000000;
+
+	private static final Schema MY_SCHEMA = new Schema();
+
+	static {
+		MY_SCHEMA.addField("left", Integer.class, new Integer(1));
+		MY_SCHEMA.addField("right", Integer.class, new Integer(1));
+	}
+
+	private static class MyJSONTuple extends JSONObjectWritable implements
+			WritableComparable<MyJSONTuple> {
+		public int compareTo(MyJSONTuple that) {
+			try {
+				int thisLeft = this.getIntUnchecked("left");
+				int thatLeft = that.getIntUnchecked("left");
+				if (thisLeft != thatLeft) {
+					return thisLeft < thatLeft ? -1 : 1;
+				}
+
+				int thisRight = this.getIntUnchecked("right");
+				int thatRight = that.getIntUnchecked("right");
+				return thisRight < thatRight ? -1 : (thisRight == thatRight ? 0 : 1);
+			} catch (JSONException e) {
+				throw new RuntimeException("Unexpected error comparing JSON objects!", e);
+			}
+		}
+	}
+
+	private static final int[] lefts = new int[SIZE];
+	private static final int[] rights = new int[SIZE];
+
+	static {
+		Random r = new Random(0);
+		for (int i = 0; i < SIZE; i++) {
+			lefts[i] = r.nextInt(1000);
+			rights[i] = r.nextInt(1000);
+		}
+	}
+
+	private static List<PairOfInts> createPairsOfInts() {
+		List<PairOfInts> list = new ArrayList<PairOfInts>(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			list.add(new PairOfInts(lefts[i], rights[i]));
+		}
+		return list;
+	}
+
+	private static List<Tuple> createTuples() {
+		List<Tuple> list = new ArrayList<Tuple>(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			Tuple tuple = MY_SCHEMA.instantiate();
+			tuple.set(0, lefts[i]);
+			tuple.set(1, rights[i]);
+			list.add(tuple);
+		}
+		return list;
+	}
+
+	private static List<MyJSONTuple> createJSONTuples() throws JSONException {
+		List<MyJSONTuple> list = new ArrayList<MyJSONTuple>(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			MyJSONTuple j = new MyJSONTuple();
+			j.put("left", lefts[i]);
+			j.put("right", rights[i]);
+			list.add(j);
+		}
+		return list;
+	}
+
+	@State(Scope.Benchmark)
+	public static class PairsOfInts {
+		List<PairOfInts> list;
+
+		@Setup
+		public void setUp() {
+			list = createPairsOfInts();
+		}
+	}
+
+	// a fresh copy for every invocation, since sorting it twice wouldn't do the same work
+	public static class UnsortedPairsOfInts extends PairsOfInts {
+		List<PairOfInts> copy;
+
+		@Setup(Level.Invocation)
+		public void copy() {
+			copy = new ArrayList<PairOfInts>(list);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Tuples {
+		List<Tuple> list;
+
+		@Setup
+		public void setUp() {
+			list = createTuples();
+		}
+	}
+
+	public static class UnsortedTuples extends Tuples {
+		List<Tuple> copy;
+
+		@Setup(Level.Invocation)
+		public void copy() {
+			copy = new ArrayList<Tuple>(list);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class JSONTuples {
+		List<MyJSONTuple> list;
+
+		@Setup
+		public void setUp() throws JSONException {
+			list = createJSONTuples();
+		}
+	}
+
+	public static class UnsortedJSONTuples extends JSONTuples {
+		List<MyJSONTuple> copy;
+
+		@Setup(Level.Invocation)
+		public void copy() {
+			copy = new ArrayList<MyJSONTuple>(list);
+		}
+	}
+
+	private final String[] fields = new String[] { "field1", "field2", "field3" };
+	private final Map<String, Integer> fieldMap = new HashMap<String, Integer>();
+	private final List<Integer> fieldList = new ArrayList<Integer>();
+	private final int[] fieldArray = new int[] { 1, 2, 3 };
+
+	@Setup
+	public void setUp() {
+		for (int i = 0; i < fieldArray.length; i++) {
+			fieldMap.put(fields[i], fieldArray[i]);
+			fieldList.add(fieldArray[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public List<PairOfInts> createPairOfInts() {
+		return createPairsOfInts();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public List<PairOfInts> clonePairOfInts(PairsOfInts state) {
+		List<PairOfInts> clones = new ArrayList<PairOfInts>(SIZE);
+		for (PairOfInts p : state.list) {
+			clones.add(p.clone());
+		}
+		return clones;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public PairOfInts sortPairOfInts(UnsortedPairsOfInts state) {
+		Collections.sort(state.copy);
+		return state.copy.get(0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public List<Tuple> createTuple() {
+		return createTuples();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public List<Tuple> cloneTuple(Tuples state) {
+		List<Tuple> clones = new ArrayList<Tuple>(SIZE);
+		for (Tuple t : state.list) {
+			Tuple n = MY_SCHEMA.instantiate();
+			n.set(0, t.get(0));
+			n.set(1, t.get(1));
+			clones.add(n);
+		}
+		return clones;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public Tuple sortTuple(UnsortedTuples state) {
+		Collections.sort(state.copy);
+		return state.copy.get(0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public List<MyJSONTuple> createJSON() throws JSONException {
+		return createJSONTuples();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public List<MyJSONTuple> cloneJSON(JSONTuples state) throws JSONException {
+		List<MyJSONTuple> clones = new ArrayList<MyJSONTuple>(SIZE);
+		for (MyJSONTuple t : state.list) {
+			MyJSONTuple n = new MyJSONTuple();
+			n.put("left", t.getInt("left"));
+			n.put("right", t.getInt("right"));
+			clones.add(n);
+		}
+		return clones;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public MyJSONTuple sortJSON(UnsortedJSONTuples state) {
+		Collections.sort(state.copy);
+		return state.copy.get(0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ACCESSES)
+	public int fieldAccessHashMap() {
+		int sum = 0;
+		for (int i = 0; i < ACCESSES; i++) {
+			sum += fieldMap.get(fields[i % 3]);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ACCESSES)
+	public int fieldAccessArrayList() {
+		int sum = 0;
+		for (int i = 0; i < ACCESSES; i++) {
+			sum += fieldList.get(i % 3);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ACCESSES)
+	public int fieldAccessArray() {
+		int sum = 0;
+		for (int i = 0; i < ACCESSES; i++) {
+			sum += fieldArray[i % 3];
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.fd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class String2IntFrequencyDistributionCountMinWritableTest {
+
+	private static String2IntFrequencyDistributionCountMinWritable roundTrip(
+			String2IntFrequencyDistributionCountMinWritable fd) throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		fd.write(new DataOutputStream(bytesOut));
+
+		String2IntFrequencyDistributionCountMinWritable copy =
+				new String2IntFrequencyDistributionCountMinWritable();
+		copy.readFields(new DataInputStream(new ByteArrayInputStream(bytesOut.toByteArray())));
+		return copy;
+	}
+
+	@Test
+	public void testSerialize() throws IOException {
+		String2IntFrequencyDistributionCountMinWritable fd =
+				new String2IntFrequencyDistributionCountMinWritable(50, 3, 4);
+		for (int i = 0; i < 1000; i++) {
+			fd.increment("t" + (i % 37), i % 5);
+		}
+
+		String2IntFrequencyDistributionCountMinWritable copy = roundTrip(fd);
+
+		assertEquals(50, copy.getWidth());
+		assertEquals(3, copy.getDepth());
+		assertEquals(4, copy.getCapacity());
+		assertEquals(fd.getSumOfCounts(), copy.getSumOfCounts());
+		assertEquals(fd.keySet(), copy.keySet());
+		for (int i = 0; i < 40; i++) {
+			assertEquals(fd.get("t" + i), copy.get("t" + i));
+		}
+	}
+
+	@Test
+	public void testSerializeEmpty() throws IOException {
+		String2IntFrequencyDistributionCountMinWritable copy =
+				roundTrip(new String2IntFrequencyDistributionCountMinWritable(10, 2, 5));
+
+		assertEquals(10, copy.getWidth());
+		assertEquals(2, copy.getDepth());
+		assertEquals(0, copy.getNumberOfEvents());
+		assertEquals(0, copy.getSumOfCounts());
+		assertEquals(0, copy.get("a"));
+	}
+
+	@Test
+	public void testMerge() throws IOException {
+		String2IntFrequencyDistributionCountMinWritable fd1 =
+				new String2IntFrequencyDistributionCountMinWritable(100, 3, 2);
+		fd1.increment("a", 10);
+		fd1.increment("b", 3);
+
+		String2IntFrequencyDistributionCountMinWritable fd2 =
+				new String2IntFrequencyDistributionCountMinWritable(100, 3, 2);
+		fd2.increment("a", 2);
+		fd2.increment("c", 8);
+
+		String2IntFrequencyDistributionCountMinWritable merged = roundTrip(fd1);
+		merged.merge(roundTrip(fd2));
+
+		assertEquals(23, merged.getSumOfCounts());
+		assertTrue(merged.get("a") >= 12);
+		assertTrue(merged.contains("a"));
+		assertTrue(merged.contains("c"));
+		assertEquals(2, merged.getNumberOfEvents());
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(String2IntFrequencyDistributionCountMinWritableTest.class);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.fd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class String2IntFrequencyDistributionSpaceSavingWritableTest {
+
+	private static String2IntFrequencyDistributionSpaceSavingWritable roundTrip(
+			String2IntFrequencyDistributionSpaceSavingWritable fd) throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		fd.write(new DataOutputStream(bytesOut));
+
+		String2IntFrequencyDistributionSpaceSavingWritable copy =
+				new String2IntFrequencyDistributionSpaceSavingWritable();
+		copy.readFields(new DataInputStream(new ByteArrayInputStream(bytesOut.toByteArray())));
+		return copy;
+	}
+
+	@Test
+	public void testSerialize() throws IOException {
+		String2IntFrequencyDistributionSpaceSavingWritable fd =
+				new String2IntFrequencyDistributionSpaceSavingWritable(3);
+		fd.increment("a", 10);
+		fd.increment("b", 5);
+		fd.increment("c", 2);
+		fd.increment("d");
+		fd.increment("caf\u00e9", 4);
+
+		String2IntFrequencyDistributionSpaceSavingWritable copy = roundTrip(fd);
+
+		assertEquals(3, copy.getCapacity());
+		assertEquals(3, copy.getNumberOfEvents());
+		assertEquals(fd.getSumOfCounts(), copy.getSumOfCounts());
+		assertEquals(fd.getErrorBound(), copy.getErrorBound());
+		for (String key : new String[] { "a", "b", "c", "d", "caf\u00e9" }) {
+			assertEquals(fd.contains(key), copy.contains(key));
+			assertEquals(fd.get(key), copy.get(key));
+			assertEquals(fd.getError(key), copy.getError(key));
+		}
+
+		// counting goes on in the copy
+		copy.increment("e");
+		assertEquals(3, copy.getNumberOfEvents());
+		assertTrue(copy.contains("e"));
+	}
+
+	@Test
+	public void testSerializeEmpty() throws IOException {
+		String2IntFrequencyDistributionSpaceSavingWritable copy =
+				roundTrip(new String2IntFrequencyDistributionSpaceSavingWritable(5));
+
+		assertEquals(5, copy.getCapacity());
+		assertEquals(0, copy.getNumberOfEvents());
+		assertEquals(0, copy.getSumOfCounts());
+		assertFalse(copy.contains("a"));
+	}
+
+	@Test
+	public void testMerge() throws IOException {
+		String2IntFrequencyDistributionSpaceSavingWritable fd1 =
+				new String2IntFrequencyDistributionSpaceSavingWritable(2);
+		fd1.increment("a", 10);
+		fd1.increment("b", 3);
+
+		String2IntFrequencyDistributionSpaceSavingWritable fd2 =
+				new String2IntFrequencyDistributionSpaceSavingWritable(2);
+		fd2.increment("a", 2);
+		fd2.increment("c", 8);
+
+		String2IntFrequencyDistributionSpaceSavingWritable merged = roundTrip(fd1);
+		merged.merge(roundTrip(fd2));
+
+		// fd1 hasn't replaced any event, so c didn't occur there
+		assertEquals(23, merged.getSumOfCounts());
+		assertEquals(12, merged.get("a"));
+		assertEquals(8, merged.get("c"));
+		assertEquals(0, merged.getError("c"));
+
+		// b is dropped, with an estimate of 3
+		assertFalse(merged.contains("b"));
+		assertEquals(3, merged.getErrorBound());
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(String2IntFrequencyDistributionSpaceSavingWritableTest.class);
+	}
+}
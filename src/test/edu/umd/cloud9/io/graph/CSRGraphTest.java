@@ -0,0 +1,191 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package edu.umd.cloud9.io.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import edu.umd.cloud9.util.array.ArrayListOfInts;
+
+public class CSRGraphTest {
+
+  // Random adjacency lists, over nodes 0, 3, 6, ..., some of them without neighbors.
+  private static int[][] randomGraph(int numNodes, Random r) {
+    int[][] graph = new int[numNodes][];
+    for (int i = 0; i < numNodes; i++) {
+      graph[i] = new int[r.nextInt(4) == 0 ? 0 : r.nextInt(50)];
+      for (int j = 0; j < graph[i].length; j++) {
+        graph[i][j] = r.nextInt(1 << (1 + r.nextInt(30)));
+      }
+    }
+    return graph;
+  }
+
+  private static int[] sorted(int[] a) {
+    int[] s = a.clone();
+    Arrays.sort(s);
+    return s;
+  }
+
+  private static int[] toArray(ArrayListOfInts list) {
+    return Arrays.copyOf(list.getArray(), list.size());
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path dir = new Path("tmp-csr");
+    Path path = new Path(dir, "part-00000");
+    fs.delete(dir, true);
+
+    int[][] graph = randomGraph(1000, new Random(0));
+    long numEdges = 0;
+    CSRGraphWriter writer = new CSRGraphWriter(path, fs);
+    for (int i = 0; i < graph.length; i++) {
+      writer.append(3 * i, graph[i], graph[i].length);
+      numEdges += graph[i].length;
+    }
+    writer.close();
+
+    assertTrue(CSRGraph.isGraph(dir, fs));
+    assertTrue(fs.exists(new Path(dir, "_index/part-00000")));
+
+    CSRGraphIndex index = CSRGraphIndex.load(CSRGraph.getIndexPath(path), fs);
+    assertEquals(1000, index.getNumNodes());
+    assertEquals(numEdges, index.getNumEdges());
+    assertEquals(0, index.getMinNode());
+    assertEquals(2997, index.getMaxNode());
+    assertEquals(8, index.getNumBlocks());
+    assertEquals(3 * CSRGraph.BLOCK_SIZE, index.getBlockNode(1));
+    assertEquals(1000 - 7 * CSRGraph.BLOCK_SIZE, index.getBlockLength(7));
+
+    FSDataInputStream in = fs.open(path);
+    CSRGraphReader reader = new CSRGraphReader(in, index.getNumNodes());
+    ArrayListOfInts neighbors = new ArrayListOfInts();
+    for (int i = 0; i < graph.length; i++) {
+      assertTrue(reader.next(neighbors));
+      assertEquals(3 * i, reader.getNode());
+      assertTrue(Arrays.equals(sorted(graph[i]), toArray(neighbors)));
+    }
+    assertFalse(reader.next(neighbors));
+    in.close();
+
+    fs.delete(dir, true);
+  }
+
+  @Test
+  public void testRandomAccess() throws IOException {
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path dir = new Path("tmp-csr-shards");
+    fs.delete(dir, true);
+
+    // nodes are spread across shards, each holding increasing ids
+    int[][] graph = randomGraph(3000, new Random(1));
+    CSRGraphWriter[] writers = new CSRGraphWriter[3];
+    for (int s = 0; s < writers.length; s++) {
+      writers[s] = new CSRGraphWriter(new Path(dir, "part-0000" + s), fs);
+    }
+    for (int i = 0; i < graph.length; i++) {
+      writers[i % 3].append(3 * i + 1, graph[i], graph[i].length);
+    }
+    for (CSRGraphWriter writer : writers) {
+      writer.close();
+    }
+
+    CSRGraph g = CSRGraph.open(dir, fs);
+    assertEquals(3, g.getNumShards());
+    assertEquals(3000, g.getNumNodes());
+    assertEquals(1000, g.getIndex(1).getNumNodes());
+
+    ArrayListOfInts neighbors = new ArrayListOfInts();
+    Random r = new Random(2);
+    for (int k = 0; k < 2000; k++) {
+      int i = r.nextInt(graph.length);
+      assertTrue(g.getNeighbors(3 * i + 1, neighbors));
+      assertTrue(Arrays.equals(sorted(graph[i]), toArray(neighbors)));
+    }
+
+    // nodes between, before, and after those in the graph
+    assertFalse(g.getNeighbors(3 * 500, neighbors));
+    assertEquals(0, neighbors.size());
+    assertFalse(g.getNeighbors(0, neighbors));
+    assertFalse(g.getNeighbors(3 * 3000 + 1, neighbors));
+    g.close();
+
+    fs.delete(dir, true);
+  }
+
+  @Test
+  public void testDecreasingNodes() throws IOException {
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path dir = new Path("tmp-csr-bad");
+    fs.delete(dir, true);
+
+    CSRGraphWriter writer = new CSRGraphWriter(new Path(dir, "part-00000"), fs);
+    writer.append(5, new int[] { 1, 2 }, 2);
+    try {
+      writer.append(5, new int[] { 3 }, 1);
+      fail();
+    } catch (IOException e) {
+    }
+    try {
+      writer.append(4, new int[0], 0);
+      fail();
+    } catch (IOException e) {
+    }
+    writer.close();
+
+    fs.delete(dir, true);
+  }
+
+  @Test
+  public void testEmptyShard() throws IOException {
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path dir = new Path("tmp-csr-empty");
+    fs.delete(dir, true);
+
+    new CSRGraphWriter(new Path(dir, "part-00000"), fs).close();
+
+    CSRGraph g = CSRGraph.open(dir, fs);
+    assertEquals(0, g.getNumNodes());
+    assertEquals(0, g.getNumEdges());
+    assertEquals(-1, g.getIndex(0).findBlock(0));
+    assertFalse(g.getNeighbors(0, new ArrayListOfInts()));
+    g.close();
+
+    fs.delete(dir, true);
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(CSRGraphTest.class);
+  }
+}
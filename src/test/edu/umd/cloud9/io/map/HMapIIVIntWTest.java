@@ -0,0 +1,147 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.io.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.serializer.Deserializer;
+import org.apache.hadoop.io.serializer.SerializationFactory;
+import org.junit.Test;
+
+public class HMapIIVIntWTest {
+
+	@Test
+	public void testSerialize() throws IOException {
+		HMapIIVIntW m1 = new HMapIIVIntW();
+
+		// small keys and values take a byte each, plus a byte for the number of entries
+		for (int i = 0; i < 100; i++) {
+			m1.put(i, i + 1);
+		}
+		assertEquals(201, m1.serialize().length);
+
+		m1.put(-1, Integer.MAX_VALUE);
+		m1.put(Integer.MIN_VALUE, -5);
+
+		HMapIIVIntW m2 = HMapIIVIntW.create(m1.serialize());
+		assertEquals(102, m2.size());
+		assertEquals(Integer.MAX_VALUE, m2.get(-1));
+		assertEquals(-5, m2.get(Integer.MIN_VALUE));
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i + 1, m2.get(i));
+		}
+	}
+
+	@Test
+	public void testSerializeEmpty() throws IOException {
+		HMapIIVIntW m1 = new HMapIIVIntW();
+		m1.decode();
+
+		assertEquals(1, m1.serialize().length);
+		assertEquals(0, HMapIIVIntW.create(m1.serialize()).size());
+	}
+
+	@Test
+	public void testSerializeLazy() throws IOException {
+		HMapIIVIntW m1 = new HMapIIVIntW();
+		m1.put(3, 5);
+		m1.put(4, 22);
+
+		HMapIIVIntW m2 = new HMapIIVIntW();
+		m2.setLazyDecode(true);
+		DataInputBuffer in = new DataInputBuffer();
+		byte[] bytes = m1.serialize();
+		in.reset(bytes, bytes.length);
+		m2.readFields(in);
+
+		assertFalse(m2.isDecoded());
+		assertEquals(2, m2.size());
+		assertEquals(2, m2.getKeys().length);
+
+		// a lazily decoded map serializes to the same bytes
+		HMapIIVIntW m3 = HMapIIVIntW.create(m2.serialize());
+		assertEquals(2, m3.size());
+		assertEquals(5, m3.get(3));
+		assertEquals(22, m3.get(4));
+
+		HMapIIVIntW sum = new HMapIIVIntW();
+		sum.put(3, 1);
+		sum.lazyplus(m2);
+		sum.lazyplus(m1);
+		assertEquals(2, sum.size());
+		assertEquals(11, sum.get(3));
+		assertEquals(44, sum.get(4));
+
+		m2.decode();
+		assertTrue(m2.isDecoded());
+		assertEquals(2, m2.size());
+		assertEquals(5, m2.get(3));
+		assertEquals(22, m2.get(4));
+	}
+
+	@Test
+	public void testLazyDecodeIsPerObject() throws IOException {
+		HMapIIVIntW m1 = new HMapIIVIntW();
+		m1.put(3, 5);
+
+		HMapIIVIntW lazy = new HMapIIVIntW();
+		lazy.setLazyDecode(true);
+
+		// a lazy object doesn't change how other objects are decoded
+		assertTrue(HMapIIVIntW.create(m1.serialize()).isDecoded());
+		assertFalse(new HMapIIVIntW().getLazyDecode());
+	}
+
+	@Test
+	public void testLazyDecodeFromConf() throws IOException {
+		HMapIIVIntW m1 = new HMapIIVIntW();
+		m1.put(3, 5);
+
+		Configuration conf = new Configuration();
+		conf.setBoolean(HMapIIVIntW.LAZY_DECODE_PROPERTY, true);
+
+		// the values passed to a combiner or reducer are created with the job configuration
+		DataOutputBuffer out = new DataOutputBuffer();
+		m1.write(out);
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+
+		Deserializer<HMapIIVIntW> deserializer =
+				new SerializationFactory(conf).getDeserializer(HMapIIVIntW.class);
+		deserializer.open(in);
+		HMapIIVIntW m2 = deserializer.deserialize(null);
+		deserializer.close();
+
+		assertFalse(m2.isDecoded());
+		assertEquals(3, m2.getKeys()[0]);
+		assertEquals(5, m2.getValues()[0]);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(HMapIIVIntWTest.class);
+	}
+
+}
@@ -17,6 +17,11 @@
 package edu.umd.cloud9.math;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
 import junit.framework.JUnit4TestAdapter;
 
 import org.junit.Test;
@@ -41,6 +46,109 @@ public class LogMathTest {
     assertEquals(LogMath.add(Math.log(10), Math.log(0.1)), Math.log(10.1), PRECISION_12);
   }
 
+  @Test
+  public void testLog1pExpNeg() {
+    double maxError = 0.0;
+    for (int i = 0; i <= 30 * 1000; i++) {
+      double x = i / 1000.0;
+      maxError = Math.max(maxError, Math.abs(LogMath.log1pExpNeg(x) - Math.log(1 + Math.exp(-x))));
+    }
+
+    Random r = new Random(0);
+    for (int i = 0; i < 100000; i++) {
+      double x = 30 * r.nextDouble();
+      maxError = Math.max(maxError, Math.abs(LogMath.log1pExpNeg(x) - Math.log(1 + Math.exp(-x))));
+    }
+    assertTrue("max error " + maxError, maxError < LogMath.ERROR_BOUND);
+
+    assertEquals(Math.log(2), LogMath.log1pExpNeg(0.0), PRECISION_12);
+    assertEquals(0.0, LogMath.log1pExpNeg(Double.POSITIVE_INFINITY), 0.0);
+    assertTrue(Double.isNaN(LogMath.log1pExpNeg(Double.NaN)));
+  }
+
+  @Test
+  public void testAddFast() {
+    Random r = new Random(0);
+    for (int i = 0; i < 100000; i++) {
+      double a = 100 * (r.nextDouble() - 0.5);
+      double b = a - 40 * r.nextDouble();
+      assertEquals(LogMath.add(a, b), LogMath.addFast(a, b), LogMath.ERROR_BOUND);
+      assertEquals(LogMath.add(b, a), LogMath.addFast(b, a), LogMath.ERROR_BOUND);
+
+      float fa = (float) a, fb = (float) b;
+      float expected = LogMath.add(fa, fb);
+      assertEquals(expected, LogMath.addFast(fa, fb),
+          LogMath.ERROR_BOUND + Math.ulp(expected));
+    }
+
+    assertEquals(Math.log(2), LogMath.addFast(Math.log(1), Math.log(1)), LogMath.ERROR_BOUND);
+    assertEquals(Math.log(1.1), LogMath.addFast(Math.log(0.1), Math.log(1)), LogMath.ERROR_BOUND);
+    assertEquals(Math.log(10.1), LogMath.addFast(Math.log(10), Math.log(0.1)), LogMath.ERROR_BOUND);
+  }
+
+  @Test
+  public void testAddFastNegativeInfinity() {
+    assertEquals(-1.5, LogMath.addFast(Double.NEGATIVE_INFINITY, -1.5), 0.0);
+    assertEquals(-1.5, LogMath.addFast(-1.5, Double.NEGATIVE_INFINITY), 0.0);
+    assertEquals(Double.NEGATIVE_INFINITY,
+        LogMath.addFast(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY), 0.0);
+
+    assertEquals(-1.5f, LogMath.addFast(Float.NEGATIVE_INFINITY, -1.5f), 0.0f);
+    assertEquals(-1.5f, LogMath.addFast(-1.5f, Float.NEGATIVE_INFINITY), 0.0f);
+  }
+
+  @Test
+  public void testLogSumExp() {
+    Random r = new Random(0);
+    for (int trial = 0; trial < 1000; trial++) {
+      float[] values = new float[1 + r.nextInt(200)];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = (float) (10 * r.nextGaussian());
+      }
+      int start = r.nextInt(values.length);
+      int end = start + 1 + r.nextInt(values.length - start);
+
+      double expected = values[start];
+      for (int i = start + 1; i < end; i++) {
+        expected = LogMath.add(expected, values[i]);
+      }
+      float actual = LogMath.logSumExp(values, start, end);
+      assertEquals(expected, actual, LogMath.ERROR_BOUND + Math.ulp(actual));
+    }
+
+    float[] values = new float[] { Float.NEGATIVE_INFINITY, (float) Math.log(2), (float) Math.log(3),
+        Float.NEGATIVE_INFINITY };
+    assertEquals(Math.log(5), LogMath.logSumExp(values, 0, 4), 1e-6);
+    assertEquals(Math.log(3), LogMath.logSumExp(values, 2, 4), 1e-6);
+    assertEquals(Float.NEGATIVE_INFINITY, LogMath.logSumExp(values, 0, 0), 0.0f);
+    assertEquals(Float.NEGATIVE_INFINITY, LogMath.logSumExp(values, 3, 4), 0.0f);
+  }
+
+  @Test
+  public void testExact() {
+    boolean old = LogMath.isExact();
+    try {
+      LogMath.setExact(true);
+      assertTrue(LogMath.isExact());
+
+      Random r = new Random(0);
+      for (int i = 0; i < 10000; i++) {
+        double a = 100 * (r.nextDouble() - 0.5);
+        double b = a - 40 * r.nextDouble();
+        assertEquals(LogMath.add(a, b), LogMath.addFast(a, b), PRECISION_12);
+      }
+
+      float[] values = new float[] { -3.0f, 0.5f, -20.0f, -40.0f };
+      double expected = Math.log(Math.exp(-3.0) + Math.exp(0.5) + Math.exp(-20.0) + Math.exp(-40.0));
+      assertEquals(expected, LogMath.logSumExp(values, 0, 4), 1e-6);
+
+      LogMath.setExact(false);
+      assertFalse(LogMath.isExact());
+    } finally {
+      LogMath.setExact(old);
+    }
+  }
+
   public static junit.framework.Test suite() {
     return new JUnit4TestAdapter(LogMathTest.class);
   }
@@ -0,0 +1,119 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.math.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.umd.cloud9.math.LogMath;
+
+/**
+ * JMH benchmarks of the exact and the fast log-add in {@link LogMath}: adding up {@value #SIZE}
+ * log probabilities pairwise, and in ranges of {@value #RANGE} with
+ * {@link LogMath#logSumExp(float[], int, int)}. An operation is a value added. The fast methods are
+ * also measured in exact mode (<code>exact=true</code>), to show the cost of turning the
+ * approximation off.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class LogMathBenchmarks {
+  private static final int SIZE = 1000000;
+  private static final int RANGE = 100;
+
+  private static final float[] values = new float[SIZE];
+
+  static {
+    Random r = new Random(0);
+    for (int i = 0; i < SIZE; i++) {
+      values[i] = (float) (-20.0 * r.nextDouble());
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class FastMode {
+    @Param({ "false", "true" })
+    public boolean exact;
+
+    @Setup
+    public void setUp() {
+      LogMath.setExact(exact);
+    }
+
+    @TearDown
+    public void tearDown() {
+      LogMath.setExact(false);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public float add() {
+    float total = values[0];
+    for (int i = 1; i < SIZE; i++) {
+      total = LogMath.add(total, values[i]);
+    }
+    return total;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public float addFast(FastMode mode) {
+    float total = Float.NEGATIVE_INFINITY;
+    for (int i = 0; i < SIZE; i++) {
+      total = LogMath.addFast(total, values[i]);
+    }
+    return total;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void addRange(Blackhole bh) {
+    for (int i = 0; i < SIZE; i += RANGE) {
+      float sum = values[i];
+      for (int j = i + 1; j < i + RANGE; j++) {
+        sum = LogMath.add(sum, values[j]);
+      }
+      bh.consume(sum);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void logSumExp(FastMode mode, Blackhole bh) {
+    for (int i = 0; i < SIZE; i += RANGE) {
+      bh.consume(LogMath.logSumExp(values, i, i + RANGE));
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.memcached;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fake memcached server speaking (enough of) the text protocol for
+ * <code>MemcachedClient</code>: <code>get</code> with any number of keys, <code>set</code>,
+ * <code>delete</code>, <code>flush_all</code>, and <code>version</code>. Expiration times are
+ * ignored. Meant for tests only.
+ */
+public class FakeMemcachedServer {
+  private final ConcurrentHashMap<String, Item> items = new ConcurrentHashMap<String, Item>();
+  private final AtomicInteger getCommands = new AtomicInteger();
+  private final AtomicInteger keysRequested = new AtomicInteger();
+  private final ServerSocket server;
+  private volatile boolean running = true;
+
+  private static class Item {
+    final int flags;
+    final byte[] data;
+
+    Item(int flags, byte[] data) {
+      this.flags = flags;
+      this.data = data;
+    }
+  }
+
+  /**
+   * Starts a server on an ephemeral port on the loopback interface.
+   */
+  public FakeMemcachedServer() throws IOException {
+    server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+
+    Thread acceptor = new Thread() {
+      @Override
+      public void run() {
+        while (running) {
+          try {
+            final Socket socket = server.accept();
+            Thread handler = new Thread() {
+              @Override
+              public void run() {
+                try {
+                  serve(socket);
+                } catch (IOException e) {
+                  // Connection closed.
+                }
+              }
+            };
+            handler.setDaemon(true);
+            handler.start();
+          } catch (IOException e) {
+            // Server socket closed.
+          }
+        }
+      }
+    };
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * Returns the address of this server, in the form expected by <code>AddrUtil</code>.
+   */
+  public String getAddress() {
+    return "127.0.0.1:" + server.getLocalPort();
+  }
+
+  public InetSocketAddress getSocketAddress() {
+    return new InetSocketAddress("127.0.0.1", server.getLocalPort());
+  }
+
+  /** Returns the number of <code>get</code> commands received. */
+  public int getGetCommands() {
+    return getCommands.get();
+  }
+
+  /** Returns the total number of keys requested by <code>get</code> commands. */
+  public int getKeysRequested() {
+    return keysRequested.get();
+  }
+
+  /** Returns the number of items stored. */
+  public int size() {
+    return items.size();
+  }
+
+  public void stop() throws IOException {
+    running = false;
+    server.close();
+  }
+
+  private void serve(Socket socket) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    OutputStream out = socket.getOutputStream();
+
+    String line;
+    while ((line = readLine(in)) != null) {
+      String[] arr = line.split(" ");
+      String cmd = arr[0];
+
+      if (cmd.equals("get") || cmd.equals("gets")) {
+        getCommands.incrementAndGet();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        for (int i = 1; i < arr.length; i++) {
+          keysRequested.incrementAndGet();
+          Item item = items.get(arr[i]);
+          if (item != null) {
+            String header = "VALUE " + arr[i] + " " + item.flags + " " + item.data.length
+                + (cmd.equals("gets") ? " 0" : "") + "\r\n";
+            response.write(header.getBytes("US-ASCII"));
+            response.write(item.data);
+            response.write("\r\n".getBytes("US-ASCII"));
+          }
+        }
+        response.write("END\r\n".getBytes("US-ASCII"));
+        out.write(response.toByteArray());
+      } else if (cmd.equals("set")) {
+        byte[] data = new byte[Integer.parseInt(arr[4])];
+        in.readFully(data);
+        readLine(in);
+        items.put(arr[1], new Item(Integer.parseInt(arr[2]), data));
+        if (!line.endsWith("noreply")) {
+          out.write("STORED\r\n".getBytes("US-ASCII"));
+        }
+      } else if (cmd.equals("delete")) {
+        boolean deleted = items.remove(arr[1]) != null;
+        out.write((deleted ? "DELETED\r\n" : "NOT_FOUND\r\n").getBytes("US-ASCII"));
+      } else if (cmd.equals("flush_all")) {
+        items.clear();
+        out.write("OK\r\n".getBytes("US-ASCII"));
+      } else if (cmd.equals("version")) {
+        out.write("VERSION fake\r\n".getBytes("US-ASCII"));
+      } else if (cmd.equals("quit")) {
+        break;
+      } else {
+        out.write("ERROR\r\n".getBytes("US-ASCII"));
+      }
+      out.flush();
+    }
+
+    socket.close();
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    int c;
+    while ((c = in.read()) != -1) {
+      if (c == '\n') {
+        int len = sb.length();
+        if (len > 0 && sb.charAt(len - 1) == '\r') {
+          sb.setLength(len - 1);
+        }
+        return sb.toString();
+      }
+      sb.append((char) c);
+    }
+    return sb.length() == 0 ? null : sb.toString();
+  }
+}
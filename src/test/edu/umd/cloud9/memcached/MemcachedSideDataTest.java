@@ -0,0 +1,250 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.memcached;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import junit.framework.JUnit4TestAdapter;
+import net.spy.memcached.AddrUtil;
+import net.spy.memcached.MemcachedClient;
+import net.spy.memcached.MemcachedClientIF;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.umd.cloud9.memcached.MemcachedSideData.Counters;
+
+public class MemcachedSideDataTest {
+  private FakeMemcachedServer server;
+  private MemcachedSideData sideData;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new FakeMemcachedServer();
+    sideData = new MemcachedSideData(
+        new MemcachedClient(AddrUtil.getAddresses(server.getAddress())), 100);
+
+    for (int i = 0; i < 50; i++) {
+      sideData.set("key" + i, 3600, Float.toString(-i));
+    }
+    sideData.flush();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    sideData.close();
+    server.stop();
+  }
+
+  @Test
+  public void testBulkGet() throws IOException {
+    assertEquals(50, server.size());
+    assertEquals(50, sideData.getCount(Counters.SETS));
+    assertEquals(0, sideData.getCount(Counters.FAILED_SETS));
+
+    List<String> keys = Arrays.asList("key1", "key2", "key3", "key49");
+    Map<String, Object> values = sideData.getAll(keys);
+
+    assertEquals(4, values.size());
+    assertEquals("-1.0", values.get("key1"));
+    assertEquals("-49.0", values.get("key49"));
+
+    // One round trip for all keys.
+    assertEquals(1, server.getGetCommands());
+    assertEquals(1, sideData.getCount(Counters.BULK_GETS));
+    assertEquals(4, sideData.getCount(Counters.REMOTE_HITS));
+
+    // Second time around, everything comes from the near-cache.
+    values = sideData.getAll(keys);
+    assertEquals(4, values.size());
+    assertEquals(1, server.getGetCommands());
+    assertEquals(4, sideData.getCount(Counters.NEAR_CACHE_HITS));
+    assertEquals(0.5f, sideData.getNearCacheHitRate(), 1e-6);
+
+    assertEquals("-2.0", sideData.get("key2"));
+    assertEquals(1, server.getGetCommands());
+  }
+
+  @Test
+  public void testMissesAndFallback() throws IOException {
+    assertNull(sideData.get("nosuchkey"));
+    assertEquals(1, sideData.getCount(Counters.REMOTE_MISSES));
+
+    // Misses are remembered too.
+    assertNull(sideData.get("nosuchkey"));
+    assertEquals(1, server.getGetCommands());
+
+    final Map<String, Object> hdfs = new HashMap<String, Object>();
+    hdfs.put("onlyinhdfs", "-7.5");
+    hdfs.put("has space", "-8.5");
+    sideData.setFallback(new SideDataFallback() {
+      public Object get(String key) {
+        return hdfs.get(key);
+      }
+
+      public void close() {}
+    });
+
+    Map<String, Object> values = sideData.getAll(Arrays.asList("key5", "onlyinhdfs", "has space"));
+    assertEquals(3, values.size());
+    assertEquals("-5.0", values.get("key5"));
+    assertEquals("-7.5", values.get("onlyinhdfs"));
+    assertEquals("-8.5", values.get("has space"));
+
+    // Invalid keys never go to memcached.
+    assertEquals(3, server.getKeysRequested());
+    assertEquals(2, sideData.getCount(Counters.FALLBACK_HITS));
+  }
+
+  @Test
+  public void testDuplicateKeys() throws IOException {
+    Map<String, Object> values = sideData.getAll(Arrays.asList("key1", "nosuchkey", "key1",
+        "nosuchkey"));
+    assertEquals(1, values.size());
+    assertEquals("-1.0", values.get("key1"));
+
+    assertEquals(2, server.getKeysRequested());
+    assertEquals(2, sideData.getCount(Counters.KEYS));
+    assertEquals(1, sideData.getCount(Counters.REMOTE_HITS));
+    assertEquals(1, sideData.getCount(Counters.REMOTE_MISSES));
+  }
+
+  @Test
+  public void testRemoteFailure() throws IOException {
+    // A client whose multi-gets all fail.
+    MemcachedClientIF client = (MemcachedClientIF) Proxy.newProxyInstance(
+        MemcachedClientIF.class.getClassLoader(), new Class<?>[] { MemcachedClientIF.class },
+        new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("asyncGetBulk")) {
+              FutureTask<Map<String, Object>> future = new FutureTask<Map<String, Object>>(
+                  new Callable<Map<String, Object>>() {
+                    public Map<String, Object> call() throws IOException {
+                      throw new IOException("connection reset");
+                    }
+                  });
+              future.run();
+              return future;
+            }
+            return null;
+          }
+        });
+
+    MemcachedSideData failing = new MemcachedSideData(client, 100);
+    final Map<String, Object> hdfs = new HashMap<String, Object>();
+    hdfs.put("key1", "-1.0");
+    failing.setFallback(new SideDataFallback() {
+      public Object get(String key) {
+        return hdfs.get(key);
+      }
+
+      public void close() {}
+    });
+
+    Map<String, Object> values = failing.getAll(Arrays.asList("key1", "key2"));
+    assertEquals(1, values.size());
+    assertEquals("-1.0", values.get("key1"));
+    assertEquals(1, failing.getCount(Counters.REMOTE_FAILURES));
+    assertEquals(0, failing.getCount(Counters.REMOTE_MISSES));
+
+    // The value found in the fallback is cached, but the key found nowhere isn't remembered as
+    // missing, so it is asked for again.
+    assertEquals("-1.0", failing.get("key1"));
+    assertNull(failing.get("key2"));
+    assertEquals(2, failing.getCount(Counters.BULK_GETS));
+    assertEquals(2, failing.getCount(Counters.REMOTE_FAILURES));
+    assertEquals(0, failing.getCount(Counters.REMOTE_MISSES));
+    failing.close();
+  }
+
+  @Test
+  public void testPrefetch() throws IOException {
+    sideData.prefetch(Arrays.asList("key10", "key11", "key12"));
+    sideData.prefetch(Arrays.asList("key11", "key12", "key13"));
+
+    Map<String, Object> values = sideData.getAll(Arrays.asList("key10", "key11", "key12", "key13"));
+    assertEquals(4, values.size());
+    assertEquals("-13.0", values.get("key13"));
+
+    // The second prefetch only asked for the one key that wasn't already in flight.
+    assertEquals(2, server.getGetCommands());
+    assertEquals(4, server.getKeysRequested());
+  }
+
+  @Test
+  public void testUnusedPrefetches() throws IOException, InterruptedException {
+    sideData.setMaxPendingGets(2);
+
+    // Prefetches that are never asked for: the oldest ones are resolved into the near-cache once
+    // more than two are in flight.
+    for (int i = 0; i < 10; i++) {
+      sideData.prefetch(Arrays.asList("key" + i));
+    }
+    assertEquals(10, sideData.getCount(Counters.BULK_GETS));
+
+    long hits = sideData.getCount(Counters.NEAR_CACHE_HITS);
+    for (int i = 0; i < 8; i++) {
+      assertEquals(Float.toString(-i), sideData.get("key" + i));
+    }
+    assertEquals(hits + 8, sideData.getCount(Counters.NEAR_CACHE_HITS));
+
+    // Completed prefetches are picked up on the next call, whatever the limit.
+    sideData.setMaxPendingGets(100);
+    sideData.prefetch(Arrays.asList("key20"));
+    Thread.sleep(200);
+    sideData.prefetch(Arrays.asList("key21"));
+    assertEquals("-20.0", sideData.get("key20"));
+    assertEquals(hits + 9, sideData.getCount(Counters.NEAR_CACHE_HITS));
+    assertEquals(12, sideData.getCount(Counters.BULK_GETS));
+  }
+
+  @Test
+  public void testValidKeys() {
+    assertTrue(MemcachedSideData.isValidKey("abc"));
+    assertTrue(MemcachedSideData.isValidKey("\u00fcber"));
+    assertFalse(MemcachedSideData.isValidKey(""));
+    assertFalse(MemcachedSideData.isValidKey("a b"));
+    assertFalse(MemcachedSideData.isValidKey("a\nb"));
+
+    char[] chars = new char[251];
+    Arrays.fill(chars, 'a');
+    assertFalse(MemcachedSideData.isValidKey(new String(chars)));
+    assertTrue(MemcachedSideData.isValidKey(new String(chars, 0, 250)));
+
+    Arrays.fill(chars, '\u00fc');
+    assertFalse(MemcachedSideData.isValidKey(new String(chars, 0, 200)));
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(MemcachedSideDataTest.class);
+  }
+}
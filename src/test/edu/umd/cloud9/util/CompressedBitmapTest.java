@@ -0,0 +1,204 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class CompressedBitmapTest {
+
+  private static int[] toArray(TreeSet<Integer> set) {
+    int[] values = new int[set.size()];
+    int i = 0;
+    for (int v : set) {
+      values[i++] = v;
+    }
+    return values;
+  }
+
+  // Returns a random set with a sparse and a dense region.
+  private static TreeSet<Integer> randomSet(Random r) {
+    TreeSet<Integer> set = new TreeSet<Integer>();
+    for (int i = 0; i < 3000; i++) {
+      set.add(r.nextInt(1 << 22));
+    }
+    for (int i = 0; i < 20000; i++) {
+      set.add((3 << 16) + r.nextInt(1 << 16));
+    }
+    return set;
+  }
+
+  private static CompressedBitmap toBitmap(TreeSet<Integer> set) {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    for (int v : set) {
+      bitmap.add(v);
+    }
+    return bitmap;
+  }
+
+  @Test
+  public void testBasic() {
+    CompressedBitmap bitmap = CompressedBitmap.of(5, 1, 70000, 3, 1);
+
+    assertEquals(4, bitmap.getCardinality());
+    assertTrue(bitmap.contains(1));
+    assertTrue(bitmap.contains(70000));
+    assertFalse(bitmap.contains(2));
+    assertFalse(bitmap.contains(70001));
+    assertArrayEquals(new int[] { 1, 3, 5, 70000 }, bitmap.toArray());
+    assertEquals("[1, 3, 5, 70000]", bitmap.toString());
+
+    bitmap.remove(3);
+    bitmap.remove(70000);
+    bitmap.remove(4);
+    assertArrayEquals(new int[] { 1, 5 }, bitmap.toArray());
+
+    bitmap.clear();
+    assertTrue(bitmap.isEmpty());
+    assertEquals(0, bitmap.getCardinality());
+    assertFalse(bitmap.iterator().hasNext());
+  }
+
+  @Test
+  public void testUnsignedOrder() {
+    CompressedBitmap bitmap = CompressedBitmap.of(-1, 0, Integer.MAX_VALUE, Integer.MIN_VALUE);
+
+    assertArrayEquals(new int[] { 0, Integer.MAX_VALUE, Integer.MIN_VALUE, -1 }, bitmap.toArray());
+    assertTrue(bitmap.contains(-1));
+    assertTrue(bitmap.contains(Integer.MIN_VALUE));
+  }
+
+  @Test
+  public void testDense() {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    for (int i = 0; i < 65536; i += 2) {
+      bitmap.add(i);
+    }
+    assertEquals(32768, bitmap.getCardinality());
+    assertTrue(bitmap.contains(65534));
+    assertFalse(bitmap.contains(65535));
+
+    // back to an array when few values are left
+    for (int i = 0; i < 65536; i += 4) {
+      bitmap.remove(i);
+    }
+    assertEquals(16384, bitmap.getCardinality());
+    for (int i = 0; i < 65536; i += 8) {
+      bitmap.remove(i + 2);
+    }
+    assertEquals(8192, bitmap.getCardinality());
+    for (int i = 0; i < 65536; i += 16) {
+      bitmap.remove(i + 6);
+    }
+    assertEquals(4096, bitmap.getCardinality());
+    assertTrue(bitmap.contains(14));
+    assertFalse(bitmap.contains(6));
+
+    Iterator<Integer> iter = bitmap.iterator();
+    assertEquals(14, (int) iter.next());
+    assertEquals(30, (int) iter.next());
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random r = new Random(0);
+    for (int n = 0; n < 5; n++) {
+      TreeSet<Integer> s1 = randomSet(r);
+      TreeSet<Integer> s2 = randomSet(r);
+      CompressedBitmap b1 = toBitmap(s1);
+      CompressedBitmap b2 = toBitmap(s2);
+
+      assertEquals(s1.size(), b1.getCardinality());
+      assertArrayEquals(toArray(s1), b1.toArray());
+
+      TreeSet<Integer> and = new TreeSet<Integer>(s1);
+      and.retainAll(s2);
+      assertArrayEquals(toArray(and), CompressedBitmap.and(b1, b2).toArray());
+      assertEquals(and.size(), CompressedBitmap.andCardinality(b1, b2));
+
+      TreeSet<Integer> or = new TreeSet<Integer>(s1);
+      or.addAll(s2);
+      assertArrayEquals(toArray(or), CompressedBitmap.or(b1, b2).toArray());
+
+      TreeSet<Integer> andNot = new TreeSet<Integer>(s1);
+      andNot.removeAll(s2);
+      assertArrayEquals(toArray(andNot), CompressedBitmap.andNot(b1, b2).toArray());
+      assertTrue(CompressedBitmap.andNot(b1, b1).isEmpty());
+
+      // operations don't change their arguments
+      assertArrayEquals(toArray(s1), b1.toArray());
+      assertArrayEquals(toArray(s2), b2.toArray());
+
+      int i = 0;
+      for (int v : or) {
+        assertTrue(CompressedBitmap.or(b1, b2).contains(v));
+        if (i++ > 1000) {
+          break;
+        }
+      }
+
+      int[] values = toArray(s1);
+      i = 0;
+      for (int v : b1) {
+        assertEquals(values[i++], v);
+      }
+      assertEquals(values.length, i);
+    }
+  }
+
+  @Test
+  public void testEqualsAndCompare() {
+    CompressedBitmap b1 = CompressedBitmap.of(1, 2, 3);
+    CompressedBitmap b2 = CompressedBitmap.of(3, 2, 1);
+    CompressedBitmap b3 = CompressedBitmap.of(1, 2, 4);
+    CompressedBitmap b4 = CompressedBitmap.of(1, 2);
+
+    assertEquals(b1, b2);
+    assertEquals(b1.hashCode(), b2.hashCode());
+    assertFalse(b1.equals(b3));
+
+    assertEquals(0, b1.compareTo(b2));
+    assertTrue(b1.compareTo(b3) < 0);
+    assertTrue(b3.compareTo(b1) > 0);
+    assertTrue(b4.compareTo(b1) < 0);
+    assertTrue(new CompressedBitmap().compareTo(b4) < 0);
+
+    // a bitmap container equals an array container only if they hold the same values
+    CompressedBitmap dense = new CompressedBitmap();
+    for (int i = 0; i < 5000; i++) {
+      dense.add(i);
+    }
+    CompressedBitmap copy = CompressedBitmap.or(dense, new CompressedBitmap());
+    assertEquals(dense, copy);
+    copy.remove(4999);
+    assertFalse(dense.equals(copy));
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(CompressedBitmapTest.class);
+  }
+}
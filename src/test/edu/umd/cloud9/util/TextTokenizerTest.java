@@ -0,0 +1,162 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class TextTokenizerTest {
+
+  @Test
+  public void testBasic() {
+    TextTokenizer tokenizer = new TextTokenizer();
+    Text text = new Text("  the quick\tbrown\r\n fox\u00a0caf\u00e9 \u65e5\u672c ");
+    tokenizer.reset(text);
+
+    assertTrue(tokenizer.next());
+    assertEquals(2, tokenizer.getOffset());
+    assertEquals(3, tokenizer.getLength());
+    assertEquals("the", tokenizer.getString());
+
+    Text word = new Text();
+    assertTrue(tokenizer.next());
+    tokenizer.get(word);
+    assertEquals("quick", word.toString());
+
+    assertTrue(tokenizer.next());
+    assertEquals("brown", tokenizer.getText().toString());
+
+    // Non-breaking space isn't whitespace, as for StringTokenizer.
+    assertTrue(tokenizer.next());
+    assertEquals("fox\u00a0caf\u00e9", tokenizer.getString());
+
+    assertTrue(tokenizer.next());
+    assertEquals("\u65e5\u672c", tokenizer.getString());
+    assertTrue(tokenizer.equals(new Text("\u65e5\u672c").getBytes(), 0, 6));
+
+    assertFalse(tokenizer.next());
+    assertFalse(tokenizer.next());
+
+    tokenizer.reset(new Text(""));
+    assertFalse(tokenizer.next());
+    tokenizer.reset(new Text(" \t "));
+    assertFalse(tokenizer.next());
+  }
+
+  @Test
+  public void testSameAsStringTokenizer() {
+    Random r = new Random(0);
+    char[] alphabet = { 'a', 'b', 'Z', ' ', '\u00a0', '\t', '\n', '\r', '\f', '\u00e9', '\u4e00', '-' };
+    TextTokenizer tokenizer = new TextTokenizer();
+    Text text = new Text();
+
+    for (int trial = 0; trial < 1000; trial++) {
+      StringBuilder sb = new StringBuilder();
+      int len = r.nextInt(40);
+      for (int i = 0; i < len; i++) {
+        sb.append(alphabet[r.nextInt(alphabet.length)]);
+      }
+      String s = sb.toString();
+
+      List<String> expected = new ArrayList<String>();
+      StringTokenizer itr = new StringTokenizer(s);
+      while (itr.hasMoreTokens()) {
+        expected.add(itr.nextToken());
+      }
+
+      List<String> tokens = new ArrayList<String>();
+      text.set(s);
+      tokenizer.reset(text);
+      while (tokenizer.next()) {
+        tokens.add(tokenizer.getString());
+      }
+
+      assertEquals(expected, tokens);
+    }
+  }
+
+  @Test
+  public void testNormalize() {
+    Text text = new Text("The CAF\u00c9 na\u00efve \u00c6ther \u00dcber-\u00f8l");
+    List<String> tokens = new ArrayList<String>();
+
+    TextTokenizer tokenizer = new TextTokenizer(true, false);
+    tokenizer.reset(new Text(text));
+    while (tokenizer.next()) {
+      tokens.add(tokenizer.getString());
+    }
+    assertEquals("[the, caf\u00c9, na\u00efve, \u00c6ther, \u00dcber-\u00f8l]", tokens.toString());
+
+    tokens.clear();
+    tokenizer = new TextTokenizer(false, true);
+    tokenizer.reset(new Text(text));
+    while (tokenizer.next()) {
+      tokens.add(tokenizer.getString());
+    }
+    assertEquals("[The, CAFE, naive, \u00c6ther, Uber-ol]", tokens.toString());
+
+    // Folding is done in place, leaving spaces behind.
+    tokens.clear();
+    tokenizer = new TextTokenizer(true, true);
+    tokenizer.reset(text);
+    while (tokenizer.next()) {
+      tokens.add(tokenizer.getString());
+    }
+    assertEquals("[the, cafe, naive, \u00c6ther, uber-ol]", tokens.toString());
+    assertEquals("the cafe  naive  \u00c6ther uber-ol  ", text.toString());
+  }
+
+  @Test
+  public void testGetInt() {
+    TextTokenizer tokenizer = new TextTokenizer();
+    tokenizer.reset(new Text("0 42 -17 +5 2147483647 -2147483648"));
+
+    int[] expected = { 0, 42, -17, 5, Integer.MAX_VALUE, Integer.MIN_VALUE };
+    for (int e : expected) {
+      assertTrue(tokenizer.next());
+      assertEquals(e, tokenizer.getInt());
+    }
+    assertFalse(tokenizer.next());
+
+    for (String s : new String[] { "", "-", "12a", "2147483648", "-2147483649", "1.5" }) {
+      tokenizer.reset(new Text(s));
+      tokenizer.next();
+      try {
+        tokenizer.getInt();
+        fail("Expected NumberFormatException for \"" + s + "\"");
+      } catch (NumberFormatException e) {
+        // expected
+      }
+    }
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(TextTokenizerTest.class);
+  }
+}
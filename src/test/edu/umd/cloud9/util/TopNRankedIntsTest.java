@@ -0,0 +1,134 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class TopNRankedIntsTest {
+
+  @Test
+  public void testBasic() {
+    TopNRankedInts top = new TopNRankedInts(3);
+
+    assertTrue(top.add(1, 5));
+    assertTrue(top.add(2, 7));
+    assertTrue(top.add(3, 5));
+    assertFalse(top.add(4, 5));
+    assertFalse(top.add(5, 1));
+    assertTrue(top.add(0, 5));
+    assertTrue(top.add(6, 9));
+    top.sort();
+
+    assertEquals(3, top.size());
+    assertEquals(6, top.getKey(0));
+    assertEquals(9, top.getRank(0));
+    assertEquals(2, top.getKey(1));
+    assertEquals(7, top.getRank(1));
+    assertEquals(0, top.getKey(2));
+    assertEquals(5, top.getRank(2));
+
+    top.clear();
+    assertEquals(0, top.size());
+    top.add(10, 1);
+    top.sort();
+    assertEquals(1, top.size());
+    assertEquals(10, top.getKey(0));
+  }
+
+  @Test
+  public void testEmpty() {
+    TopNRankedInts top = new TopNRankedInts(0);
+    assertFalse(top.add(1, 1));
+    top.sort();
+    assertEquals(0, top.size());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddAfterSort() {
+    TopNRankedInts top = new TopNRankedInts(2);
+    top.add(1, 1);
+    top.sort();
+    top.add(2, 2);
+  }
+
+  @Test
+  public void testSameAsSorting() {
+    Random r = new Random(0);
+
+    for (int trial = 0; trial < 50; trial++) {
+      int size = 1 + r.nextInt(5000);
+      int n = 1 + r.nextInt(200);
+
+      // pack (rank, -key) into a long so that sorting gives the expected order, best last
+      long[] expected = new long[size];
+      TopNRankedInts top = new TopNRankedInts(n);
+      for (int i = 0; i < size; i++) {
+        int key = r.nextInt(1 << 20);
+        int rank = r.nextInt(100);
+        expected[i] = ((long) rank << 32) | (0xffffffffL & ~key);
+        top.add(key, rank);
+      }
+      Arrays.sort(expected);
+      top.sort();
+
+      assertEquals(Math.min(n, size), top.size());
+      for (int i = 0; i < top.size(); i++) {
+        long e = expected[size - 1 - i];
+        assertEquals(e >> 32, top.getRank(i));
+        assertEquals(~(int) e, top.getKey(i));
+      }
+    }
+  }
+
+  @Test
+  public void testRankOf() {
+    float[] floats = new float[] { Float.NEGATIVE_INFINITY, -Float.MAX_VALUE, -3.5f, -1.0f,
+        -Float.MIN_VALUE, 0.0f, Float.MIN_VALUE, 1.0f, 1.5f, 1e30f, Float.MAX_VALUE,
+        Float.POSITIVE_INFINITY };
+    for (int i = 1; i < floats.length; i++) {
+      assertTrue(TopNRankedInts.rankOf(floats[i - 1]) < TopNRankedInts.rankOf(floats[i]));
+    }
+    assertEquals(TopNRankedInts.rankOf(0.0f), TopNRankedInts.rankOf(-0.0f));
+
+    double[] doubles = new double[] { Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -3.5, -1.0,
+        -Double.MIN_VALUE, 0.0, Double.MIN_VALUE, 1.0, 1.5, 1e300, Double.MAX_VALUE,
+        Double.POSITIVE_INFINITY };
+    for (int i = 1; i < doubles.length; i++) {
+      assertTrue(TopNRankedInts.rankOf(doubles[i - 1]) < TopNRankedInts.rankOf(doubles[i]));
+    }
+    assertEquals(TopNRankedInts.rankOf(0.0), TopNRankedInts.rankOf(-0.0));
+
+    Random r = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      float f1 = (float) r.nextGaussian(), f2 = (float) r.nextGaussian();
+      assertEquals(Float.compare(f1, f2) < 0, TopNRankedInts.rankOf(f1) < TopNRankedInts.rankOf(f2));
+    }
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(TopNRankedIntsTest.class);
+  }
+}
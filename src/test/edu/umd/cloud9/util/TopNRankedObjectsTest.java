@@ -0,0 +1,108 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.pair.PairOfObjectLong;
+
+public class TopNRankedObjectsTest {
+
+  @Test
+  public void testBasic() {
+    TopNRankedObjects<String> top = new TopNRankedObjects<String>(3);
+
+    assertTrue(top.add("b", 5));
+    assertTrue(top.add("c", 7));
+    assertTrue(top.add("d", 5));
+    assertFalse(top.add("e", 5));
+    assertTrue(top.add("a", 5));
+    top.sort();
+
+    assertEquals(3, top.size());
+    assertEquals("c", top.getKey(0));
+    assertEquals("a", top.getKey(1));
+    assertEquals("b", top.getKey(2));
+    assertEquals(5, top.getRank(2));
+  }
+
+  @Test
+  public void testComparator() {
+    TopNRankedObjects<String> top =
+        new TopNRankedObjects<String>(2, Collections.<String> reverseOrder());
+
+    top.add("b", 0);
+    top.add("a", 0);
+    top.add("d", 0);
+    top.add("c", 0);
+    top.sort();
+
+    assertEquals(2, top.size());
+    assertEquals("d", top.getKey(0));
+    assertEquals("c", top.getKey(1));
+  }
+
+  @Test
+  public void testSameAsSorting() {
+    Random r = new Random(0);
+
+    for (int trial = 0; trial < 50; trial++) {
+      int size = 1 + r.nextInt(3000);
+      int n = 1 + r.nextInt(200);
+
+      List<PairOfObjectLong<String>> expected = new ArrayList<PairOfObjectLong<String>>();
+      TopNRankedObjects<String> top = new TopNRankedObjects<String>(n);
+      for (int i = 0; i < size; i++) {
+        String key = "key" + i;
+        long rank = r.nextInt(50) - 25;
+        expected.add(new PairOfObjectLong<String>(key, rank));
+        top.add(key, rank);
+      }
+      Collections.sort(expected, new Comparator<PairOfObjectLong<String>>() {
+        public int compare(PairOfObjectLong<String> p1, PairOfObjectLong<String> p2) {
+          if (p1.getRightElement() != p2.getRightElement()) {
+            return p1.getRightElement() > p2.getRightElement() ? -1 : 1;
+          }
+          return p1.getLeftElement().compareTo(p2.getLeftElement());
+        }
+      });
+      top.sort();
+
+      assertEquals(Math.min(n, size), top.size());
+      for (int i = 0; i < top.size(); i++) {
+        assertEquals(expected.get(i).getLeftElement(), top.getKey(i));
+        assertEquals(expected.get(i).getRightElement(), top.getRank(i));
+      }
+    }
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(TopNRankedObjectsTest.class);
+  }
+}
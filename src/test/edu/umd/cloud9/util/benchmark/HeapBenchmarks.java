@@ -0,0 +1,180 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.benchmark;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Lists;
+
+import edu.umd.cloud9.util.FibonacciHeap;
+import edu.umd.cloud9.util.FibonacciHeapInt;
+import edu.umd.cloud9.util.map.HMapIV;
+import edu.umd.cloud9.util.map.MapIV;
+import edu.umd.cloud9.util.map.TMapIV;
+
+/**
+ * <p>
+ * JMH benchmarks of Cloud9's heaps and sorted maps:
+ * </p>
+ *
+ * <ul>
+ * <li><code>FibonacciHeap</code> and <code>FibonacciHeapInt</code>: inserting {@value #SIZE}
+ * entries with random priorities, then removing the smaller half of them. An operation is an
+ * insert or a removal.</li>
+ * <li><code>TreeMap</code>, <code>TMapIV</code> and <code>HMapIV</code>: building a map with
+ * {@value #FEATURES} random int keys and walking its entries in key order, as when building a
+ * sparse feature vector. An HMapIV has to sort its entries for that. An operation is a put.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class HeapBenchmarks {
+	private static final int SIZE = 1000000;
+	private static final int FEATURES = 300;
+	private static final int VECTORS = 1000;
+	private static final int KEY_RANGE = 1000000;
+	private static final int VALUE_RANGE = 1000;
+
+	private static final int[] data = new int[SIZE];
+	private static final float[] priorities = new float[SIZE];
+	private static final int[] featureKeys = new int[FEATURES * VECTORS];
+	private static final String[] featureValues = new String[FEATURES * VECTORS];
+
+	static {
+		Random r = new Random(0);
+		for (int i = 0; i < SIZE; i++) {
+			data[i] = r.nextInt(1000);
+			priorities[i] = r.nextFloat();
+		}
+
+		for (int i = 0; i < FEATURES * VECTORS; i++) {
+			featureKeys[i] = r.nextInt(KEY_RANGE);
+			featureValues[i] = "" + r.nextInt(VALUE_RANGE);
+		}
+	}
+
+	private static final Comparator<MapIV.Entry<String>> KEY_ORDER =
+			new Comparator<MapIV.Entry<String>>() {
+				public int compare(MapIV.Entry<String> e1, MapIV.Entry<String> e2) {
+					// keys in a map are distinct
+					return e1.getKey() > e2.getKey() ? 1 : -1;
+				}
+			};
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE + SIZE / 2)
+	public long insertRemoveMinFibonacciHeap() {
+		FibonacciHeap<Integer> heap = new FibonacciHeap<Integer>();
+		for (int i = 0; i < SIZE; i++) {
+			heap.insert(data[i], priorities[i]);
+		}
+
+		long sum = 0;
+		for (int i = 0; i < SIZE / 2; i++) {
+			sum += heap.removeMin().getDatum();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE + SIZE / 2)
+	public long insertRemoveMinFibonacciHeapInt() {
+		FibonacciHeapInt heap = new FibonacciHeapInt();
+		for (int i = 0; i < SIZE; i++) {
+			heap.insert(data[i], priorities[i]);
+		}
+
+		long sum = 0;
+		for (int i = 0; i < SIZE / 2; i++) {
+			sum += heap.removeMin().getDatum();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FEATURES * VECTORS)
+	public void sortedVectorTreeMap(Blackhole bh) {
+		for (int v = 0; v < VECTORS; v++) {
+			TreeMap<Integer, String> map = new TreeMap<Integer, String>();
+			for (int i = v * FEATURES; i < (v + 1) * FEATURES; i++) {
+				map.put(featureKeys[i], featureValues[i]);
+			}
+
+			int sum = 0;
+			for (Map.Entry<Integer, String> entry : map.entrySet()) {
+				sum += entry.getKey();
+			}
+			bh.consume(sum);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FEATURES * VECTORS)
+	public void sortedVectorTMapIV(Blackhole bh) {
+		for (int v = 0; v < VECTORS; v++) {
+			TMapIV<String> map = new TMapIV<String>();
+			for (int i = v * FEATURES; i < (v + 1) * FEATURES; i++) {
+				map.put(featureKeys[i], featureValues[i]);
+			}
+
+			int sum = 0;
+			for (MapIV.Entry<String> entry : map.entrySet()) {
+				sum += entry.getKey();
+			}
+			bh.consume(sum);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FEATURES * VECTORS)
+	public void sortedVectorHMapIV(Blackhole bh) {
+		for (int v = 0; v < VECTORS; v++) {
+			HMapIV<String> map = new HMapIV<String>();
+			for (int i = v * FEATURES; i < (v + 1) * FEATURES; i++) {
+				map.put(featureKeys[i], featureValues[i]);
+			}
+
+			List<MapIV.Entry<String>> entries = Lists.newArrayList(map.entrySet());
+			Collections.sort(entries, KEY_ORDER);
+
+			int sum = 0;
+			for (MapIV.Entry<String> entry : entries) {
+				sum += entry.getKey();
+			}
+			bh.consume(sum);
+		}
+	}
+}
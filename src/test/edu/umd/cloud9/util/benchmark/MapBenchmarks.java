@@ -0,0 +1,430 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.benchmark;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.umd.cloud9.util.map.HMapII;
+import edu.umd.cloud9.util.map.HMapKI;
+
+/**
+ * <p>
+ * JMH benchmarks of Cloud9's primitive maps against <code>java.util.HashMap</code> and the
+ * fastutil maps, with int and String keys:
+ * </p>
+ *
+ * <ul>
+ * <li><code>put</code>: filling an empty map with {@value #SIZE} entries.</li>
+ * <li><code>get</code>: looking up each of the {@value #SIZE} entries of a map.</li>
+ * <li><code>randomWalk</code>: {@value #SIZE} random increments and decrements of the counts of
+ * {@value #KEYS} keys, where counts that drop to zero are removed, as when maintaining counts
+ * with a sliding window.</li>
+ * </ul>
+ *
+ * <p>
+ * Scores are per map operation. The memory taken per entry, which the earlier versions of these
+ * benchmarks measured, is what <code>-prof gc</code> reports as bytes allocated per operation of
+ * <code>put</code>. Keys and random values are generated once per fork, so that only map
+ * operations are measured.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class MapBenchmarks {
+	private static final int SIZE = 1000000;
+	private static final int KEYS = 1000;
+
+	private static final int[] values = new int[SIZE];
+	private static final String[] stringKeys = new String[SIZE];
+	private static final int[] walkKeys = new int[SIZE];
+	private static final String[] walkStringKeys = new String[SIZE];
+	private static final boolean[] walkIncrements = new boolean[SIZE];
+
+	static {
+		Random r = new Random(0);
+		String[] keys = new String[KEYS];
+		for (int i = 0; i < KEYS; i++) {
+			keys[i] = "" + i;
+		}
+
+		for (int i = 0; i < SIZE; i++) {
+			values[i] = r.nextInt(SIZE);
+			stringKeys[i] = "" + i;
+			walkKeys[i] = r.nextInt(KEYS);
+			walkStringKeys[i] = keys[walkKeys[i]];
+			walkIncrements[i] = r.nextBoolean();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class FilledHMapII {
+		HMapII map = new HMapII();
+
+		@Setup
+		public void setUp() {
+			for (int i = 0; i < SIZE; i++) {
+				map.put(i, values[i]);
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class FilledHashMapIntInt {
+		Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+
+		@Setup
+		public void setUp() {
+			for (int i = 0; i < SIZE; i++) {
+				map.put(i, values[i]);
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class FilledInt2IntOpenHashMap {
+		Int2IntOpenHashMap map = new Int2IntOpenHashMap();
+
+		@Setup
+		public void setUp() {
+			for (int i = 0; i < SIZE; i++) {
+				map.put(i, values[i]);
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class FilledHMapKI {
+		HMapKI<String> map = new HMapKI<String>();
+
+		@Setup
+		public void setUp() {
+			for (int i = 0; i < SIZE; i++) {
+				map.put(stringKeys[i], values[i]);
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class FilledHashMapStringInt {
+		Map<String, Integer> map = new HashMap<String, Integer>();
+
+		@Setup
+		public void setUp() {
+			for (int i = 0; i < SIZE; i++) {
+				map.put(stringKeys[i], values[i]);
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class FilledObject2IntOpenHashMap {
+		Object2IntOpenHashMap<String> map = new Object2IntOpenHashMap<String>();
+
+		@Setup
+		public void setUp() {
+			for (int i = 0; i < SIZE; i++) {
+				map.put(stringKeys[i], values[i]);
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public HMapII putHMapII() {
+		HMapII map = new HMapII();
+		for (int i = 0; i < SIZE; i++) {
+			map.put(i, values[i]);
+		}
+		return map;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public Map<Integer, Integer> putHashMapIntInt() {
+		Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+		for (int i = 0; i < SIZE; i++) {
+			map.put(i, values[i]);
+		}
+		return map;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public Int2IntOpenHashMap putInt2IntOpenHashMap() {
+		Int2IntOpenHashMap map = new Int2IntOpenHashMap();
+		for (int i = 0; i < SIZE; i++) {
+			map.put(i, values[i]);
+		}
+		return map;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void getHMapII(FilledHMapII state, Blackhole bh) {
+		for (int i = 0; i < SIZE; i++) {
+			bh.consume(state.map.get(i));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void getHashMapIntInt(FilledHashMapIntInt state, Blackhole bh) {
+		for (int i = 0; i < SIZE; i++) {
+			bh.consume(state.map.get(i).intValue());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void getInt2IntOpenHashMap(FilledInt2IntOpenHashMap state, Blackhole bh) {
+		for (int i = 0; i < SIZE; i++) {
+			bh.consume(state.map.get(i));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public HMapKI<String> putHMapKI() {
+		HMapKI<String> map = new HMapKI<String>();
+		for (int i = 0; i < SIZE; i++) {
+			map.put(stringKeys[i], values[i]);
+		}
+		return map;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public Map<String, Integer> putHashMapStringInt() {
+		Map<String, Integer> map = new HashMap<String, Integer>();
+		for (int i = 0; i < SIZE; i++) {
+			map.put(stringKeys[i], values[i]);
+		}
+		return map;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public Object2IntOpenHashMap<String> putObject2IntOpenHashMap() {
+		Object2IntOpenHashMap<String> map = new Object2IntOpenHashMap<String>();
+		for (int i = 0; i < SIZE; i++) {
+			map.put(stringKeys[i], values[i]);
+		}
+		return map;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void getHMapKI(FilledHMapKI state, Blackhole bh) {
+		for (int i = 0; i < SIZE; i++) {
+			bh.consume(state.map.get(stringKeys[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void getHashMapStringInt(FilledHashMapStringInt state, Blackhole bh) {
+		for (int i = 0; i < SIZE; i++) {
+			bh.consume(state.map.get(stringKeys[i]).intValue());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void getObject2IntOpenHashMap(FilledObject2IntOpenHashMap state, Blackhole bh) {
+		for (int i = 0; i < SIZE; i++) {
+			bh.consume(state.map.getInt(stringKeys[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public int randomWalkHMapII() {
+		HMapII map = new HMapII();
+		int removals = 0;
+		for (int i = 0; i < SIZE; i++) {
+			int key = walkKeys[i];
+			if (walkIncrements[i]) {
+				if (map.containsKey(key)) {
+					map.put(key, map.get(key) + 1);
+				} else {
+					map.put(key, 1);
+				}
+			} else if (map.containsKey(key)) {
+				int val = map.get(key);
+				if (val == 1) {
+					removals++;
+					map.remove(key);
+				} else {
+					map.put(key, val - 1);
+				}
+			}
+		}
+		return removals;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public int randomWalkHashMapIntInt() {
+		Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+		int removals = 0;
+		for (int i = 0; i < SIZE; i++) {
+			int key = walkKeys[i];
+			if (walkIncrements[i]) {
+				if (map.containsKey(key)) {
+					map.put(key, map.get(key) + 1);
+				} else {
+					map.put(key, 1);
+				}
+			} else if (map.containsKey(key)) {
+				int val = map.get(key);
+				if (val == 1) {
+					removals++;
+					map.remove(key);
+				} else {
+					map.put(key, val - 1);
+				}
+			}
+		}
+		return removals;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public int randomWalkInt2IntOpenHashMap() {
+		Int2IntOpenHashMap map = new Int2IntOpenHashMap();
+		int removals = 0;
+		for (int i = 0; i < SIZE; i++) {
+			int key = walkKeys[i];
+			if (walkIncrements[i]) {
+				if (map.containsKey(key)) {
+					map.put(key, map.get(key) + 1);
+				} else {
+					map.put(key, 1);
+				}
+			} else if (map.containsKey(key)) {
+				int val = map.get(key);
+				if (val == 1) {
+					removals++;
+					map.remove(key);
+				} else {
+					map.put(key, val - 1);
+				}
+			}
+		}
+		return removals;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public int randomWalkHMapKI() {
+		HMapKI<String> map = new HMapKI<String>();
+		int removals = 0;
+		for (int i = 0; i < SIZE; i++) {
+			String key = walkStringKeys[i];
+			if (walkIncrements[i]) {
+				if (map.containsKey(key)) {
+					map.put(key, map.get(key) + 1);
+				} else {
+					map.put(key, 1);
+				}
+			} else if (map.containsKey(key)) {
+				int val = map.get(key);
+				if (val == 1) {
+					removals++;
+					map.remove(key);
+				} else {
+					map.put(key, val - 1);
+				}
+			}
+		}
+		return removals;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public int randomWalkHashMapStringInt() {
+		Map<String, Integer> map = new HashMap<String, Integer>();
+		int removals = 0;
+		for (int i = 0; i < SIZE; i++) {
+			String key = walkStringKeys[i];
+			if (walkIncrements[i]) {
+				if (map.containsKey(key)) {
+					map.put(key, map.get(key) + 1);
+				} else {
+					map.put(key, 1);
+				}
+			} else if (map.containsKey(key)) {
+				int val = map.get(key);
+				if (val == 1) {
+					removals++;
+					map.remove(key);
+				} else {
+					map.put(key, val - 1);
+				}
+			}
+		}
+		return removals;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public int randomWalkObject2IntOpenHashMap() {
+		Object2IntOpenHashMap<String> map = new Object2IntOpenHashMap<String>();
+		int removals = 0;
+		for (int i = 0; i < SIZE; i++) {
+			String key = walkStringKeys[i];
+			if (walkIncrements[i]) {
+				if (map.containsKey(key)) {
+					map.put(key, map.getInt(key) + 1);
+				} else {
+					map.put(key, 1);
+				}
+			} else if (map.containsKey(key)) {
+				int val = map.getInt(key);
+				if (val == 1) {
+					removals++;
+					map.removeInt(key);
+				} else {
+					map.put(key, val - 1);
+				}
+			}
+		}
+		return removals;
+	}
+}
@@ -17,10 +17,18 @@
 package edu.umd.cloud9.util.cfd;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
 import junit.framework.JUnit4TestAdapter;
 
 import org.junit.Test;
 
+import edu.umd.cloud9.io.pair.PairOfInts;
+import edu.umd.cloud9.util.fd.Int2IntFrequencyDistribution;
+
 public class Int2IntConditionalFrequencyDistributionTest {
 
   @Test
@@ -35,6 +43,12 @@ public class Int2IntConditionalFrequencyDistributionTest {
     test1Common(cfd);
   }
 
+  @Test
+  public void test1Packed() {
+    Int2IntConditionalFrequencyDistribution cfd = new Int2IntConditionalFrequencyDistributionPacked();
+    test1Common(cfd);
+  }
+
   private void test1Common(Int2IntConditionalFrequencyDistribution cfd) {
     cfd.set(1, 1, 2);
     cfd.check();
@@ -88,6 +102,12 @@ public class Int2IntConditionalFrequencyDistributionTest {
     test2Common(cfd);
   }
 
+  @Test
+  public void test2Packed() {
+    Int2IntConditionalFrequencyDistribution cfd = new Int2IntConditionalFrequencyDistributionPacked();
+    test2Common(cfd);
+  }
+
   private void test2Common(Int2IntConditionalFrequencyDistribution cfd) {
     cfd.set(1, 1, 2);
     cfd.check();
@@ -131,6 +151,12 @@ public class Int2IntConditionalFrequencyDistributionTest {
     test3Common(cfd);
   }
 
+  @Test
+  public void test3Packed() {
+    Int2IntConditionalFrequencyDistribution cfd = new Int2IntConditionalFrequencyDistributionPacked();
+    test3Common(cfd);
+  }
+
   private void test3Common(Int2IntConditionalFrequencyDistribution cfd) {
     cfd.set(1, 1, 2);
     cfd.set(1, 2, 5);
@@ -163,6 +189,12 @@ public class Int2IntConditionalFrequencyDistributionTest {
     testLargeMarginalCommon(cfd);
   }
 
+  @Test
+  public void testLargeMarginalPacked() {
+    Int2IntConditionalFrequencyDistribution cfd = new Int2IntConditionalFrequencyDistributionPacked();
+    testLargeMarginalCommon(cfd);
+  }
+
   private void testLargeMarginalCommon(
       Int2IntConditionalFrequencyDistribution cfd) {
     cfd.set(1, 2, 2000000000);
@@ -173,6 +205,81 @@ public class Int2IntConditionalFrequencyDistributionTest {
     assertEquals(8000000000L, cfd.getMarginalCount(1));
   }
 
+  @Test
+  public void testFreezePacked() {
+    Int2IntConditionalFrequencyDistributionPacked cfd = new Int2IntConditionalFrequencyDistributionPacked();
+    cfd.set(1, 1, 2);
+    cfd.set(2, 1, 3);
+    cfd.set(1, -5, 4);
+    cfd.set(-7, -5, 1);
+    cfd.set(3, Integer.MAX_VALUE, 6);
+    cfd.set(Integer.MIN_VALUE, Integer.MIN_VALUE, 8);
+
+    cfd.freeze();
+    cfd.check();
+    assertTrue(cfd.isFrozen());
+
+    assertEquals(6, cfd.getNumberOfPairs());
+    assertEquals(2, cfd.get(1, 1));
+    assertEquals(4, cfd.get(1, -5));
+    assertEquals(1, cfd.get(-7, -5));
+    assertEquals(0, cfd.get(-7, 1));
+    assertEquals(6, cfd.getMarginalCount(1));
+    assertEquals(24, cfd.getSumOfAllCounts());
+
+    Int2IntFrequencyDistribution fd = cfd.getConditionalDistribution(-5);
+    assertEquals(2, fd.getNumberOfEvents());
+    assertEquals(4, fd.get(1));
+    assertEquals(1, fd.get(-7));
+    assertEquals(5, fd.getSumOfCounts());
+
+    assertEquals(6, cfd.getConditionalDistribution(Integer.MAX_VALUE).get(3));
+    assertEquals(8, cfd.getConditionalDistribution(Integer.MIN_VALUE).get(Integer.MIN_VALUE));
+    assertEquals(0, cfd.getConditionalDistribution(2).getNumberOfEvents());
+
+    try {
+      cfd.increment(1, 1);
+      fail("Expected exception: frozen distribution was modified");
+    } catch (RuntimeException e) {
+    }
+  }
+
+  @Test
+  public void testRandomPacked() {
+    Random r = new Random(0);
+    Int2IntConditionalFrequencyDistribution expected = new Int2IntConditionalFrequencyDistributionEntry();
+    Int2IntConditionalFrequencyDistributionPacked cfd = new Int2IntConditionalFrequencyDistributionPacked(0);
+
+    for (int i = 0; i < 100000; i++) {
+      int k = r.nextInt(1000) - 500;
+      int cond = r.nextInt(200) - 100;
+      expected.increment(k, cond);
+      cfd.increment(k, cond);
+    }
+    cfd.check();
+
+    for (int n = 0; n < 2; n++) {
+      assertEquals(expected.getSumOfAllCounts(), cfd.getSumOfAllCounts());
+      for (int cond = -100; cond < 100; cond++) {
+        Int2IntFrequencyDistribution fd1 = expected.getConditionalDistribution(cond);
+        Int2IntFrequencyDistribution fd2 = cfd.getConditionalDistribution(cond);
+        assertEquals(fd1.getNumberOfEvents(), fd2.getNumberOfEvents());
+        assertEquals(fd1.getSumOfCounts(), fd2.getSumOfCounts());
+
+        for (PairOfInts pair : fd1) {
+          assertEquals(pair.getRightElement(), fd2.get(pair.getLeftElement()));
+          assertEquals(pair.getRightElement(), cfd.get(pair.getLeftElement(), cond));
+        }
+      }
+      for (int k = -500; k < 500; k++) {
+        assertEquals(expected.getMarginalCount(k), cfd.getMarginalCount(k));
+      }
+
+      cfd.freeze();
+      cfd.check();
+    }
+  }
+
   public static junit.framework.Test suite() {
     return new JUnit4TestAdapter(
         Int2IntConditionalFrequencyDistributionTest.class);
@@ -17,10 +17,13 @@
 package edu.umd.cloud9.util.cfd;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 
 import edu.umd.cloud9.util.cfd.Object2IntConditionalFrequencyDistributionFastutil;
+import edu.umd.cloud9.util.fd.Object2IntFrequencyDistribution;
 
 import junit.framework.JUnit4TestAdapter;
 
@@ -38,6 +41,12 @@ public class Object2IntConditionalFrequencyDistributionTest {
     test1Common(cfd);
   }
 
+  @Test
+  public void test1Packed() {
+    Object2IntConditionalFrequencyDistribution<String> cfd = new Object2IntConditionalFrequencyDistributionPacked<String>();
+    test1Common(cfd);
+  }
+
   private void test1Common(Object2IntConditionalFrequencyDistribution<String> cfd) {
     cfd.set("a", "a", 2);
     cfd.check();
@@ -91,6 +100,12 @@ public class Object2IntConditionalFrequencyDistributionTest {
     test2Common(cfd);
   }
 
+  @Test
+  public void test2Packed() {
+    Object2IntConditionalFrequencyDistribution<String> cfd = new Object2IntConditionalFrequencyDistributionPacked<String>();
+    test2Common(cfd);
+  }
+
   private void test2Common(Object2IntConditionalFrequencyDistribution<String> cfd) {
     cfd.set("a", "a", 2);
     cfd.check();
@@ -134,6 +149,12 @@ public class Object2IntConditionalFrequencyDistributionTest {
     test3Common(cfd);
   }
 
+  @Test
+  public void test3Packed() {
+    Object2IntConditionalFrequencyDistribution<String> cfd = new Object2IntConditionalFrequencyDistributionPacked<String>();
+    test3Common(cfd);
+  }
+
   private void test3Common(Object2IntConditionalFrequencyDistribution<String> cfd) {
     cfd.set("a", "a", 2);
     cfd.set("a", "b", 5);
@@ -166,6 +187,12 @@ public class Object2IntConditionalFrequencyDistributionTest {
     testLargeMarginalCommon(cfd);
   }
 
+  @Test
+  public void testLargeMarginalPacked() {
+    Object2IntConditionalFrequencyDistribution<String> cfd = new Object2IntConditionalFrequencyDistributionPacked<String>();
+    testLargeMarginalCommon(cfd);
+  }
+
   private void testLargeMarginalCommon(Object2IntConditionalFrequencyDistribution<String> cfd) {
     cfd.set("1", "2", 2000000000);
     cfd.set("1", "3", 2000000000);
@@ -175,6 +202,41 @@ public class Object2IntConditionalFrequencyDistributionTest {
     assertEquals(8000000000L, cfd.getMarginalCount("1"));
   }
 
+  @Test
+  public void testFreezePacked() {
+    Object2IntConditionalFrequencyDistributionPacked<String> cfd = new Object2IntConditionalFrequencyDistributionPacked<String>();
+    cfd.set("a", "b", 2);
+    cfd.set("c", "b", 3);
+    cfd.set("b", "a", 4);
+    cfd.increment("a", "a");
+    cfd.check();
+
+    cfd.freeze();
+    cfd.check();
+    assertTrue(cfd.isFrozen());
+
+    assertEquals(4, cfd.getNumberOfPairs());
+    assertEquals(2, cfd.get("a", "b"));
+    assertEquals(1, cfd.get("a", "a"));
+    assertEquals(0, cfd.get("a", "c"));
+    assertEquals(0, cfd.get("a", "d"));
+    assertEquals(3, cfd.getMarginalCount("a"));
+    assertEquals(0, cfd.getMarginalCount("d"));
+    assertEquals(10, cfd.getSumOfAllCounts());
+
+    Object2IntFrequencyDistribution<String> fd = cfd.getConditionalDistribution("b");
+    assertEquals(2, fd.getNumberOfEvents());
+    assertEquals(2, fd.get("a"));
+    assertEquals(3, fd.get("c"));
+    assertEquals(0, cfd.getConditionalDistribution("d").getNumberOfEvents());
+
+    try {
+      cfd.increment("d", "a");
+      fail("Expected exception: frozen distribution was modified");
+    } catch (RuntimeException e) {
+    }
+  }
+
   public static junit.framework.Test suite() {
     return new JUnit4TestAdapter(Object2IntConditionalFrequencyDistributionTest.class);
   }
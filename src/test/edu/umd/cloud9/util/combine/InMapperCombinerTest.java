@@ -0,0 +1,206 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.combine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import edu.umd.cloud9.util.map.HMapII;
+import edu.umd.cloud9.util.map.HMapKI;
+
+public class InMapperCombinerTest {
+
+  // Sums what is emitted, and keeps the largest size of the buffer.
+  private static class SummingCombinerII extends InMapperCombinerII {
+    final HMapII sums = new HMapII();
+    int maxSize = 0;
+    int flushed = 0;
+
+    SummingCombinerII(int maxEntries) {
+      super(maxEntries);
+    }
+
+    @Override
+    public boolean add(int key, int value) throws IOException, InterruptedException {
+      boolean b = super.add(key, value);
+      maxSize = Math.max(maxSize, size());
+      return b;
+    }
+
+    @Override
+    protected void emit(int key, int value) {
+      sums.put(key, sums.get(key) + value);
+    }
+
+    @Override
+    protected void flushed() {
+      flushed++;
+    }
+  }
+
+  @Test
+  public void testBasic() throws Exception {
+    SummingCombinerII combiner = new SummingCombinerII(10);
+
+    assertTrue(combiner.add(1, 2));
+    assertTrue(combiner.add(2, 3));
+    assertFalse(combiner.add(1, 4));
+    assertEquals(2, combiner.size());
+    assertTrue(combiner.containsKey(1));
+    assertEquals(0, combiner.sums.size());
+
+    combiner.flush();
+    assertEquals(0, combiner.size());
+    assertEquals(6, combiner.sums.get(1));
+    assertEquals(3, combiner.sums.get(2));
+
+    assertEquals(3, combiner.getUpdates());
+    assertEquals(2, combiner.getEmitted());
+    assertEquals(0, combiner.getFlushes());
+    assertEquals(1.5f, combiner.getCombineRatio(), 0.0f);
+    assertEquals(1, combiner.flushed);
+  }
+
+  @Test
+  public void testBudget() throws Exception {
+    Random r = new Random(0);
+    SummingCombinerII combiner = new SummingCombinerII(1000);
+    HMapII expected = new HMapII();
+
+    // a skewed distribution of keys, with many more keys than fit in the buffer
+    for (int i = 0; i < 200000; i++) {
+      long x = r.nextInt(1 << 20);
+      int key = (int) ((x * x) >>> 24);
+      expected.put(key, expected.get(key) + 1);
+      combiner.add(key, 1);
+    }
+    combiner.flush();
+
+    assertEquals(1000, combiner.maxSize);
+    assertTrue(combiner.getFlushes() > 0);
+    assertEquals(combiner.getFlushes() + 1, combiner.flushed);
+    assertEquals(200000, combiner.getUpdates());
+    assertTrue(combiner.getCombineRatio() > 1.0f);
+
+    assertEquals(expected.size(), combiner.sums.size());
+    for (int key : expected.keySet()) {
+      assertEquals(expected.get(key), combiner.sums.get(key));
+    }
+  }
+
+  @Test
+  public void testColdestFlushedFirst() throws Exception {
+    SummingCombinerII combiner = new SummingCombinerII(4);
+
+    // keys 0 and 1 are hot, keys 2 and 3 are not
+    for (int i = 0; i < 10; i++) {
+      combiner.add(0, 1);
+      combiner.add(1, 1);
+    }
+    combiner.add(2, 1);
+    combiner.add(3, 1);
+
+    combiner.add(4, 1);
+    assertEquals(1, combiner.getFlushes());
+    assertEquals(3, combiner.size());
+    assertTrue(combiner.containsKey(0));
+    assertTrue(combiner.containsKey(1));
+    assertTrue(combiner.containsKey(4));
+    assertEquals(1, combiner.sums.get(2));
+    assertEquals(1, combiner.sums.get(3));
+  }
+
+  @Test
+  public void testCombine() throws Exception {
+    final float[] result = new float[1];
+    InMapperCombinerIF combiner = new InMapperCombinerIF(1) {
+      @Override
+      protected float combine(float a, float b) {
+        return Math.max(a, b);
+      }
+
+      @Override
+      protected void emit(int key, float value) {
+        result[0] = value;
+      }
+    };
+
+    combiner.add(0, 2.0f);
+    combiner.add(0, 5.0f);
+    combiner.add(0, 3.0f);
+    combiner.flush();
+    assertEquals(5.0f, result[0], 0.0f);
+  }
+
+  @Test
+  public void testObjectKeys() throws Exception {
+    final HMapKI<String> sums = new HMapKI<String>();
+    InMapperCombinerKI<String> combiner = new InMapperCombinerKI<String>(2) {
+      @Override
+      protected void emit(String key, int value) {
+        sums.put(key, sums.get(key) + value);
+      }
+    };
+
+    String[] words = new String[] { "a", "b", "a", "c", "a", "d", "b", "a" };
+    for (String w : words) {
+      combiner.add(w, 1);
+      assertTrue(combiner.size() <= 2);
+    }
+    combiner.flush();
+
+    assertEquals(4, sums.get("a"));
+    assertEquals(2, sums.get("b"));
+    assertEquals(1, sums.get("c"));
+    assertEquals(1, sums.get("d"));
+    assertEquals(8, combiner.getUpdates());
+  }
+
+  @Test
+  public void testMaxEntries() {
+    Configuration conf = new Configuration();
+    conf.setLong(InMapperCombiner.MEMORY_BUDGET_PROPERTY, 96000);
+    conf.setFloat(InMapperCombiner.FLUSH_FRACTION_PROPERTY, 0.25f);
+
+    assertEquals(1000, InMapperCombiner.getMaxEntries(conf, 96));
+    assertEquals(1, InMapperCombiner.getMaxEntries(conf, 1000000));
+
+    InMapperCombinerKF<String> combiner = new InMapperCombinerKF<String>(conf, 48) {
+      @Override
+      protected void emit(String key, float value) {
+      }
+    };
+    assertEquals(96000 / (InMapperCombinerKF.BYTES_PER_ENTRY + 48), combiner.getMaxEntries());
+
+    conf = new Configuration();
+    assertEquals(Runtime.getRuntime().maxMemory() / 4, InMapperCombiner.getMemoryBudget(conf),
+        Runtime.getRuntime().maxMemory() / 100);
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(InMapperCombinerTest.class);
+  }
+}
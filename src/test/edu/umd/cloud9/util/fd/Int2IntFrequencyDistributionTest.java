@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -520,6 +521,35 @@ public class Int2IntFrequencyDistributionTest {
     assertEquals(9, e.getRightElement());
   }
 
+  private void testTopEntriesCommon(Int2IntFrequencyDistribution fd) {
+    Random r = new Random(0);
+    for (int i = 0; i < 20000; i++) {
+      fd.increment(r.nextInt(5000), 1 + r.nextInt(3));
+    }
+
+    for (Order order : Order.values()) {
+      List<PairOfInts> all = fd.getEntries(order);
+      for (int n : new int[] { 0, 1, 10, 1000, all.size(), all.size() + 10 }) {
+        List<PairOfInts> top = fd.getEntries(order, n);
+        assertEquals(Math.min(n, all.size()), top.size());
+        for (int i = 0; i < top.size(); i++) {
+          assertEquals(all.get(i).getLeftElement(), top.get(i).getLeftElement());
+          assertEquals(all.get(i).getRightElement(), top.get(i).getRightElement());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTopEntriesEntry() {
+    testTopEntriesCommon(new Int2IntFrequencyDistributionEntry());
+  }
+
+  @Test
+  public void testTopEntriesFastutil() {
+    testTopEntriesCommon(new Int2IntFrequencyDistributionFastutil());
+  }
+
   public static junit.framework.Test suite() {
     return new JUnit4TestAdapter(Int2IntFrequencyDistributionTest.class);
   }
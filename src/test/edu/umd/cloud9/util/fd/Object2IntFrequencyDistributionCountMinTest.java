@@ -0,0 +1,118 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.fd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.util.SortableEntries.Order;
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
+
+public class Object2IntFrequencyDistributionCountMinTest {
+
+  @Test
+  public void testCreate() {
+    Object2IntFrequencyDistributionCountMin<String> fd =
+      Object2IntFrequencyDistributionCountMin.create(0.001, 0.01, 100);
+
+    assertEquals(2719, fd.getWidth());
+    assertEquals(5, fd.getDepth());
+    assertEquals(100, fd.getCapacity());
+    assertTrue(fd.getEpsilon() <= 0.001);
+    assertTrue(fd.getConfidence() >= 0.99);
+  }
+
+  @Test
+  public void testBounds() {
+    Random r = new Random(0);
+    Object2IntFrequencyDistribution<String> exact =
+      new Object2IntFrequencyDistributionEntry<String>();
+    Object2IntFrequencyDistributionCountMin<String> fd =
+      new Object2IntFrequencyDistributionCountMin<String>(500, 5, 50);
+
+    Object2IntFrequencyDistributionSpaceSavingTest.addSkewedStream(r, 100000, exact, fd);
+    assertEquals(100000, fd.getSumOfCounts());
+    assertEquals(50, fd.getNumberOfEvents());
+
+    int outside = 0;
+    for (PairOfObjectInt<String> pair : exact) {
+      int estimate = fd.get(pair.getLeftElement());
+      assertTrue(estimate >= pair.getRightElement());
+      if (estimate - pair.getRightElement() > fd.getErrorBound()) {
+        outside++;
+      }
+    }
+    assertTrue(outside <= (1.0 - fd.getConfidence()) * exact.getNumberOfEvents() + 1);
+
+    // the most frequent events are found, though events with close counts may swap places
+    List<PairOfObjectInt<String>> approxTop = fd.getEntries(Order.ByRightElementDescending, 10);
+    assertEquals(10, approxTop.size());
+    assertEquals("t0", approxTop.get(0).getLeftElement());
+    Object2IntFrequencyDistributionSpaceSavingTest.assertTopFound(
+        exact.getEntries(Order.ByRightElementDescending, 5), approxTop);
+  }
+
+  @Test
+  public void testMerge() {
+    Random r = new Random(0);
+    Object2IntFrequencyDistribution<String> exact =
+      new Object2IntFrequencyDistributionEntry<String>();
+    Object2IntFrequencyDistributionCountMin<String> all =
+      new Object2IntFrequencyDistributionCountMin<String>(200, 4, 20);
+    Object2IntFrequencyDistributionCountMin<String> fd1 =
+      new Object2IntFrequencyDistributionCountMin<String>(200, 4, 20);
+    Object2IntFrequencyDistributionCountMin<String> fd2 =
+      new Object2IntFrequencyDistributionCountMin<String>(200, 4, 20);
+
+    for (int i = 0; i < 20000; i++) {
+      String key = "t" + (int) (Math.pow(r.nextDouble(), 4) * 10000);
+      exact.increment(key);
+      all.increment(key);
+      (i % 3 == 0 ? fd1 : fd2).increment(key);
+    }
+
+    fd1.merge(fd2);
+
+    // sketches are linear: merging gives the same estimates as counting everything in one sketch
+    assertEquals(all.getSumOfCounts(), fd1.getSumOfCounts());
+    for (PairOfObjectInt<String> pair : exact) {
+      assertEquals(all.get(pair.getLeftElement()), fd1.get(pair.getLeftElement()));
+    }
+
+    Object2IntFrequencyDistributionSpaceSavingTest.assertTopFound(
+        exact.getEntries(Order.ByRightElementDescending, 3),
+        fd1.getEntries(Order.ByRightElementDescending, 10));
+
+    try {
+      fd1.merge(new Object2IntFrequencyDistributionCountMin<String>(100, 4, 20));
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(Object2IntFrequencyDistributionCountMinTest.class);
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.util.fd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import edu.umd.cloud9.util.SortableEntries.Order;
+import edu.umd.cloud9.util.pair.PairOfObjectInt;
+
+public class Object2IntFrequencyDistributionSpaceSavingTest {
+
+  // Adds a skewed stream of events to both an exact and an approximate distribution.
+  static void addSkewedStream(Random r, int n, Object2IntFrequencyDistribution<String> exact,
+      Object2IntFrequencyDistribution<String> approx) {
+    for (int i = 0; i < n; i++) {
+      String key = "t" + (int) (Math.pow(r.nextDouble(), 4) * 10000);
+      exact.increment(key);
+      approx.increment(key);
+    }
+  }
+
+  // Checks that the events of an exact top list are in an approximate one.
+  static void assertTopFound(List<PairOfObjectInt<String>> top,
+      List<PairOfObjectInt<String>> approxTop) {
+    Set<String> keys = Sets.newHashSet();
+    for (PairOfObjectInt<String> pair : approxTop) {
+      keys.add(pair.getLeftElement());
+    }
+    for (PairOfObjectInt<String> pair : top) {
+      assertTrue(keys.contains(pair.getLeftElement()));
+    }
+  }
+
+  private static void checkBounds(Object2IntFrequencyDistribution<String> exact,
+      Object2IntFrequencyDistributionSpaceSaving<String> fd) {
+    assertEquals(exact.getSumOfCounts(), fd.getSumOfCounts());
+    assertTrue(fd.getErrorBound() <= fd.getSumOfCounts() / fd.getCapacity());
+
+    for (PairOfObjectInt<String> pair : exact) {
+      String key = pair.getLeftElement();
+      int count = pair.getRightElement();
+
+      if (fd.contains(key)) {
+        assertTrue(fd.get(key) >= count);
+        assertTrue(fd.get(key) - fd.getError(key) <= count);
+      } else {
+        assertTrue(count <= fd.getErrorBound());
+      }
+
+      if (count > fd.getSumOfCounts() / fd.getCapacity()) {
+        assertTrue(fd.contains(key));
+      }
+    }
+  }
+
+  @Test
+  public void testExact() {
+    Object2IntFrequencyDistributionSpaceSaving<String> fd =
+      new Object2IntFrequencyDistributionSpaceSaving<String>(10);
+
+    fd.increment("a");
+    fd.increment("b", 3);
+    fd.increment("a");
+
+    assertEquals(2, fd.getNumberOfEvents());
+    assertEquals(5, fd.getSumOfCounts());
+    assertEquals(2, fd.get("a"));
+    assertEquals(3, fd.get("b"));
+    assertEquals(0, fd.get("c"));
+    assertEquals(0, fd.getError("a"));
+    assertEquals(0, fd.getErrorBound());
+    assertTrue(fd.contains("a"));
+    assertFalse(fd.contains("c"));
+    assertEquals(0.4, fd.computeRelativeFrequency("a"), 10E-6);
+
+    fd.clear();
+    assertEquals(0, fd.getNumberOfEvents());
+    assertEquals(0, fd.getSumOfCounts());
+    assertEquals(10, fd.getCapacity());
+  }
+
+  @Test
+  public void testReplacement() {
+    Object2IntFrequencyDistributionSpaceSaving<String> fd =
+      new Object2IntFrequencyDistributionSpaceSaving<String>(2);
+
+    fd.increment("a", 5);
+    fd.increment("b", 2);
+    fd.increment("c");
+
+    // c replaces b, and inherits its count as error
+    assertEquals(2, fd.getNumberOfEvents());
+    assertTrue(fd.contains("a"));
+    assertFalse(fd.contains("b"));
+    assertEquals(3, fd.get("c"));
+    assertEquals(2, fd.getError("c"));
+    assertEquals(2, fd.getErrorBound());
+    assertEquals(8, fd.getSumOfCounts());
+  }
+
+  @Test
+  public void testBounds() {
+    Random r = new Random(0);
+    Object2IntFrequencyDistribution<String> exact =
+      new Object2IntFrequencyDistributionEntry<String>();
+    Object2IntFrequencyDistributionSpaceSaving<String> fd =
+      new Object2IntFrequencyDistributionSpaceSaving<String>(1000);
+
+    addSkewedStream(r, 100000, exact, fd);
+    assertEquals(1000, fd.getNumberOfEvents());
+    checkBounds(exact, fd);
+
+    // the most frequent events are found, though events with close counts may swap places
+    List<PairOfObjectInt<String>> approxTop = fd.getEntries(Order.ByRightElementDescending, 10);
+    assertEquals(10, approxTop.size());
+    assertEquals("t0", approxTop.get(0).getLeftElement());
+    assertTopFound(exact.getEntries(Order.ByRightElementDescending, 5), approxTop);
+  }
+
+  @Test
+  public void testMerge() {
+    Random r = new Random(0);
+    Object2IntFrequencyDistribution<String> exact =
+      new Object2IntFrequencyDistributionEntry<String>();
+    Object2IntFrequencyDistributionSpaceSaving<String> fd1 =
+      new Object2IntFrequencyDistributionSpaceSaving<String>(100);
+    Object2IntFrequencyDistributionSpaceSaving<String> fd2 =
+      new Object2IntFrequencyDistributionSpaceSaving<String>(100);
+
+    addSkewedStream(r, 50000, exact, fd1);
+    addSkewedStream(r, 30000, exact, fd2);
+
+    fd1.merge(fd2);
+    assertEquals(100, fd1.getNumberOfEvents());
+    checkBounds(exact, fd1);
+
+    // counting goes on after a merge
+    addSkewedStream(r, 20000, exact, fd1);
+    checkBounds(exact, fd1);
+  }
+
+  @Test
+  public void testUnsupported() {
+    Object2IntFrequencyDistributionSpaceSaving<String> fd =
+      new Object2IntFrequencyDistributionSpaceSaving<String>(10);
+    fd.increment("a");
+
+    try {
+      fd.decrement("a");
+      fail("Expected UnsupportedOperationException");
+    } catch (UnsupportedOperationException e) {
+    }
+
+    try {
+      fd.set("a", 2);
+      fail("Expected UnsupportedOperationException");
+    } catch (UnsupportedOperationException e) {
+    }
+
+    try {
+      fd.remove("a");
+      fail("Expected UnsupportedOperationException");
+    } catch (UnsupportedOperationException e) {
+    }
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(Object2IntFrequencyDistributionSpaceSavingTest.class);
+  }
+}
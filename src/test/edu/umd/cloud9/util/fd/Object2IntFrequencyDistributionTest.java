@@ -22,6 +22,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -549,6 +550,35 @@ public class Object2IntFrequencyDistributionTest {
     assertEquals(9, e.getRightElement());
   }
 
+  private void testTopEntriesCommon(Object2IntFrequencyDistribution<String> fd) {
+    Random r = new Random(0);
+    for (int i = 0; i < 20000; i++) {
+      fd.increment("event" + r.nextInt(5000), 1 + r.nextInt(3));
+    }
+
+    for (Order order : Order.values()) {
+      List<PairOfObjectInt<String>> all = fd.getEntries(order);
+      for (int n : new int[] { 0, 1, 10, 1000, all.size(), all.size() + 10 }) {
+        List<PairOfObjectInt<String>> top = fd.getEntries(order, n);
+        assertEquals(Math.min(n, all.size()), top.size());
+        for (int i = 0; i < top.size(); i++) {
+          assertEquals(all.get(i).getLeftElement(), top.get(i).getLeftElement());
+          assertEquals(all.get(i).getRightElement(), top.get(i).getRightElement());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTopEntriesEntry() {
+    testTopEntriesCommon(new Object2IntFrequencyDistributionEntry<String>());
+  }
+
+  @Test
+  public void testTopEntriesFastutil() {
+    testTopEntriesCommon(new Object2IntFrequencyDistributionFastutil<String>());
+  }
+
   public static junit.framework.Test suite() {
     return new JUnit4TestAdapter(Object2IntFrequencyDistributionTest.class);
   }
@@ -268,6 +268,27 @@ public class HMapIFTest {
     assertEquals(-0.5f, m.get(3), 10E-6);
   }
 
+  @Test
+  public void testTopEntriesSameAsSorting() {
+    HMapIF m = new HMapIF();
+    Random r = new Random(0);
+    for (int i = 0; i < 20000; i++) {
+      // few distinct values, to exercise tie-breaking by key; some negative, and some negative zeros
+      m.put(r.nextInt(100000), (r.nextInt(21) - 10) / 2.0f);
+    }
+    m.put(-1, -0.0f);
+
+    MapIF.Entry[] all = m.getEntriesSortedByValue();
+    for (int n : new int[] { 0, 1, 10, 1000, all.length, all.length + 10 }) {
+      MapIF.Entry[] top = m.getEntriesSortedByValue(n);
+      assertEquals(Math.min(n, all.length), top.length);
+      for (int i = 0; i < top.length; i++) {
+        assertEquals(all[i].getKey(), top[i].getKey());
+        assertEquals(all[i].getValue(), top[i].getValue(), 0.0f);
+      }
+    }
+  }
+
   public static junit.framework.Test suite() {
     return new JUnit4TestAdapter(HMapIFTest.class);
   }
@@ -0,0 +1,188 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.webgraph;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+import edu.umd.cloud9.webgraph.data.AnchorText;
+import edu.umd.cloud9.webgraph.data.AnchorTextConstants;
+
+public class ComputeWeightTest {
+
+	//the per-host scan the reducer used before
+	private static void weightByScanning(List<AnchorText> lines, List<AnchorText> hostMap) {
+		int linkCounter = 0;
+		int[] simMap = new int[lines.size()];
+		for(int i = 1; i < lines.size(); i++) {
+			if(lines.get(i).equalsIgnoreSources(lines.get(i - 1))) {
+				simMap[i] = simMap[i-1];
+			} else {
+				simMap[i] = i;
+
+				if(lines.get(i).isExternalInLink())
+					linkCounter++;
+			}
+		}
+
+		String lastHost = "";
+		HashSet<Integer> intersects = new HashSet<Integer>();
+		for(AnchorText data : hostMap) {
+			if(!data.getText().equals(lastHost)) {
+				addWeights(lines, simMap, intersects);
+				intersects.clear();
+			}
+			lastHost = data.getText();
+
+			for(int i = 0; i < lines.size(); i++) {
+				if(!lines.get(i).isExternalInLink() || intersects.contains(simMap[i]))
+					continue;
+
+				if(linkCounter == 1 || data.intersects(lines.get(i)))
+					intersects.add(simMap[i]);
+			}
+		}
+		addWeights(lines, simMap, intersects);
+	}
+
+	private static void addWeights(List<AnchorText> lines, int[] simMap, HashSet<Integer> intersects) {
+		if(intersects.size() == 0)
+			return;
+
+		for(int i = 0; i < simMap.length; i++) {
+			if(intersects.contains(simMap[i]))
+				lines.get(i).setWeight(lines.get(i).getWeight() + (1.0f / intersects.size()));
+		}
+	}
+
+	private static List<AnchorText> randomLines(Random r) {
+		byte[] types = new byte[] { AnchorTextConstants.Type.INTERNAL_IN_LINK.val,
+				AnchorTextConstants.Type.EXTERNAL_IN_LINK.val, AnchorTextConstants.Type.URL_FIELD.val };
+
+		List<AnchorText> lines = new ArrayList<AnchorText>();
+		int n = 1 + r.nextInt(r.nextBoolean() ? 4 : 200);
+		for(int i = 0; i < n; i++) {
+			AnchorText line = new AnchorText(types[r.nextInt(types.length)], "text" + r.nextInt(n / 2 + 1));
+			int docs = r.nextInt(6);
+			for(int j = 0; j < docs; j++) {
+				line.addDocument(r.nextInt(300));
+			}
+			lines.add(line);
+		}
+
+		//packets of the same line end up next to each other
+		Collections.sort(lines);
+		return lines;
+	}
+
+	private static List<AnchorText> randomHostMap(Random r) {
+		List<AnchorText> hostMap = new ArrayList<AnchorText>();
+		int hosts = r.nextInt(30);
+		for(int h = 0; h < hosts; h++) {
+			int packets = 1 + r.nextInt(3);
+			for(int p = 0; p < packets; p++) {
+				AnchorText packet = new AnchorText(AnchorTextConstants.Type.OTHER_TYPES.val, "host" + h);
+				int docs = r.nextInt(10);
+				for(int j = 0; j < docs; j++) {
+					packet.addDocument(r.nextInt(300));
+				}
+				hostMap.add(packet);
+			}
+		}
+		return hostMap;
+	}
+
+	private static List<AnchorText> copy(List<AnchorText> lines) {
+		List<AnchorText> copy = new ArrayList<AnchorText>();
+		for(AnchorText line : lines) {
+			copy.add(line.clone());
+		}
+		return copy;
+	}
+
+	@Test
+	public void testSameWeightsAsScanning() {
+		Random r = new Random(0);
+		ComputeWeight.InLinkIndex index = new ComputeWeight.InLinkIndex();
+
+		for(int trial = 0; trial < 500; trial++) {
+			List<AnchorText> expected = randomLines(r);
+			List<AnchorText> actual = copy(expected);
+			List<AnchorText> hostMap = randomHostMap(r);
+
+			weightByScanning(expected, hostMap);
+
+			index.index(actual);
+			String lastHost = "";
+			for(AnchorText data : hostMap) {
+				if(!data.getText().equals(lastHost))
+					index.finishHost();
+				lastHost = data.getText();
+				index.addHostSources(data);
+			}
+			index.finishHost();
+
+			assertEquals(expected.size(), actual.size());
+			for(int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getType(), actual.get(i).getType());
+				assertEquals(expected.get(i).getWeight(), actual.get(i).getWeight(), 0.0f);
+			}
+		}
+	}
+
+	@Test
+	public void testSplitLine() {
+		//one line of anchor text split into two packets, plus another line
+		List<AnchorText> lines = new ArrayList<AnchorText>();
+		lines.add(new AnchorText(AnchorTextConstants.Type.INTERNAL_IN_LINK.val, "home", 1));
+		lines.add(new AnchorText(AnchorTextConstants.Type.EXTERNAL_IN_LINK.val, "a", 10));
+		lines.add(new AnchorText(AnchorTextConstants.Type.EXTERNAL_IN_LINK.val, "a", 20));
+		lines.add(new AnchorText(AnchorTextConstants.Type.EXTERNAL_IN_LINK.val, "b", 30));
+
+		List<AnchorText> hostMap = new ArrayList<AnchorText>();
+		AnchorText host = new AnchorText(AnchorTextConstants.Type.OTHER_TYPES.val, "x.com", 20);
+		host.addDocument(30);
+		hostMap.add(host);
+		hostMap.add(new AnchorText(AnchorTextConstants.Type.OTHER_TYPES.val, "y.com", 10));
+
+		ComputeWeight.InLinkIndex index = new ComputeWeight.InLinkIndex();
+		index.index(lines);
+		for(AnchorText data : hostMap) {
+			index.finishHost();
+			index.addHostSources(data);
+		}
+		index.finishHost();
+
+		assertEquals(0.0f, lines.get(0).getWeight(), 0.0f);
+		assertEquals(1.5f, lines.get(1).getWeight(), 0.0f);
+		assertEquals(1.5f, lines.get(2).getWeight(), 0.0f);
+		assertEquals(0.5f, lines.get(3).getWeight(), 0.0f);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(ComputeWeightTest.class);
+	}
+}
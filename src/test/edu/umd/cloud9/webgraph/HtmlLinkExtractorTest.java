@@ -0,0 +1,138 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.webgraph;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class HtmlLinkExtractorTest {
+
+  private static List<String> extract(String html, String url) throws UnsupportedEncodingException {
+    byte[] bytes = ("xx" + html).getBytes("UTF-8");
+    HtmlLinkExtractor extractor = new HtmlLinkExtractor();
+    extractor.reset(bytes, 2, bytes.length, url);
+
+    List<String> links = new ArrayList<String>();
+    while (extractor.next()) {
+      links.add(extractor.getURL() + " " + extractor.getAnchorText());
+    }
+    return links;
+  }
+
+  @Test
+  public void testLinks() throws Exception {
+    String html = "<html><head><title>t</title></head><body>\n"
+        + "<A HREF=\"b.html\">Bee <b>bold</b>\n  text</A>\n"
+        + "<a class=x href='/c?q=1&amp;r=2'>C &amp; D&#33; &#x41;</a>"
+        + "<a href=http://other.org/d#frag>d</a>"
+        + "<a name=\"no-href\">skipped</a>"
+        + "<a href=\"mailto:me@umd.edu\">mail</a>"
+        + "<a href=\"../e\">unclosed <a href=\"f\">f</a>"
+        + "<a href=\"g\"></a>"
+        + "</body></html>";
+
+    List<String> links = extract(html, "http://www.umd.edu/x/y.html");
+    assertEquals(6, links.size());
+    assertEquals("http://www.umd.edu/x/b.html Bee bold\n  text", links.get(0));
+    assertEquals("http://www.umd.edu/c?q=1&r=2 C &amp; D&#33; &#x41;", links.get(1));
+    assertEquals("http://other.org/d#frag d", links.get(2));
+    assertEquals("http://www.umd.edu/e unclosed ", links.get(3));
+    assertEquals("http://www.umd.edu/x/f f", links.get(4));
+    assertEquals("http://www.umd.edu/x/g ", links.get(5));
+  }
+
+  @Test
+  public void testSkippedMarkup() throws Exception {
+    String html = "<!-- <a href=\"comment\">c</a> -->"
+        + "<script type=\"text/javascript\">document.write('<a href=\"script\">s</a>');</SCRIPT>"
+        + "<style>a > b { }</style>"
+        + "<p title=\"<a href='attr'>\">x < y</p>"
+        + "<a href=\"ok\">1 < 2 \u00e9t\u00e9 &nbsp;&bogus;</a>";
+
+    List<String> links = extract(html, "http://www.umd.edu/");
+    assertEquals(1, links.size());
+    assertEquals("http://www.umd.edu/ok 1 < 2 \u00e9t\u00e9 &nbsp;&bogus;", links.get(0));
+  }
+
+  @Test
+  public void testSchemeLowerCased() throws Exception {
+    String html = "<a href=\"HTTP://Other.ORG/Path\">a</a><a href=\"Https://other.org/p\">b</a>";
+
+    List<String> links = extract(html, "http://www.umd.edu/");
+    assertEquals(2, links.size());
+    assertEquals("http://Other.ORG/Path a", links.get(0));
+    assertEquals("https://other.org/p b", links.get(1));
+  }
+
+  @Test
+  public void testEmptyHref() throws Exception {
+    // an empty href isn't a link back to the document (or to its <base>)
+    String html = "<base href=\"http://mirror.org/dir/\"><a href=\"\">empty</a><a href=\"p\">p</a>";
+
+    List<String> links = extract(html, "http://www.umd.edu/");
+    assertEquals(1, links.size());
+    assertEquals("http://mirror.org/dir/p p", links.get(0));
+  }
+
+  @Test
+  public void testLinksWithoutHost() throws Exception {
+    String html = "<a href=\"mailto:me@umd.edu\">m</a><a href=\"MAILTO:me@umd.edu\">M</a>"
+        + "<a href=\"javascript:go()\">j</a><a href=\"news:comp.lang.java\">n</a>"
+        + "<a name=\"top\">t</a><a href=\"ok\">ok</a>";
+
+    List<String> links = extract(html, "http://www.umd.edu/");
+    assertEquals(1, links.size());
+    assertEquals("http://www.umd.edu/ok ok", links.get(0));
+  }
+
+  @Test
+  public void testIllegalCharacters() throws Exception {
+    // unescaped spaces are left for URLCanonicalizer.canonicalize() to escape
+    List<String> links = extract("<a href=\"a b.html\">x</a>", "http://www.umd.edu/");
+    assertEquals(1, links.size());
+    assertEquals("http://www.umd.edu/a b.html x", links.get(0));
+  }
+
+  @Test
+  public void testBase() throws Exception {
+    String html = "<head><base href=\"http://mirror.org/dir/\"><base href=\"http://ignored.org/\"></head>"
+        + "<a href=\"page\">p</a>";
+
+    List<String> links = extract(html, "http://www.umd.edu/");
+    assertEquals(1, links.size());
+    assertEquals("http://mirror.org/dir/page p", links.get(0));
+  }
+
+  @Test
+  public void testTruncated() throws Exception {
+    assertEquals(0, extract("<a href=\"x", "http://www.umd.edu/").size());
+    assertEquals(1, extract("<a href=\"x\">text", "http://www.umd.edu/").size());
+    assertEquals(0, extract("<", "http://www.umd.edu/").size());
+    assertEquals(0, extract("<!-- x", "http://www.umd.edu/").size());
+  }
+
+  public static junit.framework.Test suite() {
+    return new JUnit4TestAdapter(HtmlLinkExtractorTest.class);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.webgraph.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+public class AnchorTextAggregatorTest {
+
+	//the merging loop the reducers used before
+	private static List<AnchorText> mergeByScanning(List<AnchorText> input) {
+		List<AnchorText> output = new ArrayList<AnchorText>();
+		for(AnchorText data : input) {
+			boolean pushed = false;
+			for(int i = 0; i < output.size(); i++) {
+				if(output.get(i).equalsIgnoreSources(data)) {
+					output.get(i).addDocumentsFrom(data);
+					pushed = true;
+					break;
+				}
+			}
+
+			if(!pushed)
+				output.add(data.clone());
+		}
+		return output;
+	}
+
+	private static List<AnchorText> randomAnchors(Random r, int n) {
+		byte[] types = new byte[] { AnchorTextConstants.Type.INTERNAL_IN_LINK.val,
+				AnchorTextConstants.Type.EXTERNAL_IN_LINK.val, AnchorTextConstants.Type.INTERNAL_OUT_LINK.val,
+				AnchorTextConstants.Type.URL_FIELD.val, AnchorTextConstants.Type.OUT_DEGREE.val };
+
+		List<AnchorText> anchors = new ArrayList<AnchorText>();
+		for(int i = 0; i < n; i++) {
+			AnchorText anchor = new AnchorText(types[r.nextInt(types.length)], "text" + r.nextInt(50));
+			if(anchor.isExternalInLink() && r.nextBoolean())
+				anchor.setWeight(r.nextInt(3) / 2.0f);
+
+			int docs = r.nextInt(5);
+			for(int j = 0; j < docs; j++) {
+				anchor.addDocument(r.nextInt(100));
+			}
+			anchors.add(anchor);
+		}
+		return anchors;
+	}
+
+	@Test
+	public void testSameAsScanning() {
+		Random r = new Random(0);
+		AnchorTextAggregator aggregator = new AnchorTextAggregator();
+
+		for(int trial = 0; trial < 20; trial++) {
+			List<AnchorText> input = randomAnchors(r, 1 + r.nextInt(2000));
+
+			List<AnchorText> expected = mergeByScanning(input);
+			Collections.sort(expected);
+
+			aggregator.clear();
+			for(AnchorText data : input) {
+				aggregator.add(data);
+			}
+			List<AnchorText> actual = new ArrayList<AnchorText>();
+			aggregator.emit(actual);
+			Collections.sort(actual);
+
+			assertEquals(expected.size(), aggregator.size());
+			assertEquals(expected.size(), actual.size());
+			for(int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getType(), actual.get(i).getType());
+				assertEquals(expected.get(i).getText(), actual.get(i).getText());
+				assertEquals(expected.get(i).getWeight(), actual.get(i).getWeight(), 0.0f);
+				assertTrue(expected.get(i).equals(actual.get(i)));
+			}
+		}
+	}
+
+	@Test
+	public void testManyDuplicates() {
+		AnchorTextAggregator aggregator = new AnchorTextAggregator();
+		AnchorText data = new AnchorText(AnchorTextConstants.Type.INTERNAL_IN_LINK.val, "home");
+		for(int i = 0; i < 100000; i++) {
+			data.resetToType(AnchorTextConstants.Type.INTERNAL_IN_LINK.val);
+			data.setText(i % 2 == 0 ? "home" : "Home");
+			data.addDocument(i % 1000);
+			aggregator.add(data);
+		}
+
+		List<AnchorText> output = new ArrayList<AnchorText>();
+		aggregator.emit(output);
+		assertEquals(2, output.size());
+		assertEquals("home", output.get(0).getText());
+		assertEquals(500, output.get(0).getSize());
+		assertEquals("Home", output.get(1).getText());
+		assertEquals(500, output.get(1).getSize());
+		assertTrue(output.get(0).containsDocument(998));
+		assertTrue(output.get(1).containsDocument(999));
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(AnchorTextAggregatorTest.class);
+	}
+}
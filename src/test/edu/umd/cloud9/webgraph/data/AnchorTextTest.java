@@ -26,6 +26,9 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.TreeSet;
 
 import junit.framework.JUnit4TestAdapter;
 
@@ -134,6 +137,118 @@ public class AnchorTextTest {
 			fail();
 	}
 
+	private static AnchorText roundTrip(AnchorText anchor) throws IOException {
+		ByteArrayOutputStream bstream = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bstream);
+		anchor.write(out);
+		out.close();
+		
+		AnchorText read = new AnchorText();
+		read.readFields(new DataInputStream(new ByteArrayInputStream(bstream.toByteArray())));
+		return read;
+	}
+	
+	@Test
+	public void testSerialization() throws IOException {
+		AnchorText anchor = new AnchorText(AnchorTextConstants.Type.WEIGHTED_EXTERNAL_IN_LINK.val, "text");
+		anchor.setWeight(0.5f);
+		int[] docs = new int[] { 1000000, -5, 7, 3, 7, Integer.MAX_VALUE, Integer.MIN_VALUE, 0 };
+		for(int doc : docs) {
+			anchor.addDocument(doc);
+		}
+		
+		AnchorText read = roundTrip(anchor);
+		assertEquals(7, read.getSize());
+		assertEquals("text", read.getText());
+		assertEquals(0.5f, read.getWeight(), 0.0f);
+		assertEquals(anchor, read);
+		assertEquals("(ExternalInLink, text, [-2147483648,-5,0,3,7,1000000,2147483647], w:0.5)", read.toString());
+		
+		//written back out without being decoded
+		AnchorText copy = roundTrip(read);
+		assertEquals(7, copy.getSize());
+		assertTrue(copy.containsDocument(1000000));
+		assertFalse(copy.containsDocument(1000001));
+		
+		//gaps take fewer bytes than raw ints
+		anchor = new AnchorText(AnchorTextConstants.Type.INTERNAL_IN_LINK.val, "");
+		for(int i = 0; i < 1000; i++) {
+			anchor.addDocument(i * 3);
+		}
+		ByteArrayOutputStream bstream = new ByteArrayOutputStream();
+		anchor.write(new DataOutputStream(bstream));
+		assertTrue(bstream.size() < 1100);
+	}
+	
+	@Test
+	public void testOlderFormat() throws IOException {
+		ByteArrayOutputStream bstream = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bstream);
+		out.writeByte(AnchorTextConstants.Type.INTERNAL_IN_LINK.val);
+		out.writeUTF("text");
+		out.writeInt(3);
+		out.writeInt(30);
+		out.writeInt(10);
+		out.writeInt(20);
+		out.close();
+		
+		AnchorText read = new AnchorText();
+		read.readFields(new DataInputStream(new ByteArrayInputStream(bstream.toByteArray())));
+		assertEquals("text", read.getText());
+		assertEquals(3, read.getSize());
+		
+		int[] docs = read.getDocuments();
+		assertEquals(10, docs[0]);
+		assertEquals(20, docs[1]);
+		assertEquals(30, docs[2]);
+		
+		assertEquals(read, roundTrip(read));
+	}
+	
+	@Test
+	public void testMergeAndIntersect() throws IOException {
+		Random r = new Random(0);
+		
+		for(int trial = 0; trial < 200; trial++) {
+			TreeSet<Integer> set1 = new TreeSet<Integer>();
+			TreeSet<Integer> set2 = new TreeSet<Integer>();
+			AnchorText anchor1 = new AnchorText(AnchorTextConstants.Type.INTERNAL_IN_LINK.val, "a");
+			AnchorText anchor2 = new AnchorText(AnchorTextConstants.Type.INTERNAL_IN_LINK.val, "b");
+			
+			int n1 = r.nextInt(10), n2 = r.nextInt(trial % 2 == 0 ? 10 : 5000);
+			for(int i = 0; i < n1; i++) {
+				int doc = r.nextInt(20000);
+				set1.add(doc);
+				anchor1.addDocument(doc);
+			}
+			for(int i = 0; i < n2; i++) {
+				int doc = r.nextInt(20000);
+				set2.add(doc);
+				anchor2.addDocument(doc);
+			}
+			
+			//one side has to be decoded lazily
+			if(trial % 3 == 0)
+				anchor2 = roundTrip(anchor2);
+			
+			TreeSet<Integer> common = new TreeSet<Integer>(set1);
+			common.retainAll(set2);
+			assertEquals(!common.isEmpty(), anchor1.intersects(anchor2));
+			assertEquals(!common.isEmpty(), anchor2.intersects(anchor1));
+			
+			set1.addAll(set2);
+			anchor1.addDocumentsFrom(anchor2);
+			assertEquals(set1.size(), anchor1.getSize());
+			
+			int i = 0;
+			for(int doc : anchor1) {
+				assertEquals(set1.pollFirst().intValue(), doc);
+				i++;
+			}
+			assertEquals(anchor1.getSize(), i);
+		}
+	}
+
 	public static junit.framework.Test suite() {
 		return new JUnit4TestAdapter(AnchorTextTest.class);
 	}
@@ -0,0 +1,272 @@
+/*
+ * Cloud9: A MapReduce Library for Hadoop
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may
+ * obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package edu.umd.cloud9.webgraph.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.junit.Test;
+
+import edu.umd.cloud9.collection.DocnoMapping;
+import edu.umd.cloud9.io.SequenceFileBlockCache;
+import edu.umd.cloud9.io.SequenceFileBlockScanner;
+import edu.umd.cloud9.io.array.ArrayListWritable;
+
+public class IndexableAnchorTextForwardIndexTest {
+	private static final String COLLECTION = "tmp-anchors";
+	private static final int FIRST_DOCNO = 10;
+	private static final int NUM_DOCS = 3000;
+
+	private static class FakeDocnoMapping implements DocnoMapping {
+		public int getDocno(String docid) {
+			return Integer.parseInt(docid.substring(4));
+		}
+
+		public String getDocid(int docno) {
+			return "doc-" + docno;
+		}
+
+		public void loadMapping(Path path, FileSystem fs) {
+		}
+
+		public Builder getBuilder() {
+			return null;
+		}
+	}
+
+	//every other docno is in the collection; each document has one incoming link from docno + 1
+	private static String expectedLink(int docno) {
+		return "anchor for " + docno;
+	}
+
+	private static void writeCollection(FileSystem fs, Configuration conf) throws IOException {
+		conf.setInt("io.seqfile.compress.blocksize", 4096);
+		SequenceFile.Writer w = SequenceFile.createWriter(fs, conf, IndexableAnchorTextForwardIndex
+				.getPartPath(COLLECTION, 0), IntWritable.class, ArrayListWritable.class,
+				SequenceFile.CompressionType.BLOCK);
+
+		ArrayListWritable<AnchorText> anchors = new ArrayListWritable<AnchorText>();
+		for (int i = 0; i < NUM_DOCS; i++) {
+			int docno = FIRST_DOCNO + 2 * i;
+			anchors.clear();
+			anchors.add(new AnchorText(AnchorTextConstants.Type.EXTERNAL_IN_LINK.val, expectedLink(docno), docno + 1));
+			w.append(new IntWritable(docno), anchors);
+		}
+		w.close();
+	}
+
+	//writes an index in the format of BuildAnchorTextForwardIndex, with or without the last docno
+	private static Path writeIndex(FileSystem fs, Configuration conf, boolean withLastDocno)
+			throws IOException {
+		List<Integer> docnos = new ArrayList<Integer>();
+		List<Long> offsets = new ArrayList<Long>();
+
+		SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(
+				IndexableAnchorTextForwardIndex.getPartPath(COLLECTION, 0), fs, conf);
+		IntWritable key = new IntWritable();
+		while (scanner.next()) {
+			scanner.readFirstKey(key);
+			docnos.add(key.get());
+			offsets.add(scanner.getBlockOffset());
+		}
+		scanner.close();
+		assertTrue(docnos.size() > 5);
+
+		Path index = new Path(COLLECTION + "/findex.dat");
+		FSDataOutputStream out = fs.create(index, true);
+		out.writeUTF(IndexableAnchorTextForwardIndex.class.getName());
+		out.writeUTF(COLLECTION);
+		out.writeInt(docnos.size());
+		for (int i = 0; i < docnos.size(); i++) {
+			out.writeInt(docnos.get(i));
+			out.writeInt((int) (long) offsets.get(i));
+			out.writeShort(0);
+		}
+		if (withLastDocno) {
+			out.writeInt(IndexableAnchorTextForwardIndex.readLastDocno(IndexableAnchorTextForwardIndex
+					.getPartPath(COLLECTION, 0), offsets.get(offsets.size() - 1), fs, conf));
+		}
+		out.close();
+
+		return index;
+	}
+
+	private static IndexableAnchorTextForwardIndex load(boolean withLastDocno) throws IOException {
+		Configuration conf = new Configuration();
+		FileSystem fs = FileSystem.getLocal(conf);
+		writeCollection(fs, conf);
+		Path index = writeIndex(fs, conf, withLastDocno);
+
+		IndexableAnchorTextForwardIndex findex =
+			new IndexableAnchorTextForwardIndex(new FakeDocnoMapping(), conf);
+		findex.setBlockCache(new SequenceFileBlockCache(1024 * 1024));
+		findex.loadIndex(index, new Path("unused"), fs);
+		return findex;
+	}
+
+	private static void assertDocument(int docno, IndexableAnchorText doc) {
+		assertEquals("doc-" + docno, doc.getDocid());
+		assertTrue(doc.getContent().contains(expectedLink(docno)));
+	}
+
+	@Test
+	public void testGetDocument() throws IOException {
+		for (boolean withLastDocno : new boolean[] { false, true }) {
+			IndexableAnchorTextForwardIndex findex = load(withLastDocno);
+
+			int lastDocno = FIRST_DOCNO + 2 * (NUM_DOCS - 1);
+			assertEquals(FIRST_DOCNO, findex.getFirstDocno());
+			assertEquals(lastDocno, findex.getLastDocno());
+
+			assertDocument(FIRST_DOCNO, findex.getDocument(FIRST_DOCNO));
+			assertDocument(lastDocno, findex.getDocument(lastDocno));
+			assertDocument(1000, findex.getDocument("doc-1000"));
+
+			assertNull(findex.getDocument(FIRST_DOCNO - 1));
+			assertNull(findex.getDocument(1001));
+			assertNull(findex.getDocument(lastDocno + 2));
+
+			findex.close();
+		}
+
+		FileSystem.getLocal(new Configuration()).delete(new Path(COLLECTION), true);
+	}
+
+	@Test
+	public void testGetDocuments() throws IOException {
+		IndexableAnchorTextForwardIndex findex = load(true);
+		Random r = new Random(0);
+
+		int[] docnos = new int[2000];
+		for (int i = 0; i < docnos.length; i++) {
+			docnos[i] = r.nextInt(2 * NUM_DOCS + 20);
+		}
+		docnos[1] = docnos[0];
+
+		long misses = findex.getBlockCache().getMisses();
+		IndexableAnchorText[] docs = findex.getDocuments(docnos);
+		long blocksRead = findex.getBlockCache().getMisses() - misses;
+
+		for (int i = 0; i < docnos.length; i++) {
+			int d = docnos[i];
+			if (d >= FIRST_DOCNO && d % 2 == 0 && d < FIRST_DOCNO + 2 * NUM_DOCS) {
+				assertDocument(d, docs[i]);
+			} else {
+				assertNull(docs[i]);
+			}
+		}
+
+		//each block is read once, even though most blocks hold several of the requested docnos
+		SequenceFileBlockScanner scanner = new SequenceFileBlockScanner(IndexableAnchorTextForwardIndex
+				.getPartPath(COLLECTION, 0), FileSystem.getLocal(new Configuration()), new Configuration());
+		int blocks = 0;
+		while (scanner.next()) {
+			blocks++;
+		}
+		scanner.close();
+		assertTrue(blocksRead <= blocks);
+
+		findex.close();
+		FileSystem.getLocal(new Configuration()).delete(new Path(COLLECTION), true);
+	}
+
+	@Test
+	public void testCacheHitsDontOpenFiles() throws IOException {
+		Configuration conf = new Configuration();
+		FileSystem local = FileSystem.getLocal(conf);
+		writeCollection(local, conf);
+		Path index = writeIndex(local, conf, true);
+
+		final AtomicInteger opens = new AtomicInteger();
+		FileSystem fs = new FilterFileSystem(local) {
+			@Override
+			public FSDataInputStream open(Path f, int bufferSize) throws IOException {
+				opens.incrementAndGet();
+				return super.open(f, bufferSize);
+			}
+		};
+
+		IndexableAnchorTextForwardIndex findex =
+			new IndexableAnchorTextForwardIndex(new FakeDocnoMapping(), conf);
+		findex.setBlockCache(new SequenceFileBlockCache(1024 * 1024));
+		findex.loadIndex(index, new Path("unused"), fs);
+
+		assertDocument(1000, findex.getDocument(1000));
+		assertTrue(opens.get() > 0);
+
+		//with no idle scanners left, a hit must still not touch the file system
+		findex.close();
+		opens.set(0);
+		assertDocument(1000, findex.getDocument(1000));
+		assertDocument(1002, findex.getDocument(1002));
+		assertEquals(0, opens.get());
+
+		findex.close();
+		local.delete(new Path(COLLECTION), true);
+	}
+
+	@Test
+	public void testConcurrentRequests() throws Exception {
+		final IndexableAnchorTextForwardIndex findex = load(true);
+		final AtomicInteger errors = new AtomicInteger();
+
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final Random r = new Random(t);
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < 500; i++) {
+						int docno = FIRST_DOCNO + 2 * r.nextInt(NUM_DOCS);
+						IndexableAnchorText doc = findex.getDocument(docno);
+						if (doc == null || !doc.getContent().contains(expectedLink(docno)))
+							errors.incrementAndGet();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(0, errors.get());
+
+		findex.close();
+		FileSystem.getLocal(new Configuration()).delete(new Path(COLLECTION), true);
+	}
+
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(IndexableAnchorTextForwardIndexTest.class);
+	}
+}